@@ -0,0 +1,152 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.common.monitor;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Striped counter record of one MonitorIndex key.
+ *
+ * The four statistic items are kept as LongAdder instances, so concurrent
+ * updates from the ingest threads neither allocate nor contend on one cell,
+ * the collector drains them through {@link #snapshotAndReset()}.
+ */
+public class IndexCounter {
+
+    public static final int IDX_MSG_CNT = 0;
+    public static final int IDX_PACK_CNT = 1;
+    public static final int IDX_PACK_SIZE = 2;
+    public static final int IDX_FAIL_CNT = 3;
+    public static final int ITEM_CNT = 4;
+
+    private final LongAdder msgCnt = new LongAdder();
+    private final LongAdder packCnt = new LongAdder();
+    private final LongAdder packSize = new LongAdder();
+    private final LongAdder failCnt = new LongAdder();
+    // whether the counter is removed from the registry
+    private volatile boolean retired = false;
+
+    public IndexCounter() {
+
+    }
+
+    /**
+     * add statistic values
+     * @param cnt       message count
+     * @param packcnt   package count
+     * @param packsize  package size
+     * @param failcnt   failure count
+     */
+    public void add(long cnt, long packcnt, long packsize, long failcnt) {
+        if (cnt != 0) {
+            msgCnt.add(cnt);
+        }
+        if (packcnt != 0) {
+            packCnt.add(packcnt);
+        }
+        if (packsize != 0) {
+            packSize.add(packsize);
+        }
+        if (failcnt != 0) {
+            failCnt.add(failcnt);
+        }
+    }
+
+    /**
+     * Take the values accumulated since the last call and reset the counter.
+     *
+     * The drained amount is subtracted instead of resetting the cells, so
+     * updates concurrent with this call are either included in the returned
+     * values or kept for the next snapshot, none of them is lost.
+     *
+     * @return the values indexed by IDX_MSG_CNT, IDX_PACK_CNT, IDX_PACK_SIZE and IDX_FAIL_CNT
+     */
+    public long[] snapshotAndReset() {
+        long[] values = new long[ITEM_CNT];
+        values[IDX_MSG_CNT] = drain(msgCnt);
+        values[IDX_PACK_CNT] = drain(packCnt);
+        values[IDX_PACK_SIZE] = drain(packSize);
+        values[IDX_FAIL_CNT] = drain(failCnt);
+        return values;
+    }
+
+    public boolean isRetired() {
+        return retired;
+    }
+
+    /**
+     * Mark the counter retired and take the values accumulated since the last call.
+     *
+     * The writers still holding a retired counter hand over what they add
+     * through {@link #drainRetired()}, the final drains are serialized so that
+     * each value is taken only once.
+     *
+     * @return the remaining values of the counter
+     */
+    public long[] retire() {
+        retired = true;
+        return drainRetired();
+    }
+
+    /**
+     * Take the values added to the counter after it is retired.
+     *
+     * @return the remaining values of the counter
+     */
+    public synchronized long[] drainRetired() {
+        return snapshotAndReset();
+    }
+
+    private static long drain(LongAdder adder) {
+        long value = adder.sum();
+        if (value != 0) {
+            adder.add(-value);
+        }
+        return value;
+    }
+
+    public static boolean isEmpty(long[] values) {
+        for (long value : values) {
+            if (value != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Format the snapshot values as "cnt#packcnt#size#fail"
+     *
+     * @param strBuff  the string buffer
+     * @param values   the snapshot values
+     * @return  the string buffer
+     */
+    public static StringBuilder toIndexString(StringBuilder strBuff, long[] values) {
+        return strBuff.append(values[IDX_MSG_CNT]).append("#")
+                .append(values[IDX_PACK_CNT]).append("#")
+                .append(values[IDX_PACK_SIZE]).append("#")
+                .append(values[IDX_FAIL_CNT]);
+    }
+
+    @Override
+    public String toString() {
+        return new StringBuilder(64).append(msgCnt.sum()).append("#")
+                .append(packCnt.sum()).append("#").append(packSize.sum())
+                .append("#").append(failCnt.sum()).toString();
+    }
+}
@@ -18,6 +18,7 @@
 package org.apache.inlong.common.monitor;
 
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import org.slf4j.Logger;
@@ -30,7 +31,8 @@ public class MonitorIndex {
 
     private IndexCollectThread indexCol;
     private String name;
-    private ConcurrentHashMap<String, String> counterMap = new ConcurrentHashMap<String, String>();
+    private ConcurrentHashMap<String, IndexCounter> counterMap =
+            new ConcurrentHashMap<String, IndexCounter>();
     private int intervalSec;
     private int maxCnt;
 
@@ -60,24 +62,7 @@ public class MonitorIndex {
      */
     public void addAndGet(String key, int cnt, int packcnt, long packsize, int failcnt) {
         try {
-            if (counterMap.size() < maxCnt) {
-                counterMap.compute(key, (key1, value) -> {
-                    if (value != null) {
-                        String[] va = value.split("#");
-                        value = (Integer.parseInt(va[0]) + cnt) + "#"
-                                + (Integer.parseInt(va[1]) + packcnt) + "#"
-                                + (Long.parseLong(va[2]) + packsize) + "#"
-                                + (Integer.parseInt(va[3]) + failcnt);
-                    } else {
-                        StringBuilder stringBuilder = new StringBuilder();
-                        value = stringBuilder.append(cnt).append("#").append(packcnt).append("#")
-                                .append(packsize).append("#").append(failcnt).toString();
-                    }
-                    return value;
-                });
-            } else if (logPrinter.shouldPrint()) {
-                logger.error(this.name + "exceed monitor's max size");
-            }
+            addToCounter(getOrCreateCounter(key), key, cnt, packcnt, packsize, failcnt);
         } catch (Exception e) {
             if (logPrinter.shouldPrint()) {
                 logger.error("monitor exception", e);
@@ -85,6 +70,88 @@ public class MonitorIndex {
         }
     }
 
+    /**
+     * Add the values to the counter of the key
+     *
+     * The counter may be retired by the collector after it is got from the
+     * registry, the values added to a retired counter after its final drain
+     * are taken back and added to the current counter of the key.
+     */
+    void addToCounter(IndexCounter counter, String key,
+                      long cnt, long packcnt, long packsize, long failcnt) {
+        long[] values;
+        while (counter != null) {
+            counter.add(cnt, packcnt, packsize, failcnt);
+            if (!counter.isRetired()) {
+                return;
+            }
+            values = counter.drainRetired();
+            if (IndexCounter.isEmpty(values)) {
+                return;
+            }
+            cnt = values[IndexCounter.IDX_MSG_CNT];
+            packcnt = values[IndexCounter.IDX_PACK_CNT];
+            packsize = values[IndexCounter.IDX_PACK_SIZE];
+            failcnt = values[IndexCounter.IDX_FAIL_CNT];
+            counter = getOrCreateCounter(key);
+        }
+        if (logPrinter.shouldPrint()) {
+            logger.error(this.name + "exceed monitor's max size");
+        }
+    }
+
+    /**
+     * Drain all counters and return the non-empty values of this period
+     *
+     * Counters without any update during the period are removed from the
+     * registry, so that the keys count only accounts for active keys.
+     *
+     * @return  the key and its "cnt#packcnt#size#fail" value
+     */
+    Map<String, String> snapshotAndReset() {
+        long[] values;
+        Map.Entry<String, IndexCounter> entry;
+        Map<String, String> result = new HashMap<String, String>();
+        StringBuilder strBuff = new StringBuilder(128);
+        Iterator<Map.Entry<String, IndexCounter>> iterator =
+                counterMap.entrySet().iterator();
+        while (iterator.hasNext()) {
+            entry = iterator.next();
+            values = entry.getValue().snapshotAndReset();
+            if (IndexCounter.isEmpty(values)) {
+                // retire the idle counter, then drain what the writers
+                // still holding it have added in the meantime, the later
+                // additions are moved to the new counter by the writers
+                if (!counterMap.remove(entry.getKey(), entry.getValue())) {
+                    continue;
+                }
+                values = entry.getValue().retire();
+                if (IndexCounter.isEmpty(values)) {
+                    continue;
+                }
+            }
+            result.put(entry.getKey(),
+                    IndexCounter.toIndexString(strBuff, values).toString());
+            strBuff.delete(0, strBuff.length());
+        }
+        return result;
+    }
+
+    IndexCounter getOrCreateCounter(String key) {
+        IndexCounter counter = counterMap.get(key);
+        if (counter == null) {
+            if (counterMap.size() >= maxCnt) {
+                return null;
+            }
+            IndexCounter tmpCounter = new IndexCounter();
+            counter = counterMap.putIfAbsent(key, tmpCounter);
+            if (counter == null) {
+                counter = tmpCounter;
+            }
+        }
+        return counter;
+    }
+
     public void shutDown() {
         indexCol.shutDown();
     }
@@ -112,21 +179,15 @@ public class MonitorIndex {
 
         @Override
         public void run() {
-            Map<String, String> counterExt = new HashMap<String, String>();
+            Map<String, String> counterExt;
             while (!bShutDown) {
                 try {
                     Thread.sleep(intervalSec * 1000L);
-                    for (String str : counterMap.keySet()) {
-                        counterMap.computeIfPresent(str, (s, s2) -> {
-                            counterExt.put(s, s2);
-                            return null;
-                        });
-                    }
+                    counterExt = snapshotAndReset();
                     for (Map.Entry<String, String> entrys : counterExt.entrySet()) {
                         logger.info("{}#{}#{}",
                                 new Object[]{name, entrys.getKey(), entrys.getValue()});
                     }
-                    counterExt.clear();
                 } catch (Exception e) {
                     logger.warn("monitor interrupted");
                 }
@@ -305,7 +305,7 @@ public class InLongMsg {
         return (data.getShort(BIN_MSG_EXTFIELD_OFFSET) & 0x4) == 0;
     }
 
-    private boolean checkBinData(ByteBuffer data) {
+    private static boolean checkBinData(ByteBuffer data) {
         int totalLen = data.getInt(BIN_MSG_TOTALLEN_OFFSET);
         int bodyLen = data.getInt(BIN_MSG_BODYLEN_OFFSET);
         int attrLen = data.getShort(BIN_MSG_BODY_OFFSET + bodyLen);
@@ -320,6 +320,45 @@ public class InLongMsg {
         return true;
     }
 
+    /**
+     * Whether the body of the binary message has been compressed by the sender
+     *
+     * @param binMsg binary message
+     * @return true if compressed
+     */
+    public static boolean isBinMsgCompressed(byte[] binMsg) {
+        return binMsg.length > BIN_MSG_MSGTYPE_OFFSET
+                && ((binMsg[BIN_MSG_MSGTYPE_OFFSET] & 0xE0) >> 5) != 0;
+    }
+
+    /**
+     * Build the version 4 message array of one binary message as it is,
+     * without buffering it in an InLongMsg object or compressing its body.
+     *
+     * The result equals what an uncompressed version 4 InLongMsg builds
+     * for the same binary message.
+     *
+     * @param binMsg binary message
+     * @return the message array, or null if the binary message is invalid
+     */
+    public static byte[] buildBinMsgArray(byte[] binMsg) {
+        if (binMsg == null || binMsg.length < BIN_MSG_FORMAT_SIZE) {
+            return null;
+        }
+        try {
+            if (!checkBinData(ByteBuffer.wrap(binMsg))) {
+                return null;
+            }
+        } catch (IndexOutOfBoundsException e) {
+            return null;
+        }
+        byte[] res = new byte[MAGIC4.length + binMsg.length + MAGIC4.length];
+        System.arraycopy(MAGIC4, 0, res, 0, MAGIC4.length);
+        System.arraycopy(binMsg, 0, res, MAGIC4.length, binMsg.length);
+        System.arraycopy(MAGIC4, 0, res, MAGIC4.length + binMsg.length, MAGIC4.length);
+        return res;
+    }
+
     public boolean addMsgs(String attr, ByteBuffer data) {
         boolean res = true;
         Iterator<ByteBuffer> it = getIteratorBuffer(data);
@@ -0,0 +1,146 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.common.monitor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * MonitorIndex unit test
+ */
+public class MonitorIndexTest {
+
+    private MonitorIndex monitorIndex;
+
+    @Before
+    public void setUp() {
+        monitorIndex = new MonitorIndex("Test", 3600, 2);
+    }
+
+    @After
+    public void tearDown() {
+        monitorIndex.shutDown();
+    }
+
+    @Test
+    public void testSnapshotAndReset() {
+        monitorIndex.addAndGet("key1", 2, 1, 100, 0);
+        monitorIndex.addAndGet("key1", 3, 1, 50, 0);
+        monitorIndex.addAndGet("key2", 0, 0, 0, 4);
+        Map<String, String> result = monitorIndex.snapshotAndReset();
+        assertEquals(2, result.size());
+        assertEquals("5#2#150#0", result.get("key1"));
+        assertEquals("0#0#0#4", result.get("key2"));
+        // counters are reset after the snapshot
+        monitorIndex.addAndGet("key1", 1, 1, 10, 0);
+        result = monitorIndex.snapshotAndReset();
+        assertEquals(1, result.size());
+        assertEquals("1#1#10#0", result.get("key1"));
+        // idle keys are retired, new keys are accepted again
+        assertTrue(monitorIndex.snapshotAndReset().isEmpty());
+        monitorIndex.addAndGet("key3", 1, 1, 1, 0);
+        monitorIndex.addAndGet("key4", 1, 1, 1, 0);
+        monitorIndex.addAndGet("key5", 1, 1, 1, 0);
+        result = monitorIndex.snapshotAndReset();
+        assertEquals(2, result.size());
+        assertEquals("1#1#1#0", result.get("key3"));
+        assertEquals("1#1#1#0", result.get("key4"));
+    }
+
+    @Test
+    public void testConcurrentAdd() throws Exception {
+        int threadCnt = 4;
+        int loopCnt = 10000;
+        Thread[] threads = new Thread[threadCnt];
+        for (int i = 0; i < threadCnt; i++) {
+            threads[i] = new Thread(() -> {
+                for (int j = 0; j < loopCnt; j++) {
+                    monitorIndex.addAndGet("key", 1, 1, 10, 0);
+                }
+            });
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        long total = (long) threadCnt * loopCnt;
+        assertEquals(total + "#" + total + "#" + (total * 10) + "#0",
+                monitorIndex.snapshotAndReset().get("key"));
+    }
+
+    @Test
+    public void testAddToRetiredCounter() {
+        monitorIndex.addAndGet("key1", 1, 1, 10, 0);
+        assertEquals("1#1#10#0", monitorIndex.snapshotAndReset().get("key1"));
+        // a writer holds the counter while it is retired
+        IndexCounter counter = monitorIndex.getOrCreateCounter("key1");
+        assertTrue(monitorIndex.snapshotAndReset().isEmpty());
+        assertTrue(counter.isRetired());
+        // the late addition is moved to the new counter of the key
+        monitorIndex.addToCounter(counter, "key1", 2, 1, 20, 0);
+        assertEquals("2#1#20#0", monitorIndex.snapshotAndReset().get("key1"));
+    }
+
+    @Test
+    public void testConcurrentRetire() throws Exception {
+        int threadCnt = 4;
+        int loopCnt = 20000;
+        AtomicBoolean isFinished = new AtomicBoolean(false);
+        AtomicLong collected = new AtomicLong(0);
+        Thread collector = new Thread(() -> {
+            while (!isFinished.get()) {
+                collectMsgCnt(collected);
+            }
+        });
+        collector.start();
+        Thread[] threads = new Thread[threadCnt];
+        for (int i = 0; i < threadCnt; i++) {
+            threads[i] = new Thread(() -> {
+                for (int j = 0; j < loopCnt; j++) {
+                    monitorIndex.addAndGet("key", 1, 0, 0, 0);
+                    if (j % 100 == 0) {
+                        Thread.yield();
+                    }
+                }
+            });
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        isFinished.set(true);
+        collector.join();
+        collectMsgCnt(collected);
+        // no addition is lost while the counters are retired
+        assertEquals((long) threadCnt * loopCnt, collected.get());
+    }
+
+    private void collectMsgCnt(AtomicLong collected) {
+        String value = monitorIndex.snapshotAndReset().get("key");
+        if (value != null) {
+            collected.addAndGet(Long.parseLong(value.split("#")[0]));
+        }
+    }
+}
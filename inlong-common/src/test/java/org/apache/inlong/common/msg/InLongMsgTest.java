@@ -0,0 +1,75 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.common.msg;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import org.junit.Test;
+
+/**
+ * InLongMsg unit test
+ */
+public class InLongMsgTest {
+
+    @Test
+    public void testBuildBinMsgArray() {
+        byte[] binMsg = buildBinMsg(7, "test body".getBytes(StandardCharsets.UTF_8),
+                "groupId=group&streamId=stream");
+        InLongMsg inLongMsg = InLongMsg.newInLongMsg(false, 4);
+        assertTrue(inLongMsg.addMsg(binMsg));
+        assertArrayEquals(inLongMsg.buildArray(), InLongMsg.buildBinMsgArray(binMsg));
+        assertFalse(InLongMsg.isBinMsgCompressed(binMsg));
+        // body compressed by the sender
+        byte[] compressedMsg = buildBinMsg(7 | (1 << 5),
+                "test body".getBytes(StandardCharsets.UTF_8), "");
+        assertTrue(InLongMsg.isBinMsgCompressed(compressedMsg));
+        inLongMsg = InLongMsg.newInLongMsg(true, 4);
+        assertTrue(inLongMsg.addMsg(compressedMsg));
+        assertArrayEquals(inLongMsg.buildArray(), InLongMsg.buildBinMsgArray(compressedMsg));
+        // invalid binary messages
+        assertNull(InLongMsg.buildBinMsgArray(new byte[10]));
+        binMsg[binMsg.length - 1] = 0;
+        assertNull(InLongMsg.buildBinMsgArray(binMsg));
+        ByteBuffer.wrap(binMsg).putInt(21, 1000);
+        assertNull(InLongMsg.buildBinMsgArray(binMsg));
+    }
+
+    private byte[] buildBinMsg(int msgType, byte[] body, String attr) {
+        byte[] attrData = attr.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer = ByteBuffer.allocate(body.length + attrData.length + 29);
+        buffer.putInt(buffer.capacity() - 4);
+        buffer.put((byte) msgType);
+        buffer.putShort((short) 0);
+        buffer.putShort((short) 0);
+        buffer.putShort((short) 0x4);
+        buffer.putInt((int) (System.currentTimeMillis() / 1000));
+        buffer.putShort((short) 1);
+        buffer.putInt(1);
+        buffer.putInt(body.length);
+        buffer.put(body);
+        buffer.putShort((short) attrData.length);
+        buffer.put(attrData);
+        buffer.putShort((short) 0xEE01);
+        return buffer.array();
+    }
+}
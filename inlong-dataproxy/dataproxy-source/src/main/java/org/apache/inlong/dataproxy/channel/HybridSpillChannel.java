@@ -0,0 +1,365 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.dataproxy.channel;
+
+import com.google.common.base.Preconditions;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import org.apache.flume.ChannelException;
+import org.apache.flume.Context;
+import org.apache.flume.Event;
+import org.apache.flume.channel.BasicChannelSemantics;
+import org.apache.flume.channel.BasicTransactionSemantics;
+import org.apache.flume.instrumentation.ChannelCounter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Channel keeping the events in memory, and spilling them to a memory mapped log
+ * only when the sinks fall behind.
+ *
+ * While the memory queue has room and nothing has been spilled, the events stay
+ * in memory as with the memory channel. Once the queue is full, the committed
+ * events are appended to the MmapSpillLog, and keep going there until the sinks
+ * have drained the log, so the events are always taken in the put order. The
+ * spilled events are removed from the log only when the take transaction commits,
+ * and one transaction reads the log at a time, so the uncommitted spilled events,
+ * and the memory events at a normal stop, are replayed in order after a restart.
+ *
+ * Puts wait up to keep-alive seconds and then fail when both the memory queue
+ * and the spill log are full, so the FailoverChannelSelector can fall back to
+ * the optional channels.
+ *
+ * After stop, the takes and the commits with puts are rejected, and the memory
+ * events of the transactions rolled back are spilled in front of the others.
+ */
+public class HybridSpillChannel extends BasicChannelSemantics {
+
+    private static final Logger LOG = LoggerFactory.getLogger(HybridSpillChannel.class);
+
+    private static final String CAPACITY = "capacity";
+    private static final int DEFAULT_CAPACITY = 100000;
+    private static final String TRANSACTION_CAPACITY = "transactionCapacity";
+    private static final int DEFAULT_TRANSACTION_CAPACITY = 200;
+    private static final String KEEP_ALIVE = "keep-alive";
+    private static final int DEFAULT_KEEP_ALIVE = 3;
+    private static final String SPILL_DIR = "spillDir";
+    private static final String DEFAULT_SPILL_DIR = "./data/spill";
+    private static final String SEGMENT_SIZE = "segmentSize";
+    private static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+    private static final String MAX_SPILL_BYTES = "maxSpillBytes";
+    private static final long DEFAULT_MAX_SPILL_BYTES = 10L * 1024 * 1024 * 1024;
+
+    private final ReentrantLock queueLock = new ReentrantLock();
+    private final Condition notFull = queueLock.newCondition();
+    private final ArrayDeque<Event> memQueue = new ArrayDeque<>();
+    private int capacity;
+    private int transCapacity;
+    private int keepAlive;
+    private File spillDir;
+    private int segmentSize;
+    private long maxSpillBytes;
+    private MmapSpillLog spillLog;
+    // the transaction reading the spill log, until it commits or rolls back
+    private HybridSpillTransaction spillReader;
+    private ChannelCounter channelCounter;
+
+    @Override
+    public void configure(Context context) {
+        capacity = context.getInteger(CAPACITY, DEFAULT_CAPACITY);
+        transCapacity = context.getInteger(TRANSACTION_CAPACITY, DEFAULT_TRANSACTION_CAPACITY);
+        keepAlive = context.getInteger(KEEP_ALIVE, DEFAULT_KEEP_ALIVE);
+        segmentSize = context.getInteger(SEGMENT_SIZE, DEFAULT_SEGMENT_SIZE);
+        maxSpillBytes = context.getLong(MAX_SPILL_BYTES, DEFAULT_MAX_SPILL_BYTES);
+        Preconditions.checkArgument(capacity > 0, "capacity must be > 0");
+        Preconditions.checkArgument(transCapacity > 0 && transCapacity <= capacity,
+                "transactionCapacity must be > 0 and <= capacity");
+        Preconditions.checkArgument(keepAlive >= 0, "keep-alive must be >= 0");
+        Preconditions.checkArgument(segmentSize > 0, "segmentSize must be > 0");
+        spillDir = new File(context.getString(SPILL_DIR,
+                DEFAULT_SPILL_DIR + File.separator + getName()));
+        if (channelCounter == null) {
+            channelCounter = new ChannelCounter(getName());
+        }
+        LOG.info("Configure hybrid spill channel {}, capacity = {}, transactionCapacity = {}"
+                + ", spillDir = {}, segmentSize = {}, maxSpillBytes = {}", getName(), capacity,
+                transCapacity, spillDir, segmentSize, maxSpillBytes);
+    }
+
+    @Override
+    public synchronized void start() {
+        queueLock.lock();
+        try {
+            spillLog = new MmapSpillLog(spillDir, segmentSize, maxSpillBytes);
+            channelCounter.start();
+            channelCounter.setChannelCapacity(capacity);
+            channelCounter.setChannelSize(spillLog.getEventCount());
+        } catch (IOException e) {
+            throw new ChannelException("Open spill log failure, channel = " + getName(), e);
+        } finally {
+            queueLock.unlock();
+        }
+        super.start();
+    }
+
+    @Override
+    public synchronized void stop() {
+        queueLock.lock();
+        try {
+            if (spillLog != null) {
+                spillReader = null;
+                // keep the memory events in front of the spilled ones
+                if (!memQueue.isEmpty()) {
+                    List<byte[]> records = new ArrayList<>(memQueue.size());
+                    for (Event event : memQueue) {
+                        records.add(MmapSpillLog.encode(event));
+                    }
+                    spillLog.prepend(records);
+                    LOG.info("Spilled {} memory events of channel {} at stop",
+                            memQueue.size(), getName());
+                    memQueue.clear();
+                }
+                spillLog.close();
+                spillLog = null;
+                // the waiting puts fail at once
+                notFull.signalAll();
+            }
+        } catch (IOException e) {
+            LOG.error("Spill memory events failure at stop, channel = {}", getName(), e);
+        } finally {
+            queueLock.unlock();
+        }
+        channelCounter.setChannelSize(0);
+        channelCounter.stop();
+        super.stop();
+    }
+
+    @Override
+    protected BasicTransactionSemantics createTransaction() {
+        return new HybridSpillTransaction();
+    }
+
+    public int getMemoryEventCount() {
+        queueLock.lock();
+        try {
+            return memQueue.size();
+        } finally {
+            queueLock.unlock();
+        }
+    }
+
+    public long getSpilledEventCount() {
+        queueLock.lock();
+        try {
+            return (spillLog == null) ? 0 : spillLog.getEventCount();
+        } finally {
+            queueLock.unlock();
+        }
+    }
+
+    private long getChannelSize() {
+        return (spillLog == null) ? memQueue.size() : memQueue.size() + spillLog.getEventCount();
+    }
+
+    private ChannelException stoppedException() {
+        return new ChannelException("Channel " + getName() + " has been stopped");
+    }
+
+    private class HybridSpillTransaction extends BasicTransactionSemantics {
+
+        private final List<Event> putList = new ArrayList<>();
+        private final List<Event> takeList = new ArrayList<>();
+        private final List<Event> memTakeList = new ArrayList<>();
+
+        @Override
+        protected void doPut(Event event) throws InterruptedException {
+            channelCounter.incrementEventPutAttemptCount();
+            if (putList.size() >= transCapacity) {
+                throw new ChannelException("Put queue for HybridSpillTransaction of capacity "
+                        + transCapacity + " full, consider committing more frequently, "
+                        + "increasing capacity or increasing thread count");
+            }
+            putList.add(event);
+        }
+
+        @Override
+        protected Event doTake() throws InterruptedException {
+            channelCounter.incrementEventTakeAttemptCount();
+            if (takeList.size() >= transCapacity) {
+                throw new ChannelException("Take list for HybridSpillTransaction, capacity "
+                        + transCapacity + " full, consider committing more frequently, "
+                        + "increasing capacity, or increasing thread count");
+            }
+            Event event;
+            queueLock.lock();
+            try {
+                if (spillLog == null) {
+                    throw stoppedException();
+                }
+                // the memory events are always older than the spilled ones
+                event = memQueue.pollFirst();
+                if (event != null) {
+                    memTakeList.add(event);
+                } else if (spillReader == null || spillReader == this) {
+                    event = spillLog.poll();
+                    if (event != null) {
+                        spillReader = this;
+                    }
+                }
+            } finally {
+                queueLock.unlock();
+            }
+            if (event != null) {
+                takeList.add(event);
+            }
+            return event;
+        }
+
+        @Override
+        protected void doCommit() throws InterruptedException {
+            int puts = putList.size();
+            int takes = takeList.size();
+            if (puts > 0) {
+                commitPuts();
+            }
+            queueLock.lock();
+            try {
+                if (spillReader == this) {
+                    // the read spilled events are removed only now
+                    spillLog.commitRead();
+                    spillReader = null;
+                }
+                if (takes > 0) {
+                    notFull.signalAll();
+                }
+                channelCounter.setChannelSize(getChannelSize());
+            } finally {
+                queueLock.unlock();
+            }
+            channelCounter.addToEventPutSuccessCount(puts);
+            channelCounter.addToEventTakeSuccessCount(takes);
+            putList.clear();
+            takeList.clear();
+            memTakeList.clear();
+        }
+
+        @Override
+        protected void doRollback() {
+            queueLock.lock();
+            try {
+                if (spillLog == null) {
+                    // stopped, the memory queue has been spilled already
+                    spillAfterStop();
+                } else {
+                    // give back the memory events in their original order
+                    for (int i = memTakeList.size() - 1; i >= 0; i--) {
+                        memQueue.addFirst(memTakeList.get(i));
+                    }
+                    // and rewind the spill log to the committed position
+                    if (spillReader == this) {
+                        spillLog.rollbackRead();
+                        spillReader = null;
+                    }
+                    channelCounter.setChannelSize(getChannelSize());
+                }
+            } finally {
+                queueLock.unlock();
+            }
+            putList.clear();
+            takeList.clear();
+            memTakeList.clear();
+        }
+
+        /**
+         * Put the memory events taken by the transaction rolled back after stop
+         * in front of the events spilled at stop, so they are replayed after a restart.
+         */
+        private void spillAfterStop() {
+            if (memTakeList.isEmpty()) {
+                return;
+            }
+            List<byte[]> records = new ArrayList<>(memTakeList.size());
+            for (Event event : memTakeList) {
+                records.add(MmapSpillLog.encode(event));
+            }
+            try {
+                MmapSpillLog stoppedLog = new MmapSpillLog(spillDir, segmentSize, maxSpillBytes);
+                try {
+                    stoppedLog.prepend(records);
+                } finally {
+                    stoppedLog.close();
+                }
+                LOG.info("Spilled {} rolled back events of channel {} after stop",
+                        records.size(), getName());
+            } catch (IOException e) {
+                LOG.error("Spill rolled back events failure after stop, channel = {}", getName(), e);
+            }
+        }
+
+        private void commitPuts() throws InterruptedException {
+            List<byte[]> records = null;
+            long recordBytes = 0;
+            long waitNanos = TimeUnit.SECONDS.toNanos(keepAlive);
+            queueLock.lock();
+            try {
+                while (true) {
+                    if (spillLog == null) {
+                        throw stoppedException();
+                    }
+                    // the rolled back takes may have pushed the memory queue over capacity
+                    int memRoom = spillLog.isEmpty() ? Math.max(0, capacity - memQueue.size()) : 0;
+                    if (memRoom >= putList.size()) {
+                        memQueue.addAll(putList);
+                        return;
+                    }
+                    // the events beyond the memory room go to the spill log
+                    if (records == null) {
+                        records = new ArrayList<>(putList.size());
+                        for (Event event : putList) {
+                            byte[] record = MmapSpillLog.encode(event);
+                            records.add(record);
+                            recordBytes += record.length + 4;
+                        }
+                    }
+                    if (spillLog.hasRoom(recordBytes)) {
+                        // append all or none, then fill the memory room
+                        spillLog.append(records.subList(memRoom, records.size()));
+                        memQueue.addAll(putList.subList(0, memRoom));
+                        return;
+                    }
+                    if (waitNanos <= 0) {
+                        throw new ChannelException("Space for commit to queue couldn't be acquired."
+                                + " Sinks are likely not keeping up with sources, or the buffer size"
+                                + " is too tight, channel = " + getName());
+                    }
+                    waitNanos = notFull.awaitNanos(waitNanos);
+                }
+            } catch (IOException e) {
+                throw new ChannelException("Write spill log failure, channel = " + getName(), e);
+            } finally {
+                queueLock.unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,579 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.dataproxy.channel;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import org.apache.flume.Event;
+import org.apache.flume.event.EventBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Segmented memory mapped log that keeps the events spilled by HybridSpillChannel.
+ *
+ * Events are appended to the tail segment and read from the head segment in order,
+ * each record is stored as [int length][int header count]([int key length][key]
+ * [int value length][value])*[int body length][body], a zero length ends a segment.
+ *
+ * The events are read in a read transaction: {@link #poll()} only moves a pending
+ * read position, {@link #commitRead()} stores it into a mapped checkpoint file and
+ * deletes the fully read segments, {@link #rollbackRead()} rewinds to the committed
+ * position. So the events not committed yet are replayed in order after a crash.
+ *
+ * The log is not thread safe, the caller serializes the accesses.
+ */
+public class MmapSpillLog {
+
+    private static final Logger LOG = LoggerFactory.getLogger(MmapSpillLog.class);
+
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String CHECKPOINT_FILE = "checkpoint";
+    private static final int CHECKPOINT_SIZE = 16;
+    private static final int RECORD_LEN_SIZE = 4;
+    // leave room to prepend segments before the first one
+    private static final long INIT_SEGMENT_SEQ = 1L << 32;
+    // Unsafe#invokeCleaner to release the mapped memory at once on JDK 9+, null on JDK 8
+    private static final Object UNSAFE;
+    private static final Method INVOKE_CLEANER;
+    // whether the mapped memory can be released at once, otherwise it is left to the GC
+    private static volatile boolean unmapSupported = true;
+
+    static {
+        Object unsafe = null;
+        Method invokeCleaner = null;
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            unsafe = theUnsafe.get(null);
+        } catch (Throwable e) {
+            // JDK 8, released by the cleaner of the buffer
+            invokeCleaner = null;
+        }
+        UNSAFE = unsafe;
+        INVOKE_CLEANER = invokeCleaner;
+    }
+
+    private final File spillDir;
+    private final int segmentSize;
+    private final long maxSpillBytes;
+    private final List<Segment> segments = new ArrayList<>();
+    private MappedByteBuffer checkpoint;
+    // the committed read position, in the head segment
+    private int commitOffset = 0;
+    // the pending read position of the read transaction
+    private int readIndex = 0;
+    private int readOffset = 0;
+    private long nextSegmentSeq = INIT_SEGMENT_SEQ;
+    // the events not read yet
+    private long eventCount = 0;
+    // the events read but not committed yet
+    private long pendingCount = 0;
+    private long spillBytes = 0;
+
+    /**
+     * Open the spill log, and recover the unread events left in the directory
+     *
+     * @param spillDir       the spill directory
+     * @param segmentSize    the size of each segment file
+     * @param maxSpillBytes  the maximum bytes of all segment files
+     * @throws IOException   the exception while opening the files
+     */
+    public MmapSpillLog(File spillDir, int segmentSize, long maxSpillBytes) throws IOException {
+        this.spillDir = spillDir;
+        this.segmentSize = segmentSize;
+        this.maxSpillBytes = maxSpillBytes;
+        if (!spillDir.exists() && !spillDir.mkdirs()) {
+            throw new IOException("Create spill directory failure, path = " + spillDir);
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(
+                new File(spillDir, CHECKPOINT_FILE), "rw")) {
+            raf.setLength(CHECKPOINT_SIZE);
+            this.checkpoint = raf.getChannel().map(
+                    FileChannel.MapMode.READ_WRITE, 0, CHECKPOINT_SIZE);
+        }
+        recover();
+    }
+
+    /**
+     * Whether the events can be appended without exceeding the maximum spill bytes
+     *
+     * @param recordBytes  the encoded bytes of the events
+     * @return  true if the room is enough
+     */
+    public boolean hasRoom(long recordBytes) {
+        return spillBytes + recordBytes + segmentSize <= maxSpillBytes;
+    }
+
+    /**
+     * Append the encoded events to the tail of the log, either all of them are
+     * appended or none if failed
+     *
+     * @param records  the encoded events, in order
+     * @throws IOException  the exception while creating a segment
+     */
+    public void append(List<byte[]> records) throws IOException {
+        int segmentCnt = segments.size();
+        Segment tail = (segmentCnt == 0) ? null : segments.get(segmentCnt - 1);
+        int tailPos = (tail == null) ? 0 : tail.writePos;
+        long oldEventCount = eventCount;
+        try {
+            for (byte[] record : records) {
+                appendRecord(record);
+            }
+        } catch (IOException e) {
+            // undo the appended part
+            while (segments.size() > segmentCnt) {
+                deleteSegment(segments.remove(segments.size() - 1));
+            }
+            if (tail != null) {
+                tail.truncate(tailPos);
+            }
+            if (segments.isEmpty()) {
+                updateCheckpoint(nextSegmentSeq, 0);
+            }
+            eventCount = oldEventCount;
+            throw e;
+        }
+    }
+
+    /**
+     * Read the event at the pending read position, and advance the position,
+     * the event is removed from the log only when the read is committed
+     *
+     * @return  the event, or null if no unread event
+     */
+    public Event poll() {
+        if (eventCount == 0) {
+            return null;
+        }
+        Segment segment = segments.get(readIndex);
+        while (!segment.hasRecord(readOffset)) {
+            segment = segments.get(++readIndex);
+            readOffset = 0;
+        }
+        byte[] record = segment.read(readOffset);
+        readOffset += RECORD_LEN_SIZE + record.length;
+        eventCount--;
+        pendingCount++;
+        return decode(record);
+    }
+
+    /**
+     * Commit the pending read position to the checkpoint, and delete the read segments
+     */
+    public void commitRead() {
+        if (pendingCount == 0) {
+            return;
+        }
+        pendingCount = 0;
+        if (eventCount == 0) {
+            // all events are read, drop the segments
+            while (!segments.isEmpty()) {
+                deleteSegment(segments.remove(0));
+            }
+            updateCheckpoint(nextSegmentSeq, 0);
+            return;
+        }
+        if (!segments.get(readIndex).hasRecord(readOffset)) {
+            readIndex++;
+            readOffset = 0;
+        }
+        for (; readIndex > 0; readIndex--) {
+            deleteSegment(segments.remove(0));
+        }
+        updateCheckpoint(segments.get(0).seq, readOffset);
+    }
+
+    /**
+     * Rewind the pending read position to the committed one, the events read
+     * since the last commit are read again
+     */
+    public void rollbackRead() {
+        eventCount += pendingCount;
+        pendingCount = 0;
+        readIndex = 0;
+        readOffset = commitOffset;
+    }
+
+    public boolean hasPendingRead() {
+        return pendingCount > 0;
+    }
+
+    /**
+     * Put the events in front of the unread events, used to keep the events
+     * still buffered in memory when the channel stops.
+     *
+     * The events are written to a new head segment together with the unread
+     * part of the current head segment, ignoring the maximum spill bytes.
+     * The pending read is rolled back first.
+     *
+     * @param records  the encoded events, in order
+     * @throws IOException  the exception while writing the segment
+     */
+    public void prepend(Collection<byte[]> records) throws IOException {
+        if (records.isEmpty()) {
+            return;
+        }
+        rollbackRead();
+        if (segments.isEmpty()) {
+            append(new ArrayList<>(records));
+            return;
+        }
+        Segment head = segments.get(0);
+        long totalBytes = head.writePos - commitOffset;
+        for (byte[] record : records) {
+            totalBytes += RECORD_LEN_SIZE + record.length;
+        }
+        if (totalBytes > Integer.MAX_VALUE) {
+            throw new IOException("Prepended events exceed the segment size limit");
+        }
+        Segment front = createSegment(head.seq - 1,
+                Math.max(segmentSize, (int) totalBytes));
+        for (byte[] record : records) {
+            front.append(record);
+        }
+        front.appendRaw(head, commitOffset);
+        deleteSegment(segments.remove(0));
+        segments.add(0, front);
+        updateCheckpoint(front.seq, 0);
+        eventCount += records.size();
+    }
+
+    /**
+     * Whether the log has neither unread events nor events read but not committed
+     *
+     * @return  true if empty
+     */
+    public boolean isEmpty() {
+        return eventCount == 0 && pendingCount == 0;
+    }
+
+    public long getEventCount() {
+        return eventCount;
+    }
+
+    public long getSpillBytes() {
+        return spillBytes;
+    }
+
+    public int getSegmentCount() {
+        return segments.size();
+    }
+
+    /**
+     * Release the mapped files, the unread events and the events read but
+     * not committed are kept for the next open
+     */
+    public void close() {
+        for (Segment segment : segments) {
+            segment.unmap();
+        }
+        segments.clear();
+        if (checkpoint != null) {
+            checkpoint.force();
+            unmap(checkpoint);
+            checkpoint = null;
+        }
+    }
+
+    /**
+     * Encode an event as a spill record
+     *
+     * @param event  the event
+     * @return  the record without the length field
+     */
+    public static byte[] encode(Event event) {
+        Map<String, String> headers = event.getHeaders();
+        List<byte[]> fields = new ArrayList<>(headers.size() * 2);
+        int recordLen = 4;
+        for (Map.Entry<String, String> entry : headers.entrySet()) {
+            byte[] key = entry.getKey().getBytes(StandardCharsets.UTF_8);
+            byte[] value = (entry.getValue() == null)
+                    ? new byte[0] : entry.getValue().getBytes(StandardCharsets.UTF_8);
+            fields.add(key);
+            fields.add(value);
+            recordLen += 8 + key.length + value.length;
+        }
+        byte[] body = (event.getBody() == null) ? new byte[0] : event.getBody();
+        recordLen += 4 + body.length;
+        ByteBuffer buffer = ByteBuffer.allocate(recordLen);
+        buffer.putInt(headers.size());
+        for (byte[] field : fields) {
+            buffer.putInt(field.length);
+            buffer.put(field);
+        }
+        buffer.putInt(body.length);
+        buffer.put(body);
+        return buffer.array();
+    }
+
+    /**
+     * Decode a spill record as an event
+     *
+     * @param record  the record without the length field
+     * @return  the event
+     */
+    public static Event decode(byte[] record) {
+        ByteBuffer buffer = ByteBuffer.wrap(record);
+        int headerCnt = buffer.getInt();
+        Map<String, String> headers = new HashMap<>(Math.max(16, headerCnt * 2));
+        for (int i = 0; i < headerCnt; i++) {
+            String key = readString(buffer);
+            headers.put(key, readString(buffer));
+        }
+        byte[] body = new byte[buffer.getInt()];
+        buffer.get(body);
+        return EventBuilder.withBody(body, headers);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int len = buffer.getInt();
+        String value = new String(buffer.array(), buffer.position(), len, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + len);
+        return value;
+    }
+
+    private void recover() throws IOException {
+        long readSeq = checkpoint.getLong(0);
+        int offset = checkpoint.getInt(8);
+        TreeMap<Long, File> segmentFiles = new TreeMap<>();
+        File[] files = spillDir.listFiles((dir, name) -> name.endsWith(SEGMENT_SUFFIX));
+        if (files != null) {
+            for (File file : files) {
+                String name = file.getName();
+                try {
+                    segmentFiles.put(Long.parseLong(
+                            name.substring(0, name.length() - SEGMENT_SUFFIX.length())), file);
+                } catch (NumberFormatException e) {
+                    LOG.warn("Skip unknown file {} in spill directory", file);
+                }
+            }
+        }
+        for (Map.Entry<Long, File> entry : segmentFiles.entrySet()) {
+            if (entry.getKey() < readSeq) {
+                // already read before the restart
+                if (!entry.getValue().delete()) {
+                    LOG.warn("Delete read spill segment {} failure", entry.getValue());
+                }
+                continue;
+            }
+            Segment segment = new Segment(entry.getValue(), entry.getKey(),
+                    (int) entry.getValue().length());
+            if (segments.isEmpty()) {
+                if (segment.seq != readSeq) {
+                    offset = 0;
+                }
+                commitOffset = offset;
+                readOffset = offset;
+                eventCount += segment.countRecords(offset);
+            } else {
+                eventCount += segment.countRecords(0);
+            }
+            spillBytes += segment.capacity;
+            segments.add(segment);
+            nextSegmentSeq = Math.max(nextSegmentSeq, segment.seq + 1);
+        }
+        if (eventCount == 0) {
+            while (!segments.isEmpty()) {
+                deleteSegment(segments.remove(0));
+            }
+            nextSegmentSeq = Math.max(nextSegmentSeq, readSeq);
+            updateCheckpoint(nextSegmentSeq, 0);
+        } else {
+            updateCheckpoint(segments.get(0).seq, commitOffset);
+            LOG.info("Recovered {} spilled events in {} segments from {}",
+                    eventCount, segments.size(), spillDir);
+        }
+    }
+
+    private void appendRecord(byte[] record) throws IOException {
+        Segment tail = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+        if (tail == null || !tail.append(record)) {
+            tail = createSegment(nextSegmentSeq++,
+                    Math.max(segmentSize, RECORD_LEN_SIZE + record.length));
+            segments.add(tail);
+            if (segments.size() == 1) {
+                updateCheckpoint(tail.seq, 0);
+            }
+            tail.append(record);
+        }
+        eventCount++;
+    }
+
+    private Segment createSegment(long seq, int capacity) throws IOException {
+        File file = new File(spillDir, String.format("%020d", seq) + SEGMENT_SUFFIX);
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(capacity);
+        }
+        spillBytes += capacity;
+        return new Segment(file, seq, capacity);
+    }
+
+    private void deleteSegment(Segment segment) {
+        segment.unmap();
+        spillBytes -= segment.capacity;
+        if (!segment.file.delete()) {
+            LOG.warn("Delete spill segment {} failure", segment.file);
+        }
+    }
+
+    private void updateCheckpoint(long seq, int offset) {
+        commitOffset = offset;
+        readIndex = 0;
+        readOffset = offset;
+        checkpoint.putLong(0, seq);
+        checkpoint.putInt(8, offset);
+    }
+
+    /**
+     * Release the mapped memory at once, the JDK internal cleaner is reached by
+     * reflection, if it is not accessible the memory is left to the GC.
+     */
+    private static void unmap(MappedByteBuffer buffer) {
+        if (!unmapSupported) {
+            return;
+        }
+        try {
+            if (INVOKE_CLEANER != null) {
+                INVOKE_CLEANER.invoke(UNSAFE, buffer);
+            } else {
+                Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+                cleanerMethod.setAccessible(true);
+                Object cleaner = cleanerMethod.invoke(buffer);
+                if (cleaner != null) {
+                    cleaner.getClass().getMethod("clean").invoke(cleaner);
+                }
+            }
+        } catch (Throwable e) {
+            unmapSupported = false;
+            LOG.warn("Unmap spill buffer failure, the mapped memory is left to the GC", e);
+        }
+    }
+
+    /**
+     * A memory mapped segment file
+     */
+    private static class Segment {
+
+        private final File file;
+        private final long seq;
+        private final int capacity;
+        private MappedByteBuffer buffer;
+        private int writePos = 0;
+
+        Segment(File file, long seq, int capacity) throws IOException {
+            this.file = file;
+            this.seq = seq;
+            this.capacity = capacity;
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                this.buffer = raf.getChannel().map(
+                        FileChannel.MapMode.READ_WRITE, 0, capacity);
+            }
+        }
+
+        boolean append(byte[] record) {
+            if (writePos + RECORD_LEN_SIZE + record.length > capacity) {
+                return false;
+            }
+            ByteBuffer dupBuffer = buffer.duplicate();
+            dupBuffer.position(writePos + RECORD_LEN_SIZE);
+            dupBuffer.put(record);
+            int endPos = writePos + RECORD_LEN_SIZE + record.length;
+            // end the records after this one, the bytes left by an undone append
+            // may follow, the recovery must not read them as records
+            if (endPos + RECORD_LEN_SIZE <= capacity) {
+                buffer.putInt(endPos, 0);
+            }
+            // the length is written last, so a partial record is never visible
+            buffer.putInt(writePos, record.length);
+            writePos = endPos;
+            return true;
+        }
+
+        void appendRaw(Segment source, int fromPos) {
+            ByteBuffer srcBuffer = source.buffer.duplicate();
+            srcBuffer.position(fromPos);
+            srcBuffer.limit(source.writePos);
+            ByteBuffer dupBuffer = buffer.duplicate();
+            dupBuffer.position(writePos);
+            dupBuffer.put(srcBuffer);
+            writePos += source.writePos - fromPos;
+        }
+
+        void truncate(int pos) {
+            writePos = pos;
+            if (pos + RECORD_LEN_SIZE <= capacity) {
+                // end the segment at the position for the recovery
+                buffer.putInt(pos, 0);
+            }
+        }
+
+        boolean hasRecord(int pos) {
+            return pos < writePos;
+        }
+
+        byte[] read(int pos) {
+            int len = buffer.getInt(pos);
+            byte[] record = new byte[len];
+            ByteBuffer dupBuffer = buffer.duplicate();
+            dupBuffer.position(pos + RECORD_LEN_SIZE);
+            dupBuffer.get(record);
+            return record;
+        }
+
+        long countRecords(int fromPos) {
+            long count = 0;
+            int pos = 0;
+            while (pos + RECORD_LEN_SIZE <= capacity) {
+                int len = buffer.getInt(pos);
+                if (len <= 0 || pos + RECORD_LEN_SIZE + len > capacity) {
+                    break;
+                }
+                if (pos >= fromPos) {
+                    count++;
+                }
+                pos += RECORD_LEN_SIZE + len;
+            }
+            writePos = pos;
+            return count;
+        }
+
+        void unmap() {
+            if (buffer != null) {
+                MmapSpillLog.unmap(buffer);
+                buffer = null;
+            }
+        }
+    }
+}
@@ -73,6 +73,9 @@ public class MQClusterConfig extends Context {
     private static final String MAX_SURVIVED_SIZE = "max_survived_size";
     private static final int DEFAULT_MAX_SURVIVED_SIZE = 5000000;
 
+    private static final String COMPACT_DEDUP_STORE = "compact_dedup_store";
+    private static final boolean DEFAULT_COMPACT_DEDUP_STORE = false;
+
     private static final String NEW_CHECK_PATTERN = "new_check_pattern";
     private static final boolean DEFAULT_NEW_CHECK_PATTERN = true;
 
@@ -275,6 +278,10 @@ public class MQClusterConfig extends Context {
         return getInteger(MAX_SURVIVED_SIZE, DEFAULT_MAX_SURVIVED_SIZE);
     }
 
+    public boolean getCompactDedupStore() {
+        return getBoolean(COMPACT_DEDUP_STORE, DEFAULT_COMPACT_DEDUP_STORE);
+    }
+
     public boolean getNewCheckPattern() {
         return getBoolean(NEW_CHECK_PATTERN, DEFAULT_NEW_CHECK_PATTERN);
     }
@@ -35,6 +35,8 @@ public class ConfigConstants {
 
     public static final String MSG_COMPRESSED = "msg-compressed";
 
+    public static final String BIN_MSG_PASS_THROUGH = "bin-msg-pass-through";
+
     public static final String TOPIC = "topic";
 
     public static final String ATTR = "attr";
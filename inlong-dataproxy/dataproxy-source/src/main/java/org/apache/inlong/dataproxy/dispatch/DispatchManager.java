@@ -17,10 +17,12 @@
 
 package org.apache.inlong.dataproxy.dispatch;
 
-import java.util.concurrent.atomic.AtomicInteger;
 import org.apache.flume.Context;
 import org.apache.flume.Event;
+import org.apache.inlong.dataproxy.config.holder.CommonPropertiesHolder;
 import org.apache.inlong.dataproxy.consts.AttributeConstants;
+import org.apache.inlong.dataproxy.metrics.DataProxyMetricItem;
+import org.apache.inlong.dataproxy.metrics.DataProxyMetricItemSet;
 import org.apache.inlong.dataproxy.utils.MessageUtils;
 import org.apache.inlong.sdk.commons.protocol.ProxyEvent;
 import org.apache.inlong.sdk.commons.protocol.ProxyPackEvent;
@@ -28,15 +30,21 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
-import java.util.List;
-import java.util.Map.Entry;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
 
 /**
  * DispatchManager
+ *
+ * Events are packed into DispatchProfile in one shard per dispatch queue, ordered events by their
+ * partition key and the others by uid. addEvent, addPackEvent and outputOvertimeData are called by
+ * the sink thread only, full profiles are flushed at once and the others by the timer wheel of the shard.
  */
 public class DispatchManager {
 
@@ -44,23 +52,48 @@ public class DispatchManager {
     public static final String KEY_DISPATCH_TIMEOUT = "dispatchTimeout";
     public static final String KEY_DISPATCH_MAX_PACKCOUNT = "dispatchMaxPackCount";
     public static final String KEY_DISPATCH_MAX_PACKSIZE = "dispatchMaxPackSize";
+    public static final String KEY_DISPATCH_QUEUE_CAPACITY = "dispatchQueueCapacity";
     public static final long DEFAULT_DISPATCH_TIMEOUT = 2000;
     public static final long DEFAULT_DISPATCH_MAX_PACKCOUNT = 256;
     public static final long DEFAULT_DISPATCH_MAX_PACKSIZE = 327680;
+    public static final int DEFAULT_DISPATCH_QUEUE_CAPACITY = 128;
     public static final long MINUTE_MS = 60L * 1000;
+    // timer wheel ticks per dispatch timeout
+    public static final int WHEEL_TICKS_PER_TIMEOUT = 16;
+    // wait time of the sink thread when a dispatch queue is full
+    public static final long QUEUE_FULL_WAIT_NS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    /**
+     * FlushReason
+     */
+    public enum FlushReason {
+        // max pack count reached
+        COUNT,
+        // max pack size reached
+        SIZE,
+        // dispatch timeout
+        TIMEOUT,
+        // last profile of a ProxyPackEvent
+        PACK
+    }
 
     private final long dispatchTimeout;
     private final long maxPackCount;
     private final long maxPackSize;
-    private final ArrayList<LinkedBlockingQueue<DispatchProfile>> dispatchQueues;
+    private final ArrayList<DispatchQueue> dispatchQueues;
+    private final DispatchShard[] shards;
+    private final DataProxyMetricItemSet metricItemSet;
+    private final Map<String, String> metricDimensions;
 
     private final AtomicInteger sendIndex = new AtomicInteger();
 
-    private ConcurrentHashMap<String, DispatchProfile> profileCache = new ConcurrentHashMap<>();
-    // flag that manager need to output overtime data.
+    // flag that manager need to output statistics.
     private AtomicBoolean needOutputOvertimeData = new AtomicBoolean(false);
     private AtomicLong inCounter = new AtomicLong(0);
     private AtomicLong outCounter = new AtomicLong(0);
+    private AtomicLong outSizeCounter = new AtomicLong(0);
+    private AtomicLong queueFullCounter = new AtomicLong(0);
+    private AtomicLongArray flushCounters = new AtomicLongArray(FlushReason.values().length);
 
     /**
      * Constructor
@@ -68,11 +101,31 @@ public class DispatchManager {
      * @param context
      * @param dispatchQueues
      */
-    public DispatchManager(Context context, ArrayList<LinkedBlockingQueue<DispatchProfile>> dispatchQueues) {
+    public DispatchManager(Context context, ArrayList<DispatchQueue> dispatchQueues) {
+        this(context, dispatchQueues, null, null);
+    }
+
+    /**
+     * Constructor
+     * 
+     * @param context
+     * @param dispatchQueues
+     * @param metricItemSet     the metric item set reporting the dispatch statistics, or null
+     * @param metricDimensions  the dimensions of the dispatch metric item, e.g. clusterId and sinkId
+     */
+    public DispatchManager(Context context, ArrayList<DispatchQueue> dispatchQueues,
+            DataProxyMetricItemSet metricItemSet, Map<String, String> metricDimensions) {
         this.dispatchQueues = dispatchQueues;
+        this.metricItemSet = metricItemSet;
+        this.metricDimensions = metricDimensions;
         this.dispatchTimeout = context.getLong(KEY_DISPATCH_TIMEOUT, DEFAULT_DISPATCH_TIMEOUT);
         this.maxPackCount = context.getLong(KEY_DISPATCH_MAX_PACKCOUNT, DEFAULT_DISPATCH_MAX_PACKCOUNT);
         this.maxPackSize = context.getLong(KEY_DISPATCH_MAX_PACKSIZE, DEFAULT_DISPATCH_MAX_PACKSIZE);
+        long currentTime = System.currentTimeMillis();
+        this.shards = new DispatchShard[Math.max(1, dispatchQueues.size())];
+        for (int i = 0; i < shards.length; i++) {
+            this.shards[i] = new DispatchShard(this, dispatchTimeout / WHEEL_TICKS_PER_TIMEOUT, currentTime);
+        }
     }
 
     /**
@@ -81,41 +134,17 @@ public class DispatchManager {
      * @param event
      */
     public void addEvent(ProxyEvent event) {
-        // parse
-        String eventUid = event.getUid();
         long dispatchTime = event.getMsgTime() - event.getMsgTime() % MINUTE_MS;
-        String dispatchKey = eventUid + "." + dispatchTime;
-        // find dispatch profile
-        DispatchProfile dispatchProfile = this.profileCache.get(dispatchKey);
-        if (dispatchProfile == null) {
-            dispatchProfile = new DispatchProfile(eventUid, event.getInlongGroupId(), event.getInlongStreamId(),
-                    dispatchTime);
-            this.profileCache.put(dispatchKey, dispatchProfile);
-        }
-        // add event
-        boolean addResult = dispatchProfile.addEvent(event, maxPackCount, maxPackSize);
-        addSendIndex(event, dispatchProfile);
-        if (!addResult) {
-            DispatchProfile newDispatchProfile = new DispatchProfile(eventUid, event.getInlongGroupId(),
-                    event.getInlongStreamId(), dispatchTime);
-            DispatchProfile oldDispatchProfile = this.profileCache.put(dispatchKey, newDispatchProfile);
-            this.dispatchQueues.get(dispatchProfile.getSendIndex() % dispatchQueues.size())
-                    .offer(dispatchProfile);
-            outCounter.addAndGet(dispatchProfile.getCount());
-            newDispatchProfile.addEvent(event, maxPackCount, maxPackSize);
-        }
+        boolean isOrder = MessageUtils.isSyncSendForOrder(event);
+        int eventSendIndex = isOrder ? this.getOrderSendIndex(event) : 0;
+        int shardIndex = isOrder ? eventSendIndex : (event.getUid().hashCode() & Integer.MAX_VALUE);
+        this.shards[shardIndex % shards.length].addEvent(event, dispatchTime, isOrder, eventSendIndex);
         inCounter.incrementAndGet();
     }
 
-    private void addSendIndex(Event event, DispatchProfile dispatchProfile) {
-        if ((MessageUtils.isSyncSendForOrder(event))) {
-            String partitionKey = event.getHeaders().get(AttributeConstants.MESSAGE_PARTITION_KEY);
-            int sendIndex = Math.abs(partitionKey.hashCode());
-            dispatchProfile.setOrder(true);
-            dispatchProfile.setSendIndex(sendIndex);
-        } else {
-            dispatchProfile.setSendIndex(sendIndex.incrementAndGet());
-        }
+    private int getOrderSendIndex(Event event) {
+        String partitionKey = event.getHeaders().get(AttributeConstants.MESSAGE_PARTITION_KEY);
+        return partitionKey == null ? 0 : (partitionKey.hashCode() & Integer.MAX_VALUE);
     }
 
     /**
@@ -135,23 +164,51 @@ public class DispatchManager {
         for (ProxyEvent event : packEvent.getEvents()) {
             inCounter.incrementAndGet();
             boolean addResult = dispatchProfile.addEvent(event, maxPackCount, maxPackSize);
-            addSendIndex(event, dispatchProfile);
             // dispatch profile is full
             if (!addResult) {
-                outCounter.addAndGet(dispatchProfile.getCount());
-                this.dispatchQueues.get(dispatchProfile.getSendIndex() % dispatchQueues.size())
-                        .offer(dispatchProfile);
+                this.dispatch(dispatchProfile,
+                        dispatchProfile.getCount() >= maxPackCount ? FlushReason.COUNT : FlushReason.SIZE);
                 dispatchProfile = new DispatchProfile(eventUid, event.getInlongGroupId(), event.getInlongStreamId(),
                         dispatchTime);
                 dispatchProfile.setCallback(callback);
                 dispatchProfile.addEvent(event, maxPackCount, maxPackSize);
             }
+            if (MessageUtils.isSyncSendForOrder(event)) {
+                dispatchProfile.setOrder(true);
+                dispatchProfile.setSendIndex(this.getOrderSendIndex(event));
+            }
         }
         // last dispatch profile
         if (dispatchProfile.getEvents().size() > 0) {
-            outCounter.addAndGet(dispatchProfile.getCount());
-            this.dispatchQueues.get(dispatchProfile.getSendIndex() % dispatchQueues.size())
-                    .offer(dispatchProfile);
+            this.dispatch(dispatchProfile, FlushReason.PACK);
+        }
+    }
+
+    /**
+     * dispatch a sealed profile to its dispatch queue, the sink thread waits while the queue is full
+     * 
+     * @param dispatchProfile
+     * @param reason
+     */
+    void dispatch(DispatchProfile dispatchProfile, FlushReason reason) {
+        if (!dispatchProfile.isOrder()) {
+            dispatchProfile.setSendIndex(sendIndex.incrementAndGet() & Integer.MAX_VALUE);
+        }
+        outCounter.addAndGet(dispatchProfile.getCount());
+        outSizeCounter.addAndGet(dispatchProfile.getSize());
+        flushCounters.incrementAndGet(reason.ordinal());
+        DispatchQueue dispatchQueue = this.dispatchQueues.get(dispatchProfile.getSendIndex() % dispatchQueues.size());
+        if (dispatchQueue.offer(dispatchProfile)) {
+            return;
+        }
+        queueFullCounter.incrementAndGet();
+        while (!dispatchQueue.offer(dispatchProfile)) {
+            if (Thread.currentThread().isInterrupted()) {
+                // the sink is stopping, keep the profile rather than drop it
+                dispatchQueue.resend(dispatchProfile);
+                return;
+            }
+            LockSupport.parkNanos(QUEUE_FULL_WAIT_NS);
         }
     }
 
@@ -161,36 +218,84 @@ public class DispatchManager {
      * @return
      */
     public void outputOvertimeData() {
+        long currentTime = System.currentTimeMillis();
+        for (DispatchShard shard : shards) {
+            shard.advance(currentTime);
+        }
         if (!needOutputOvertimeData.getAndSet(false)) {
             return;
         }
-        LOG.info("start to outputOvertimeData profileCacheSize:{},dispatchQueueSize:{}",
-                profileCache.size(), dispatchQueues.stream().mapToInt(LinkedBlockingQueue::size).sum());
-        long currentTime = System.currentTimeMillis();
-        long createThreshold = currentTime - dispatchTimeout;
-        List<String> removeKeys = new ArrayList<>();
+        int profileCount = 0;
         long eventCount = 0;
-        for (Entry<String, DispatchProfile> entry : this.profileCache.entrySet()) {
-            DispatchProfile dispatchProfile = entry.getValue();
-            eventCount += dispatchProfile.getCount();
-            if (!dispatchProfile.isTimeout(createThreshold)) {
-                continue;
-            }
-            removeKeys.add(entry.getKey());
+        for (DispatchShard shard : shards) {
+            profileCount += shard.getProfileCount();
+            eventCount += shard.getEventCount();
         }
-        // output
-        removeKeys.forEach((key) -> {
-            DispatchProfile dispatchProfile = this.profileCache.remove(key);
-            if (dispatchProfile != null) {
-                this.dispatchQueues.get(dispatchProfile.getSendIndex() % dispatchQueues.size())
-                        .offer(dispatchProfile);
-                outCounter.addAndGet(dispatchProfile.getCount());
-            }
-        });
+        long flushCount = 0;
+        long[] reasonCounts = new long[FlushReason.values().length];
+        StringBuilder reasons = new StringBuilder();
+        for (FlushReason reason : FlushReason.values()) {
+            long reasonCount = flushCounters.getAndSet(reason.ordinal(), 0);
+            reasonCounts[reason.ordinal()] = reasonCount;
+            flushCount += reasonCount;
+            reasons.append(reason.name()).append('=').append(reasonCount).append(' ');
+        }
+        long outCount = outCounter.getAndSet(0);
+        long outSize = outSizeCounter.getAndSet(0);
+        long queueFullCount = queueFullCounter.getAndSet(0);
+        long countFillRatio = fillRatio(outCount, flushCount * maxPackCount);
+        long sizeFillRatio = fillRatio(outSize, flushCount * maxPackSize);
         LOG.info("end to outputOvertimeData profileCacheSize:{},dispatchQueueSize:{},eventCount:{},"
-                + "inCounter:{},outCounter:{}",
-                profileCache.size(), dispatchQueues.stream().mapToInt(LinkedBlockingQueue::size).sum(), eventCount,
-                inCounter.getAndSet(0), outCounter.getAndSet(0));
+                + "inCounter:{},outCounter:{},flushCount:{},flushReason:[{}],countFillRatio(1/1000):{},"
+                + "sizeFillRatio(1/1000):{},queueFullCounter:{}",
+                profileCount, dispatchQueues.stream().mapToInt(DispatchQueue::size).sum(), eventCount,
+                inCounter.getAndSet(0), outCount, flushCount, reasons.toString().trim(),
+                countFillRatio, sizeFillRatio, queueFullCount);
+        this.addDispatchMetric(reasonCounts, queueFullCount, countFillRatio, sizeFillRatio);
+    }
+
+    /**
+     * fill ratio in per mille
+     */
+    private static long fillRatio(long used, long capacity) {
+        return capacity <= 0 ? 0 : used * 1000 / capacity;
+    }
+
+    /**
+     * addDispatchMetric
+     * 
+     * @param reasonCounts
+     * @param queueFullCount
+     * @param countFillRatio
+     * @param sizeFillRatio
+     */
+    private void addDispatchMetric(long[] reasonCounts, long queueFullCount,
+            long countFillRatio, long sizeFillRatio) {
+        if (metricItemSet == null) {
+            return;
+        }
+        Map<String, String> dimensions = new HashMap<>(metricDimensions);
+        long msgTime = System.currentTimeMillis();
+        long auditFormatTime = msgTime - msgTime % CommonPropertiesHolder.getAuditFormatInterval();
+        dimensions.put(DataProxyMetricItem.KEY_MESSAGE_TIME, String.valueOf(auditFormatTime));
+        DataProxyMetricItem metricItem = metricItemSet.findMetricItem(dimensions);
+        metricItem.dispatchCountFlush.addAndGet(reasonCounts[FlushReason.COUNT.ordinal()]);
+        metricItem.dispatchSizeFlush.addAndGet(reasonCounts[FlushReason.SIZE.ordinal()]);
+        metricItem.dispatchTimeoutFlush.addAndGet(reasonCounts[FlushReason.TIMEOUT.ordinal()]);
+        metricItem.dispatchPackFlush.addAndGet(reasonCounts[FlushReason.PACK.ordinal()]);
+        metricItem.dispatchQueueFull.addAndGet(queueFullCount);
+        metricItem.dispatchCountFillRatio.set(countFillRatio);
+        metricItem.dispatchSizeFillRatio.set(sizeFillRatio);
+    }
+
+    /**
+     * get flush count of a reason since the last statistics output
+     * 
+     * @param  reason
+     * @return
+     */
+    public long getFlushCount(FlushReason reason) {
+        return flushCounters.get(reason.ordinal());
     }
 
     /**
@@ -39,6 +39,10 @@ public class DispatchProfile {
     private DispatchProfileCallback callback;
     private boolean isOrder;
     private int sendIndex;
+    // tick of the dispatch timer wheel when this profile times out
+    private long deadlineTick;
+    // position in the bucket of the timer wheel, -1 when the profile is not on the wheel
+    private int wheelIndex = -1;
 
     /**
      * Constructor
@@ -232,4 +236,29 @@ public class DispatchProfile {
     public void setOrder(boolean order) {
         isOrder = order;
     }
+
+    /**
+     * get createTime
+     * 
+     * @return the createTime
+     */
+    public long getCreateTime() {
+        return createTime;
+    }
+
+    long getDeadlineTick() {
+        return deadlineTick;
+    }
+
+    void setDeadlineTick(long deadlineTick) {
+        this.deadlineTick = deadlineTick;
+    }
+
+    int getWheelIndex() {
+        return wheelIndex;
+    }
+
+    void setWheelIndex(int wheelIndex) {
+        this.wheelIndex = wheelIndex;
+    }
 }
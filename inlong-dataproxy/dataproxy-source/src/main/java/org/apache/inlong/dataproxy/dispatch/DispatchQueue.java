@@ -0,0 +1,134 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.dataproxy.dispatch;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * DispatchQueue
+ *
+ * Bounded multi-producer single-consumer ring between the dispatch manager and one zone worker.
+ * Producers claim a slot by CAS on the tail, the owning worker is the only consumer.
+ * Profiles that failed to send are put back through {@link #resend(DispatchProfile)}, which never
+ * blocks the producer callback thread and is drained before the ring.
+ */
+public class DispatchQueue {
+
+    private final int capacity;
+    private final int mask;
+    private final AtomicReferenceArray<DispatchProfile> buffer;
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong(0);
+    private volatile long head = 0;
+    private final ConcurrentLinkedQueue<DispatchProfile> resendQueue = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Constructor
+     *
+     * @param capacity rounded up to a power of two
+     */
+    public DispatchQueue(int capacity) {
+        int size = 1;
+        while (size < Math.max(2, capacity)) {
+            size <<= 1;
+        }
+        this.capacity = size;
+        this.mask = size - 1;
+        this.buffer = new AtomicReferenceArray<>(size);
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            this.sequences.set(i, i);
+        }
+    }
+
+    /**
+     * offer
+     *
+     * @param  profile
+     * @return         false if the ring is full
+     */
+    public boolean offer(DispatchProfile profile) {
+        while (true) {
+            long pos = tail.get();
+            int index = (int) (pos & mask);
+            long diff = sequences.get(index) - pos;
+            if (diff == 0) {
+                if (tail.compareAndSet(pos, pos + 1)) {
+                    buffer.lazySet(index, profile);
+                    sequences.lazySet(index, pos + 1);
+                    return true;
+                }
+            } else if (diff < 0) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * resend
+     *
+     * @param profile
+     */
+    public void resend(DispatchProfile profile) {
+        this.resendQueue.offer(profile);
+    }
+
+    /**
+     * poll, only called by the owning worker
+     *
+     * @return null if empty
+     */
+    public DispatchProfile poll() {
+        DispatchProfile profile = resendQueue.poll();
+        if (profile != null) {
+            return profile;
+        }
+        long pos = head;
+        int index = (int) (pos & mask);
+        if (sequences.get(index) != pos + 1) {
+            return null;
+        }
+        profile = buffer.get(index);
+        buffer.lazySet(index, null);
+        sequences.lazySet(index, pos + capacity);
+        head = pos + 1;
+        return profile;
+    }
+
+    /**
+     * size
+     *
+     * @return
+     */
+    public int size() {
+        long size = tail.get() - head;
+        return (int) Math.max(0, Math.min(size, capacity)) + resendQueue.size();
+    }
+
+    /**
+     * get capacity
+     *
+     * @return the capacity
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+}
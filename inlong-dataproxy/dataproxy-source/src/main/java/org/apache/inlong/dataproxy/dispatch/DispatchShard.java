@@ -0,0 +1,278 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.dataproxy.dispatch;
+
+import org.apache.inlong.dataproxy.dispatch.DispatchManager.FlushReason;
+import org.apache.inlong.sdk.commons.protocol.ProxyEvent;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * DispatchShard
+ *
+ * Open profiles of the uids hashed to one shard, and the timer wheel that flushes them on timeout.
+ * A shard has a single writer, the sink thread which calls the DispatchManager, so the profile
+ * table and the wheel need no locking, and a profile is sealed and replaced in one step.
+ */
+class DispatchShard {
+
+    private final DispatchManager manager;
+    private final long dispatchTimeout;
+    private final long maxPackCount;
+    private final long maxPackSize;
+    // profiles of one uid, there are rarely more than two dispatch minutes open at the same time
+    private final Map<String, ProfileSlot> slots = new HashMap<>();
+    private int profileCount = 0;
+    // timer wheel, a profile sealed on count or size leaves its bucket at once, so its events
+    // are not kept alive until the deadline
+    private final long tickMs;
+    private final int wheelMask;
+    private final List<DispatchProfile>[] buckets;
+    private final List<DispatchProfile> rescheduled = new ArrayList<>();
+    private long currentTick;
+
+    /**
+     * Constructor
+     *
+     * @param manager
+     * @param tickMs
+     * @param currentTime
+     */
+    @SuppressWarnings("unchecked")
+    DispatchShard(DispatchManager manager, long tickMs, long currentTime) {
+        this.manager = manager;
+        this.dispatchTimeout = manager.getDispatchTimeout();
+        this.maxPackCount = manager.getMaxPackCount();
+        this.maxPackSize = manager.getMaxPackSize();
+        this.tickMs = Math.max(1, tickMs);
+        int wheelSize = 2;
+        while (wheelSize < dispatchTimeout / this.tickMs + 2) {
+            wheelSize <<= 1;
+        }
+        this.wheelMask = wheelSize - 1;
+        this.buckets = new List[wheelSize];
+        for (int i = 0; i < wheelSize; i++) {
+            this.buckets[i] = new ArrayList<>();
+        }
+        this.currentTick = currentTime / this.tickMs;
+    }
+
+    /**
+     * addEvent
+     *
+     * @param event
+     * @param dispatchTime
+     * @param isOrder
+     * @param sendIndex
+     */
+    void addEvent(ProxyEvent event, long dispatchTime, boolean isOrder, int sendIndex) {
+        String uid = event.getUid();
+        ProfileSlot slot = slots.get(uid);
+        if (slot == null) {
+            slot = new ProfileSlot();
+            slots.put(uid, slot);
+        }
+        int index = slot.indexOf(dispatchTime, isOrder);
+        DispatchProfile profile;
+        if (index < 0) {
+            profile = this.createProfile(event, dispatchTime, isOrder);
+            slot.add(profile);
+        } else {
+            profile = slot.get(index);
+            if (!profile.addEvent(event, maxPackCount, maxPackSize)) {
+                // roll over, the new profile takes the slot of the full one
+                final DispatchProfile fullProfile = profile;
+                profile = this.createProfile(event, dispatchTime, isOrder);
+                slot.set(index, profile);
+                profileCount--;
+                this.unschedule(fullProfile);
+                manager.dispatch(fullProfile,
+                        fullProfile.getCount() >= maxPackCount ? FlushReason.COUNT : FlushReason.SIZE);
+            }
+        }
+        profile.setSendIndex(sendIndex);
+        if (profile.getCount() >= maxPackCount || profile.getSize() >= maxPackSize) {
+            this.removeProfile(slot, profile);
+            this.unschedule(profile);
+            manager.dispatch(profile,
+                    profile.getCount() >= maxPackCount ? FlushReason.COUNT : FlushReason.SIZE);
+        }
+    }
+
+    private DispatchProfile createProfile(ProxyEvent event, long dispatchTime, boolean isOrder) {
+        DispatchProfile profile = new DispatchProfile(event.getUid(), event.getInlongGroupId(),
+                event.getInlongStreamId(), dispatchTime);
+        profile.setOrder(isOrder);
+        profile.addEvent(event, maxPackCount, maxPackSize);
+        profileCount++;
+        this.schedule(profile);
+        return profile;
+    }
+
+    private void schedule(DispatchProfile profile) {
+        long deadline = profile.getCreateTime() + dispatchTimeout;
+        long deadlineTick = Math.max((deadline + tickMs - 1) / tickMs, currentTick + 1);
+        profile.setDeadlineTick(deadlineTick);
+        this.addToBucket(profile);
+    }
+
+    private void addToBucket(DispatchProfile profile) {
+        List<DispatchProfile> bucket = buckets[(int) (profile.getDeadlineTick() & wheelMask)];
+        profile.setWheelIndex(bucket.size());
+        bucket.add(profile);
+    }
+
+    /**
+     * take a sealed profile off the wheel, the last profile of the bucket fills its place
+     *
+     * @param profile
+     */
+    private void unschedule(DispatchProfile profile) {
+        int index = profile.getWheelIndex();
+        if (index < 0) {
+            return;
+        }
+        List<DispatchProfile> bucket = buckets[(int) (profile.getDeadlineTick() & wheelMask)];
+        DispatchProfile last = bucket.remove(bucket.size() - 1);
+        if (last != profile) {
+            bucket.set(index, last);
+            last.setWheelIndex(index);
+        }
+        profile.setWheelIndex(-1);
+    }
+
+    private void removeProfile(ProfileSlot slot, DispatchProfile profile) {
+        slot.remove(profile);
+        if (slot.isEmpty()) {
+            slots.remove(profile.getUid());
+        }
+        profileCount--;
+    }
+
+    /**
+     * advance the timer wheel and flush the profiles that timed out
+     *
+     * @param currentTime
+     */
+    void advance(long currentTime) {
+        long nowTick = currentTime / tickMs;
+        if (nowTick <= currentTick) {
+            return;
+        }
+        // after a long pause every bucket is visited once, deadlines decide what expires
+        long steps = Math.min(nowTick - currentTick, buckets.length);
+        for (long i = 1; i <= steps; i++) {
+            List<DispatchProfile> bucket = buckets[(int) ((currentTick + i) & wheelMask)];
+            for (DispatchProfile profile : bucket) {
+                profile.setWheelIndex(-1);
+                if (profile.getDeadlineTick() > nowTick) {
+                    rescheduled.add(profile);
+                    continue;
+                }
+                ProfileSlot slot = slots.get(profile.getUid());
+                if (slot != null) {
+                    this.removeProfile(slot, profile);
+                }
+                manager.dispatch(profile, FlushReason.TIMEOUT);
+            }
+            bucket.clear();
+        }
+        currentTick = nowTick;
+        for (DispatchProfile profile : rescheduled) {
+            this.addToBucket(profile);
+        }
+        rescheduled.clear();
+    }
+
+    /**
+     * get profileCount
+     *
+     * @return the count of open profiles
+     */
+    int getProfileCount() {
+        return profileCount;
+    }
+
+    /**
+     * get eventCount
+     *
+     * @return the count of events in open profiles
+     */
+    long getEventCount() {
+        long eventCount = 0;
+        for (ProfileSlot slot : slots.values()) {
+            for (int i = 0; i < slot.size; i++) {
+                eventCount += slot.profiles[i].getCount();
+            }
+        }
+        return eventCount;
+    }
+
+    /**
+     * ProfileSlot
+     */
+    private static class ProfileSlot {
+
+        private DispatchProfile[] profiles = new DispatchProfile[2];
+        private int size = 0;
+
+        int indexOf(long dispatchTime, boolean isOrder) {
+            for (int i = 0; i < size; i++) {
+                DispatchProfile profile = profiles[i];
+                if (profile.getDispatchTime() == dispatchTime && profile.isOrder() == isOrder) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        DispatchProfile get(int index) {
+            return profiles[index];
+        }
+
+        void set(int index, DispatchProfile profile) {
+            profiles[index] = profile;
+        }
+
+        void add(DispatchProfile profile) {
+            if (size == profiles.length) {
+                DispatchProfile[] newProfiles = new DispatchProfile[size << 1];
+                System.arraycopy(profiles, 0, newProfiles, 0, size);
+                profiles = newProfiles;
+            }
+            profiles[size++] = profile;
+        }
+
+        void remove(DispatchProfile profile) {
+            for (int i = 0; i < size; i++) {
+                if (profiles[i] == profile) {
+                    profiles[i] = profiles[--size];
+                    profiles[size] = null;
+                    return;
+                }
+            }
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+    }
+}
@@ -23,6 +23,7 @@ import java.util.concurrent.atomic.AtomicLong;
 import org.apache.flume.Event;
 import org.apache.inlong.common.metric.CountMetric;
 import org.apache.inlong.common.metric.Dimension;
+import org.apache.inlong.common.metric.GaugeMetric;
 import org.apache.inlong.common.metric.MetricDomain;
 import org.apache.inlong.common.metric.MetricItem;
 import org.apache.inlong.dataproxy.config.holder.CommonPropertiesHolder;
@@ -60,6 +61,14 @@ public class DataProxyMetricItem extends MetricItem {
     public static final String M_SINK_DURATION = "sinkDuration";
     public static final String M_NODE_DURATION = "nodeDuration";
     public static final String M_WHOLE_DURATION = "wholeDuration";
+    //
+    public static final String M_DISPATCH_COUNT_FLUSH = "dispatchCountFlush";
+    public static final String M_DISPATCH_SIZE_FLUSH = "dispatchSizeFlush";
+    public static final String M_DISPATCH_TIMEOUT_FLUSH = "dispatchTimeoutFlush";
+    public static final String M_DISPATCH_PACK_FLUSH = "dispatchPackFlush";
+    public static final String M_DISPATCH_QUEUE_FULL = "dispatchQueueFull";
+    public static final String M_DISPATCH_COUNT_FILL_RATIO = "dispatchCountFillRatio";
+    public static final String M_DISPATCH_SIZE_FILL_RATIO = "dispatchSizeFillRatio";
 
     @Dimension
     public String clusterId;
@@ -106,6 +115,27 @@ public class DataProxyMetricItem extends MetricItem {
     @CountMetric
     // sinkCallbackTime - eventCreateTime(milliseconds)
     public AtomicLong wholeDuration = new AtomicLong(0);
+    @CountMetric
+    // profiles flushed at the max pack count
+    public AtomicLong dispatchCountFlush = new AtomicLong(0);
+    @CountMetric
+    // profiles flushed at the max pack size
+    public AtomicLong dispatchSizeFlush = new AtomicLong(0);
+    @CountMetric
+    // profiles flushed at the dispatch timeout
+    public AtomicLong dispatchTimeoutFlush = new AtomicLong(0);
+    @CountMetric
+    // last profiles of the ProxyPackEvents
+    public AtomicLong dispatchPackFlush = new AtomicLong(0);
+    @CountMetric
+    // times the sink waited for a full dispatch queue
+    public AtomicLong dispatchQueueFull = new AtomicLong(0);
+    @GaugeMetric
+    // dispatched events / (flushed profiles * max pack count), per mille
+    public AtomicLong dispatchCountFillRatio = new AtomicLong(0);
+    @GaugeMetric
+    // dispatched bytes / (flushed profiles * max pack size), per mille
+    public AtomicLong dispatchSizeFillRatio = new AtomicLong(0);
 
     /**
      * fillInlongId
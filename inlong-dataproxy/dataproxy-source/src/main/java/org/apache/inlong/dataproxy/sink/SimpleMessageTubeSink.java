@@ -102,6 +102,7 @@ public class SimpleMessageTubeSink extends AbstractSink implements Configurable
     private static String MAX_SURVIVED_TIME = "max-survived-time";
     private static String MAX_SURVIVED_SIZE = "max-survived-size";
     private static String CLIENT_ID_CACHE = "client-id-cache";
+    private static String COMPACT_DEDUP_STORE = "compact-dedup-store";
 
     private String proxyLogTopic = "teg_manager";
     private String proxyLogGroupId = "b_teg_manager";
@@ -658,6 +659,7 @@ public class SimpleMessageTubeSink extends AbstractSink implements Configurable
         }
         // start message deduplication handler
         msgDedupHandler.start(context.getBoolean(CLIENT_ID_CACHE, false),
+                context.getBoolean(COMPACT_DEDUP_STORE, false),
                 context.getInteger(MAX_SURVIVED_TIME, -1),
                 context.getInteger(MAX_SURVIVED_SIZE, -1));
 
@@ -126,7 +126,8 @@ public class TubeSink extends AbstractSink implements Configurable {
         masterHostAndPortLists = configManager.getMqClusterUrl2Token().keySet();
         // start message deduplication handler
         MSG_DEDUP_HANDLER.start(tubeConfig.getClientIdCache(),
-                tubeConfig.getMaxSurvivedTime(), tubeConfig.getMaxSurvivedSize());
+                tubeConfig.getCompactDedupStore(), tubeConfig.getMaxSurvivedTime(),
+                tubeConfig.getMaxSurvivedSize());
         // only use first cluster address now
         usedMasterAddr = getFirstClusterAddr(masterHostAndPortLists);
         // create producer holder
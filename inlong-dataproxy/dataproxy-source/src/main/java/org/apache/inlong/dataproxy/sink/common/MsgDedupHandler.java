@@ -35,15 +35,25 @@ public class MsgDedupHandler {
     private static final int DEF_MAX_SURVIVE_TIME_MS = 30000;
     private final AtomicBoolean started = new AtomicBoolean(false);
     private volatile boolean enableDataDedup;
+    // whether to keep the sequence-ids in the compact fingerprint store
+    private volatile boolean useCompactStore;
     private LoadingCache<String, Long> msgSeqIdCache = null;
+    private MsgSeqIdBucketStore msgSeqIdStore = null;
 
     public MsgDedupHandler() {
         enableDataDedup = false;
+        useCompactStore = false;
     }
 
     public void start(boolean cfgEnableFun, int cfgMaxSurviveTime, int cfgMaxSurviveSize) {
+        start(cfgEnableFun, false, cfgMaxSurviveTime, cfgMaxSurviveSize);
+    }
+
+    public void start(boolean cfgEnableFun, boolean cfgUseCompactStore,
+            int cfgMaxSurviveTime, int cfgMaxSurviveSize) {
         if (this.started.compareAndSet(false, true)) {
             this.enableDataDedup = cfgEnableFun;
+            this.useCompactStore = cfgUseCompactStore;
             int maxSurviveTime = cfgMaxSurviveTime;
             int maxSurviveSize = cfgMaxSurviveSize;
             if (this.enableDataDedup) {
@@ -53,19 +63,24 @@ public class MsgDedupHandler {
                 if (maxSurviveSize < 0) {
                     maxSurviveSize = DEF_MAX_SURVIVE_CNT_SIZE;
                 }
-                msgSeqIdCache = CacheBuilder
-                        .newBuilder().concurrencyLevel(4 * 8).initialCapacity(5000000)
-                        .expireAfterAccess(maxSurviveTime, TimeUnit.MILLISECONDS)
-                        .maximumSize(maxSurviveSize)
-                        .build(new CacheLoader<String, Long>() {
-                            @Override
-                            public Long load(String key) {
-                                return System.currentTimeMillis();
-                            }
-                        });
+                if (this.useCompactStore) {
+                    msgSeqIdStore = new MsgSeqIdBucketStore(maxSurviveTime, maxSurviveSize);
+                } else {
+                    msgSeqIdCache = CacheBuilder
+                            .newBuilder().concurrencyLevel(4 * 8).initialCapacity(5000000)
+                            .expireAfterAccess(maxSurviveTime, TimeUnit.MILLISECONDS)
+                            .maximumSize(maxSurviveSize)
+                            .build(new CacheLoader<String, Long>() {
+                                @Override
+                                public Long load(String key) {
+                                    return System.currentTimeMillis();
+                                }
+                            });
+                }
             }
             logger.info("Initial message deduplication handler, enable = "
-                    + this.enableDataDedup + ", configured survived-time = "
+                    + this.enableDataDedup + ", compact store = "
+                    + this.useCompactStore + ", configured survived-time = "
                     + cfgMaxSurviveTime + ", valid survived-time = "
                     + maxSurviveTime + ", configured survived-size = "
                     + cfgMaxSurviveSize + ", valid survived-size = "
@@ -75,7 +90,9 @@ public class MsgDedupHandler {
 
     public void invalidMsgSeqId(String msgSeqId) {
         if (enableDataDedup && msgSeqId != null) {
-            if (msgSeqIdCache.asMap().containsKey(msgSeqId)) {
+            if (useCompactStore) {
+                msgSeqIdStore.invalid(msgSeqId);
+            } else if (msgSeqIdCache.asMap().containsKey(msgSeqId)) {
                 msgSeqIdCache.invalidate(msgSeqId);
             }
         }
@@ -84,6 +101,9 @@ public class MsgDedupHandler {
     public boolean judgeDupAndPutMsgSeqId(String msgSeqId) {
         boolean isInclude = false;
         if (enableDataDedup && msgSeqId != null) {
+            if (useCompactStore) {
+                return msgSeqIdStore.judgeDupAndPut(msgSeqId, System.currentTimeMillis());
+            }
             isInclude = msgSeqIdCache.asMap().containsKey(msgSeqId);
             msgSeqIdCache.put(msgSeqId, System.currentTimeMillis());
         }
@@ -92,13 +112,16 @@ public class MsgDedupHandler {
 
     public String getCacheStatsInfo() {
         if (enableDataDedup) {
+            if (useCompactStore) {
+                return msgSeqIdStore.getStatsInfo();
+            }
             return msgSeqIdCache.stats().toString();
         }
         return "Disable for message data deduplication function";
     }
 
     public CacheStats getCacheData() {
-        if (enableDataDedup) {
+        if (enableDataDedup && !useCompactStore) {
             return msgSeqIdCache.stats();
         }
         return null;
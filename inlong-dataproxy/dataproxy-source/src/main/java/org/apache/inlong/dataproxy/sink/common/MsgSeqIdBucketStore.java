@@ -0,0 +1,288 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.dataproxy.sink.common;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Compact message sequence-id store for message deduplication.
+ *
+ * Instead of the sequence-id strings, only their 64-bit fingerprints are kept,
+ * in primitive open-addressing long tables. The tables are grouped into
+ * time buckets: a put goes into the bucket of the current period, a lookup
+ * checks every bucket still inside the survival window, and the bucket of
+ * an expired period is cleared and reused when its slot comes round again.
+ * Each bucket is split into segments guarded by their own lock.
+ *
+ * Two different sequence-ids sharing a fingerprint are taken as duplicated,
+ * with 64-bit fingerprints the probability is negligible for the sizes used.
+ */
+public class MsgSeqIdBucketStore {
+
+    // the number of time buckets, the survival window covers
+    // (BUCKET_CNT - 1) full periods plus the current one
+    private static final int BUCKET_CNT = 4;
+    private static final int SEGMENT_CNT = 32;
+    private static final int MIN_TABLE_SIZE = 1024;
+    private static final long EMPTY_SLOT = 0L;
+
+    private final long periodMs;
+    private final int maxSegmentEntries;
+    private final Segment[][] buckets = new Segment[BUCKET_CNT][SEGMENT_CNT];
+    private final AtomicLong overflowCnt = new AtomicLong(0);
+
+    /**
+     * Initial the store
+     *
+     * @param maxSurviveTimeMs  the minimum time a put sequence-id survives
+     * @param maxSurviveSize    the maximum sequence-ids kept in the survival window
+     */
+    public MsgSeqIdBucketStore(long maxSurviveTimeMs, int maxSurviveSize) {
+        this.periodMs = Math.max(1L,
+                (maxSurviveTimeMs + BUCKET_CNT - 2) / (BUCKET_CNT - 1));
+        this.maxSegmentEntries = Math.max(MIN_TABLE_SIZE / 2,
+                (int) (((long) maxSurviveSize + (BUCKET_CNT - 1) * SEGMENT_CNT - 1)
+                        / ((BUCKET_CNT - 1) * SEGMENT_CNT)));
+        for (int i = 0; i < BUCKET_CNT; i++) {
+            for (int j = 0; j < SEGMENT_CNT; j++) {
+                buckets[i][j] = new Segment();
+            }
+        }
+    }
+
+    /**
+     * Judge whether the sequence-id has been put within the survival window,
+     * and put it into the current period
+     *
+     * @param msgSeqId  the message sequence-id
+     * @param currTime  the current time in milliseconds
+     * @return  whether the sequence-id is duplicated
+     */
+    public boolean judgeDupAndPut(String msgSeqId, long currTime) {
+        long fingerprint = fingerprint(msgSeqId);
+        int segIndex = segmentIndex(fingerprint);
+        long period = currTime / periodMs;
+        boolean isInclude = false;
+        for (int i = 0; i < BUCKET_CNT && !isInclude; i++) {
+            isInclude = buckets[i][segIndex].contains(fingerprint, period);
+        }
+        if (!buckets[(int) (period % BUCKET_CNT)][segIndex].put(fingerprint, period)) {
+            overflowCnt.incrementAndGet();
+        }
+        return isInclude;
+    }
+
+    /**
+     * Remove the sequence-id from all time buckets
+     *
+     * @param msgSeqId  the message sequence-id
+     */
+    public void invalid(String msgSeqId) {
+        long fingerprint = fingerprint(msgSeqId);
+        int segIndex = segmentIndex(fingerprint);
+        for (int i = 0; i < BUCKET_CNT; i++) {
+            buckets[i][segIndex].remove(fingerprint);
+        }
+    }
+
+    /**
+     * Get the number of fingerprints currently stored,
+     * including those of expired periods not yet cleared
+     *
+     * @return  the entry count
+     */
+    public long getEntryCount() {
+        long count = 0;
+        for (int i = 0; i < BUCKET_CNT; i++) {
+            for (int j = 0; j < SEGMENT_CNT; j++) {
+                count += buckets[i][j].getSize();
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Get the bytes allocated by the fingerprint tables
+     *
+     * @return  the table bytes
+     */
+    public long getTableBytes() {
+        long bytes = 0;
+        for (int i = 0; i < BUCKET_CNT; i++) {
+            for (int j = 0; j < SEGMENT_CNT; j++) {
+                bytes += buckets[i][j].getCapacity() * 8L;
+            }
+        }
+        return bytes;
+    }
+
+    public long getOverflowCount() {
+        return overflowCnt.get();
+    }
+
+    public String getStatsInfo() {
+        return new StringBuilder(256).append("MsgSeqIdBucketStore{periodMs=")
+                .append(periodMs).append(", bucketCnt=").append(BUCKET_CNT)
+                .append(", entryCnt=").append(getEntryCount())
+                .append(", tableBytes=").append(getTableBytes())
+                .append(", overflowCnt=").append(overflowCnt.get())
+                .append("}").toString();
+    }
+
+    // 64-bit FNV-1a over the characters, finished with the murmur3 mixer
+    static long fingerprint(String msgSeqId) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < msgSeqId.length(); i++) {
+            hash ^= msgSeqId.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= (hash >>> 33);
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= (hash >>> 33);
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= (hash >>> 33);
+        return hash == EMPTY_SLOT ? 1L : hash;
+    }
+
+    private static int segmentIndex(long fingerprint) {
+        return (int) (fingerprint >>> 59) & (SEGMENT_CNT - 1);
+    }
+
+    /**
+     * One segment of a time bucket, an open-addressing table
+     * with linear probing and backward-shift deletion.
+     */
+    private class Segment {
+
+        // the period the stored fingerprints belong to
+        private long period = -1L;
+        private long[] table = new long[MIN_TABLE_SIZE];
+        private int size = 0;
+
+        public synchronized boolean contains(long fingerprint, long currPeriod) {
+            if (size == 0 || period > currPeriod
+                    || period <= currPeriod - BUCKET_CNT) {
+                return false;
+            }
+            int mask = table.length - 1;
+            int index = (int) fingerprint & mask;
+            while (table[index] != EMPTY_SLOT) {
+                if (table[index] == fingerprint) {
+                    return true;
+                }
+                index = (index + 1) & mask;
+            }
+            return false;
+        }
+
+        public synchronized boolean put(long fingerprint, long currPeriod) {
+            if (period != currPeriod) {
+                // the slot is reused by a new period, drop the expired contents
+                if (currPeriod < period) {
+                    // clock moved backward, keep the newer contents
+                    return true;
+                }
+                reset(currPeriod);
+            }
+            int mask = table.length - 1;
+            int index = (int) fingerprint & mask;
+            while (table[index] != EMPTY_SLOT) {
+                if (table[index] == fingerprint) {
+                    return true;
+                }
+                index = (index + 1) & mask;
+            }
+            if (size >= maxSegmentEntries) {
+                return false;
+            }
+            table[index] = fingerprint;
+            size++;
+            if (size * 4 >= table.length * 3) {
+                resize(table.length * 2);
+            }
+            return true;
+        }
+
+        public synchronized void remove(long fingerprint) {
+            if (size == 0) {
+                return;
+            }
+            int mask = table.length - 1;
+            int index = (int) fingerprint & mask;
+            while (table[index] != fingerprint) {
+                if (table[index] == EMPTY_SLOT) {
+                    return;
+                }
+                index = (index + 1) & mask;
+            }
+            // shift back the following entries of the probe chain
+            int next = index;
+            while (true) {
+                next = (next + 1) & mask;
+                if (table[next] == EMPTY_SLOT) {
+                    break;
+                }
+                int home = (int) table[next] & mask;
+                if (((next - home) & mask) >= ((next - index) & mask)) {
+                    table[index] = table[next];
+                    index = next;
+                }
+            }
+            table[index] = EMPTY_SLOT;
+            size--;
+        }
+
+        public synchronized int getSize() {
+            return size;
+        }
+
+        public synchronized int getCapacity() {
+            return table.length;
+        }
+
+        private void reset(long newPeriod) {
+            // shrink the table back if the last period left it mostly empty
+            if (table.length > MIN_TABLE_SIZE && size * 8 < table.length) {
+                table = new long[Math.max(MIN_TABLE_SIZE,
+                        Integer.highestOneBit(Math.max(1, size * 2)) * 2)];
+            } else if (size > 0) {
+                Arrays.fill(table, EMPTY_SLOT);
+            }
+            size = 0;
+            period = newPeriod;
+        }
+
+        private void resize(int newCapacity) {
+            long[] oldTable = table;
+            long[] newTable = new long[newCapacity];
+            int mask = newCapacity - 1;
+            for (long fingerprint : oldTable) {
+                if (fingerprint == EMPTY_SLOT) {
+                    continue;
+                }
+                int index = (int) fingerprint & mask;
+                while (newTable[index] != EMPTY_SLOT) {
+                    index = (index + 1) & mask;
+                }
+                newTable[index] = fingerprint;
+            }
+            table = newTable;
+        }
+    }
+}
@@ -18,11 +18,11 @@
 package org.apache.inlong.dataproxy.sink.mqzone;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Executors;
-import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import org.apache.flume.Channel;
@@ -34,7 +34,8 @@ import org.apache.flume.Transaction;
 import org.apache.flume.conf.Configurable;
 import org.apache.flume.sink.AbstractSink;
 import org.apache.inlong.dataproxy.dispatch.DispatchManager;
-import org.apache.inlong.dataproxy.dispatch.DispatchProfile;
+import org.apache.inlong.dataproxy.dispatch.DispatchQueue;
+import org.apache.inlong.dataproxy.metrics.DataProxyMetricItem;
 import org.apache.inlong.dataproxy.sink.pulsar.PulsarClientService;
 import org.apache.inlong.sdk.commons.protocol.ProxyEvent;
 import org.apache.inlong.sdk.commons.protocol.ProxyPackEvent;
@@ -49,7 +50,7 @@ public abstract class AbstractZoneSink extends AbstractSink implements Configura
     protected List<AbstactZoneWorker> workers = new ArrayList<>();
     // message group
     protected DispatchManager dispatchManager;
-    protected ArrayList<LinkedBlockingQueue<DispatchProfile>> dispatchQueues = new ArrayList<>();
+    protected ArrayList<DispatchQueue> dispatchQueues = new ArrayList<>();
     // scheduled thread pool
     // reload
     // dispatch
@@ -72,11 +73,17 @@ public abstract class AbstractZoneSink extends AbstractSink implements Configura
                 LOG.error("channel is null");
             }
             this.context.start();
+            int queueCapacity = parentContext.getInteger(DispatchManager.KEY_DISPATCH_QUEUE_CAPACITY,
+                    DispatchManager.DEFAULT_DISPATCH_QUEUE_CAPACITY);
             for (int i = 0; i < context.getMaxThreads(); i++) {
-                LinkedBlockingQueue<DispatchProfile> dispatchQueue = new LinkedBlockingQueue<>();
+                DispatchQueue dispatchQueue = new DispatchQueue(queueCapacity);
                 dispatchQueues.add(dispatchQueue);
             }
-            this.dispatchManager = new DispatchManager(parentContext, dispatchQueues);
+            Map<String, String> dimensions = new HashMap<>();
+            dimensions.put(DataProxyMetricItem.KEY_CLUSTER_ID, context.getProxyClusterId());
+            dimensions.put(DataProxyMetricItem.KEY_SINK_ID, context.getSinkName());
+            this.dispatchManager = new DispatchManager(parentContext, dispatchQueues,
+                    context.getMetricItemSet(), dimensions);
             this.scheduledPool = Executors.newScheduledThreadPool(2);
             // dispatch
             this.scheduledPool.scheduleWithFixedDelay(new Runnable() {
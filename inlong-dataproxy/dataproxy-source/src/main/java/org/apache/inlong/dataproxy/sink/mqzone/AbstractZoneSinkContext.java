@@ -20,7 +20,6 @@ package org.apache.inlong.dataproxy.sink.mqzone;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.concurrent.LinkedBlockingQueue;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.flume.Channel;
 import org.apache.flume.Context;
@@ -30,6 +29,7 @@ import org.apache.inlong.dataproxy.config.holder.CacheClusterConfigHolder;
 import org.apache.inlong.dataproxy.config.holder.CommonPropertiesHolder;
 import org.apache.inlong.dataproxy.config.holder.IdTopicConfigHolder;
 import org.apache.inlong.dataproxy.dispatch.DispatchProfile;
+import org.apache.inlong.dataproxy.dispatch.DispatchQueue;
 import org.apache.inlong.dataproxy.metrics.DataProxyMetricItem;
 import org.apache.inlong.dataproxy.metrics.DataProxyMetricItemSet;
 import org.apache.inlong.dataproxy.metrics.audit.AuditUtils;
@@ -69,7 +69,7 @@ public abstract class AbstractZoneSinkContext {
     public static final String PREFIX_PRODUCER = "producer.";
     public static final String KEY_COMPRESS_TYPE = "compressType";
 
-    protected ArrayList<LinkedBlockingQueue<DispatchProfile>> dispatchQueues = new ArrayList<>();
+    protected ArrayList<DispatchQueue> dispatchQueues = new ArrayList<>();
 
     protected final String proxyClusterId;
     protected final String nodeId;
@@ -82,7 +82,7 @@ public abstract class AbstractZoneSinkContext {
      * Constructor
      */
     public AbstractZoneSinkContext(String sinkName, Context context, Channel channel,
-                                   ArrayList<LinkedBlockingQueue<DispatchProfile>> dispatchQueues) {
+                                   ArrayList<DispatchQueue> dispatchQueues) {
         this.sinkName = sinkName;
         this.sinkContext = context;
         this.channel = channel;
@@ -342,12 +342,12 @@ public abstract class AbstractZoneSinkContext {
      *
      * @return the dispatchQueue
      */
-    public ArrayList<LinkedBlockingQueue<DispatchProfile>> getDispatchQueues() {
+    public ArrayList<DispatchQueue> getDispatchQueues() {
         return dispatchQueues;
     }
 
     public void setDispatchQueues(
-            ArrayList<LinkedBlockingQueue<DispatchProfile>> dispatchQueues) {
+            ArrayList<DispatchQueue> dispatchQueues) {
         this.dispatchQueues = dispatchQueues;
     }
 
@@ -359,7 +359,7 @@ public abstract class AbstractZoneSinkContext {
      */
     public void processSendFail(DispatchProfile currentRecord, String producerTopic, long sendTime) {
         if (currentRecord.isResend()) {
-            dispatchQueues.get(currentRecord.getSendIndex() % maxThreads).offer(currentRecord);
+            dispatchQueues.get(currentRecord.getSendIndex() % maxThreads).resend(currentRecord);
             this.addSendResultMetric(currentRecord, producerTopic, false, sendTime);
         } else {
             currentRecord.fail();
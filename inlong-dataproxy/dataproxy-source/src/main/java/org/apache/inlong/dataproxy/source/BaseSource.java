@@ -70,6 +70,9 @@ public abstract class BaseSource
 
   protected boolean isCompressed;
 
+  // forward binary messages without compressing their body
+  protected boolean binMsgPassThrough;
+
   protected String topic;
 
   protected String attr;
@@ -252,6 +255,8 @@ public abstract class BaseSource
             "maxMsgLength must be >= 4 and <= " + ConfigConstants.MSG_MAX_LENGTH_BYTES);
     isCompressed = context.getBoolean(ConfigConstants.MSG_COMPRESSED, true);
 
+    binMsgPassThrough = context.getBoolean(ConfigConstants.BIN_MSG_PASS_THROUGH, false);
+
     filterEmptyMsg = context.getBoolean(ConfigConstants.FILTER_EMPTY_MSG, false);
 
     topic = context.getString(ConfigConstants.TOPIC, "");
@@ -345,6 +350,10 @@ public abstract class BaseSource
     return context;
   }
 
+  public boolean isBinMsgPassThrough() {
+    return binMsgPassThrough;
+  }
+
   public abstract String getProtocolName();
 
   public abstract void startSource();
@@ -90,6 +90,8 @@ public class ServerMessageHandler extends ChannelInboundHandlerAdapter {
 
     private final boolean isCompressed;
 
+    private final boolean binMsgPassThrough;
+
     private final ChannelProcessor processor;
 
     private final ServiceDecoder serviceDecoder;
@@ -137,6 +139,7 @@ public class ServerMessageHandler extends ChannelInboundHandlerAdapter {
         }
         this.filterEmptyMsg = filterEmptyMsg;
         this.isCompressed = isCompressed;
+        this.binMsgPassThrough = source.isBinMsgPassThrough();
         this.maxConnections = maxCons;
         this.protocolType = protocolType;
         this.metricItemSet = source.getMetricItemSet();
@@ -362,8 +365,23 @@ public class ServerMessageHandler extends ChannelInboundHandlerAdapter {
             for (Map.Entry<String, List<ProxyMessage>> streamIdEntry : topicEntry.getValue().entrySet()) {
                 // build InLongMsg
                 String groupId = null;
-                InLongMsg inLongMsg = InLongMsg.newInLongMsg(this.isCompressed, inLongMsgVer);
-                if (MsgType.MSG_MULTI_BODY_ATTR.equals(msgType) || MsgType.MSG_MULTI_BODY.equals(msgType)) {
+                byte[] data = null;
+                if (MsgType.MSG_BIN_MULTI_BODY.equals(msgType)
+                        && streamIdEntry.getValue().size() == 1) {
+                    // forward the binary message as it is when no body compression is needed
+                    ProxyMessage message = streamIdEntry.getValue().get(0);
+                    groupId = message.getGroupId();
+                    if (!this.isCompressed || this.binMsgPassThrough
+                            || InLongMsg.isBinMsgCompressed(message.getData())) {
+                        data = InLongMsg.buildBinMsgArray(message.getData());
+                    }
+                }
+                InLongMsg inLongMsg = (data == null)
+                        ? InLongMsg.newInLongMsg(this.isCompressed, inLongMsgVer) : null;
+                if (data != null) {
+                    monitorIndexExt.incrementAndGet("EVENT_PASS_THROUGH");
+                } else if (MsgType.MSG_MULTI_BODY_ATTR.equals(msgType)
+                        || MsgType.MSG_MULTI_BODY.equals(msgType)) {
                     for (ProxyMessage message : streamIdEntry.getValue()) {
                         if (StringUtils.isEmpty(groupId)) {
                             groupId = message.getGroupId();
@@ -423,9 +441,11 @@ public class ServerMessageHandler extends ChannelInboundHandlerAdapter {
                     headers.put(ConfigConstants.SEQUENCE_ID, strBuff.toString());
                     strBuff.delete(0, strBuff.length());
                 }
-                final byte[] data = inLongMsg.buildArray();
+                if (inLongMsg != null) {
+                    data = inLongMsg.buildArray();
+                    inLongMsg.reset();
+                }
                 Event event = EventBuilder.withBody(data, headers);
-                inLongMsg.reset();
                 // build metric data item
                 String orderType = "non-order";
                 if (MessageUtils.isSyncSendForOrder(event)) {
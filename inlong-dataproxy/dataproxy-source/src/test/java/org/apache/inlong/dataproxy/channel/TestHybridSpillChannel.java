@@ -0,0 +1,361 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.dataproxy.channel;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.flume.ChannelException;
+import org.apache.flume.Context;
+import org.apache.flume.Event;
+import org.apache.flume.Transaction;
+import org.apache.flume.event.EventBuilder;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestHybridSpillChannel {
+
+    private File spillDir;
+
+    @Before
+    public void setUp() throws Exception {
+        spillDir = Files.createTempDirectory("spill").toFile();
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = spillDir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        spillDir.delete();
+    }
+
+    @Test
+    public void testMemoryOnly() {
+        HybridSpillChannel channel = createChannel(100, 10, 64 * 1024L * 1024L);
+        putEvents(channel, 0, 20, 10);
+        Assert.assertEquals(20, channel.getMemoryEventCount());
+        Assert.assertEquals(0, channel.getSpilledEventCount());
+        takeEvents(channel, 0, 20, 10);
+        assertEmpty(channel);
+        Assert.assertEquals(0, channel.getMemoryEventCount());
+        channel.stop();
+    }
+
+    @Test
+    public void testSpillAndKeepOrder() {
+        HybridSpillChannel channel = createChannel(10, 5, 64 * 1024L * 1024L);
+        putEvents(channel, 0, 28, 4);
+        Assert.assertEquals(10, channel.getMemoryEventCount());
+        Assert.assertEquals(18, channel.getSpilledEventCount());
+        takeEvents(channel, 0, 10, 5);
+        // puts go on to the spill log until it is drained
+        putEvents(channel, 28, 32, 4);
+        Assert.assertEquals(22, channel.getSpilledEventCount());
+        takeEvents(channel, 10, 32, 5);
+        Assert.assertEquals(0, channel.getSpilledEventCount());
+        putEvents(channel, 32, 36, 4);
+        Assert.assertEquals(4, channel.getMemoryEventCount());
+        takeEvents(channel, 32, 36, 4);
+        assertEmpty(channel);
+        channel.stop();
+    }
+
+    @Test
+    public void testRollbackTake() {
+        HybridSpillChannel channel = createChannel(4, 4, 64 * 1024L * 1024L);
+        putEvents(channel, 0, 12, 4);
+        Transaction transaction = channel.getTransaction();
+        transaction.begin();
+        for (int i = 0; i < 4; i++) {
+            Assert.assertEquals(eventBody(i), new String(channel.take().getBody(),
+                    StandardCharsets.UTF_8));
+        }
+        transaction.rollback();
+        transaction.close();
+        takeEvents(channel, 0, 12, 4);
+        assertEmpty(channel);
+        channel.stop();
+    }
+
+    @Test
+    public void testRecoverAfterRestart() {
+        HybridSpillChannel channel = createChannel(10, 5, 64 * 1024L * 1024L);
+        putEvents(channel, 0, 40, 5);
+        takeEvents(channel, 0, 15, 5);
+        Assert.assertEquals(25, channel.getSpilledEventCount());
+        channel.stop();
+        // the unread events are replayed in order
+        channel = createChannel(10, 5, 64 * 1024L * 1024L);
+        Assert.assertEquals(25, channel.getSpilledEventCount());
+        putEvents(channel, 40, 45, 5);
+        takeEvents(channel, 15, 45, 5);
+        assertEmpty(channel);
+        channel.stop();
+        // memory events at stop are kept too
+        channel = createChannel(10, 5, 64 * 1024L * 1024L);
+        putEvents(channel, 45, 50, 5);
+        channel.stop();
+        channel = createChannel(10, 5, 64 * 1024L * 1024L);
+        Assert.assertEquals(5, channel.getSpilledEventCount());
+        takeEvents(channel, 45, 50, 5);
+        assertEmpty(channel);
+        channel.stop();
+    }
+
+    @Test
+    public void testKeepMemoryEventsAtStop() {
+        HybridSpillChannel channel = createChannel(10, 5, 64 * 1024L * 1024L);
+        putEvents(channel, 0, 30, 5);
+        takeEvents(channel, 0, 8, 4);
+        // the rolled back memory events are kept in memory, and the spill log
+        // is rewound, so they are still ahead of the spilled ones
+        Transaction transaction = channel.getTransaction();
+        transaction.begin();
+        for (int i = 0; i < 4; i++) {
+            Assert.assertNotNull(channel.take());
+        }
+        transaction.rollback();
+        transaction.close();
+        Assert.assertEquals(2, channel.getMemoryEventCount());
+        Assert.assertEquals(20, channel.getSpilledEventCount());
+        channel.stop();
+        channel = createChannel(10, 5, 64 * 1024L * 1024L);
+        Assert.assertEquals(22, channel.getSpilledEventCount());
+        takeEvents(channel, 8, 30, 3);
+        assertEmpty(channel);
+        channel.stop();
+    }
+
+    @Test
+    public void testCrashMidTransaction() {
+        HybridSpillChannel channel = createChannel(10, 5, 64 * 1024L * 1024L);
+        putEvents(channel, 0, 30, 5);
+        takeEvents(channel, 0, 13, 4);
+        Assert.assertEquals(17, channel.getSpilledEventCount());
+        // take the spilled events without commit, then crash without stop
+        Transaction transaction = channel.getTransaction();
+        transaction.begin();
+        for (int i = 13; i < 18; i++) {
+            Assert.assertEquals(eventBody(i), new String(channel.take().getBody(),
+                    StandardCharsets.UTF_8));
+        }
+        Assert.assertEquals(12, channel.getSpilledEventCount());
+        // the taken events are replayed from the committed position
+        HybridSpillChannel recovered = createChannel(10, 5, 64 * 1024L * 1024L);
+        Assert.assertEquals(17, recovered.getSpilledEventCount());
+        takeEvents(recovered, 13, 30, 5);
+        assertEmpty(recovered);
+        recovered.stop();
+        transaction.rollback();
+        transaction.close();
+    }
+
+    @Test
+    public void testRollbackOverCapacity() throws Exception {
+        HybridSpillChannel channel = createChannel(4, 4, 64 * 1024L * 1024L);
+        putEvents(channel, 0, 4, 4);
+        Transaction transaction = channel.getTransaction();
+        transaction.begin();
+        for (int i = 0; i < 4; i++) {
+            Assert.assertNotNull(channel.take());
+        }
+        // refill the memory queue from another transaction
+        Thread putThread = new Thread(() -> putEvents(channel, 4, 8, 4));
+        putThread.start();
+        putThread.join();
+        Assert.assertEquals(4, channel.getMemoryEventCount());
+        // the rolled back events go over the memory capacity
+        transaction.rollback();
+        transaction.close();
+        Assert.assertEquals(8, channel.getMemoryEventCount());
+        putEvents(channel, 8, 12, 4);
+        Assert.assertEquals(8, channel.getMemoryEventCount());
+        Assert.assertEquals(4, channel.getSpilledEventCount());
+        takeEvents(channel, 0, 12, 4);
+        assertEmpty(channel);
+        channel.stop();
+    }
+
+    @Test
+    public void testTransactionsAfterStop() {
+        HybridSpillChannel channel = createChannel(10, 5, 64 * 1024L * 1024L);
+        putEvents(channel, 0, 8, 4);
+        Transaction transaction = channel.getTransaction();
+        transaction.begin();
+        for (int i = 0; i < 3; i++) {
+            Assert.assertNotNull(channel.take());
+        }
+        channel.stop();
+        // the takes are rejected after stop
+        try {
+            channel.take();
+            Assert.fail("The take should be rejected after stop");
+        } catch (ChannelException e) {
+            // expected
+        }
+        transaction.rollback();
+        transaction.close();
+        // the rolled back events are kept in front of the spilled ones
+        channel = createChannel(10, 5, 64 * 1024L * 1024L);
+        Assert.assertEquals(8, channel.getSpilledEventCount());
+        transaction = channel.getTransaction();
+        transaction.begin();
+        channel.put(EventBuilder.withBody(eventBody(8).getBytes(StandardCharsets.UTF_8)));
+        channel.stop();
+        // the puts are rejected after stop
+        try {
+            transaction.commit();
+            Assert.fail("The put should be rejected after stop");
+        } catch (ChannelException e) {
+            transaction.rollback();
+        } finally {
+            transaction.close();
+        }
+        channel = createChannel(10, 5, 64 * 1024L * 1024L);
+        takeEvents(channel, 0, 8, 4);
+        assertEmpty(channel);
+        channel.stop();
+    }
+
+    @Test
+    public void testSpillLogFull() {
+        HybridSpillChannel channel = createChannel(4, 4, 1024L);
+        putEvents(channel, 0, 4, 4);
+        try {
+            putEvents(channel, 4, 8, 4);
+            Assert.fail("The spill log should be full");
+        } catch (ChannelException e) {
+            // expected
+        }
+        Assert.assertEquals(4, channel.getMemoryEventCount());
+        Assert.assertEquals(0, channel.getSpilledEventCount());
+        channel.stop();
+    }
+
+    @Test
+    public void testAppendAfterUndoneAppend() throws Exception {
+        MmapSpillLog spillLog = new MmapSpillLog(spillDir, 1024, 1024 * 1024L);
+        spillLog.append(Arrays.asList(encodeBody("a-0"), encodeBody("a-1")));
+        // block the next segment, so the append is undone after two records are written
+        File blocker = new File(spillDir, String.format("%020d", (1L << 32) + 1) + ".log");
+        Assert.assertTrue(blocker.mkdir());
+        List<byte[]> records = new ArrayList<>();
+        records.add(encodeBody("x-0"));
+        records.add(encodeBody("x-1"));
+        records.add(new byte[2048]);
+        try {
+            spillLog.append(records);
+            Assert.fail("The append should fail");
+        } catch (IOException e) {
+            // expected
+        }
+        Assert.assertEquals(2, spillLog.getEventCount());
+        // the record overwrites the first undone one, the second undone one follows
+        spillLog.append(Arrays.asList(encodeBody("b-0")));
+        spillLog.close();
+        Assert.assertTrue(blocker.delete());
+        spillLog = new MmapSpillLog(spillDir, 1024, 1024 * 1024L);
+        Assert.assertEquals(3, spillLog.getEventCount());
+        for (String body : new String[]{"a-0", "a-1", "b-0"}) {
+            Assert.assertEquals(body,
+                    new String(spillLog.poll().getBody(), StandardCharsets.UTF_8));
+        }
+        Assert.assertNull(spillLog.poll());
+        spillLog.close();
+    }
+
+    private byte[] encodeBody(String body) {
+        return MmapSpillLog.encode(EventBuilder.withBody(
+                body.getBytes(StandardCharsets.UTF_8), new HashMap<>()));
+    }
+
+    private HybridSpillChannel createChannel(int capacity, int transCapacity, long maxSpillBytes) {
+        Map<String, String> params = new HashMap<>();
+        params.put("capacity", String.valueOf(capacity));
+        params.put("transactionCapacity", String.valueOf(transCapacity));
+        params.put("keep-alive", "0");
+        params.put("spillDir", spillDir.getAbsolutePath());
+        params.put("segmentSize", "1024");
+        params.put("maxSpillBytes", String.valueOf(maxSpillBytes));
+        HybridSpillChannel channel = new HybridSpillChannel();
+        channel.setName("ch-spill");
+        channel.configure(new Context(params));
+        channel.start();
+        return channel;
+    }
+
+    private void putEvents(HybridSpillChannel channel, int from, int to, int batchSize) {
+        for (int i = from; i < to; i += batchSize) {
+            Transaction transaction = channel.getTransaction();
+            transaction.begin();
+            try {
+                for (int j = i; j < Math.min(to, i + batchSize); j++) {
+                    Map<String, String> headers = new HashMap<>();
+                    headers.put("index", String.valueOf(j));
+                    channel.put(EventBuilder.withBody(
+                            eventBody(j).getBytes(StandardCharsets.UTF_8), headers));
+                }
+                transaction.commit();
+            } catch (ChannelException e) {
+                transaction.rollback();
+                throw e;
+            } finally {
+                transaction.close();
+            }
+        }
+    }
+
+    private void takeEvents(HybridSpillChannel channel, int from, int to, int batchSize) {
+        for (int i = from; i < to; i += batchSize) {
+            Transaction transaction = channel.getTransaction();
+            transaction.begin();
+            for (int j = i; j < Math.min(to, i + batchSize); j++) {
+                Event event = channel.take();
+                Assert.assertNotNull(event);
+                Assert.assertEquals(String.valueOf(j), event.getHeaders().get("index"));
+                Assert.assertEquals(eventBody(j), new String(event.getBody(), StandardCharsets.UTF_8));
+            }
+            transaction.commit();
+            transaction.close();
+        }
+    }
+
+    private void assertEmpty(HybridSpillChannel channel) {
+        Transaction transaction = channel.getTransaction();
+        transaction.begin();
+        Assert.assertNull(channel.take());
+        transaction.commit();
+        transaction.close();
+    }
+
+    private String eventBody(int index) {
+        return "event body of message " + index;
+    }
+}
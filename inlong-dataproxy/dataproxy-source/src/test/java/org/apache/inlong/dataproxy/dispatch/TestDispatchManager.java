@@ -0,0 +1,257 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.dataproxy.dispatch;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.flume.Context;
+import org.apache.inlong.common.metric.MetricItem;
+import org.apache.inlong.dataproxy.consts.AttributeConstants;
+import org.apache.inlong.dataproxy.dispatch.DispatchManager.FlushReason;
+import org.apache.inlong.dataproxy.metrics.DataProxyMetricItem;
+import org.apache.inlong.dataproxy.metrics.DataProxyMetricItemSet;
+import org.apache.inlong.sdk.commons.protocol.ProxyEvent;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestDispatchManager {
+
+    @Test
+    public void testFlushByCountAndTimeout() throws Exception {
+        ArrayList<DispatchQueue> queues = createQueues(2);
+        DispatchManager manager = createManager(queues, 10, 1024 * 1024L, 100);
+        long msgTime = System.currentTimeMillis();
+        for (int i = 0; i < 25; i++) {
+            manager.addEvent(createEvent("stream1", 10, msgTime));
+        }
+        Assert.assertEquals(2, manager.getFlushCount(FlushReason.COUNT));
+        List<DispatchProfile> profiles = pollAll(queues);
+        Assert.assertEquals(2, profiles.size());
+        Assert.assertEquals(10, profiles.get(0).getCount());
+        Assert.assertEquals(10, profiles.get(1).getCount());
+        // the last profile waits for the timer wheel
+        manager.outputOvertimeData();
+        Assert.assertEquals(0, pollAll(queues).size());
+        Thread.sleep(300);
+        manager.outputOvertimeData();
+        Assert.assertEquals(1, manager.getFlushCount(FlushReason.TIMEOUT));
+        profiles = pollAll(queues);
+        Assert.assertEquals(1, profiles.size());
+        Assert.assertEquals(5, profiles.get(0).getCount());
+    }
+
+    @Test
+    public void testFlushBySize() {
+        ArrayList<DispatchQueue> queues = createQueues(2);
+        DispatchManager manager = createManager(queues, 100, 100L, 60000);
+        long msgTime = System.currentTimeMillis();
+        for (int i = 0; i < 5; i++) {
+            manager.addEvent(createEvent("stream1", 40, msgTime));
+        }
+        Assert.assertEquals(2, manager.getFlushCount(FlushReason.SIZE));
+        List<DispatchProfile> profiles = pollAll(queues);
+        Assert.assertEquals(2, profiles.size());
+        for (DispatchProfile profile : profiles) {
+            Assert.assertEquals(2, profile.getCount());
+            Assert.assertEquals(80, profile.getSize());
+        }
+    }
+
+    @Test
+    public void testSealedProfileLeavesWheel() {
+        ArrayList<DispatchQueue> queues = createQueues(1);
+        DispatchManager manager = createManager(queues, 10, 1024 * 1024L, 100);
+        long currentTime = System.currentTimeMillis();
+        DispatchShard shard = new DispatchShard(manager, 10, currentTime);
+        long dispatchTime = currentTime - currentTime % 60000;
+        shard.addEvent(createEvent("stream1", 10, currentTime), dispatchTime, false, 0);
+        shard.addEvent(createEvent("stream2", 10, currentTime), dispatchTime, false, 0);
+        for (int i = 0; i < 9; i++) {
+            shard.addEvent(createEvent("stream1", 10, currentTime), dispatchTime, false, 0);
+        }
+        // the profile sealed on count is off the wheel, the other one took its place in the bucket
+        List<DispatchProfile> profiles = pollAll(queues);
+        Assert.assertEquals(1, profiles.size());
+        Assert.assertEquals(10, profiles.get(0).getCount());
+        Assert.assertEquals(-1, profiles.get(0).getWheelIndex());
+        Assert.assertEquals(1, shard.getProfileCount());
+        shard.advance(System.currentTimeMillis() + 1000);
+        Assert.assertEquals(1, manager.getFlushCount(FlushReason.TIMEOUT));
+        profiles = pollAll(queues);
+        Assert.assertEquals(1, profiles.size());
+        Assert.assertEquals("stream2", profiles.get(0).getInlongStreamId());
+        Assert.assertEquals(0, shard.getProfileCount());
+    }
+
+    @Test
+    public void testSplitByDispatchTime() throws Exception {
+        ArrayList<DispatchQueue> queues = createQueues(3);
+        DispatchManager manager = createManager(queues, 100, 1024 * 1024L, 50);
+        long msgTime = System.currentTimeMillis();
+        for (int i = 0; i < 4; i++) {
+            manager.addEvent(createEvent("stream1", 10, msgTime));
+            manager.addEvent(createEvent("stream1", 10, msgTime - DispatchManager.MINUTE_MS));
+            manager.addEvent(createEvent("stream2", 10, msgTime));
+        }
+        Thread.sleep(200);
+        manager.outputOvertimeData();
+        List<DispatchProfile> profiles = pollAll(queues);
+        Assert.assertEquals(3, profiles.size());
+        for (DispatchProfile profile : profiles) {
+            Assert.assertEquals(4, profile.getCount());
+        }
+        Assert.assertEquals(3, manager.getFlushCount(FlushReason.TIMEOUT));
+    }
+
+    @Test
+    public void testOrderEvents() {
+        ArrayList<DispatchQueue> queues = createQueues(4);
+        DispatchManager manager = createManager(queues, 5, 1024 * 1024L, 60000);
+        long msgTime = System.currentTimeMillis();
+        String partitionKey = "partition-1";
+        for (int i = 0; i < 20; i++) {
+            ProxyEvent event = createEvent("stream1", 10, msgTime);
+            event.getHeaders().put(AttributeConstants.MESSAGE_SYNC_SEND, "true");
+            event.getHeaders().put(AttributeConstants.MESSAGE_PARTITION_KEY, partitionKey);
+            manager.addEvent(event);
+        }
+        int queueIndex = (partitionKey.hashCode() & Integer.MAX_VALUE) % queues.size();
+        Assert.assertEquals(4, queues.get(queueIndex).size());
+        for (int i = 0; i < queues.size(); i++) {
+            if (i != queueIndex) {
+                Assert.assertEquals(0, queues.get(i).size());
+            }
+        }
+        DispatchProfile profile = queues.get(queueIndex).poll();
+        Assert.assertTrue(profile.isOrder());
+        Assert.assertEquals(5, profile.getCount());
+    }
+
+    @Test
+    public void testDispatchMetric() {
+        Context context = new Context();
+        context.put(DispatchManager.KEY_DISPATCH_MAX_PACKCOUNT, "10");
+        DataProxyMetricItemSet metricItemSet = new DataProxyMetricItemSet("sink1");
+        Map<String, String> dimensions = new HashMap<>();
+        dimensions.put(DataProxyMetricItem.KEY_CLUSTER_ID, "cluster1");
+        dimensions.put(DataProxyMetricItem.KEY_SINK_ID, "sink1");
+        ArrayList<DispatchQueue> queues = createQueues(2);
+        DispatchManager manager = new DispatchManager(context, queues, metricItemSet, dimensions);
+        long msgTime = System.currentTimeMillis();
+        for (int i = 0; i < 20; i++) {
+            manager.addEvent(createEvent("stream1", 10, msgTime));
+        }
+        manager.setNeedOutputOvertimeData();
+        manager.outputOvertimeData();
+        List<MetricItem> items = metricItemSet.snapshot();
+        Assert.assertEquals(1, items.size());
+        DataProxyMetricItem metricItem = (DataProxyMetricItem) items.get(0);
+        Assert.assertEquals("sink1", metricItem.getDimensions().get(DataProxyMetricItem.KEY_SINK_ID));
+        Assert.assertEquals(2, metricItem.dispatchCountFlush.get());
+        Assert.assertEquals(0, metricItem.dispatchTimeoutFlush.get());
+        Assert.assertEquals(1000, metricItem.dispatchCountFillRatio.get());
+    }
+
+    @Test
+    public void testDispatchQueue() {
+        DispatchQueue queue = new DispatchQueue(3);
+        Assert.assertEquals(4, queue.getCapacity());
+        List<DispatchProfile> profiles = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            DispatchProfile profile = new DispatchProfile("uid", "group", "stream", i);
+            profiles.add(profile);
+            Assert.assertTrue(queue.offer(profile));
+        }
+        Assert.assertFalse(queue.offer(new DispatchProfile("uid", "group", "stream", 4)));
+        DispatchProfile resend = new DispatchProfile("uid", "group", "stream", 5);
+        queue.resend(resend);
+        Assert.assertEquals(5, queue.size());
+        Assert.assertSame(resend, queue.poll());
+        for (DispatchProfile profile : profiles) {
+            Assert.assertSame(profile, queue.poll());
+        }
+        Assert.assertNull(queue.poll());
+        Assert.assertTrue(queue.offer(resend));
+        Assert.assertSame(resend, queue.poll());
+    }
+
+    @Test
+    public void testDispatchQueueConcurrentOffer() throws Exception {
+        DispatchQueue queue = new DispatchQueue(64);
+        int threadCount = 4;
+        int perThread = 10000;
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < threadCount; t++) {
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    DispatchProfile profile = new DispatchProfile("uid", "group", "stream", i);
+                    while (!queue.offer(profile)) {
+                        Thread.yield();
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        int received = 0;
+        while (received < threadCount * perThread) {
+            if (queue.poll() != null) {
+                received++;
+            }
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        Assert.assertNull(queue.poll());
+        Assert.assertEquals(0, queue.size());
+    }
+
+    private static ArrayList<DispatchQueue> createQueues(int count) {
+        ArrayList<DispatchQueue> queues = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            queues.add(new DispatchQueue(DispatchManager.DEFAULT_DISPATCH_QUEUE_CAPACITY));
+        }
+        return queues;
+    }
+
+    private static DispatchManager createManager(ArrayList<DispatchQueue> queues, long maxPackCount,
+            long maxPackSize, long dispatchTimeout) {
+        Context context = new Context();
+        context.put(DispatchManager.KEY_DISPATCH_MAX_PACKCOUNT, String.valueOf(maxPackCount));
+        context.put(DispatchManager.KEY_DISPATCH_MAX_PACKSIZE, String.valueOf(maxPackSize));
+        context.put(DispatchManager.KEY_DISPATCH_TIMEOUT, String.valueOf(dispatchTimeout));
+        return new DispatchManager(context, queues);
+    }
+
+    private static ProxyEvent createEvent(String streamId, int bodyLength, long msgTime) {
+        return new ProxyEvent("group1", streamId, new byte[bodyLength], msgTime, "127.0.0.1");
+    }
+
+    private static List<DispatchProfile> pollAll(List<DispatchQueue> queues) {
+        List<DispatchProfile> profiles = new ArrayList<>();
+        for (DispatchQueue queue : queues) {
+            DispatchProfile profile;
+            while ((profile = queue.poll()) != null) {
+                profiles.add(profile);
+            }
+        }
+        return profiles;
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.dataproxy.sink.common;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Benchmark of the message deduplication handler, comparing the Guava cache
+ * with the compact fingerprint store.
+ *
+ * The throughput is measured with concurrent judgeDupAndPutMsgSeqId calls,
+ * the heap retained by the pre-filled sequence-ids of each store is logged
+ * at the trial setup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(4)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class MsgDedupHandlerBenchmark {
+
+    private static final Logger logger =
+            LoggerFactory.getLogger(MsgDedupHandlerBenchmark.class);
+
+    private static final int ID_RING_SIZE = 1 << 20;
+
+    @Param({"false", "true"})
+    private boolean compactStore;
+
+    @Param({"2000000"})
+    private int prefillCnt;
+
+    private MsgDedupHandler msgDedupHandler;
+    private String[] msgSeqIds;
+
+    @Setup
+    public void setup() {
+        msgSeqIds = new String[ID_RING_SIZE];
+        for (int i = 0; i < ID_RING_SIZE; i++) {
+            msgSeqIds[i] = "10.56.15.30#" + (System.nanoTime() + i) + "#" + i;
+        }
+        final long usedBefore = usedHeap();
+        msgDedupHandler = new MsgDedupHandler();
+        msgDedupHandler.start(true, compactStore, 600000, 5000000);
+        for (int i = 0; i < prefillCnt; i++) {
+            msgDedupHandler.judgeDupAndPutMsgSeqId("10.56.15.31#prefill#" + i);
+        }
+        long usedAfter = usedHeap();
+        logger.info("compactStore = {}, prefilled {} sequence-ids, retained heap = {} MB, stats = {}",
+                compactStore, prefillCnt, (usedAfter - usedBefore) / 1024 / 1024,
+                msgDedupHandler.getCacheStatsInfo());
+    }
+
+    @Benchmark
+    public boolean judgeDupAndPutMsgSeqId(ThreadState threadState) {
+        return msgDedupHandler.judgeDupAndPutMsgSeqId(
+                msgSeqIds[threadState.nextIndex()]);
+    }
+
+    @Benchmark
+    public void invalidMsgSeqId(ThreadState threadState) {
+        msgDedupHandler.invalidMsgSeqId(msgSeqIds[threadState.nextIndex()]);
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadState {
+
+        private int index;
+
+        @Setup
+        public void setup() {
+            index = ThreadLocalRandom.current().nextInt(ID_RING_SIZE);
+        }
+
+        public int nextIndex() {
+            index = (index + 1) & (ID_RING_SIZE - 1);
+            return index;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = new OptionsBuilder()
+                .include(MsgDedupHandlerBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
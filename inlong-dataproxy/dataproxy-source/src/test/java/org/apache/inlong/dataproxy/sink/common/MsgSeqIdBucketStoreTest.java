@@ -0,0 +1,73 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.dataproxy.sink.common;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class MsgSeqIdBucketStoreTest {
+
+    @Test
+    public void testJudgeDupAndPut() {
+        MsgSeqIdBucketStore store = new MsgSeqIdBucketStore(30000, 100000);
+        long currTime = 1000000L;
+        Assert.assertFalse(store.judgeDupAndPut("seq-1", currTime));
+        Assert.assertTrue(store.judgeDupAndPut("seq-1", currTime + 1));
+        Assert.assertFalse(store.judgeDupAndPut("seq-2", currTime + 2));
+        // survive the configured time across period rotations
+        Assert.assertTrue(store.judgeDupAndPut("seq-2", currTime + 30000));
+        // a put refreshes the survival time
+        Assert.assertTrue(store.judgeDupAndPut("seq-2", currTime + 59000));
+        // expired after the survival window
+        Assert.assertFalse(store.judgeDupAndPut("seq-1", currTime + 80000));
+        Assert.assertTrue(store.judgeDupAndPut("seq-1", currTime + 80001));
+    }
+
+    @Test
+    public void testInvalid() {
+        MsgSeqIdBucketStore store = new MsgSeqIdBucketStore(30000, 100000);
+        long currTime = 1000000L;
+        for (int i = 0; i < 5000; i++) {
+            Assert.assertFalse(store.judgeDupAndPut("seq-" + i, currTime));
+        }
+        Assert.assertEquals(5000, store.getEntryCount());
+        for (int i = 0; i < 5000; i += 2) {
+            store.invalid("seq-" + i);
+        }
+        Assert.assertEquals(2500, store.getEntryCount());
+        for (int i = 0; i < 5000; i++) {
+            Assert.assertEquals(i % 2 == 1, store.judgeDupAndPut("seq-" + i, currTime));
+        }
+        Assert.assertEquals(5000, store.getEntryCount());
+        Assert.assertEquals(0, store.getOverflowCount());
+    }
+
+    @Test
+    public void testMaxSurviveSize() {
+        MsgSeqIdBucketStore store = new MsgSeqIdBucketStore(30000, 1000);
+        long currTime = 1000000L;
+        for (int i = 0; i < 100000; i++) {
+            store.judgeDupAndPut("seq-" + i, currTime);
+        }
+        Assert.assertTrue(store.getOverflowCount() > 0);
+        Assert.assertEquals(100000, store.getEntryCount() + store.getOverflowCount());
+        // expired entries do not take part in the judgement
+        Assert.assertFalse(store.judgeDupAndPut("seq-0", currTime + 40000L));
+        Assert.assertTrue(store.judgeDupAndPut("seq-0", currTime + 40001L));
+    }
+}
@@ -0,0 +1,78 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.apache.inlong.tubemq.corebase.TBaseConstants;
+import org.apache.inlong.tubemq.corebase.policies.FlowCtrlResult;
+import org.apache.inlong.tubemq.corebase.policies.FlowCtrlRuleHandler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark of the FlowCtrlRuleHandler evaluation done on each fetch request,
+ * with whole day data limit rules and fetch frequency rules.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FlowCtrlRuleBenchmark {
+
+    private static final String FLOW_CTRL_INFO = "[{\"type\":0,\"rule\":["
+            + "{\"start\":\"00:00\",\"end\":\"08:59\",\"dltInM\":1024,\"limitInM\":20,\"freqInMs\":1000},"
+            + "{\"start\":\"09:00\",\"end\":\"17:59\",\"dltInM\":512,\"limitInM\":10,\"freqInMs\":500},"
+            + "{\"start\":\"18:00\",\"end\":\"23:59\",\"dltInM\":256,\"limitInM\":5,\"freqInMs\":200}]},"
+            + "{\"type\":1,\"rule\":[{\"zeroCnt\":3,\"freqInMs\":300},"
+            + "{\"zeroCnt\":8,\"freqInMs\":1000}]}]";
+
+    @Param({"0", "2147483648"})
+    private long lastDataDlt;
+
+    private FlowCtrlRuleHandler flowCtrlRuleHandler;
+    private int msgZeroCnt = 0;
+
+    @Setup
+    public void setup() throws Exception {
+        flowCtrlRuleHandler = new FlowCtrlRuleHandler(true);
+        flowCtrlRuleHandler.updateFlowCtrlInfo(TBaseConstants.META_VALUE_UNDEFINED, 1L,
+                FLOW_CTRL_INFO, new StringBuilder(512));
+    }
+
+    @Benchmark
+    public FlowCtrlResult getCurDataLimit() {
+        return flowCtrlRuleHandler.getCurDataLimit(lastDataDlt);
+    }
+
+    @Benchmark
+    public int getCurFreqLimitTime() {
+        msgZeroCnt = (msgZeroCnt + 1) % 16;
+        return flowCtrlRuleHandler.getCurFreqLimitTime(msgZeroCnt, 0);
+    }
+}
@@ -0,0 +1,180 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.benchmarks;
+
+import static org.mockito.ArgumentMatchers.anySet;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.apache.inlong.tubemq.corebase.cluster.BrokerInfo;
+import org.apache.inlong.tubemq.corebase.cluster.Partition;
+import org.apache.inlong.tubemq.server.common.paramcheck.ParamCheckResult;
+import org.apache.inlong.tubemq.server.master.MasterConfig;
+import org.apache.inlong.tubemq.server.master.TMaster;
+import org.apache.inlong.tubemq.server.master.balance.DefaultLoadBalancer;
+import org.apache.inlong.tubemq.server.master.metamanage.MetaDataService;
+import org.apache.inlong.tubemq.server.master.nodemanage.nodebroker.BrokerRunManager;
+import org.apache.inlong.tubemq.server.master.nodemanage.nodeconsumer.ConsumeType;
+import org.apache.inlong.tubemq.server.master.nodemanage.nodeconsumer.ConsumerInfo;
+import org.apache.inlong.tubemq.server.master.nodemanage.nodeconsumer.ConsumerInfoHolder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark of DefaultLoadBalancer.balanceCluster over a synthetic cluster.
+ *
+ * Each group consumes one topic, which is deployed on all brokers. The initial
+ * assignment balances from an empty cluster state, the steady state balances
+ * with the cluster state confirmed from the initial assignment. The balancer
+ * updates the cluster state, so a copy is prepared before each invocation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LoadBalancerBenchmark {
+
+    @Param({"10", "100"})
+    private int groupCnt;
+
+    @Param({"10"})
+    private int consumerCntPerGroup;
+
+    @Param({"20"})
+    private int brokerCnt;
+
+    @Param({"10"})
+    private int partCntPerBroker;
+
+    private final DefaultLoadBalancer loadBalancer = new DefaultLoadBalancer();
+    private final Map<String, Map<String, Partition>> topicPartMap = new HashMap<>();
+    private final List<String> groupSet = new ArrayList<>();
+    private ConsumerInfoHolder consumerHolder;
+    private BrokerRunManager brokerRunManager;
+    private MetaDataService metaDataService;
+    private Map<String, Map<String, Map<String, Partition>>> steadyState;
+    private Map<String, Map<String, Map<String, Partition>>> clusterState;
+    private Map<String, Map<String, Map<String, Partition>>> steadyClusterState;
+
+    @Setup
+    public void setup() {
+        for (int i = 0; i < groupCnt; i++) {
+            String topic = "bench_topic_" + i;
+            Map<String, Partition> partMap = new HashMap<>();
+            for (int brokerId = 1; brokerId <= brokerCnt; brokerId++) {
+                BrokerInfo brokerInfo = new BrokerInfo(brokerId, "127.0.0.1", 8123);
+                for (int partId = 0; partId < partCntPerBroker; partId++) {
+                    Partition partition = new Partition(brokerInfo, topic, partId);
+                    partMap.put(partition.getPartitionKey(), partition);
+                }
+            }
+            topicPartMap.put(topic, partMap);
+        }
+        TMaster master = mock(TMaster.class);
+        when(master.getMasterConfig()).thenReturn(new MasterConfig());
+        consumerHolder = new ConsumerInfoHolder(master);
+        brokerRunManager = mock(BrokerRunManager.class);
+        when(brokerRunManager.getSubBrokerAcceptSubParts(anySet())).thenAnswer(invocation -> {
+            Set<String> topicSet = invocation.getArgument(0);
+            Map<String, Partition> partMap = new HashMap<>();
+            for (String topic : topicSet) {
+                Map<String, Partition> topicParts = topicPartMap.get(topic);
+                if (topicParts != null) {
+                    partMap.putAll(topicParts);
+                }
+            }
+            return partMap;
+        });
+        when(brokerRunManager.getSubTopicMaxBrokerCount(anySet())).thenReturn(brokerCnt);
+        metaDataService = mock(MetaDataService.class);
+        StringBuilder strBuff = new StringBuilder(512);
+        ParamCheckResult result = new ParamCheckResult();
+        long startTime = System.currentTimeMillis();
+        for (int i = 0; i < groupCnt; i++) {
+            String group = "bench_group_" + i;
+            Set<String> topicSet = new HashSet<>();
+            topicSet.add("bench_topic_" + i);
+            for (int j = 0; j < consumerCntPerGroup; j++) {
+                consumerHolder.addConsumer(new ConsumerInfo(group + "_consumer_" + j,
+                        false, group, topicSet, null, ConsumeType.CONSUME_NORMAL,
+                        null, startTime, -1, false, null, "127.0.0.1"),
+                        false, strBuff, result);
+            }
+            groupSet.add(group);
+        }
+        // confirm the initial assignment as the steady cluster state
+        Map<String, Map<String, List<Partition>>> finalSubInfo =
+                loadBalancer.balanceCluster(new HashMap<>(), consumerHolder,
+                        brokerRunManager, groupSet, metaDataService, strBuff);
+        steadyState = new HashMap<>();
+        for (Map.Entry<String, Map<String, List<Partition>>> entry : finalSubInfo.entrySet()) {
+            Map<String, Map<String, Partition>> consumerParts = new HashMap<>();
+            for (Map.Entry<String, List<Partition>> topicEntry : entry.getValue().entrySet()) {
+                Map<String, Partition> partitions = new HashMap<>();
+                for (Partition partition : topicEntry.getValue()) {
+                    partitions.put(partition.getPartitionKey(), partition);
+                }
+                consumerParts.put(topicEntry.getKey(), partitions);
+            }
+            steadyState.put(entry.getKey(), consumerParts);
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void prepareClusterState() {
+        clusterState = new HashMap<>();
+        steadyClusterState = new HashMap<>();
+        for (Map.Entry<String, Map<String, Map<String, Partition>>> entry : steadyState.entrySet()) {
+            Map<String, Map<String, Partition>> consumerParts = new HashMap<>();
+            for (Map.Entry<String, Map<String, Partition>> topicEntry : entry.getValue().entrySet()) {
+                consumerParts.put(topicEntry.getKey(), new HashMap<>(topicEntry.getValue()));
+            }
+            steadyClusterState.put(entry.getKey(), consumerParts);
+        }
+    }
+
+    @Benchmark
+    public Map<String, Map<String, List<Partition>>> initialAssign() {
+        return loadBalancer.balanceCluster(clusterState, consumerHolder,
+                brokerRunManager, groupSet, metaDataService, new StringBuilder(512));
+    }
+
+    @Benchmark
+    public Map<String, Map<String, List<Partition>>> steadyBalance() {
+        return loadBalancer.balanceCluster(steadyClusterState, consumerHolder,
+                brokerRunManager, groupSet, metaDataService, new StringBuilder(512));
+    }
+}
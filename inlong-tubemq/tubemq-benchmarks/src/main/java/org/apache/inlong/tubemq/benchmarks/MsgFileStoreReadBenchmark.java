@@ -0,0 +1,161 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.benchmarks;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.io.FileUtils;
+import org.apache.inlong.tubemq.server.broker.BrokerConfig;
+import org.apache.inlong.tubemq.server.broker.msgstore.MessageStore;
+import org.apache.inlong.tubemq.server.broker.msgstore.disk.GetMessageResult;
+import org.apache.inlong.tubemq.server.broker.msgstore.disk.MsgFileStore;
+import org.apache.inlong.tubemq.server.broker.msgstore.disk.Segment;
+import org.apache.inlong.tubemq.server.broker.stats.MsgStoreStatsHolder;
+import org.apache.inlong.tubemq.server.broker.utils.DataStoreUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark of MsgFileStore.getMessages, the disk read path of the broker.
+ *
+ * The store is filled in a temporary directory during the setup, then each
+ * invocation reads the index block from a rolling offset and the messages
+ * it points to, like MessageStore does for a fetch request.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MsgFileStoreReadBenchmark {
+
+    private static final int PARTITION_ID = 0;
+    private static final int MSG_COUNT = 100000;
+
+    @Param({"1024"})
+    private int msgDataSize;
+
+    @Param({"false", "true"})
+    private boolean rawDataMode;
+
+    private File storeDir;
+    private MsgFileStore msgFileStore;
+    private int maxIndexReadSize;
+    private int maxMsgTransferSize;
+    private long maxIndexOffset;
+    private long readOffset = 0L;
+
+    @Setup
+    public void setup() throws Exception {
+        storeDir = Files.createTempDirectory("tubemq-bench").toFile();
+        MessageStore messageStore = mock(MessageStore.class);
+        when(messageStore.getStoreKey()).thenReturn("bench_topic-0");
+        when(messageStore.getMsgStoreStatsHolder()).thenReturn(new MsgStoreStatsHolder());
+        when(messageStore.getUnflushThreshold()).thenReturn(1000);
+        when(messageStore.getUnflushInterval()).thenReturn(10000);
+        when(messageStore.getUnflushDataHold()).thenReturn(0);
+        BrokerConfig brokerConfig = new BrokerConfig();
+        msgFileStore = new MsgFileStore(messageStore,
+                brokerConfig, storeDir.getAbsolutePath(), 0L);
+        StringBuilder strBuff = new StringBuilder(512);
+        byte[] data = new byte[msgDataSize];
+        int dataEntryLen = DataStoreUtils.STORE_DATA_HEADER_LEN + msgDataSize;
+        for (int i = 0; i < MSG_COUNT; i++) {
+            long recvTime = System.currentTimeMillis();
+            ByteBuffer dataBuffer = ByteBuffer.allocate(dataEntryLen);
+            dataBuffer.putInt(DataStoreUtils.STORE_DATA_PREFX_LEN + msgDataSize);
+            dataBuffer.putInt(DataStoreUtils.STORE_DATA_TOKER_BEGIN_VALUE);
+            dataBuffer.putInt(0);
+            dataBuffer.putInt(PARTITION_ID);
+            dataBuffer.putLong(-1L);
+            dataBuffer.putLong(recvTime);
+            dataBuffer.putInt(0);
+            dataBuffer.putInt(i);
+            dataBuffer.putLong(i);
+            dataBuffer.putInt(0);
+            dataBuffer.put(data);
+            dataBuffer.flip();
+            ByteBuffer indexBuffer = ByteBuffer.allocate(DataStoreUtils.STORE_INDEX_HEAD_LEN);
+            indexBuffer.putInt(PARTITION_ID);
+            indexBuffer.putLong(-1L);
+            indexBuffer.putInt(dataEntryLen);
+            indexBuffer.putInt(i);
+            indexBuffer.putLong(recvTime);
+            indexBuffer.flip();
+            msgFileStore.appendMsg(false, recvTime, strBuff, 1,
+                    DataStoreUtils.STORE_INDEX_HEAD_LEN, indexBuffer,
+                    dataEntryLen, dataBuffer, recvTime, recvTime);
+        }
+        msgFileStore.flushDiskFile();
+        maxIndexReadSize = DataStoreUtils.STORE_INDEX_HEAD_LEN * 1000;
+        maxMsgTransferSize = 1024 * 1024;
+        maxIndexOffset = msgFileStore.getIndexMaxOffset();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        msgFileStore.close();
+        FileUtils.deleteDirectory(storeDir);
+    }
+
+    @Benchmark
+    public GetMessageResult getMessages() throws IOException {
+        if (readOffset >= maxIndexOffset) {
+            readOffset = 0L;
+        }
+        final ByteBuffer indexBuffer = ByteBuffer.allocate(maxIndexReadSize);
+        Segment indexRecordView =
+                msgFileStore.indexSlice(readOffset, maxIndexReadSize);
+        // hold the segment while reading, as MessageStore.getMessages does
+        if (indexRecordView == null || !indexRecordView.retainViewRef()) {
+            readOffset = 0L;
+            return null;
+        }
+        try {
+            indexRecordView.read(indexBuffer, readOffset);
+        } finally {
+            indexRecordView.relViewRef();
+        }
+        indexBuffer.flip();
+        GetMessageResult result = msgFileStore.getMessages(PARTITION_ID,
+                0L, readOffset, indexBuffer, false, null,
+                "bench_topic#0", maxMsgTransferSize, 0L, rawDataMode);
+        if (result.isSuccess() && result.getLastReadOffset() > 0) {
+            readOffset += result.getLastReadOffset();
+        } else {
+            readOffset = 0L;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,142 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.benchmarks;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import org.apache.inlong.tubemq.server.broker.msgstore.mem.MsgMemStore;
+import org.apache.inlong.tubemq.server.broker.stats.MsgStoreStatsHolder;
+import org.apache.inlong.tubemq.server.broker.utils.DataStoreUtils;
+import org.apache.inlong.tubemq.server.common.utils.AppendResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark of MsgMemStore.appendMsg, the write path of the broker memory cache.
+ *
+ * The cache is reset when it is full, so each invocation measures one append
+ * and the reset is amortized over the cache capacity. The contended case compares
+ * the lock-based mode with the group-commit mode under several writers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MsgMemStoreAppendBenchmark {
+
+    @Param({"256", "4096"})
+    private int msgDataSize;
+
+    @Param({"false", "true"})
+    private boolean enableGroupCommit;
+
+    private MsgMemStore msgMemStore;
+    private MsgStoreStatsHolder memStatsHolder;
+    private ByteBuffer indexBuffer;
+    private ByteBuffer dataBuffer;
+    private int dataEntryLen;
+    private int keyCode = 0;
+    private final ReentrantReadWriteLock cacheMutex = new ReentrantReadWriteLock();
+    private final AtomicLong resetCount = new AtomicLong(0);
+
+    @Setup
+    public void setup() {
+        msgMemStore = new MsgMemStore(64 * 1024 * 1024, 100000, 0, 0, enableGroupCommit);
+        memStatsHolder = new MsgStoreStatsHolder();
+        dataEntryLen = DataStoreUtils.STORE_DATA_HEADER_LEN + msgDataSize;
+        dataBuffer = ByteBuffer.allocate(dataEntryLen);
+        dataBuffer.putInt(DataStoreUtils.STORE_DATA_PREFX_LEN + msgDataSize);
+        dataBuffer.putInt(DataStoreUtils.STORE_DATA_TOKER_BEGIN_VALUE);
+        dataBuffer.position(dataEntryLen);
+        dataBuffer.flip();
+        indexBuffer = ByteBuffer.allocate(DataStoreUtils.STORE_INDEX_HEAD_LEN);
+        indexBuffer.putInt(0);
+        indexBuffer.putLong(-1L);
+        indexBuffer.putInt(dataEntryLen);
+        indexBuffer.putInt(0);
+        indexBuffer.putLong(System.currentTimeMillis());
+        indexBuffer.flip();
+    }
+
+    @TearDown
+    public void tearDown() {
+        msgMemStore.close();
+    }
+
+    @Benchmark
+    public boolean appendMsg() {
+        keyCode++;
+        if (msgMemStore.appendMsg(memStatsHolder, 0, keyCode,
+                System.currentTimeMillis(), indexBuffer.duplicate(),
+                dataEntryLen, dataBuffer.duplicate(), new AppendResult())) {
+            return true;
+        }
+        // the cache is full, reset it like the flush does
+        msgMemStore.resetMemStoreStatus(0, 0);
+        return false;
+    }
+
+    /**
+     * The writers append under the read lock until the cache is full, then one of
+     * them resets the cache under the write lock, like the cache swap of MessageStore.
+     */
+    @Benchmark
+    @Threads(16)
+    public boolean appendMsgContended() {
+        final int msgKeyCode = ThreadLocalRandom.current().nextInt();
+        while (true) {
+            long curResetCount;
+            cacheMutex.readLock().lock();
+            try {
+                curResetCount = resetCount.get();
+                if (msgMemStore.appendMsg(memStatsHolder, 0, msgKeyCode,
+                        System.currentTimeMillis(), indexBuffer.duplicate(),
+                        dataEntryLen, dataBuffer.duplicate(), new AppendResult())) {
+                    return true;
+                }
+            } finally {
+                cacheMutex.readLock().unlock();
+            }
+            cacheMutex.writeLock().lock();
+            try {
+                if (curResetCount == resetCount.get()) {
+                    msgMemStore.resetMemStoreStatus(0, 0);
+                    resetCount.incrementAndGet();
+                }
+            } finally {
+                cacheMutex.writeLock().unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,103 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.benchmarks;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.embedded.EmbeddedChannel;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.apache.inlong.tubemq.corerpc.RpcDataPack;
+import org.apache.inlong.tubemq.corerpc.netty.NettyProtocolDecoder;
+import org.apache.inlong.tubemq.corerpc.netty.NettyProtocolEncoder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark of the NettyProtocolEncoder and NettyProtocolDecoder round trip.
+ *
+ * The frame is encoded through an embedded channel and decoded by another
+ * one, the decoder receives the frame in the given number of parts to cover
+ * the cumulation of the split frames.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class NettyCodecBenchmark {
+
+    @Param({"1", "16"})
+    private int dataItemCnt;
+
+    @Param({"1024"})
+    private int dataItemSize;
+
+    @Param({"1", "3"})
+    private int frameParts;
+
+    private EmbeddedChannel encodeChannel;
+    private EmbeddedChannel decodeChannel;
+    private List<ByteBuffer> dataList;
+    private int serialNo = 0;
+
+    @Setup
+    public void setup() {
+        encodeChannel = new EmbeddedChannel(new NettyProtocolEncoder());
+        decodeChannel = new EmbeddedChannel(new NettyProtocolDecoder());
+        dataList = new ArrayList<>(dataItemCnt);
+        for (int i = 0; i < dataItemCnt; i++) {
+            dataList.add(ByteBuffer.wrap(new byte[dataItemSize]));
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        encodeChannel.finishAndReleaseAll();
+        decodeChannel.finishAndReleaseAll();
+    }
+
+    @Benchmark
+    public RpcDataPack roundTrip() {
+        List<ByteBuffer> sendList = new ArrayList<>(dataList.size());
+        for (ByteBuffer buffer : dataList) {
+            sendList.add(buffer.duplicate());
+        }
+        encodeChannel.writeOutbound(new RpcDataPack(++serialNo, sendList));
+        ByteBuf frameBuf = encodeChannel.readOutbound();
+        int partSize = frameBuf.readableBytes() / frameParts;
+        for (int i = 1; i < frameParts; i++) {
+            decodeChannel.writeInbound(frameBuf.readRetainedSlice(partSize));
+        }
+        decodeChannel.writeInbound(frameBuf.readRetainedSlice(frameBuf.readableBytes()));
+        frameBuf.release();
+        return decodeChannel.readInbound();
+    }
+}
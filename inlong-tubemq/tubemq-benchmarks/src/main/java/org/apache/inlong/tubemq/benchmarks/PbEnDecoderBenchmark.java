@@ -0,0 +1,101 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.benchmarks;
+
+import com.google.protobuf.ByteString;
+import java.util.concurrent.TimeUnit;
+import org.apache.inlong.tubemq.corebase.protobuf.generated.ClientBroker;
+import org.apache.inlong.tubemq.corebase.protobuf.generated.ClientMaster;
+import org.apache.inlong.tubemq.corerpc.RpcConstants;
+import org.apache.inlong.tubemq.corerpc.codec.PbEnDecoder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark of PbEnDecoder, with a small register request and
+ * a send message request carrying the message payload.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PbEnDecoderBenchmark {
+
+    @Param({"1024"})
+    private int payloadSize;
+
+    private ClientMaster.RegisterRequestP2M registerRequest;
+    private ClientBroker.SendMessageRequestP2B sendRequest;
+    private byte[] registerData;
+    private byte[] sendData;
+
+    @Setup
+    public void setup() throws Exception {
+        ClientMaster.RegisterRequestP2M.Builder registerBuilder =
+                ClientMaster.RegisterRequestP2M.newBuilder();
+        registerBuilder.setClientId("10001");
+        registerBuilder.setBrokerCheckSum(99);
+        registerBuilder.setHostName("tube-bench");
+        registerRequest = registerBuilder.build();
+        registerData = PbEnDecoder.pbEncode(registerRequest);
+        ClientBroker.SendMessageRequestP2B.Builder sendBuilder =
+                ClientBroker.SendMessageRequestP2B.newBuilder();
+        sendBuilder.setClientId("10001");
+        sendBuilder.setTopicName("bench_topic");
+        sendBuilder.setPartitionId(0);
+        sendBuilder.setData(ByteString.copyFrom(new byte[payloadSize]));
+        sendBuilder.setFlag(0);
+        sendBuilder.setCheckSum(-1);
+        sendBuilder.setSentAddr(0);
+        sendRequest = sendBuilder.build();
+        sendData = PbEnDecoder.pbEncode(sendRequest);
+    }
+
+    @Benchmark
+    public byte[] encodeRegisterRequest() throws Exception {
+        return PbEnDecoder.pbEncode(registerRequest);
+    }
+
+    @Benchmark
+    public Object decodeRegisterRequest() throws Exception {
+        return PbEnDecoder.pbDecode(true,
+                RpcConstants.RPC_MSG_MASTER_PRODUCER_REGISTER, registerData);
+    }
+
+    @Benchmark
+    public byte[] encodeSendRequest() throws Exception {
+        return PbEnDecoder.pbEncode(sendRequest);
+    }
+
+    @Benchmark
+    public Object decodeSendRequest() throws Exception {
+        return PbEnDecoder.pbDecode(true,
+                RpcConstants.RPC_MSG_BROKER_PRODUCER_SENDMESSAGE, sendData);
+    }
+}
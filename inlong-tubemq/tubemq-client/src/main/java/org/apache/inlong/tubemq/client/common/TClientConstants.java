@@ -24,6 +24,7 @@ public class TClientConstants {
     public static final long CFG_DEFAULT_HEARTBEAT_PERIOD_MS = 13000;
     public static final long CFG_DEFAULT_REGFAIL_WAIT_PERIOD_MS = 1000;
     public static final long CFG_DEFAULT_MSG_NOTFOUND_WAIT_PERIOD_MS = 400L;
+    public static final long CFG_DEFAULT_FETCH_MAX_WAIT_MS = 0L;
     public static final long CFG_DEFAULT_CONSUME_READ_WAIT_PERIOD_MS = 90000L;
     public static final long CFG_DEFAULT_CONSUME_READ_CHECK_SLICE_MS = 5L;
     public static final long CFG_DEFAULT_PUSH_LISTENER_WAIT_PERIOD_MS = 3000L;
@@ -33,10 +34,23 @@ public class TClientConstants {
     public static final long CFG_DEFAULT_HEARTBEAT_PERIOD_AFTER_RETRY_FAIL = 60000;
     public static final int CFG_DEFAULT_CLIENT_PUSH_FETCH_THREAD_CNT =
             Runtime.getRuntime().availableProcessors();
+    public static final int CFG_DEFAULT_PUSH_FETCH_BATCH_PART_CNT = 1;
 
     public static final int MAX_CONNECTION_FAILURE_LOG_TIMES = 10;
     public static final int MAX_SUBSCRIBE_REPORT_INTERVAL_TIMES = 6;
 
     public static final long CFG_DEFAULT_META_QUERY_WAIT_PERIOD_MS = 10000L;
     public static final long CFG_MIN_META_QUERY_WAIT_PERIOD_MS = 5000L;
+
+    public static final int CFG_DEFAULT_BATCH_SEND_MAX_MSG_COUNT = 200;
+    public static final int CFG_DEFAULT_BATCH_SEND_MAX_DATA_SIZE = 512 * 1024;
+    public static final long CFG_DEFAULT_BATCH_SEND_LINGER_MS = 5L;
+
+    public static final int CFG_DEFAULT_COMPRESS_MIN_SIZE = 512;
+
+    public static final int CFG_DEFAULT_PIPELINE_BROKER_WINDOW_SIZE = 1000;
+    public static final int CFG_DEFAULT_PIPELINE_PARTITION_WINDOW_SIZE = 100;
+    public static final long CFG_DEFAULT_PIPELINE_MAX_BLOCK_WAIT_MS = 3000L;
+    public static final int CFG_DEFAULT_PIPELINE_MAX_RETRIES = 3;
+    public static final long CFG_DEFAULT_PIPELINE_RETRY_BACKOFF_MS = 100L;
 }
@@ -41,6 +41,8 @@ public class ConsumerConfig extends TubeClientConfig {
             TClientConstants.MAX_SUBSCRIBE_REPORT_INTERVAL_TIMES;
     private long msgNotFoundWaitPeriodMs =
             TClientConstants.CFG_DEFAULT_MSG_NOTFOUND_WAIT_PERIOD_MS;
+    private long fetchMaxWaitMs =
+            TClientConstants.CFG_DEFAULT_FETCH_MAX_WAIT_MS;
     private long pullConsumeReadyWaitPeriodMs =
             TClientConstants.CFG_DEFAULT_CONSUME_READ_WAIT_PERIOD_MS;
     private long pullConsumeReadyChkSliceMs =
@@ -51,6 +53,8 @@ public class ConsumerConfig extends TubeClientConfig {
             TClientConstants.CFG_DEFAULT_META_QUERY_WAIT_PERIOD_MS;
     private int pushFetchThreadCnt =
             TClientConstants.CFG_DEFAULT_CLIENT_PUSH_FETCH_THREAD_CNT;
+    private int pushFetchBatchPartCnt =
+            TClientConstants.CFG_DEFAULT_PUSH_FETCH_BATCH_PART_CNT;
     private boolean pushListenerWaitTimeoutRollBack = true;
     private boolean pushListenerThrowedRollBack = false;
     private long pushListenerWaitPeriodMs =
@@ -122,6 +126,19 @@ public class ConsumerConfig extends TubeClientConfig {
         this.msgNotFoundWaitPeriodMs = msgNotFoundWaitPeriodMs;
     }
 
+    public long getFetchMaxWaitMs() {
+        return fetchMaxWaitMs;
+    }
+
+    // setFetchMaxWaitMs() use note:
+    // If set to a positive value, the broker holds the fetch request which finds no data
+    // until new data arrives or the wait time expires, instead of replying at once; the
+    // value is capped by half of the rpc timeout and the broker's longPollMaxWaitMs.
+    // 0 disables the long-poll fetch, and the consumer waits msgNotFoundWaitPeriodMs.
+    public void setFetchMaxWaitMs(long fetchMaxWaitMs) {
+        this.fetchMaxWaitMs = Math.max(0, fetchMaxWaitMs);
+    }
+
     public long getPullConsumeReadyWaitPeriodMs() {
         return pullConsumeReadyWaitPeriodMs;
     }
@@ -184,6 +201,19 @@ public class ConsumerConfig extends TubeClientConfig {
         }
     }
 
+    public int getPushFetchBatchPartCnt() {
+        return pushFetchBatchPartCnt;
+    }
+
+    // setPushFetchBatchPartCnt() use note:
+    // The max count of the partitions of the same broker fetched by one request in push
+    // consume, the default value 1 fetches one partition per request; a consumer owning
+    // many partitions can set a larger value to reduce the fetch requests.
+    public void setPushFetchBatchPartCnt(int pushFetchBatchPartCnt) {
+        this.pushFetchBatchPartCnt = Math.max(1, Math.min(pushFetchBatchPartCnt,
+                TBaseConstants.META_MAX_BATCH_FETCH_PARTITION_COUNT));
+    }
+
     public boolean isPushListenerWaitTimeoutRollBack() {
         return pushListenerWaitTimeoutRollBack;
     }
@@ -274,8 +304,10 @@ public class ConsumerConfig extends TubeClientConfig {
                 .append("\",\"maxSubInfoReportIntvlTimes\":").append(this.maxSubInfoReportIntvlTimes)
                 .append(",\"consumePosition\":").append(this.consumePosition)
                 .append(",\"msgNotFoundWaitPeriodMs\":").append(this.msgNotFoundWaitPeriodMs)
+                .append(",\"fetchMaxWaitMs\":").append(this.fetchMaxWaitMs)
                 .append(",\"shutDownRebalanceWaitPeriodMs\":").append(this.shutDownRebalanceWaitPeriodMs)
                 .append(",\"pushFetchThreadCnt\":").append(this.pushFetchThreadCnt)
+                .append(",\"pushFetchBatchPartCnt\":").append(this.pushFetchBatchPartCnt)
                 .append(",\"pushListenerWaitTimeoutRollBack\":").append(this.pushListenerWaitTimeoutRollBack)
                 .append(",\"pushListenerThrowedRollBack\":").append(this.pushListenerThrowedRollBack)
                 .append(",\"pushListenerWaitPeriodMs\":").append(this.pushListenerWaitPeriodMs)
@@ -20,9 +20,11 @@ package org.apache.inlong.tubemq.client.config;
 import org.apache.inlong.tubemq.client.common.StatsConfig;
 import org.apache.inlong.tubemq.client.common.StatsLevel;
 import org.apache.inlong.tubemq.client.common.TClientConstants;
+import org.apache.inlong.tubemq.corebase.TBaseConstants;
 import org.apache.inlong.tubemq.corebase.cluster.MasterInfo;
 import org.apache.inlong.tubemq.corebase.config.TLSConfig;
 import org.apache.inlong.tubemq.corebase.utils.AddressUtils;
+import org.apache.inlong.tubemq.corebase.utils.CompressType;
 import org.apache.inlong.tubemq.corebase.utils.TStringUtils;
 import org.apache.inlong.tubemq.corerpc.RpcConstants;
 
@@ -95,6 +97,36 @@ public class TubeClientConfig {
     private String usrPassWord = "";
     // TLS configuration.
     private TLSConfig tlsConfig = new TLSConfig();
+    // Enable accumulating the asynchronous sent messages into batches.
+    private boolean enableBatchSend = false;
+    // Max message count in a batch.
+    private int batchSendMaxMsgCount = TClientConstants.CFG_DEFAULT_BATCH_SEND_MAX_MSG_COUNT;
+    // Max total data size in a batch.
+    private int batchSendMaxDataSize = TClientConstants.CFG_DEFAULT_BATCH_SEND_MAX_DATA_SIZE;
+    // Max wait time of the messages in a batch.
+    private long batchSendLingerMs = TClientConstants.CFG_DEFAULT_BATCH_SEND_LINGER_MS;
+    // Compress type of the sent message payload.
+    private CompressType compressType = CompressType.NONE;
+    // Min payload size to compress, the smaller payload is sent as-is.
+    private int compressMinSize = TClientConstants.CFG_DEFAULT_COMPRESS_MIN_SIZE;
+    // Enable sending the asynchronous messages through the bounded in-flight windows.
+    private boolean enablePipelineSend = false;
+    // Max in-flight requests of a broker.
+    private int pipelineBrokerWindowSize =
+            TClientConstants.CFG_DEFAULT_PIPELINE_BROKER_WINDOW_SIZE;
+    // Max in-flight requests of a partition.
+    private int pipelinePartitionWindowSize =
+            TClientConstants.CFG_DEFAULT_PIPELINE_PARTITION_WINDOW_SIZE;
+    // Max wait time when the windows are full, 0 means fail-fast.
+    private long pipelineMaxBlockWaitMs =
+            TClientConstants.CFG_DEFAULT_PIPELINE_MAX_BLOCK_WAIT_MS;
+    // Max retry times of a failed request.
+    private int pipelineMaxRetries = TClientConstants.CFG_DEFAULT_PIPELINE_MAX_RETRIES;
+    // Wait time before retrying the failed requests of a partition.
+    private long pipelineRetryBackoffMs =
+            TClientConstants.CFG_DEFAULT_PIPELINE_RETRY_BACKOFF_MS;
+    // Send one request of a partition at a time to keep the message order.
+    private boolean pipelineOrderedSend = false;
 
     public TubeClientConfig(String masterAddrInfo) {
         this(new MasterInfo(masterAddrInfo));
@@ -368,6 +400,200 @@ public class TubeClientConfig {
         this.sessionMaxAllowedDelayedMsgCount = sessionMaxAllowedDelayedMsgCount;
     }
 
+    public boolean isEnableBatchSend() {
+        return enableBatchSend;
+    }
+
+    public void setEnableBatchSend(boolean enableBatchSend) {
+        this.enableBatchSend = enableBatchSend;
+    }
+
+    public int getBatchSendMaxMsgCount() {
+        return batchSendMaxMsgCount;
+    }
+
+    /**
+     * Set the max message count in a batch. Please notice that the value should be
+     * between 1 and TBaseConstants.META_MAX_BATCH_MESSAGE_COUNT.
+     *
+     * @param batchSendMaxMsgCount   the max message count
+     */
+    public void setBatchSendMaxMsgCount(int batchSendMaxMsgCount) {
+        if (batchSendMaxMsgCount <= 0) {
+            this.batchSendMaxMsgCount = TClientConstants.CFG_DEFAULT_BATCH_SEND_MAX_MSG_COUNT;
+        } else {
+            this.batchSendMaxMsgCount =
+                    Math.min(batchSendMaxMsgCount, TBaseConstants.META_MAX_BATCH_MESSAGE_COUNT);
+        }
+    }
+
+    public int getBatchSendMaxDataSize() {
+        return batchSendMaxDataSize;
+    }
+
+    public void setBatchSendMaxDataSize(int batchSendMaxDataSize) {
+        if (batchSendMaxDataSize <= 0) {
+            this.batchSendMaxDataSize = TClientConstants.CFG_DEFAULT_BATCH_SEND_MAX_DATA_SIZE;
+        } else {
+            this.batchSendMaxDataSize = batchSendMaxDataSize;
+        }
+    }
+
+    public long getBatchSendLingerMs() {
+        return batchSendLingerMs;
+    }
+
+    public void setBatchSendLingerMs(long batchSendLingerMs) {
+        if (batchSendLingerMs < 0) {
+            this.batchSendLingerMs = TClientConstants.CFG_DEFAULT_BATCH_SEND_LINGER_MS;
+        } else {
+            this.batchSendLingerMs = batchSendLingerMs;
+        }
+    }
+
+    public CompressType getCompressType() {
+        return compressType;
+    }
+
+    /**
+     * Set the compress type of the sent message payload. The consumer declares
+     * whether it supports the compressed payload in the fetch request, and the broker
+     * decompresses the payload for the consumers that don't support it. In the batch
+     * send, the continuous messages of the same type and time are compressed as one
+     * batch record, which the broker stores as is and the consumer splits again.
+     *
+     * @param compressType   the compress type, null means not compressed
+     */
+    public void setCompressType(CompressType compressType) {
+        if (compressType == null) {
+            this.compressType = CompressType.NONE;
+        } else {
+            this.compressType = compressType;
+        }
+    }
+
+    public int getCompressMinSize() {
+        return compressMinSize;
+    }
+
+    public void setCompressMinSize(int compressMinSize) {
+        if (compressMinSize < 0) {
+            this.compressMinSize = TClientConstants.CFG_DEFAULT_COMPRESS_MIN_SIZE;
+        } else {
+            this.compressMinSize = compressMinSize;
+        }
+    }
+
+    public boolean isEnablePipelineSend() {
+        return enablePipelineSend;
+    }
+
+    /**
+     * Enable or disable the pipelined send. If enabled, the asynchronous sent messages
+     * are bounded by the in-flight windows of each broker and partition, and the failed
+     * requests are retried in the sent order of their partition. The requests timed out
+     * are reported to the callback without retry, as the broker may have stored them.
+     * Please notice that the batch send takes precedence if both are enabled.
+     *
+     * @param enablePipelineSend   enable or disable the pipelined send
+     */
+    public void setEnablePipelineSend(boolean enablePipelineSend) {
+        this.enablePipelineSend = enablePipelineSend;
+    }
+
+    public int getPipelineBrokerWindowSize() {
+        return pipelineBrokerWindowSize;
+    }
+
+    public void setPipelineBrokerWindowSize(int pipelineBrokerWindowSize) {
+        if (pipelineBrokerWindowSize <= 0) {
+            this.pipelineBrokerWindowSize =
+                    TClientConstants.CFG_DEFAULT_PIPELINE_BROKER_WINDOW_SIZE;
+        } else {
+            this.pipelineBrokerWindowSize = pipelineBrokerWindowSize;
+        }
+    }
+
+    public int getPipelinePartitionWindowSize() {
+        return pipelinePartitionWindowSize;
+    }
+
+    /**
+     * Set the max in-flight requests of a partition, including the requests waiting
+     * to be sent. Please notice that the messages of a partition keep their sent order
+     * under retries only if the ordered send is enabled.
+     *
+     * @param pipelinePartitionWindowSize   the max in-flight requests of a partition
+     */
+    public void setPipelinePartitionWindowSize(int pipelinePartitionWindowSize) {
+        if (pipelinePartitionWindowSize <= 0) {
+            this.pipelinePartitionWindowSize =
+                    TClientConstants.CFG_DEFAULT_PIPELINE_PARTITION_WINDOW_SIZE;
+        } else {
+            this.pipelinePartitionWindowSize = pipelinePartitionWindowSize;
+        }
+    }
+
+    public long getPipelineMaxBlockWaitMs() {
+        return pipelineMaxBlockWaitMs;
+    }
+
+    /**
+     * Set the max wait time of the sender when the in-flight windows are full,
+     * 0 means fail-fast, the send is rejected at once.
+     *
+     * @param pipelineMaxBlockWaitMs   the max wait time in milliseconds
+     */
+    public void setPipelineMaxBlockWaitMs(long pipelineMaxBlockWaitMs) {
+        if (pipelineMaxBlockWaitMs < 0) {
+            this.pipelineMaxBlockWaitMs =
+                    TClientConstants.CFG_DEFAULT_PIPELINE_MAX_BLOCK_WAIT_MS;
+        } else {
+            this.pipelineMaxBlockWaitMs = pipelineMaxBlockWaitMs;
+        }
+    }
+
+    public int getPipelineMaxRetries() {
+        return pipelineMaxRetries;
+    }
+
+    public void setPipelineMaxRetries(int pipelineMaxRetries) {
+        if (pipelineMaxRetries < 0) {
+            this.pipelineMaxRetries = TClientConstants.CFG_DEFAULT_PIPELINE_MAX_RETRIES;
+        } else {
+            this.pipelineMaxRetries = pipelineMaxRetries;
+        }
+    }
+
+    public long getPipelineRetryBackoffMs() {
+        return pipelineRetryBackoffMs;
+    }
+
+    public void setPipelineRetryBackoffMs(long pipelineRetryBackoffMs) {
+        if (pipelineRetryBackoffMs < 0) {
+            this.pipelineRetryBackoffMs =
+                    TClientConstants.CFG_DEFAULT_PIPELINE_RETRY_BACKOFF_MS;
+        } else {
+            this.pipelineRetryBackoffMs = pipelineRetryBackoffMs;
+        }
+    }
+
+    public boolean isPipelineOrderedSend() {
+        return pipelineOrderedSend;
+    }
+
+    /**
+     * Enable or disable the ordered pipelined send. If enabled, only one request of
+     * a partition is in flight at a time, the later requests of the partition wait
+     * until the earlier one is finally completed, so the messages of a partition are
+     * stored in their sent order even under retries.
+     *
+     * @param pipelineOrderedSend   enable or disable the ordered send
+     */
+    public void setPipelineOrderedSend(boolean pipelineOrderedSend) {
+        this.pipelineOrderedSend = pipelineOrderedSend;
+    }
+
     /**
      * Set authenticate information
      *
@@ -571,6 +797,45 @@ public class TubeClientConfig {
         if (!this.statsConfig.equals(that.statsConfig)) {
             return false;
         }
+        if (enableBatchSend != that.enableBatchSend) {
+            return false;
+        }
+        if (batchSendMaxMsgCount != that.batchSendMaxMsgCount) {
+            return false;
+        }
+        if (batchSendMaxDataSize != that.batchSendMaxDataSize) {
+            return false;
+        }
+        if (batchSendLingerMs != that.batchSendLingerMs) {
+            return false;
+        }
+        if (compressType != that.compressType) {
+            return false;
+        }
+        if (compressMinSize != that.compressMinSize) {
+            return false;
+        }
+        if (enablePipelineSend != that.enablePipelineSend) {
+            return false;
+        }
+        if (pipelineBrokerWindowSize != that.pipelineBrokerWindowSize) {
+            return false;
+        }
+        if (pipelinePartitionWindowSize != that.pipelinePartitionWindowSize) {
+            return false;
+        }
+        if (pipelineMaxBlockWaitMs != that.pipelineMaxBlockWaitMs) {
+            return false;
+        }
+        if (pipelineMaxRetries != that.pipelineMaxRetries) {
+            return false;
+        }
+        if (pipelineRetryBackoffMs != that.pipelineRetryBackoffMs) {
+            return false;
+        }
+        if (pipelineOrderedSend != that.pipelineOrderedSend) {
+            return false;
+        }
         return masterInfo.equals(that.masterInfo);
     }
 
@@ -619,6 +884,19 @@ public class TubeClientConfig {
                 .append(",\"sessionMaxAllowedDelayedMsgCount\":").append(this.sessionMaxAllowedDelayedMsgCount)
                 .append(",\"unAvailableFbdDurationMs\":").append(this.unAvailableFbdDurationMs)
                 .append(",\"enableUserAuthentic\":").append(this.enableUserAuthentic)
+                .append(",\"enableBatchSend\":").append(this.enableBatchSend)
+                .append(",\"batchSendMaxMsgCount\":").append(this.batchSendMaxMsgCount)
+                .append(",\"batchSendMaxDataSize\":").append(this.batchSendMaxDataSize)
+                .append(",\"batchSendLingerMs\":").append(this.batchSendLingerMs)
+                .append(",\"compressType\":\"").append(this.compressType.getDesc())
+                .append("\",\"compressMinSize\":").append(this.compressMinSize)
+                .append(",\"enablePipelineSend\":").append(this.enablePipelineSend)
+                .append(",\"pipelineBrokerWindowSize\":").append(this.pipelineBrokerWindowSize)
+                .append(",\"pipelinePartitionWindowSize\":").append(this.pipelinePartitionWindowSize)
+                .append(",\"pipelineMaxBlockWaitMs\":").append(this.pipelineMaxBlockWaitMs)
+                .append(",\"pipelineMaxRetries\":").append(this.pipelineMaxRetries)
+                .append(",\"pipelineRetryBackoffMs\":").append(this.pipelineRetryBackoffMs)
+                .append(",\"pipelineOrderedSend\":").append(this.pipelineOrderedSend)
                 .append(",").append(this.statsConfig.toString())
                 .append(",\"usrName\":\"").append(this.usrName)
                 .append("\",\"usrPassWord\":\"").append(this.usrPassWord)
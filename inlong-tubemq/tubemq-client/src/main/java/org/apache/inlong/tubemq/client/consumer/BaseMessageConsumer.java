@@ -760,6 +760,18 @@ public class BaseMessageConsumer implements MessageConsumer {
         rmtDataCache.errReqRelease(partitionKey, usedTime, isLastPackConsumed);
     }
 
+    /**
+     * Select more idle partitions of the broker for a batch fetch.
+     *
+     * @param brokerInfo   the broker of the partitions
+     * @param maxCnt       the max count of the partitions to select
+     * @return the selected partitions
+     */
+    protected List<PartitionSelectResult> pushSelectBrokerPartitions(BrokerInfo brokerInfo,
+                                                                     int maxCnt) {
+        return rmtDataCache.pushSelectBrokerParts(brokerInfo, maxCnt);
+    }
+
     /**
      * Construct a get message request.
      *
@@ -778,6 +790,43 @@ public class BaseMessageConsumer implements MessageConsumer {
         builder.setPartitionId(partition.getPartitionId());
         builder.setLastPackConsumed(isLastConsumed);
         builder.setManualCommitOffset(false);
+        builder.setSupportRawData(true);
+        builder.setSupportCompress(true);
+        if (this.consumerConfig.getFetchMaxWaitMs() > 0) {
+            builder.setMaxWaitTimeMs((int) Math.min(this.consumerConfig.getFetchMaxWaitMs(),
+                    this.consumerConfig.getRpcTimeoutMs() / 2));
+        }
+        return builder.build();
+    }
+
+    /**
+     * Construct a get message request of multiple partitions.
+     *
+     * @param taskContexts   the fetch task contexts of the partitions
+     * @return message request
+     */
+    protected ClientBroker.GetMessageBatchRequestC2B createBrokerGetMessageBatchRequest(
+            List<FetchContext> taskContexts) {
+        ClientBroker.GetMessageBatchRequestC2B.Builder builder =
+                ClientBroker.GetMessageBatchRequestC2B.newBuilder();
+        builder.setClientId(this.consumerId);
+        builder.setGroupName(this.consumerConfig.getConsumerGroup());
+        builder.setEscFlowCtrl(rmtDataCache.isCurGroupInFlowCtrl());
+        builder.setManualCommitOffset(false);
+        builder.setSupportCompress(true);
+        // split the batch size so that every partition in the batch gets served
+        final int itemMaxSize = Math.max(1,
+                TBaseConstants.META_MAX_BATCH_FETCH_TRANSFER_SIZE / taskContexts.size());
+        ClientBroker.GetMessageBatchItem.Builder itemBuilder =
+                ClientBroker.GetMessageBatchItem.newBuilder();
+        for (FetchContext taskContext : taskContexts) {
+            itemBuilder.clear();
+            itemBuilder.setTopicName(taskContext.getPartition().getTopic());
+            itemBuilder.setPartitionId(taskContext.getPartition().getPartitionId());
+            itemBuilder.setLastPackConsumed(taskContext.isLastConsumed());
+            itemBuilder.setMaxTransferSize(itemMaxSize);
+            builder.addItems(itemBuilder.build());
+        }
         return builder.build();
     }
 
@@ -1193,7 +1242,6 @@ public class BaseMessageConsumer implements MessageConsumer {
         return readStatus;
     }
 
-    // #lizard forgives
     protected FetchContext fetchMessage(PartitionSelectResult partSelectResult,
                                         final StringBuilder strBuffer) {
         // Fetch task context based on selected partition
@@ -1221,7 +1269,111 @@ public class BaseMessageConsumer implements MessageConsumer {
             strBuffer.delete(0, strBuffer.length());
             return taskContext;
         }
+        return processGetMessageRsp(taskContext, msgRspB2C,
+                System.currentTimeMillis() - startTime, strBuffer);
+    }
+
+    /**
+     * Fetch the messages of multiple partitions in the same broker with one request.
+     *
+     * @param partSelectResults   the selected partitions of the same broker
+     * @param strBuffer           the string buffer
+     * @return the fetch results, in the order of the selected partitions
+     */
+    protected List<FetchContext> fetchMessageBatch(List<PartitionSelectResult> partSelectResults,
+                                                   final StringBuilder strBuffer) {
+        List<FetchContext> taskContexts = new ArrayList<>(partSelectResults.size());
+        for (PartitionSelectResult partSelectResult : partSelectResults) {
+            taskContexts.add(new FetchContext(partSelectResult));
+        }
+        long startTime = System.currentTimeMillis();
+        // Response from broker
+        ClientBroker.GetMessageBatchResponseB2C batchRspB2C = null;
+        try {
+            batchRspB2C =
+                    getBrokerService(taskContexts.get(0).getPartition().getBroker())
+                            .getMessagesBatchC2B(createBrokerGetMessageBatchRequest(taskContexts),
+                                    AddressUtils.getLocalAddress(), consumerConfig.isTlsEnable());
+        } catch (Throwable ee) {
+            clientStatsInfo.bookFailRpcCall(TErrCodeConstants.UNSPECIFIED_ABNORMAL);
+            strBuffer.append("Get message error, reason is ").append(ee.toString());
+            for (FetchContext taskContext : taskContexts) {
+                rmtDataCache.errReqRelease(taskContext.getPartitionKey(),
+                        taskContext.getUsedToken(), false);
+                taskContext.setFailProcessResult(400, strBuffer.toString());
+            }
+            strBuffer.delete(0, strBuffer.length());
+            return taskContexts;
+        }
         long dltTime = System.currentTimeMillis() - startTime;
+        if (batchRspB2C == null || !batchRspB2C.getSuccess()) {
+            int errCode = (batchRspB2C == null)
+                    ? TErrCodeConstants.INTERNAL_SERVER_ERROR : batchRspB2C.getErrCode();
+            String errMsg = (batchRspB2C == null)
+                    ? "Get message null" : batchRspB2C.getErrMsg();
+            clientStatsInfo.bookFailRpcCall(errCode);
+            for (FetchContext taskContext : taskContexts) {
+                rmtDataCache.errReqRelease(taskContext.getPartitionKey(),
+                        taskContext.getUsedToken(), false);
+                taskContext.setFailProcessResult(errCode, errMsg);
+            }
+            return taskContexts;
+        }
+        // Scatter the responses to the partitions, the partitions
+        // not served by the broker are requested again later
+        for (int i = 0; i < taskContexts.size(); i++) {
+            FetchContext taskContext = taskContexts.get(i);
+            if (isServedInBatch(batchRspB2C, i, taskContext.getPartition())) {
+                processGetMessageRsp(taskContext,
+                        batchRspB2C.getResponses(i), dltTime, strBuffer);
+            } else {
+                rmtDataCache.errReqRelease(taskContext.getPartitionKey(),
+                        taskContext.getUsedToken(), taskContext.isLastConsumed());
+                taskContext.setFailProcessResult(TErrCodeConstants.NOT_FOUND,
+                        "Not served in the batch, retry later");
+            }
+        }
+        return taskContexts;
+    }
+
+    /**
+     * Check whether the response at the index belongs to the partition.
+     *
+     * @param batchRspB2C   the batch response from broker
+     * @param index         the index of the partition in the request
+     * @param partition     the partition
+     * @return whether the partition is served in the batch
+     */
+    private boolean isServedInBatch(ClientBroker.GetMessageBatchResponseB2C batchRspB2C,
+                                    int index, Partition partition) {
+        if (index >= batchRspB2C.getResponsesCount()) {
+            return false;
+        }
+        // the broker may not return the partition of each response
+        if (index >= batchRspB2C.getPartitionIdsCount()
+                || index >= batchRspB2C.getTopicNamesCount()) {
+            return true;
+        }
+        return batchRspB2C.getPartitionIds(index) == partition.getPartitionId()
+                && partition.getTopic().equals(batchRspB2C.getTopicNames(index));
+    }
+
+    /**
+     * Process the get message response of a partition.
+     *
+     * @param taskContext   the fetch task context
+     * @param msgRspB2C     the response from broker
+     * @param dltTime       the time cost of the request
+     * @param strBuffer     the string buffer
+     * @return the fetch result
+     */
+    // #lizard forgives
+    private FetchContext processGetMessageRsp(FetchContext taskContext,
+                                              ClientBroker.GetMessageResponseB2C msgRspB2C,
+                                              long dltTime, final StringBuilder strBuffer) {
+        Partition partition = taskContext.getPartition();
+        String topic = partition.getTopic();
+        String partitionKey = partition.getPartitionKey();
         if (msgRspB2C == null) {
             clientStatsInfo.bookFailRpcCall(TErrCodeConstants.INTERNAL_SERVER_ERROR);
             rmtDataCache.errReqRelease(partitionKey, taskContext.getUsedToken(), false);
@@ -1234,9 +1386,12 @@ public class BaseMessageConsumer implements MessageConsumer {
                 case TErrCodeConstants.SUCCESS: {
                     int msgSize = 0;
                     int msgCount = 0;
-                    // Convert the message payload data
+                    // Convert the message payload data, the batch records are
+                    // split into their messages
                     List<Message> tmpMessageList =
                             DataConverterUtil.convertMessage(topic, msgRspB2C.getMessagesList());
+                    DataConverterUtil.convertRawMessage(topic,
+                            msgRspB2C.getRawMessagesList(), tmpMessageList);
                     boolean isEscLimit =
                             (msgRspB2C.hasEscFlowCtrl() && msgRspB2C.getEscFlowCtrl());
                     // Filter the message based on its content
@@ -1326,7 +1481,9 @@ public class BaseMessageConsumer implements MessageConsumer {
                             break;
                         }
                         case TErrCodeConstants.NOT_FOUND: {
-                            limitDlt = consumerConfig.getMsgNotFoundWaitPeriodMs();
+                            // the broker has waited for new data if long polled
+                            limitDlt = (msgRspB2C.hasLongPolled() && msgRspB2C.getLongPolled())
+                                    ? 0 : consumerConfig.getMsgNotFoundWaitPeriodMs();
                             break;
                         }
                         default: {
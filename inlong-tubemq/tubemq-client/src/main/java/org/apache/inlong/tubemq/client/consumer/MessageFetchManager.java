@@ -17,7 +17,9 @@
 
 package org.apache.inlong.tubemq.client.consumer;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
 import org.apache.inlong.tubemq.client.config.ConsumerConfig;
@@ -170,6 +172,7 @@ public class MessageFetchManager {
             fetchWorkerStatusMap.put(curThreadId, 0);
             while (!isShutdown()) {
                 PartitionSelectResult partSelectResult = null;
+                List<PartitionSelectResult> batchSelectResults = null;
                 fetchWorkerStatusMap.put(curThreadId, 0);
                 try {
                     if (isShutdown()) {
@@ -206,6 +209,18 @@ public class MessageFetchManager {
                         partSelectResult = null;
                         continue;
                     }
+                    // take the idle partitions of the same broker for a batch fetch
+                    if (consumerConfig.getPushFetchBatchPartCnt() > 1) {
+                        List<PartitionSelectResult> otherSelectResults =
+                                MessageFetchManager.this.pushConsumer.getBaseConsumer()
+                                        .pushSelectBrokerPartitions(partition.getBroker(),
+                                                consumerConfig.getPushFetchBatchPartCnt() - 1);
+                        if (!otherSelectResults.isEmpty()) {
+                            batchSelectResults = new ArrayList<>(otherSelectResults.size() + 1);
+                            batchSelectResults.add(partSelectResult);
+                            batchSelectResults.addAll(otherSelectResults);
+                        }
+                    }
                 } catch (Throwable e) {
                     if (partSelectResult != null) {
                         MessageFetchManager.this.pushConsumer
@@ -219,7 +234,10 @@ public class MessageFetchManager {
                     sBuilder.delete(0, sBuilder.length());
                 }
                 fetchWorkerStatusMap.put(curThreadId, 2);
-                if (partSelectResult != null) {
+                if (batchSelectResults != null) {
+                    MessageFetchManager.this.pushConsumer.processBatchRequest(
+                            batchSelectResults, sBuilder);
+                } else if (partSelectResult != null) {
                     MessageFetchManager.this.pushConsumer.processRequest(
                             partSelectResult, sBuilder);
                 }
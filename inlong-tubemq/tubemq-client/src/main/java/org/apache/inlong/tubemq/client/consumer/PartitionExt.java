@@ -54,6 +54,8 @@ public class PartitionExt extends Partition {
     private long curDataDlt;
     private boolean isRequireSlow = false;
     private boolean isLastPackConsumed = false;
+    // the slot id in the partition state table
+    private volatile int slotId = -1;
 
     public PartitionExt(final FlowCtrlRuleHandler groupFlowCtrlRuleHandler,
                         final FlowCtrlRuleHandler defFlowCtrlRuleHandler,
@@ -63,6 +65,14 @@ public class PartitionExt extends Partition {
         this.defFlowCtrlRuleHandler = defFlowCtrlRuleHandler;
     }
 
+    public int getSlotId() {
+        return slotId;
+    }
+
+    public void setSlotId(int slotId) {
+        this.slotId = slotId;
+    }
+
     public long procConsumeResult(boolean isFilterConsume) {
         long dltTime = System.currentTimeMillis() - this.lastRptTIme;
         return procConsumeResult(isFilterConsume, this.reqProcType,
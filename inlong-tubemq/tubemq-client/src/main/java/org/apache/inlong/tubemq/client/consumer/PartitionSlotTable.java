@@ -0,0 +1,477 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.client.consumer;
+
+import io.netty.util.Timeout;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import org.apache.inlong.tubemq.corebase.TBaseConstants;
+
+/**
+ * Compact consume state table of the partitions.
+ *
+ * Each partition is assigned a dense slot id, the in-use token, the time-wait task,
+ * the ready flag and the offsets of the partition are kept in the slot of primitive
+ * arrays, so the select and confirm operations do not hash the partition key or box
+ * the values again. The slots are allocated in fixed size chunks that never move,
+ * then the state can be updated lock free while the table grows.
+ *
+ * The ready partitions are queued in a lock free queue, the ready flag of the slot
+ * decides whether a queued partition is valid, so a partition can be taken out of
+ * the ready state without searching the queue, the invalid entries are skipped
+ * when polled and purged when too many.
+ */
+public class PartitionSlotTable {
+    private static final int CHUNK_BITS = 6;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    private static final int MIN_PURGE_STALE_CNT = 64;
+    private final Object allocLock = new Object();
+    private volatile SlotChunk[] slotChunks = new SlotChunk[0];
+    private volatile int nextSlotId = 0;
+    private int[] freeSlotIds = new int[CHUNK_SIZE];
+    private int freeSlotCnt = 0;
+    // ready partition queue
+    private final ConcurrentLinkedQueue<PartitionExt> readyQueue =
+            new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queuedCnt = new AtomicInteger(0);
+    private final AtomicInteger readyCnt = new AtomicInteger(0);
+    private final AtomicInteger usedCnt = new AtomicInteger(0);
+    private final AtomicInteger timeWaitCnt = new AtomicInteger(0);
+
+    public PartitionSlotTable() {
+
+    }
+
+    /**
+     * Allocate a slot for the partition, and set the slot id into the partition
+     *
+     * @param partitionExt    the partition
+     * @return the slot id
+     */
+    public int allocSlot(PartitionExt partitionExt) {
+        int slotId;
+        synchronized (allocLock) {
+            if (freeSlotCnt > 0) {
+                slotId = freeSlotIds[--freeSlotCnt];
+            } else {
+                slotId = nextSlotId++;
+                int chunkIndex = slotId >>> CHUNK_BITS;
+                if (chunkIndex >= slotChunks.length) {
+                    SlotChunk[] newChunks = new SlotChunk[chunkIndex + 1];
+                    System.arraycopy(slotChunks, 0, newChunks, 0, slotChunks.length);
+                    newChunks[chunkIndex] = new SlotChunk();
+                    slotChunks = newChunks;
+                }
+            }
+        }
+        SlotChunk chunk = getChunk(slotId);
+        int index = slotId & CHUNK_MASK;
+        resetSlot(chunk, index);
+        chunk.offsets.set(index * 3, TBaseConstants.META_VALUE_UNDEFINED);
+        chunk.offsets.set(index * 3 + 1, TBaseConstants.META_VALUE_UNDEFINED);
+        chunk.offsets.set(index * 3 + 2, System.currentTimeMillis());
+        partitionExt.setSlotId(slotId);
+        chunk.owners.set(index, partitionExt);
+        return slotId;
+    }
+
+    /**
+     * Release the slot of the removed partition, the state of the slot is cleared
+     * and the slot id of the partition is reset to -1
+     *
+     * @param slotId    the slot id
+     */
+    public void freeSlot(int slotId) {
+        if (slotId < 0) {
+            return;
+        }
+        SlotChunk chunk = getChunk(slotId);
+        int index = slotId & CHUNK_MASK;
+        PartitionExt owner = chunk.owners.getAndSet(index, null);
+        if (owner == null) {
+            return;
+        }
+        owner.setSlotId(-1);
+        resetSlot(chunk, index);
+        synchronized (allocLock) {
+            if (freeSlotCnt >= freeSlotIds.length) {
+                int[] newSlotIds = new int[freeSlotIds.length * 2];
+                System.arraycopy(freeSlotIds, 0, newSlotIds, 0, freeSlotCnt);
+                freeSlotIds = newSlotIds;
+            }
+            freeSlotIds[freeSlotCnt++] = slotId;
+        }
+    }
+
+    /**
+     * Check whether the partition is the current owner of its slot
+     *
+     * @param partitionExt    the partition
+     * @return whether the slot is owned by the partition
+     */
+    public boolean isSlotOwner(PartitionExt partitionExt) {
+        return isSlotOwner(partitionExt.getSlotId(), partitionExt);
+    }
+
+    private boolean isSlotOwner(int slotId, PartitionExt partitionExt) {
+        return slotId >= 0
+                && getChunk(slotId).owners.get(slotId & CHUNK_MASK) == partitionExt;
+    }
+
+    /**
+     * Put the partition into the ready queue if not ready
+     *
+     * @param partitionExt    the partition
+     * @return whether the partition is queued
+     */
+    public boolean offerReady(PartitionExt partitionExt) {
+        int slotId = partitionExt.getSlotId();
+        if (!isSlotOwner(slotId, partitionExt)
+                || !getChunk(slotId).readyFlags.compareAndSet(slotId & CHUNK_MASK, 0, 1)) {
+            return false;
+        }
+        readyCnt.incrementAndGet();
+        queuedCnt.incrementAndGet();
+        readyQueue.offer(partitionExt);
+        return true;
+    }
+
+    /**
+     * Take a ready partition from the ready queue
+     *
+     * @return the ready partition, null if no one
+     */
+    public PartitionExt pollReady() {
+        int slotId;
+        PartitionExt partitionExt;
+        while ((partitionExt = readyQueue.poll()) != null) {
+            queuedCnt.decrementAndGet();
+            slotId = partitionExt.getSlotId();
+            if (isSlotOwner(slotId, partitionExt)
+                    && getChunk(slotId).readyFlags.compareAndSet(slotId & CHUNK_MASK, 1, 0)) {
+                readyCnt.decrementAndGet();
+                return partitionExt;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Take the partition out of the ready state, its entry in the queue
+     * becomes invalid and is skipped later.
+     *
+     * @param slotId    the slot id
+     * @return whether the partition was ready
+     */
+    public boolean removeReady(int slotId) {
+        if (slotId < 0
+                || !getChunk(slotId).readyFlags.compareAndSet(slotId & CHUNK_MASK, 1, 0)) {
+            return false;
+        }
+        readyCnt.decrementAndGet();
+        purgeStaleEntries();
+        return true;
+    }
+
+    public boolean isReady(int slotId) {
+        return slotId >= 0 && getChunk(slotId).readyFlags.get(slotId & CHUNK_MASK) == 1;
+    }
+
+    public boolean hasReady() {
+        return readyCnt.get() > 0;
+    }
+
+    /**
+     * Mark the partition in use if idle
+     *
+     * @param partitionExt    the partition
+     * @param usedToken       the used token, a non-zero value
+     * @return whether marked
+     */
+    public boolean tryUse(PartitionExt partitionExt, long usedToken) {
+        int slotId = partitionExt.getSlotId();
+        if (!isSlotOwner(slotId, partitionExt)) {
+            return false;
+        }
+        SlotChunk chunk = getChunk(slotId);
+        int index = slotId & CHUNK_MASK;
+        if (!chunk.usedTokens.compareAndSet(index, 0L, usedToken)) {
+            return false;
+        }
+        // the slot may be freed and reused by another partition in the meantime
+        if (chunk.owners.get(index) != partitionExt) {
+            chunk.usedTokens.compareAndSet(index, usedToken, 0L);
+            return false;
+        }
+        usedCnt.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * Get the used token of the partition
+     *
+     * @param slotId    the slot id
+     * @return the used token, 0 if not in use
+     */
+    public long getUsedToken(int slotId) {
+        return slotId < 0 ? 0L : getChunk(slotId).usedTokens.get(slotId & CHUNK_MASK);
+    }
+
+    /**
+     * Release the partition in use with the used token
+     *
+     * @param slotId      the slot id
+     * @param usedToken   the used token
+     * @return whether released
+     */
+    public boolean releaseUse(int slotId, long usedToken) {
+        if (slotId < 0 || usedToken == 0L
+                || !getChunk(slotId).usedTokens.compareAndSet(slotId & CHUNK_MASK, usedToken, 0L)) {
+            return false;
+        }
+        usedCnt.decrementAndGet();
+        return true;
+    }
+
+    public boolean hasUsed() {
+        return usedCnt.get() > 0;
+    }
+
+    /**
+     * Set the time-wait task of the partition
+     *
+     * @param partitionExt    the partition
+     * @param timeout         the time-wait task
+     * @return whether set, false if the partition does not own its slot
+     */
+    public boolean setTimeout(PartitionExt partitionExt, Timeout timeout) {
+        int slotId = partitionExt.getSlotId();
+        if (!isSlotOwner(slotId, partitionExt)) {
+            return false;
+        }
+        SlotChunk chunk = getChunk(slotId);
+        int index = slotId & CHUNK_MASK;
+        if (chunk.timeouts.getAndSet(index, timeout) == null) {
+            timeWaitCnt.incrementAndGet();
+        }
+        // the slot may be freed and reused by another partition in the meantime
+        if (chunk.owners.get(index) != partitionExt) {
+            if (chunk.timeouts.compareAndSet(index, timeout, null)) {
+                timeWaitCnt.decrementAndGet();
+            }
+            return false;
+        }
+        return true;
+    }
+
+    public Timeout getTimeout(int slotId) {
+        return slotId < 0 ? null : getChunk(slotId).timeouts.get(slotId & CHUNK_MASK);
+    }
+
+    /**
+     * Remove the time-wait task of the partition
+     *
+     * @param slotId    the slot id
+     * @return the removed task, null if not exists
+     */
+    public Timeout removeTimeout(int slotId) {
+        if (slotId < 0) {
+            return null;
+        }
+        Timeout timeout = getChunk(slotId).timeouts.getAndSet(slotId & CHUNK_MASK, null);
+        if (timeout != null) {
+            timeWaitCnt.decrementAndGet();
+        }
+        return timeout;
+    }
+
+    /**
+     * Remove the time-wait task of the partition if it is the specified task
+     *
+     * @param slotId    the slot id
+     * @param timeout   the specified task
+     * @return whether removed
+     */
+    public boolean removeTimeout(int slotId, Timeout timeout) {
+        if (slotId < 0 || timeout == null
+                || !getChunk(slotId).timeouts.compareAndSet(slotId & CHUNK_MASK, timeout, null)) {
+            return false;
+        }
+        timeWaitCnt.decrementAndGet();
+        return true;
+    }
+
+    public boolean isTimeWait(int slotId) {
+        return getTimeout(slotId) != null;
+    }
+
+    public boolean hasTimeWait() {
+        return timeWaitCnt.get() > 0;
+    }
+
+    /**
+     * Release the slots in use longer than the allowed period
+     *
+     * @param allowedPeriodTimes    the allowed hold duration
+     * @return the partitions released
+     */
+    public List<PartitionExt> releaseTimeoutUse(long allowedPeriodTimes) {
+        List<PartitionExt> releasedParts = new ArrayList<>();
+        if (!hasUsed()) {
+            return releasedParts;
+        }
+        long usedToken;
+        PartitionExt owner;
+        int maxSlotId = Math.min(nextSlotId, slotChunks.length << CHUNK_BITS);
+        for (int slotId = 0; slotId < maxSlotId; slotId++) {
+            SlotChunk chunk = getChunk(slotId);
+            int index = slotId & CHUNK_MASK;
+            usedToken = chunk.usedTokens.get(index);
+            if (usedToken == 0L
+                    || System.currentTimeMillis() - usedToken <= allowedPeriodTimes) {
+                continue;
+            }
+            owner = chunk.owners.get(index);
+            if (owner != null && releaseUse(slotId, usedToken)) {
+                releasedParts.add(owner);
+            }
+        }
+        return releasedParts;
+    }
+
+    /**
+     * Remove the expired time-wait tasks
+     *
+     * @return the partitions whose task is removed
+     */
+    public List<PartitionExt> removeExpiredTimeouts() {
+        List<PartitionExt> expiredParts = new ArrayList<>();
+        if (!hasTimeWait()) {
+            return expiredParts;
+        }
+        Timeout timeout;
+        PartitionExt owner;
+        int maxSlotId = Math.min(nextSlotId, slotChunks.length << CHUNK_BITS);
+        for (int slotId = 0; slotId < maxSlotId; slotId++) {
+            SlotChunk chunk = getChunk(slotId);
+            int index = slotId & CHUNK_MASK;
+            timeout = chunk.timeouts.get(index);
+            if (timeout == null || !timeout.isExpired()) {
+                continue;
+            }
+            owner = chunk.owners.get(index);
+            if (owner != null && removeTimeout(slotId, timeout)) {
+                expiredParts.add(owner);
+            }
+        }
+        return expiredParts;
+    }
+
+    /**
+     * Update the offsets of the partition, the negative value is ignored
+     *
+     * @param partitionExt   the partition
+     * @param currOffset     the current offset
+     * @param maxOffset      the max offset
+     */
+    public void updOffsetInfo(PartitionExt partitionExt, long currOffset, long maxOffset) {
+        int slotId = partitionExt.getSlotId();
+        if ((currOffset < 0 && maxOffset < 0) || !isSlotOwner(slotId, partitionExt)) {
+            return;
+        }
+        SlotChunk chunk = getChunk(slotId);
+        int index = (slotId & CHUNK_MASK) * 3;
+        if (currOffset >= 0) {
+            chunk.offsets.set(index, currOffset);
+        }
+        if (maxOffset >= 0) {
+            chunk.offsets.set(index + 1, maxOffset);
+        }
+        chunk.offsets.set(index + 2, System.currentTimeMillis());
+    }
+
+    public long getCurrOffset(int slotId) {
+        return slotId < 0 ? TBaseConstants.META_VALUE_UNDEFINED
+                : getChunk(slotId).offsets.get((slotId & CHUNK_MASK) * 3);
+    }
+
+    public long getMaxOffset(int slotId) {
+        return slotId < 0 ? TBaseConstants.META_VALUE_UNDEFINED
+                : getChunk(slotId).offsets.get((slotId & CHUNK_MASK) * 3 + 1);
+    }
+
+    public long getOffsetUpdateTime(int slotId) {
+        return slotId < 0 ? TBaseConstants.META_VALUE_UNDEFINED
+                : getChunk(slotId).offsets.get((slotId & CHUNK_MASK) * 3 + 2);
+    }
+
+    private SlotChunk getChunk(int slotId) {
+        return slotChunks[slotId >>> CHUNK_BITS];
+    }
+
+    private void resetSlot(SlotChunk chunk, int index) {
+        if (chunk.readyFlags.getAndSet(index, 0) == 1) {
+            readyCnt.decrementAndGet();
+        }
+        if (chunk.usedTokens.getAndSet(index, 0L) != 0L) {
+            usedCnt.decrementAndGet();
+        }
+        if (chunk.timeouts.getAndSet(index, null) != null) {
+            timeWaitCnt.decrementAndGet();
+        }
+    }
+
+    private void purgeStaleEntries() {
+        int staleCnt = queuedCnt.get() - readyCnt.get();
+        if (staleCnt < Math.max(MIN_PURGE_STALE_CNT, nextSlotId * 2)) {
+            return;
+        }
+        int removedCnt = 0;
+        Iterator<PartitionExt> iterator = readyQueue.iterator();
+        while (iterator.hasNext()) {
+            PartitionExt partitionExt = iterator.next();
+            if (!isSlotOwner(partitionExt)
+                    || !isReady(partitionExt.getSlotId())) {
+                iterator.remove();
+                removedCnt++;
+            }
+        }
+        queuedCnt.addAndGet(-removedCnt);
+    }
+
+    private static class SlotChunk {
+        private final AtomicReferenceArray<PartitionExt> owners =
+                new AtomicReferenceArray<>(CHUNK_SIZE);
+        private final AtomicIntegerArray readyFlags =
+                new AtomicIntegerArray(CHUNK_SIZE);
+        private final AtomicLongArray usedTokens =
+                new AtomicLongArray(CHUNK_SIZE);
+        private final AtomicReferenceArray<Timeout> timeouts =
+                new AtomicReferenceArray<>(CHUNK_SIZE);
+        // current offset, max offset and update time of each slot
+        private final AtomicLongArray offsets =
+                new AtomicLongArray(CHUNK_SIZE * 3);
+    }
+}
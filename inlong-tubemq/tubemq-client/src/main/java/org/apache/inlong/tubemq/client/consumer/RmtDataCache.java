@@ -99,18 +99,13 @@ public class RmtDataCache implements Closeable {
     private final long maxReportTimes;
     // partition cache
     private final AtomicInteger waitCont = new AtomicInteger(0);
-    private final ConcurrentHashMap<String, Timeout> timeouts =
-            new ConcurrentHashMap<>();
-    private final ConcurrentLinkedQueue<String> indexPartition =
-            new ConcurrentLinkedQueue<String>();
     private volatile long lstReportTime = 0;
     private final AtomicLong partMapChgTime = new AtomicLong(0);
     private final ConcurrentHashMap<String /* index */, PartitionExt> partitionMap =
             new ConcurrentHashMap<>();
-    private final ConcurrentHashMap<String /* index */, Long> partitionUsedMap =
-            new ConcurrentHashMap<>();
-    private final ConcurrentHashMap<String /* index */, ConsumeOffsetInfo> partitionOffsetMap =
-            new ConcurrentHashMap<>();
+    // the ready, in-use, time-wait and offset state of the partitions
+    private final PartitionSlotTable partSlotTable = new PartitionSlotTable();
+    // the frozen state is set by the caller and kept after the partition removed
     private final ConcurrentHashMap<String /* index */, Long> partitionFrozenMap =
             new ConcurrentHashMap<String, Long>();
     private final ConcurrentHashMap<String /* topic */, ConcurrentLinkedQueue<Partition>> topicPartitionConMap =
@@ -625,7 +620,7 @@ public class RmtDataCache implements Closeable {
                                         boolean isRequireSlow, long maxOffset) {
         PartitionExt partitionExt = partitionMap.get(partitionKey);
         if (partitionExt != null) {
-            updateOffsetCache(partitionKey, currOffset, maxOffset);
+            updateOffsetCache(partitionExt, currOffset, maxOffset);
             partitionExt.setPullTempData(reqProcType, errCode,
                     isEscLimit, msgSize, limitDlt, curDataDlt, isRequireSlow);
         }
@@ -666,12 +661,12 @@ public class RmtDataCache implements Closeable {
                     TErrCodeConstants.NO_PARTITION_ASSIGNED,
                     "No partition info in local, please wait and try later");
         }
-        if (indexPartition.isEmpty()) {
-            if (!timeouts.isEmpty()) {
+        if (!partSlotTable.hasReady()) {
+            if (partSlotTable.hasTimeWait()) {
                 return new PartitionSelectResult(false,
                         TErrCodeConstants.ALL_PARTITION_WAITING,
                         "All partition in waiting, retry later!");
-            } else if (!partitionUsedMap.isEmpty()) {
+            } else if (partSlotTable.hasUsed()) {
                 return new PartitionSelectResult(false,
                         TErrCodeConstants.ALL_PARTITION_INUSE,
                         "No idle partition to consume, please wait and try later");
@@ -708,13 +703,13 @@ public class RmtDataCache implements Closeable {
                         TErrCodeConstants.NO_PARTITION_ASSIGNED,
                         "No partition info in local, please wait and try later");
             }
-            String key = indexPartition.poll();
-            if (key == null) {
+            PartitionExt partitionExt = partSlotTable.pollReady();
+            if (partitionExt == null) {
                 if (hasPartitionWait()) {
                     return new PartitionSelectResult(false,
                             TErrCodeConstants.ALL_PARTITION_WAITING,
                             "All partition in waiting, retry later!");
-                } else if (!partitionUsedMap.isEmpty()) {
+                } else if (partSlotTable.hasUsed()) {
                     return new PartitionSelectResult(false,
                             TErrCodeConstants.ALL_PARTITION_INUSE,
                             "No idle partition to consume, please wait and try later");
@@ -724,15 +719,8 @@ public class RmtDataCache implements Closeable {
                             "All partition are frozen to consume, please unfreeze partition(s) or wait");
                 }
             }
-            PartitionExt partitionExt = partitionMap.get(key);
-            if (partitionExt == null) {
-                return new PartitionSelectResult(false,
-                        TErrCodeConstants.BAD_REQUEST,
-                        "No valid partition to consume, retry later 1");
-            }
             long curTime = System.currentTimeMillis();
-            Long newTime = partitionUsedMap.putIfAbsent(key, curTime);
-            if (newTime != null) {
+            if (!partSlotTable.tryUse(partitionExt, curTime)) {
                 return new PartitionSelectResult(false,
                         TErrCodeConstants.BAD_REQUEST,
                         "No valid partition to consume, retry later 2");
@@ -775,12 +763,12 @@ public class RmtDataCache implements Closeable {
                 return null;
             }
             int cycleCnt = 0;
-            String key = null;
+            PartitionExt partitionExt = null;
             do {
-                if (!indexPartition.isEmpty()) {
+                if (partSlotTable.hasReady()) {
                     // If there are idle partitions, poll
-                    key = indexPartition.poll();
-                    if (key != null) {
+                    partitionExt = partSlotTable.pollReady();
+                    if (partitionExt != null) {
                         break;
                     }
                 }
@@ -790,16 +778,11 @@ public class RmtDataCache implements Closeable {
                 ThreadUtils.sleep(300);
                 //if no idle partitions to get, wait and cycle 500 times
             } while (cycleCnt++ < 500);
-            if (key == null) {
-                return null;
-            }
-            PartitionExt partitionExt = partitionMap.get(key);
             if (partitionExt == null) {
                 return null;
             }
             long curTime = System.currentTimeMillis();
-            Long newTime = partitionUsedMap.putIfAbsent(key, curTime);
-            if (newTime != null) {
+            if (!partSlotTable.tryUse(partitionExt, curTime)) {
                 return null;
             }
             return new PartitionSelectResult(partitionExt,
@@ -811,11 +794,59 @@ public class RmtDataCache implements Closeable {
         }
     }
 
+    /**
+     * Select the idle partitions of the broker without waiting,
+     *  used to fetch the messages of multiple partitions in one request.
+     *
+     * @param brokerInfo   the broker of the partitions
+     * @param maxCnt       the max count of the partitions to select
+     * @return the selected partitions, may be empty
+     */
+    public List<PartitionSelectResult> pushSelectBrokerParts(BrokerInfo brokerInfo, int maxCnt) {
+        List<PartitionSelectResult> selectResults = new ArrayList<>();
+        if (maxCnt <= 0 || this.isClosed.get() || !partSlotTable.hasReady()) {
+            return selectResults;
+        }
+        ConcurrentLinkedQueue<Partition> brokerParts =
+                this.brokerPartitionConMap.get(brokerInfo);
+        if (brokerParts == null) {
+            return selectResults;
+        }
+        waitCont.incrementAndGet();
+        try {
+            if (this.isClosed.get() || isRebProcessing()) {
+                return selectResults;
+            }
+            for (Partition partition : brokerParts) {
+                if (selectResults.size() >= maxCnt) {
+                    break;
+                }
+                PartitionExt partitionExt = partitionMap.get(partition.getPartitionKey());
+                if (partitionExt == null
+                        || !partSlotTable.removeReady(partitionExt.getSlotId())) {
+                    continue;
+                }
+                long curTime = System.currentTimeMillis();
+                if (!partSlotTable.tryUse(partitionExt, curTime)) {
+                    continue;
+                }
+                selectResults.add(new PartitionSelectResult(partitionExt,
+                        curTime, partitionExt.getAndResetLastPackConsumed()));
+            }
+        } catch (Throwable e1) {
+            // the partitions selected so far are still returned
+            logger.warn("[Remote Data Cache] found select broker partitions failure", e1);
+        } finally {
+            waitCont.decrementAndGet();
+        }
+        return selectResults;
+    }
+
     protected boolean isPartitionInUse(String partitionKey, long usedToken) {
         PartitionExt partitionExt = partitionMap.get(partitionKey);
         if (partitionExt != null) {
-            Long curToken = partitionUsedMap.get(partitionKey);
-            return curToken != null && curToken == usedToken;
+            return usedToken != 0L
+                    && partSlotTable.getUsedToken(partitionExt.getSlotId()) == usedToken;
         }
         return false;
     }
@@ -864,14 +895,11 @@ public class RmtDataCache implements Closeable {
     protected void errReqRelease(String partitionKey, long usedToken, boolean isLastPackConsumed) {
         PartitionExt partitionExt = partitionMap.get(partitionKey);
         if (partitionExt != null) {
-            if (!indexPartition.contains(partitionKey) && !isTimeWait(partitionKey)) {
-                Long oldUsedToken = partitionUsedMap.get(partitionKey);
-                if (oldUsedToken != null && oldUsedToken == usedToken) {
-                    oldUsedToken = partitionUsedMap.remove(partitionKey);
-                    if (oldUsedToken != null) {
-                        partitionExt.setLastPackConsumed(isLastPackConsumed);
-                        releaseIdlePartition(partitionKey);
-                    }
+            int slotId = partitionExt.getSlotId();
+            if (!partSlotTable.isReady(slotId) && !partSlotTable.isTimeWait(slotId)) {
+                if (partSlotTable.releaseUse(slotId, usedToken)) {
+                    partitionExt.setLastPackConsumed(isLastPackConsumed);
+                    releaseIdlePartition(partitionExt);
                 }
             }
         }
@@ -883,16 +911,15 @@ public class RmtDataCache implements Closeable {
                                   long maxOffset) {
         PartitionExt partitionExt = this.partitionMap.get(partitionKey);
         if (partitionExt != null) {
-            if (!indexPartition.contains(partitionKey) && !isTimeWait(partitionKey)) {
-                Long oldUsedToken = partitionUsedMap.get(partitionKey);
-                if (oldUsedToken != null && oldUsedToken == usedToken) {
-                    updateOffsetCache(partitionKey, currOffset, maxOffset);
-                    oldUsedToken = partitionUsedMap.remove(partitionKey);
-                    if (oldUsedToken != null) {
+            int slotId = partitionExt.getSlotId();
+            if (!partSlotTable.isReady(slotId) && !partSlotTable.isTimeWait(slotId)) {
+                if (usedToken != 0L && partSlotTable.getUsedToken(slotId) == usedToken) {
+                    updateOffsetCache(partitionExt, currOffset, maxOffset);
+                    if (partSlotTable.releaseUse(slotId, usedToken)) {
                         partitionExt.setLastPackConsumed(isLastPackConsumed);
                         long waitDlt =
                                 partitionExt.procConsumeResult(isFilterConsume);
-                        releaseIdlePartition(waitDlt, partitionKey);
+                        releaseIdlePartition(waitDlt, partitionExt);
                     }
                 }
             }
@@ -923,17 +950,16 @@ public class RmtDataCache implements Closeable {
                               boolean isFilterConsume, long curDataDlt, long maxOffset) {
         PartitionExt partitionExt = this.partitionMap.get(partitionKey);
         if (partitionExt != null) {
-            if (!indexPartition.contains(partitionKey) && !isTimeWait(partitionKey)) {
-                Long oldUsedToken = partitionUsedMap.get(partitionKey);
-                if (oldUsedToken != null && oldUsedToken == usedToken) {
-                    updateOffsetCache(partitionKey, currOffset, maxOffset);
-                    oldUsedToken = partitionUsedMap.remove(partitionKey);
-                    if (oldUsedToken != null) {
+            int slotId = partitionExt.getSlotId();
+            if (!partSlotTable.isReady(slotId) && !partSlotTable.isTimeWait(slotId)) {
+                if (usedToken != 0L && partSlotTable.getUsedToken(slotId) == usedToken) {
+                    updateOffsetCache(partitionExt, currOffset, maxOffset);
+                    if (partSlotTable.releaseUse(slotId, usedToken)) {
                         partitionExt.setLastPackConsumed(isLastPackConsumed);
                         long waitDlt =
                                 partitionExt.procConsumeResult(isFilterConsume, reqProcType,
                                         errCode, msgSize, isEscLimit, limitDlt, curDataDlt, false);
-                        releaseIdlePartition(waitDlt, partitionKey);
+                        releaseIdlePartition(waitDlt, partitionExt);
                     }
                 }
             }
@@ -943,43 +969,48 @@ public class RmtDataCache implements Closeable {
     public void updPartOffsetInfo(String partitionKey, long currOffset, long maxOffset) {
         PartitionExt partitionExt = this.partitionMap.get(partitionKey);
         if (partitionExt != null) {
-            updateOffsetCache(partitionKey, currOffset, maxOffset);
+            updateOffsetCache(partitionExt, currOffset, maxOffset);
         }
     }
 
-    private void releaseIdlePartition(long waitDlt, String partitionKey) {
-        Long frozenTime = partitionFrozenMap.get(partitionKey);
-        if (frozenTime == null) {
+    private void releaseIdlePartition(long waitDlt, PartitionExt partitionExt) {
+        if (!isPartFrozen(partitionExt.getPartitionKey())) {
             if (waitDlt > 10) {
-                TimeoutTask timeoutTask = new TimeoutTask(partitionKey);
-                timeouts.put(partitionKey, timer.newTimeout(
-                        timeoutTask, waitDlt, TimeUnit.MILLISECONDS));
+                TimeoutTask timeoutTask = new TimeoutTask(partitionExt);
+                Timeout timeout = timer.newTimeout(
+                        timeoutTask, waitDlt, TimeUnit.MILLISECONDS);
+                if (!partSlotTable.setTimeout(partitionExt, timeout)) {
+                    // the partition has been removed
+                    timeout.cancel();
+                }
             } else {
-                releaseIdlePartition(partitionKey);
+                releaseIdlePartition(partitionExt);
             }
         }
     }
 
-    private void releaseIdlePartition(String partitionKey) {
-        Long frozenTime = partitionFrozenMap.get(partitionKey);
-        PartitionExt partitionExt = partitionMap.get(partitionKey);
-        Timeout timeout = timeouts.get(partitionKey);
-        Long usedTime = partitionUsedMap.get(partitionKey);
-        if (partitionExt == null
-                || frozenTime != null
-                || timeout != null
-                || usedTime != null) {
+    private void releaseIdlePartition(PartitionExt partitionExt) {
+        int slotId = partitionExt.getSlotId();
+        if (isPartFrozen(partitionExt.getPartitionKey())
+                || partSlotTable.isTimeWait(slotId)
+                || partSlotTable.getUsedToken(slotId) != 0L) {
             return;
         }
-        if (!indexPartition.contains(partitionKey)) {
-            try {
-                indexPartition.offer(partitionKey);
-            } catch (Throwable e) {
-                //
-            }
+        partSlotTable.offerReady(partitionExt);
+    }
+
+    private void releaseIdlePartition(String partitionKey) {
+        PartitionExt partitionExt = partitionMap.get(partitionKey);
+        if (partitionExt != null) {
+            releaseIdlePartition(partitionExt);
         }
     }
 
+    private boolean isPartFrozen(String partitionKey) {
+        return !partitionFrozenMap.isEmpty()
+                && partitionFrozenMap.containsKey(partitionKey);
+    }
+
     /**
      * Close the remote data cache
      */
@@ -1075,8 +1106,8 @@ public class RmtDataCache implements Closeable {
                             rmvPartitionFromMap(partition.getPartitionKey());
                     if (partitionExt != null) {
                         lastPackConsumed = partitionExt.isLastPackConsumed();
-                        if (!cancelTimeTask(partition.getPartitionKey())
-                                && !indexPartition.remove(partition.getPartitionKey())) {
+                        if (!cancelTimeTask(partitionExt)
+                                && !partSlotTable.removeReady(partitionExt.getSlotId())) {
                             logger.info(sBuilder.append("[Process Interrupt] Partition : ")
                                     .append(partition.toString())
                                     .append(", data in processing, canceled").toString());
@@ -1103,8 +1134,7 @@ public class RmtDataCache implements Closeable {
                                 brokerPartitionConMap.remove(entry.getKey());
                             }
                         }
-                        partitionOffsetMap.remove(partition.getPartitionKey());
-                        partitionUsedMap.remove(partition.getPartitionKey());
+                        partSlotTable.freeSlot(partitionExt.getSlotId());
                         PartitionSelectResult partitionRet =
                                 new PartitionSelectResult(true, TErrCodeConstants.SUCCESS,
                                         "Ok!", partition, 0, lastPackConsumed);
@@ -1147,8 +1177,8 @@ public class RmtDataCache implements Closeable {
                 return result.isSuccess();
             }
             lastPackConsumed = partitionExt.isLastPackConsumed();
-            if (!cancelTimeTask(partitionKey)
-                    && !indexPartition.remove(partitionKey)) {
+            if (!cancelTimeTask(partitionExt)
+                    && !partSlotTable.removeReady(partitionExt.getSlotId())) {
                 logger.info(sBuffer.append("[Process Interrupt] Partition : ")
                         .append(partitionExt.toString())
                         .append(", data in processing, canceled").toString());
@@ -1175,8 +1205,7 @@ public class RmtDataCache implements Closeable {
                     brokerPartitionConMap.remove(partitionExt.getBroker());
                 }
             }
-            partitionOffsetMap.remove(partitionKey);
-            partitionUsedMap.remove(partitionKey);
+            partSlotTable.freeSlot(partitionExt.getSlotId());
             partitionExt.setLastPackConsumed(lastPackConsumed);
             result.setSuccResult(partitionExt);
             return result.isSuccess();
@@ -1191,11 +1220,11 @@ public class RmtDataCache implements Closeable {
      * @param partition partition to be removed
      */
     public void removePartition(Partition partition) {
-        rmvPartitionFromMap(partition.getPartitionKey());
-        cancelTimeTask(partition.getPartitionKey());
-        indexPartition.remove(partition.getPartitionKey());
-        partitionUsedMap.remove(partition.getPartitionKey());
-        partitionOffsetMap.remove(partition.getPartitionKey());
+        PartitionExt partitionExt = rmvPartitionFromMap(partition.getPartitionKey());
+        if (partitionExt != null) {
+            cancelTimeTask(partitionExt);
+            partSlotTable.freeSlot(partitionExt.getSlotId());
+        }
         ConcurrentLinkedQueue<Partition> oldPartitionList =
                 topicPartitionConMap.get(partition.getTopic());
         if (oldPartitionList != null) {
@@ -1237,20 +1266,22 @@ public class RmtDataCache implements Closeable {
             if (entry.getKey() == null || entry.getValue() == null) {
                 continue;
             }
-            ConsumeOffsetInfo offsetInfo = partitionOffsetMap.get(entry.getKey());
+            int slotId = entry.getValue().getSlotId();
             tmpPartitionMap.put(entry.getKey(),
-                new ConsumeOffsetInfo(entry.getKey(), offsetInfo.getCurrOffset(),
-                        offsetInfo.getMaxOffset(), offsetInfo.getUpdateTime()));
+                new ConsumeOffsetInfo(entry.getKey(), partSlotTable.getCurrOffset(slotId),
+                        partSlotTable.getMaxOffset(slotId),
+                        partSlotTable.getOffsetUpdateTime(slotId)));
         }
         return tmpPartitionMap;
     }
 
     public long getMaxOffsetOfPartition(String partitionKey) {
-        ConsumeOffsetInfo offsetInfo = partitionOffsetMap.get(partitionKey);
-        if (offsetInfo == null) {
+        PartitionExt partitionExt = partitionMap.get(partitionKey);
+        if (partitionExt == null
+                || partSlotTable.getCurrOffset(partitionExt.getSlotId()) < 0) {
             return -1L;
         }
-        return offsetInfo.getMaxOffset();
+        return partSlotTable.getMaxOffset(partitionExt.getSlotId());
     }
 
     public Map<BrokerInfo, List<PartitionSelectResult>> getAllPartitionListWithStatus() {
@@ -1340,36 +1371,15 @@ public class RmtDataCache implements Closeable {
     public void resumeTimeoutConsumePartitions(boolean isPullConsume, long allowedPeriodTimes) {
         if (isPullConsume) {
             // For pull consume, do timeout check on partitions pulled without confirm
-            if (!partitionUsedMap.isEmpty()) {
-                List<String> partKeys = new ArrayList<>(partitionUsedMap.keySet());
-                for (String keyId : partKeys) {
-                    Long oldTime = partitionUsedMap.get(keyId);
-                    if (oldTime != null && System.currentTimeMillis() - oldTime > allowedPeriodTimes) {
-                        oldTime = partitionUsedMap.remove(keyId);
-                        if (oldTime != null) {
-                            PartitionExt partitionExt = partitionMap.get(keyId);
-                            if (partitionExt != null) {
-                                partitionExt.setLastPackConsumed(false);
-                                releaseIdlePartition(keyId);
-                            }
-                        }
-                    }
-                }
+            for (PartitionExt partitionExt
+                    : partSlotTable.releaseTimeoutUse(allowedPeriodTimes)) {
+                partitionExt.setLastPackConsumed(false);
+                releaseIdlePartition(partitionExt);
             }
         }
         // add timeout expired check
-        if (!timeouts.isEmpty()) {
-            Timeout timeout1 = null;
-            List<String> partKeys = new ArrayList<>(timeouts.keySet());
-            for (String keyId : partKeys) {
-                timeout1 = timeouts.get(keyId);
-                if (timeout1 != null && timeout1.isExpired()) {
-                    timeout1 = timeouts.remove(keyId);
-                    if (timeout1 != null) {
-                        releaseIdlePartition(keyId);
-                    }
-                }
-            }
+        for (PartitionExt partitionExt : partSlotTable.removeExpiredTimeouts()) {
+            releaseIdlePartition(partitionExt);
         }
     }
 
@@ -1435,7 +1445,9 @@ public class RmtDataCache implements Closeable {
         do {
             needWait = false;
             for (String partitionKey : partitionKeys) {
-                if (partitionUsedMap.get(partitionKey) != null) {
+                PartitionExt partitionExt = partitionMap.get(partitionKey);
+                if (partitionExt != null
+                        && partSlotTable.getUsedToken(partitionExt.getSlotId()) != 0L) {
                     needWait = true;
                     break;
                 }
@@ -1453,19 +1465,9 @@ public class RmtDataCache implements Closeable {
 
     }
 
-    private void updateOffsetCache(String partitionKey, long currOffset, long maxOffset) {
+    private void updateOffsetCache(PartitionExt partitionExt, long currOffset, long maxOffset) {
         if (currOffset >= 0) {
-            ConsumeOffsetInfo currOffsetInfo = partitionOffsetMap.get(partitionKey);
-            if (currOffsetInfo == null) {
-                currOffsetInfo =
-                    new ConsumeOffsetInfo(partitionKey, currOffset, maxOffset);
-                ConsumeOffsetInfo tmpOffsetInfo =
-                    partitionOffsetMap.putIfAbsent(partitionKey, currOffsetInfo);
-                if (tmpOffsetInfo != null) {
-                    currOffsetInfo = tmpOffsetInfo;
-                }
-            }
-            currOffsetInfo.updateOffsetInfo(currOffset, maxOffset);
+            partSlotTable.updOffsetInfo(partitionExt, currOffset, maxOffset);
         }
     }
 
@@ -1507,14 +1509,14 @@ public class RmtDataCache implements Closeable {
             if (!brokerPartitionQue.contains(partition)) {
                 brokerPartitionQue.add(partition);
             }
-            updateOffsetCache(partition.getPartitionKey(),
+            PartitionExt partitionExt = new PartitionExt(this.groupFlowCtrlRuleHandler,
+                    this.defFlowCtrlRuleHandler, partition.getBroker(),
+                    partition.getTopic(), partition.getPartitionId());
+            partSlotTable.allocSlot(partitionExt);
+            updateOffsetCache(partitionExt,
                     entry.getValue().getCurrOffset(), entry.getValue().getMaxOffset());
-            addPartitionToMap(partition.getPartitionKey(),
-                    new PartitionExt(this.groupFlowCtrlRuleHandler,
-                            this.defFlowCtrlRuleHandler, partition.getBroker(),
-                            partition.getTopic(), partition.getPartitionId()));
-            partitionUsedMap.remove(partition.getPartitionKey());
-            releaseIdlePartition(partition.getPartitionKey());
+            addPartitionToMap(partition.getPartitionKey(), partitionExt);
+            releaseIdlePartition(partitionExt);
         }
     }
 
@@ -1555,8 +1557,8 @@ public class RmtDataCache implements Closeable {
         this.dataProcessSync.countDown();
     }
 
-    private boolean cancelTimeTask(String indexId) {
-        Timeout timeout = timeouts.remove(indexId);
+    private boolean cancelTimeTask(PartitionExt partitionExt) {
+        Timeout timeout = partSlotTable.removeTimeout(partitionExt.getSlotId());
         if (timeout != null) {
             timeout.cancel();
             return true;
@@ -1564,21 +1566,17 @@ public class RmtDataCache implements Closeable {
         return false;
     }
 
-    private boolean isTimeWait(String indexId) {
-        return (timeouts.get(indexId) != null);
-    }
-
     private boolean hasPartitionWait() {
-        return !this.timeouts.isEmpty();
+        return partSlotTable.hasTimeWait();
     }
 
     public class TimeoutTask implements TimerTask {
 
-        private String indexId;
+        private final PartitionExt partitionExt;
         private long createTime = 0L;
 
-        public TimeoutTask(final String indexId) {
-            this.indexId = indexId;
+        public TimeoutTask(final PartitionExt partitionExt) {
+            this.partitionExt = partitionExt;
             this.createTime = System.currentTimeMillis();
         }
 
@@ -1588,9 +1586,8 @@ public class RmtDataCache implements Closeable {
 
         @Override
         public void run(Timeout timeout) throws Exception {
-            Timeout timeout1 = timeouts.remove(indexId);
-            if (timeout1 != null) {
-                releaseIdlePartition(indexId);
+            if (partSlotTable.removeTimeout(partitionExt.getSlotId(), timeout)) {
+                releaseIdlePartition(partitionExt);
             }
         }
     }
@@ -733,9 +733,12 @@ public class SimpleClientBalanceConsumer implements ClientBalanceConsumer {
                 case TErrCodeConstants.SUCCESS: {
                     int msgSize = 0;
                     int msgCount = 0;
-                    // Convert the message payload data
+                    // Convert the message payload data, the batch records are
+                    // split into their messages
                     List<Message> tmpMessageList =
                             DataConverterUtil.convertMessage(topic, msgRspB2C.getMessagesList());
+                    DataConverterUtil.convertRawMessage(topic,
+                            msgRspB2C.getRawMessagesList(), tmpMessageList);
                     boolean isEscLimit =
                             (msgRspB2C.hasEscFlowCtrl() && msgRspB2C.getEscFlowCtrl());
                     // Filter the message based on its content
@@ -825,7 +828,9 @@ public class SimpleClientBalanceConsumer implements ClientBalanceConsumer {
                             break;
                         }
                         case TErrCodeConstants.NOT_FOUND: {
-                            limitDlt = consumerConfig.getMsgNotFoundWaitPeriodMs();
+                            // the broker has waited for new data if long polled
+                            limitDlt = (msgRspB2C.hasLongPolled() && msgRspB2C.getLongPolled())
+                                    ? 0 : consumerConfig.getMsgNotFoundWaitPeriodMs();
                             break;
                         }
                         default: {
@@ -1575,6 +1580,12 @@ public class SimpleClientBalanceConsumer implements ClientBalanceConsumer {
         builder.setPartitionId(partition.getPartitionId());
         builder.setLastPackConsumed(isLastConsumed);
         builder.setManualCommitOffset(false);
+        builder.setSupportRawData(true);
+        builder.setSupportCompress(true);
+        if (this.consumerConfig.getFetchMaxWaitMs() > 0) {
+            builder.setMaxWaitTimeMs((int) Math.min(this.consumerConfig.getFetchMaxWaitMs(),
+                    this.consumerConfig.getRpcTimeoutMs() / 2));
+        }
         return builder.build();
     }
 
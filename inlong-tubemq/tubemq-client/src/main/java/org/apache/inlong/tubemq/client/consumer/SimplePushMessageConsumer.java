@@ -179,10 +179,31 @@ public class SimplePushMessageConsumer implements PushMessageConsumer {
         final long startTime = System.currentTimeMillis();
         FetchContext taskContext =
                 baseConsumer.fetchMessage(partSelectResult, sBuilder);
+        processFetchResult(taskContext, startTime, sBuilder);
+    }
+
+    /**
+     * Process the selected partitions of the same broker with one fetch request.
+     *
+     * @param partSelectResults  the selected partitions
+     * @param sBuilder           a string builder
+     */
+    protected void processBatchRequest(List<PartitionSelectResult> partSelectResults,
+                                       final StringBuilder sBuilder) {
+        final long startTime = System.currentTimeMillis();
+        List<FetchContext> taskContexts =
+                baseConsumer.fetchMessageBatch(partSelectResults, sBuilder);
+        for (FetchContext taskContext : taskContexts) {
+            processFetchResult(taskContext, startTime, sBuilder);
+        }
+    }
+
+    private void processFetchResult(FetchContext taskContext,
+                                    long startTime, final StringBuilder sBuilder) {
         if (!taskContext.isSuccess()) {
             if (logger.isDebugEnabled()) {
                 logger.debug(sBuilder.append("Fetch message error: partition:")
-                        .append(partSelectResult.getPartition().toString()).append(" error is ")
+                        .append(taskContext.getPartition().toString()).append(" error is ")
                         .append(taskContext.getErrMsg()).toString());
                 sBuilder.delete(0, sBuilder.length());
             }
@@ -221,7 +242,7 @@ public class SimplePushMessageConsumer implements PushMessageConsumer {
             logger.info(sBuilder.append("Consuming Partition; current processing thread ")
                     .append(Thread.currentThread().getName())
                     .append("-->Process[")
-                    .append(partSelectResult.getPartition().toString())
+                    .append(taskContext.getPartition().toString())
                     .append("] cost:").append(cost).append(" Ms").toString());
             sBuilder.delete(0, sBuilder.length());
         }
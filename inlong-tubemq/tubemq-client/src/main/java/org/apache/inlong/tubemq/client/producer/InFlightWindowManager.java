@@ -0,0 +1,497 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.client.producer;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.inlong.tubemq.client.exception.TubeClientException;
+import org.apache.inlong.tubemq.client.producer.qltystats.BrokerRcvQltyStats;
+import org.apache.inlong.tubemq.corebase.Message;
+import org.apache.inlong.tubemq.corebase.TErrCodeConstants;
+import org.apache.inlong.tubemq.corebase.cluster.Partition;
+import org.apache.inlong.tubemq.corerpc.exception.ClientClosedException;
+import org.apache.inlong.tubemq.corerpc.exception.LocalConnException;
+import org.apache.inlong.tubemq.corerpc.exception.NetworkException;
+import org.apache.inlong.tubemq.corerpc.exception.OverflowException;
+import org.apache.inlong.tubemq.corerpc.exception.ServiceStoppingException;
+import org.apache.inlong.tubemq.corerpc.exception.UnknownProtocolException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Bound the in-flight asynchronous send requests of each broker and partition.
+ *
+ * A request holds a permit of its partition window and of its broker window from
+ * the submission until it is finally completed, the sender is blocked for at most
+ * the max block wait time, or rejected at once if the wait time is 0, when either
+ * window is full. The requests failed with a transient error are retried on their
+ * partition, and the later waiting requests of the partition wait behind them. If
+ * the ordered send is required, only one request of a partition is in flight at a
+ * time, so the messages of a partition are sent in the order of submission even
+ * under retries.
+ */
+public class InFlightWindowManager {
+    private static final Logger logger =
+            LoggerFactory.getLogger(InFlightWindowManager.class);
+    private final int brokerWindowSize;
+    private final int partitionWindowSize;
+    private final long maxBlockWaitMs;
+    private final int maxRetries;
+    private final long retryBackoffMs;
+    private final boolean orderedSend;
+    // the in-flight window of each broker, keyed by the broker id
+    private final ConcurrentHashMap<Integer, Semaphore> brokerWindows =
+            new ConcurrentHashMap<>();
+    // the in-flight window of each partition, keyed by the partition key
+    private final ConcurrentHashMap<String, PartitionWindow> partitionWindows =
+            new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong(0);
+    private final AtomicLong inFlightCount = new AtomicLong(0);
+    private final ScheduledExecutorService retryService;
+    private final AtomicBoolean isClosed = new AtomicBoolean(false);
+
+    /**
+     * Initial an in-flight window manager
+     *
+     * @param clientId              the producer id, used in the thread name
+     * @param brokerWindowSize      the max in-flight requests of a broker
+     * @param partitionWindowSize   the max in-flight requests of a partition
+     * @param maxBlockWaitMs        the max wait time when the windows are full
+     * @param maxRetries            the max retry times of a failed request
+     * @param retryBackoffMs        the wait time before retrying a partition
+     * @param orderedSend           whether to send one request of a partition at a time
+     */
+    public InFlightWindowManager(final String clientId, int brokerWindowSize,
+                                 int partitionWindowSize, long maxBlockWaitMs,
+                                 int maxRetries, long retryBackoffMs,
+                                 boolean orderedSend) {
+        this.brokerWindowSize = brokerWindowSize;
+        this.partitionWindowSize = partitionWindowSize;
+        this.maxBlockWaitMs = maxBlockWaitMs;
+        this.maxRetries = maxRetries;
+        this.retryBackoffMs = retryBackoffMs;
+        this.orderedSend = orderedSend;
+        this.retryService =
+                Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        Thread t = new Thread(r, new StringBuilder(256)
+                                .append("Producer-Pipeline-Retry-Thread-")
+                                .append(clientId).toString());
+                        t.setDaemon(true);
+                        return t;
+                    }
+                });
+    }
+
+    /**
+     * Submit a message to the windows of its partition, the message is sent
+     * once the permits of both windows are acquired.
+     *
+     * @param partition   the partition of the message
+     * @param message     the message
+     * @param callback    the callback of the message
+     * @param sender      the sender of the request
+     * @throws TubeClientException   the windows are full or the manager is closed
+     * @throws InterruptedException  interrupted while waiting for the windows
+     */
+    public void submit(final Partition partition, final Message message,
+                       final MessageSentCallback callback,
+                       final RequestSender sender) throws TubeClientException,
+            InterruptedException {
+        if (isClosed.get()) {
+            throw new TubeClientException("Status error: producer has been shutdown!");
+        }
+        final PartitionWindow partWindow = getPartitionWindow(partition);
+        final Semaphore brokerWindow = getBrokerWindow(partition.getBrokerId());
+        final long deadline = System.currentTimeMillis() + maxBlockWaitMs;
+        if (!acquirePermit(partWindow.permits, deadline)) {
+            throw new TubeClientException(new StringBuilder(512)
+                    .append("In-flight window of partition ").append(partition.getPartitionKey())
+                    .append(" is full, allowed size is ").append(partitionWindowSize).toString());
+        }
+        if (!acquirePermit(brokerWindow, deadline)) {
+            partWindow.permits.release();
+            throw new TubeClientException(new StringBuilder(512)
+                    .append("In-flight window of broker ").append(partition.getBrokerId())
+                    .append(" is full, allowed size is ").append(brokerWindowSize).toString());
+        }
+        inFlightCount.incrementAndGet();
+        final InFlightRequest request = new InFlightRequest(this,
+                sequence.incrementAndGet(), partition, message, callback, sender);
+        synchronized (partWindow) {
+            partWindow.waitRequests.put(request.sequence, request);
+        }
+        dispatch(partWindow);
+    }
+
+    /**
+     * Select the partition to send, steer the load away from the selected broker
+     * if its window is full, or its delayed requests are more than double of the
+     * least delayed broker among the candidates.
+     *
+     * @param selected     the partition selected by the router
+     * @param partList     the candidate partitions
+     * @param qltyStats    the broker receive quality statistics
+     * @return the partition to send
+     */
+    public Partition steerPartition(final Partition selected,
+                                    final List<Partition> partList,
+                                    final BrokerRcvQltyStats qltyStats) {
+        if (partList == null || partList.size() <= 1) {
+            return selected;
+        }
+        long selPendingCnt = qltyStats.getBrokerDelayedMsgCount(selected.getBrokerId());
+        boolean selHasPermits = getAvailablePermits(selected) > 0;
+        Partition bestPartition = null;
+        long bestPendingCnt = Long.MAX_VALUE;
+        long curPendingCnt;
+        for (Partition partition : partList) {
+            if (partition.getBrokerId() == selected.getBrokerId()
+                    || getAvailablePermits(partition) <= 0) {
+                continue;
+            }
+            curPendingCnt = qltyStats.getBrokerDelayedMsgCount(partition.getBrokerId());
+            if (curPendingCnt < bestPendingCnt) {
+                bestPartition = partition;
+                bestPendingCnt = curPendingCnt;
+            }
+        }
+        if (bestPartition == null) {
+            return selected;
+        }
+        if (!selHasPermits
+                || (selPendingCnt > partitionWindowSize
+                && selPendingCnt > 2 * bestPendingCnt)) {
+            return bestPartition;
+        }
+        return selected;
+    }
+
+    /**
+     * Close the manager, the waiting requests are failed
+     */
+    public void close() {
+        if (!this.isClosed.compareAndSet(false, true)) {
+            return;
+        }
+        this.retryService.shutdownNow();
+        List<InFlightRequest> waitRequests = new ArrayList<>();
+        for (PartitionWindow partWindow : partitionWindows.values()) {
+            synchronized (partWindow) {
+                waitRequests.addAll(partWindow.waitRequests.values());
+                partWindow.waitRequests.clear();
+            }
+        }
+        for (InFlightRequest request : waitRequests) {
+            finish(request, null,
+                    new TubeClientException("Status error: producer has been shutdown!"));
+        }
+    }
+
+    public long getInFlightCount() {
+        return inFlightCount.get();
+    }
+
+    public int getAvailablePermits(final Partition partition) {
+        Semaphore brokerWindow = brokerWindows.get(partition.getBrokerId());
+        PartitionWindow partWindow = partitionWindows.get(partition.getPartitionKey());
+        return Math.min(brokerWindow == null ? brokerWindowSize : brokerWindow.availablePermits(),
+                partWindow == null ? partitionWindowSize : partWindow.permits.availablePermits());
+    }
+
+    private boolean acquirePermit(final Semaphore window,
+                                  final long deadline) throws InterruptedException {
+        if (maxBlockWaitMs <= 0) {
+            return window.tryAcquire();
+        }
+        return window.tryAcquire(Math.max(0, deadline - System.currentTimeMillis()),
+                TimeUnit.MILLISECONDS);
+    }
+
+    private PartitionWindow getPartitionWindow(final Partition partition) {
+        PartitionWindow partWindow = partitionWindows.get(partition.getPartitionKey());
+        if (partWindow == null) {
+            PartitionWindow tmpWindow = new PartitionWindow(partitionWindowSize);
+            partWindow = partitionWindows.putIfAbsent(partition.getPartitionKey(), tmpWindow);
+            if (partWindow == null) {
+                partWindow = tmpWindow;
+            }
+        }
+        return partWindow;
+    }
+
+    private Semaphore getBrokerWindow(final int brokerId) {
+        Semaphore brokerWindow = brokerWindows.get(brokerId);
+        if (brokerWindow == null) {
+            Semaphore tmpWindow = new Semaphore(brokerWindowSize);
+            brokerWindow = brokerWindows.putIfAbsent(brokerId, tmpWindow);
+            if (brokerWindow == null) {
+                brokerWindow = tmpWindow;
+            }
+        }
+        return brokerWindow;
+    }
+
+    /**
+     * Send the waiting requests of a partition in order, if its retry backoff expired
+     * and, for the ordered send, no request of the partition is in flight. The requests
+     * are taken out under the lock of the partition and sent outside of it.
+     *
+     * @param partWindow   the partition window
+     */
+    private void dispatch(final PartitionWindow partWindow) {
+        if (isClosed.get()) {
+            List<InFlightRequest> waitRequests;
+            synchronized (partWindow) {
+                waitRequests = new ArrayList<>(partWindow.waitRequests.values());
+                partWindow.waitRequests.clear();
+            }
+            for (InFlightRequest request : waitRequests) {
+                finish(request, null,
+                        new TubeClientException("Status error: producer has been shutdown!"));
+            }
+            return;
+        }
+        List<InFlightRequest> readyRequests = new ArrayList<>();
+        synchronized (partWindow) {
+            if (partWindow.waitRequests.isEmpty() || partWindow.inSending) {
+                return;
+            }
+            long waitTime = partWindow.retryAfterTime - System.currentTimeMillis();
+            if (waitTime > 0) {
+                if (!partWindow.dispatchScheduled) {
+                    partWindow.dispatchScheduled = true;
+                    try {
+                        retryService.schedule(new Runnable() {
+                            @Override
+                            public void run() {
+                                synchronized (partWindow) {
+                                    partWindow.dispatchScheduled = false;
+                                }
+                                dispatch(partWindow);
+                            }
+                        }, waitTime, TimeUnit.MILLISECONDS);
+                    } catch (RejectedExecutionException e) {
+                        // closed, the waiting requests are failed by the close
+                        partWindow.dispatchScheduled = false;
+                    }
+                }
+                return;
+            }
+            Iterator<InFlightRequest> iterator = partWindow.waitRequests.values().iterator();
+            while (iterator.hasNext()) {
+                readyRequests.add(iterator.next());
+                iterator.remove();
+                if (orderedSend) {
+                    partWindow.inSending = true;
+                    break;
+                }
+            }
+        }
+        for (int i = 0; i < readyRequests.size(); i++) {
+            sendRequest(readyRequests.get(i));
+            // a request failed at once and is waiting for retry, keep the later behind it
+            synchronized (partWindow) {
+                if (partWindow.retryAfterTime > System.currentTimeMillis()) {
+                    for (int j = i + 1; j < readyRequests.size(); j++) {
+                        partWindow.waitRequests.put(
+                                readyRequests.get(j).sequence, readyRequests.get(j));
+                    }
+                    break;
+                }
+            }
+        }
+    }
+
+    private void sendRequest(final InFlightRequest request) {
+        try {
+            request.sender.sendRequest(request);
+        } catch (Throwable e) {
+            request.onError(e);
+        }
+    }
+
+    private void onRequestCompleted(final InFlightRequest request,
+                                    final MessageSentResult result,
+                                    final Throwable error) {
+        if (!request.completed.compareAndSet(false, true)) {
+            return;
+        }
+        boolean retryable = (error != null)
+                ? isTransientError(error)
+                : (result != null && !result.isSuccess()
+                && (result.getErrCode() == TErrCodeConstants.SERVICE_UNAVAILABLE
+                || result.getErrCode() == TErrCodeConstants.SERVER_RECEIVE_OVERFLOW));
+        final PartitionWindow partWindow = getPartitionWindow(request.partition);
+        if (!retryable || request.retries >= maxRetries || isClosed.get()) {
+            finish(request, result, error);
+            if (orderedSend) {
+                // send the next request of the partition
+                synchronized (partWindow) {
+                    partWindow.inSending = false;
+                }
+                dispatch(partWindow);
+            }
+            return;
+        }
+        request.retries++;
+        request.completed.set(false);
+        synchronized (partWindow) {
+            partWindow.waitRequests.put(request.sequence, request);
+            partWindow.retryAfterTime = System.currentTimeMillis() + retryBackoffMs;
+            partWindow.inSending = false;
+        }
+        dispatch(partWindow);
+    }
+
+    /**
+     * Check whether the failure is transient, such as the network failure or
+     * the broker overflow, only the transient failure is retried. The timeout
+     * is not retried, the broker may have stored the message of the request
+     * and the retry would duplicate it.
+     *
+     * @param error   the failure
+     * @return whether transient
+     */
+    private boolean isTransientError(final Throwable error) {
+        return error instanceof ClientClosedException
+                || error instanceof LocalConnException
+                || error instanceof NetworkException
+                || error instanceof OverflowException
+                || error instanceof ServiceStoppingException
+                || (error instanceof IOException
+                && !(error instanceof UnknownProtocolException));
+    }
+
+    private void finish(final InFlightRequest request,
+                        final MessageSentResult result,
+                        final Throwable error) {
+        getPartitionWindow(request.partition).permits.release();
+        getBrokerWindow(request.partition.getBrokerId()).release();
+        inFlightCount.decrementAndGet();
+        try {
+            if (error == null) {
+                request.callback.onMessageSent(result);
+            } else {
+                request.callback.onException(error);
+            }
+        } catch (Throwable e) {
+            logger.warn("[Pipeline Send] process message sent callback failure", e);
+        }
+    }
+
+    /**
+     * The sender of the in-flight requests
+     */
+    public interface RequestSender {
+
+        /**
+         * Send a request, the result of the request must be reported through
+         * {@link InFlightRequest#onSent} or {@link InFlightRequest#onError}
+         *
+         * @param request     the request to send
+         * @throws Throwable  the exception while sending
+         */
+        void sendRequest(InFlightRequest request) throws Throwable;
+    }
+
+    /**
+     * An asynchronous send request held by the windows
+     */
+    public static class InFlightRequest {
+        private final InFlightWindowManager manager;
+        private final long sequence;
+        private final Partition partition;
+        private final Message message;
+        private final MessageSentCallback callback;
+        private final RequestSender sender;
+        private final AtomicBoolean completed = new AtomicBoolean(false);
+        private volatile int retries = 0;
+
+        InFlightRequest(InFlightWindowManager manager, long sequence,
+                        Partition partition, Message message,
+                        MessageSentCallback callback, RequestSender sender) {
+            this.manager = manager;
+            this.sequence = sequence;
+            this.partition = partition;
+            this.message = message;
+            this.callback = callback;
+            this.sender = sender;
+        }
+
+        public Partition getPartition() {
+            return partition;
+        }
+
+        public Message getMessage() {
+            return message;
+        }
+
+        public int getRetries() {
+            return retries;
+        }
+
+        /**
+         * Report the response of the request, the request is retried if the
+         * broker is unavailable or overflowed
+         *
+         * @param result   the sent result
+         */
+        public void onSent(MessageSentResult result) {
+            manager.onRequestCompleted(this, result, null);
+        }
+
+        /**
+         * Report the failure of the request, the request is retried if the
+         * failure is transient
+         *
+         * @param error   the failure
+         */
+        public void onError(Throwable error) {
+            manager.onRequestCompleted(this, null, error);
+        }
+    }
+
+    private static class PartitionWindow {
+        private final Semaphore permits;
+        // the admitted requests waiting to be sent, in the order of submission
+        private final Map<Long, InFlightRequest> waitRequests = new TreeMap<>();
+        private long retryAfterTime = 0L;
+        private boolean dispatchScheduled = false;
+        // whether a request of the partition is in flight, only used by the ordered send
+        private boolean inSending = false;
+
+        PartitionWindow(int windowSize) {
+            this.permits = new Semaphore(windowSize);
+        }
+    }
+}
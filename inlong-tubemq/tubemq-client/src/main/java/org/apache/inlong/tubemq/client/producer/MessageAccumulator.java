@@ -0,0 +1,211 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.client.producer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.apache.inlong.tubemq.corebase.Message;
+import org.apache.inlong.tubemq.corebase.cluster.Partition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Accumulate the asynchronous sent messages of each partition into batches.
+ *
+ * A batch is handed to the sender when its message count or data size reaches
+ * the limit, or when its first message has waited for the linger time.
+ */
+public class MessageAccumulator {
+    private static final Logger logger =
+            LoggerFactory.getLogger(MessageAccumulator.class);
+    private final int maxMsgCount;
+    private final int maxDataSize;
+    private final long lingerMs;
+    private final BatchSender batchSender;
+    // the pending batch of each partition, keyed by the partition key
+    private final ConcurrentHashMap<String, MessageBatch> batchMap =
+            new ConcurrentHashMap<>();
+    private final ScheduledExecutorService lingerService;
+    private final AtomicBoolean isClosed = new AtomicBoolean(false);
+
+    /**
+     * Initial a message accumulator
+     *
+     * @param clientId       the producer id, used in the thread name
+     * @param maxMsgCount    the max message count of a batch
+     * @param maxDataSize    the max data size of a batch
+     * @param lingerMs       the max wait time of the messages in a batch
+     * @param batchSender    the sender of the batches
+     */
+    public MessageAccumulator(final String clientId, int maxMsgCount,
+                              int maxDataSize, long lingerMs,
+                              BatchSender batchSender) {
+        this.maxMsgCount = maxMsgCount;
+        this.maxDataSize = maxDataSize;
+        this.lingerMs = lingerMs;
+        this.batchSender = batchSender;
+        this.lingerService =
+                Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        Thread t = new Thread(r, new StringBuilder(256)
+                                .append("Producer-Batch-Linger-Thread-")
+                                .append(clientId).toString());
+                        t.setDaemon(true);
+                        return t;
+                    }
+                });
+        this.lingerService.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    sendExpiredBatches(System.currentTimeMillis(), false);
+                } catch (Throwable e) {
+                    logger.warn("[Batch Send] send lingered batches failure", e);
+                }
+            }
+        }, lingerMs, Math.max(1L, lingerMs / 2), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Append a message to the batch of its partition
+     *
+     * @param partition   the partition of the message
+     * @param message     the message
+     * @param msgSize     the data size of the message
+     * @param callback    the callback of the message
+     */
+    public void append(final Partition partition, final Message message,
+                       final int msgSize, final MessageSentCallback callback) {
+        final List<MessageBatch> readyBatches = new ArrayList<>(2);
+        final long curTime = System.currentTimeMillis();
+        batchMap.compute(partition.getPartitionKey(), (key, curBatch) -> {
+            MessageBatch batch = curBatch;
+            // the message can't be held by the current batch, send the current first
+            if (batch != null && batch.dataSize + msgSize > maxDataSize) {
+                readyBatches.add(batch);
+                batch = null;
+            }
+            if (batch == null) {
+                batch = new MessageBatch(partition, curTime);
+            }
+            batch.add(message, msgSize, callback);
+            if (batch.messages.size() >= maxMsgCount
+                    || batch.dataSize >= maxDataSize) {
+                readyBatches.add(batch);
+                return null;
+            }
+            return batch;
+        });
+        for (MessageBatch batch : readyBatches) {
+            sendBatch(batch);
+        }
+        if (isClosed.get()) {
+            flush();
+        }
+    }
+
+    /**
+     * Send all the pending batches
+     */
+    public void flush() {
+        sendExpiredBatches(System.currentTimeMillis(), true);
+    }
+
+    /**
+     * Stop the linger service, and send all the pending batches
+     */
+    public void close() {
+        if (this.isClosed.compareAndSet(false, true)) {
+            this.lingerService.shutdownNow();
+            flush();
+        }
+    }
+
+    public int getPendingBatchCount() {
+        return batchMap.size();
+    }
+
+    private void sendExpiredBatches(final long curTime, final boolean sendAll) {
+        final List<MessageBatch> readyBatches = new ArrayList<>();
+        for (String partKey : batchMap.keySet()) {
+            batchMap.computeIfPresent(partKey, (key, batch) -> {
+                if (sendAll || curTime - batch.createTime >= lingerMs) {
+                    readyBatches.add(batch);
+                    return null;
+                }
+                return batch;
+            });
+        }
+        for (MessageBatch batch : readyBatches) {
+            sendBatch(batch);
+        }
+    }
+
+    private void sendBatch(MessageBatch batch) {
+        try {
+            batchSender.sendBatch(batch.partition, batch.messages, batch.callbacks);
+        } catch (Throwable e) {
+            for (MessageSentCallback callback : batch.callbacks) {
+                callback.onException(e);
+            }
+        }
+    }
+
+    /**
+     * The sender of the accumulated batches
+     */
+    public interface BatchSender {
+
+        /**
+         * Send a batch of messages of the same partition
+         *
+         * @param partition   the partition of the messages
+         * @param messages    the messages
+         * @param callbacks   the callbacks of the messages, in the order of the messages
+         * @throws Throwable  the exception while sending
+         */
+        void sendBatch(Partition partition, List<Message> messages,
+                       List<MessageSentCallback> callbacks) throws Throwable;
+    }
+
+    private static class MessageBatch {
+        private final Partition partition;
+        private final long createTime;
+        private final List<Message> messages = new ArrayList<>();
+        private final List<MessageSentCallback> callbacks = new ArrayList<>();
+        private int dataSize = 0;
+
+        MessageBatch(Partition partition, long createTime) {
+            this.partition = partition;
+            this.createTime = createTime;
+        }
+
+        void add(Message message, int msgSize, MessageSentCallback callback) {
+            this.messages.add(message);
+            this.callbacks.add(callback);
+            this.dataSize += msgSize;
+        }
+    }
+}
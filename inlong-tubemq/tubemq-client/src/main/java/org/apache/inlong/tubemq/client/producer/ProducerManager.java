@@ -104,6 +104,8 @@ public class ProducerManager {
     private final AtomicBoolean nextWithAuthInfo2M =
             new AtomicBoolean(false);
     private final ClientStatsInfo clientStatsInfo;
+    // the in-flight windows of the pipelined send, null if pipelined send is disabled
+    private final InFlightWindowManager inFlightWindows;
 
     /**
      * Initial a producer manager
@@ -145,6 +147,17 @@ public class ProducerManager {
         this.clientStatsInfo =
                 new ClientStatsInfo(true, this.producerId,
                         this.tubeClientConfig.getStatsConfig());
+        if (tubeClientConfig.isEnablePipelineSend()) {
+            this.inFlightWindows = new InFlightWindowManager(this.producerId,
+                    tubeClientConfig.getPipelineBrokerWindowSize(),
+                    tubeClientConfig.getPipelinePartitionWindowSize(),
+                    tubeClientConfig.getPipelineMaxBlockWaitMs(),
+                    tubeClientConfig.getPipelineMaxRetries(),
+                    tubeClientConfig.getPipelineRetryBackoffMs(),
+                    tubeClientConfig.isPipelineOrderedSend());
+        } else {
+            this.inFlightWindows = null;
+        }
         heartBeatStatus.set(0);
         this.masterService =
                 this.rpcServiceFactory.getFailoverService(MasterService.class,
@@ -305,6 +318,9 @@ public class ProducerManager {
         clientStatsInfo.selfPrintStatsInfo(true, true, strBuff);
         if (this.nodeStatus.compareAndSet(0, 1)) {
             this.heartbeatService.shutdownNow();
+            if (this.inFlightWindows != null) {
+                this.inFlightWindows.close();
+            }
             this.topicPartitionMap.clear();
             masterService.producerCloseClientP2M(createCloseProducerRequest(),
                     AddressUtils.getLocalAddress(), tubeClientConfig.isTlsEnable());
@@ -312,6 +328,15 @@ public class ProducerManager {
         }
     }
 
+    /**
+     * Get the in-flight windows of the pipelined send.
+     *
+     * @return the in-flight windows, null if pipelined send is disabled
+     */
+    public InFlightWindowManager getInFlightWindows() {
+        return inFlightWindows;
+    }
+
     /**
      * Get the client metrics.
      *
@@ -366,6 +391,23 @@ public class ProducerManager {
      */
     public ClientBroker.SendMessageRequestP2B.Builder setAuthorizedTokenInfo(
             ClientBroker.SendMessageRequestP2B.Builder builder) {
+        builder.setAuthInfo(buildAuthorizedInfo());
+        return builder;
+    }
+
+    /**
+     * Set the authorized token information of the batch request.
+     *
+     * @param builder batch message builder
+     * @return the passed in builder
+     */
+    public ClientBroker.SendMessageBatchRequestP2B.Builder setAuthorizedTokenInfo(
+            ClientBroker.SendMessageBatchRequestP2B.Builder builder) {
+        builder.setAuthInfo(buildAuthorizedInfo());
+        return builder;
+    }
+
+    private ClientBroker.AuthorizedInfo buildAuthorizedInfo() {
         ClientBroker.AuthorizedInfo.Builder authInfoBuilder =
                 ClientBroker.AuthorizedInfo.newBuilder();
         authInfoBuilder.setVisitAuthorizedToken(this.visitToken.get());
@@ -373,8 +415,7 @@ public class ProducerManager {
         if (TStringUtils.isNotBlank(authAuthorizedToken)) {
             authInfoBuilder.setAuthAuthorizedToken(authAuthorizedToken);
         }
-        builder.setAuthInfo(authInfoBuilder.build());
-        return builder;
+        return authInfoBuilder.build();
     }
 
     /**
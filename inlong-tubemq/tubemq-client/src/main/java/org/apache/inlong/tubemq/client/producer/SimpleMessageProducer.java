@@ -19,9 +19,11 @@ package org.apache.inlong.tubemq.client.producer;
 
 import com.google.protobuf.ByteString;
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -37,8 +39,12 @@ import org.apache.inlong.tubemq.corebase.cluster.BrokerInfo;
 import org.apache.inlong.tubemq.corebase.cluster.Partition;
 import org.apache.inlong.tubemq.corebase.protobuf.generated.ClientBroker;
 import org.apache.inlong.tubemq.corebase.utils.AddressUtils;
+import org.apache.inlong.tubemq.corebase.utils.CompressType;
+import org.apache.inlong.tubemq.corebase.utils.MessageBatchUtils;
+import org.apache.inlong.tubemq.corebase.utils.MessageCompressUtils;
 import org.apache.inlong.tubemq.corebase.utils.MessageFlagUtils;
 import org.apache.inlong.tubemq.corebase.utils.TStringUtils;
+import org.apache.inlong.tubemq.corebase.utils.Tuple2;
 import org.apache.inlong.tubemq.corerpc.RpcConfig;
 import org.apache.inlong.tubemq.corerpc.RpcConstants;
 import org.apache.inlong.tubemq.corerpc.RpcServiceFactory;
@@ -64,6 +70,11 @@ public class SimpleMessageProducer implements MessageProducer {
     private final DefaultBrokerRcvQltyStats brokerRcvQltyStats;
     private final RpcConfig rpcConfig = new RpcConfig();
     private final AtomicBoolean isShutDown = new AtomicBoolean(false);
+    // accumulator of the asynchronous sent messages, null if batch send is disabled
+    private final MessageAccumulator msgAccumulator;
+    // in-flight windows of the pipelined send, null if pipelined send is disabled
+    private final InFlightWindowManager inFlightWindows;
+    private final InFlightWindowManager.RequestSender pipelineSender;
 
     /**
      * Initial a producer object
@@ -101,6 +112,29 @@ public class SimpleMessageProducer implements MessageProducer {
             tubeClientConfig.getRpcNettyWorkMemorySize());
         this.rpcConfig.put(RpcConstants.CALLBACK_WORKER_COUNT,
             tubeClientConfig.getRpcRspCallBackThreadCnt());
+        if (tubeClientConfig.isEnableBatchSend()) {
+            this.msgAccumulator = new MessageAccumulator(
+                    this.producerManager.getProducerId(),
+                    tubeClientConfig.getBatchSendMaxMsgCount(),
+                    tubeClientConfig.getBatchSendMaxDataSize(),
+                    tubeClientConfig.getBatchSendLingerMs(),
+                    new MessageAccumulator.BatchSender() {
+                        @Override
+                        public void sendBatch(Partition partition, List<Message> messages,
+                                              List<MessageSentCallback> callbacks) throws Throwable {
+                            sendMessageBatch(partition, messages, callbacks);
+                        }
+                    });
+        } else {
+            this.msgAccumulator = null;
+        }
+        this.inFlightWindows = this.producerManager.getInFlightWindows();
+        this.pipelineSender = new InFlightWindowManager.RequestSender() {
+            @Override
+            public void sendRequest(InFlightWindowManager.InFlightRequest request) throws Throwable {
+                sendPipelineRequest(request);
+            }
+        };
     }
 
     /**
@@ -197,6 +231,9 @@ public class SimpleMessageProducer implements MessageProducer {
             return;
         }
         if (this.isShutDown.compareAndSet(false, true)) {
+            if (this.msgAccumulator != null) {
+                this.msgAccumulator.close();
+            }
             this.producerManager.removeTopic(publishTopicMap.keySet());
             this.publishTopicMap.clear();
             this.sessionFactory.removeClient(this);
@@ -243,6 +280,14 @@ public class SimpleMessageProducer implements MessageProducer {
         checkMessageAndStatus(message);
         final Partition partition =
                 this.selectPartition(message, BrokerWriteService.AsyncService.class);
+        if (this.msgAccumulator != null) {
+            this.msgAccumulator.append(partition, message, getMessageSize(message), cb);
+            return;
+        }
+        if (this.inFlightWindows != null) {
+            this.inFlightWindows.submit(partition, message, cb, pipelineSender);
+            return;
+        }
         final int brokerId = partition.getBrokerId();
         long startTime = System.currentTimeMillis();
         try {
@@ -254,6 +299,12 @@ public class SimpleMessageProducer implements MessageProducer {
                         @Override
                         public void handleResult(Object result) {
                             if (!(result instanceof ClientBroker.SendMessageResponseB2P)) {
+                                // complete as failure, the message is not known to be stored
+                                handleError(new TubeClientException(new StringBuilder(256)
+                                        .append("Unexpected response of send message: ")
+                                        .append(result == null
+                                                ? null : result.getClass().getName())
+                                        .toString()));
                                 return;
                             }
                             final ClientBroker.SendMessageResponseB2P responseB2P =
@@ -293,6 +344,73 @@ public class SimpleMessageProducer implements MessageProducer {
         }
     }
 
+    /**
+     * Send a request held by the in-flight windows, the result is reported to the
+     * request, which decides whether to retry it on its partition.
+     *
+     * @param request     the in-flight request
+     * @throws Throwable  the exception while sending
+     */
+    private void sendPipelineRequest(
+            final InFlightWindowManager.InFlightRequest request) throws Throwable {
+        final Partition partition = request.getPartition();
+        final Message message = request.getMessage();
+        final int brokerId = partition.getBrokerId();
+        final long startTime = System.currentTimeMillis();
+        try {
+            this.brokerRcvQltyStats.addSendStatistic(brokerId);
+            getAsyncBrokerService(partition.getBroker()).sendMessageP2B(
+                    createSendMessageRequest(partition, message),
+                    AddressUtils.getLocalAddress(), producerConfig.isTlsEnable(),
+                    new Callback() {
+                        @Override
+                        public void handleResult(Object result) {
+                            if (!(result instanceof ClientBroker.SendMessageResponseB2P)) {
+                                // complete as failure, the message is not known to be stored
+                                handleError(new TubeClientException(new StringBuilder(256)
+                                        .append("Unexpected response of send message: ")
+                                        .append(result == null
+                                                ? null : result.getClass().getName())
+                                        .toString()));
+                                return;
+                            }
+                            final ClientBroker.SendMessageResponseB2P responseB2P =
+                                    (ClientBroker.SendMessageResponseB2P) result;
+                            final MessageSentResult rt =
+                                    SimpleMessageProducer.this.buildMsgSentResult(
+                                            System.currentTimeMillis() - startTime,
+                                            message, partition, responseB2P);
+                            partition.resetRetries();
+                            brokerRcvQltyStats.addReceiveStatistic(brokerId,
+                                    responseB2P.getSuccess());
+                            if (!responseB2P.getSuccess()
+                                && responseB2P.getErrCode() == TErrCodeConstants.SERVICE_UNAVAILABLE) {
+                                rpcServiceFactory.addUnavailableBroker(brokerId);
+                            }
+                            request.onSent(rt);
+                        }
+
+                        @Override
+                        public void handleError(Throwable error) {
+                            producerManager.getClientMetrics().bookFailRpcCall(
+                                    TErrCodeConstants.UNSPECIFIED_ABNORMAL);
+                            partition.increRetries(1);
+                            brokerRcvQltyStats.addReceiveStatistic(brokerId, false);
+                            request.onError(error);
+                        }
+                    });
+            rpcServiceFactory.resetRmtAddrErrCount(partition.getBroker().getBrokerAddr());
+        } catch (final Throwable e) {
+            if (e instanceof LocalConnException) {
+                rpcServiceFactory.addRmtAddrErrCount(partition.getBroker().getBrokerAddr());
+            }
+            // if failed,increment the counter
+            partition.increRetries(1);
+            this.brokerRcvQltyStats.addReceiveStatistic(brokerId, false);
+            throw e;
+        }
+    }
+
     private void checkMessageAndStatus(final Message message) throws TubeClientException {
         if (message == null) {
             throw new TubeClientException("Illegal parameter: null message package!");
@@ -314,8 +432,7 @@ public class SimpleMessageProducer implements MessageProducer {
                     .append("Topic ").append(message.getTopic())
                     .append(" not publish, make sure the topic exist or acceptPublish and try later!").toString());
         }
-        int msgSize = TStringUtils.isBlank(message.getAttribute())
-                ? message.getData().length : (message.getData().length + message.getAttribute().length());
+        int msgSize = getMessageSize(message);
         if (msgSize > producerManager.getMaxMsgSize(message.getTopic())) {
             throw new TubeClientException(new StringBuilder(512)
                     .append("Illegal parameter: over max message length for the total size of")
@@ -328,6 +445,224 @@ public class SimpleMessageProducer implements MessageProducer {
         }
     }
 
+    private int getMessageSize(final Message message) {
+        return TStringUtils.isBlank(message.getAttribute())
+                ? message.getData().length : (message.getData().length + message.getAttribute().length());
+    }
+
+    /**
+     * Send a batch of messages of the same partition in one request.
+     *
+     * With compression enabled, the continuous messages of the same type and time
+     * are compressed as one batch record, the messages of a record share its
+     * message id and append offset.
+     *
+     * @param partition   the partition of the messages
+     * @param messages    the messages
+     * @param callbacks   the callbacks of the messages
+     * @throws Throwable  the exception while sending
+     */
+    private void sendMessageBatch(final Partition partition,
+                                  final List<Message> messages,
+                                  final List<MessageSentCallback> callbacks) throws Throwable {
+        final int brokerId = partition.getBrokerId();
+        final long startTime = System.currentTimeMillis();
+        // the index of the request item carrying each message
+        final int[] itemIndexes = new int[messages.size()];
+        try {
+            this.brokerRcvQltyStats.addSendStatistic(brokerId);
+            getAsyncBrokerService(partition.getBroker()).sendMessageBatchP2B(
+                    createSendMessageBatchRequest(partition, messages, itemIndexes),
+                    AddressUtils.getLocalAddress(), producerConfig.isTlsEnable(),
+                    new Callback() {
+                        @Override
+                        public void handleResult(Object result) {
+                            if (!(result instanceof ClientBroker.SendMessageBatchResponseB2P)) {
+                                // complete as failure, the messages are not known to be stored
+                                handleError(new TubeClientException(new StringBuilder(256)
+                                        .append("Unexpected response of send message batch: ")
+                                        .append(result == null
+                                                ? null : result.getClass().getName())
+                                        .toString()));
+                                return;
+                            }
+                            final ClientBroker.SendMessageBatchResponseB2P responseB2P =
+                                    (ClientBroker.SendMessageBatchResponseB2P) result;
+                            partition.resetRetries();
+                            brokerRcvQltyStats.addReceiveStatistic(brokerId,
+                                    responseB2P.getSuccess());
+                            if (!responseB2P.getSuccess()
+                                && responseB2P.getErrCode() == TErrCodeConstants.SERVICE_UNAVAILABLE) {
+                                rpcServiceFactory.addUnavailableBroker(brokerId);
+                            }
+                            final long dltTime = System.currentTimeMillis() - startTime;
+                            for (int i = 0; i < messages.size(); i++) {
+                                callbacks.get(i).onMessageSent(buildBatchMsgSentResult(
+                                        dltTime, messages.get(i), partition,
+                                        responseB2P, itemIndexes[i]));
+                            }
+                        }
+
+                        @Override
+                        public void handleError(Throwable error) {
+                            producerManager.getClientMetrics().bookFailRpcCall(
+                                    TErrCodeConstants.UNSPECIFIED_ABNORMAL);
+                            partition.increRetries(1);
+                            brokerRcvQltyStats.addReceiveStatistic(brokerId, false);
+                            for (MessageSentCallback callback : callbacks) {
+                                callback.onException(error);
+                            }
+                        }
+                    });
+            rpcServiceFactory.resetRmtAddrErrCount(partition.getBroker().getBrokerAddr());
+        } catch (final Throwable e) {
+            if (e instanceof LocalConnException) {
+                rpcServiceFactory.addRmtAddrErrCount(partition.getBroker().getBrokerAddr());
+            }
+            // if failed,increment the counter
+            partition.increRetries(1);
+            this.brokerRcvQltyStats.addReceiveStatistic(brokerId, false);
+            throw e;
+        }
+    }
+
+    private ClientBroker.SendMessageBatchRequestP2B createSendMessageBatchRequest(
+            Partition partition, List<Message> messages, int[] itemIndexes) {
+        ClientBroker.SendMessageBatchRequestP2B.Builder builder =
+                ClientBroker.SendMessageBatchRequestP2B.newBuilder();
+        builder.setClientId(this.producerManager.getProducerId());
+        builder.setTopicName(partition.getTopic());
+        builder.setPartitionId(partition.getPartitionId());
+        builder.setSentAddr(this.producerManager.getProducerAddrId());
+        List<byte[]> payloads = new ArrayList<>(messages.size());
+        for (Message message : messages) {
+            payloads.add(encodePayload(message));
+        }
+        // the batch record is stored as one message, so its size is limited as a message
+        final int maxRecordSize = Math.min(producerManager.getMaxMsgSize(partition.getTopic()),
+                MessageCompressUtils.MAX_DECOMPRESSED_LENGTH);
+        int startIndex = 0;
+        while (startIndex < messages.size()) {
+            int endIndex = startIndex + 1;
+            if (producerConfig.getCompressType() != CompressType.NONE) {
+                int recordSize = MessageBatchUtils.MSG_HEADER_LEN + payloads.get(startIndex).length;
+                while (endIndex < messages.size()
+                        && isSameRecord(messages.get(startIndex), messages.get(endIndex))
+                        && recordSize + MessageBatchUtils.MSG_HEADER_LEN
+                        + payloads.get(endIndex).length <= maxRecordSize) {
+                    recordSize += MessageBatchUtils.MSG_HEADER_LEN + payloads.get(endIndex).length;
+                    endIndex++;
+                }
+            }
+            ClientBroker.BatchMessageItem recordItem = null;
+            if (endIndex - startIndex > 1) {
+                recordItem = createBatchRecordItem(messages, payloads, startIndex, endIndex);
+            }
+            if (recordItem != null) {
+                for (int i = startIndex; i < endIndex; i++) {
+                    itemIndexes[i] = builder.getMessagesCount();
+                }
+                builder.addMessages(recordItem);
+            } else {
+                // a single message, or the batch record doesn't reduce the size
+                for (int i = startIndex; i < endIndex; i++) {
+                    itemIndexes[i] = builder.getMessagesCount();
+                    builder.addMessages(createMessageItem(messages.get(i), payloads.get(i)));
+                }
+            }
+            startIndex = endIndex;
+        }
+        builder = this.producerManager.setAuthorizedTokenInfo(builder);
+        return builder.build();
+    }
+
+    // the messages of a batch record share the message type and time of the record
+    private boolean isSameRecord(final Message first, final Message message) {
+        return Objects.equals(first.getMsgType(), message.getMsgType())
+                && Objects.equals(first.getMsgTime(), message.getMsgTime());
+    }
+
+    private ClientBroker.BatchMessageItem createMessageItem(final Message message,
+                                                           byte[] payload) {
+        ClientBroker.BatchMessageItem.Builder itemBuilder =
+                ClientBroker.BatchMessageItem.newBuilder();
+        int flag = MessageFlagUtils.getFlag(message);
+        byte[] compressed = compressPayload(payload);
+        if (compressed != null) {
+            payload = compressed;
+            flag = MessageFlagUtils.setCompressType(flag, producerConfig.getCompressType());
+        }
+        itemBuilder.setData(ByteString.copyFrom(payload));
+        itemBuilder.setFlag(flag);
+        itemBuilder.setCheckSum(-1);
+        if (TStringUtils.isNotBlank(message.getMsgType())) {
+            itemBuilder.setMsgType(message.getMsgType());
+        }
+        if (TStringUtils.isNotBlank(message.getMsgTime())) {
+            itemBuilder.setMsgTime(message.getMsgTime());
+        }
+        return itemBuilder.build();
+    }
+
+    /**
+     * Compress the messages in [startIndex, endIndex) as one batch record
+     *
+     * @param messages     the messages of the request
+     * @param payloads     the encoded payloads of the messages
+     * @param startIndex   the index of the first message
+     * @param endIndex     the index after the last message
+     * @return             the batch record item, null if the compression doesn't reduce the size
+     */
+    private ClientBroker.BatchMessageItem createBatchRecordItem(final List<Message> messages,
+                                                               final List<byte[]> payloads,
+                                                               int startIndex, int endIndex) {
+        List<Tuple2<Integer, byte[]>> batchMessages = new ArrayList<>(endIndex - startIndex);
+        for (int i = startIndex; i < endIndex; i++) {
+            batchMessages.add(new Tuple2<>(
+                    MessageFlagUtils.getFlag(messages.get(i)), payloads.get(i)));
+        }
+        byte[] compressed = compressPayload(MessageBatchUtils.encode(batchMessages));
+        if (compressed == null) {
+            return null;
+        }
+        final Message message = messages.get(startIndex);
+        ClientBroker.BatchMessageItem.Builder itemBuilder =
+                ClientBroker.BatchMessageItem.newBuilder();
+        itemBuilder.setData(ByteString.copyFrom(compressed));
+        itemBuilder.setFlag(MessageFlagUtils.setCompressType(
+                MessageFlagUtils.setBatchRecord(0), producerConfig.getCompressType()));
+        itemBuilder.setCheckSum(-1);
+        itemBuilder.setMsgCount(endIndex - startIndex);
+        if (TStringUtils.isNotBlank(message.getMsgType())) {
+            itemBuilder.setMsgType(message.getMsgType());
+        }
+        if (TStringUtils.isNotBlank(message.getMsgTime())) {
+            itemBuilder.setMsgTime(message.getMsgTime());
+        }
+        return itemBuilder.build();
+    }
+
+    private MessageSentResult buildBatchMsgSentResult(final long dltTime,
+                                                      final Message message,
+                                                      final Partition partition,
+                                                      final ClientBroker.SendMessageBatchResponseB2P response,
+                                                      final int itemIndex) {
+        // the items before the count of returned ids are appended
+        if (itemIndex < response.getMessageIdsCount()) {
+            producerManager.getClientMetrics().bookSuccSendMsg(dltTime,
+                    message.getTopic(), partition.getPartitionKey(), message.getData().length);
+            return new MessageSentResult(true, TErrCodeConstants.SUCCESS, "Ok!",
+                    message, response.getMessageIds(itemIndex), partition,
+                    response.getAppendTime(), response.getAppendOffsets(itemIndex));
+        } else {
+            int errCode = response.getErrCode() == TErrCodeConstants.SUCCESS
+                    ? TErrCodeConstants.INTERNAL_SERVER_ERROR : response.getErrCode();
+            producerManager.getClientMetrics().bookFailRpcCall(errCode);
+            return new MessageSentResult(false, errCode, response.getErrMsg(),
+                    message, TBaseConstants.META_VALUE_UNDEFINED, partition);
+        }
+    }
+
     private ClientBroker.SendMessageRequestP2B createSendMessageRequest(Partition partition,
                                                                         Message message) {
         ClientBroker.SendMessageRequestP2B.Builder builder =
@@ -335,8 +670,15 @@ public class SimpleMessageProducer implements MessageProducer {
         builder.setClientId(this.producerManager.getProducerId());
         builder.setTopicName(partition.getTopic());
         builder.setPartitionId(partition.getPartitionId());
-        builder.setData(ByteString.copyFrom(encodePayload(message)));
-        builder.setFlag(MessageFlagUtils.getFlag(message));
+        int flag = MessageFlagUtils.getFlag(message);
+        byte[] payload = encodePayload(message);
+        byte[] compressed = compressPayload(payload);
+        if (compressed != null) {
+            payload = compressed;
+            flag = MessageFlagUtils.setCompressType(flag, producerConfig.getCompressType());
+        }
+        builder.setData(ByteString.copyFrom(payload));
+        builder.setFlag(flag);
         builder.setSentAddr(this.producerManager.getProducerAddrId());
         builder.setCheckSum(-1);
         if (TStringUtils.isNotBlank(message.getMsgType())) {
@@ -364,6 +706,31 @@ public class SimpleMessageProducer implements MessageProducer {
         return buffer.array();
     }
 
+    /**
+     * Compress the encoded payload with the configured compress type
+     *
+     * @param payload   the encoded payload
+     * @return          the compressed payload, null if not compressed
+     */
+    private byte[] compressPayload(final byte[] payload) {
+        if (producerConfig.getCompressType() == CompressType.NONE
+                || payload.length < producerConfig.getCompressMinSize()) {
+            return null;
+        }
+        try {
+            byte[] compressed =
+                    MessageCompressUtils.compress(producerConfig.getCompressType(), payload);
+            // keep the original payload if the compression doesn't reduce the size
+            if (compressed.length >= payload.length) {
+                return null;
+            }
+            return compressed;
+        } catch (Throwable e) {
+            logger.warn("[Compress] compress payload failure, send the original payload", e);
+            return null;
+        }
+    }
+
     private MessageSentResult buildMsgSentResult(final long dltTime,
                                                  final Message message,
                                                  final Partition partition,
@@ -411,6 +778,13 @@ public class SimpleMessageProducer implements MessageProducer {
                     .append("Not found available partition for topic: ")
                     .append(message.getTopic()).toString());
         }
+        // steer the asynchronous send only if the partition is chosen by the default router
+        if (this.inFlightWindows != null
+                && clazz == BrokerWriteService.AsyncService.class
+                && this.partitionRouter.getClass() == RoundRobinPartitionRouter.class) {
+            partition = this.inFlightWindows.steerPartition(
+                    partition, partList, this.brokerRcvQltyStats);
+        }
         if (rpcServiceFactory.isServiceEmpty()) {
             return partition;
         }
@@ -33,6 +33,8 @@ public interface BrokerRcvQltyStats {
 
     void addReceiveStatistic(int brokerId, boolean isSuccess);
 
+    long getBrokerDelayedMsgCount(int brokerId);
+
     void removeUnRegisteredBroker(List<Integer> registeredBrokerIdList);
 
     void stopBrokerStatistic();
@@ -421,6 +421,18 @@ public class DefaultBrokerRcvQltyStats implements BrokerRcvQltyStats {
         }
     }
 
+    /**
+     * Get the count of the sent requests not yet responded of a broker.
+     *
+     * @param brokerId   the broker id
+     * @return the delayed request count
+     */
+    @Override
+    public long getBrokerDelayedMsgCount(int brokerId) {
+        AtomicLong curBrokerNum = brokerCurSentReqNum.get(brokerId);
+        return curBrokerNum == null ? 0L : curBrokerNum.get();
+    }
+
     @Override
     public void stopBrokerStatistic() {
         if (this.statusId.get() != 0) {
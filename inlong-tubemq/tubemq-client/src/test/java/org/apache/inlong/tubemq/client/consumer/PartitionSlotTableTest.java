@@ -0,0 +1,161 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.client.consumer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import io.netty.util.Timeout;
+import java.util.List;
+import org.apache.inlong.tubemq.corebase.TBaseConstants;
+import org.apache.inlong.tubemq.corebase.cluster.BrokerInfo;
+import org.apache.inlong.tubemq.corebase.policies.FlowCtrlRuleHandler;
+import org.junit.Test;
+
+public class PartitionSlotTableTest {
+
+    private final FlowCtrlRuleHandler groupFlowCtrlRuleHandler = new FlowCtrlRuleHandler(false);
+    private final FlowCtrlRuleHandler defFlowCtrlRuleHandler = new FlowCtrlRuleHandler(true);
+    private final BrokerInfo brokerInfo = new BrokerInfo(1, "127.0.0.1", 18080);
+
+    @Test
+    public void testReadyAndUse() {
+        PartitionSlotTable slotTable = new PartitionSlotTable();
+        PartitionExt part1 = newPartition(1);
+        PartitionExt part2 = newPartition(2);
+        assertEquals(0, slotTable.allocSlot(part1));
+        assertEquals(1, slotTable.allocSlot(part2));
+        assertTrue(slotTable.offerReady(part1));
+        assertFalse(slotTable.offerReady(part1));
+        assertTrue(slotTable.offerReady(part2));
+        // the removed ready partition is skipped when polled
+        assertTrue(slotTable.removeReady(part1.getSlotId()));
+        assertFalse(slotTable.isReady(part1.getSlotId()));
+        assertEquals(part2, slotTable.pollReady());
+        assertNull(slotTable.pollReady());
+        assertFalse(slotTable.hasReady());
+        // in use with token
+        assertTrue(slotTable.tryUse(part2, 100L));
+        assertFalse(slotTable.tryUse(part2, 200L));
+        assertTrue(slotTable.hasUsed());
+        assertEquals(100L, slotTable.getUsedToken(part2.getSlotId()));
+        assertFalse(slotTable.releaseUse(part2.getSlotId(), 200L));
+        assertTrue(slotTable.releaseUse(part2.getSlotId(), 100L));
+        assertFalse(slotTable.hasUsed());
+        // ready again after released
+        assertTrue(slotTable.offerReady(part1));
+        assertEquals(part1, slotTable.pollReady());
+    }
+
+    @Test
+    public void testSlotReuse() {
+        PartitionSlotTable slotTable = new PartitionSlotTable();
+        PartitionExt part1 = newPartition(1);
+        int slotId = slotTable.allocSlot(part1);
+        slotTable.updOffsetInfo(part1, 10L, 20L);
+        assertEquals(10L, slotTable.getCurrOffset(slotId));
+        assertEquals(20L, slotTable.getMaxOffset(slotId));
+        slotTable.offerReady(part1);
+        slotTable.tryUse(part1, 100L);
+        slotTable.freeSlot(slotId);
+        assertFalse(slotTable.isSlotOwner(part1));
+        assertEquals(-1, part1.getSlotId());
+        assertFalse(slotTable.hasUsed());
+        assertFalse(slotTable.hasReady());
+        // the freed slot is reused with a clean state
+        PartitionExt part2 = newPartition(2);
+        assertEquals(slotId, slotTable.allocSlot(part2));
+        assertEquals(TBaseConstants.META_VALUE_UNDEFINED, slotTable.getCurrOffset(slotId));
+        assertEquals(0L, slotTable.getUsedToken(slotId));
+        assertTrue(slotTable.offerReady(part2));
+        // the queued entry of the removed partition is skipped
+        assertEquals(part2, slotTable.pollReady());
+        assertNull(slotTable.pollReady());
+        // the table grows beyond a chunk
+        for (int i = 3; i < 200; i++) {
+            PartitionExt partitionExt = newPartition(i);
+            slotTable.allocSlot(partitionExt);
+            assertTrue(slotTable.offerReady(partitionExt));
+        }
+        int readyCnt = 0;
+        while (slotTable.pollReady() != null) {
+            readyCnt++;
+        }
+        assertEquals(197, readyCnt);
+    }
+
+    @Test
+    public void testStaleOwner() {
+        PartitionSlotTable slotTable = new PartitionSlotTable();
+        PartitionExt part1 = newPartition(1);
+        int slotId = slotTable.allocSlot(part1);
+        slotTable.freeSlot(slotId);
+        PartitionExt part2 = newPartition(2);
+        assertEquals(slotId, slotTable.allocSlot(part2));
+        // the removed partition can not change the state of the reused slot
+        assertFalse(slotTable.tryUse(part1, 100L));
+        assertFalse(slotTable.setTimeout(part1, mock(Timeout.class)));
+        slotTable.updOffsetInfo(part1, 10L, 20L);
+        assertEquals(0L, slotTable.getUsedToken(slotId));
+        assertFalse(slotTable.isTimeWait(slotId));
+        assertEquals(TBaseConstants.META_VALUE_UNDEFINED, slotTable.getCurrOffset(slotId));
+        assertTrue(slotTable.tryUse(part2, 100L));
+        slotTable.updOffsetInfo(part2, 10L, 20L);
+        assertEquals(10L, slotTable.getCurrOffset(slotId));
+    }
+
+    @Test
+    public void testResumeTimeout() {
+        PartitionSlotTable slotTable = new PartitionSlotTable();
+        PartitionExt part1 = newPartition(1);
+        PartitionExt part2 = newPartition(2);
+        PartitionExt part3 = newPartition(3);
+        slotTable.allocSlot(part1);
+        slotTable.allocSlot(part2);
+        slotTable.allocSlot(part3);
+        long curTime = System.currentTimeMillis();
+        assertTrue(slotTable.tryUse(part1, curTime - 10000L));
+        assertTrue(slotTable.tryUse(part2, curTime));
+        // only the slot used longer than the allowed period is released
+        List<PartitionExt> releasedParts = slotTable.releaseTimeoutUse(1000L);
+        assertEquals(1, releasedParts.size());
+        assertEquals(part1, releasedParts.get(0));
+        assertEquals(0L, slotTable.getUsedToken(part1.getSlotId()));
+        assertEquals(curTime, slotTable.getUsedToken(part2.getSlotId()));
+        // only the expired time-wait task is removed
+        Timeout expiredTimeout = mock(Timeout.class);
+        when(expiredTimeout.isExpired()).thenReturn(true);
+        Timeout waitTimeout = mock(Timeout.class);
+        when(waitTimeout.isExpired()).thenReturn(false);
+        assertTrue(slotTable.setTimeout(part1, waitTimeout));
+        assertTrue(slotTable.setTimeout(part3, expiredTimeout));
+        List<PartitionExt> expiredParts = slotTable.removeExpiredTimeouts();
+        assertEquals(1, expiredParts.size());
+        assertEquals(part3, expiredParts.get(0));
+        assertTrue(slotTable.isTimeWait(part1.getSlotId()));
+        assertFalse(slotTable.isTimeWait(part3.getSlotId()));
+    }
+
+    private PartitionExt newPartition(int partitionId) {
+        return new PartitionExt(groupFlowCtrlRuleHandler,
+                defFlowCtrlRuleHandler, brokerInfo, "test", partitionId);
+    }
+}
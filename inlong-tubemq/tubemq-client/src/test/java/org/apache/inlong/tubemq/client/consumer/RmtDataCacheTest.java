@@ -74,4 +74,36 @@ public class RmtDataCacheTest {
         cache.succRspRelease("1:test:2", "test", 1000, true, true, 1000, 2000);
         cache.close();
     }
+
+    @Test
+    public void testPushSelectBrokerParts() {
+        List<Partition> partitions = new ArrayList<>();
+        BrokerInfo brokerInfo1 = new BrokerInfo(1, "127.0.0.1", 18080);
+        BrokerInfo brokerInfo2 = new BrokerInfo(2, "127.0.0.2", 18080);
+        partitions.add(new Partition(brokerInfo1, "test", 1));
+        partitions.add(new Partition(brokerInfo1, "test", 2));
+        partitions.add(new Partition(brokerInfo1, "test", 3));
+        partitions.add(new Partition(brokerInfo2, "test", 1));
+        ConsumerConfig consumerConfig = new ConsumerConfig("127.0.0.1:8069", "testGroup");
+        RmtDataCache cache = new RmtDataCache(consumerConfig, partitions);
+        assertTrue(cache.isPartitionsReady(1000));
+        // only the idle partitions of the broker are selected
+        List<PartitionSelectResult> selectResults = cache.pushSelectBrokerParts(brokerInfo1, 2);
+        assertEquals(2, selectResults.size());
+        for (PartitionSelectResult selectResult : selectResults) {
+            assertEquals(brokerInfo1, selectResult.getPartition().getBroker());
+        }
+        assertEquals(1, cache.pushSelectBrokerParts(brokerInfo1, 10).size());
+        assertEquals(0, cache.pushSelectBrokerParts(brokerInfo1, 10).size());
+        assertEquals(1, cache.pushSelectBrokerParts(brokerInfo2, 10).size());
+        // the released partition can be selected again
+        PartitionSelectResult selectResult = selectResults.get(0);
+        cache.errReqRelease(selectResult.getPartition().getPartitionKey(),
+                selectResult.getUsedToken(), false);
+        selectResults = cache.pushSelectBrokerParts(brokerInfo1, 10);
+        assertEquals(1, selectResults.size());
+        assertEquals(selectResult.getPartition().getPartitionKey(),
+                selectResults.get(0).getPartition().getPartitionKey());
+        cache.close();
+    }
 }
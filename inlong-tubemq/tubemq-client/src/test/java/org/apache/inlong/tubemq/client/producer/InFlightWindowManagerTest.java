@@ -0,0 +1,181 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.client.producer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.inlong.tubemq.client.exception.TubeClientException;
+import org.apache.inlong.tubemq.corebase.Message;
+import org.apache.inlong.tubemq.corebase.TErrCodeConstants;
+import org.apache.inlong.tubemq.corebase.cluster.BrokerInfo;
+import org.apache.inlong.tubemq.corebase.cluster.Partition;
+import org.apache.inlong.tubemq.corerpc.exception.NetworkException;
+import org.junit.Test;
+
+public class InFlightWindowManagerTest {
+
+    @Test
+    public void testFailFastWhenWindowFull() throws Exception {
+        final List<InFlightWindowManager.InFlightRequest> sentRequests = new ArrayList<>();
+        InFlightWindowManager windows =
+                new InFlightWindowManager("test", 10, 2, 0L, 0, 0L, false);
+        Partition partition = new Partition(new BrokerInfo("0:127.0.0.1:18080"), "test", 0);
+        Message message = new Message("test", new byte[]{1, 2, 3});
+        CountCallback callback = new CountCallback();
+        InFlightWindowManager.RequestSender sender = new RecordSender(sentRequests);
+        windows.submit(partition, message, callback, sender);
+        windows.submit(partition, message, callback, sender);
+        assertEquals(2, windows.getInFlightCount());
+        assertEquals(0, windows.getAvailablePermits(partition));
+        try {
+            windows.submit(partition, message, callback, sender);
+            fail("the partition window should be full");
+        } catch (TubeClientException e) {
+            //
+        }
+        // the permit is returned after the request completed
+        sentRequests.get(0).onSent(new MessageSentResult(true,
+                TErrCodeConstants.SUCCESS, "Ok!", message, 1L, partition));
+        assertEquals(1, callback.sentCount.get());
+        assertEquals(1, windows.getInFlightCount());
+        windows.submit(partition, message, callback, sender);
+        assertEquals(3, sentRequests.size());
+        windows.close();
+    }
+
+    @Test
+    public void testOrderedRetry() throws Exception {
+        final List<InFlightWindowManager.InFlightRequest> sentRequests = new ArrayList<>();
+        InFlightWindowManager windows =
+                new InFlightWindowManager("test", 10, 10, 0L, 1, 50L, true);
+        Partition partition = new Partition(new BrokerInfo("0:127.0.0.1:18080"), "test", 0);
+        Message message1 = new Message("test", new byte[]{1});
+        Message message2 = new Message("test", new byte[]{2});
+        CountCallback callback = new CountCallback();
+        InFlightWindowManager.RequestSender sender = new RecordSender(sentRequests);
+        windows.submit(partition, message1, callback, sender);
+        windows.submit(partition, message2, callback, sender);
+        // only one request of the partition is in flight
+        assertEquals(1, sentRequests.size());
+        // the first request fails, it is retried before the later requests
+        sentRequests.get(0).onError(new NetworkException("test failure"));
+        Message message3 = new Message("test", new byte[]{3});
+        windows.submit(partition, message3, callback, sender);
+        assertEquals(1, sentRequests.size());
+        waitSentCount(sentRequests, 2);
+        assertTrue(sentRequests.get(1).getMessage() == message1);
+        assertEquals(1, sentRequests.get(1).getRetries());
+        // the later requests are sent in order after the earlier one completed
+        sentRequests.get(1).onSent(new MessageSentResult(true,
+                TErrCodeConstants.SUCCESS, "Ok!", message1, 1L, partition));
+        assertEquals(3, sentRequests.size());
+        assertTrue(sentRequests.get(2).getMessage() == message2);
+        // the retries are exhausted, the failure is reported to the callback
+        sentRequests.get(2).onError(new NetworkException("test failure"));
+        waitSentCount(sentRequests, 4);
+        assertTrue(sentRequests.get(3).getMessage() == message2);
+        sentRequests.get(3).onError(new NetworkException("test failure"));
+        assertEquals(1, callback.sentCount.get());
+        assertEquals(1, callback.errorCount.get());
+        assertEquals(5, sentRequests.size());
+        assertTrue(sentRequests.get(4).getMessage() == message3);
+        assertEquals(1, windows.getInFlightCount());
+        windows.close();
+    }
+
+    @Test
+    public void testRetryTransientFailure() throws Exception {
+        final List<InFlightWindowManager.InFlightRequest> sentRequests = new ArrayList<>();
+        InFlightWindowManager windows =
+                new InFlightWindowManager("test", 10, 10, 0L, 3, 0L, false);
+        Partition partition = new Partition(new BrokerInfo("0:127.0.0.1:18080"), "test", 0);
+        Message message = new Message("test", new byte[]{1});
+        CountCallback callback = new CountCallback();
+        InFlightWindowManager.RequestSender sender = new RecordSender(sentRequests);
+        windows.submit(partition, message, callback, sender);
+        // the broker overflow is retried
+        sentRequests.get(0).onSent(new MessageSentResult(false,
+                TErrCodeConstants.SERVER_RECEIVE_OVERFLOW, "overflow", message, -1L, partition));
+        waitSentCount(sentRequests, 2);
+        // the failure that can not be recovered by retry is reported at once
+        sentRequests.get(1).onError(new TubeClientException("test failure"));
+        assertEquals(1, callback.errorCount.get());
+        assertEquals(2, sentRequests.size());
+        windows.submit(partition, message, callback, sender);
+        sentRequests.get(2).onSent(new MessageSentResult(false,
+                TErrCodeConstants.BAD_REQUEST, "bad request", message, -1L, partition));
+        assertEquals(1, callback.sentCount.get());
+        assertEquals(3, sentRequests.size());
+        // the timed out request may have been stored by the broker, it is not retried
+        windows.submit(partition, message, callback, sender);
+        sentRequests.get(3).onError(new TimeoutException("test failure"));
+        assertEquals(2, callback.errorCount.get());
+        assertEquals(4, sentRequests.size());
+        assertEquals(0, windows.getInFlightCount());
+        windows.close();
+    }
+
+    private void waitSentCount(List<InFlightWindowManager.InFlightRequest> sentRequests,
+                               int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000L;
+        while (System.currentTimeMillis() < deadline) {
+            synchronized (sentRequests) {
+                if (sentRequests.size() >= count) {
+                    break;
+                }
+            }
+            Thread.sleep(10);
+        }
+        assertEquals(count, sentRequests.size());
+    }
+
+    private static class RecordSender implements InFlightWindowManager.RequestSender {
+        private final List<InFlightWindowManager.InFlightRequest> sentRequests;
+
+        RecordSender(List<InFlightWindowManager.InFlightRequest> sentRequests) {
+            this.sentRequests = sentRequests;
+        }
+
+        @Override
+        public void sendRequest(InFlightWindowManager.InFlightRequest request) {
+            synchronized (sentRequests) {
+                sentRequests.add(request);
+            }
+        }
+    }
+
+    private static class CountCallback implements MessageSentCallback {
+        private final AtomicInteger sentCount = new AtomicInteger(0);
+        private final AtomicInteger errorCount = new AtomicInteger(0);
+
+        @Override
+        public void onMessageSent(MessageSentResult result) {
+            sentCount.incrementAndGet();
+        }
+
+        @Override
+        public void onException(Throwable e) {
+            errorCount.incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,83 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.client.producer;
+
+import static org.junit.Assert.assertEquals;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.inlong.tubemq.corebase.Message;
+import org.apache.inlong.tubemq.corebase.cluster.BrokerInfo;
+import org.apache.inlong.tubemq.corebase.cluster.Partition;
+import org.junit.Test;
+
+public class MessageAccumulatorTest {
+
+    @Test
+    public void testAppendAndClose() {
+        final List<Integer> sentBatchSizes = new ArrayList<>();
+        MessageAccumulator accumulator = new MessageAccumulator("test", 3,
+                1024, 60000L, new MessageAccumulator.BatchSender() {
+                    @Override
+                    public void sendBatch(Partition partition, List<Message> messages,
+                                          List<MessageSentCallback> callbacks) {
+                        synchronized (sentBatchSizes) {
+                            sentBatchSizes.add(messages.size());
+                        }
+                    }
+                });
+        Partition partition = new Partition(new BrokerInfo("0:127.0.0.1:18080"), "test", 0);
+        Message message = new Message("test", new byte[]{1, 2, 3});
+        // the batch is sent when reach the max message count
+        for (int i = 0; i < 4; i++) {
+            accumulator.append(partition, message, 3, null);
+        }
+        assertEquals(1, sentBatchSizes.size());
+        assertEquals(3, sentBatchSizes.get(0).intValue());
+        assertEquals(1, accumulator.getPendingBatchCount());
+        // the pending batch is sent when close
+        accumulator.close();
+        assertEquals(2, sentBatchSizes.size());
+        assertEquals(1, sentBatchSizes.get(1).intValue());
+        assertEquals(0, accumulator.getPendingBatchCount());
+    }
+
+    @Test
+    public void testAppendOverMaxDataSize() {
+        final List<Integer> sentBatchSizes = new ArrayList<>();
+        MessageAccumulator accumulator = new MessageAccumulator("test", 100,
+                10, 60000L, new MessageAccumulator.BatchSender() {
+                    @Override
+                    public void sendBatch(Partition partition, List<Message> messages,
+                                          List<MessageSentCallback> callbacks) {
+                        synchronized (sentBatchSizes) {
+                            sentBatchSizes.add(messages.size());
+                        }
+                    }
+                });
+        Partition partition = new Partition(new BrokerInfo("0:127.0.0.1:18080"), "test", 0);
+        Message message = new Message("test", new byte[]{1, 2, 3, 4});
+        accumulator.append(partition, message, 4, null);
+        accumulator.append(partition, message, 4, null);
+        // the third message can't be held by the current batch
+        accumulator.append(partition, message, 4, null);
+        assertEquals(1, sentBatchSizes.size());
+        assertEquals(2, sentBatchSizes.get(0).intValue());
+        accumulator.close();
+        assertEquals(2, sentBatchSizes.size());
+    }
+}
@@ -80,8 +80,23 @@ public class TBaseConstants {
 
     public static final long INDEX_MSG_UNIT_SIZE = 28;
 
+    public static final int META_MAX_BATCH_MESSAGE_COUNT = 1000;
+    public static final int META_MAX_BATCH_FETCH_PARTITION_COUNT = 100;
+    public static final int META_MAX_BATCH_FETCH_TRANSFER_SIZE = 8 * META_MB_UNIT_SIZE;
+
     public static final long CFG_DEF_META_FORCE_UPDATE_PERIOD = 3 * 60 * 1000;
     public static final long CFG_MIN_META_FORCE_UPDATE_PERIOD = 1 * 60 * 1000;
     public static final long CFG_STATS_MIN_SNAPSHOT_PERIOD_MS = 2000;
 
+    // the stored message header layout of the broker, shared by the broker
+    // and the client that parses the raw stored messages
+    public static final int STORE_DATA_PREFX_LEN = 48;
+    public static final int STORE_DATA_HEADER_LEN = STORE_DATA_PREFX_LEN + 4;
+    public static final int STORE_HEADER_POS_LENGTH = 0;
+    public static final int STORE_HEADER_POS_DATATYPE = 4;
+    public static final int STORE_HEADER_POS_CHECKSUM = 8;
+    public static final int STORE_HEADER_POS_MSGID = 40;
+    public static final int STORE_HEADER_POS_MSGFLAG = 48;
+    public static final int STORE_DATA_TOKER_BEGIN_VALUE = 0x2C998B8;
+
 }
@@ -22,7 +22,6 @@ import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
 import java.util.ArrayList;
-import java.util.Calendar;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
@@ -144,9 +143,9 @@ public class FlowCtrlRuleHandler {
      * @return FlowCtrlResult  current flow control policy
      */
     public FlowCtrlResult getCurDataLimit(long lastDataDlt) {
-        Calendar rightNow = Calendar.getInstance(timeZone);
-        int hour = rightNow.get(Calendar.HOUR_OF_DAY);
-        int minu = rightNow.get(Calendar.MINUTE);
+        int minuteOfDay = getMinuteOfDay(System.currentTimeMillis());
+        int hour = minuteOfDay / 60;
+        int minu = minuteOfDay % 60;
         int curTime = hour * 100 + minu;
         if (lastDataDlt < this.minDataLimitDlt.get()
                 || curTime < this.dataLimitStartTime.get()
@@ -172,6 +171,18 @@ public class FlowCtrlRuleHandler {
         return null;
     }
 
+    /**
+     * Get the minute of the day in the rule time zone, computed from the
+     * zone offset, to avoid creating a Calendar on the fetch path
+     *
+     * @param currTime   the current time in milliseconds
+     * @return           the minute of the day
+     */
+    private int getMinuteOfDay(long currTime) {
+        long localTime = currTime + timeZone.getOffset(currTime);
+        return (int) ((localTime / 60000L) % 1440L);
+    }
+
     public int getNormFreqInMs() {
         return this.filterCtrlItem.getFreqLtInMs();
     }
@@ -0,0 +1,72 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.corebase.utils;
+
+/**
+ * The compression codec of the message payload, the value is kept in the message flag.
+ */
+public enum CompressType {
+    /**
+     * Not compressed.
+     * */
+    NONE(0, "none"),
+    /**
+     * Compressed by Snappy.
+     * */
+    SNAPPY(1, "snappy"),
+    /**
+     * Compressed by LZ4.
+     * */
+    LZ4(2, "lz4"),
+    /**
+     * Compressed by Zstandard.
+     * */
+    ZSTD(3, "zstd");
+
+    private final int value;
+    private final String description;
+
+    CompressType(int value, String description) {
+        this.value = value;
+        this.description = description;
+    }
+
+    /**
+     * Get the compress type of the value
+     *
+     * @param value    the value of the compress type
+     * @return         the compress type, null if not defined
+     */
+    public static CompressType valueOf(int value) {
+        for (CompressType compressType : CompressType.values()) {
+            if (compressType.getValue() == value) {
+                return compressType;
+            }
+        }
+        return null;
+    }
+
+    public int getValue() {
+        return value;
+    }
+
+    public String getDesc() {
+        return description;
+    }
+
+}
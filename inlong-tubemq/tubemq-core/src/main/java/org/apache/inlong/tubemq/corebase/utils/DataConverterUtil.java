@@ -17,6 +17,8 @@
 
 package org.apache.inlong.tubemq.corebase.utils;
 
+import com.google.protobuf.ByteString;
+import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
@@ -34,11 +36,14 @@ import org.apache.inlong.tubemq.corebase.cluster.Partition;
 import org.apache.inlong.tubemq.corebase.cluster.SubscribeInfo;
 import org.apache.inlong.tubemq.corebase.cluster.TopicInfo;
 import org.apache.inlong.tubemq.corebase.protobuf.generated.ClientBroker;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * Tube meta info converter tools
  */
 public class DataConverterUtil {
+    private static final Logger logger = LoggerFactory.getLogger(DataConverterUtil.class);
 
     /**
      * convert string info to @link SubscribeInfo
@@ -206,45 +211,134 @@ public class DataConverterUtil {
         }
         List<Message> messageList = new ArrayList<>(transferedMessageList.size());
         for (ClientBroker.TransferedMessage trsMessage : transferedMessageList) {
-            final int flag = trsMessage.getFlag();
-            int dataCheckSum = trsMessage.getCheckSum();
-            final ByteBuffer payloadData = ByteBuffer.allocate(trsMessage.getPayLoadData().size());
-            payloadData.put(trsMessage.getPayLoadData().toByteArray());
-            payloadData.flip();
-            int payloadDataLen = payloadData.array().length;
-            int currentChecksum = CheckSum.crc32(payloadData.array());
-            if (dataCheckSum != currentChecksum) {
-                continue;
-            }
-            int readPos = 0;
-            String attribute = null;
-            if (MessageFlagUtils.hasAttribute(flag)) {
-                if (payloadDataLen < 4) {
-                    continue;
-                }
-                final int attrLen = payloadData.getInt(0);
-                payloadDataLen -= 4;
-                readPos += 4;
-                if (attrLen > payloadDataLen) {
-                    continue;
+            addMessages(topicName, trsMessage.getMessageId(),
+                    trsMessage.getFlag(), trsMessage.getCheckSum(),
+                    trsMessage.getPayLoadData().toByteArray(), messageList);
+        }
+        return messageList;
+    }
+
+    /**
+     * convert a list of raw message blocks with topicName to a list of @link Message,
+     * each block contains one or more continuous messages in the broker's storage format
+     *
+     * @param topicName        the topic name
+     * @param rawMessageList   the raw message blocks
+     * @param messageList      the list to append the converted messages
+     */
+    public static void convertRawMessage(final String topicName,
+                                         List<ByteString> rawMessageList,
+                                         List<Message> messageList) {
+        if (rawMessageList == null || rawMessageList.isEmpty()) {
+            return;
+        }
+        for (ByteString rawMessages : rawMessageList) {
+            ByteBuffer dataBuffer = rawMessages.asReadOnlyByteBuffer();
+            int readPos = dataBuffer.position();
+            while (dataBuffer.limit() - readPos >= TBaseConstants.STORE_DATA_HEADER_LEN) {
+                final int msgLen = dataBuffer.getInt(readPos);
+                final int msgToken = dataBuffer.getInt(readPos + TBaseConstants.STORE_HEADER_POS_DATATYPE);
+                final int payLoadLen = msgLen - TBaseConstants.STORE_DATA_PREFX_LEN;
+                if ((msgToken != TBaseConstants.STORE_DATA_TOKER_BEGIN_VALUE)
+                        || (payLoadLen <= 0)
+                        || (payLoadLen > dataBuffer.limit() - readPos - TBaseConstants.STORE_DATA_HEADER_LEN)) {
+                    break;
                 }
-                if (attrLen > 0) {
-                    final byte[] attrData = new byte[attrLen];
-                    System.arraycopy(payloadData.array(), readPos, attrData, 0, attrLen);
-                    try {
-                        attribute = new String(attrData, TBaseConstants.META_DEFAULT_CHARSET_NAME);
-                    } catch (final UnsupportedEncodingException e) {
-                        throw new RuntimeException(e);
-                    }
-                    readPos += attrLen;
-                    payloadDataLen -= attrLen;
+                final byte[] payLoadData = new byte[payLoadLen];
+                dataBuffer.position(readPos + TBaseConstants.STORE_DATA_HEADER_LEN);
+                dataBuffer.get(payLoadData);
+                addMessages(topicName,
+                        dataBuffer.getLong(readPos + TBaseConstants.STORE_HEADER_POS_MSGID),
+                        dataBuffer.getInt(readPos + TBaseConstants.STORE_HEADER_POS_MSGFLAG),
+                        dataBuffer.getInt(readPos + TBaseConstants.STORE_HEADER_POS_CHECKSUM),
+                        payLoadData, messageList);
+                readPos += TBaseConstants.STORE_DATA_HEADER_LEN + payLoadLen;
+            }
+            if (readPos < dataBuffer.limit()) {
+                // a malformed or truncated record, the rest of the region is not parsed
+                logger.warn(new StringBuilder(512)
+                        .append("[Data Convert] stop parsing raw messages of topic ")
+                        .append(topicName).append(" at a malformed record, position=")
+                        .append(readPos).append(", unparsed bytes=")
+                        .append(dataBuffer.limit() - readPos).toString());
+            }
+        }
+    }
+
+    private static void addMessages(final String topicName, long messageId, int flag,
+                                    int dataCheckSum, byte[] payloadBytes,
+                                    List<Message> messageList) {
+        int currentChecksum = CheckSum.crc32(payloadBytes);
+        if (dataCheckSum != currentChecksum) {
+            return;
+        }
+        if (!MessageFlagUtils.isBatchRecord(flag)) {
+            Message message = buildMessage(topicName, messageId, flag, payloadBytes);
+            if (message != null) {
+                messageList.add(message);
+            }
+            return;
+        }
+        // split the batch record, its messages share the message id of the record
+        List<Tuple2<Integer, byte[]>> batchMessages;
+        try {
+            batchMessages = MessageBatchUtils.decode(flag, payloadBytes);
+        } catch (IOException e) {
+            return;
+        }
+        for (Tuple2<Integer, byte[]> batchMessage : batchMessages) {
+            Message message = buildMessage(topicName, messageId,
+                    batchMessage.getF0(), batchMessage.getF1());
+            if (message != null) {
+                messageList.add(message);
+            }
+        }
+    }
+
+    private static Message buildMessage(final String topicName, long messageId,
+                                        int flag, byte[] payloadBytes) {
+        // the stored payload is compressed by the producer, decompress it
+        if (MessageFlagUtils.isCompressed(flag)) {
+            CompressType compressType = MessageFlagUtils.getCompressType(flag);
+            if (compressType == null) {
+                return null;
+            }
+            try {
+                payloadBytes = MessageCompressUtils.decompress(compressType, payloadBytes);
+            } catch (IOException e) {
+                return null;
+            }
+            flag = MessageFlagUtils.setCompressType(flag, CompressType.NONE);
+        }
+        final ByteBuffer payloadData = ByteBuffer.wrap(payloadBytes);
+        int payloadDataLen = payloadData.array().length;
+        int readPos = 0;
+        String attribute = null;
+        if (MessageFlagUtils.hasAttribute(flag)) {
+            if (payloadDataLen < 4) {
+                return null;
+            }
+            final int attrLen = payloadData.getInt(0);
+            payloadDataLen -= 4;
+            readPos += 4;
+            if (attrLen > payloadDataLen) {
+                return null;
+            }
+            if (attrLen > 0) {
+                final byte[] attrData = new byte[attrLen];
+                System.arraycopy(payloadData.array(), readPos, attrData, 0, attrLen);
+                try {
+                    attribute = new String(attrData, TBaseConstants.META_DEFAULT_CHARSET_NAME);
+                } catch (final UnsupportedEncodingException e) {
+                    throw new RuntimeException(e);
                 }
+                readPos += attrLen;
+                payloadDataLen -= attrLen;
             }
-            final byte[] payload = new byte[payloadDataLen];
-            System.arraycopy(payloadData.array(), readPos, payload, 0, payloadDataLen);
-            messageList.add(new MessageExt(trsMessage.getMessageId(), topicName, payload, attribute, flag));
         }
-        return messageList;
+        final byte[] payload = new byte[payloadDataLen];
+        System.arraycopy(payloadData.array(), readPos, payload, 0, payloadDataLen);
+        return new MessageExt(messageId, topicName, payload, attribute, flag);
     }
 
 }
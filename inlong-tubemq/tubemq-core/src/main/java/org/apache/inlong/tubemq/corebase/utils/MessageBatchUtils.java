@@ -0,0 +1,97 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.corebase.utils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Batch record encode and decode tools.
+ *
+ * A batch record carries several messages in one stored record, so that the producer
+ * compresses the whole batch as one block. Each message is encoded as the 4 bytes flag,
+ * the 4 bytes payload length and the payload, the payload keeps the attribute prefix
+ * of the single message. The flags of the inner messages are neither compressed
+ * nor batch records, the compress type is set on the flag of the record only.
+ */
+public class MessageBatchUtils {
+    // the length of the flag and payload length prefix of each message
+    public static final int MSG_HEADER_LEN = 8;
+
+    /**
+     * Encode the messages into the payload of a batch record
+     *
+     * @param messages   the flag and payload of the messages
+     * @return           the encoded data
+     */
+    public static byte[] encode(List<Tuple2<Integer, byte[]>> messages) {
+        int totalLen = 0;
+        for (Tuple2<Integer, byte[]> message : messages) {
+            totalLen += MSG_HEADER_LEN + message.getF1().length;
+        }
+        final ByteBuffer buffer = ByteBuffer.allocate(totalLen);
+        for (Tuple2<Integer, byte[]> message : messages) {
+            buffer.putInt(message.getF0());
+            buffer.putInt(message.getF1().length);
+            buffer.put(message.getF1());
+        }
+        return buffer.array();
+    }
+
+    /**
+     * Decompress the payload of a batch record if compressed, and decode the messages
+     *
+     * @param flag           the flag of the record
+     * @param payload        the stored payload of the record
+     * @return               the flag and payload of the messages
+     * @throws IOException   the exception while decompressing, or the data is illegal
+     */
+    public static List<Tuple2<Integer, byte[]>> decode(int flag,
+                                                       byte[] payload) throws IOException {
+        if (MessageFlagUtils.isCompressed(flag)) {
+            CompressType compressType = MessageFlagUtils.getCompressType(flag);
+            if (compressType == null) {
+                throw new IOException("Unsupported compress type of flag " + flag);
+            }
+            payload = MessageCompressUtils.decompress(compressType, payload);
+        }
+        final ByteBuffer buffer = ByteBuffer.wrap(payload);
+        List<Tuple2<Integer, byte[]>> messages = new ArrayList<>();
+        while (buffer.hasRemaining()) {
+            if (buffer.remaining() < MSG_HEADER_LEN) {
+                throw new IOException("Illegal batch record, truncated message header");
+            }
+            final int msgFlag = buffer.getInt();
+            final int msgLen = buffer.getInt();
+            if (MessageFlagUtils.isCompressed(msgFlag)
+                    || MessageFlagUtils.isBatchRecord(msgFlag)) {
+                throw new IOException("Illegal batch record, nested message flag " + msgFlag);
+            }
+            if (msgLen <= 0 || msgLen > buffer.remaining()) {
+                throw new IOException("Illegal batch record, message length " + msgLen
+                        + " out of range (0, " + buffer.remaining() + "]");
+            }
+            final byte[] msgData = new byte[msgLen];
+            buffer.get(msgData);
+            messages.add(new Tuple2<>(msgFlag, msgData));
+        }
+        return messages;
+    }
+}
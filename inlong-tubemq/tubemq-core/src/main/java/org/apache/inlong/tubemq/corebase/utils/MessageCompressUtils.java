@@ -0,0 +1,153 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.corebase.utils;
+
+import com.github.luben.zstd.Zstd;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4SafeDecompressor;
+import org.apache.inlong.tubemq.corebase.TBaseConstants;
+import org.xerial.snappy.Snappy;
+
+/**
+ * Message payload compress and decompress tools.
+ *
+ * The LZ4 block doesn't contain the original length, so the compressed data of LZ4
+ * is prefixed with the 4 bytes original length; Snappy and Zstd data keep their own format.
+ */
+public class MessageCompressUtils {
+    // the max allowed length of the decompressed payload
+    public static final int MAX_DECOMPRESSED_LENGTH =
+            TBaseConstants.META_MAX_MESSAGE_DATA_SIZE_UPPER_LIMIT
+                    + TBaseConstants.META_MAX_MESSAGE_HEADER_SIZE;
+    // the default compression level of Zstd
+    private static final int ZSTD_COMPRESS_LEVEL = 3;
+    private static final LZ4Factory LZ4_FACTORY = LZ4Factory.fastestInstance();
+
+    /**
+     * Compress the payload data
+     *
+     * @param compressType   the compress type
+     * @param data           the data to compress
+     * @return               the compressed data
+     * @throws IOException   the exception while compressing
+     */
+    public static byte[] compress(CompressType compressType, byte[] data) throws IOException {
+        switch (compressType) {
+            case SNAPPY:
+                return Snappy.compress(data);
+
+            case LZ4: {
+                LZ4Compressor compressor = LZ4_FACTORY.fastCompressor();
+                byte[] compressed =
+                        new byte[4 + compressor.maxCompressedLength(data.length)];
+                ByteBuffer.wrap(compressed).putInt(data.length);
+                int compressedLen = compressor.compress(data, 0,
+                        data.length, compressed, 4, compressed.length - 4);
+                byte[] result = new byte[4 + compressedLen];
+                System.arraycopy(compressed, 0, result, 0, result.length);
+                return result;
+            }
+
+            case ZSTD:
+                return Zstd.compress(data, ZSTD_COMPRESS_LEVEL);
+
+            case NONE:
+            default:
+                return data;
+        }
+    }
+
+    /**
+     * Decompress the payload data
+     *
+     * @param compressType   the compress type
+     * @param data           the data to decompress
+     * @return               the decompressed data
+     * @throws IOException   the exception while decompressing, or the data is illegal
+     */
+    public static byte[] decompress(CompressType compressType, byte[] data) throws IOException {
+        switch (compressType) {
+            case SNAPPY: {
+                checkDecompressedLength(compressType, Snappy.uncompressedLength(data));
+                return Snappy.uncompress(data);
+            }
+
+            case LZ4: {
+                if (data.length < 4) {
+                    throw new IOException("Illegal lz4 data, data length less than 4");
+                }
+                int originalLen = ByteBuffer.wrap(data).getInt();
+                checkDecompressedLength(compressType, originalLen);
+                byte[] result = new byte[originalLen];
+                // the safe decompressor never reads or writes out of the bounds,
+                // the length prefix of the untrusted data is checked against the output
+                LZ4SafeDecompressor decompressor = LZ4_FACTORY.safeDecompressor();
+                int decompressedLen;
+                try {
+                    decompressedLen = decompressor.decompress(data, 4,
+                            data.length - 4, result, 0, originalLen);
+                } catch (Throwable e) {
+                    throw new IOException("Illegal lz4 data", e);
+                }
+                if (decompressedLen != originalLen) {
+                    throw new IOException("Illegal lz4 data, decompressed length mismatch");
+                }
+                return result;
+            }
+
+            case ZSTD: {
+                long originalLen;
+                try {
+                    originalLen = Zstd.decompressedSize(data);
+                } catch (Throwable e) {
+                    throw new IOException("Illegal zstd data", e);
+                }
+                checkDecompressedLength(compressType, originalLen);
+                byte[] result;
+                // the corrupt data is reported as ZstdException, a RuntimeException
+                try {
+                    result = Zstd.decompress(data, (int) originalLen);
+                } catch (Throwable e) {
+                    throw new IOException("Illegal zstd data", e);
+                }
+                if (result.length != originalLen) {
+                    throw new IOException("Illegal zstd data, decompressed length mismatch");
+                }
+                return result;
+            }
+
+            case NONE:
+            default:
+                return data;
+        }
+    }
+
+    private static void checkDecompressedLength(CompressType compressType,
+                                                long originalLen) throws IOException {
+        if (originalLen <= 0 || originalLen > MAX_DECOMPRESSED_LENGTH) {
+            throw new IOException(new StringBuilder(512)
+                    .append("Illegal ").append(compressType.getDesc())
+                    .append(" data, decompressed length ").append(originalLen)
+                    .append(" out of range (0, ").append(MAX_DECOMPRESSED_LENGTH)
+                    .append("]").toString());
+        }
+    }
+}
@@ -20,6 +20,11 @@ package org.apache.inlong.tubemq.corebase.utils;
 import org.apache.inlong.tubemq.corebase.Message;
 
 public class MessageFlagUtils {
+    // bit 0 is the attribute flag, bits 1 to 3 are the compress type of the payload,
+    // bit 4 marks the record that carries a batch of messages
+    private static final int FLAG_COMPRESS_TYPE_SHIFT = 1;
+    private static final int FLAG_COMPRESS_TYPE_MASK = 0x7 << FLAG_COMPRESS_TYPE_SHIFT;
+    private static final int FLAG_BATCH_RECORD = 0x1 << 4;
 
     public static int getFlag(final Message message) {
         int flag = 0;
@@ -33,4 +38,46 @@ public class MessageFlagUtils {
         return (flag & 0x1) == 1;
     }
 
+    /**
+     * Set the compress type of the payload into the flag
+     *
+     * @param flag            the message flag
+     * @param compressType    the compress type
+     * @return                the flag with the compress type
+     */
+    public static int setCompressType(final int flag, final CompressType compressType) {
+        return (flag & ~FLAG_COMPRESS_TYPE_MASK)
+                | (compressType.getValue() << FLAG_COMPRESS_TYPE_SHIFT);
+    }
+
+    /**
+     * Get the compress type of the payload from the flag
+     *
+     * @param flag    the message flag
+     * @return        the compress type, null if the type is not supported
+     */
+    public static CompressType getCompressType(final int flag) {
+        return CompressType.valueOf(
+                (flag & FLAG_COMPRESS_TYPE_MASK) >>> FLAG_COMPRESS_TYPE_SHIFT);
+    }
+
+    public static boolean isCompressed(final int flag) {
+        return (flag & FLAG_COMPRESS_TYPE_MASK) != 0;
+    }
+
+    /**
+     * Mark the flag as a batch record, the payload of the record is the
+     * messages encoded by {@link MessageBatchUtils#encode}
+     *
+     * @param flag    the record flag
+     * @return        the flag of the batch record
+     */
+    public static int setBatchRecord(final int flag) {
+        return flag | FLAG_BATCH_RECORD;
+    }
+
+    public static boolean isBatchRecord(final int flag) {
+        return (flag & FLAG_BATCH_RECORD) != 0;
+    }
+
 }
@@ -0,0 +1,121 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.corerpc;
+
+import java.util.List;
+
+/**
+ * The response of a request that is completed later, usually by another thread.
+ *
+ * The processor calls defer() while handling the request and returns without a result,
+ *  then the rpc layer binds a writer to the deferred response instead of writing
+ *  the response, and the response is written once complete() is called.
+ */
+public class DeferredResponse {
+    // the deferred response of the request being processed by current thread
+    private static final ThreadLocal<DeferredResponse> deferredResponse =
+            new ThreadLocal<>();
+    private ResponseWriter writer;
+    private boolean completed = false;
+    private Object result;
+    private List<RawDataRegion> rawDataRegions;
+
+    /**
+     * Defer the response of the request being processed by current thread.
+     *
+     * @return  the deferred response to complete later
+     */
+    public static DeferredResponse defer() {
+        DeferredResponse response = new DeferredResponse();
+        deferredResponse.set(response);
+        return response;
+    }
+
+    /**
+     * Take out and clear the deferred response of current thread.
+     *
+     * @return  the deferred response, null if not deferred
+     */
+    public static DeferredResponse takeDeferred() {
+        DeferredResponse response = deferredResponse.get();
+        deferredResponse.remove();
+        return response;
+    }
+
+    /**
+     * Complete the response
+     *
+     * @param result   the response result
+     * @return         false if the response has been completed
+     */
+    public boolean complete(Object result) {
+        return complete(result, null);
+    }
+
+    /**
+     * Complete the response, the raw data regions are transferred after the result.
+     *
+     * @param result    the response result
+     * @param regions   the raw data regions, released if the response has been completed
+     * @return          false if the response has been completed
+     */
+    public boolean complete(Object result, List<RawDataRegion> regions) {
+        ResponseWriter curWriter;
+        synchronized (this) {
+            if (this.completed) {
+                RawDataRegion.releaseAll(regions);
+                return false;
+            }
+            this.completed = true;
+            this.result = result;
+            this.rawDataRegions = regions;
+            curWriter = this.writer;
+        }
+        if (curWriter != null) {
+            curWriter.write(result, regions);
+        }
+        return true;
+    }
+
+    /**
+     * Bind the writer of the response, the response is written at once if completed.
+     *
+     * @param responseWriter   the response writer
+     */
+    public void bind(ResponseWriter responseWriter) {
+        synchronized (this) {
+            if (this.writer != null) {
+                return;
+            }
+            this.writer = responseWriter;
+            if (!this.completed) {
+                return;
+            }
+        }
+        responseWriter.write(this.result, this.rawDataRegions);
+    }
+
+    public synchronized boolean isCompleted() {
+        return completed;
+    }
+
+    public interface ResponseWriter {
+
+        void write(Object result, List<RawDataRegion> rawDataRegions);
+    }
+}
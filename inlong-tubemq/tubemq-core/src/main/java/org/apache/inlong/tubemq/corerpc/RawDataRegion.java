@@ -0,0 +1,152 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.corerpc;
+
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.WireFormat;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A file range attached to a response, it is transferred from the file channel
+ *  to the network channel directly, without being copied into the heap.
+ *
+ * On the wire the range is appended to the response data as a length-delimited
+ *  field with the given field number, so the peer parses it as a normal
+ *  protobuf bytes field.
+ *
+ * The region holds a reference on the storage file, it is released
+ *  once the transfer completes or fails.
+ */
+public class RawDataRegion {
+    private final int fieldNumber;
+    private final FileChannel channel;
+    private final long position;
+    private final int length;
+    private final ByteBuffer fieldHeader;
+    private final Runnable releaser;
+    private final AtomicBoolean released = new AtomicBoolean(false);
+
+    /**
+     * Initial a raw data region
+     *
+     * @param fieldNumber   the field number of the response message
+     * @param channel       the file channel to transfer from
+     * @param position      the start position in the file
+     * @param length        the data length
+     */
+    public RawDataRegion(int fieldNumber, FileChannel channel,
+                         long position, int length) {
+        this(fieldNumber, channel, position, length, null);
+    }
+
+    /**
+     * Initial a raw data region
+     *
+     * @param fieldNumber   the field number of the response message
+     * @param channel       the file channel to transfer from
+     * @param position      the start position in the file
+     * @param length        the data length
+     * @param releaser      the action to release the reference on the file, may be null
+     */
+    public RawDataRegion(int fieldNumber, FileChannel channel,
+                         long position, int length, Runnable releaser) {
+        this.fieldNumber = fieldNumber;
+        this.releaser = releaser;
+        this.channel = channel;
+        this.position = position;
+        this.length = length;
+        int tagSize = CodedOutputStream.computeTagSize(fieldNumber);
+        int lenSize = CodedOutputStream.computeUInt32SizeNoTag(length);
+        byte[] headerBytes = new byte[tagSize + lenSize];
+        CodedOutputStream output = CodedOutputStream.newInstance(headerBytes);
+        try {
+            output.writeTag(fieldNumber, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+            output.writeUInt32NoTag(length);
+            output.flush();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        this.fieldHeader = ByteBuffer.wrap(headerBytes);
+    }
+
+    public int getFieldNumber() {
+        return fieldNumber;
+    }
+
+    public FileChannel getChannel() {
+        return channel;
+    }
+
+    public long getPosition() {
+        return position;
+    }
+
+    public int getLength() {
+        return length;
+    }
+
+    /**
+     * Get the protobuf field header(tag and length) of this region
+     *
+     * @return  the field header buffer
+     */
+    public ByteBuffer getFieldHeader() {
+        return fieldHeader.duplicate();
+    }
+
+    /**
+     * Get the total serialized size of this region, include the field header
+     *
+     * @return  the serialized size
+     */
+    public int getSerializedSize() {
+        return fieldHeader.limit() + length;
+    }
+
+    /**
+     * Release the reference on the file, only the first call takes effect.
+     */
+    public void release() {
+        if (this.released.compareAndSet(false, true)
+                && this.releaser != null) {
+            this.releaser.run();
+        }
+    }
+
+    public boolean isReleased() {
+        return released.get();
+    }
+
+    /**
+     * Release the regions
+     *
+     * @param regions   the regions to release, may be null
+     */
+    public static void releaseAll(List<RawDataRegion> regions) {
+        if (regions == null) {
+            return;
+        }
+        for (RawDataRegion region : regions) {
+            region.release();
+        }
+    }
+}
@@ -18,6 +18,7 @@
 package org.apache.inlong.tubemq.corerpc;
 
 import java.io.Serializable;
+import java.util.List;
 import org.apache.inlong.tubemq.corerpc.exception.StandbyException;
 import org.apache.inlong.tubemq.corerpc.utils.MixUtils;
 
@@ -37,6 +38,7 @@ public class ResponseWrapper implements Serializable {
     private Object responseData;
     private String errMsg;
     private String stackTrace;
+    private transient List<RawDataRegion> rawDataRegions;
 
     /**
      *  Initial a response wrapper object
@@ -197,4 +199,12 @@ public class ResponseWrapper implements Serializable {
         this.stackTrace = stackTrace;
     }
 
+    public List<RawDataRegion> getRawDataRegions() {
+        return rawDataRegions;
+    }
+
+    public void setRawDataRegions(List<RawDataRegion> rawDataRegions) {
+        this.rawDataRegions = rawDataRegions;
+    }
+
 }
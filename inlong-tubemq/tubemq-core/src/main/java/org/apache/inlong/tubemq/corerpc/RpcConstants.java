@@ -69,6 +69,8 @@ public final class RpcConstants {
     public static final int MAX_FRAME_MAX_LIST_SIZE =
             (int) ((TBaseConstants.META_MAX_MESSAGE_DATA_SIZE_UPPER_LIMIT
                     + TBaseConstants.META_MB_UNIT_SIZE * 8) / RPC_MAX_BUFFER_SIZE);
+    // each raw data region takes 2 items of the frame list
+    public static final int RPC_MAX_RAW_DATA_REGION_COUNT = 1024;
 
     public static final int RPC_FLAG_MSG_TYPE_REQUEST = 0x0;
     public static final int RPC_FLAG_MSG_TYPE_RESPONSE = 0x1;
@@ -106,6 +108,8 @@ public final class RpcConstants {
     public static final int RPC_MSG_MASTER_CONSUMER_REGISTER_V2 = 20;
     public static final int RPC_MSG_MASTER_CONSUMER_HEARTBEAT_V2 = 21;
     public static final int RPC_MSG_MASTER_CONSUMER_GET_PART_META = 22;
+    public static final int RPC_MSG_BROKER_PRODUCER_SENDMESSAGE_BATCH = 23;
+    public static final int RPC_MSG_BROKER_CONSUMER_GETMESSAGE_BATCH = 24;
 
     public static final int MSG_OPTYPE_REGISTER = 31;
     public static final int MSG_OPTYPE_UNREGISTER = 32;
@@ -23,6 +23,8 @@ import java.util.List;
 public class RpcDataPack {
     private int serialNo;
     private List<ByteBuffer> dataLst;
+    // file regions appended after dataLst, only used when sending
+    private List<RawDataRegion> rawDataLst;
 
     public RpcDataPack() {
 
@@ -49,4 +51,24 @@ public class RpcDataPack {
         this.dataLst = dataLst;
     }
 
+    public List<RawDataRegion> getRawDataLst() {
+        return rawDataLst;
+    }
+
+    public void setRawDataLst(List<RawDataRegion> rawDataLst) {
+        this.rawDataLst = rawDataLst;
+    }
+
+    public boolean hasRawData() {
+        return (rawDataLst != null && !rawDataLst.isEmpty());
+    }
+
+    /**
+     * Release the resources the received data list refers to,
+     * the received data list is not readable after released.
+     */
+    public void release() {
+        // the data list is held by the heap buffers
+    }
+
 }
@@ -0,0 +1,123 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.corerpc.benchemark;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.embedded.EmbeddedChannel;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.inlong.tubemq.corerpc.RpcDataPack;
+import org.apache.inlong.tubemq.corerpc.netty.NettyProtocolDecoder;
+import org.apache.inlong.tubemq.corerpc.netty.NettyProtocolEncoder;
+
+/**
+ * Microbenchmark of the RPC frame codec, it reports the heap bytes allocated
+ * and the time cost per encoded and decoded frame.
+ */
+public class RpcCodecBenchmark {
+
+    private final int frameCount;
+    private final int itemCount;
+    private final int itemSize;
+
+    /**
+     * Initial a codec benchmark
+     *
+     * @param frameCount   the frame count of each round
+     * @param itemCount    the data item count of each frame
+     * @param itemSize     the size of each data item
+     */
+    public RpcCodecBenchmark(int frameCount, int itemCount, int itemSize) {
+        this.frameCount = frameCount;
+        this.itemCount = itemCount;
+        this.itemSize = itemSize;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int[] itemSizes = {64, 1024, 64 * 1024};
+        for (int itemSize : itemSizes) {
+            new RpcCodecBenchmark(100000, 2, itemSize).start();
+        }
+    }
+
+    /**
+     * Start benchmark test, the first round warms up the codec
+     */
+    public void start() {
+        ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        if (!(threadMXBean instanceof com.sun.management.ThreadMXBean)) {
+            System.out.println("Thread allocated bytes is not supported by the JVM");
+            return;
+        }
+        com.sun.management.ThreadMXBean allocBean =
+                (com.sun.management.ThreadMXBean) threadMXBean;
+        long threadId = Thread.currentThread().getId();
+        EmbeddedChannel encodeChannel = new EmbeddedChannel(new NettyProtocolEncoder());
+        EmbeddedChannel decodeChannel = new EmbeddedChannel(new NettyProtocolDecoder());
+        List<ByteBuffer> dataLst = new ArrayList<>(itemCount);
+        for (int i = 0; i < itemCount; i++) {
+            dataLst.add(ByteBuffer.wrap(new byte[itemSize]));
+        }
+        for (int round = 0; round < 2; round++) {
+            long encodeBytes = 0L;
+            long decodeBytes = 0L;
+            long encodeNanos = 0L;
+            long decodeNanos = 0L;
+            long startBytes;
+            long startNanos;
+            ByteBuf frameBuf;
+            for (int serialNo = 0; serialNo < frameCount; serialNo++) {
+                // encode the frame
+                startBytes = allocBean.getThreadAllocatedBytes(threadId);
+                startNanos = System.nanoTime();
+                encodeChannel.writeOutbound(new RpcDataPack(serialNo, dataLst));
+                frameBuf = encodeChannel.readOutbound();
+                encodeNanos += System.nanoTime() - startNanos;
+                encodeBytes += allocBean.getThreadAllocatedBytes(threadId) - startBytes;
+                // decode the frame
+                startBytes = allocBean.getThreadAllocatedBytes(threadId);
+                startNanos = System.nanoTime();
+                decodeChannel.writeInbound(frameBuf);
+                RpcDataPack dataPack = decodeChannel.readInbound();
+                decodeNanos += System.nanoTime() - startNanos;
+                decodeBytes += allocBean.getThreadAllocatedBytes(threadId) - startBytes;
+                if (dataPack == null || dataPack.getSerialNo() != serialNo) {
+                    throw new IllegalStateException("Decoded frame mismatch, serialNo is " + serialNo);
+                }
+                dataPack.release();
+            }
+            if (round == 0) {
+                continue;
+            }
+            System.out.println(new StringBuilder(256)
+                    .append("item count=").append(itemCount)
+                    .append(", item size=").append(itemSize)
+                    .append(", frame count=").append(frameCount)
+                    .append(": encode ").append(encodeBytes / frameCount)
+                    .append(" bytes/frame, ").append(encodeNanos / frameCount)
+                    .append(" ns/frame; decode ").append(decodeBytes / frameCount)
+                    .append(" bytes/frame, ").append(decodeNanos / frameCount)
+                    .append(" ns/frame").toString());
+        }
+        encodeChannel.finishAndReleaseAll();
+        decodeChannel.finishAndReleaseAll();
+    }
+}
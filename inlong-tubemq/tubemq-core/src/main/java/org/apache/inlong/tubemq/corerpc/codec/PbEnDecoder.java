@@ -49,8 +49,12 @@ public class PbEnDecoder {
         rpcMethodMap.put("consumerRegisterC2B", RpcConstants.RPC_MSG_BROKER_CONSUMER_REGISTER);
         rpcMethodMap.put("consumerHeartbeatC2B", RpcConstants.RPC_MSG_BROKER_CONSUMER_HEARTBEAT);
         rpcMethodMap.put("getMessagesC2B", RpcConstants.RPC_MSG_BROKER_CONSUMER_GETMESSAGE);
+        rpcMethodMap.put("getMessagesBatchC2B",
+                RpcConstants.RPC_MSG_BROKER_CONSUMER_GETMESSAGE_BATCH);
         rpcMethodMap.put("consumerCommitC2B", RpcConstants.RPC_MSG_BROKER_CONSUMER_COMMIT);
         rpcMethodMap.put("sendMessageP2B", RpcConstants.RPC_MSG_BROKER_PRODUCER_SENDMESSAGE);
+        rpcMethodMap.put("sendMessageBatchP2B",
+                RpcConstants.RPC_MSG_BROKER_PRODUCER_SENDMESSAGE_BATCH);
         rpcMethodMap.put("consumerRegisterC2MV2",
                 RpcConstants.RPC_MSG_MASTER_CONSUMER_REGISTER_V2);
         rpcMethodMap.put("consumerHeartbeatC2MV2",
@@ -127,6 +131,9 @@ public class PbEnDecoder {
                 case RpcConstants.RPC_MSG_BROKER_PRODUCER_SENDMESSAGE: {
                     return ClientBroker.SendMessageRequestP2B.parseFrom(bytes);
                 }
+                case RpcConstants.RPC_MSG_BROKER_PRODUCER_SENDMESSAGE_BATCH: {
+                    return ClientBroker.SendMessageBatchRequestP2B.parseFrom(bytes);
+                }
                 case RpcConstants.RPC_MSG_BROKER_CONSUMER_REGISTER: {
                     return ClientBroker.RegisterRequestC2B.parseFrom(bytes);
                 }
@@ -136,6 +143,9 @@ public class PbEnDecoder {
                 case RpcConstants.RPC_MSG_BROKER_CONSUMER_GETMESSAGE: {
                     return ClientBroker.GetMessageRequestC2B.parseFrom(bytes);
                 }
+                case RpcConstants.RPC_MSG_BROKER_CONSUMER_GETMESSAGE_BATCH: {
+                    return ClientBroker.GetMessageBatchRequestC2B.parseFrom(bytes);
+                }
                 case RpcConstants.RPC_MSG_BROKER_CONSUMER_COMMIT: {
                     return ClientBroker.CommitOffsetRequestC2B.parseFrom(bytes);
                 }
@@ -190,6 +200,9 @@ public class PbEnDecoder {
                 case RpcConstants.RPC_MSG_BROKER_PRODUCER_SENDMESSAGE: {
                     return ClientBroker.SendMessageResponseB2P.parseFrom(bytes);
                 }
+                case RpcConstants.RPC_MSG_BROKER_PRODUCER_SENDMESSAGE_BATCH: {
+                    return ClientBroker.SendMessageBatchResponseB2P.parseFrom(bytes);
+                }
                 case RpcConstants.RPC_MSG_BROKER_CONSUMER_REGISTER: {
                     return ClientBroker.RegisterResponseB2C.parseFrom(bytes);
                 }
@@ -199,6 +212,9 @@ public class PbEnDecoder {
                 case RpcConstants.RPC_MSG_BROKER_CONSUMER_GETMESSAGE: {
                     return ClientBroker.GetMessageResponseB2C.parseFrom(bytes);
                 }
+                case RpcConstants.RPC_MSG_BROKER_CONSUMER_GETMESSAGE_BATCH: {
+                    return ClientBroker.GetMessageBatchResponseB2C.parseFrom(bytes);
+                }
                 case RpcConstants.RPC_MSG_BROKER_CONSUMER_COMMIT: {
                     return ClientBroker.CommitOffsetResponseB2C.parseFrom(bytes);
                 }
@@ -284,6 +300,7 @@ public class PbEnDecoder {
                     case RpcConstants.RPC_MSG_BROKER_CONSUMER_REGISTER:
                     case RpcConstants.RPC_MSG_BROKER_CONSUMER_HEARTBEAT:
                     case RpcConstants.RPC_MSG_BROKER_CONSUMER_GETMESSAGE:
+                    case RpcConstants.RPC_MSG_BROKER_CONSUMER_GETMESSAGE_BATCH:
                     case RpcConstants.RPC_MSG_BROKER_CONSUMER_COMMIT:
                     case RpcConstants.RPC_MSG_BROKER_CONSUMER_CLOSE: {
                         return true;
@@ -303,6 +320,7 @@ public class PbEnDecoder {
                     case RpcConstants.RPC_MSG_BROKER_PRODUCER_REGISTER:
                     case RpcConstants.RPC_MSG_BROKER_PRODUCER_HEARTBEAT:
                     case RpcConstants.RPC_MSG_BROKER_PRODUCER_SENDMESSAGE:
+                    case RpcConstants.RPC_MSG_BROKER_PRODUCER_SENDMESSAGE_BATCH:
                     case RpcConstants.RPC_MSG_BROKER_PRODUCER_CLOSE: {
                         return true;
                     }
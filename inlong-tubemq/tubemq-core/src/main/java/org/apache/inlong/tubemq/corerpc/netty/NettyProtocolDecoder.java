@@ -20,12 +20,9 @@ package org.apache.inlong.tubemq.corerpc.netty;
 import static org.apache.inlong.tubemq.corebase.utils.AddressUtils.getRemoteAddressIP;
 
 import io.netty.buffer.ByteBuf;
-import io.netty.buffer.Unpooled;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelHandlerContext;
-import io.netty.handler.codec.MessageToMessageDecoder;
-import io.netty.util.ReferenceCountUtil;
-import java.nio.ByteBuffer;
+import io.netty.handler.codec.ByteToMessageDecoder;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
@@ -36,7 +33,15 @@ import org.apache.inlong.tubemq.corerpc.exception.UnknownProtocolException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-public class NettyProtocolDecoder extends MessageToMessageDecoder<ByteBuf> {
+/**
+ * Decode the frames into RpcDataPack.
+ *
+ * The received bytes are accumulated by ByteToMessageDecoder, the incomplete
+ * frame stays in the cumulation buffer until more bytes arrive. Each data item
+ * is a retained slice of the cumulation buffer without copy, the consumer calls
+ * {@link RpcDataPack#release()} once the data list is parsed.
+ */
+public class NettyProtocolDecoder extends ByteToMessageDecoder {
     private static final Logger logger = LoggerFactory.getLogger(NettyProtocolDecoder.class);
 
     private static final ConcurrentHashMap<String, AtomicLong> errProtolAddrMap =
@@ -47,17 +52,13 @@ public class NettyProtocolDecoder extends MessageToMessageDecoder<ByteBuf> {
     private static AtomicLong lastSizeTime = new AtomicLong(0);
     private boolean packHeaderRead = false;
     private int listSize;
-    private List<RpcDataPack> rpcDataPackList = new ArrayList<>();
-    private RpcDataPack dataPack;
-    private ByteBuf lastByteBuf;
+    private RetainedDataPack dataPack;
 
     @Override
     protected void decode(ChannelHandlerContext ctx, ByteBuf buffer, List<Object> out) throws Exception {
-        buffer = convertToNewBuf(buffer);
         while (buffer.readableBytes() > 0) {
             if (!packHeaderRead) {
                 if (buffer.readableBytes() < 12) {
-                    saveRemainedByteBuf(buffer);
                     break;
                 }
                 int frameToken = buffer.readInt();
@@ -67,57 +68,35 @@ public class NettyProtocolDecoder extends MessageToMessageDecoder<ByteBuf> {
                 filterIllegalPackageSize(true, tmpListSize,
                         RpcConstants.MAX_FRAME_MAX_LIST_SIZE, ctx.channel());
                 this.listSize = tmpListSize;
-                this.dataPack = new RpcDataPack(serialNo, new ArrayList<>(this.listSize));
+                this.dataPack = new RetainedDataPack(serialNo, this.listSize);
                 this.packHeaderRead = true;
             }
-            // get PackBody
+            // get PackBody, wait until the whole item is received
             if (buffer.readableBytes() < 4) {
-                saveRemainedByteBuf(buffer);
                 break;
             }
-            buffer.markReaderIndex();
-            int length = buffer.readInt();
-            if (buffer.readableBytes() < length) {
-                buffer.resetReaderIndex();
-                saveRemainedByteBuf(buffer);
+            int length = buffer.getInt(buffer.readerIndex());
+            if (buffer.readableBytes() - 4 < length) {
                 break;
             }
-            ByteBuffer bb = ByteBuffer.allocate(length);
-            buffer.readBytes(bb);
-            bb.flip();
-            dataPack.getDataLst().add(bb);
+            buffer.skipBytes(4);
+            dataPack.addItem(buffer.readRetainedSlice(length));
             if (dataPack.getDataLst().size() == listSize) {
                 packHeaderRead = false;
-                rpcDataPackList.add(dataPack);
+                out.add(dataPack);
+                dataPack = null;
             }
         }
-        if (rpcDataPackList.size() > 0) {
-            out.addAll(rpcDataPackList);
-            rpcDataPackList.clear();
-        }
-    }
-
-    private void saveRemainedByteBuf(ByteBuf byteBuf) {
-        if (byteBuf != null && byteBuf.readableBytes() > 0) {
-            lastByteBuf = Unpooled.copiedBuffer(byteBuf);
-        }
     }
 
-    private ByteBuf convertToNewBuf(ByteBuf byteBuf) {
-        ByteBuf newByteBuf = byteBuf;
-        int totalReadBytes = byteBuf.readableBytes();
-        if (lastByteBuf != null) {
-            try {
-                totalReadBytes += lastByteBuf.readableBytes();
-                newByteBuf = Unpooled.buffer(totalReadBytes);
-                newByteBuf.writeBytes(lastByteBuf);
-                newByteBuf.writeBytes(byteBuf);
-            } finally {
-                ReferenceCountUtil.release(lastByteBuf);
-            }
-            lastByteBuf = null;
+    @Override
+    protected void handlerRemoved0(ChannelHandlerContext ctx) throws Exception {
+        // release the items of the incomplete frame
+        if (dataPack != null) {
+            dataPack.release();
+            dataPack = null;
         }
-        return newByteBuf;
+        packHeaderRead = false;
     }
 
     private void filterIllegalPkgToken(int inParamValue, int allowTokenVal,
@@ -190,4 +169,32 @@ public class NettyProtocolDecoder extends MessageToMessageDecoder<ByteBuf> {
         }
     }
 
+    /**
+     * The data pack holds the retained slices of the received bytes
+     */
+    private static class RetainedDataPack extends RpcDataPack {
+        private List<ByteBuf> items;
+
+        RetainedDataPack(int serialNo, int listSize) {
+            super(serialNo, new ArrayList<>(listSize));
+            this.items = new ArrayList<>(listSize);
+        }
+
+        void addItem(ByteBuf item) {
+            items.add(item);
+            getDataLst().add(item.nioBuffer());
+        }
+
+        @Override
+        public void release() {
+            if (items == null) {
+                return;
+            }
+            for (ByteBuf item : items) {
+                item.release();
+            }
+            items = null;
+        }
+    }
+
 }
@@ -19,61 +19,104 @@ package org.apache.inlong.tubemq.corerpc.netty;
 
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.buffer.Unpooled;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.MessageToMessageEncoder;
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
 import java.nio.ByteBuffer;
-import java.util.Arrays;
-import java.util.Iterator;
 import java.util.List;
+import org.apache.inlong.tubemq.corerpc.RawDataRegion;
 import org.apache.inlong.tubemq.corerpc.RpcConstants;
 import org.apache.inlong.tubemq.corerpc.RpcDataPack;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
+/**
+ * Encode the RpcDataPack into frame without copying the data items.
+ *
+ * The pack header and the length headers of the items are written into one pooled
+ * buffer, and the data items are wrapped, then they are combined as a composite buffer.
+ */
 public class NettyProtocolEncoder extends MessageToMessageEncoder<RpcDataPack> {
-
-    private static final Logger logger = LoggerFactory.getLogger(NettyProtocolEncoder.class);
+    // the length of the pack header: begin token, serial number and list size
+    private static final int PACK_HEADER_LEN = 12;
+    // the length of the item length header
+    private static final int ITEM_HEADER_LEN = 4;
 
     @Override
     protected void encode(ChannelHandlerContext chx, RpcDataPack msg, List<Object> out) {
         RpcDataPack dataPack = msg;
-        try (ByteArrayOutputStream byteOut = new ByteArrayOutputStream()) {
-            byteOut.write(getPackHeader(dataPack).array());
-            List<ByteBuffer> origs = dataPack.getDataLst();
-            Iterator<ByteBuffer> iter = origs.iterator();
-            while (iter.hasNext()) {
-                ByteBuffer entry = iter.next();
-                byteOut.write(getLengthHeader(entry).array());
-                byteOut.write(getLengthBody(entry));
+        List<ByteBuffer> dataLst = dataPack.getDataLst();
+        ByteBuf headerBuf = ByteBufAllocator.DEFAULT.buffer(
+                PACK_HEADER_LEN + ITEM_HEADER_LEN * dataLst.size());
+        try {
+            writePackHeader(dataPack, headerBuf);
+            for (ByteBuffer entry : dataLst) {
+                headerBuf.writeInt(entry.limit());
             }
-            byte[] body = byteOut.toByteArray();
-            ByteBuf buf = ByteBufAllocator.DEFAULT.buffer(body.length);
-            buf.writeBytes(body);
-            out.add(buf);
-        } catch (IOException e) {
-            logger.error("encode has exception ", e);
+            CompositeByteBuf frameBuf =
+                    ByteBufAllocator.DEFAULT.compositeBuffer(1 + 2 * dataLst.size());
+            int headerPos = 0;
+            int headerLen = PACK_HEADER_LEN;
+            for (ByteBuffer entry : dataLst) {
+                headerLen += ITEM_HEADER_LEN;
+                frameBuf.addComponent(true, headerBuf.retainedSlice(headerPos, headerLen));
+                frameBuf.addComponent(true, wrapItem(entry));
+                headerPos += headerLen;
+                headerLen = 0;
+            }
+            if (headerLen > 0) {
+                frameBuf.addComponent(true, headerBuf.retainedSlice(headerPos, headerLen));
+            }
+            out.add(frameBuf);
+        } finally {
+            headerBuf.release();
+        }
+        if (dataPack.hasRawData()) {
+            encodeRawData(dataPack.getRawDataLst(), out);
         }
     }
 
-    private ByteBuffer getPackHeader(RpcDataPack dataPack) {
-        ByteBuffer header = ByteBuffer.allocate(12);
-        header.putInt(RpcConstants.RPC_PROTOCOL_BEGIN_TOKEN);
-        header.putInt(dataPack.getSerialNo());
-        header.putInt(dataPack.getDataLst().size());
-        header.flip();
-        return header;
+    /**
+     * Encode the file regions, each region takes two items of the pack:
+     * the field header of the region, and the region content.
+     *
+     * @param regions   the file regions
+     * @param out       the encoded objects
+     */
+    private void encodeRawData(List<RawDataRegion> regions, List<Object> out) {
+        for (RawDataRegion region : regions) {
+            ByteBuffer fieldHeader = region.getFieldHeader();
+            ByteBuf buf = ByteBufAllocator.DEFAULT.buffer(fieldHeader.remaining() + 8);
+            buf.writeInt(fieldHeader.remaining());
+            buf.writeBytes(fieldHeader);
+            buf.writeInt(region.getLength());
+            out.add(buf);
+            out.add(new RawDataFileRegion(region));
+        }
     }
 
-    private ByteBuffer getLengthHeader(ByteBuffer buf) {
-        ByteBuffer header = ByteBuffer.allocate(4);
-        header.putInt(buf.limit());
-        header.flip();
-        return header;
+    private void writePackHeader(RpcDataPack dataPack, ByteBuf headerBuf) {
+        int listSize = dataPack.getDataLst().size();
+        if (dataPack.hasRawData()) {
+            listSize += 2 * dataPack.getRawDataLst().size();
+        }
+        headerBuf.writeInt(RpcConstants.RPC_PROTOCOL_BEGIN_TOKEN);
+        headerBuf.writeInt(dataPack.getSerialNo());
+        headerBuf.writeInt(listSize);
     }
 
-    private byte[] getLengthBody(ByteBuffer buf) {
-        return Arrays.copyOf(buf.array(), buf.limit());
+    /**
+     * Wrap the content of the data item, the content is from 0 to the limit
+     * of the item, regardless of its position.
+     *
+     * @param entry   the data item
+     * @return        the wrapped buffer
+     */
+    private ByteBuf wrapItem(ByteBuffer entry) {
+        if (entry.hasArray()) {
+            return Unpooled.wrappedBuffer(entry.array(), entry.arrayOffset(), entry.limit());
+        }
+        ByteBuffer content = entry.duplicate();
+        content.position(0);
+        return Unpooled.wrappedBuffer(content);
     }
 }
@@ -18,6 +18,8 @@
 package org.apache.inlong.tubemq.corerpc.netty;
 
 import com.google.protobuf.ByteString;
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.WireFormat;
 import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelFutureListener;
 import io.netty.channel.ChannelHandlerContext;
@@ -27,6 +29,7 @@ import java.net.SocketAddress;
 import java.nio.ByteBuffer;
 import java.util.List;
 import org.apache.inlong.tubemq.corebase.protobuf.generated.RPCProtos;
+import org.apache.inlong.tubemq.corerpc.RawDataRegion;
 import org.apache.inlong.tubemq.corerpc.RequestWrapper;
 import org.apache.inlong.tubemq.corerpc.ResponseWrapper;
 import org.apache.inlong.tubemq.corerpc.RpcDataPack;
@@ -65,7 +68,9 @@ public class NettyRequestContext implements RequestContext {
     @Override
     public void write(ResponseWrapper response) throws Exception {
         RpcDataPack dataPack;
+        final List<RawDataRegion> rawDataRegions = response.getRawDataRegions();
         if ((System.currentTimeMillis() - receiveTime) >= request.getTimeout()) {
+            RawDataRegion.releaseAll(rawDataRegions);
             if (logger.isDebugEnabled()) {
                 logger.debug(new StringBuilder(512)
                         .append("Timeout,so give up send response to client.RequestId:")
@@ -77,11 +82,23 @@ public class NettyRequestContext implements RequestContext {
             }
             return;
         }
-        dataPack = new RpcDataPack(response.getSerialNo(), prepareResponse(response));
+        try {
+            dataPack = new RpcDataPack(response.getSerialNo(), prepareResponse(response));
+        } catch (Throwable e) {
+            RawDataRegion.releaseAll(rawDataRegions);
+            throw e;
+        }
+        if (response.isSuccess()) {
+            dataPack.setRawDataLst(rawDataRegions);
+        } else {
+            RawDataRegion.releaseAll(rawDataRegions);
+        }
         ChannelFuture wf = ctx.channel().writeAndFlush(dataPack);
         wf.addListener(new ChannelFutureListener() {
             @Override
             public void operationComplete(ChannelFuture future) throws Exception {
+                // the file regions are written or failed, release the file references
+                RawDataRegion.releaseAll(rawDataRegions);
                 if (!future.isSuccess()) {
                     Throwable exception = future.cause();
                     if (exception != null) {
@@ -120,22 +137,27 @@ public class NettyRequestContext implements RequestContext {
                 rpcBuilder.setStatus(RPCProtos.ResponseHeader.Status.SUCCESS);
                 rpcBuilder.setProtocolVer(response.getProtocolVersion());
                 rpcBuilder.build().writeDelimitedTo(out);
-                RPCProtos.RspResponseBody.Builder dataBuilder =
-                        RPCProtos.RspResponseBody.newBuilder();
-                dataBuilder.setMethod(response.getMethodId());
-                if (response.getResponseData() != null) {
-                    try {
-                        dataBuilder.setData(ByteString
-                                .copyFrom(PbEnDecoder.pbEncode(response.getResponseData())));
-                    } catch (Throwable ee) {
-                        if (logger.isDebugEnabled()) {
-                            logger.debug(new StringBuilder(512)
-                                    .append("Exception while creating response ")
-                                    .append(ee).toString());
+                List<RawDataRegion> rawDataRegions = response.getRawDataRegions();
+                if (rawDataRegions != null && !rawDataRegions.isEmpty()) {
+                    writeRawDataResponseBody(response, rawDataRegions, out);
+                } else {
+                    RPCProtos.RspResponseBody.Builder dataBuilder =
+                            RPCProtos.RspResponseBody.newBuilder();
+                    dataBuilder.setMethod(response.getMethodId());
+                    if (response.getResponseData() != null) {
+                        try {
+                            dataBuilder.setData(ByteString
+                                    .copyFrom(PbEnDecoder.pbEncode(response.getResponseData())));
+                        } catch (Throwable ee) {
+                            if (logger.isDebugEnabled()) {
+                                logger.debug(new StringBuilder(512)
+                                        .append("Exception while creating response ")
+                                        .append(ee).toString());
+                            }
                         }
                     }
+                    dataBuilder.build().writeDelimitedTo(out);
                 }
-                dataBuilder.build().writeDelimitedTo(out);
             } else {
                 rpcBuilder.setStatus(RPCProtos.ResponseHeader.Status.ERROR);
                 rpcBuilder.setProtocolVer(response.getProtocolVersion());
@@ -154,6 +176,50 @@ public class NettyRequestContext implements RequestContext {
         return buf.getBufferList();
     }
 
+    /**
+     * Write the delimited RspResponseBody whose data field is followed by the file regions.
+     *
+     * The regions are not written here, only their length is counted into the data field,
+     * the encoder writes them after the buffers, so that they are parsed as the
+     * trailing fields of the response data by the peer.
+     *
+     * @param response         the response to write
+     * @param rawDataRegions   the attached file regions
+     * @param out              the output stream
+     * @throws IOException     the exception while writing
+     */
+    private void writeRawDataResponseBody(ResponseWrapper response,
+                                          List<RawDataRegion> rawDataRegions,
+                                          DataOutputStream out) throws IOException {
+        byte[] rspData = new byte[0];
+        if (response.getResponseData() != null) {
+            try {
+                rspData = PbEnDecoder.pbEncode(response.getResponseData());
+            } catch (Throwable ee) {
+                if (logger.isDebugEnabled()) {
+                    logger.debug(new StringBuilder(512)
+                            .append("Exception while creating response ")
+                            .append(ee).toString());
+                }
+            }
+        }
+        int dataFieldLen = rspData.length;
+        for (RawDataRegion region : rawDataRegions) {
+            dataFieldLen += region.getSerializedSize();
+        }
+        int bodyLen = CodedOutputStream.computeInt32Size(1, response.getMethodId())
+                + CodedOutputStream.computeTagSize(2)
+                + CodedOutputStream.computeUInt32SizeNoTag(dataFieldLen)
+                + dataFieldLen;
+        CodedOutputStream output = CodedOutputStream.newInstance(out);
+        output.writeUInt32NoTag(bodyLen);
+        output.writeInt32(1, response.getMethodId());
+        output.writeTag(2, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+        output.writeUInt32NoTag(dataFieldLen);
+        output.writeRawBytes(rspData);
+        output.flush();
+    }
+
     @Override
     public long getReceiveTime() {
         return this.receiveTime;
@@ -277,6 +277,7 @@ public class NettyRpcServer implements ServiceRpcServer {
             int rmtVersion = RpcProtocol.RPC_PROTOCOL_VERSION;
             Channel channel = ctx.channel();
             if (channel == null) {
+                dataPack.release();
                 return;
             }
             String rmtaddrIp = getRemoteAddressIP(channel);
@@ -324,6 +325,9 @@ public class NettyRpcServer implements ServiceRpcServer {
                     channel.writeAndFlush(dataPack);
                 }
                 return;
+            } finally {
+                // the request is parsed, release the received data
+                dataPack.release();
             }
             try {
                 RequestWrapper requestWrapper =
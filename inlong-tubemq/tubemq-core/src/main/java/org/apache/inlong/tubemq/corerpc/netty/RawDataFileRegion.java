@@ -0,0 +1,114 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.corerpc.netty;
+
+import io.netty.channel.FileRegion;
+import io.netty.util.AbstractReferenceCounted;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import org.apache.inlong.tubemq.corerpc.RawDataRegion;
+
+/**
+ * FileRegion of a RawDataRegion, transfer data with FileChannel.transferTo().
+ *
+ * Unlike DefaultFileRegion, the file channel is owned by the storage segment,
+ * so it is not closed when the region is released, only the segment reference
+ * held by the raw data region is released.
+ */
+public class RawDataFileRegion extends AbstractReferenceCounted implements FileRegion {
+
+    private final RawDataRegion region;
+    private final FileChannel channel;
+    private final long position;
+    private final long count;
+    private long transferred = 0L;
+
+    public RawDataFileRegion(RawDataRegion region) {
+        this.region = region;
+        this.channel = region.getChannel();
+        this.position = region.getPosition();
+        this.count = region.getLength();
+    }
+
+    @Override
+    public long position() {
+        return position;
+    }
+
+    @Override
+    @Deprecated
+    public long transfered() {
+        return transferred;
+    }
+
+    @Override
+    public long transferred() {
+        return transferred;
+    }
+
+    @Override
+    public long count() {
+        return count;
+    }
+
+    @Override
+    public long transferTo(WritableByteChannel target, long position) throws IOException {
+        long remaining = this.count - position;
+        if (remaining < 0 || position < 0) {
+            throw new IllegalArgumentException(new StringBuilder(256)
+                    .append("position out of range: ").append(position)
+                    .append(" (expected: 0 - ").append(this.count - 1).append(')').toString());
+        }
+        if (remaining == 0) {
+            return 0L;
+        }
+        long written = channel.transferTo(this.position + position, remaining, target);
+        if (written > 0) {
+            transferred += written;
+        }
+        return written;
+    }
+
+    @Override
+    protected void deallocate() {
+        region.release();
+    }
+
+    @Override
+    public FileRegion retain() {
+        super.retain();
+        return this;
+    }
+
+    @Override
+    public FileRegion retain(int increment) {
+        super.retain(increment);
+        return this;
+    }
+
+    @Override
+    public FileRegion touch() {
+        return this;
+    }
+
+    @Override
+    public FileRegion touch(Object hint) {
+        return this;
+    }
+}
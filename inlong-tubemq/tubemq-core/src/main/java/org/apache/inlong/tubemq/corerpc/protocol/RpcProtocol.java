@@ -19,10 +19,13 @@ package org.apache.inlong.tubemq.corerpc.protocol;
 
 import java.lang.reflect.Method;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeUnit;
 import org.apache.inlong.tubemq.corebase.utils.ServiceStatusHolder;
+import org.apache.inlong.tubemq.corerpc.DeferredResponse;
+import org.apache.inlong.tubemq.corerpc.RawDataRegion;
 import org.apache.inlong.tubemq.corerpc.RequestWrapper;
 import org.apache.inlong.tubemq.corerpc.ResponseWrapper;
 import org.apache.inlong.tubemq.corerpc.RpcConstants;
@@ -145,13 +148,23 @@ public class RpcProtocol implements Protocol {
                         .append(requestWrapper.getServiceType())
                         .append(" found on the server").toString());
             }
+            // clear the deferred response left over by the previous request
+            DeferredResponse.takeDeferred();
             Object result =
                     method.invoke(processor, requestWrapper.getRequestData(), rmtAddress, isOverTLS);
+            // the response is written when the processor completes it later
+            final DeferredResponse deferred = DeferredResponse.takeDeferred();
+            if (deferred != null) {
+                deferred.bind((deferredResult, rawDataRegions) ->
+                        writeDeferredResponse(context, deferredResult, rawDataRegions));
+                return;
+            }
             responseWrapper =
                     new ResponseWrapper(RpcConstants.RPC_FLAG_MSG_TYPE_RESPONSE,
                             requestWrapper.getSerialNo(), requestWrapper.getServiceType(),
                             RPC_PROTOCOL_VERSION, requestWrapper.getMethodId(), result);
         } catch (Throwable e2) {
+            DeferredResponse.takeDeferred();
             String errorClass = null;
             String errorInfo = null;
             if (e2.getCause() != null && e2.getCause() instanceof StandbyException) {
@@ -175,4 +188,20 @@ public class RpcProtocol implements Protocol {
         }
     }
 
+    private void writeDeferredResponse(RequestContext context, Object result,
+                                       List<RawDataRegion> rawDataRegions) {
+        RequestWrapper requestWrapper = context.getRequest();
+        ResponseWrapper responseWrapper =
+                new ResponseWrapper(RpcConstants.RPC_FLAG_MSG_TYPE_RESPONSE,
+                        requestWrapper.getSerialNo(), requestWrapper.getServiceType(),
+                        RPC_PROTOCOL_VERSION, requestWrapper.getMethodId(), result);
+        responseWrapper.setRawDataRegions(rawDataRegions);
+        try {
+            context.write(responseWrapper);
+        } catch (Exception e) {
+            RawDataRegion.releaseAll(rawDataRegions);
+            logger.error("Write deferred response error!", e);
+        }
+    }
+
 }
@@ -30,6 +30,10 @@ public interface BrokerReadService {
     ClientBroker.GetMessageResponseB2C getMessagesC2B(ClientBroker.GetMessageRequestC2B request,
                                                       String rmtAddress, boolean overtls) throws Throwable;
 
+    ClientBroker.GetMessageBatchResponseB2C getMessagesBatchC2B(
+            ClientBroker.GetMessageBatchRequestC2B request,
+            String rmtAddress, boolean overtls) throws Throwable;
+
     ClientBroker.CommitOffsetResponseB2C consumerCommitC2B(ClientBroker.CommitOffsetRequestC2B request,
                                                            String rmtAddress, boolean overtls) throws Throwable;
 
@@ -25,11 +25,18 @@ public interface BrokerWriteService {
     ClientBroker.SendMessageResponseB2P sendMessageP2B(ClientBroker.SendMessageRequestP2B request,
                                                        String rmtAddress, boolean overtls) throws Throwable;
 
+    ClientBroker.SendMessageBatchResponseB2P sendMessageBatchP2B(
+            ClientBroker.SendMessageBatchRequestP2B request,
+            String rmtAddress, boolean overtls) throws Throwable;
+
     interface AsyncService extends BrokerWriteService {
 
         void sendMessageP2B(ClientBroker.SendMessageRequestP2B request, String rmtAddress,
                             boolean overtls, Callback callback) throws Throwable;
 
+        void sendMessageBatchP2B(ClientBroker.SendMessageBatchRequestP2B request, String rmtAddress,
+                                 boolean overtls, Callback callback) throws Throwable;
+
     }
 
 }
@@ -0,0 +1,88 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.corebase.utils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class MessageCompressUtilsTest {
+
+    @Test
+    public void testCompressAndDecompress() throws IOException {
+        StringBuilder sBuilder = new StringBuilder(4096);
+        for (int i = 0; i < 100; i++) {
+            sBuilder.append("2022-10-01 10:00:00 INFO test log line ").append(i).append("\n");
+        }
+        byte[] data = sBuilder.toString().getBytes(StandardCharsets.UTF_8);
+        for (CompressType compressType : CompressType.values()) {
+            byte[] compressed = MessageCompressUtils.compress(compressType, data);
+            if (compressType != CompressType.NONE) {
+                Assert.assertTrue(compressed.length < data.length);
+            }
+            byte[] decompressed = MessageCompressUtils.decompress(compressType, compressed);
+            Assert.assertTrue(Arrays.equals(data, decompressed));
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testDecompressIllegalData() throws IOException {
+        MessageCompressUtils.decompress(CompressType.LZ4, new byte[]{1, 2});
+    }
+
+    @Test(expected = IOException.class)
+    public void testDecompressForgedLength() throws IOException {
+        byte[] data = new byte[1024];
+        Arrays.fill(data, (byte) 'a');
+        byte[] compressed = MessageCompressUtils.compress(CompressType.LZ4, data);
+        // the length prefix is larger than the real decompressed length
+        ByteBuffer.wrap(compressed).putInt(data.length + 16);
+        MessageCompressUtils.decompress(CompressType.LZ4, compressed);
+    }
+
+    @Test(expected = IOException.class)
+    public void testDecompressTruncatedZstd() throws IOException {
+        byte[] data = new byte[1024];
+        Arrays.fill(data, (byte) 'a');
+        byte[] compressed = MessageCompressUtils.compress(CompressType.ZSTD, data);
+        // the frame header with the content size is kept, the blocks are cut off
+        MessageCompressUtils.decompress(CompressType.ZSTD,
+                Arrays.copyOf(compressed, compressed.length / 2));
+    }
+
+    @Test
+    public void testCompressFlag() {
+        int flag = 1;
+        Assert.assertFalse(MessageFlagUtils.isCompressed(flag));
+        Assert.assertEquals(CompressType.NONE, MessageFlagUtils.getCompressType(flag));
+        for (CompressType compressType : CompressType.values()) {
+            int newFlag = MessageFlagUtils.setCompressType(flag, compressType);
+            Assert.assertEquals(compressType, MessageFlagUtils.getCompressType(newFlag));
+            Assert.assertEquals(compressType != CompressType.NONE,
+                    MessageFlagUtils.isCompressed(newFlag));
+            Assert.assertTrue(MessageFlagUtils.hasAttribute(newFlag));
+            Assert.assertFalse(MessageFlagUtils.isBatchRecord(newFlag));
+            int batchFlag = MessageFlagUtils.setBatchRecord(newFlag);
+            Assert.assertTrue(MessageFlagUtils.isBatchRecord(batchFlag));
+            Assert.assertEquals(compressType, MessageFlagUtils.getCompressType(batchFlag));
+        }
+    }
+}
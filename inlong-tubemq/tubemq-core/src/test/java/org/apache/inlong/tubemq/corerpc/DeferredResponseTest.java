@@ -0,0 +1,79 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.corerpc;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * DeferredResponse test.
+ */
+public class DeferredResponseTest {
+
+    @Test
+    public void completeAfterBind() {
+        DeferredResponse.defer();
+        DeferredResponse response = DeferredResponse.takeDeferred();
+        Assert.assertNotNull(response);
+        Assert.assertNull(DeferredResponse.takeDeferred());
+        final List<Object> written = new ArrayList<>();
+        response.bind((result, regions) -> written.add(result));
+        Assert.assertTrue(written.isEmpty());
+        Assert.assertTrue(response.complete("result"));
+        Assert.assertFalse(response.complete("other"));
+        Assert.assertTrue(response.isCompleted());
+        Assert.assertEquals(1, written.size());
+        Assert.assertEquals("result", written.get(0));
+    }
+
+    @Test
+    public void completeBeforeBind() {
+        DeferredResponse response = DeferredResponse.defer();
+        DeferredResponse.takeDeferred();
+        Assert.assertTrue(response.complete("result"));
+        final List<Object> written = new ArrayList<>();
+        response.bind((result, regions) -> written.add(result));
+        Assert.assertEquals(1, written.size());
+        Assert.assertEquals("result", written.get(0));
+    }
+
+    @Test
+    public void releaseRegionsIfCompleted() {
+        DeferredResponse response = DeferredResponse.defer();
+        DeferredResponse.takeDeferred();
+        final List<List<RawDataRegion>> written = new ArrayList<>();
+        response.bind((result, regions) -> written.add(regions));
+        final int[] releasedCnt = new int[1];
+        List<RawDataRegion> regions = new ArrayList<>();
+        regions.add(new RawDataRegion(1, null, 0, 10, () -> releasedCnt[0]++));
+        Assert.assertTrue(response.complete("result", regions));
+        Assert.assertSame(regions, written.get(0));
+        Assert.assertEquals(0, releasedCnt[0]);
+        // the regions of the late completion are released at once
+        List<RawDataRegion> lateRegions = new ArrayList<>();
+        lateRegions.add(new RawDataRegion(1, null, 0, 10, () -> releasedCnt[0]++));
+        Assert.assertFalse(response.complete("other", lateRegions));
+        Assert.assertEquals(1, releasedCnt[0]);
+        Assert.assertTrue(lateRegions.get(0).isReleased());
+        // only the first release takes effect
+        lateRegions.get(0).release();
+        Assert.assertEquals(1, releasedCnt[0]);
+    }
+}
@@ -19,14 +19,26 @@ package org.apache.inlong.tubemq.corerpc.codec;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
+import com.google.protobuf.ByteString;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import org.apache.inlong.tubemq.corebase.Message;
 import org.apache.inlong.tubemq.corebase.cluster.BrokerInfo;
 import org.apache.inlong.tubemq.corebase.cluster.Partition;
 import org.apache.inlong.tubemq.corebase.cluster.SubscribeInfo;
 import org.apache.inlong.tubemq.corebase.cluster.TopicInfo;
+import org.apache.inlong.tubemq.corebase.protobuf.generated.ClientBroker;
+import org.apache.inlong.tubemq.corebase.utils.CheckSum;
+import org.apache.inlong.tubemq.corebase.utils.CompressType;
 import org.apache.inlong.tubemq.corebase.utils.DataConverterUtil;
+import org.apache.inlong.tubemq.corebase.utils.MessageBatchUtils;
+import org.apache.inlong.tubemq.corebase.utils.MessageCompressUtils;
+import org.apache.inlong.tubemq.corebase.utils.MessageFlagUtils;
 import org.apache.inlong.tubemq.corebase.utils.Tuple2;
 import org.junit.Test;
 
@@ -72,4 +84,35 @@ public class DataConverterUtilTest {
 
     }
 
+    @Test
+    public void testConvertBatchRecord() throws Exception {
+        // the second message carries the attribute, encoded as the producer does
+        byte[] attrData = "dt=202210011000".getBytes(StandardCharsets.UTF_8);
+        byte[] data = "message-1".getBytes(StandardCharsets.UTF_8);
+        byte[] payload = ByteBuffer.allocate(4 + attrData.length + data.length)
+                .putInt(attrData.length).put(attrData).put(data).array();
+        List<Tuple2<Integer, byte[]>> batchMessages = new ArrayList<>();
+        batchMessages.add(new Tuple2<>(0, "message-0".getBytes(StandardCharsets.UTF_8)));
+        batchMessages.add(new Tuple2<>(1, payload));
+        for (CompressType compressType : CompressType.values()) {
+            byte[] recordData = MessageCompressUtils.compress(compressType,
+                    MessageBatchUtils.encode(batchMessages));
+            int flag = MessageFlagUtils.setCompressType(
+                    MessageFlagUtils.setBatchRecord(0), compressType);
+            ClientBroker.TransferedMessage record = ClientBroker.TransferedMessage.newBuilder()
+                    .setMessageId(10L).setCheckSum(CheckSum.crc32(recordData))
+                    .setFlag(flag).setPayLoadData(ByteString.copyFrom(recordData)).build();
+            List<Message> messages = DataConverterUtil.convertMessage(
+                    "tube", Collections.singletonList(record));
+            // the messages of the record share its message id
+            assertEquals(2, messages.size());
+            assertTrue(Arrays.equals("message-0".getBytes(StandardCharsets.UTF_8),
+                    messages.get(0).getData()));
+            assertEquals(10L, messages.get(0).getIndexId());
+            assertTrue(Arrays.equals(data, messages.get(1).getData()));
+            assertEquals("dt=202210011000", messages.get(1).getAttribute());
+            assertEquals(10L, messages.get(1).getIndexId());
+        }
+    }
+
 }
@@ -0,0 +1,88 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.corerpc.netty;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.inlong.tubemq.corerpc.RpcDataPack;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * NettyProtocolDecoder test.
+ */
+public class NettyProtocolDecoderTest {
+
+    @Test
+    public void decodeSplitFrame() {
+        List<ByteBuffer> dataList = new ArrayList<>();
+        dataList.add(ByteBuffer.wrap("abc".getBytes()));
+        dataList.add(ByteBuffer.wrap("defgh".getBytes()));
+        // encode the frame
+        EmbeddedChannel encodeChannel = new EmbeddedChannel(new NettyProtocolEncoder());
+        Assert.assertTrue(encodeChannel.writeOutbound(new RpcDataPack(123, dataList)));
+        ByteBuf frameBuf = encodeChannel.readOutbound();
+        Assert.assertEquals(12 + 4 + 3 + 4 + 5, frameBuf.readableBytes());
+        // decode the frame from several parts
+        EmbeddedChannel decodeChannel = new EmbeddedChannel(new NettyProtocolDecoder());
+        Assert.assertFalse(decodeChannel.writeInbound(frameBuf.readRetainedSlice(7)));
+        Assert.assertFalse(decodeChannel.writeInbound(frameBuf.readRetainedSlice(10)));
+        Assert.assertTrue(decodeChannel.writeInbound(frameBuf.readRetainedSlice(frameBuf.readableBytes())));
+        frameBuf.release();
+        RpcDataPack dataPack = decodeChannel.readInbound();
+        Assert.assertEquals(123, dataPack.getSerialNo());
+        Assert.assertEquals(2, dataPack.getDataLst().size());
+        Assert.assertEquals("abc", readString(dataPack.getDataLst().get(0)));
+        Assert.assertEquals("defgh", readString(dataPack.getDataLst().get(1)));
+        dataPack.release();
+        Assert.assertFalse(encodeChannel.finish());
+        Assert.assertFalse(decodeChannel.finish());
+    }
+
+    @Test
+    public void releaseIncompleteFrame() {
+        List<ByteBuffer> dataList = new ArrayList<>();
+        dataList.add(ByteBuffer.wrap("abc".getBytes()));
+        dataList.add(ByteBuffer.wrap("defgh".getBytes()));
+        EmbeddedChannel encodeChannel = new EmbeddedChannel(new NettyProtocolEncoder());
+        Assert.assertTrue(encodeChannel.writeOutbound(new RpcDataPack(123, dataList)));
+        ByteBuf frameBuf = encodeChannel.readOutbound();
+        // the first item is decoded, the second one is not received completely
+        ByteBuf inBuf = Unpooled.copiedBuffer(frameBuf.slice(0, 12 + 4 + 3 + 6));
+        frameBuf.release();
+        EmbeddedChannel decodeChannel = new EmbeddedChannel(new NettyProtocolDecoder());
+        Assert.assertFalse(decodeChannel.writeInbound(inBuf.retain()));
+        inBuf.release();
+        // the decoded item refers to the received buffer without copy
+        Assert.assertTrue(inBuf.refCnt() > 0);
+        // the decoded item is released when the channel is closed
+        Assert.assertFalse(decodeChannel.finish());
+        Assert.assertEquals(0, inBuf.refCnt());
+        Assert.assertFalse(encodeChannel.finish());
+    }
+
+    private String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.duplicate().get(bytes);
+        return new String(bytes);
+    }
+}
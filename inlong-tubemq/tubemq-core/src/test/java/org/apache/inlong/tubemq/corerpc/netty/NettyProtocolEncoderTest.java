@@ -18,10 +18,14 @@
 package org.apache.inlong.tubemq.corerpc.netty;
 
 import io.netty.buffer.ByteBuf;
+import java.io.File;
+import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
+import org.apache.inlong.tubemq.corerpc.RawDataRegion;
 import org.apache.inlong.tubemq.corerpc.RpcDataPack;
 import org.junit.Assert;
 import org.junit.Test;
@@ -56,4 +60,41 @@ public class NettyProtocolEncoderTest {
             e.printStackTrace();
         }
     }
+
+    @Test
+    public void encodeRawData() throws Exception {
+        NettyProtocolEncoder nettyProtocolEncoder = new NettyProtocolEncoder();
+        File tmpFile = File.createTempFile("raw-data", ".tmp");
+        tmpFile.deleteOnExit();
+        try (RandomAccessFile raf = new RandomAccessFile(tmpFile, "rw")) {
+            raf.write("0123456789".getBytes());
+            RpcDataPack obj = new RpcDataPack();
+            obj.setSerialNo(456);
+            List<ByteBuffer> dataList = new LinkedList<>();
+            dataList.add(ByteBuffer.wrap("abc".getBytes()));
+            obj.setDataLst(dataList);
+            List<RawDataRegion> regions = new ArrayList<>();
+            FileChannel channel = raf.getChannel();
+            regions.add(new RawDataRegion(11, channel, 2, 5));
+            obj.setRawDataLst(regions);
+            List<Object> out = new ArrayList<>();
+            nettyProtocolEncoder.encode(null, obj, out);
+            Assert.assertEquals(3, out.size());
+            ByteBuf buf = (ByteBuf) out.get(0);
+            buf.readInt();
+            Assert.assertEquals(456, buf.readInt());
+            // 1 data item and 2 items for the raw data region
+            Assert.assertEquals(3, buf.readInt());
+            // field header: tag of field 11 and the length
+            ByteBuf headerBuf = (ByteBuf) out.get(1);
+            Assert.assertEquals(2, headerBuf.readInt());
+            Assert.assertEquals((11 << 3) | 2, headerBuf.readByte());
+            Assert.assertEquals(5, headerBuf.readByte());
+            Assert.assertEquals(5, headerBuf.readInt());
+            RawDataFileRegion fileRegion = (RawDataFileRegion) out.get(2);
+            Assert.assertEquals(2, fileRegion.position());
+            Assert.assertEquals(5, fileRegion.count());
+            Assert.assertEquals(7, regions.get(0).getSerializedSize());
+        }
+    }
 }
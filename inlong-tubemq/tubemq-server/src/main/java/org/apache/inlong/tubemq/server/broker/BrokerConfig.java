@@ -126,6 +126,44 @@ public class BrokerConfig extends AbstractFileConfig {
             TServerConstants.CFG_DEFAULT_GROUP_OFFSET_SCAN_DUR;
     // whether to enable the memory cache storage, the default is true, open the memory cache
     private boolean enableMemStore = true;
+    // whether to transfer the file data to consumers with zero-copy, the default is false
+    private boolean enableZeroCopyRead = false;
+    // whether to append messages to the memory store in group-commit mode, the default is false
+    private boolean enableMemStoreGroupCommit = false;
+    // whether to upload the expired segments to the tiered storage, the default is false
+    private boolean enableTieredStorage = false;
+    // the directory of the tiered storage, required if tiered storage is enabled
+    private String tieredStoragePath = "";
+    // the implementation class of the tiered storage
+    private String tieredStorageClass =
+            "org.apache.inlong.tubemq.server.broker.msgstore.tiered.LocalDirTieredStorage";
+    // the retention of the segments in the tiered storage since uploaded, the default is 30 days
+    private long tieredRetentionMs = 30 * 24 * 3600 * 1000L;
+    // the max count of the segments fetched from the tiered storage cached by each store
+    private int tieredCacheMaxSegments = 8;
+    // whether to read the data segments through the off-heap block cache, the default is false
+    private boolean enableReadBlockCache = false;
+    // the total size of the off-heap block cache shared by all stores
+    private long readBlockCacheSize = 256 * 1024 * 1024L;
+    // the block size of the block cache
+    private int readBlockSize = 64 * 1024;
+    // the block count read ahead when the data segment is read sequentially
+    private int readAheadBlockCnt = 4;
+    // whether to store the consume offsets in the local offset log instead of ZooKeeper
+    private boolean enableLocalOffsetStorage = false;
+    // the directory of the local offset log, required if local offset storage is enabled
+    private String localOffsetStoragePath = "";
+    // the log size to check the compaction of the local offset log
+    private long localOffsetLogMaxSize = 64 * 1024 * 1024L;
+    // the max time that a fetch request is held while no data is found, 0 disables the long-poll
+    private long longPollMaxWaitMs = 5000L;
+    // the max count of the fetch requests held by the broker at the same time
+    private int longPollMaxPendingCnt = 10000;
+    // the partition budgets that a lagging consume group may share on this broker,
+    // 0 disables the group token buckets
+    private int groupFlowCtrlMaxPartCnt = 0;
+    // whether to accept the incremental topic configure pushed by the master
+    private boolean enableIncConfSync = true;
 
     public BrokerConfig() {
         super();
@@ -135,6 +173,78 @@ public class BrokerConfig extends AbstractFileConfig {
         return enableMemStore;
     }
 
+    public boolean isEnableZeroCopyRead() {
+        return enableZeroCopyRead;
+    }
+
+    public boolean isEnableMemStoreGroupCommit() {
+        return enableMemStoreGroupCommit;
+    }
+
+    public boolean isEnableTieredStorage() {
+        return enableTieredStorage;
+    }
+
+    public String getTieredStoragePath() {
+        return tieredStoragePath;
+    }
+
+    public String getTieredStorageClass() {
+        return tieredStorageClass;
+    }
+
+    public long getTieredRetentionMs() {
+        return tieredRetentionMs;
+    }
+
+    public int getTieredCacheMaxSegments() {
+        return tieredCacheMaxSegments;
+    }
+
+    public boolean isEnableReadBlockCache() {
+        return enableReadBlockCache;
+    }
+
+    public long getReadBlockCacheSize() {
+        return readBlockCacheSize;
+    }
+
+    public int getReadBlockSize() {
+        return readBlockSize;
+    }
+
+    public int getReadAheadBlockCnt() {
+        return readAheadBlockCnt;
+    }
+
+    public boolean isEnableLocalOffsetStorage() {
+        return enableLocalOffsetStorage;
+    }
+
+    public String getLocalOffsetStoragePath() {
+        return localOffsetStoragePath;
+    }
+
+    public long getLocalOffsetLogMaxSize() {
+        return localOffsetLogMaxSize;
+    }
+
+    public long getLongPollMaxWaitMs() {
+        return longPollMaxWaitMs;
+    }
+
+    public int getLongPollMaxPendingCnt() {
+        return longPollMaxPendingCnt;
+    }
+
+    public int getGroupFlowCtrlMaxPartCnt() {
+        return groupFlowCtrlMaxPartCnt;
+    }
+
+    public boolean isEnableIncConfSync() {
+        return enableIncConfSync;
+    }
+
     public boolean isUpdateConsumerOffsets() {
         return this.updateConsumerOffsets;
     }
@@ -400,6 +510,76 @@ public class BrokerConfig extends AbstractFileConfig {
         if (TStringUtils.isNotBlank(brokerSect.get("enableMemStore"))) {
             this.enableMemStore = this.getBoolean(brokerSect, "enableMemStore");
         }
+        if (TStringUtils.isNotBlank(brokerSect.get("enableZeroCopyRead"))) {
+            this.enableZeroCopyRead = this.getBoolean(brokerSect, "enableZeroCopyRead");
+        }
+        if (TStringUtils.isNotBlank(brokerSect.get("enableMemStoreGroupCommit"))) {
+            this.enableMemStoreGroupCommit =
+                    this.getBoolean(brokerSect, "enableMemStoreGroupCommit");
+        }
+        if (TStringUtils.isNotBlank(brokerSect.get("enableTieredStorage"))) {
+            this.enableTieredStorage = this.getBoolean(brokerSect, "enableTieredStorage");
+        }
+        if (this.enableTieredStorage) {
+            if (TStringUtils.isBlank(brokerSect.get("tieredStoragePath"))) {
+                throw new IllegalArgumentException(
+                        "Require tieredStoragePath not Blank when enableTieredStorage is true!");
+            }
+            this.tieredStoragePath = brokerSect.get("tieredStoragePath").trim();
+        }
+        if (TStringUtils.isNotBlank(brokerSect.get("tieredStorageClass"))) {
+            this.tieredStorageClass = brokerSect.get("tieredStorageClass").trim();
+        }
+        if (TStringUtils.isNotBlank(brokerSect.get("tieredRetentionMs"))) {
+            this.tieredRetentionMs = this.getLong(brokerSect, "tieredRetentionMs");
+            if (this.tieredRetentionMs <= 0) {
+                throw new IllegalArgumentException("tieredRetentionMs must be greater than 0!");
+            }
+        }
+        if (TStringUtils.isNotBlank(brokerSect.get("tieredCacheMaxSegments"))) {
+            this.tieredCacheMaxSegments = this.getInt(brokerSect, "tieredCacheMaxSegments");
+        }
+        if (TStringUtils.isNotBlank(brokerSect.get("enableReadBlockCache"))) {
+            this.enableReadBlockCache = this.getBoolean(brokerSect, "enableReadBlockCache");
+        }
+        if (TStringUtils.isNotBlank(brokerSect.get("readBlockCacheSize"))) {
+            this.readBlockCacheSize = this.getLong(brokerSect, "readBlockCacheSize");
+        }
+        if (TStringUtils.isNotBlank(brokerSect.get("readBlockSize"))) {
+            this.readBlockSize = this.getInt(brokerSect, "readBlockSize");
+            if (this.readBlockSize <= 0) {
+                throw new IllegalArgumentException("readBlockSize must be greater than 0!");
+            }
+        }
+        if (TStringUtils.isNotBlank(brokerSect.get("readAheadBlockCnt"))) {
+            this.readAheadBlockCnt = this.getInt(brokerSect, "readAheadBlockCnt");
+        }
+        if (TStringUtils.isNotBlank(brokerSect.get("enableLocalOffsetStorage"))) {
+            this.enableLocalOffsetStorage =
+                    this.getBoolean(brokerSect, "enableLocalOffsetStorage");
+        }
+        if (this.enableLocalOffsetStorage) {
+            if (TStringUtils.isBlank(brokerSect.get("localOffsetStoragePath"))) {
+                throw new IllegalArgumentException(
+                        "Require localOffsetStoragePath not Blank when enableLocalOffsetStorage is true!");
+            }
+            this.localOffsetStoragePath = brokerSect.get("localOffsetStoragePath").trim();
+        }
+        if (TStringUtils.isNotBlank(brokerSect.get("localOffsetLogMaxSize"))) {
+            this.localOffsetLogMaxSize = this.getLong(brokerSect, "localOffsetLogMaxSize");
+        }
+        if (TStringUtils.isNotBlank(brokerSect.get("longPollMaxWaitMs"))) {
+            this.longPollMaxWaitMs = this.getLong(brokerSect, "longPollMaxWaitMs");
+        }
+        if (TStringUtils.isNotBlank(brokerSect.get("longPollMaxPendingCnt"))) {
+            this.longPollMaxPendingCnt = this.getInt(brokerSect, "longPollMaxPendingCnt");
+        }
+        if (TStringUtils.isNotBlank(brokerSect.get("groupFlowCtrlMaxPartCnt"))) {
+            this.groupFlowCtrlMaxPartCnt = this.getInt(brokerSect, "groupFlowCtrlMaxPartCnt");
+        }
+        if (TStringUtils.isNotBlank(brokerSect.get("enableIncConfSync"))) {
+            this.enableIncConfSync = this.getBoolean(brokerSect, "enableIncConfSync");
+        }
     }
 
     public long getLogClearupDurationMs() {
@@ -35,14 +35,20 @@ import org.apache.inlong.tubemq.corebase.TErrCodeConstants;
 import org.apache.inlong.tubemq.corebase.TokenConstants;
 import org.apache.inlong.tubemq.corebase.cluster.Partition;
 import org.apache.inlong.tubemq.corebase.config.TLSConfig;
+import org.apache.inlong.tubemq.corebase.protobuf.generated.ClientBroker.BatchMessageItem;
 import org.apache.inlong.tubemq.corebase.protobuf.generated.ClientBroker.CommitOffsetRequestC2B;
 import org.apache.inlong.tubemq.corebase.protobuf.generated.ClientBroker.CommitOffsetResponseB2C;
+import org.apache.inlong.tubemq.corebase.protobuf.generated.ClientBroker.GetMessageBatchItem;
+import org.apache.inlong.tubemq.corebase.protobuf.generated.ClientBroker.GetMessageBatchRequestC2B;
+import org.apache.inlong.tubemq.corebase.protobuf.generated.ClientBroker.GetMessageBatchResponseB2C;
 import org.apache.inlong.tubemq.corebase.protobuf.generated.ClientBroker.GetMessageRequestC2B;
 import org.apache.inlong.tubemq.corebase.protobuf.generated.ClientBroker.GetMessageResponseB2C;
 import org.apache.inlong.tubemq.corebase.protobuf.generated.ClientBroker.HeartBeatRequestC2B;
 import org.apache.inlong.tubemq.corebase.protobuf.generated.ClientBroker.HeartBeatResponseB2C;
 import org.apache.inlong.tubemq.corebase.protobuf.generated.ClientBroker.RegisterRequestC2B;
 import org.apache.inlong.tubemq.corebase.protobuf.generated.ClientBroker.RegisterResponseB2C;
+import org.apache.inlong.tubemq.corebase.protobuf.generated.ClientBroker.SendMessageBatchRequestP2B;
+import org.apache.inlong.tubemq.corebase.protobuf.generated.ClientBroker.SendMessageBatchResponseB2P;
 import org.apache.inlong.tubemq.corebase.protobuf.generated.ClientBroker.SendMessageRequestP2B;
 import org.apache.inlong.tubemq.corebase.protobuf.generated.ClientBroker.SendMessageResponseB2P;
 import org.apache.inlong.tubemq.corebase.protobuf.generated.ClientBroker.TransferedMessage;
@@ -53,6 +59,8 @@ import org.apache.inlong.tubemq.corebase.utils.DataConverterUtil;
 import org.apache.inlong.tubemq.corebase.utils.DateTimeConvertUtils;
 import org.apache.inlong.tubemq.corebase.utils.ServiceStatusHolder;
 import org.apache.inlong.tubemq.corebase.utils.TStringUtils;
+import org.apache.inlong.tubemq.corerpc.DeferredResponse;
+import org.apache.inlong.tubemq.corerpc.RawDataRegion;
 import org.apache.inlong.tubemq.corerpc.RpcConfig;
 import org.apache.inlong.tubemq.corerpc.RpcConstants;
 import org.apache.inlong.tubemq.corerpc.service.BrokerReadService;
@@ -69,6 +77,7 @@ import org.apache.inlong.tubemq.server.broker.offset.OffsetService;
 import org.apache.inlong.tubemq.server.broker.stats.BrokerSrvStatsHolder;
 import org.apache.inlong.tubemq.server.broker.stats.TrafficStatsService;
 import org.apache.inlong.tubemq.server.broker.stats.audit.AuditUtils;
+import org.apache.inlong.tubemq.server.broker.utils.DataStoreUtils;
 import org.apache.inlong.tubemq.server.common.TServerConstants;
 import org.apache.inlong.tubemq.server.common.TStatusConstants;
 import org.apache.inlong.tubemq.server.common.aaaserver.CertificateBrokerHandler;
@@ -80,6 +89,7 @@ import org.apache.inlong.tubemq.server.common.heartbeat.TimeoutInfo;
 import org.apache.inlong.tubemq.server.common.heartbeat.TimeoutListener;
 import org.apache.inlong.tubemq.server.broker.offset.offsetstorage.OffsetStorageInfo;
 import org.apache.inlong.tubemq.server.common.paramcheck.PBParameterUtils;
+import org.apache.inlong.tubemq.server.common.utils.AppendMsgEntry;
 import org.apache.inlong.tubemq.server.common.utils.AppendResult;
 import org.apache.inlong.tubemq.server.common.utils.RowLock;
 import org.slf4j.Logger;
@@ -115,6 +125,10 @@ public class BrokerServiceServer implements BrokerReadService, BrokerWriteServic
     // consumer timeout listener.
     private final ConsumerTimeoutListener consumerListener =
             new ConsumerTimeoutListener();
+    // the fetch requests held until new data arrives.
+    private final PendingFetchManager pendingFetchManager;
+    // the token buckets of the consume groups.
+    private final GroupFlowCtrlManager groupFlowCtrlManager;
     // status of broker service.
     private AtomicBoolean started = new AtomicBoolean(false);
 
@@ -136,6 +150,11 @@ public class BrokerServiceServer implements BrokerReadService, BrokerWriteServic
                 new RowLock("Broker-RowLock", this.tubeConfig.getRowLockWaitDurMs());
         heartbeatManager.regConsumerCheckBusiness(
                 this.tubeConfig.getConsumerRegTimeoutMs(), consumerListener);
+        this.pendingFetchManager =
+                new PendingFetchManager(this.tubeConfig.getLongPollMaxPendingCnt(),
+                        this.tubeConfig.getTcpReadServiceThread());
+        this.groupFlowCtrlManager =
+                new GroupFlowCtrlManager(this.tubeConfig.getGroupFlowCtrlMaxPartCnt());
     }
 
     /**
@@ -222,6 +241,7 @@ public class BrokerServiceServer implements BrokerReadService, BrokerWriteServic
             return;
         }
         heartbeatManager.stop();
+        pendingFetchManager.close();
         putCounterGroup.close(-1);
         getCounterGroup.close(-1);
         AuditUtils.closeAudit();
@@ -308,8 +328,155 @@ public class BrokerServiceServer implements BrokerReadService, BrokerWriteServic
             return builder.build();
         }
         final String groupName = (String) result.getRetData();
+        boolean isEscFlowCtrl = request.hasEscFlowCtrl() && request.getEscFlowCtrl();
+        boolean supportCompress = request.hasSupportCompress() && request.getSupportCompress();
+        // file regions can't be transferred through the TLS handler, and the
+        // compressed payload can't be decompressed for the consumer in raw mode
+        boolean rawDataMode = !overtls && tubeConfig.isEnableZeroCopyRead()
+                && supportCompress
+                && request.hasSupportRawData() && request.getSupportRawData();
+        long maxWaitMs = Math.min(tubeConfig.getLongPollMaxWaitMs(),
+                request.hasMaxWaitTimeMs() ? request.getMaxWaitTimeMs() : 0);
+        final List<RawDataRegion> rawDataRegions =
+                rawDataMode ? new ArrayList<>() : null;
+        GetMessageResponseB2C response = getPartitionMessages(clientId, groupName,
+                request.getTopicName(), request.getPartitionId(),
+                request.getLastPackConsumed(), request.getManualCommitOffset(),
+                isEscFlowCtrl, supportCompress, rawDataMode,
+                this.storeManager.getMaxMsgTransferSize(), maxWaitMs,
+                rawDataRegions, strBuffer);
+        if (response == null || rawDataRegions == null || rawDataRegions.isEmpty()) {
+            return response;
+        }
+        // the file regions are transferred after the response by the rpc layer
+        DeferredResponse.defer().complete(response, rawDataRegions);
+        return null;
+    }
+
+    /**
+     * Handle consumer's batch getMessageRequest, read the messages of
+     *  multiple partitions in one request.
+     *
+     * @param request        the batch request
+     * @param rmtAddress     the remote node address
+     * @param overtls        whether over TLS
+     * @return               the response message
+     * @throws Throwable     the exception during processing
+     */
+    @Override
+    public GetMessageBatchResponseB2C getMessagesBatchC2B(GetMessageBatchRequestC2B request,
+                                                          final String rmtAddress,
+                                                          boolean overtls) throws Throwable {
+        final GetMessageBatchResponseB2C.Builder builder =
+                GetMessageBatchResponseB2C.newBuilder();
+        builder.setSuccess(false);
+        if (!this.started.get()
+                || ServiceStatusHolder.isReadServiceStop()) {
+            builder.setErrCode(TErrCodeConstants.SERVICE_UNAVAILABLE);
+            builder.setErrMsg("Read StoreService temporary unavailable!");
+            return builder.build();
+        }
+        ProcessResult result = new ProcessResult();
+        StringBuilder strBuffer = new StringBuilder(512);
+        // get and check clientId field
+        if (!PBParameterUtils.getStringParameter(WebFieldDef.CLIENTID,
+                request.getClientId(), strBuffer, result)) {
+            builder.setErrCode(result.getErrCode());
+            builder.setErrMsg(result.getErrMsg());
+            return builder.build();
+        }
+        final String clientId = (String) result.getRetData();
+        // get and check groupName field
+        if (!PBParameterUtils.getStringParameter(WebFieldDef.GROUPNAME,
+                request.getGroupName(), strBuffer, result)) {
+            builder.setErrCode(result.getErrCode());
+            builder.setErrMsg(result.getErrMsg());
+            return builder.build();
+        }
+        final String groupName = (String) result.getRetData();
+        // check partition count
+        if (request.getItemsCount() == 0
+                || request.getItemsCount() > TBaseConstants.META_MAX_BATCH_FETCH_PARTITION_COUNT) {
+            builder.setErrCode(TErrCodeConstants.BAD_REQUEST);
+            builder.setErrMsg(strBuffer.append("The partition count of the batch must be in [1, ")
+                    .append(TBaseConstants.META_MAX_BATCH_FETCH_PARTITION_COUNT)
+                    .append("], current is ").append(request.getItemsCount()).toString());
+            return builder.build();
+        }
+        boolean isEscFlowCtrl = request.hasEscFlowCtrl() && request.getEscFlowCtrl();
+        boolean supportCompress = request.hasSupportCompress() && request.getSupportCompress();
+        // each partition reads within its own offset, flow control limit and read
+        // budget, the partitions left after the batch size is used up are not served
+        // this time
+        final int maxTransferSize = this.storeManager.getMaxMsgTransferSize();
+        int remainSize = Math.max(TBaseConstants.META_MAX_BATCH_FETCH_TRANSFER_SIZE,
+                maxTransferSize);
+        for (GetMessageBatchItem item : request.getItemsList()) {
+            int maxReadSize = maxTransferSize;
+            if (item.hasMaxTransferSize() && item.getMaxTransferSize() > 0) {
+                maxReadSize = Math.min(item.getMaxTransferSize(), maxTransferSize);
+            }
+            if (remainSize < maxReadSize) {
+                break;
+            }
+            GetMessageResponseB2C response =
+                    getPartitionMessages(clientId, groupName, item.getTopicName(),
+                            item.getPartitionId(), item.getLastPackConsumed(),
+                            request.getManualCommitOffset(), isEscFlowCtrl,
+                            supportCompress, false, maxReadSize, 0, null, strBuffer);
+            remainSize -= response.getSerializedSize();
+            builder.addResponses(response);
+            builder.addTopicNames(item.getTopicName());
+            builder.addPartitionIds(item.getPartitionId());
+            strBuffer.delete(0, strBuffer.length());
+        }
+        builder.setSuccess(true);
+        builder.setErrCode(TErrCodeConstants.SUCCESS);
+        builder.setErrMsg("OK!");
+        return builder.build();
+    }
+
+    /**
+     * Check the consumer of the partition, then read messages.
+     *
+     * @param clientId              the client id
+     * @param groupName             the consume group name
+     * @param topic                 the topic name in request
+     * @param partitionId           the partition id
+     * @param lastConsumed          whether the last messages has been consumed
+     * @param isManualCommitOffset  whether manual commit offset
+     * @param isEscFlowCtrl         whether escape flow control
+     * @param supportCompress       whether the consumer decompresses the payload
+     * @param rawDataMode           whether to transfer file data directly
+     * @param maxReadSize           the max bytes to read from the partition
+     * @param maxWaitMs             the max time to hold the request if no data found
+     * @param rawDataRegions        the list to add the read file regions, null if not raw data mode
+     * @param strBuffer             the string buffer
+     * @return                      the response message, null if the request is held
+     */
+    private GetMessageResponseB2C getPartitionMessages(final String clientId,
+                                                       final String groupName,
+                                                       final String topic,
+                                                       final int partitionId,
+                                                       final boolean lastConsumed,
+                                                       final boolean isManualCommitOffset,
+                                                       final boolean isEscFlowCtrl,
+                                                       final boolean supportCompress,
+                                                       final boolean rawDataMode,
+                                                       final int maxReadSize,
+                                                       final long maxWaitMs,
+                                                       final List<RawDataRegion> rawDataRegions,
+                                                       final StringBuilder strBuffer) {
+        final GetMessageResponseB2C.Builder builder =
+                GetMessageResponseB2C.newBuilder();
+        builder.setSuccess(false);
+        builder.setCurrOffset(-1);
+        builder.setEscFlowCtrl(false);
+        builder.setCurrDataDlt(-1);
+        builder.setMinLimitTime(0);
+        ProcessResult result = new ProcessResult();
         // get and check topicName field
-        if (!PBParameterUtils.getTopicNameParameter(request.getTopicName(),
+        if (!PBParameterUtils.getTopicNameParameter(topic,
                 this.metadataManager, strBuffer, result)) {
             builder.setErrCode(result.getErrCode());
             builder.setErrMsg(result.getErrMsg());
@@ -317,11 +484,9 @@ public class BrokerServiceServer implements BrokerReadService, BrokerWriteServic
         }
         // get consumer info
         final String topicName = (String) result.getRetData();
-        final int partitionId = request.getPartitionId();
-        boolean isEscFlowCtrl = request.hasEscFlowCtrl() && request.getEscFlowCtrl();
-        String partStr = getPartStr(groupName, topicName, partitionId);
+        final String partStr = getPartStr(groupName, topicName, partitionId);
         String consumerId = null;
-        ConsumerNodeInfo consumerNodeInfo = consumerRegisterMap.get(partStr);
+        final ConsumerNodeInfo consumerNodeInfo = consumerRegisterMap.get(partStr);
         if (consumerNodeInfo != null) {
             consumerId = consumerNodeInfo.getConsumerId();
         }
@@ -345,7 +510,7 @@ public class BrokerServiceServer implements BrokerReadService, BrokerWriteServic
             builder.setErrMsg(strBuffer.toString());
             return builder.build();
         }
-        String rmtAddrInfo = consumerNodeInfo.getRmtAddrInfo();
+        final String rmtAddrInfo = consumerNodeInfo.getRmtAddrInfo();
         try {
             heartbeatManager.updConsumerNode(getHeartbeatNodeId(clientId, partStr));
         } catch (HeartbeatException e) {
@@ -368,15 +533,93 @@ public class BrokerServiceServer implements BrokerReadService, BrokerWriteServic
             return builder.build();
         }
         // query data from store manager.
-        boolean isGetStore = false;
-        MessageStore dataStore = null;
+        final MessageStore dataStore;
         try {
             dataStore = this.storeManager.getOrCreateMessageStore(topicName, partitionId);
-            isGetStore = true;
+        } catch (Throwable ee) {
+            strBuffer.delete(0, strBuffer.length());
+            builder.setErrCode(TErrCodeConstants.INTERNAL_SERVER_ERROR);
+            builder.setErrMsg(strBuffer.append("Get the store of topic ")
+                    .append(topicName).append(" in partition ")
+                    .append(partitionId).append(" failure!").toString());
+            return builder.build();
+        }
+        final long arrivedSeq = dataStore.getDataArrivedSeq();
+        final GetMessageResponseB2C response =
+                readMessages(dataStore, consumerNodeInfo, clientId, groupName, topicName,
+                        partitionId, lastConsumed, isManualCommitOffset, rmtAddrInfo,
+                        isEscFlowCtrl, supportCompress, rawDataMode, maxReadSize,
+                        rawDataRegions, strBuffer);
+        if (maxWaitMs <= 0
+                || response.getErrCode() != TErrCodeConstants.NOT_FOUND) {
+            return response;
+        }
+        // no data found, hold the request until new data arrives or the wait time expires
+        if (pendingFetchManager.hold(dataStore, arrivedSeq, maxWaitMs, (isTimeout, retryRegions) -> {
+            if (!this.started.get()
+                    || consumerRegisterMap.get(partStr) != consumerNodeInfo) {
+                return response;
+            }
+            GetMessageResponseB2C retryRsp =
+                    readMessages(dataStore, consumerNodeInfo, clientId, groupName, topicName,
+                            partitionId, lastConsumed, isManualCommitOffset, rmtAddrInfo,
+                            isEscFlowCtrl, supportCompress, rawDataMode, maxReadSize,
+                            retryRegions, new StringBuilder(512));
+            if (!isTimeout && retryRsp.getErrCode() == TErrCodeConstants.NOT_FOUND) {
+                return null;
+            }
+            return retryRsp.toBuilder().setLongPolled(true).build();
+        })) {
+            // the response is written by the pending fetch manager
+            return null;
+        }
+        return response;
+    }
+
+    /**
+     * Read messages from the store, and build the response.
+     *
+     * @param dataStore             the message store instance
+     * @param consumerNodeInfo      the consumer node instance
+     * @param clientId              the client id
+     * @param groupName             the consume group name
+     * @param topicName             the topic name
+     * @param partitionId           the partition id
+     * @param lastConsumed          whether the last messages has been consumed
+     * @param isManualCommitOffset  whether manual commit offset
+     * @param rmtAddrInfo           the remote address
+     * @param isEscFlowCtrl         whether escape flow control
+     * @param supportCompress       whether the consumer decompresses the payload
+     * @param rawDataMode           whether to transfer file data directly
+     * @param maxReadSize           the max bytes to read from the partition
+     * @param rawDataRegions        the list to add the read file regions, null if not raw data mode
+     * @param strBuffer             the string buffer
+     * @return                      the response message
+     */
+    private GetMessageResponseB2C readMessages(MessageStore dataStore,
+                                               ConsumerNodeInfo consumerNodeInfo,
+                                               String clientId, String groupName,
+                                               String topicName, int partitionId,
+                                               boolean lastConsumed,
+                                               boolean isManualCommitOffset,
+                                               String rmtAddrInfo, boolean isEscFlowCtrl,
+                                               boolean supportCompress,
+                                               boolean rawDataMode, int maxReadSize,
+                                               List<RawDataRegion> rawDataRegions,
+                                               StringBuilder strBuffer) {
+        final GetMessageResponseB2C.Builder builder =
+                GetMessageResponseB2C.newBuilder();
+        builder.setSuccess(false);
+        builder.setCurrOffset(-1);
+        builder.setEscFlowCtrl(false);
+        builder.setCurrDataDlt(-1);
+        builder.setMinLimitTime(0);
+        try {
             GetMessageResult msgResult =
-                    getMessages(dataStore, consumerNodeInfo, groupName, topicName, partitionId,
-                            request.getLastPackConsumed(), request.getManualCommitOffset(),
-                            clientId, this.tubeConfig.getHostName(), rmtAddrInfo, isEscFlowCtrl, strBuffer);
+                    getMessages(dataStore, consumerNodeInfo, groupName, topicName,
+                            partitionId, lastConsumed, isManualCommitOffset,
+                            clientId, this.tubeConfig.getHostName(), rmtAddrInfo,
+                            isEscFlowCtrl, rawDataMode, maxReadSize, strBuffer);
             if (msgResult.isSuccess) {
                 consumerNodeInfo.setLastProcInfo(System.currentTimeMillis(),
                         msgResult.lastRdDataOffset,
@@ -390,8 +633,21 @@ public class BrokerServiceServer implements BrokerReadService, BrokerWriteServic
                 builder.setCurrOffset(msgResult.reqOffset);
                 builder.setCurrDataDlt(msgResult.waitTime);
                 builder.setErrMsg("OK!");
-                builder.addAllMessages(msgResult.transferedMessageList);
+                if (supportCompress) {
+                    builder.addAllMessages(msgResult.transferedMessageList);
+                } else {
+                    // the consumer of the old version can't decompress the payload
+                    // or split the batch records, serve it a decompressed copy
+                    builder.addAllMessages(
+                            DataStoreUtils.decompressTransferMsgs(msgResult.transferedMessageList));
+                }
                 builder.setMaxOffset(msgResult.getMaxOffset());
+                // the raw messages are appended to the response by the rpc layer
+                if (rawDataRegions != null) {
+                    rawDataRegions.addAll(msgResult.rawDataRegionList);
+                } else {
+                    RawDataRegion.releaseAll(msgResult.rawDataRegionList);
+                }
                 return builder.build();
             } else {
                 builder.setErrCode(msgResult.getRetCode());
@@ -402,19 +658,13 @@ public class BrokerServiceServer implements BrokerReadService, BrokerWriteServic
         } catch (Throwable ee) {
             strBuffer.delete(0, strBuffer.length());
             builder.setErrCode(TErrCodeConstants.INTERNAL_SERVER_ERROR);
-            if (isGetStore) {
-                strBuffer.append("[GetMessage] Throwable error while getMessage,")
-                        .append(ee.getMessage()).append(", position is")
-                        .append(this.tubeConfig.getBrokerId())
-                        .append(TokenConstants.ATTR_SEP).append(topicName)
-                        .append(TokenConstants.ATTR_SEP).append(partitionId);
-                logger.error(strBuffer.toString(), ee);
-                builder.setErrMsg(ee.getMessage() == null ? strBuffer.toString() : ee.getMessage());
-            } else {
-                builder.setErrMsg(strBuffer.append("Get the store of topic ")
-                        .append(topicName).append(" in partition ")
-                        .append(partitionId).append(" failure!").toString());
-            }
+            strBuffer.append("[GetMessage] Throwable error while getMessage,")
+                    .append(ee.getMessage()).append(", position is")
+                    .append(this.tubeConfig.getBrokerId())
+                    .append(TokenConstants.ATTR_SEP).append(topicName)
+                    .append(TokenConstants.ATTR_SEP).append(partitionId);
+            logger.error(strBuffer.toString(), ee);
+            builder.setErrMsg(ee.getMessage() == null ? strBuffer.toString() : ee.getMessage());
             return builder.build();
         }
     }
@@ -433,6 +683,8 @@ public class BrokerServiceServer implements BrokerReadService, BrokerWriteServic
      * @param brokerAddr              the broker ip
      * @param rmtAddrInfo             the remote address
      * @param isEscFlowCtrl           whether escape flow control
+     * @param rawDataMode             whether to transfer file data directly
+     * @param maxReadSize             the max bytes to read from the partition
      * @param sb                      the string buffer
      * @return    the query result
      * @throws IOException the exception during processing
@@ -443,7 +695,9 @@ public class BrokerServiceServer implements BrokerReadService, BrokerWriteServic
                                          final int partitionId, final boolean lastConsumed,
                                          final boolean isManualCommitOffset, final String sentAddr,
                                          final String brokerAddr, final String rmtAddrInfo,
-                                         boolean isEscFlowCtrl, final StringBuilder sb) throws IOException {
+                                         boolean isEscFlowCtrl, boolean rawDataMode,
+                                         final int maxReadSize,
+                                         final StringBuilder sb) throws IOException {
         long requestOffset =
                 offsetManager.getOffset(msgStore, group, topic,
                         partitionId, isManualCommitOffset, lastConsumed, sb);
@@ -455,7 +709,14 @@ public class BrokerServiceServer implements BrokerReadService, BrokerWriteServic
         int reqSwitch = getRealQryPriorityId(consumerNodeInfo);
         int msgDataSizeLimit = consumerNodeInfo.getCurrentAllowedSize(msgStore.getStoreKey(),
                 metadataManager.getFlowCtrlRuleHandler(), maxDataOffset,
-                this.storeManager.getMaxMsgTransferSize(), isEscFlowCtrl);
+                maxReadSize, isEscFlowCtrl);
+        final boolean isGroupFlowCtrl =
+                !isEscFlowCtrl && groupFlowCtrlManager.isEnabled();
+        if (msgDataSizeLimit > 0 && isGroupFlowCtrl) {
+            msgDataSizeLimit = groupFlowCtrlManager.acquire(group,
+                    consumerNodeInfo.getCurFlowCtrlVal(), msgDataSizeLimit,
+                    System.currentTimeMillis());
+        }
         if (msgDataSizeLimit <= 0) {
             if (consumerNodeInfo.isSupportLimit()) {
                 return new GetMessageResult(false, TErrCodeConstants.SERVER_CONSUME_SPEED_LIMIT,
@@ -471,11 +732,14 @@ public class BrokerServiceServer implements BrokerReadService, BrokerWriteServic
                     .append("#").append(group).append("#").append(partitionId).toString();
             sb.delete(0, sb.length());
             GetMessageResult msgQueryResult =
-                    msgStore.getMessages(reqSwitch, requestOffset,
-                            partitionId, consumerNodeInfo, baseKey, msgDataSizeLimit, 0);
+                    msgStore.getMessages(reqSwitch, requestOffset, partitionId,
+                            consumerNodeInfo, baseKey, msgDataSizeLimit, 0, rawDataMode);
+            if (isGroupFlowCtrl) {
+                groupFlowCtrlManager.consume(group, msgQueryResult.totalMsgSize);
+            }
             offsetManager.bookOffset(group, topic, partitionId,
                     msgQueryResult.lastReadOffset, isManualCommitOffset,
-                    msgQueryResult.transferedMessageList.isEmpty(), sb);
+                    msgQueryResult.isEmptyMessages(), sb);
             msgQueryResult.setWaitTime(maxDataOffset - msgQueryResult.lastRdDataOffset);
             return msgQueryResult;
         } catch (Throwable e1) {
@@ -709,6 +973,170 @@ public class BrokerServiceServer implements BrokerReadService, BrokerWriteServic
         }
     }
 
+    /**
+     * Handle producer's batch sendMessage request.
+     *
+     * The messages of the request belong to the same partition, and are appended
+     * to the store in order. If only part of the messages are appended, the
+     * response carries the results of the appended ones and a failure code.
+     *
+     * @param request       the request
+     * @param rmtAddress    the remote ip
+     * @param overtls       whether transfer over TLS
+     * @return              the response
+     * @throws Throwable    the exception during processing
+     */
+    @Override
+    public SendMessageBatchResponseB2P sendMessageBatchP2B(SendMessageBatchRequestP2B request,
+                                                           final String rmtAddress,
+                                                           boolean overtls) throws Throwable {
+        ProcessResult result = new ProcessResult();
+        final StringBuilder strBuffer = new StringBuilder(512);
+        SendMessageBatchResponseB2P.Builder builder = SendMessageBatchResponseB2P.newBuilder();
+        builder.setSuccess(false);
+        if (!this.started.get()
+                || ServiceStatusHolder.isWriteServiceStop()) {
+            builder.setErrCode(TErrCodeConstants.SERVICE_UNAVAILABLE);
+            builder.setErrMsg("Write StoreService temporary unavailable!");
+            return builder.build();
+        }
+        CertifiedResult certResult =
+                serverAuthHandler.identityValidUserInfo(request.getAuthInfo(), true);
+        if (!certResult.result) {
+            builder.setErrCode(certResult.errCode);
+            builder.setErrMsg(certResult.errInfo);
+            return builder.build();
+        }
+        // get and check clientId field
+        if (!PBParameterUtils.getStringParameter(WebFieldDef.CLIENTID,
+                request.getClientId(), strBuffer, result)) {
+            builder.setErrCode(result.getErrCode());
+            builder.setErrMsg(result.getErrMsg());
+            return builder.build();
+        }
+        // get and check topicName and partitionId field
+        final int partitionId = request.getPartitionId();
+        if (!PBParameterUtils.getTopicNamePartIdInfo(true, request.getTopicName(),
+                partitionId, this.metadataManager, strBuffer, result)) {
+            builder.setErrCode(result.getErrCode());
+            builder.setErrMsg(result.getErrMsg());
+            return builder.build();
+        }
+        final TopicMetadata topicMetadata = (TopicMetadata) result.getRetData();
+        final String topicName = topicMetadata.getTopic();
+        final int msgCount = request.getMessagesCount();
+        if (msgCount <= 0 || msgCount > TBaseConstants.META_MAX_BATCH_MESSAGE_COUNT) {
+            builder.setErrCode(TErrCodeConstants.BAD_REQUEST);
+            builder.setErrMsg(strBuffer.append("message count must in [1, ")
+                    .append(TBaseConstants.META_MAX_BATCH_MESSAGE_COUNT)
+                    .append("], message count is ").append(msgCount).toString());
+            return builder.build();
+        }
+        // check the messages, the authorization is checked once for each message type
+        int checkSum;
+        byte[] msgData;
+        String msgType;
+        int msgTypeCode;
+        BatchMessageItem msgItem;
+        CertifiedResult authorizeResult;
+        Set<String> authorizedTypes = new HashSet<>();
+        List<AppendMsgEntry> msgEntries = new ArrayList<>(msgCount);
+        for (int i = 0; i < msgCount; i++) {
+            msgItem = request.getMessages(i);
+            msgType = null;
+            msgTypeCode = -1;
+            if (TStringUtils.isNotBlank(msgItem.getMsgType())) {
+                msgType = msgItem.getMsgType().trim();
+                msgTypeCode = msgType.hashCode();
+            }
+            msgData = msgItem.getData().toByteArray();
+            if (msgData.length <= 0) {
+                builder.setErrCode(TErrCodeConstants.BAD_REQUEST);
+                builder.setErrMsg(strBuffer.append("data length is zero, message index is ")
+                        .append(i).toString());
+                return builder.build();
+            }
+            if (msgData.length > topicMetadata.getMaxMsgSize()) {
+                builder.setErrCode(TErrCodeConstants.BAD_REQUEST);
+                builder.setErrMsg(strBuffer.append("data length over max length, allowed max length is ")
+                        .append(topicMetadata.getMaxMsgSize())
+                        .append(", data length is ").append(msgData.length)
+                        .append(", message index is ").append(i).toString());
+                return builder.build();
+            }
+            checkSum = CheckSum.crc32(msgData);
+            if (msgItem.getCheckSum() != -1 && checkSum != msgItem.getCheckSum()) {
+                builder.setErrCode(TErrCodeConstants.FORBIDDEN);
+                builder.setErrMsg(strBuffer.append("Checksum msg data failure: ")
+                        .append(msgItem.getCheckSum()).append(" of ").append(topicName)
+                        .append(" not equal to the data's checksum of ")
+                        .append(checkSum).append(", message index is ").append(i).toString());
+                return builder.build();
+            }
+            if (authorizedTypes.add(String.valueOf(msgType))) {
+                authorizeResult = serverAuthHandler.validProduceAuthorizeInfo(
+                        certResult.userName, topicName, msgType, rmtAddress);
+                if (!authorizeResult.result) {
+                    builder.setErrCode(authorizeResult.errCode);
+                    builder.setErrMsg(authorizeResult.errInfo);
+                    return builder.build();
+                }
+            }
+            msgEntries.add(new AppendMsgEntry(msgData.length,
+                    checkSum, msgData, msgTypeCode, msgItem.getFlag()));
+        }
+        try {
+            final MessageStore store =
+                    this.storeManager.getOrCreateMessageStore(topicName, partitionId);
+            int appendedCnt = store.appendMsgBatch(msgEntries, partitionId,
+                    request.getSentAddr(), System.currentTimeMillis(), 3, 1);
+            AppendResult appendResult;
+            for (int i = 0; i < appendedCnt; i++) {
+                msgItem = request.getMessages(i);
+                appendResult = msgEntries.get(i).getAppendResult();
+                String baseKey = strBuffer.append(topicName)
+                        .append("#").append(AddressUtils.intToIp(request.getSentAddr()))
+                        .append("#").append(tubeConfig.getHostName())
+                        .append("#").append(partitionId)
+                        .append("#").append(msgItem.getMsgTime()).toString();
+                strBuffer.delete(0, strBuffer.length());
+                // a batch record is counted as the messages it carries
+                putCounterGroup.add(baseKey, msgItem.getMsgCount(),
+                        msgEntries.get(i).getDataLength());
+                AuditUtils.addProduceRecord(topicName, msgItem.getMsgType(), msgItem.getMsgTime(),
+                        msgItem.getMsgCount(), msgEntries.get(i).getDataLength());
+                builder.addMessageIds(appendResult.getMsgId());
+                builder.addAppendOffsets(appendResult.getAppendIndexOffset());
+                builder.setAppendTime(appendResult.getAppendTime());
+            }
+            builder.setRequireAuth(certResult.reAuth);
+            if (appendedCnt == msgCount) {
+                builder.setSuccess(true);
+                builder.setErrCode(TErrCodeConstants.SUCCESS);
+                builder.setErrMsg("Ok");
+            } else {
+                builder.setErrCode(TErrCodeConstants.SERVER_RECEIVE_OVERFLOW);
+                builder.setErrMsg(strBuffer.append("Put message failed from ")
+                        .append(tubeConfig.getHostName())
+                        .append(", server receive message overflow, appended ")
+                        .append(appendedCnt).append(" of ").append(msgCount)
+                        .append(" messages!").toString());
+            }
+            return builder.build();
+        } catch (final Throwable ex) {
+            logger.error("Put batch messages failed ", ex);
+            strBuffer.delete(0, strBuffer.length());
+            builder.setSuccess(false);
+            builder.clearMessageIds();
+            builder.clearAppendOffsets();
+            builder.setErrCode(TErrCodeConstants.INTERNAL_SERVER_ERROR);
+            builder.setErrMsg(strBuffer.append("Put message failed from ")
+                    .append(tubeConfig.getHostName()).append(" ")
+                    .append((ex.getMessage() != null ? ex.getMessage() : " ")).toString());
+            return builder.build();
+        }
+    }
+
     /**
      * append group current offset to storage
      *
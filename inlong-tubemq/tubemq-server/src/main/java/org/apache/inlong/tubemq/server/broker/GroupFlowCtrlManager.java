@@ -0,0 +1,181 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.broker;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.inlong.tubemq.corebase.TBaseConstants;
+import org.apache.inlong.tubemq.corebase.policies.FlowCtrlResult;
+import org.apache.inlong.tubemq.server.broker.stats.BrokerSrvStatsHolder;
+
+/**
+ * Group flow control manager, enforces on the broker a token bucket per consume group.
+ *
+ * The data limit of a lagging consumer is compiled from the flow control rules by
+ * ConsumerNodeInfo, and the bucket of its group is refilled at the limit multiplied
+ * by the configured partition count, so that all the partitions of a catching-up
+ * group on this broker share one budget instead of reading at the limit each.
+ * The fetch path only touches atomics: a fetch is allowed while the bucket has
+ * tokens, and the bytes read are taken afterwards, the bucket may go into debt.
+ */
+public class GroupFlowCtrlManager {
+    // the interval to remove the idle buckets
+    private static final long IDLE_CHECK_INTERVAL_MS = 60 * 1000L;
+    // the max idle time of a bucket
+    private static final long MAX_IDLE_DURATION_MS = 10 * 60 * 1000L;
+    // the partition budgets a lagging group may use, 0 disables the group buckets
+    private final int maxPartCnt;
+    private final ConcurrentHashMap<String, TokenBucket> groupBuckets =
+            new ConcurrentHashMap<>();
+    private final AtomicLong nextIdleCheckTime =
+            new AtomicLong(System.currentTimeMillis() + IDLE_CHECK_INTERVAL_MS);
+
+    /**
+     * Initial the group flow control manager
+     *
+     * @param maxPartCnt    the partition budgets a lagging group may use
+     */
+    public GroupFlowCtrlManager(int maxPartCnt) {
+        this.maxPartCnt = maxPartCnt;
+    }
+
+    public boolean isEnabled() {
+        return maxPartCnt > 0;
+    }
+
+    /**
+     * Acquire the permission of a fetch from the bucket of its group
+     *
+     * @param group          the consume group name
+     * @param flowCtrlVal    the current data limit of the consumer
+     * @param reqSize        the requested read size
+     * @param currTime       the current time
+     * @return               the requested size if allowed, or the negative wait time
+     *                       in milliseconds until the bucket is refilled
+     */
+    public int acquire(final String group, final FlowCtrlResult flowCtrlVal,
+                       int reqSize, long currTime) {
+        long ratePerSec = getRatePerSec(flowCtrlVal);
+        if (ratePerSec <= 0) {
+            return reqSize;
+        }
+        TokenBucket bucket = groupBuckets.get(group);
+        if (bucket == null) {
+            TokenBucket tmpBucket = new TokenBucket(ratePerSec, currTime);
+            bucket = groupBuckets.putIfAbsent(group, tmpBucket);
+            if (bucket == null) {
+                bucket = tmpBucket;
+            }
+        }
+        long tokens = bucket.refill(ratePerSec, currTime);
+        removeIdleBuckets(currTime);
+        if (tokens > 0) {
+            BrokerSrvStatsHolder.updGroupFlowCtrlStats(false, 0);
+            return reqSize;
+        }
+        // count the bytes the bucket is short of, not the deferred request size
+        BrokerSrvStatsHolder.updGroupFlowCtrlStats(true, -tokens);
+        long waitMs = Math.min(TBaseConstants.CFG_FC_MAX_SAMPLING_PERIOD,
+                (-tokens) * 1000L / ratePerSec + 1);
+        return (int) -waitMs;
+    }
+
+    /**
+     * Take the read bytes from the bucket of the group
+     *
+     * @param group         the consume group name
+     * @param readSize      the read bytes
+     */
+    public void consume(final String group, long readSize) {
+        if (readSize <= 0) {
+            return;
+        }
+        TokenBucket bucket = groupBuckets.get(group);
+        if (bucket != null) {
+            bucket.tokens.addAndGet(-readSize);
+        }
+    }
+
+    public int getBucketCount() {
+        return groupBuckets.size();
+    }
+
+    private long getRatePerSec(final FlowCtrlResult flowCtrlVal) {
+        if (maxPartCnt <= 0
+                || flowCtrlVal == null
+                || flowCtrlVal.dataLtInSize <= 0
+                || flowCtrlVal.dataLtInSize >= Long.MAX_VALUE / maxPartCnt / 1000L) {
+            return 0L;
+        }
+        // the data limit is counted per limiting duration
+        return Math.max(1L, flowCtrlVal.dataLtInSize * maxPartCnt * 1000L
+                / TBaseConstants.CFG_FC_MAX_LIMITING_DURATION);
+    }
+
+    private void removeIdleBuckets(long currTime) {
+        long checkTime = nextIdleCheckTime.get();
+        if (currTime < checkTime
+                || !nextIdleCheckTime.compareAndSet(checkTime, currTime + IDLE_CHECK_INTERVAL_MS)) {
+            return;
+        }
+        for (Map.Entry<String, TokenBucket> entry : groupBuckets.entrySet()) {
+            if (currTime - entry.getValue().lastRefillTime.get() > MAX_IDLE_DURATION_MS) {
+                groupBuckets.remove(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    private static class TokenBucket {
+        private final AtomicLong tokens;
+        private final AtomicLong lastRefillTime;
+
+        TokenBucket(long ratePerSec, long currTime) {
+            // start with a full bucket, the capacity is the tokens of one second
+            this.tokens = new AtomicLong(ratePerSec);
+            this.lastRefillTime = new AtomicLong(currTime);
+        }
+
+        /**
+         * Refill the tokens elapsed since the last refill at the current rate
+         *
+         * @param ratePerSec   the refill rate
+         * @param currTime     the current time
+         * @return the tokens after the refill
+         */
+        long refill(long ratePerSec, long currTime) {
+            long lastTime = lastRefillTime.get();
+            long elapsed = currTime - lastTime;
+            long addTokens = elapsed >= 1000L ? ratePerSec : ratePerSec * elapsed / 1000L;
+            // keep the elapsed time until it is worth at least one token
+            if (addTokens <= 0 || !lastRefillTime.compareAndSet(lastTime, currTime)) {
+                return tokens.get();
+            }
+            long curTokens;
+            long newTokens;
+            do {
+                curTokens = tokens.get();
+                newTokens = Math.min(ratePerSec, curTokens + addTokens);
+                if (newTokens <= curTokens) {
+                    return curTokens;
+                }
+            } while (!tokens.compareAndSet(curTokens, newTokens));
+            return newTokens;
+        }
+    }
+}
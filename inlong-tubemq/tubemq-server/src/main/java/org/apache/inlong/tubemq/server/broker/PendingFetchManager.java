@@ -0,0 +1,236 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.broker;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.inlong.tubemq.corebase.TErrCodeConstants;
+import org.apache.inlong.tubemq.corebase.protobuf.generated.ClientBroker.GetMessageResponseB2C;
+import org.apache.inlong.tubemq.corerpc.DeferredResponse;
+import org.apache.inlong.tubemq.corerpc.RawDataRegion;
+import org.apache.inlong.tubemq.server.broker.msgstore.MessageStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Pending fetch manager, holds the fetch requests that found no data, the long-poll fetches.
+ *
+ * A pending fetch does not occupy any rpc worker thread, its response is deferred. It is
+ * woken up when new data is appended to the store or the max wait time expires, then the
+ * messages are read again by the retry executor, and the response is written.
+ */
+public class PendingFetchManager {
+    private static final Logger logger =
+            LoggerFactory.getLogger(PendingFetchManager.class);
+    private final int maxPendingCnt;
+    private final AtomicInteger pendingCnt = new AtomicInteger(0);
+    private final Set<PendingFetch> pendingFetches = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService timeoutExecutor;
+    private final ExecutorService retryExecutor;
+    private volatile boolean closed = false;
+
+    /**
+     * Initial the pending fetch manager
+     *
+     * @param maxPendingCnt    the max count of the pending fetches
+     * @param retryThreadCnt   the thread count to read the messages again
+     */
+    public PendingFetchManager(int maxPendingCnt, int retryThreadCnt) {
+        this.maxPendingCnt = maxPendingCnt;
+        this.timeoutExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "Broker_Fetch_Timeout");
+            t.setDaemon(true);
+            return t;
+        });
+        this.retryExecutor = Executors.newFixedThreadPool(retryThreadCnt, r -> {
+            Thread t = new Thread(r, "Broker_Fetch_Retry");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Hold the fetch request being processed by current thread,
+     *  the caller returns without a response if the request is held.
+     *
+     * @param dataStore     the store to wait for new data
+     * @param arrivedSeq    the data arrived sequence of the store got before the last read
+     * @param maxWaitMs     the max wait time
+     * @param fetcher       the fetcher to read the messages again
+     * @return              whether the request is held
+     */
+    public boolean hold(MessageStore dataStore, long arrivedSeq,
+                        long maxWaitMs, Fetcher fetcher) {
+        if (this.closed || maxWaitMs <= 0) {
+            return false;
+        }
+        if (this.pendingCnt.incrementAndGet() > this.maxPendingCnt) {
+            this.pendingCnt.decrementAndGet();
+            return false;
+        }
+        PendingFetch pendingFetch = new PendingFetch(dataStore,
+                DeferredResponse.defer(), fetcher, System.currentTimeMillis() + maxWaitMs);
+        this.pendingFetches.add(pendingFetch);
+        try {
+            pendingFetch.timeoutFuture = this.timeoutExecutor.schedule(
+                    () -> retry(pendingFetch), maxWaitMs, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // closed, read again at once
+            retry(pendingFetch);
+            return true;
+        }
+        if (!dataStore.addDataWaiter(arrivedSeq, pendingFetch)) {
+            retry(pendingFetch);
+        }
+        return true;
+    }
+
+    public int getPendingCnt() {
+        return this.pendingCnt.get();
+    }
+
+    /**
+     * Close the manager, the pending fetches are read again and replied at once.
+     */
+    public void close() {
+        if (this.closed) {
+            return;
+        }
+        this.closed = true;
+        for (PendingFetch pendingFetch : this.pendingFetches) {
+            retry(pendingFetch);
+        }
+        this.timeoutExecutor.shutdownNow();
+        this.retryExecutor.shutdown();
+        try {
+            this.retryExecutor.awaitTermination(3, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            logger.warn("[Pending Fetch] Interrupted while waiting for the retry tasks");
+        }
+    }
+
+    private void retry(final PendingFetch pendingFetch) {
+        try {
+            this.retryExecutor.execute(() -> processFetch(pendingFetch));
+        } catch (RejectedExecutionException e) {
+            processFetch(pendingFetch);
+        }
+    }
+
+    private void processFetch(PendingFetch pendingFetch) {
+        synchronized (pendingFetch) {
+            if (pendingFetch.finished) {
+                return;
+            }
+            boolean isTimeout = this.closed
+                    || System.currentTimeMillis() >= pendingFetch.deadline;
+            List<RawDataRegion> rawDataRegions = new ArrayList<>();
+            try {
+                long arrivedSeq = pendingFetch.dataStore.getDataArrivedSeq();
+                GetMessageResponseB2C response =
+                        pendingFetch.fetcher.fetch(isTimeout, rawDataRegions);
+                if (response == null) {
+                    RawDataRegion.releaseAll(rawDataRegions);
+                    // no data found yet, wait again
+                    if (!pendingFetch.dataStore.addDataWaiter(arrivedSeq, pendingFetch)) {
+                        retry(pendingFetch);
+                    }
+                    return;
+                }
+                finish(pendingFetch);
+                pendingFetch.response.complete(response, rawDataRegions);
+            } catch (Throwable e) {
+                RawDataRegion.releaseAll(rawDataRegions);
+                logger.error("[Pending Fetch] Read the pending fetch failure", e);
+                finish(pendingFetch);
+                pendingFetch.response.complete(buildErrorResponse(e));
+            }
+        }
+    }
+
+    private GetMessageResponseB2C buildErrorResponse(Throwable e) {
+        GetMessageResponseB2C.Builder builder =
+                GetMessageResponseB2C.newBuilder();
+        builder.setSuccess(false);
+        builder.setCurrOffset(-1);
+        builder.setEscFlowCtrl(false);
+        builder.setCurrDataDlt(-1);
+        builder.setMinLimitTime(0);
+        builder.setErrCode(TErrCodeConstants.INTERNAL_SERVER_ERROR);
+        builder.setErrMsg(new StringBuilder(256)
+                .append("[Pending Fetch] Throwable error while reading the pending fetch, ")
+                .append(e.getMessage()).toString());
+        return builder.build();
+    }
+
+    private void finish(PendingFetch pendingFetch) {
+        pendingFetch.finished = true;
+        if (pendingFetch.timeoutFuture != null) {
+            pendingFetch.timeoutFuture.cancel(false);
+        }
+        pendingFetch.dataStore.removeDataWaiter(pendingFetch);
+        if (this.pendingFetches.remove(pendingFetch)) {
+            this.pendingCnt.decrementAndGet();
+        }
+    }
+
+    public interface Fetcher {
+
+        /**
+         * Read the messages of the pending fetch
+         *
+         * @param isTimeout        whether the max wait time expires
+         * @param rawDataRegions   the list to add the file regions transferred after the response
+         * @return                 the response to reply, null to wait again if no data found
+         *                         and not timeout
+         */
+        GetMessageResponseB2C fetch(boolean isTimeout, List<RawDataRegion> rawDataRegions);
+    }
+
+    private class PendingFetch implements Runnable {
+        private final MessageStore dataStore;
+        private final DeferredResponse response;
+        private final Fetcher fetcher;
+        private final long deadline;
+        private volatile ScheduledFuture<?> timeoutFuture;
+        private boolean finished = false;
+
+        PendingFetch(MessageStore dataStore, DeferredResponse response,
+                     Fetcher fetcher, long deadline) {
+            this.dataStore = dataStore;
+            this.response = response;
+            this.fetcher = fetcher;
+            this.deadline = deadline;
+        }
+
+        // called by the appending thread when new data arrived
+        @Override
+        public void run() {
+            retry(this);
+        }
+    }
+}
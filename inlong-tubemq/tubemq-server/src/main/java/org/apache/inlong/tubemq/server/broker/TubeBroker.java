@@ -100,6 +100,8 @@ public class TubeBroker implements Stoppable {
     private MasterService masterService;
     private BrokerPromMetricService promMetricService;
     private boolean requireReportConf = false;
+    // whether the incremental configure failed to apply, and the full configure is required
+    private boolean requireFullConf = false;
     private boolean isOnline = false;
     private final AtomicBoolean shutdown = new AtomicBoolean(true);
     private final AtomicBoolean isKeepAlive = new AtomicBoolean(false);
@@ -383,6 +385,22 @@ public class TubeBroker implements Stoppable {
                     .updateBrokerTopicConfigMap(response.getCurBrokerConfId(),
                             response.getConfCheckSumId(), response.getBrokerDefaultConfInfo(),
                             response.getBrokerTopicSetConfInfoList(), false, strBuff);
+            requireFullConf = false;
+        } else if (response.hasTakeIncConfInfo() && response.getTakeIncConfInfo()) {
+            logger.info(strBuff
+                    .append("[HeartBeat response] received broker incremental metadata: brokerConfId=")
+                    .append(response.getCurBrokerConfId())
+                    .append(",configCheckSumId=").append(response.getConfCheckSumId())
+                    .append(",baseBrokerConfId=").append(response.getBaseBrokerConfId())
+                    .append(",baseConfCheckSumId=").append(response.getBaseConfCheckSumId())
+                    .append(",updTopicConfList=").append(response.getUpdTopicConfInfoList())
+                    .append(",rmvTopicList=").append(response.getRmvTopicNamesList()).toString());
+            strBuff.delete(0, strBuff.length());
+            // fall back to the full configure if the changes can not be applied
+            requireFullConf = !metadataManager.updateBrokerTopicConfigDelta(
+                    response.getBaseBrokerConfId(), response.getBaseConfCheckSumId(),
+                    response.getCurBrokerConfId(), response.getConfCheckSumId(),
+                    response.getUpdTopicConfInfoList(), response.getRmvTopicNamesList(), strBuff);
         }
         // update auth info
         if (response.hasBrokerAuthorizedInfo()) {
@@ -496,6 +514,7 @@ public class TubeBroker implements Stoppable {
         metadataManager.updateBrokerTopicConfigMap(response.getCurBrokerConfId(),
                 response.getConfCheckSumId(), response.getBrokerDefaultConfInfo(),
                 response.getBrokerTopicSetConfInfoList(), true, strBuff);
+        requireFullConf = false;
     }
 
     // build cluster configure info
@@ -583,6 +602,7 @@ public class TubeBroker implements Stoppable {
             builder.setAuthInfo(authInfoBuilder.build());
         }
         builder.setClsConfig(buildClusterConfig());
+        builder.setAcceptIncConf(tubeConfig.isEnableIncConfSync() && !requireFullConf);
         if (metadataManager.isBrokerMetadataChanged() || requireReportConf) {
             builder.setTakeConfInfo(true);
             builder.setBrokerDefaultConfInfo(metadataManager.getBrokerDefMetaConfInfo());
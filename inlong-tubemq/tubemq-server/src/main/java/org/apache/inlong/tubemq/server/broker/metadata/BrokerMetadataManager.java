@@ -21,9 +21,11 @@ import java.beans.PropertyChangeListener;
 import java.beans.PropertyChangeSupport;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import org.apache.inlong.tubemq.corebase.TokenConstants;
 import org.apache.inlong.tubemq.corebase.policies.FlowCtrlRuleHandler;
 import org.apache.inlong.tubemq.corebase.utils.TStringUtils;
 import org.apache.inlong.tubemq.server.common.TServerConstants;
@@ -263,17 +265,105 @@ public class BrokerMetadataManager implements MetadataManager {
         }
         // Check to-be-added configure, if history-offset topic is not included, append it
         addSysHisOffsetTopic(brokerDefMetadata, newTopics, newTopicConfigMap);
-        this.topicMetaConfInfoLst = newTopicMetaConfInfoLst;
-        this.closedTopicMap = tmpInvalidTopicMap;
-        Collections.sort(newTopics);
-        if (!newTopicConfigMap.equals(this.topicConfigMap)) {
-            Map<String, TopicMetadata> oldTopicConfigMap = this.topicConfigMap;
-            this.topics = newTopics;
-            this.topicConfigMap = newTopicConfigMap;
-            this.propertyChangeSupport
-                    .firePropertyChange("topicConfigMap", oldTopicConfigMap, newTopicConfigMap);
+        applyTopicConfigMap(newTopicMetaConfInfoLst,
+                newTopics, tmpInvalidTopicMap, newTopicConfigMap);
+    }
+
+    /**
+     * Update broker's topic metadata with the changed topics got from Master Service,
+     * the changes are applied only if the current metadata is the base of the changes.
+     *
+     * @param baseBrokerMetaConfId      the broker meta configure id the changes based on
+     * @param baseConfCheckSumId        the configure checksum id the changes based on
+     * @param newBrokerMetaConfId       the new broker meta configure id
+     * @param newConfCheckSumId         the new configure checksum id
+     * @param updTopicMetaConfInfoLst   the added or changed topic meta configure list
+     * @param rmvTopics                 the topics removed from the broker
+     * @param sb                        string buffer
+     * @return                          whether applied, false if need the full configure
+     */
+    @Override
+    public boolean updateBrokerTopicConfigDelta(long baseBrokerMetaConfId,
+                                                int baseConfCheckSumId,
+                                                long newBrokerMetaConfId,
+                                                int newConfCheckSumId,
+                                                List<String> updTopicMetaConfInfoLst,
+                                                List<String> rmvTopics,
+                                                final StringBuilder sb) {
+        if ((this.brokerMetadataConfId == newBrokerMetaConfId)
+                && (this.brokerConfCheckSumId == newConfCheckSumId)) {
+            return true;
         }
-        this.propertyChangeSupport.firePropertyChange("unflushInterval", null, null);
+        if ((this.brokerMetadataConfId != baseBrokerMetaConfId)
+                || (this.brokerConfCheckSumId != baseConfCheckSumId)
+                || TStringUtils.isBlank(this.brokerDefMetaConfInfo)) {
+            logger.warn(sb
+                    .append("[Metadata Manage] Broker topic configure is not the base of changes,")
+                    .append(" require full configure! curBrokerConfId is ")
+                    .append(this.brokerMetadataConfId).append(", curConfCheckSumId is ")
+                    .append(this.brokerConfCheckSumId).append(", baseBrokerConfId is ")
+                    .append(baseBrokerMetaConfId).append(", baseConfCheckSumId is ")
+                    .append(baseConfCheckSumId).toString());
+            sb.delete(0, sb.length());
+            return false;
+        }
+        Map<String/* topic */, String> newTopicConfInfoMap = new HashMap<>();
+        for (String strTopicConfInfo : this.topicMetaConfInfoLst) {
+            if (TStringUtils.isBlank(strTopicConfInfo)) {
+                continue;
+            }
+            newTopicConfInfoMap.put(strTopicConfInfo.split(TokenConstants.ATTR_SEP)[0],
+                    strTopicConfInfo);
+        }
+        Map<String/* topic */, Integer> tmpInvalidTopicMap =
+                new ConcurrentHashMap<>(this.closedTopicMap);
+        ConcurrentHashMap<String/* topic */, TopicMetadata> newTopicConfigMap =
+                new ConcurrentHashMap<>(this.topicConfigMap);
+        if (rmvTopics != null) {
+            for (String topic : rmvTopics) {
+                if (TStringUtils.isBlank(topic)) {
+                    continue;
+                }
+                newTopicConfInfoMap.remove(topic);
+                tmpInvalidTopicMap.remove(topic);
+                newTopicConfigMap.remove(topic);
+            }
+        }
+        if (updTopicMetaConfInfoLst != null) {
+            for (String strTopicConfInfo : updTopicMetaConfInfoLst) {
+                if (TStringUtils.isBlank(strTopicConfInfo)) {
+                    continue;
+                }
+                TopicMetadata topicMetadata = new TopicMetadata(brokerDefMetadata, strTopicConfInfo);
+                if (topicMetadata.isValidTopic()) {
+                    tmpInvalidTopicMap.remove(topicMetadata.getTopic());
+                } else {
+                    tmpInvalidTopicMap.put(topicMetadata.getTopic(),
+                            topicMetadata.getStatusId());
+                }
+                newTopicConfInfoMap.put(topicMetadata.getTopic(), strTopicConfInfo);
+                newTopicConfigMap.put(topicMetadata.getTopic(), topicMetadata);
+            }
+        }
+        if (newTopicConfInfoMap.isEmpty()) {
+            logger.warn("[Metadata Manage] changed broker topic info is Blank, require full configure");
+            return false;
+        }
+        this.brokerMetadataConfId = newBrokerMetaConfId;
+        this.brokerConfCheckSumId = newConfCheckSumId;
+        List<String> newTopics = new ArrayList<>(newTopicConfigMap.keySet());
+        addSysHisOffsetTopic(brokerDefMetadata, newTopics, newTopicConfigMap);
+        applyTopicConfigMap(new ArrayList<>(newTopicConfInfoMap.values()),
+                newTopics, tmpInvalidTopicMap, newTopicConfigMap);
+        logger.info(sb
+                .append("[Metadata Manage] Broker topic configure updated incrementally, ")
+                .append("newBrokerConfId is ").append(newBrokerMetaConfId)
+                .append(", newConfCheckSumId is ").append(newConfCheckSumId)
+                .append(", updated topic count is ")
+                .append(updTopicMetaConfInfoLst == null ? 0 : updTopicMetaConfInfoLst.size())
+                .append(", removed topics is ").append(rmvTopics).toString());
+        sb.delete(0, sb.length());
+        return true;
     }
 
     /**
@@ -345,6 +435,31 @@ public class BrokerMetadataManager implements MetadataManager {
         this.propertyChangeSupport.addPropertyChangeListener(propertyName, listener);
     }
 
+    /**
+     * Replace the topic configure, and fire the changes take effect
+     *
+     * @param newTopicMetaConfInfoLst   the new topic meta configure list
+     * @param newTopics                 the new topic list
+     * @param newClosedTopicMap         the new closed topic map
+     * @param newTopicConfigMap         the new topic configure map
+     */
+    private void applyTopicConfigMap(List<String> newTopicMetaConfInfoLst,
+                                     List<String> newTopics,
+                                     Map<String, Integer> newClosedTopicMap,
+                                     ConcurrentHashMap<String, TopicMetadata> newTopicConfigMap) {
+        this.topicMetaConfInfoLst = newTopicMetaConfInfoLst;
+        this.closedTopicMap = newClosedTopicMap;
+        Collections.sort(newTopics);
+        if (!newTopicConfigMap.equals(this.topicConfigMap)) {
+            Map<String, TopicMetadata> oldTopicConfigMap = this.topicConfigMap;
+            this.topics = newTopics;
+            this.topicConfigMap = newTopicConfigMap;
+            this.propertyChangeSupport
+                    .firePropertyChange("topicConfigMap", oldTopicConfigMap, newTopicConfigMap);
+        }
+        this.propertyChangeSupport.firePropertyChange("unflushInterval", null, null);
+    }
+
     /**
      * Add historical offset storage topic by default
      *
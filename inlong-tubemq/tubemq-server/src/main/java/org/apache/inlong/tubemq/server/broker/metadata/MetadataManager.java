@@ -35,6 +35,14 @@ public interface MetadataManager {
                                     boolean isForce,
                                     StringBuilder sb);
 
+    boolean updateBrokerTopicConfigDelta(long baseBrokerMetaConfId,
+                                         int baseConfCheckSumId,
+                                         long newBrokerMetaConfId,
+                                         int newConfCheckSumId,
+                                         List<String> updTopicMetaConfInfoLst,
+                                         List<String> rmvTopics,
+                                         StringBuilder sb);
+
     boolean updateBrokerRemoveTopicMap(boolean isTakeRemoveTopics,
                                        List<String> rmvTopicMetaConfInfoLst,
                                        StringBuilder sb);
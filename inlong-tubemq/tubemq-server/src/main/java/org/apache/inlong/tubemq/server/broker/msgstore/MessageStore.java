@@ -23,6 +23,8 @@ import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
@@ -41,14 +43,17 @@ import org.apache.inlong.tubemq.corebase.utils.Tuple3;
 import org.apache.inlong.tubemq.server.broker.BrokerConfig;
 import org.apache.inlong.tubemq.server.broker.metadata.TopicMetadata;
 import org.apache.inlong.tubemq.server.broker.msgstore.disk.GetMessageResult;
+import org.apache.inlong.tubemq.server.broker.msgstore.disk.MsgBlockCache;
 import org.apache.inlong.tubemq.server.broker.msgstore.disk.MsgFileStore;
 import org.apache.inlong.tubemq.server.broker.msgstore.disk.Segment;
 import org.apache.inlong.tubemq.server.broker.msgstore.mem.GetCacheMsgResult;
 import org.apache.inlong.tubemq.server.broker.msgstore.mem.MsgMemStore;
+import org.apache.inlong.tubemq.server.broker.msgstore.tiered.TieredStorage;
 import org.apache.inlong.tubemq.server.broker.nodeinfo.ConsumerNodeInfo;
 import org.apache.inlong.tubemq.server.broker.stats.MsgStoreStatsHolder;
 import org.apache.inlong.tubemq.server.broker.stats.TrafficInfo;
 import org.apache.inlong.tubemq.server.broker.utils.DataStoreUtils;
+import org.apache.inlong.tubemq.server.common.utils.AppendMsgEntry;
 import org.apache.inlong.tubemq.server.common.utils.AppendResult;
 import org.apache.inlong.tubemq.server.common.utils.IdWorker;
 import org.slf4j.Logger;
@@ -103,6 +108,10 @@ public class MessageStore implements Closeable {
             = new AtomicInteger(this.fileMaxFilterIndexReadCnt.get() * DataStoreUtils.STORE_INDEX_HEAD_LEN);
     private final AtomicInteger fileLowReqMaxFilterIndexReadSize
             = new AtomicInteger(this.fileLowReqMaxFilterIndexReadCnt.get() * DataStoreUtils.STORE_INDEX_HEAD_LEN);
+    // the sequence of the data appended, and the waiters for the new data,
+    // the waiters are identity keyed so that removing an expired one is O(1)
+    private final AtomicLong dataArrivedSeq = new AtomicLong(0);
+    private final Set<Runnable> dataWaiters = ConcurrentHashMap.newKeySet();
     private MsgMemStore msgMemStore;
     private MsgMemStore msgMemStoreBeingFlush;
 
@@ -165,9 +174,11 @@ public class MessageStore implements Closeable {
         this.msgFileStore = new MsgFileStore(this, this.tubeConfig, this.primStorePath, offsetIfCreate);
         if (this.tubeConfig.isEnableMemStore()) {
             this.msgMemStore = new MsgMemStore(this.writeCacheMaxSize, this.writeCacheMaxCnt,
-                    this.msgFileStore.getDataMaxOffset(), this.msgFileStore.getIndexMaxOffset());
+                    this.msgFileStore.getDataMaxOffset(), this.msgFileStore.getIndexMaxOffset(),
+                    this.tubeConfig.isEnableMemStoreGroupCommit());
             this.msgMemStoreBeingFlush = new MsgMemStore(this.writeCacheMaxSize, this.writeCacheMaxCnt,
-                    this.msgFileStore.getDataMaxOffset(), this.msgFileStore.getIndexMaxOffset());
+                    this.msgFileStore.getDataMaxOffset(), this.msgFileStore.getIndexMaxOffset(),
+                    this.tubeConfig.isEnableMemStoreGroupCommit());
             this.lastMemFlushTime.set(System.currentTimeMillis());
         }
     }
@@ -189,6 +200,28 @@ public class MessageStore implements Closeable {
                                         int partitionId, ConsumerNodeInfo consumerNodeInfo,
                                         String statsKeyBase, int msgSizeLimit,
                                         long reqRcvTime) throws IOException {
+        return getMessages(reqSwitch, requestOffset, partitionId,
+                consumerNodeInfo, statsKeyBase, msgSizeLimit, reqRcvTime, false);
+    }
+
+    /**
+     * Get message from message store. Support the given offset, filter.
+     *
+     * @param reqSwitch            read message from where
+     * @param requestOffset        the request offset to read
+     * @param partitionId          the partitionId for reading messages
+     * @param consumerNodeInfo     the consumer object
+     * @param statsKeyBase        the statistical key prefix
+     * @param msgSizeLimit         the max read size
+     * @param reqRcvTime           the timestamp of the record to be checked
+     * @param rawDataMode          whether to return the file data as raw data regions
+     * @return                     read result
+     * @throws IOException         the exception during processing
+     */
+    public GetMessageResult getMessages(int reqSwitch, long requestOffset,
+                                        int partitionId, ConsumerNodeInfo consumerNodeInfo,
+                                        String statsKeyBase, int msgSizeLimit,
+                                        long reqRcvTime, boolean rawDataMode) throws IOException {
         // #lizard forgives
         if (this.closed.get()) {
             throw new IllegalStateException(new StringBuilder(512)
@@ -270,6 +303,20 @@ public class MessageStore implements Closeable {
                 }
             }
         }
+        // read the offsets deleted from the local disk from the tiered storage.
+        if (requestOffset < this.msgFileStore.getIndexMinOffset()
+                && this.msgFileStore.isTieredIndexOffset(requestOffset)) {
+            maxIndexReadLength = consumerNodeInfo.isFilterConsume()
+                    ? fileMaxFilterIndexReadSize.get() : fileMaxIndexReadSize.get();
+            GetMessageResult retResult =
+                    msgFileStore.getTieredMessages(partitionId,
+                            consumerNodeInfo.getLastDataRdOffset(), requestOffset,
+                            maxIndexReadLength, consumerNodeInfo.isFilterConsume(),
+                            consumerNodeInfo.getFilterCondCodeSet(), statsKeyBase,
+                            Math.min(msgSizeLimit, this.maxAllowRdSize), reqRcvTime);
+            retResult.setMaxOffset(getIndexMaxOffset());
+            return retResult;
+        }
         // before read from file, adjust request's offset.
         long reqNewOffset = Math.max(requestOffset, this.msgFileStore.getIndexMinOffset());
         if (reqSwitch <= 1 && reqNewOffset >= getFileIndexMaxOffset()) {
@@ -281,7 +328,7 @@ public class MessageStore implements Closeable {
         final ByteBuffer indexBuffer = ByteBuffer.allocate(maxIndexReadLength);
         Segment indexRecordView =
                 this.msgFileStore.indexSlice(reqNewOffset, maxIndexReadLength);
-        if (indexRecordView == null) {
+        if (indexRecordView == null || !indexRecordView.retainViewRef()) {
             if (reqNewOffset < this.msgFileStore.getIndexMinOffset()) {
                 return new GetMessageResult(false, TErrCodeConstants.MOVED,
                         reqNewOffset, 0, "current offset is exceed min offset!");
@@ -290,9 +337,18 @@ public class MessageStore implements Closeable {
                         reqNewOffset, 0, "current offset is exceed max offset!");
             }
         }
-        indexRecordView.read(indexBuffer, reqNewOffset);
+        // skip the index blocks without the filtered keys for the filter consumer
+        long readStartOffset = reqNewOffset;
+        try {
+            if (consumerNodeInfo.isFilterConsume()) {
+                readStartOffset = indexRecordView.findRecordOffsetByKeys(
+                        reqNewOffset, consumerNodeInfo.getFilterCondCodeSet());
+            }
+            indexRecordView.read(indexBuffer, readStartOffset);
+        } finally {
+            indexRecordView.relViewRef();
+        }
         indexBuffer.flip();
-        indexRecordView.relViewRef();
         if ((msgFileStore.getDataHighMaxOffset() - consumerNodeInfo.getLastDataRdOffset()
             >= this.tubeConfig.getDoubleDefaultDeduceReadSize())
             && msgSizeLimit > this.maxAllowRdSize) {
@@ -300,10 +356,17 @@ public class MessageStore implements Closeable {
         }
         GetMessageResult retResult =
             msgFileStore.getMessages(partitionId,
-                consumerNodeInfo.getLastDataRdOffset(), reqNewOffset,
+                consumerNodeInfo.getLastDataRdOffset(), readStartOffset,
                 indexBuffer, consumerNodeInfo.isFilterConsume(),
                 consumerNodeInfo.getFilterCondCodeSet(),
-                statsKeyBase, msgSizeLimit, reqRcvTime);
+                statsKeyBase, msgSizeLimit, reqRcvTime, rawDataMode);
+        // the skipped index records are treated as read
+        if (readStartOffset > reqNewOffset
+                && retResult.getLastReadOffset() >= 0) {
+            retResult.setLastReadOffset(retResult.getLastReadOffset()
+                    + (int) (readStartOffset - reqNewOffset));
+            retResult.setReqOffset(reqNewOffset);
+        }
         if (reqSwitch <= 1) {
             retResult.setMaxOffset(getFileIndexMaxOffset());
         } else {
@@ -398,15 +461,210 @@ public class MessageStore implements Closeable {
                               int partitionId, int sentAddr,
                               long receivedTime, int count,
                               long waitRetryMs) throws IOException {
+        checkStoreOpen();
+        long messageId = this.idWorker.nextId();
+        // build data buffer
+        final ByteBuffer dataBuffer = buildDataEntry(dataLength, dataCheckSum, data,
+                msgTypeCode, msgFlag, partitionId, sentAddr, receivedTime, messageId);
+        // build index buffer
+        final ByteBuffer indexBuffer = buildIndexEntry(dataBuffer.limit(),
+                msgTypeCode, partitionId, receivedTime);
+        appendResult.putReceivedInfo(messageId, receivedTime);
+        return appendEntries(partitionId, receivedTime, new int[]{msgTypeCode},
+                new ByteBuffer[]{indexBuffer}, new ByteBuffer[]{dataBuffer},
+                new AppendResult[]{appendResult}, count, waitRetryMs) == 1;
+    }
+
+    /**
+     * Append a batch of messages of the same partition to store.
+     *
+     * The messages are appended in order, and the memory cache lock is acquired
+     * once for all the messages that the cache can hold.
+     *
+     * @param msgEntries      the messages to append, the append results are filled in
+     * @param partitionId     the partitionId for append messages
+     * @param sentAddr        the address to send the message to
+     * @param receivedTime    the received time of messages
+     * @param count           the retry count while full
+     * @param waitRetryMs     the wait duration while retry
+     *
+     * @return                the count of appended messages
+     * @throws IOException    the exception during processing
+     */
+    public int appendMsgBatch(List<AppendMsgEntry> msgEntries,
+                              int partitionId, int sentAddr,
+                              long receivedTime, int count,
+                              long waitRetryMs) throws IOException {
+        checkStoreOpen();
+        long messageId;
+        AppendMsgEntry msgEntry;
+        final int msgCnt = msgEntries.size();
+        final int[] keyCodes = new int[msgCnt];
+        final ByteBuffer[] dataBuffers = new ByteBuffer[msgCnt];
+        final ByteBuffer[] indexBuffers = new ByteBuffer[msgCnt];
+        final AppendResult[] appendResults = new AppendResult[msgCnt];
+        for (int i = 0; i < msgCnt; i++) {
+            msgEntry = msgEntries.get(i);
+            messageId = this.idWorker.nextId();
+            keyCodes[i] = msgEntry.getMsgTypeCode();
+            dataBuffers[i] = buildDataEntry(msgEntry.getDataLength(),
+                    msgEntry.getDataCheckSum(), msgEntry.getData(), msgEntry.getMsgTypeCode(),
+                    msgEntry.getMsgFlag(), partitionId, sentAddr, receivedTime, messageId);
+            indexBuffers[i] = buildIndexEntry(dataBuffers[i].limit(),
+                    msgEntry.getMsgTypeCode(), partitionId, receivedTime);
+            appendResults[i] = msgEntry.getAppendResult();
+            appendResults[i].putReceivedInfo(messageId, receivedTime);
+        }
+        return appendEntries(partitionId, receivedTime, keyCodes,
+                indexBuffers, dataBuffers, appendResults, count, waitRetryMs);
+    }
+
+    private void checkStoreOpen() {
         if (this.closed.get()) {
             throw new IllegalStateException(new StringBuilder(512)
                     .append("[Data Store] Closed MessageStore for storeKey ")
                     .append(this.storeKey).toString());
         }
-        long messageId = this.idWorker.nextId();
-        // build data buffer
-        int msgBufLen = DataStoreUtils.STORE_DATA_HEADER_LEN + dataLength;
-        final ByteBuffer dataBuffer = ByteBuffer.allocate(msgBufLen);
+    }
+
+    /**
+     * Append the built entries of the same partition to store in order,
+     * stop at the first entry that can't be appended.
+     *
+     * @param partitionId     the partitionId for append messages
+     * @param receivedTime    the received time of messages
+     * @param keyCodes        the filter item hash codes of the entries
+     * @param indexBuffers    the index entries
+     * @param dataBuffers     the data entries
+     * @param appendResults   the append results of the entries
+     * @param count           the retry count while no entry can be appended
+     * @param waitRetryMs     the wait duration while retry
+     *
+     * @return                the count of appended entries
+     * @throws IOException    the exception during processing
+     */
+    private int appendEntries(int partitionId, long receivedTime, int[] keyCodes,
+                              ByteBuffer[] indexBuffers, ByteBuffer[] dataBuffers,
+                              AppendResult[] appendResults, int count,
+                              long waitRetryMs) throws IOException {
+        final int msgCnt = dataBuffers.length;
+        int appendedCnt = 0;
+        long startTime = System.currentTimeMillis();
+        if (this.tubeConfig.isEnableMemStore()) {
+            int curAppendCnt;
+            do {
+                this.writeCacheMutex.readLock().lock();
+                try {
+                    curAppendCnt = this.msgMemStore.appendMsgBatch(msgStoreStatsHolder,
+                            partitionId, receivedTime, keyCodes, indexBuffers,
+                            dataBuffers, appendResults, appendedCnt);
+                } finally {
+                    this.writeCacheMutex.readLock().unlock();
+                }
+                int nextIndex = appendedCnt + curAppendCnt;
+                // the cache is full, flush the cache and append the next entry
+                if (nextIndex < msgCnt
+                        && triggerFlushAndAddMsg(true, false, partitionId, keyCodes[nextIndex],
+                        receivedTime, indexBuffers[nextIndex], dataBuffers[nextIndex].limit(),
+                        dataBuffers[nextIndex], appendResults[nextIndex])) {
+                    curAppendCnt++;
+                }
+                for (int i = appendedCnt; i < appendedCnt + curAppendCnt; i++) {
+                    msgStoreStatsHolder.addMsgWriteSuccess(dataBuffers[i].limit(),
+                            System.currentTimeMillis() - startTime);
+                }
+                appendedCnt += curAppendCnt;
+                if (curAppendCnt > 0) {
+                    notifyDataArrived();
+                }
+                if (appendedCnt >= msgCnt) {
+                    return appendedCnt;
+                }
+                if (curAppendCnt == 0) {
+                    ThreadUtils.sleep(waitRetryMs);
+                }
+                // only the passes without progress use up the retry count
+            } while (curAppendCnt > 0 || count-- >= 0);
+        } else {
+            StringBuilder strBuffer =
+                    new StringBuilder(TBaseConstants.BUILDER_DEFAULT_SIZE);
+            Tuple3<Boolean, Long, Long> appendRet;
+            for (; appendedCnt < msgCnt; appendedCnt++) {
+                appendRet = this.msgFileStore.appendMsg(false, startTime, strBuffer, 1,
+                        DataStoreUtils.STORE_INDEX_HEAD_LEN, indexBuffers[appendedCnt],
+                        dataBuffers[appendedCnt].limit(), dataBuffers[appendedCnt],
+                        receivedTime, receivedTime);
+                appendResults[appendedCnt].putAppendResult(appendRet.getF1(), appendRet.getF2());
+                if (!appendRet.getF0()) {
+                    break;
+                }
+                msgStoreStatsHolder.addMsgWriteSuccess(dataBuffers[appendedCnt].limit(),
+                        System.currentTimeMillis() - startTime);
+            }
+            if (appendedCnt > 0) {
+                notifyDataArrived();
+            }
+        }
+        for (int i = appendedCnt; i < msgCnt; i++) {
+            msgStoreStatsHolder.addMsgWriteFailure();
+        }
+        return appendedCnt;
+    }
+
+    public long getDataArrivedSeq() {
+        return dataArrivedSeq.get();
+    }
+
+    /**
+     * Add a waiter that is run once when new data is appended,
+     * the waiter is run by the appending thread, so it should return quickly.
+     *
+     * @param arrivedSeq   the data arrived sequence got before the last read
+     * @param waiter       the waiter to run
+     * @return             false if new data has been appended after the sequence,
+     *                     and the waiter is not added
+     */
+    public boolean addDataWaiter(long arrivedSeq, Runnable waiter) {
+        this.dataWaiters.add(waiter);
+        // the appending thread increases the sequence before polling the waiters
+        return this.dataArrivedSeq.get() == arrivedSeq
+                || !this.dataWaiters.remove(waiter);
+    }
+
+    public void removeDataWaiter(Runnable waiter) {
+        this.dataWaiters.remove(waiter);
+    }
+
+    private void notifyDataArrived() {
+        this.dataArrivedSeq.incrementAndGet();
+        for (Runnable waiter : this.dataWaiters) {
+            // only the thread removed the waiter runs it
+            if (this.dataWaiters.remove(waiter)) {
+                waiter.run();
+            }
+        }
+    }
+
+    /**
+     * Wake the waiters if the file data committed offset moved forward,
+     * the consumers reading from file only can't read the data until it's
+     * flushed from the memory cache and committed to the file.
+     *
+     * @param fileIndexMaxOffset   the committed index offset before the flush
+     */
+    private void notifyIfFileDataCommitted(long fileIndexMaxOffset) {
+        if (getFileIndexMaxOffset() > fileIndexMaxOffset) {
+            notifyDataArrived();
+        }
+    }
+
+    private ByteBuffer buildDataEntry(int dataLength, int dataCheckSum,
+                                      byte[] data, int msgTypeCode,
+                                      int msgFlag, int partitionId,
+                                      int sentAddr, long receivedTime,
+                                      long messageId) {
+        final ByteBuffer dataBuffer =
+                ByteBuffer.allocate(DataStoreUtils.STORE_DATA_HEADER_LEN + dataLength);
         dataBuffer.putInt(DataStoreUtils.STORE_DATA_PREFX_LEN + dataLength);
         dataBuffer.putInt(DataStoreUtils.STORE_DATA_TOKER_BEGIN_VALUE);
         dataBuffer.putInt(dataCheckSum);
@@ -419,7 +677,11 @@ public class MessageStore implements Closeable {
         dataBuffer.putInt(msgFlag);
         dataBuffer.put(data);
         dataBuffer.flip();
-        // build index buffer
+        return dataBuffer;
+    }
+
+    private ByteBuffer buildIndexEntry(int msgBufLen, int msgTypeCode,
+                                       int partitionId, long receivedTime) {
         final ByteBuffer indexBuffer =
                 ByteBuffer.allocate(DataStoreUtils.STORE_INDEX_HEAD_LEN);
         indexBuffer.putInt(partitionId);
@@ -428,50 +690,7 @@ public class MessageStore implements Closeable {
         indexBuffer.putInt(msgTypeCode);
         indexBuffer.putLong(receivedTime);
         indexBuffer.flip();
-        appendResult.putReceivedInfo(messageId, receivedTime);
-        boolean appendSuss = true;
-        long startTime = System.currentTimeMillis();
-        if (this.tubeConfig.isEnableMemStore()) {
-            do {
-                this.writeCacheMutex.readLock().lock();
-                try {
-                    appendSuss = this.msgMemStore.appendMsg(msgStoreStatsHolder,
-                            partitionId, msgTypeCode, receivedTime, indexBuffer,
-                            msgBufLen, dataBuffer, appendResult);
-                } finally {
-                    this.writeCacheMutex.readLock().unlock();
-                }
-                if (appendSuss) {
-                    msgStoreStatsHolder.addMsgWriteSuccess(msgBufLen,
-                            System.currentTimeMillis() - startTime);
-                    return true;
-                }
-                if (triggerFlushAndAddMsg(true, false, partitionId, msgTypeCode,
-                        receivedTime, indexBuffer, msgBufLen, dataBuffer, appendResult)) {
-                    msgStoreStatsHolder.addMsgWriteSuccess(msgBufLen,
-                            System.currentTimeMillis() - startTime);
-                    return true;
-                }
-                ThreadUtils.sleep(waitRetryMs);
-            } while (count-- >= 0);
-            msgStoreStatsHolder.addMsgWriteFailure();
-            return false;
-        } else {
-            StringBuilder strBuffer =
-                    new StringBuilder(TBaseConstants.BUILDER_DEFAULT_SIZE);
-            Tuple3<Boolean, Long, Long> appendRet =
-                    this.msgFileStore.appendMsg(false, startTime, strBuffer, 1,
-                            DataStoreUtils.STORE_INDEX_HEAD_LEN, indexBuffer,
-                            msgBufLen, dataBuffer, receivedTime, receivedTime);
-            appendResult.putAppendResult(appendRet.getF1(), appendRet.getF2());
-            if (appendRet.getF0()) {
-                msgStoreStatsHolder.addMsgWriteSuccess(msgBufLen,
-                        System.currentTimeMillis() - startTime);
-            } else {
-                msgStoreStatsHolder.addMsgWriteFailure();
-            }
-            return appendRet.getF0();
-        }
+        return indexBuffer;
     }
 
     public void getMsgStoreStatsInfo(boolean needRefresh, StringBuilder strBuff) {
@@ -482,6 +701,14 @@ public class MessageStore implements Closeable {
         return this.msgStoreStatsHolder;
     }
 
+    public TieredStorage getTieredStorage() {
+        return this.msgStoreMgr.getTieredStorage();
+    }
+
+    public MsgBlockCache getBlockCache() {
+        return this.msgStoreMgr.getBlockCache();
+    }
+
     /**
      * Execute cleanup policy.
      *
@@ -545,7 +772,9 @@ public class MessageStore implements Closeable {
                     .append("[Data Store] Closed MessageStore for storeKey ")
                     .append(this.storeKey).toString());
         }
+        final long fileIndexMaxOffset = getFileIndexMaxOffset();
         msgFileStore.flushDiskFile();
+        notifyIfFileDataCommitted(fileIndexMaxOffset);
     }
 
     /**
@@ -652,6 +881,16 @@ public class MessageStore implements Closeable {
         return this.msgFileStore.getIndexMinOffset();
     }
 
+    /**
+     * Get the min index offset that can be read,
+     * includes the segments in the tiered storage
+     *
+     * @return  the min readable index offset
+     */
+    public long getReadableIndexMinOffset() {
+        return this.msgFileStore.getReadableIndexMinOffset();
+    }
+
     public long getDataMinOffset() {
         return this.msgFileStore.getDataMinOffset();
     }
@@ -883,8 +1122,8 @@ public class MessageStore implements Closeable {
                 msgMemStore.resetMemStoreStatus(lastDataPos, lastIndexPos);
             } else {
                 isRealloc = true;
-                msgMemStore = new MsgMemStore(writeCacheMaxSize,
-                        writeCacheMaxCnt, lastDataPos, lastIndexPos);
+                msgMemStore = new MsgMemStore(writeCacheMaxSize, writeCacheMaxCnt,
+                        lastDataPos, lastIndexPos, tubeConfig.isEnableMemStoreGroupCommit());
             }
             hasFlushBeenTriggered.set(false);
             flushWriteCacheCondition.signalAll();
@@ -901,6 +1140,8 @@ public class MessageStore implements Closeable {
                 strBuffer.delete(0, strBuffer.length());
             }
         }
+        final long fileIndexMaxOffset = getFileIndexMaxOffset();
         msgMemStoreBeingFlush.batchFlush(msgFileStore, strBuffer);
+        notifyIfFileDataCommitted(fileIndexMaxOffset);
     }
 }
@@ -50,6 +50,8 @@ import org.apache.inlong.tubemq.server.broker.exception.StartupException;
 import org.apache.inlong.tubemq.server.broker.metadata.MetadataManager;
 import org.apache.inlong.tubemq.server.broker.metadata.TopicMetadata;
 import org.apache.inlong.tubemq.server.broker.msgstore.disk.GetMessageResult;
+import org.apache.inlong.tubemq.server.broker.msgstore.disk.MsgBlockCache;
+import org.apache.inlong.tubemq.server.broker.msgstore.tiered.TieredStorage;
 import org.apache.inlong.tubemq.server.broker.nodeinfo.ConsumerNodeInfo;
 import org.apache.inlong.tubemq.server.broker.offset.OffsetRecordInfo;
 import org.apache.inlong.tubemq.server.broker.offset.RecordItem;
@@ -84,6 +86,10 @@ public class MessageStoreManager implements StoreService {
     private final int maxMsgTransferSize;
     // the status that is deleting topic.
     private final AtomicBoolean isRemovingTopic = new AtomicBoolean(false);
+    // the storage of expired segments, null if tiered storage is disabled.
+    private final TieredStorage tieredStorage;
+    // the block cache of the data segments shared by all stores, null if disabled.
+    private final MsgBlockCache blockCache;
 
     /**
      * Initial the message-store manager.
@@ -101,6 +107,11 @@ public class MessageStoreManager implements StoreService {
         this.isRemovingTopic.set(false);
         this.maxMsgTransferSize =
                 Math.min(tubeConfig.getTransferSize(), DataStoreUtils.MAX_MSG_TRANSFER_SIZE);
+        this.tieredStorage = tubeConfig.isEnableTieredStorage()
+                ? createTieredStorage(tubeConfig) : null;
+        this.blockCache = tubeConfig.isEnableReadBlockCache()
+                ? new MsgBlockCache(tubeConfig.getReadBlockCacheSize(),
+                tubeConfig.getReadBlockSize(), tubeConfig.getReadAheadBlockCnt()) : null;
         this.metadataManager.addPropertyChangeListener("topicConfigMap", new PropertyChangeListener() {
             @Override
             public void propertyChange(final PropertyChangeEvent evt) {
@@ -191,6 +202,9 @@ public class MessageStoreManager implements StoreService {
                 }
             }
             this.dataStores.clear();
+            if (this.tieredStorage != null) {
+                this.tieredStorage.close();
+            }
             logger.info("[Store Manager] Store Manager stopped!");
         }
     }
@@ -390,6 +404,42 @@ public class MessageStoreManager implements StoreService {
         return maxMsgTransferSize;
     }
 
+    public TieredStorage getTieredStorage() {
+        return tieredStorage;
+    }
+
+    /**
+     * Create the tiered storage with the configured implementation class
+     *
+     * @param tubeConfig      the broker configure
+     * @return                the tiered storage instance
+     * @throws IOException    the exception while creating the instance
+     */
+    private TieredStorage createTieredStorage(BrokerConfig tubeConfig) throws IOException {
+        try {
+            Class<?> storageClass = Class.forName(tubeConfig.getTieredStorageClass());
+            if (!TieredStorage.class.isAssignableFrom(storageClass)) {
+                throw new IOException(new StringBuilder(512)
+                        .append("The tiered storage class ")
+                        .append(tubeConfig.getTieredStorageClass())
+                        .append(" does not implement TieredStorage!").toString());
+            }
+            return (TieredStorage) storageClass.getConstructor(String.class)
+                    .newInstance(tubeConfig.getTieredStoragePath());
+        } catch (IOException e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IOException(new StringBuilder(512)
+                    .append("Create the tiered storage ")
+                    .append(tubeConfig.getTieredStorageClass())
+                    .append(" failure").toString(), e);
+        }
+    }
+
+    public MsgBlockCache getBlockCache() {
+        return blockCache;
+    }
+
     public Map<String, ConcurrentHashMap<Integer, MessageStore>> getMessageStores() {
         return Collections.unmodifiableMap(this.dataStores);
     }
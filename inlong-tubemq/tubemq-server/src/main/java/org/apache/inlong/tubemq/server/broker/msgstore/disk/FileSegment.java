@@ -23,12 +23,14 @@ import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import org.apache.inlong.tubemq.corebase.TBaseConstants;
 import org.apache.inlong.tubemq.corebase.utils.CheckSum;
 import org.apache.inlong.tubemq.corebase.utils.ServiceStatusHolder;
 import org.apache.inlong.tubemq.server.broker.stats.BrokerSrvStatsHolder;
 import org.apache.inlong.tubemq.server.broker.utils.DataStoreUtils;
+import org.apache.inlong.tubemq.server.common.utils.IntHashSet;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -50,12 +52,19 @@ public class FileSegment implements Segment {
     private long expiredTime = 0;
     private final AtomicBoolean expired = new AtomicBoolean(false);
     private final AtomicBoolean closed = new AtomicBoolean(false);
+    // the references of the owner and the readers, the file is closed when it decreases to 0
+    private final AtomicInteger viewRefCnt = new AtomicInteger(1);
+    private final AtomicBoolean deleteOnRelease = new AtomicBoolean(false);
+    private final AtomicBoolean fileDeleted = new AtomicBoolean(false);
     // the first record append time
     private final AtomicLong leftAppendTime =
             new AtomicLong(TBaseConstants.META_VALUE_UNDEFINED);
     // the latest record append time
     private final AtomicLong rightAppendTime =
             new AtomicLong(TBaseConstants.META_VALUE_UNDEFINED);
+    // the memory mapped view of the immutable index segment, created on first use
+    private volatile MappedIndexView mappedIndex = null;
+    private volatile boolean mapIndexFailure = false;
 
     public FileSegment(long start, File file, SegmentType type) throws IOException {
         this(start, file, true, type, Long.MAX_VALUE);
@@ -137,39 +146,47 @@ public class FileSegment implements Segment {
                     this.rightAppendTime.set(System.currentTimeMillis());
                 }
             } else {
-                this.leftAppendTime.set(getRecordTime(this.start));
-                this.rightAppendTime.set(getRecordTime(this.start
+                this.leftAppendTime.set(readRecordTime(this.start));
+                this.rightAppendTime.set(readRecordTime(this.start
                         + this.cachedSize.get() - DataStoreUtils.STORE_INDEX_HEAD_LEN));
             }
         }
     }
 
+    /**
+     * Close the segment, the file is closed after the readers release their references.
+     */
     @Override
     public void close() {
         if (this.closed.compareAndSet(false, true)) {
-            try {
-                if (this.channel.isOpen()) {
-                    if (this.mutable) {
-                        flush(true);
-                    }
-                    this.channel.close();
-                }
-                this.randFile.close();
-            } catch (Throwable ee) {
-                if (ee instanceof IOException) {
-                    ServiceStatusHolder.addReadIOErrCnt();
-                    BrokerSrvStatsHolder.incDiskIOExcCnt();
-                }
-                logger.error(new StringBuilder(512).append("[File Store] Close ")
-                        .append(this.file.getAbsoluteFile().toString())
-                        .append("'s ").append(segmentType).append(" file failure").toString(), ee);
-            }
+            relViewRef();
         }
     }
 
+    /**
+     * Close and delete the segment, the file is deleted after the readers
+     * release their references.
+     */
     @Override
     public void deleteFile() {
-        this.closed.set(true);
+        this.deleteOnRelease.set(true);
+        if (this.closed.compareAndSet(false, true)) {
+            relViewRef();
+        } else if (this.viewRefCnt.get() <= 0) {
+            deleteSegmentFile();
+        }
+    }
+
+    private void releaseFile() {
+        // no reader holds the segment any more, release the index mapping at once
+        MappedIndexView indexView;
+        synchronized (this) {
+            indexView = this.mappedIndex;
+            this.mappedIndex = null;
+        }
+        if (indexView != null) {
+            indexView.unmap();
+        }
         try {
             if (this.channel.isOpen()) {
                 if (this.mutable) {
@@ -178,12 +195,23 @@ public class FileSegment implements Segment {
                 this.channel.close();
             }
             this.randFile.close();
-        } catch (Throwable e1) {
-            if (e1 instanceof IOException) {
+        } catch (Throwable ee) {
+            if (ee instanceof IOException) {
                 ServiceStatusHolder.addReadIOErrCnt();
                 BrokerSrvStatsHolder.incDiskIOExcCnt();
             }
-            logger.error("[File Store] failure to close channel ", e1);
+            logger.error(new StringBuilder(512).append("[File Store] Close ")
+                    .append(this.file.getAbsoluteFile().toString())
+                    .append("'s ").append(segmentType).append(" file failure").toString(), ee);
+        }
+        if (this.deleteOnRelease.get()) {
+            deleteSegmentFile();
+        }
+    }
+
+    private void deleteSegmentFile() {
+        if (!this.fileDeleted.compareAndSet(false, true)) {
+            return;
         }
         try {
             logger.info(new StringBuilder(512)
@@ -276,13 +304,28 @@ public class FileSegment implements Segment {
                 && offset <= this.start + this.getCachedSize() - 1);
     }
 
+    @Override
+    public boolean retainViewRef() {
+        while (true) {
+            int curRefCnt = this.viewRefCnt.get();
+            if (curRefCnt <= 0 || this.closed.get()) {
+                return false;
+            }
+            if (this.viewRefCnt.compareAndSet(curRefCnt, curRefCnt + 1)) {
+                return true;
+            }
+        }
+    }
+
     /**
      * Release reference to this FileSegment.
      * File's channel will be closed when the reference decreased to 0.
      */
     @Override
     public void relViewRef() {
-
+        if (this.viewRefCnt.decrementAndGet() == 0) {
+            releaseFile();
+        }
     }
 
     @Override
@@ -320,6 +363,11 @@ public class FileSegment implements Segment {
         this.mutable = mutable;
     }
 
+    @Override
+    public FileChannel getFileChannel() {
+        return this.channel;
+    }
+
     @Override
     public long getLeftAppendTime() {
         return leftAppendTime.get();
@@ -366,6 +414,11 @@ public class FileSegment implements Segment {
         }
         int size = 0;
         long startPos  = absOffset - start;
+        MappedIndexView indexView = getMappedIndex();
+        if (indexView != null) {
+            indexView.read(bf, startPos);
+            return;
+        }
         while (bf.hasRemaining()) {
             final int l = this.channel.read(bf, startPos + size);
             if (l < 0) {
@@ -381,6 +434,11 @@ public class FileSegment implements Segment {
             //Todo: conduct file closed and expired cases.
         }
         int size = 0;
+        MappedIndexView indexView = getMappedIndex();
+        if (indexView != null) {
+            indexView.read(bf, relOffset);
+            return;
+        }
         while (bf.hasRemaining()) {
             final int l = this.channel.read(bf, relOffset + size);
             if (l < 0) {
@@ -397,6 +455,40 @@ public class FileSegment implements Segment {
      */
     @Override
     public long getRecordTime(long reqOffset) throws IOException {
+        MappedIndexView indexView = getMappedIndex();
+        if (indexView != null) {
+            return indexView.getRecordTime((int) ((reqOffset - start)
+                    / DataStoreUtils.STORE_INDEX_HEAD_LEN));
+        }
+        return readRecordTime(reqOffset);
+    }
+
+    @Override
+    public long findRecordPosByTime(long timestamp, long curDataMinOffset) {
+        MappedIndexView indexView = getMappedIndex();
+        if (indexView == null) {
+            return -1;
+        }
+        return (long) indexView.findRecordByTime(timestamp, curDataMinOffset)
+                * DataStoreUtils.STORE_INDEX_HEAD_LEN;
+    }
+
+    @Override
+    public long findRecordOffsetByKeys(long reqOffset, IntHashSet keyCodes) {
+        MappedIndexView indexView = getMappedIndex();
+        if (indexView == null || reqOffset < this.start) {
+            return reqOffset;
+        }
+        final int fromRecord =
+                (int) ((reqOffset - this.start) / DataStoreUtils.STORE_INDEX_HEAD_LEN);
+        final int foundRecord = indexView.findRecordByKeys(fromRecord, keyCodes);
+        if (foundRecord == fromRecord) {
+            return reqOffset;
+        }
+        return this.start + (long) foundRecord * DataStoreUtils.STORE_INDEX_HEAD_LEN;
+    }
+
+    private long readRecordTime(long reqOffset) throws IOException {
         ByteBuffer readUnit = ByteBuffer.allocate(DataStoreUtils.STORE_INDEX_HEAD_LEN);
         int size = 0;
         while (readUnit.hasRemaining()) {
@@ -410,6 +502,42 @@ public class FileSegment implements Segment {
         return readUnit.getLong(DataStoreUtils.INDEX_POS_TIME_RECV);
     }
 
+    /**
+     * Get the memory mapped view of the index segment, the view is only
+     * created for the immutable index segment, whose content is not changed.
+     *
+     * @return the mapped index view, null if not available
+     */
+    private MappedIndexView getMappedIndex() {
+        MappedIndexView indexView = this.mappedIndex;
+        if (indexView != null
+                || this.segmentType != SegmentType.INDEX
+                || this.mutable
+                || this.mapIndexFailure
+                || this.closed.get()) {
+            return indexView;
+        }
+        synchronized (this) {
+            if (this.mappedIndex == null
+                    && !this.mapIndexFailure
+                    && !this.closed.get()) {
+                try {
+                    this.mappedIndex = new MappedIndexView(this.channel, this.getCommitSize());
+                } catch (Throwable e) {
+                    if (e instanceof IOException) {
+                        ServiceStatusHolder.addReadIOErrCnt();
+                        BrokerSrvStatsHolder.incDiskIOExcCnt();
+                    }
+                    this.mapIndexFailure = true;
+                    logger.error(new StringBuilder(512).append("[File Store] Map ")
+                            .append(this.file.getAbsoluteFile().toString())
+                            .append("'s index file failure, read by channel").toString(), e);
+                }
+            }
+            return this.mappedIndex;
+        }
+    }
+
     /**
      * Check whether this FileSegment is expired, and set expire status.
      * The last FileSegment cannot be marked expired.
@@ -22,6 +22,7 @@ import java.util.HashMap;
 import java.util.List;
 import org.apache.inlong.tubemq.corebase.TBaseConstants;
 import org.apache.inlong.tubemq.corebase.protobuf.generated.ClientBroker.TransferedMessage;
+import org.apache.inlong.tubemq.corerpc.RawDataRegion;
 import org.apache.inlong.tubemq.server.broker.stats.TrafficInfo;
 
 /**
@@ -40,6 +41,7 @@ public class GetMessageResult {
     public boolean isFromSsdFile = false;
     public HashMap<String, TrafficInfo> tmpCounters = new HashMap<>();
     public List<TransferedMessage> transferedMessageList = new ArrayList<>();
+    public List<RawDataRegion> rawDataRegionList = new ArrayList<>();
     public long maxOffset = TBaseConstants.META_VALUE_UNDEFINED;
 
     public GetMessageResult(boolean isSuccess, int retCode, final String errInfo,
@@ -124,6 +126,18 @@ public class GetMessageResult {
         this.transferedMessageList = transferedMessageList;
     }
 
+    public List<RawDataRegion> getRawDataRegionList() {
+        return rawDataRegionList;
+    }
+
+    public void setRawDataRegionList(List<RawDataRegion> rawDataRegionList) {
+        this.rawDataRegionList = rawDataRegionList;
+    }
+
+    public boolean isEmptyMessages() {
+        return transferedMessageList.isEmpty() && rawDataRegionList.isEmpty();
+    }
+
     public boolean isFromSsdFile() {
         return isFromSsdFile;
     }
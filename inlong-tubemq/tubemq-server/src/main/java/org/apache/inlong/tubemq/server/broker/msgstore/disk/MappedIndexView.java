@@ -0,0 +1,310 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.broker.msgstore.disk;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import org.apache.inlong.tubemq.server.broker.utils.DataStoreUtils;
+import org.apache.inlong.tubemq.server.common.utils.IntHashSet;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Read-only memory mapped view of an immutable index segment.
+ *
+ * Besides the mapped index records, a sparse time index is kept in memory, it samples
+ * the receive time of every SKIP_INDEX_INTERVAL records, so a time based seek only
+ * binary searches the sparse index and then a small range of the mapped records.
+ *
+ * A key summary is also kept for every KEY_SUMMARY_BLOCK_RECORDS records, it is a small
+ * bloom filter of the key codes in the block, so a filter consumer can skip the index
+ * blocks without the filtered key codes instead of checking each record.
+ *
+ * The mapping is released by unmap() when the segment releases its file, so a
+ * deleted index file does not stay mapped until the GC; the caller must ensure
+ * no reader uses the view any more.
+ */
+public class MappedIndexView {
+    private static final Logger logger =
+            LoggerFactory.getLogger(MappedIndexView.class);
+    // the sampling interval of the sparse time index, in records
+    public static final int SKIP_INDEX_INTERVAL = 64;
+    // the record count of a key summary block
+    public static final int KEY_SUMMARY_BLOCK_RECORDS = 512;
+    // the bloom filter size of a key summary block, in longs
+    private static final int KEY_SUMMARY_LONGS = 32;
+    private static final int KEY_SUMMARY_BIT_MASK = KEY_SUMMARY_LONGS * 64 - 1;
+    // Unsafe#invokeCleaner to release the mapped memory at once on JDK 9+, null on JDK 8
+    private static final Object UNSAFE;
+    private static final Method INVOKE_CLEANER;
+    // whether the mapped memory can be released at once, otherwise it is left to the GC
+    private static volatile boolean unmapSupported = true;
+
+    static {
+        Object unsafe = null;
+        Method invokeCleaner = null;
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            unsafe = theUnsafe.get(null);
+        } catch (Throwable e) {
+            // JDK 8, released by the cleaner of the buffer
+            invokeCleaner = null;
+        }
+        UNSAFE = unsafe;
+        INVOKE_CLEANER = invokeCleaner;
+    }
+
+    private final MappedByteBuffer mappedBuffer;
+    private final int mappedSize;
+    private final int recordCount;
+    private final long[] skipTimes;
+    private final long[] skipDataOffsets;
+    private final int keySummaryBlocks;
+    private final long[] keySummaries;
+
+    /**
+     * Map the index records of the file channel
+     *
+     * @param channel    the index file channel
+     * @param size       the valid size of the index file
+     * @throws IOException   the exception while mapping the file
+     */
+    public MappedIndexView(FileChannel channel, long size) throws IOException {
+        this.recordCount = (int) (size / DataStoreUtils.STORE_INDEX_HEAD_LEN);
+        this.mappedSize = this.recordCount * DataStoreUtils.STORE_INDEX_HEAD_LEN;
+        this.mappedBuffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, this.mappedSize);
+        this.skipTimes = new long[(this.recordCount + SKIP_INDEX_INTERVAL - 1) / SKIP_INDEX_INTERVAL];
+        this.skipDataOffsets = new long[this.skipTimes.length];
+        for (int i = 0; i < this.skipTimes.length; i++) {
+            // sample with the same validity check as the search, the data min offset
+            // moves forward, so it is checked against the sampled data offset while searching
+            this.skipTimes[i] = getValidRecordTime(i * SKIP_INDEX_INTERVAL, 0L);
+            this.skipDataOffsets[i] = this.mappedBuffer.getLong(i * SKIP_INDEX_INTERVAL
+                    * DataStoreUtils.STORE_INDEX_HEAD_LEN + DataStoreUtils.INDEX_POS_DATAOFFSET);
+        }
+        this.keySummaryBlocks =
+                (this.recordCount + KEY_SUMMARY_BLOCK_RECORDS - 1) / KEY_SUMMARY_BLOCK_RECORDS;
+        this.keySummaries = new long[this.keySummaryBlocks * KEY_SUMMARY_LONGS];
+        for (int i = 0; i < this.recordCount; i++) {
+            addKeySummary(i / KEY_SUMMARY_BLOCK_RECORDS,
+                    this.mappedBuffer.getInt(i * DataStoreUtils.STORE_INDEX_HEAD_LEN
+                            + DataStoreUtils.INDEX_POS_KEY_CODE));
+        }
+    }
+
+    /**
+     * Release the mapped memory at once, the JDK internal cleaner is reached by
+     * reflection, if it is not accessible the memory is left to the GC.
+     * The view must not be read after unmapped.
+     */
+    public void unmap() {
+        if (!unmapSupported) {
+            return;
+        }
+        try {
+            if (INVOKE_CLEANER != null) {
+                INVOKE_CLEANER.invoke(UNSAFE, this.mappedBuffer);
+            } else {
+                Method cleanerMethod = this.mappedBuffer.getClass().getMethod("cleaner");
+                cleanerMethod.setAccessible(true);
+                Object cleaner = cleanerMethod.invoke(this.mappedBuffer);
+                if (cleaner != null) {
+                    cleaner.getClass().getMethod("clean").invoke(cleaner);
+                }
+            }
+        } catch (Throwable e) {
+            unmapSupported = false;
+            logger.warn("[File Store] Unmap index buffer failure, the mapped memory is left to the GC", e);
+        }
+    }
+
+    public int getRecordCount() {
+        return recordCount;
+    }
+
+    public int getMappedSize() {
+        return mappedSize;
+    }
+
+    /**
+     * Read the mapped data from relative position, like FileChannel.read(),
+     * the bytes after the mapped size are not read.
+     *
+     * @param bf          buffer to store data
+     * @param relOffset   relative read position
+     */
+    public void read(ByteBuffer bf, long relOffset) {
+        if (relOffset < 0 || relOffset >= this.mappedSize) {
+            return;
+        }
+        int readLen = (int) Math.min(bf.remaining(), this.mappedSize - relOffset);
+        ByteBuffer srcBuffer = this.mappedBuffer.duplicate();
+        srcBuffer.position((int) relOffset);
+        srcBuffer.limit((int) relOffset + readLen);
+        bf.put(srcBuffer);
+    }
+
+    /**
+     * Get the receive time of the index record
+     *
+     * @param recordIndex    the index of the record
+     * @return    the receive time
+     */
+    public long getRecordTime(int recordIndex) {
+        return this.mappedBuffer.getLong(recordIndex * DataStoreUtils.STORE_INDEX_HEAD_LEN
+                + DataStoreUtils.INDEX_POS_TIME_RECV);
+    }
+
+    /**
+     * Find the first record whose time equals the specified timestamp, or the last record
+     * whose time is less than the specified timestamp, the record pointed to expired data
+     * is treated as less than any timestamp.
+     *
+     * @param timestamp          the specified timestamp
+     * @param curDataMinOffset   the min offset of the valid data
+     * @return    the index of the found record
+     */
+    public int findRecordByTime(long timestamp, long curDataMinOffset) {
+        int endPos = this.recordCount - 1;
+        // check boundaries
+        if (endPos <= 0) {
+            return 0;
+        }
+        if (timestamp < getValidRecordTime(0, curDataMinOffset)) {
+            return 0;
+        }
+        if (timestamp > getValidRecordTime(endPos, curDataMinOffset)) {
+            return endPos;
+        }
+        // locate the last sampled record less than the specified time
+        int midPos = 0;
+        int startPos = 0;
+        int skipEnd = this.skipTimes.length - 1;
+        int foundSkip = 0;
+        while (startPos <= skipEnd) {
+            midPos = skipEnd + startPos >>> 1;
+            if (getSkipTime(midPos, curDataMinOffset) < timestamp) {
+                foundSkip = midPos;
+                startPos = midPos + 1;
+            } else {
+                skipEnd = midPos - 1;
+            }
+        }
+        // Dichotomy finds the first offset position less than the specified time
+        startPos = foundSkip * SKIP_INDEX_INTERVAL;
+        endPos = Math.min(startPos + SKIP_INDEX_INTERVAL, endPos);
+        long foundTime;
+        int firstLowPos = startPos;
+        int firstEqualPos = -1;
+        while (startPos <= endPos) {
+            midPos = endPos + startPos >>> 1;
+            foundTime = getValidRecordTime(midPos, curDataMinOffset);
+            if (foundTime < timestamp) {
+                firstLowPos = midPos;
+                startPos = midPos + 1;
+            } else {
+                endPos = midPos - 1;
+                if (foundTime == timestamp) {
+                    firstEqualPos = midPos;
+                }
+            }
+        }
+        return firstEqualPos != -1 ? firstEqualPos : firstLowPos;
+    }
+
+    /**
+     * Find the first record not before the specified record whose summary
+     * block may contain any of the key codes.
+     *
+     * @param fromRecord   the index of the record to search from
+     * @param keyCodes     the key codes
+     * @return    the index of the found record, the record count if not found
+     */
+    public int findRecordByKeys(int fromRecord, IntHashSet keyCodes) {
+        if (fromRecord < 0 || keyCodes == null || keyCodes.isEmpty()) {
+            return Math.max(fromRecord, 0);
+        }
+        for (int block = fromRecord / KEY_SUMMARY_BLOCK_RECORDS;
+             block < this.keySummaryBlocks; block++) {
+            for (int i = 0; i < keyCodes.size(); i++) {
+                if (mayContainKey(block, keyCodes.get(i))) {
+                    return Math.max(fromRecord, block * KEY_SUMMARY_BLOCK_RECORDS);
+                }
+            }
+        }
+        return Math.max(fromRecord, this.recordCount);
+    }
+
+    private void addKeySummary(int block, int keyCode) {
+        final int base = block * KEY_SUMMARY_LONGS;
+        int bitPos = keyHash1(keyCode) & KEY_SUMMARY_BIT_MASK;
+        this.keySummaries[base + (bitPos >>> 6)] |= 1L << bitPos;
+        bitPos = keyHash2(keyCode) & KEY_SUMMARY_BIT_MASK;
+        this.keySummaries[base + (bitPos >>> 6)] |= 1L << bitPos;
+    }
+
+    private boolean mayContainKey(int block, int keyCode) {
+        final int base = block * KEY_SUMMARY_LONGS;
+        int bitPos = keyHash1(keyCode) & KEY_SUMMARY_BIT_MASK;
+        if ((this.keySummaries[base + (bitPos >>> 6)] & (1L << bitPos)) == 0) {
+            return false;
+        }
+        bitPos = keyHash2(keyCode) & KEY_SUMMARY_BIT_MASK;
+        return (this.keySummaries[base + (bitPos >>> 6)] & (1L << bitPos)) != 0;
+    }
+
+    private static int keyHash1(int keyCode) {
+        int h = keyCode * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private static int keyHash2(int keyCode) {
+        int h = keyCode * 0x85EBCA6B;
+        return h ^ (h >>> 13);
+    }
+
+    private long getSkipTime(int skipIndex, long curDataMinOffset) {
+        if (this.skipDataOffsets[skipIndex] < curDataMinOffset) {
+            return -1;
+        }
+        return this.skipTimes[skipIndex];
+    }
+
+    private long getValidRecordTime(int recordIndex, long curDataMinOffset) {
+        int recordPos = recordIndex * DataStoreUtils.STORE_INDEX_HEAD_LEN;
+        long dataOffset =
+                this.mappedBuffer.getLong(recordPos + DataStoreUtils.INDEX_POS_DATAOFFSET);
+        int dataSize =
+                this.mappedBuffer.getInt(recordPos + DataStoreUtils.INDEX_POS_MSG_SIZE);
+        // skip when mismatch condition
+        if (dataOffset < 0
+                || dataSize <= 0
+                || dataSize > DataStoreUtils.STORE_MAX_MESSAGE_STORE_LEN
+                || dataOffset < curDataMinOffset) {
+            return -1;
+        }
+        return this.mappedBuffer.getLong(recordPos + DataStoreUtils.INDEX_POS_TIME_RECV);
+    }
+}
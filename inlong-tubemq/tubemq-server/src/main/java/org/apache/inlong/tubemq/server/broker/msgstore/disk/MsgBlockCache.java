@@ -0,0 +1,312 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.broker.msgstore.disk;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Broker-wide off-heap block cache of the data segments.
+ *
+ * The data segments are cached in fixed size blocks keyed by (storeKey, segment start,
+ * block offset), the blocks are stored in direct memory and evicted by the clock algorithm.
+ * When a missed block follows a cached block of the same segment, the read is treated as
+ * sequential and the next blocks are read ahead in one read, so the catch-up reads of
+ * lagging consumers become large sequential reads and are shared between consumer groups.
+ */
+public class MsgBlockCache {
+    // the shard count, each shard has its own lock and clock hand
+    private static final int CACHE_SHARD_COUNT = 16;
+    private final int blockSize;
+    private final int readAheadBlocks;
+    private final CacheShard[] cacheShards = new CacheShard[CACHE_SHARD_COUNT];
+    // the buffer to load blocks from the segment file
+    private final ThreadLocal<ByteBuffer> loadBuffer;
+
+    /**
+     * Initial the block cache
+     *
+     * @param totalSize         the total size of the cached blocks
+     * @param blockSize         the block size
+     * @param readAheadBlocks   the block count read ahead when reading sequentially
+     */
+    public MsgBlockCache(long totalSize, int blockSize, int readAheadBlocks) {
+        this.blockSize = blockSize;
+        this.readAheadBlocks = Math.max(0, readAheadBlocks);
+        final int shardBlocks = (int) Math.max(1L,
+                Math.min(Integer.MAX_VALUE / blockSize, totalSize / blockSize / CACHE_SHARD_COUNT));
+        for (int i = 0; i < CACHE_SHARD_COUNT; i++) {
+            this.cacheShards[i] = new CacheShard(shardBlocks, blockSize);
+        }
+        final int loadSize = blockSize * (1 + this.readAheadBlocks);
+        this.loadBuffer = ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(loadSize));
+    }
+
+    /**
+     * Read the segment data through the block cache, like Segment.read()
+     *
+     * @param storeKey       the store key the segment belongs to
+     * @param segment        the data segment
+     * @param bf             buffer to store data
+     * @param absOffset      absolute read position
+     * @return               whether all the read data hit the cache
+     * @throws IOException   the exception while reading the segment file
+     */
+    public boolean read(String storeKey, Segment segment,
+                        ByteBuffer bf, long absOffset) throws IOException {
+        boolean allHit = true;
+        long relOffset = absOffset - segment.getStart();
+        while (bf.hasRemaining()) {
+            final long blockOffset = relOffset - relOffset % blockSize;
+            final int inBlockPos = (int) (relOffset - blockOffset);
+            final BlockKey blockKey =
+                    new BlockKey(storeKey, segment.getStart(), blockOffset);
+            int readLen = getShard(blockKey).read(blockKey, segment, bf, inBlockPos);
+            if (readLen < 0) {
+                allHit = false;
+                // copy from the loaded blocks, they may be evicted before read again
+                final ByteBuffer loaded = loadBlocks(storeKey, segment, blockOffset);
+                if (loaded.limit() <= inBlockPos) {
+                    break;
+                }
+                readLen = Math.min(loaded.limit() - inBlockPos, bf.remaining());
+                loaded.limit(inBlockPos + readLen).position(inBlockPos);
+                bf.put(loaded);
+            }
+            relOffset += readLen;
+        }
+        return allHit;
+    }
+
+    /**
+     * Remove the cached blocks of the closed or deleted segment, so the segment
+     * is not referenced by the cache and the slots are reused first
+     *
+     * @param storeKey   the store key the segment belongs to
+     * @param segment    the closed or deleted data segment
+     */
+    public void release(String storeKey, Segment segment) {
+        for (CacheShard cacheShard : cacheShards) {
+            cacheShard.release(storeKey, segment);
+        }
+    }
+
+    private ByteBuffer loadBlocks(String storeKey, Segment segment,
+                                  long blockOffset) throws IOException {
+        int blockCnt = 1;
+        // read ahead if the previous block has been read
+        if (readAheadBlocks > 0 && blockOffset >= blockSize) {
+            final BlockKey prevKey =
+                    new BlockKey(storeKey, segment.getStart(), blockOffset - blockSize);
+            if (getShard(prevKey).contains(prevKey, segment)) {
+                blockCnt += readAheadBlocks;
+            }
+        }
+        final ByteBuffer buffer = loadBuffer.get();
+        buffer.clear();
+        // only the appended data is read, the bytes behind may be writing
+        final long validSize = segment.getCachedSize() - blockOffset;
+        if (validSize <= 0) {
+            buffer.flip();
+            return buffer;
+        }
+        buffer.limit((int) Math.min(validSize, (long) blockCnt * blockSize));
+        segment.relRead(buffer, blockOffset);
+        buffer.flip();
+        for (int pos = 0; pos < buffer.limit(); pos += blockSize) {
+            final BlockKey blockKey =
+                    new BlockKey(storeKey, segment.getStart(), blockOffset + pos);
+            getShard(blockKey).put(blockKey, segment, buffer,
+                    pos, Math.min(blockSize, buffer.limit() - pos));
+        }
+        return buffer;
+    }
+
+    private CacheShard getShard(BlockKey blockKey) {
+        return cacheShards[(blockKey.hashCode() & 0x7fffffff) % CACHE_SHARD_COUNT];
+    }
+
+    private static class CacheShard {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final int blockSize;
+        private final int slotCount;
+        private final ByteBuffer memory;
+        private final HashMap<BlockKey, Integer> slotIndex = new HashMap<>();
+        private final BlockKey[] slotKeys;
+        // the segment the block is read from, the block is stale if the segment changed
+        private final Segment[] slotOwners;
+        private final int[] slotLengths;
+        private final boolean[] slotRefs;
+        // the released slots, allocated before the clock eviction
+        private final int[] freeSlots;
+        private int freeCount = 0;
+        private int usedSlots = 0;
+        private int clockHand = 0;
+
+        public CacheShard(int slotCount, int blockSize) {
+            this.blockSize = blockSize;
+            this.slotCount = slotCount;
+            this.memory = ByteBuffer.allocateDirect(slotCount * blockSize);
+            this.slotKeys = new BlockKey[slotCount];
+            this.slotOwners = new Segment[slotCount];
+            this.slotLengths = new int[slotCount];
+            this.slotRefs = new boolean[slotCount];
+            this.freeSlots = new int[slotCount];
+        }
+
+        /**
+         * Copy the cached block data
+         *
+         * @return  the copied length, -1 if the block is not cached
+         *          or the cached block is shorter than required
+         */
+        public int read(BlockKey blockKey, Segment owner, ByteBuffer bf, int inBlockPos) {
+            lock.lock();
+            try {
+                final Integer slot = slotIndex.get(blockKey);
+                if (slot == null || slotOwners[slot] != owner) {
+                    return -1;
+                }
+                final int readLen = Math.min(bf.remaining(), blockSize - inBlockPos);
+                // the last block of a growing segment is reloaded
+                if (inBlockPos + readLen > slotLengths[slot]) {
+                    return -1;
+                }
+                slotRefs[slot] = true;
+                final int basePos = slot * blockSize + inBlockPos;
+                final ByteBuffer src = memory.duplicate();
+                src.limit(basePos + readLen).position(basePos);
+                bf.put(src);
+                return readLen;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        public boolean contains(BlockKey blockKey, Segment owner) {
+            lock.lock();
+            try {
+                final Integer slot = slotIndex.get(blockKey);
+                return slot != null && slotOwners[slot] == owner;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        public void put(BlockKey blockKey, Segment owner,
+                        ByteBuffer data, int dataPos, int dataLen) {
+            lock.lock();
+            try {
+                // the segment closed during the load is released already
+                if (owner.isClosed()) {
+                    return;
+                }
+                Integer slot = slotIndex.get(blockKey);
+                if (slot == null) {
+                    slot = allocSlot();
+                    slotIndex.put(blockKey, slot);
+                    slotKeys[slot] = blockKey;
+                }
+                final ByteBuffer src = data.duplicate();
+                src.limit(dataPos + dataLen).position(dataPos);
+                final ByteBuffer dst = memory.duplicate();
+                dst.position(slot * blockSize);
+                dst.put(src);
+                slotOwners[slot] = owner;
+                slotLengths[slot] = dataLen;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        public void release(String storeKey, Segment owner) {
+            lock.lock();
+            try {
+                for (int slot = 0; slot < usedSlots; slot++) {
+                    if (slotOwners[slot] == owner
+                            && slotKeys[slot].storeKey.equals(storeKey)) {
+                        slotIndex.remove(slotKeys[slot]);
+                        slotKeys[slot] = null;
+                        slotOwners[slot] = null;
+                        slotLengths[slot] = 0;
+                        slotRefs[slot] = false;
+                        freeSlots[freeCount++] = slot;
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private int allocSlot() {
+            if (freeCount > 0) {
+                return freeSlots[--freeCount];
+            }
+            if (usedSlots < slotCount) {
+                return usedSlots++;
+            }
+            // clock eviction, skip and clear the recently referenced blocks
+            while (slotRefs[clockHand]) {
+                slotRefs[clockHand] = false;
+                clockHand = (clockHand + 1) % slotCount;
+            }
+            final int victim = clockHand;
+            clockHand = (clockHand + 1) % slotCount;
+            slotIndex.remove(slotKeys[victim]);
+            slotKeys[victim] = null;
+            slotOwners[victim] = null;
+            return victim;
+        }
+    }
+
+    private static final class BlockKey {
+        private final String storeKey;
+        private final long segmentStart;
+        private final long blockOffset;
+
+        public BlockKey(String storeKey, long segmentStart, long blockOffset) {
+            this.storeKey = storeKey;
+            this.segmentStart = segmentStart;
+            this.blockOffset = blockOffset;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof BlockKey)) {
+                return false;
+            }
+            BlockKey that = (BlockKey) o;
+            return segmentStart == that.segmentStart
+                    && blockOffset == that.blockOffset
+                    && storeKey.equals(that.storeKey);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = storeKey.hashCode();
+            result = 31 * result + Long.hashCode(segmentStart);
+            result = 31 * result + Long.hashCode(blockOffset);
+            return result;
+        }
+    }
+}
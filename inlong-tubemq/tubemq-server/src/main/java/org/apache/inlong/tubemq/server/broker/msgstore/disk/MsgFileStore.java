@@ -25,7 +25,6 @@ import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
-import java.util.Set;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
@@ -34,8 +33,11 @@ import org.apache.inlong.tubemq.corebase.TErrCodeConstants;
 import org.apache.inlong.tubemq.corebase.protobuf.generated.ClientBroker;
 import org.apache.inlong.tubemq.corebase.utils.ServiceStatusHolder;
 import org.apache.inlong.tubemq.corebase.utils.Tuple3;
+import org.apache.inlong.tubemq.corerpc.RawDataRegion;
+import org.apache.inlong.tubemq.corerpc.RpcConstants;
 import org.apache.inlong.tubemq.server.broker.BrokerConfig;
 import org.apache.inlong.tubemq.server.broker.msgstore.MessageStore;
+import org.apache.inlong.tubemq.server.broker.msgstore.tiered.TieredSegmentCache;
 import org.apache.inlong.tubemq.server.broker.stats.MsgStoreStatsHolder;
 import org.apache.inlong.tubemq.server.broker.stats.BrokerSrvStatsHolder;
 import org.apache.inlong.tubemq.server.broker.stats.TrafficInfo;
@@ -43,6 +45,7 @@ import org.apache.inlong.tubemq.server.broker.utils.DataStoreUtils;
 import org.apache.inlong.tubemq.server.broker.utils.DiskSamplePrint;
 import org.apache.inlong.tubemq.server.common.TServerConstants;
 import org.apache.inlong.tubemq.server.common.utils.FileUtil;
+import org.apache.inlong.tubemq.server.common.utils.IntHashSet;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -52,6 +55,7 @@ import org.slf4j.LoggerFactory;
 public class MsgFileStore implements Closeable {
     private static final Logger logger = LoggerFactory.getLogger(MsgFileStore.class);
     private static final int MAX_META_REFRESH_DUR = 1000 * 60 * 60;
+    private static final String TIERED_CACHE_DIR = "tiered_cache";
     private static final DiskSamplePrint samplePrintCtrl =
         new DiskSamplePrint(logger);
     // storage ID
@@ -81,6 +85,10 @@ public class MsgFileStore implements Closeable {
     private SegmentList dataSegments;
     // index file segment list
     private SegmentList indexSegments;
+    // the segments in the tiered storage, null if tiered storage is disabled
+    private final TieredSegmentCache tieredCache;
+    // the block cache of the data segments, null if disabled
+    private final MsgBlockCache blockCache;
     // close status
     private final AtomicBoolean closed = new AtomicBoolean(false);
 
@@ -101,6 +109,7 @@ public class MsgFileStore implements Closeable {
         this.messageStore = messageStore;
         this.msgStoreStatsHolder = messageStore.getMsgStoreStatsHolder();
         this.storeKey = messageStore.getStoreKey();
+        this.blockCache = messageStore.getBlockCache();
         this.dataDir = new File(sBuilder.append(baseStorePath)
                 .append(File.separator).append(this.storeKey).toString());
         sBuilder.delete(0, sBuilder.length());
@@ -112,6 +121,13 @@ public class MsgFileStore implements Closeable {
         FileUtil.checkDir(this.indexDir);
         loadSegments(SegmentType.DATA, offsetIfCreate, sBuilder);
         loadSegments(SegmentType.INDEX, offsetIfCreate, sBuilder);
+        if (messageStore.getTieredStorage() == null) {
+            this.tieredCache = null;
+        } else {
+            this.tieredCache = new TieredSegmentCache(messageStore.getTieredStorage(),
+                    this.storeKey, new File(this.dataDir, TIERED_CACHE_DIR),
+                    tubeConfig.getTieredCacheMaxSegments(), this.blockCache);
+        }
         this.lastFlushTime.set(System.currentTimeMillis());
     }
 
@@ -293,10 +309,57 @@ public class MsgFileStore implements Closeable {
     public GetMessageResult getMessages(int partitionId, long lastRdOffset,
                                         long reqOffset, ByteBuffer indexBuffer,
                                         boolean isFilterConsume,
-                                        Set<Integer> filterKeySet,
+                                        IntHashSet filterKeySet,
                                         String statsKeyBase,
                                         int maxMsgTransferSize,
                                         long reqRcvTime) {
+        return getMessages(partitionId, lastRdOffset, reqOffset, indexBuffer,
+                isFilterConsume, filterKeySet, statsKeyBase,
+                maxMsgTransferSize, reqRcvTime, false);
+    }
+
+    /**
+     * Get message from index and data files.
+     *
+     * In raw data mode, the data file is not read, the continuous messages are
+     * returned as file regions of the data segments, and transferred to the
+     * network by the rpc layer directly.
+     *
+     * @param partitionId           the partitionId for reading messages
+     * @param lastRdOffset          the recent data offset read before
+     * @param reqOffset             the request index offset
+     * @param indexBuffer           the index read buffer
+     * @param isFilterConsume       whether to filter consumption
+     * @param filterKeySet          filter item set
+     * @param statsKeyBase         the statistical key prefix
+     * @param maxMsgTransferSize    the max read message size
+     * @param reqRcvTime            the timestamp of the record to be checked
+     * @param rawDataMode           whether to return raw data regions
+     *
+     * @return                      read result
+     */
+    public GetMessageResult getMessages(int partitionId, long lastRdOffset,
+                                        long reqOffset, ByteBuffer indexBuffer,
+                                        boolean isFilterConsume,
+                                        IntHashSet filterKeySet,
+                                        String statsKeyBase,
+                                        int maxMsgTransferSize,
+                                        long reqRcvTime,
+                                        boolean rawDataMode) {
+        return getMessages(partitionId, lastRdOffset, reqOffset, indexBuffer,
+                isFilterConsume, filterKeySet, statsKeyBase,
+                maxMsgTransferSize, reqRcvTime, rawDataMode, false);
+    }
+
+    private GetMessageResult getMessages(int partitionId, long lastRdOffset,
+                                         long reqOffset, ByteBuffer indexBuffer,
+                                         boolean isFilterConsume,
+                                         IntHashSet filterKeySet,
+                                         String statsKeyBase,
+                                         int maxMsgTransferSize,
+                                         long reqRcvTime,
+                                         boolean rawDataMode,
+                                         boolean fromTiered) {
         // #lizard forgives
         // Orderly read from index file, then random read from data file.
         int retCode = 0;
@@ -316,12 +379,21 @@ public class MsgFileStore implements Closeable {
         long lastRdDataOffset = 0L;
         final StringBuilder sBuilder = new StringBuilder(512);
         final long curDataMaxOffset = getDataMaxOffset();
-        final long curDataMinOffset = getDataMinOffset();
+        final long localDataMinOffset = getDataMinOffset();
+        final long curDataMinOffset =
+                fromTiered ? getTieredDataMinOffset() : localDataMinOffset;
         HashMap<String, TrafficInfo> countMap = new HashMap<>();
         ByteBuffer dataBuffer =
                 ByteBuffer.allocate(TServerConstants.CFG_STORE_DEFAULT_MSG_READ_UNIT);
         List<ClientBroker.TransferedMessage> transferedMessageList =
                 new ArrayList<>();
+        List<RawDataRegion> rawDataRegionList = new ArrayList<>();
+        final ByteBuffer headerBuffer = rawDataMode
+                ? ByteBuffer.allocate(DataStoreUtils.STORE_DATA_HEADER_LEN) : null;
+        // the segment of the region being merged, a reference is held for the region
+        Segment rawRegionSeg = null;
+        long rawRegionStart = 0L;
+        int rawRegionLen = 0;
         // read data file by index.
         for (curIndexOffset = 0; curIndexOffset < indexBuffer.remaining();
              curIndexOffset += DataStoreUtils.STORE_INDEX_HEAD_LEN) {
@@ -365,7 +437,15 @@ public class MsgFileStore implements Closeable {
                         recordSeg.relViewRef();
                         recordSeg = null;
                     }
-                    recordSeg = dataSegments.getRecordSeg(curIndexDataOffset);
+                    if (fromTiered && curIndexDataOffset < localDataMinOffset) {
+                        // the segment got from the tiered cache is retained
+                        recordSeg = tieredCache.getSegment(SegmentType.DATA, curIndexDataOffset);
+                    } else {
+                        recordSeg = dataSegments.getRecordSeg(curIndexDataOffset);
+                        if (recordSeg != null && !recordSeg.retainViewRef()) {
+                            recordSeg = null;
+                        }
+                    }
                     if (recordSeg == null) {
                         continue;
                     }
@@ -373,12 +453,58 @@ public class MsgFileStore implements Closeable {
                         throw new Exception("Read Service has closed!");
                     }
                 }
+                if (rawDataMode) {
+                    // the data is transferred without being parsed, so check the header here
+                    headerBuffer.clear();
+                    recordSeg.read(headerBuffer, curIndexDataOffset);
+                    headerBuffer.flip();
+                    if (!DataStoreUtils.isValidDataHeader(headerBuffer, curIndexDataSize)) {
+                        lastRdDataOffset = maxDataLimitOffset;
+                        readedOffset = curIndexOffset + DataStoreUtils.STORE_INDEX_HEAD_LEN;
+                        continue;
+                    }
+                    // merge the continuous messages into one region
+                    if (rawRegionLen > 0
+                            && (rawRegionSeg != recordSeg
+                            || rawRegionStart + rawRegionLen != curIndexDataOffset)) {
+                        if (rawDataRegionList.size() + 1 >= RpcConstants.RPC_MAX_RAW_DATA_REGION_COUNT) {
+                            break;
+                        }
+                        rawDataRegionList.add(buildRawDataRegion(
+                                rawRegionSeg, rawRegionStart, rawRegionLen));
+                        rawRegionSeg = null;
+                        rawRegionLen = 0;
+                    }
+                    if (rawRegionLen == 0) {
+                        if (!recordSeg.retainViewRef()) {
+                            break;
+                        }
+                        rawRegionSeg = recordSeg;
+                        rawRegionStart = curIndexDataOffset;
+                    }
+                    rawRegionLen += curIndexDataSize;
+                    readedOffset = curIndexOffset + DataStoreUtils.STORE_INDEX_HEAD_LEN;
+                    lastRdDataOffset = maxDataLimitOffset;
+                    // the message time is in the attributes, so count it without the time
+                    DataStoreUtils.addTransferStats(countMap, statsKeyBase, "",
+                            curIndexDataSize - DataStoreUtils.STORE_DATA_HEADER_LEN, sBuilder);
+                    totalSize += curIndexDataSize;
+                    if (totalSize >= maxMsgTransferSize) {
+                        break;
+                    }
+                    continue;
+                }
                 if (dataBuffer.capacity() < curIndexDataSize) {
                     dataBuffer = ByteBuffer.allocate(curIndexDataSize);
                 }
                 dataBuffer.clear();
                 dataBuffer.limit(curIndexDataSize);
-                recordSeg.read(dataBuffer, curIndexDataOffset);
+                if (blockCache == null) {
+                    recordSeg.read(dataBuffer, curIndexDataOffset);
+                } else {
+                    msgStoreStatsHolder.addFileBlockCacheRead(
+                            blockCache.read(storeKey, recordSeg, dataBuffer, curIndexDataOffset));
+                }
                 dataBuffer.flip();
                 dataRealLimit = dataBuffer.limit();
                 if (dataRealLimit < curIndexDataSize) {
@@ -417,12 +543,17 @@ public class MsgFileStore implements Closeable {
                 break;
             }
         }
+        if (rawRegionLen > 0) {
+            rawDataRegionList.add(buildRawDataRegion(
+                    rawRegionSeg, rawRegionStart, rawRegionLen));
+        }
         // release resource
         if (recordSeg != null) {
             recordSeg.relViewRef();
         }
         if (retCode != 0) {
-            if (!transferedMessageList.isEmpty()) {
+            if (!transferedMessageList.isEmpty()
+                    || !rawDataRegionList.isEmpty()) {
                 retCode = 0;
                 errInfo = "Ok";
             }
@@ -431,9 +562,88 @@ public class MsgFileStore implements Closeable {
             lastRdDataOffset = lastRdOffset;
         }
         // return result.
-        return new GetMessageResult(result, retCode, errInfo,
+        GetMessageResult getResult = new GetMessageResult(result, retCode, errInfo,
                 reqOffset, readedOffset, lastRdDataOffset,
                 totalSize, countMap, transferedMessageList);
+        getResult.setRawDataRegionList(rawDataRegionList);
+        return getResult;
+    }
+
+    /**
+     * Get message from the index and data segments in the tiered storage.
+     *
+     * The index is read from the tiered index segment includes the request offset, the data
+     * is read from the local data segments first, then from the tiered data segments.
+     *
+     * @param partitionId           the partitionId for reading messages
+     * @param lastRdOffset          the recent data offset read before
+     * @param reqOffset             the request index offset
+     * @param maxIndexReadSize      the max index read size
+     * @param isFilterConsume       whether to filter consumption
+     * @param filterKeySet          filter item set
+     * @param statsKeyBase          the statistical key prefix
+     * @param maxMsgTransferSize    the max read message size
+     * @param reqRcvTime            the timestamp of the record to be checked
+     *
+     * @return                      read result
+     */
+    public GetMessageResult getTieredMessages(int partitionId, long lastRdOffset,
+                                              long reqOffset, int maxIndexReadSize,
+                                              boolean isFilterConsume,
+                                              IntHashSet filterKeySet,
+                                              String statsKeyBase,
+                                              int maxMsgTransferSize,
+                                              long reqRcvTime) {
+        if (this.tieredCache == null) {
+            return new GetMessageResult(false, TErrCodeConstants.MOVED,
+                    reqOffset, 0, "tiered storage is disabled!");
+        }
+        final ByteBuffer indexBuffer = ByteBuffer.allocate(maxIndexReadSize);
+        try {
+            // the segment got from the tiered cache is retained
+            Segment indexRecordView =
+                    this.tieredCache.getSegment(SegmentType.INDEX, reqOffset);
+            if (indexRecordView == null) {
+                return new GetMessageResult(false, TErrCodeConstants.MOVED,
+                        reqOffset, 0, "current offset is not in tiered storage!");
+            }
+            try {
+                // only read the index in this segment, the left is read in the next request
+                indexRecordView.read(indexBuffer, reqOffset);
+            } finally {
+                indexRecordView.relViewRef();
+            }
+        } catch (Throwable e) {
+            if (e instanceof IOException) {
+                ServiceStatusHolder.addReadIOErrCnt();
+                BrokerSrvStatsHolder.incDiskIOExcCnt();
+            }
+            samplePrintCtrl.printExceptionCaught(e,
+                    messageStore.getStoreKey(), String.valueOf(partitionId));
+            return new GetMessageResult(false, TErrCodeConstants.INTERNAL_SERVER_ERROR,
+                    reqOffset, 0, "Get index from tiered storage failure : " + e.getMessage());
+        }
+        indexBuffer.flip();
+        return getMessages(partitionId, lastRdOffset, reqOffset, indexBuffer,
+                isFilterConsume, filterKeySet, statsKeyBase,
+                maxMsgTransferSize, reqRcvTime, false, true);
+    }
+
+    /**
+     * Build the raw data region, the reference held on the segment is
+     * released once the region is transferred.
+     *
+     * @param regionSeg      the segment of the region
+     * @param regionStart    the start offset of the region
+     * @param regionLen      the length of the region
+     * @return               the raw data region
+     */
+    private RawDataRegion buildRawDataRegion(final Segment regionSeg,
+                                             long regionStart, int regionLen) {
+        return new RawDataRegion(
+                ClientBroker.GetMessageResponseB2C.RAWMESSAGES_FIELD_NUMBER,
+                regionSeg.getFileChannel(), regionStart - regionSeg.getStart(),
+                regionLen, regionSeg::relViewRef);
     }
 
     /**
@@ -445,12 +655,27 @@ public class MsgFileStore implements Closeable {
      */
     public long getStartOffsetByTimeStamp(long timestamp) {
         Segment recordSeg = indexSegments.findSegmentByTimeStamp(timestamp);
-        if (recordSeg == null || this.closed.get()) {
+        // hold the segment while searching, its index mapping is released with the file
+        if (recordSeg == null || this.closed.get() || !recordSeg.retainViewRef()) {
             return -1;
         }
+        try {
+            return getStartOffsetByTimeStamp(recordSeg, timestamp);
+        } finally {
+            recordSeg.relViewRef();
+        }
+    }
+
+    private long getStartOffsetByTimeStamp(Segment recordSeg, long timestamp) {
         long endPos = (recordSeg.getCommitLast() - recordSeg.getStart())
                 / DataStoreUtils.STORE_INDEX_HEAD_LEN - 1;
         final long curDataMinOffset = getDataMinOffset();
+        // search the mapped index of the immutable segment in memory
+        final long foundPos =
+                recordSeg.findRecordPosByTime(timestamp, curDataMinOffset);
+        if (foundPos >= 0) {
+            return recordSeg.getStart() + foundPos;
+        }
         final ByteBuffer readBuffer =
                 ByteBuffer.allocate(DataStoreUtils.STORE_INDEX_HEAD_LEN);
         // check boundaries
@@ -502,6 +727,10 @@ public class MsgFileStore implements Closeable {
             try {
                 this.indexSegments.close();
                 this.dataSegments.close();
+                releaseCachedBlocks(this.dataSegments.getView());
+                if (this.tieredCache != null) {
+                    this.tieredCache.close();
+                }
             } finally {
                 this.writeLock.unlock();
             }
@@ -521,11 +750,34 @@ public class MsgFileStore implements Closeable {
                 dataSegments.checkExpiredSegments(start, messageStore.getMaxFileValidDurMs());
         boolean hasExpiredIndexSegs =
                 indexSegments.checkExpiredSegments(start, messageStore.getMaxFileValidDurMs());
+        boolean hasExpiredTieredSegs = this.tieredCache != null
+                && this.tieredCache.hasExpiredSegments(start - tubeConfig.getTieredRetentionMs());
         if (onlyCheck) {
+            return (hasExpiredDataSegs || hasExpiredIndexSegs || hasExpiredTieredSegs);
+        }
+        // delete the uploaded segments exceed the tiered retention
+        if (hasExpiredTieredSegs) {
+            try {
+                this.tieredCache.expireSegments(
+                        start - tubeConfig.getTieredRetentionMs(), sBuilder);
+            } catch (Throwable e) {
+                sBuilder.delete(0, sBuilder.length());
+                logger.warn(sBuilder.append("[File Store] expire the tiered segments of ")
+                        .append(storeKey).append(" failure").toString(), e);
+                sBuilder.delete(0, sBuilder.length());
+            }
+        }
+        // upload the expired segments before deleting them, and keep
+        // the local segments to retry in the next round if failed
+        if (this.tieredCache != null
+                && (!offloadExpiredSegments(SegmentType.DATA, dataSegments, sBuilder)
+                || !offloadExpiredSegments(SegmentType.INDEX, indexSegments, sBuilder))) {
             return (hasExpiredDataSegs || hasExpiredIndexSegs);
         }
         if (hasExpiredDataSegs) {
+            final Segment[] dataViews = dataSegments.getView();
             dataSegments.delExpiredSegments(sBuilder);
+            releaseCachedBlocks(dataViews);
         }
         if (hasExpiredIndexSegs) {
             indexSegments.delExpiredSegments(sBuilder);
@@ -533,6 +785,22 @@ public class MsgFileStore implements Closeable {
         return (hasExpiredDataSegs || hasExpiredIndexSegs);
     }
 
+    /**
+     * Remove the cached blocks of the closed data segments from the block cache
+     *
+     * @param dataViews   the data segments to check
+     */
+    private void releaseCachedBlocks(Segment[] dataViews) {
+        if (blockCache == null) {
+            return;
+        }
+        for (Segment segment : dataViews) {
+            if (segment != null && segment.isClosed()) {
+                blockCache.release(storeKey, segment);
+            }
+        }
+    }
+
     /**
      * Flush data to disk at interval.
      *
@@ -610,6 +878,63 @@ public class MsgFileStore implements Closeable {
         return indexSegments.getRecordSeg(offset);
     }
 
+    /**
+     * Whether the index offset is in the tiered storage
+     *
+     * @param offset   the index offset
+     * @return         whether the offset can be read from the tiered storage
+     */
+    public boolean isTieredIndexOffset(long offset) {
+        return this.tieredCache != null
+                && this.tieredCache.contains(SegmentType.INDEX, offset);
+    }
+
+    /**
+     * Get the min index offset that can be read, includes the tiered segments
+     *
+     * @return   the min readable index offset
+     */
+    public long getReadableIndexMinOffset() {
+        final long indexMinOffset = getIndexMinOffset();
+        if (this.tieredCache == null) {
+            return indexMinOffset;
+        }
+        final long tieredMinOffset = this.tieredCache.getMinOffset(SegmentType.INDEX);
+        return tieredMinOffset < 0 ? indexMinOffset : Math.min(tieredMinOffset, indexMinOffset);
+    }
+
+    private long getTieredDataMinOffset() {
+        final long tieredMinOffset = this.tieredCache.getMinOffset(SegmentType.DATA);
+        return tieredMinOffset < 0 ? getDataMinOffset() : tieredMinOffset;
+    }
+
+    private boolean offloadExpiredSegments(SegmentType segType,
+                                           SegmentList segments,
+                                           StringBuilder sBuilder) {
+        for (Segment segment : segments.getView()) {
+            if (segment == null) {
+                continue;
+            }
+            if (!segment.isExpired()) {
+                break;
+            }
+            try {
+                this.tieredCache.offloadSegment(segType, segment);
+            } catch (Throwable e) {
+                if (e instanceof IOException) {
+                    ServiceStatusHolder.addReadIOErrCnt();
+                    BrokerSrvStatsHolder.incDiskIOExcCnt();
+                }
+                logger.warn(sBuilder.append("[File Store] Upload expired ").append(segType)
+                        .append(" segment ").append(segment.getFile().getAbsolutePath())
+                        .append(" to tiered storage failure, keep it in local").toString(), e);
+                sBuilder.delete(0, sBuilder.length());
+                return false;
+            }
+        }
+        return true;
+    }
+
     private void loadSegments(SegmentType segType, long offsetIfCreate,
                               StringBuilder sBuilder) throws IOException {
         String segTypeStr = "Data";
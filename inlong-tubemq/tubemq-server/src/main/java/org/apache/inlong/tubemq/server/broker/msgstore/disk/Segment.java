@@ -20,6 +20,8 @@ package org.apache.inlong.tubemq.server.broker.msgstore.disk;
 import java.io.File;
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import org.apache.inlong.tubemq.server.common.utils.IntHashSet;
 
 /**
  * Storage segment, usually implemented in file format.
@@ -70,6 +72,14 @@ public interface Segment {
 
     void setMutable(boolean mutable);
 
+    /**
+     * Acquire a reference to the segment, the file is kept open until
+     * the reference is released by relViewRef().
+     *
+     * @return   false if the segment has been closed
+     */
+    boolean retainViewRef();
+
     void relViewRef();
 
     /**
@@ -88,6 +98,13 @@ public interface Segment {
      */
     void relRead(ByteBuffer bf, long relOffset) throws IOException;
 
+    /**
+     * Get the file channel of the segment, used to transfer data to network directly.
+     *
+     * @return   the file channel
+     */
+    FileChannel getFileChannel();
+
     long getLeftAppendTime();
 
     long getRightAppendTime();
@@ -95,4 +112,25 @@ public interface Segment {
     boolean containTime(long timestamp);
 
     long getRecordTime(long reqOffset) throws IOException;
+
+    /**
+     * Find the index record of the specified timestamp in memory,
+     * only supported by the immutable index segment.
+     *
+     * @param timestamp          the specified timestamp
+     * @param curDataMinOffset   the min offset of the valid data
+     * @return   the relative position of the found index record, -1 if not supported
+     */
+    long findRecordPosByTime(long timestamp, long curDataMinOffset);
+
+    /**
+     * Find the first index record from the offset that may match the key codes,
+     * the index blocks without the key codes are skipped,
+     * only supported by the immutable index segment.
+     *
+     * @param reqOffset   the index offset to search from
+     * @param keyCodes    the filtered key codes
+     * @return   the offset of the found index record, reqOffset if not supported
+     */
+    long findRecordOffsetByKeys(long reqOffset, IntHashSet keyCodes);
 }
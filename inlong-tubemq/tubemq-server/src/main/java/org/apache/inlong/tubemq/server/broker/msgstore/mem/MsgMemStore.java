@@ -24,9 +24,10 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
 import java.util.concurrent.locks.ReentrantLock;
 import org.apache.inlong.tubemq.corebase.TBaseConstants;
 import org.apache.inlong.tubemq.corebase.TErrCodeConstants;
@@ -36,26 +37,40 @@ import org.apache.inlong.tubemq.server.broker.stats.BrokerSrvStatsHolder;
 import org.apache.inlong.tubemq.server.broker.stats.MsgStoreStatsHolder;
 import org.apache.inlong.tubemq.server.broker.utils.DataStoreUtils;
 import org.apache.inlong.tubemq.server.common.utils.AppendResult;
+import org.apache.inlong.tubemq.server.common.utils.IntHashSet;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import sun.nio.ch.DirectBuffer;
 
 /**
  * Message's memory storage. It use direct memory store messages that received but not have been flushed to disk.
+ *
+ * In group-commit mode, the writers don't take the write lock: each writer reserves its data
+ * and index space through an atomic cursor, fills the space concurrently, then publishes its
+ * entry after all the entries reserved before it are published, so the published offsets
+ * always cover a completed region.
  */
 public class MsgMemStore implements Closeable {
     private static final Logger logger = LoggerFactory.getLogger(MsgMemStore.class);
+    // the spin count before park while waiting for the previous entries to be published
+    private static final int MAX_PUBLISH_SPIN_COUNT = 64;
+    // the max park time of a waiting writer, guards against a missed wakeup
+    private static final long MAX_PUBLISH_PARK_NANOS = 1000000L;
     // statistics of memory store
     private final AtomicInteger cacheDataOffset = new AtomicInteger(0);
     private final AtomicInteger cacheIndexOffset = new AtomicInteger(0);
     private final AtomicInteger curMessageCount = new AtomicInteger(0);
     private final ReentrantLock writeLock = new ReentrantLock();
+    // whether to append messages in group-commit mode
+    private final boolean enableGroupCommit;
+    // reserved position in group-commit mode, high 32 bits: data offset, low 32 bits: index offset
+    private final AtomicLong reserveCursor = new AtomicLong(0);
+    // the parked writers in group-commit mode, keyed by the index position they wait for
+    private final Map<Integer, Thread> publishWaiters = new ConcurrentHashMap<>();
     // partitionId to index position, accelerate query
-    private final Map<Integer, Integer> queuesMap =
-            new HashMap<>(20);
+    private final Map<Integer, Integer> queuesMap;
     // key to index position, used for filter consume
-    private final Map<Integer, Integer> keysMap =
-            new HashMap<>(100);
+    private final Map<Integer, Integer> keysMap;
     // where messages in memory will sink to disk
     private final int maxDataCacheSize;
     private long writeDataStartPos = -1;
@@ -79,6 +94,29 @@ public class MsgMemStore implements Closeable {
      */
     public MsgMemStore(int maxCacheSize, int maxMsgCount,
                        long writeDataStartPos, long writeIndexStartPos) {
+        this(maxCacheSize, maxMsgCount, writeDataStartPos, writeIndexStartPos, false);
+    }
+
+    /**
+     * MsgMemStore, initial message memory cache store block
+     *
+     * @param maxCacheSize          the allowed max cache data size
+     * @param maxMsgCount           the allowed max cache data size
+     * @param writeDataStartPos     the data start position
+     * @param writeIndexStartPos    the data start position
+     * @param enableGroupCommit     whether to append messages in group-commit mode
+     */
+    public MsgMemStore(int maxCacheSize, int maxMsgCount,
+                       long writeDataStartPos, long writeIndexStartPos,
+                       boolean enableGroupCommit) {
+        this.enableGroupCommit = enableGroupCommit;
+        if (enableGroupCommit) {
+            this.queuesMap = new ConcurrentHashMap<>(20);
+            this.keysMap = new ConcurrentHashMap<>(100);
+        } else {
+            this.queuesMap = new HashMap<>(20);
+            this.keysMap = new HashMap<>(100);
+        }
         this.maxDataCacheSize = maxCacheSize;
         this.maxAllowedMsgCount = maxMsgCount;
         this.maxIndexCacheSize = this.maxAllowedMsgCount * DataStoreUtils.STORE_INDEX_HEAD_LEN;
@@ -99,6 +137,7 @@ public class MsgMemStore implements Closeable {
     public void resetMemStoreStatus(long writeDataStartPos, long writeIndexStartPos) {
         this.keysMap.clear();
         this.queuesMap.clear();
+        this.reserveCursor.set(0);
         this.cacheDataOffset.set(0);
         this.cacheIndexOffset.set(0);
         this.curMessageCount.set(0);
@@ -128,52 +167,231 @@ public class MsgMemStore implements Closeable {
                              int partitionId, int keyCode, long timeRecv,
                              ByteBuffer indexEntry, int dataEntryLength,
                              ByteBuffer dataEntry, AppendResult appendResult) {
-        long dataOffset;
-        long indexOffset;
-        int indexSizePos;
-        boolean isAppended = true;
-        boolean fullDataSize = false;
-        boolean fullIndexSize = false;
-        boolean fullCount = false;
+        if (this.enableGroupCommit) {
+            return groupCommitAppend(memStatsHolder, partitionId, keyCode,
+                    timeRecv, indexEntry, dataEntryLength, dataEntry, appendResult);
+        }
         this.writeLock.lock();
         try {
-            // judge whether can write to memory or not.
-            fullDataSize =
-                    (this.cacheDataOffset.get() + dataEntryLength > this.maxDataCacheSize);
+            return lockedAppend(memStatsHolder, partitionId, keyCode,
+                    timeRecv, indexEntry, dataEntryLength, dataEntry, appendResult);
+        } finally {
+            this.writeLock.unlock();
+        }
+    }
+
+    /**
+     * Append a batch of messages to memory cache, under one lock acquisition if
+     * not in group-commit mode, stop at the first message that the cache can't hold.
+     *
+     * @param memStatsHolder    statistical information object
+     * @param partitionId       the partitionId for append messages
+     * @param timeRecv          the received timestamp
+     * @param keyCodes          the filter item hash codes of the messages
+     * @param indexEntries      the stored index entries of the messages
+     * @param dataEntries       the stored data entries of the messages
+     * @param appendResults     the append results of the messages
+     * @param startIndex        the index of the first message to append
+     *
+     * @return    the count of appended messages
+     */
+    public int appendMsgBatch(MsgStoreStatsHolder memStatsHolder,
+                              int partitionId, long timeRecv, int[] keyCodes,
+                              ByteBuffer[] indexEntries, ByteBuffer[] dataEntries,
+                              AppendResult[] appendResults, int startIndex) {
+        int appendCnt = 0;
+        if (!this.enableGroupCommit) {
+            this.writeLock.lock();
+        }
+        try {
+            for (int i = startIndex; i < dataEntries.length; i++) {
+                boolean isAppended = this.enableGroupCommit
+                        ? groupCommitAppend(memStatsHolder, partitionId, keyCodes[i], timeRecv,
+                                indexEntries[i], dataEntries[i].limit(), dataEntries[i], appendResults[i])
+                        : lockedAppend(memStatsHolder, partitionId, keyCodes[i], timeRecv,
+                                indexEntries[i], dataEntries[i].limit(), dataEntries[i], appendResults[i]);
+                if (!isAppended) {
+                    break;
+                }
+                appendCnt++;
+            }
+        } finally {
+            if (!this.enableGroupCommit) {
+                this.writeLock.unlock();
+            }
+        }
+        return appendCnt;
+    }
+
+    /**
+     * Append message to memory cache, the caller holds the write lock
+     *
+     * @param memStatsHolder    statistical information object
+     * @param partitionId       the partitionId for append messages
+     * @param keyCode           the filter item hash code
+     * @param timeRecv          the received timestamp
+     * @param indexEntry        the stored index entry
+     * @param dataEntryLength   the stored data entry length
+     * @param dataEntry         the stored data entry
+     * @param appendResult      the append result
+     *
+     * @return    the process result
+     */
+    private boolean lockedAppend(MsgStoreStatsHolder memStatsHolder,
+                                 int partitionId, int keyCode, long timeRecv,
+                                 ByteBuffer indexEntry, int dataEntryLength,
+                                 ByteBuffer dataEntry, AppendResult appendResult) {
+        // judge whether can write to memory or not.
+        boolean fullDataSize =
+                (this.cacheDataOffset.get() + dataEntryLength > this.maxDataCacheSize);
+        boolean fullCount =
+                (this.curMessageCount.get() + 1 > maxAllowedMsgCount);
+        boolean fullIndexSize =
+                (this.cacheIndexOffset.get() + DataStoreUtils.STORE_INDEX_HEAD_LEN > this.maxIndexCacheSize);
+        if (fullDataSize || fullCount || fullIndexSize) {
+            memStatsHolder.addCacheFullType(fullDataSize, fullIndexSize, fullCount);
+            return false;
+        }
+        // conduct message with filling process
+        long indexOffset = this.writeIndexStartPos + this.cacheIndexOffset.get();
+        long dataOffset = this.writeDataStartPos + this.cacheDataOffset.get();
+        indexEntry.putLong(DataStoreUtils.INDEX_POS_DATAOFFSET, dataOffset);
+        dataEntry.putLong(DataStoreUtils.STORE_HEADER_POS_QUEUE_LOGICOFF, indexOffset);
+        this.cacheDataSegment.put(dataEntry.array());
+        this.cachedIndexSegment.put(indexEntry.array());
+        this.cacheDataOffset.getAndAdd(dataEntryLength);
+        int indexSizePos = cacheIndexOffset.getAndAdd(DataStoreUtils.STORE_INDEX_HEAD_LEN);
+        this.queuesMap.put(partitionId, indexSizePos);
+        this.keysMap.put(keyCode, indexSizePos);
+        this.curMessageCount.getAndIncrement();
+        this.rightAppendTime.set(timeRecv);
+        if (indexSizePos == 0) {
+            this.leftAppendTime.set(timeRecv);
+        }
+        appendResult.putAppendResult(indexOffset, dataOffset);
+        return true;
+    }
+
+    /**
+     * Append message to memory cache in group-commit mode
+     *
+     * @param memStatsHolder    statistical information object
+     * @param partitionId       the partitionId for append messages
+     * @param keyCode           the filter item hash code
+     * @param timeRecv          the received timestamp
+     * @param indexEntry        the stored index entry
+     * @param dataEntryLength   the stored data entry length
+     * @param dataEntry         the stored data entry
+     * @param appendResult      the append result
+     *
+     * @return    the process result
+     */
+    private boolean groupCommitAppend(MsgStoreStatsHolder memStatsHolder,
+                                      int partitionId, int keyCode, long timeRecv,
+                                      ByteBuffer indexEntry, int dataEntryLength,
+                                      ByteBuffer dataEntry, AppendResult appendResult) {
+        long curCursor;
+        int dataPos;
+        int indexPos;
+        boolean fullDataSize;
+        boolean fullIndexSize;
+        boolean fullCount;
+        // resolve the entry contents before reserving, nothing may fail between
+        // the reservation and the publish, or the later writers would wait forever
+        final byte[] dataArray = dataEntry.array();
+        final byte[] indexArray = indexEntry.array();
+        if (dataArray.length < dataEntryLength
+                || indexArray.length < DataStoreUtils.STORE_INDEX_HEAD_LEN) {
+            throw new IllegalArgumentException(new StringBuilder(512)
+                    .append("The entry is shorter than its stored length, dataLength=")
+                    .append(dataArray.length).append(", dataEntryLength=")
+                    .append(dataEntryLength).append(", indexLength=")
+                    .append(indexArray.length).toString());
+        }
+        // reserve the data and index space
+        do {
+            curCursor = this.reserveCursor.get();
+            dataPos = (int) (curCursor >>> 32);
+            indexPos = (int) curCursor;
+            fullDataSize = (dataPos + dataEntryLength > this.maxDataCacheSize);
             fullCount =
-                    (this.curMessageCount.get() + 1 > maxAllowedMsgCount);
+                    (indexPos / DataStoreUtils.STORE_INDEX_HEAD_LEN + 1 > maxAllowedMsgCount);
             fullIndexSize =
-                    (this.cacheIndexOffset.get() + DataStoreUtils.STORE_INDEX_HEAD_LEN > this.maxIndexCacheSize);
+                    (indexPos + DataStoreUtils.STORE_INDEX_HEAD_LEN > this.maxIndexCacheSize);
             if (fullDataSize || fullCount || fullIndexSize) {
-                isAppended = false;
+                memStatsHolder.addCacheFullType(fullDataSize, fullIndexSize, fullCount);
                 return false;
             }
-            // conduct message with filling process
-            indexOffset = this.writeIndexStartPos + this.cacheIndexOffset.get();
-            dataOffset = this.writeDataStartPos + this.cacheDataOffset.get();
-            indexEntry.putLong(DataStoreUtils.INDEX_POS_DATAOFFSET, dataOffset);
-            dataEntry.putLong(DataStoreUtils.STORE_HEADER_POS_QUEUE_LOGICOFF, indexOffset);
-            this.cacheDataSegment.put(dataEntry.array());
-            this.cachedIndexSegment.put(indexEntry.array());
-            this.cacheDataOffset.getAndAdd(dataEntryLength);
-            indexSizePos = cacheIndexOffset.getAndAdd(DataStoreUtils.STORE_INDEX_HEAD_LEN);
-            this.queuesMap.put(partitionId, indexSizePos);
-            this.keysMap.put(keyCode, indexSizePos);
-            this.curMessageCount.getAndIncrement();
-            this.rightAppendTime.set(timeRecv);
-            if (indexSizePos == 0) {
-                this.leftAppendTime.set(timeRecv);
-            }
+        } while (!this.reserveCursor.compareAndSet(curCursor,
+                ((long) (dataPos + dataEntryLength) << 32)
+                        | (indexPos + DataStoreUtils.STORE_INDEX_HEAD_LEN)));
+        // fill the reserved space, the writers fill their own space concurrently
+        final long indexOffset = this.writeIndexStartPos + indexPos;
+        final long dataOffset = this.writeDataStartPos + dataPos;
+        ByteBuffer indexSegment = this.cachedIndexSegment.duplicate();
+        boolean filled = false;
+        try {
+            ByteBuffer dataSegment = this.cacheDataSegment.duplicate();
+            dataSegment.position(dataPos);
+            dataSegment.put(dataArray, 0, dataEntryLength);
+            dataSegment.putLong(dataPos
+                    + DataStoreUtils.STORE_HEADER_POS_QUEUE_LOGICOFF, indexOffset);
+            indexSegment.position(indexPos);
+            indexSegment.put(indexArray, 0, DataStoreUtils.STORE_INDEX_HEAD_LEN);
+            indexSegment.putLong(indexPos + DataStoreUtils.INDEX_POS_DATAOFFSET, dataOffset);
+            filled = true;
         } finally {
-            this.writeLock.unlock();
-            if (!isAppended) {
-                memStatsHolder.addCacheFullType(fullDataSize, fullIndexSize, fullCount);
+            // the reserved slot is always published, otherwise the later writers
+            // would wait for it forever
+            waitPublishTurn(indexPos);
+            if (filled) {
+                this.queuesMap.put(partitionId, indexPos);
+                this.keysMap.put(keyCode, indexPos);
+                this.curMessageCount.getAndIncrement();
+                this.rightAppendTime.set(timeRecv);
+                if (indexPos == 0) {
+                    this.leftAppendTime.set(timeRecv);
+                }
+            } else {
+                // abandon the slot, an empty index entry is skipped by the readers
+                indexSegment.putInt(indexPos + DataStoreUtils.INDEX_POS_PARTITIONID, -1);
+                indexSegment.putInt(indexPos + DataStoreUtils.INDEX_POS_MSG_SIZE, 0);
+            }
+            // the index offset is set at last to release the next writer
+            this.cacheDataOffset.set(dataPos + dataEntryLength);
+            this.cacheIndexOffset.set(indexPos + DataStoreUtils.STORE_INDEX_HEAD_LEN);
+            // wake up the next writer if it is parked
+            Thread nextWaiter =
+                    this.publishWaiters.get(indexPos + DataStoreUtils.STORE_INDEX_HEAD_LEN);
+            if (nextWaiter != null) {
+                LockSupport.unpark(nextWaiter);
             }
         }
         appendResult.putAppendResult(indexOffset, dataOffset);
         return true;
     }
 
+    /**
+     * Wait for the entries reserved before the given index position to be published,
+     * spin for a short while, then park until the previous writer wakes it up
+     *
+     * @param indexPos    the reserved index position
+     */
+    private void waitPublishTurn(int indexPos) {
+        int spinCount = 0;
+        while (this.cacheIndexOffset.get() != indexPos) {
+            if (++spinCount <= MAX_PUBLISH_SPIN_COUNT) {
+                continue;
+            }
+            this.publishWaiters.put(indexPos, Thread.currentThread());
+            // check again after registered, the previous writer may have published
+            if (this.cacheIndexOffset.get() != indexPos) {
+                LockSupport.parkNanos(this, MAX_PUBLISH_PARK_NANOS);
+            }
+            this.publishWaiters.remove(indexPos);
+        }
+    }
+
     /**
      * Read from memory, read index, then data.
      *
@@ -192,7 +410,7 @@ public class MsgMemStore implements Closeable {
     public GetCacheMsgResult getMessages(long lstRdDataOffset, long lstRdIndexOffset,
                                          int maxReadSize, int maxReadCount,
                                          int partitionId, boolean isSecond,
-                                         boolean isFilterConsume, Set<Integer> filterKeySet,
+                                         boolean isFilterConsume, IntHashSet filterKeySet,
                                          long reqRcvTime) {
         // #lizard forgives
         Integer lastWritePos = 0;
@@ -212,17 +430,18 @@ public class MsgMemStore implements Closeable {
         int currDataOffset;
         long lastDataRdOff = lstRdDataOffset;
         int startReadOff = (int) (lstRdIndexOffset - this.writeIndexStartPos);
-        this.writeLock.lock();
+        // the published status is read without lock in group-commit mode
+        if (!this.enableGroupCommit) {
+            this.writeLock.lock();
+        }
         try {
             if (isFilterConsume) {
                 // filter conduct. accelerate by keysMap.
-                for (Integer keyCode : filterKeySet) {
-                    if (keyCode != null) {
-                        lastWritePos = this.keysMap.get(keyCode);
-                        if ((lastWritePos != null) && (lastWritePos >= startReadOff)) {
-                            hasMsg = true;
-                            break;
-                        }
+                for (int i = 0; i < filterKeySet.size(); i++) {
+                    lastWritePos = this.keysMap.get(filterKeySet.get(i));
+                    if ((lastWritePos != null) && (lastWritePos >= startReadOff)) {
+                        hasMsg = true;
+                        break;
                     }
                 }
             } else {
@@ -232,11 +451,13 @@ public class MsgMemStore implements Closeable {
                     hasMsg = true;
                 }
             }
-            currDataOffset = this.cacheDataOffset.get();
             currIndexOffset = this.cacheIndexOffset.get();
+            currDataOffset = this.cacheDataOffset.get();
             lastDataRdOff = this.writeDataStartPos + currDataOffset;
         } finally {
-            this.writeLock.unlock();
+            if (!this.enableGroupCommit) {
+                this.writeLock.unlock();
+            }
         }
         int limitReadSize = currIndexOffset - startReadOff;
         // cannot find message, return not found
@@ -314,7 +535,7 @@ public class MsgMemStore implements Closeable {
     }
 
     /**
-     * Batch flush memory data to disk.
+     * Batch flush memory data to disk, the whole published region is flushed at once.
      *
      * @param msgFileStore    the file storage
      * @param strBuffer       the message buffer
@@ -327,8 +548,11 @@ public class MsgMemStore implements Closeable {
         }
         ByteBuffer tmpIndexBuffer = this.cachedIndexSegment.asReadOnlyBuffer();
         final ByteBuffer tmpDataReadBuf = this.cacheDataSegment.asReadOnlyBuffer();
-        tmpIndexBuffer.flip();
-        tmpDataReadBuf.flip();
+        // the segments are written by position in group-commit mode, so limit them by the offsets
+        tmpIndexBuffer.limit(this.cacheIndexOffset.get());
+        tmpIndexBuffer.position(0);
+        tmpDataReadBuf.limit(this.cacheDataOffset.get());
+        tmpDataReadBuf.position(0);
         long startTime = System.currentTimeMillis();
         msgFileStore.appendMsg(true, startTime, strBuffer, curMessageCount.get(),
             cacheIndexOffset.get(), tmpIndexBuffer, cacheDataOffset.get(),
@@ -394,9 +618,14 @@ public class MsgMemStore implements Closeable {
         return 0;
     }
 
+    public boolean isEnableGroupCommit() {
+        return enableGroupCommit;
+    }
+
     public void clear() {
         this.writeDataStartPos = -1;
         this.writeIndexStartPos = -1;
+        this.reserveCursor.set(0);
         this.cacheDataOffset.set(0);
         this.cacheIndexOffset.set(0);
         this.curMessageCount.set(0);
@@ -0,0 +1,135 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.broker.msgstore.tiered;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.TreeMap;
+import org.apache.inlong.tubemq.server.broker.msgstore.disk.SegmentType;
+import org.apache.inlong.tubemq.server.broker.utils.DataStoreUtils;
+import org.apache.inlong.tubemq.server.common.utils.FileUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Tiered storage on a local directory, such as a mounted network file system.
+ *
+ * The segments are stored with the same layout as the broker store:
+ * the data segments in baseDir/storeKey, the index segments in baseDir/storeKey/index.
+ */
+public class LocalDirTieredStorage implements TieredStorage {
+    private static final Logger logger =
+            LoggerFactory.getLogger(LocalDirTieredStorage.class);
+    private static final String TMP_FILE_SUFFIX = ".tmp";
+    private final File baseDir;
+
+    public LocalDirTieredStorage(String basePath) {
+        this.baseDir = new File(basePath);
+        FileUtil.checkDir(this.baseDir);
+    }
+
+    @Override
+    public void uploadSegment(String storeKey, SegmentType segType,
+                              long start, File segFile) throws IOException {
+        final File segDir = getSegmentDir(storeKey, segType);
+        FileUtil.checkDir(segDir);
+        final String fileName =
+                DataStoreUtils.nameFromOffset(start, getFileSuffix(segType));
+        final File tmpFile = new File(segDir, fileName + TMP_FILE_SUFFIX);
+        // copy to a temporary file first, so that a partial upload is never listed
+        Files.copy(segFile.toPath(), tmpFile.toPath(),
+                StandardCopyOption.REPLACE_EXISTING);
+        Files.move(tmpFile.toPath(), new File(segDir, fileName).toPath(),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        logger.info(new StringBuilder(512)
+                .append("[Tiered Store] uploaded ").append(segType)
+                .append(" segment ").append(segFile.getAbsolutePath())
+                .append(" to ").append(segDir.getAbsolutePath()).toString());
+    }
+
+    @Override
+    public TreeMap<Long, Long> listSegments(String storeKey,
+                                            SegmentType segType) throws IOException {
+        final TreeMap<Long, Long> segments = new TreeMap<>();
+        final String fileSuffix = getFileSuffix(segType);
+        final File[] ls = getSegmentDir(storeKey, segType).listFiles();
+        if (ls == null) {
+            return segments;
+        }
+        for (final File file : ls) {
+            if (file == null
+                    || !file.isFile()
+                    || !file.getName().endsWith(fileSuffix)) {
+                continue;
+            }
+            final String fileName = file.getName();
+            segments.put(Long.parseLong(fileName.substring(0,
+                    fileName.length() - fileSuffix.length())), file.length());
+        }
+        return segments;
+    }
+
+    @Override
+    public void fetchSegment(String storeKey, SegmentType segType,
+                             long start, File target) throws IOException {
+        Files.copy(getSegmentFile(storeKey, segType, start).toPath(), target.toPath(),
+                StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    @Override
+    public long getUploadTime(String storeKey, SegmentType segType,
+                              long start) throws IOException {
+        // the segment file is moved in place once uploaded, so its modified time is the upload time
+        return Files.getLastModifiedTime(
+                getSegmentFile(storeKey, segType, start).toPath()).toMillis();
+    }
+
+    @Override
+    public void deleteSegment(String storeKey, SegmentType segType,
+                              long start) throws IOException {
+        final File segFile = getSegmentFile(storeKey, segType, start);
+        Files.deleteIfExists(segFile.toPath());
+        logger.info(new StringBuilder(512)
+                .append("[Tiered Store] deleted ").append(segType)
+                .append(" segment ").append(segFile.getAbsolutePath()).toString());
+    }
+
+    @Override
+    public void close() {
+        // nothing to release
+    }
+
+    private File getSegmentFile(String storeKey, SegmentType segType, long start) {
+        return new File(getSegmentDir(storeKey, segType),
+                DataStoreUtils.nameFromOffset(start, getFileSuffix(segType)));
+    }
+
+    private File getSegmentDir(String storeKey, SegmentType segType) {
+        if (segType == SegmentType.INDEX) {
+            return new File(new File(this.baseDir, storeKey), "index");
+        }
+        return new File(this.baseDir, storeKey);
+    }
+
+    private String getFileSuffix(SegmentType segType) {
+        return segType == SegmentType.INDEX
+                ? DataStoreUtils.INDEX_FILE_SUFFIX : DataStoreUtils.DATA_FILE_SUFFIX;
+    }
+}
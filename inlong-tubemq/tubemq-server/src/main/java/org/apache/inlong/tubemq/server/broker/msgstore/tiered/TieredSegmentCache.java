@@ -0,0 +1,393 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.broker.msgstore.tiered;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.inlong.tubemq.server.broker.msgstore.disk.FileSegment;
+import org.apache.inlong.tubemq.server.broker.msgstore.disk.MsgBlockCache;
+import org.apache.inlong.tubemq.server.broker.msgstore.disk.Segment;
+import org.apache.inlong.tubemq.server.broker.msgstore.disk.SegmentType;
+import org.apache.inlong.tubemq.server.broker.utils.DataStoreUtils;
+import org.apache.inlong.tubemq.server.common.utils.FileUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The tiered segments of a message store.
+ *
+ * Records the offset range of the segments uploaded to the tiered storage, and fetches the
+ * remote segments into a local cache directory on read, the least recently used segments
+ * are removed from the cache when the cached count exceeds the limit.
+ *
+ * A segment is fetched once by the first reader, the other readers of the same segment
+ * wait for the fetch without blocking the readers of the cached segments. The returned
+ * segment is retained for the reader, the evicted segment file is deleted after the last
+ * reader releases it.
+ */
+public class TieredSegmentCache implements Closeable {
+    private static final Logger logger =
+            LoggerFactory.getLogger(TieredSegmentCache.class);
+    // the min count of cached segments, an index segment and a data segment
+    private static final int MIN_CACHED_SEGMENTS = 2;
+    private final TieredStorage tieredStorage;
+    private final String storeKey;
+    private final File cacheDir;
+    private final int maxCachedSegments;
+    // the block cache the fetched data segments are read through, may be null
+    private final MsgBlockCache blockCache;
+    // the start offset and length of the uploaded data segments
+    private final ConcurrentSkipListMap<Long, Long> dataSegments;
+    // the start offset and length of the uploaded index segments
+    private final ConcurrentSkipListMap<Long, Long> indexSegments;
+    // the upload time of the uploaded segments, loaded from the tiered storage on demand
+    private final Map<String, Long> uploadTimes = new ConcurrentHashMap<>();
+    // the fetched or fetching segments, in access order
+    private final LinkedHashMap<String, CompletableFuture<Segment>> cachedSegments =
+            new LinkedHashMap<>(16, 0.75f, true);
+    // the sequence of the fetches, the evicted file may be still read while fetched again
+    private final AtomicLong fetchSeq = new AtomicLong(0);
+    private final AtomicBoolean closed = new AtomicBoolean(false);
+
+    /**
+     * Initial the tiered segments of the message store
+     *
+     * @param tieredStorage       the tiered storage
+     * @param storeKey            the store key
+     * @param cacheDir            the local directory to cache the fetched segments
+     * @param maxCachedSegments   the max count of the cached segments
+     * @throws IOException        the exception while listing the uploaded segments
+     */
+    public TieredSegmentCache(TieredStorage tieredStorage, String storeKey,
+                              File cacheDir, int maxCachedSegments) throws IOException {
+        this(tieredStorage, storeKey, cacheDir, maxCachedSegments, null);
+    }
+
+    /**
+     * Initial the tiered segments of the message store
+     *
+     * @param tieredStorage       the tiered storage
+     * @param storeKey            the store key
+     * @param cacheDir            the local directory to cache the fetched segments
+     * @param maxCachedSegments   the max count of the cached segments
+     * @param blockCache          the block cache to release the removed segments from
+     * @throws IOException        the exception while listing the uploaded segments
+     */
+    public TieredSegmentCache(TieredStorage tieredStorage, String storeKey,
+                              File cacheDir, int maxCachedSegments,
+                              MsgBlockCache blockCache) throws IOException {
+        this.tieredStorage = tieredStorage;
+        this.blockCache = blockCache;
+        this.storeKey = storeKey;
+        this.cacheDir = cacheDir;
+        this.maxCachedSegments = Math.max(MIN_CACHED_SEGMENTS, maxCachedSegments);
+        FileUtil.checkDir(this.cacheDir);
+        // the files cached before restart are not tracked, remove them
+        FileUtil.fullyDeleteContents(this.cacheDir);
+        this.dataSegments = new ConcurrentSkipListMap<>(
+                tieredStorage.listSegments(storeKey, SegmentType.DATA));
+        this.indexSegments = new ConcurrentSkipListMap<>(
+                tieredStorage.listSegments(storeKey, SegmentType.INDEX));
+    }
+
+    /**
+     * Upload the sealed segment to the tiered storage
+     *
+     * @param segType       the segment type
+     * @param segment       the segment to upload
+     * @throws IOException  the exception while uploading
+     */
+    public void offloadSegment(SegmentType segType, Segment segment) throws IOException {
+        if (isOffloaded(segType, segment.getStart())) {
+            return;
+        }
+        tieredStorage.uploadSegment(storeKey, segType,
+                segment.getStart(), segment.getFile());
+        uploadTimes.put(getFileName(segType, segment.getStart()), System.currentTimeMillis());
+        getSegmentMap(segType).put(segment.getStart(), segment.getCachedSize());
+    }
+
+    public boolean isOffloaded(SegmentType segType, long start) {
+        return getSegmentMap(segType).containsKey(start);
+    }
+
+    /**
+     * Get the min offset of the uploaded segments
+     *
+     * @param segType   the segment type
+     * @return          the min offset, -1 if no segment uploaded
+     */
+    public long getMinOffset(SegmentType segType) {
+        Map.Entry<Long, Long> first = getSegmentMap(segType).firstEntry();
+        return first == null ? -1L : first.getKey();
+    }
+
+    /**
+     * Whether the offset is in the uploaded segments
+     *
+     * @param segType   the segment type
+     * @param offset    the offset to check
+     * @return          whether the offset is uploaded
+     */
+    public boolean contains(SegmentType segType, long offset) {
+        Map.Entry<Long, Long> found = getSegmentMap(segType).floorEntry(offset);
+        return found != null && offset < found.getKey() + found.getValue();
+    }
+
+    /**
+     * Get the uploaded segment that contains the offset, fetch it if not cached.
+     * The returned segment is retained, the caller must call relViewRef() after read.
+     *
+     * @param segType       the segment type
+     * @param offset        the offset to search
+     * @return              the retained segment includes the offset, null if not uploaded
+     * @throws IOException  the exception while fetching
+     */
+    public Segment getSegment(SegmentType segType, long offset) throws IOException {
+        while (true) {
+            Map.Entry<Long, Long> found = getSegmentMap(segType).floorEntry(offset);
+            if (found == null || offset >= found.getKey() + found.getValue()) {
+                return null;
+            }
+            final String fileName = getFileName(segType, found.getKey());
+            CompletableFuture<Segment> segFuture;
+            boolean isFetcher = false;
+            synchronized (cachedSegments) {
+                if (this.closed.get()) {
+                    throw new IOException("Tiered segment cache has closed!");
+                }
+                segFuture = cachedSegments.get(fileName);
+                if (segFuture == null) {
+                    segFuture = new CompletableFuture<>();
+                    cachedSegments.put(fileName, segFuture);
+                    isFetcher = true;
+                }
+            }
+            if (isFetcher) {
+                fetchSegment(segType, found.getKey(), fileName, segFuture);
+            }
+            Segment segment = waitSegment(segFuture);
+            // the segment may be evicted after got, then get it again
+            if (segment.retainViewRef()) {
+                return segment;
+            }
+        }
+    }
+
+    /**
+     * Whether there are uploaded segments that were uploaded before the expire time
+     *
+     * @param expireBefore   the expire time
+     * @return               whether found expired segments
+     */
+    public boolean hasExpiredSegments(long expireBefore) {
+        for (SegmentType segType : new SegmentType[]{SegmentType.INDEX, SegmentType.DATA}) {
+            Map.Entry<Long, Long> first = getSegmentMap(segType).firstEntry();
+            if (first == null) {
+                continue;
+            }
+            try {
+                if (getUploadTime(segType, first.getKey()) < expireBefore) {
+                    return true;
+                }
+            } catch (Throwable e) {
+                logger.warn(new StringBuilder(512)
+                        .append("[Tiered Store] get the upload time of ").append(segType)
+                        .append(" segment ").append(first.getKey()).append(" of ")
+                        .append(storeKey).append(" failure").toString(), e);
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Delete the uploaded segments that were uploaded before the expire time,
+     * the segments are deleted in offset order.
+     *
+     * @param expireBefore   the expire time
+     * @param sBuilder       the string buffer
+     * @return               the count of the deleted segments
+     * @throws IOException   the exception while deleting
+     */
+    public int expireSegments(long expireBefore, StringBuilder sBuilder) throws IOException {
+        int deletedCnt = 0;
+        // delete the index segments first, so that no index points to the deleted data
+        for (SegmentType segType : new SegmentType[]{SegmentType.INDEX, SegmentType.DATA}) {
+            ConcurrentSkipListMap<Long, Long> segMap = getSegmentMap(segType);
+            Map.Entry<Long, Long> first;
+            while ((first = segMap.firstEntry()) != null && !this.closed.get()) {
+                final String fileName = getFileName(segType, first.getKey());
+                if (getUploadTime(segType, first.getKey()) >= expireBefore) {
+                    break;
+                }
+                // remove the segment from the readable range before deleting it
+                segMap.remove(first.getKey());
+                uploadTimes.remove(fileName);
+                evictSegment(fileName);
+                tieredStorage.deleteSegment(storeKey, segType, first.getKey());
+                deletedCnt++;
+                logger.info(sBuilder.append("[Tiered Store] expired ").append(segType)
+                        .append(" segment ").append(fileName).append(" of ")
+                        .append(storeKey).toString());
+                sBuilder.delete(0, sBuilder.length());
+            }
+        }
+        return deletedCnt;
+    }
+
+    public int getCachedSegmentCount() {
+        synchronized (cachedSegments) {
+            return cachedSegments.size();
+        }
+    }
+
+    @Override
+    public void close() {
+        if (this.closed.compareAndSet(false, true)) {
+            List<CompletableFuture<Segment>> removed;
+            synchronized (cachedSegments) {
+                removed = new ArrayList<>(cachedSegments.values());
+                cachedSegments.clear();
+            }
+            for (CompletableFuture<Segment> segFuture : removed) {
+                deleteSegment(segFuture);
+            }
+            logger.info(new StringBuilder(512)
+                    .append("[Tiered Store] closed tiered segment cache of ")
+                    .append(storeKey).toString());
+        }
+    }
+
+    /**
+     * Fetch the segment from the tiered storage outside the lock, then complete the future.
+     */
+    private void fetchSegment(SegmentType segType, long start, String fileName,
+                              CompletableFuture<Segment> segFuture) {
+        final File cacheFile = new File(this.cacheDir,
+                fileName + "." + fetchSeq.incrementAndGet());
+        Segment segment;
+        try {
+            tieredStorage.fetchSegment(storeKey, segType, start, cacheFile);
+            segment = new FileSegment(start, cacheFile, false, segType);
+        } catch (Throwable e) {
+            if (cacheFile.exists() && !cacheFile.delete()) {
+                logger.warn(new StringBuilder(512)
+                        .append("[Tiered Store] delete the failed fetch file ")
+                        .append(cacheFile.getAbsolutePath()).append(" failure").toString());
+            }
+            // remove the failed fetch, the next reader fetches it again
+            synchronized (cachedSegments) {
+                cachedSegments.remove(fileName, segFuture);
+            }
+            segFuture.completeExceptionally(e);
+            return;
+        }
+        segFuture.complete(segment);
+        List<CompletableFuture<Segment>> evicted = new ArrayList<>();
+        synchronized (cachedSegments) {
+            if (this.closed.get()) {
+                cachedSegments.remove(fileName, segFuture);
+                evicted.add(segFuture);
+            }
+            // remove the least recently used segments, the fetching ones are kept
+            Iterator<CompletableFuture<Segment>> it =
+                    cachedSegments.values().iterator();
+            int removableCnt = cachedSegments.size() - maxCachedSegments;
+            while (removableCnt > 0 && it.hasNext()) {
+                CompletableFuture<Segment> eldest = it.next();
+                if (eldest == segFuture || !eldest.isDone()) {
+                    continue;
+                }
+                it.remove();
+                evicted.add(eldest);
+                removableCnt--;
+            }
+        }
+        for (CompletableFuture<Segment> eldest : evicted) {
+            deleteSegment(eldest);
+        }
+    }
+
+    private void evictSegment(String fileName) {
+        CompletableFuture<Segment> segFuture;
+        synchronized (cachedSegments) {
+            segFuture = cachedSegments.remove(fileName);
+        }
+        if (segFuture != null) {
+            deleteSegment(segFuture);
+        }
+    }
+
+    /**
+     * Delete the cached segment file, the file is deleted after the readers release it.
+     */
+    private void deleteSegment(CompletableFuture<Segment> segFuture) {
+        segFuture.thenAccept(segment -> {
+            segment.deleteFile();
+            if (blockCache != null) {
+                blockCache.release(storeKey, segment);
+            }
+        });
+    }
+
+    private Segment waitSegment(CompletableFuture<Segment> segFuture) throws IOException {
+        try {
+            return segFuture.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while fetching the tiered segment", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("Fetch the tiered segment failure", e.getCause());
+        }
+    }
+
+    private long getUploadTime(SegmentType segType, long start) throws IOException {
+        final String fileName = getFileName(segType, start);
+        Long uploadTime = uploadTimes.get(fileName);
+        if (uploadTime == null) {
+            uploadTime = tieredStorage.getUploadTime(storeKey, segType, start);
+            uploadTimes.put(fileName, uploadTime);
+        }
+        return uploadTime;
+    }
+
+    private String getFileName(SegmentType segType, long start) {
+        return DataStoreUtils.nameFromOffset(start,
+                segType == SegmentType.INDEX
+                        ? DataStoreUtils.INDEX_FILE_SUFFIX : DataStoreUtils.DATA_FILE_SUFFIX);
+    }
+
+    private ConcurrentSkipListMap<Long, Long> getSegmentMap(SegmentType segType) {
+        return segType == SegmentType.INDEX ? indexSegments : dataSegments;
+    }
+}
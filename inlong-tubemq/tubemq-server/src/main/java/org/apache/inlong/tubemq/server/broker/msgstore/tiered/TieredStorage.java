@@ -0,0 +1,100 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.broker.msgstore.tiered;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.TreeMap;
+import org.apache.inlong.tubemq.server.broker.msgstore.disk.SegmentType;
+
+/**
+ * The tiered storage of the expired segments.
+ *
+ * The sealed data and index segments are uploaded to the tiered storage before they are
+ * deleted from the local disk, and are fetched back when the consumer reads the offsets
+ * older than the local segments. Each segment is identified by the store key, the segment
+ * type and the start offset of the segment.
+ *
+ * The implementation is configured by the broker option tieredStorageClass, it must have
+ * a public constructor with the tieredStoragePath value as the only String parameter.
+ *
+ * @see org.apache.inlong.tubemq.server.broker.BrokerConfig#getTieredStorageClass()
+ */
+public interface TieredStorage {
+
+    /**
+     * Upload the segment file to the tiered storage, the uploaded segment must be visible
+     * to listSegments() only after it is completely uploaded.
+     *
+     * @param storeKey      the store key the segment belongs to
+     * @param segType       the segment type
+     * @param start         the start offset of the segment
+     * @param segFile       the segment file
+     * @throws IOException  the exception while uploading
+     */
+    void uploadSegment(String storeKey, SegmentType segType,
+                       long start, File segFile) throws IOException;
+
+    /**
+     * List the uploaded segments of the store
+     *
+     * @param storeKey      the store key
+     * @param segType       the segment type
+     * @return              the segment start offset and segment length, ordered by start offset
+     * @throws IOException  the exception while listing
+     */
+    TreeMap<Long, Long> listSegments(String storeKey,
+                                     SegmentType segType) throws IOException;
+
+    /**
+     * Fetch the uploaded segment to the target local file
+     *
+     * @param storeKey      the store key the segment belongs to
+     * @param segType       the segment type
+     * @param start         the start offset of the segment
+     * @param target        the local file to store the segment
+     * @throws IOException  the exception while fetching
+     */
+    void fetchSegment(String storeKey, SegmentType segType,
+                      long start, File target) throws IOException;
+
+    /**
+     * Get the time when the segment was uploaded
+     *
+     * @param storeKey      the store key the segment belongs to
+     * @param segType       the segment type
+     * @param start         the start offset of the segment
+     * @return              the upload time in milliseconds
+     * @throws IOException  the exception while reading the segment status
+     */
+    long getUploadTime(String storeKey, SegmentType segType,
+                       long start) throws IOException;
+
+    /**
+     * Delete the uploaded segment, called when the segment exceeds the tiered retention
+     *
+     * @param storeKey      the store key the segment belongs to
+     * @param segType       the segment type
+     * @param start         the start offset of the segment
+     * @throws IOException  the exception while deleting
+     */
+    void deleteSegment(String storeKey, SegmentType segType,
+                       long start) throws IOException;
+
+    void close();
+}
@@ -25,6 +25,7 @@ import org.apache.inlong.tubemq.corebase.policies.FlowCtrlResult;
 import org.apache.inlong.tubemq.corebase.policies.FlowCtrlRuleHandler;
 import org.apache.inlong.tubemq.server.broker.msgstore.MessageStoreManager;
 import org.apache.inlong.tubemq.server.common.TServerConstants;
+import org.apache.inlong.tubemq.server.common.utils.IntHashSet;
 
 /**
  * Consumer node info, which broker contains.
@@ -44,7 +45,7 @@ public class ConsumerNodeInfo {
     // filter conditions in string format
     private final Set<String> filterCondStrs = new HashSet<>(10);
     // filter conditions in int format
-    private final Set<Integer> filterCondCode = new HashSet<>(10);
+    private final IntHashSet filterCondCode = new IntHashSet(10);
     // consumer's address
     private String addrRcvFrom;
     private String rmtAddrInfo;
@@ -226,7 +227,7 @@ public class ConsumerNodeInfo {
         }
     }
 
-    public Set<Integer> getFilterCondCodeSet() {
+    public IntHashSet getFilterCondCodeSet() {
         return this.filterCondCode;
     }
 
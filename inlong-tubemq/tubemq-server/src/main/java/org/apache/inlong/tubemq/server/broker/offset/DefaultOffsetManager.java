@@ -17,7 +17,9 @@
 
 package org.apache.inlong.tubemq.server.broker.offset;
 
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -32,12 +34,13 @@ import org.apache.inlong.tubemq.corebase.utils.Tuple2;
 import org.apache.inlong.tubemq.corebase.utils.Tuple3;
 import org.apache.inlong.tubemq.server.broker.BrokerConfig;
 import org.apache.inlong.tubemq.server.broker.msgstore.MessageStore;
-import org.apache.inlong.tubemq.server.broker.stats.BrokerSrvStatsHolder;
-import org.apache.inlong.tubemq.server.broker.utils.DataStoreUtils;
-import org.apache.inlong.tubemq.server.common.TServerConstants;
+import org.apache.inlong.tubemq.server.broker.offset.offsetstorage.FileOffsetStorage;
 import org.apache.inlong.tubemq.server.broker.offset.offsetstorage.OffsetStorage;
 import org.apache.inlong.tubemq.server.broker.offset.offsetstorage.OffsetStorageInfo;
 import org.apache.inlong.tubemq.server.broker.offset.offsetstorage.ZkOffsetStorage;
+import org.apache.inlong.tubemq.server.broker.stats.BrokerSrvStatsHolder;
+import org.apache.inlong.tubemq.server.broker.utils.DataStoreUtils;
+import org.apache.inlong.tubemq.server.common.TServerConstants;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -48,7 +51,7 @@ import org.slf4j.LoggerFactory;
 public class DefaultOffsetManager extends AbstractDaemonService implements OffsetService {
     private static final Logger logger = LoggerFactory.getLogger(DefaultOffsetManager.class);
     private final BrokerConfig brokerConfig;
-    private final OffsetStorage zkOffsetStorage;
+    private final OffsetStorage offsetStorage;
     private final ConcurrentHashMap<String/* group */,
             ConcurrentHashMap<String/* topic - partitionId*/, OffsetStorageInfo>> cfmOffsetMap =
             new ConcurrentHashMap<>();
@@ -56,11 +59,16 @@ public class DefaultOffsetManager extends AbstractDaemonService implements Offse
             ConcurrentHashMap<String/* topic - partitionId*/, Long>> tmpOffsetMap =
             new ConcurrentHashMap<>();
 
-    public DefaultOffsetManager(final BrokerConfig brokerConfig) {
+    public DefaultOffsetManager(final BrokerConfig brokerConfig) throws IOException {
         super("[Offset Manager]", brokerConfig.getZkConfig().getZkCommitPeriodMs());
         this.brokerConfig = brokerConfig;
-        zkOffsetStorage = new ZkOffsetStorage(brokerConfig.getZkConfig(),
-                true, brokerConfig.getBrokerId());
+        if (brokerConfig.isEnableLocalOffsetStorage()) {
+            offsetStorage = new FileOffsetStorage(brokerConfig.getLocalOffsetStoragePath(),
+                    brokerConfig.getBrokerId(), brokerConfig.getLocalOffsetLogMaxSize());
+        } else {
+            offsetStorage = new ZkOffsetStorage(brokerConfig.getZkConfig(),
+                    true, brokerConfig.getBrokerId());
+        }
         super.start();
     }
 
@@ -82,7 +90,7 @@ public class DefaultOffsetManager extends AbstractDaemonService implements Offse
         this.commitTmpOffsets();
         logger.info("[Offset Manager] begin reserve final Offset.....");
         this.commitCfmOffsets(true);
-        this.zkOffsetStorage.close();
+        this.offsetStorage.close();
         logger.info("[Offset Manager] Offset Manager service stopped!");
     }
 
@@ -117,7 +125,8 @@ public class DefaultOffsetManager extends AbstractDaemonService implements Offse
                 || (readStatus == TBaseConstants.CONSUME_MODEL_READ_FROM_MAX_ALWAYS)) {
             long adjOffset = indexMaxOffset;
             if (readStatus != TBaseConstants.CONSUME_MODEL_READ_FROM_MAX_ALWAYS) {
-                adjOffset = MixedUtils.mid(reqOffset, indexMinOffset, indexMaxOffset);
+                adjOffset = MixedUtils.mid(reqOffset,
+                        msgStore.getReadableIndexMinOffset(), indexMaxOffset);
             }
             regInfo.getAndSetOffset(adjOffset);
         }
@@ -179,7 +188,8 @@ public class DefaultOffsetManager extends AbstractDaemonService implements Offse
             }
         }
         final long maxOffset = msgStore.getIndexMaxOffset();
-        final long minOffset = msgStore.getIndexMinOffset();
+        // the offsets in the tiered storage are still readable
+        final long minOffset = msgStore.getReadableIndexMinOffset();
         if (requestOffset >= maxOffset) {
             if (requestOffset > maxOffset && brokerConfig.isUpdateConsumerOffsets()) {
                 logger.warn(sb
@@ -284,7 +294,8 @@ public class DefaultOffsetManager extends AbstractDaemonService implements Offse
         long oldOffset = -1;
         if (store != null) {
             long indexMaxOffset = store.getIndexMaxOffset();
-            reSetOffset = MixedUtils.mid(reSetOffset, store.getIndexMinOffset(), indexMaxOffset);
+            reSetOffset = MixedUtils.mid(reSetOffset,
+                    store.getReadableIndexMinOffset(), indexMaxOffset);
             String offsetCacheKey = getOffsetCacheKey(topic, partitionId);
             getAndResetTmpOffset(group, offsetCacheKey);
             OffsetStorageInfo regInfo =
@@ -330,16 +341,16 @@ public class DefaultOffsetManager extends AbstractDaemonService implements Offse
     }
 
     /**
-     * Get in-memory and in zk group set
+     * Get in-memory and in offset storage group set
      *
-     * @return booked group in memory and in zk
+     * @return booked group in memory and in offset storage
      */
     @Override
     public Set<String> getBookedGroups() {
         Set<String> groupSet =
                 new HashSet<>(cfmOffsetMap.keySet());
         Map<String, Set<String>> localGroups =
-                zkOffsetStorage.queryZkAllGroupTopicInfos();
+                offsetStorage.queryZkAllGroupTopicInfos();
         groupSet.addAll(localGroups.keySet());
         return groupSet;
     }
@@ -354,15 +365,15 @@ public class DefaultOffsetManager extends AbstractDaemonService implements Offse
     }
 
     /**
-     * Get in-zookeeper but not in memory's group set
+     * Get in-offset-storage but not in memory's group set
      *
-     * @return booked group in zookeeper
+     * @return booked group in offset storage
      */
     @Override
     public Set<String> getUnusedGroupInfo() {
         Set<String> unUsedGroups = new HashSet<>();
         Map<String, Set<String>> localGroups =
-                zkOffsetStorage.queryZkAllGroupTopicInfos();
+                offsetStorage.queryZkAllGroupTopicInfos();
         for (String groupName : localGroups.keySet()) {
             if (!cfmOffsetMap.containsKey(groupName)) {
                 unUsedGroups.add(groupName);
@@ -385,7 +396,7 @@ public class DefaultOffsetManager extends AbstractDaemonService implements Offse
             List<String> groupLst = new ArrayList<>(1);
             groupLst.add(group);
             Map<String, Set<String>> groupTopicInfo =
-                    zkOffsetStorage.queryZKGroupTopicInfo(groupLst);
+                    offsetStorage.queryZKGroupTopicInfo(groupLst);
             result = groupTopicInfo.get(group);
         } else {
             for (OffsetStorageInfo storageInfo : topicPartOffsetMap.values()) {
@@ -400,7 +411,7 @@ public class DefaultOffsetManager extends AbstractDaemonService implements Offse
      *
      * @param group           the consume group that to query
      * @param topicPartMap    the topic partition map that to query
-     * @return group offset info in memory or zk
+     * @return group offset info in memory or offset storage
      */
     @Override
     public Map<String, Map<Integer, Tuple2<Long, Long>>> queryGroupOffset(
@@ -409,13 +420,13 @@ public class DefaultOffsetManager extends AbstractDaemonService implements Offse
         // search group from memory
         Map<String, OffsetStorageInfo> topicPartOffsetMap = cfmOffsetMap.get(group);
         if (topicPartOffsetMap == null) {
-            // query from zookeeper
+            // query from offset storage
             for (Map.Entry<String, Set<Integer>> entry : topicPartMap.entrySet()) {
                 if (entry == null || entry.getKey() == null || entry.getValue() == null) {
                     continue;
                 }
                 Map<Integer, Long> qryResult =
-                        zkOffsetStorage.queryGroupOffsetInfo(group,
+                        offsetStorage.queryGroupOffsetInfo(group,
                                 entry.getKey(), entry.getValue());
                 Map<Integer, Tuple2<Long, Long>> offsetMap = new HashMap<>();
                 for (Map.Entry<Integer, Long> item : qryResult.entrySet()) {
@@ -457,7 +468,7 @@ public class DefaultOffsetManager extends AbstractDaemonService implements Offse
     /**
      * Get online groups' offset information
      *
-     * @return group offset info in memory or zk
+     * @return group offset info in memory or offset storage
      */
     @Override
     public Map<String, OffsetRecordInfo> getOnlineGroupOffsetInfo() {
@@ -563,9 +574,9 @@ public class DefaultOffsetManager extends AbstractDaemonService implements Offse
                     .append("[Offset Manager] delete offset from memory by modifier=")
                     .append(modifier).toString();
         } else {
-            zkOffsetStorage.deleteGroupOffsetInfo(groupTopicPartMap);
+            offsetStorage.deleteGroupOffsetInfo(groupTopicPartMap);
             printBase = strBuff
-                    .append("[Offset Manager] delete offset from memory and zk by modifier=")
+                    .append("[Offset Manager] delete offset from memory and offset storage by modifier=")
                     .append(modifier).toString();
         }
         strBuff.delete(0, strBuff.length());
@@ -640,14 +651,20 @@ public class DefaultOffsetManager extends AbstractDaemonService implements Offse
 
     private void commitCfmOffsets(boolean retryable) {
         long startTime = System.currentTimeMillis();
+        Map<String, Collection<OffsetStorageInfo>> groupOffsetMap = new HashMap<>();
         for (Map.Entry<String, ConcurrentHashMap<String, OffsetStorageInfo>> entry : cfmOffsetMap.entrySet()) {
             if (TStringUtils.isBlank(entry.getKey())
                     || entry.getValue() == null || entry.getValue().isEmpty()) {
                 continue;
             }
-            zkOffsetStorage.commitOffset(entry.getKey(), entry.getValue().values(), retryable);
+            groupOffsetMap.put(entry.getKey(), entry.getValue().values());
+        }
+        offsetStorage.commitOffsets(groupOffsetMap, retryable);
+        if (brokerConfig.isEnableLocalOffsetStorage()) {
+            BrokerSrvStatsHolder.updOffsetLogSyncDlt(System.currentTimeMillis() - startTime);
+        } else {
+            BrokerSrvStatsHolder.updZKSyncDataDlt(System.currentTimeMillis() - startTime);
         }
-        BrokerSrvStatsHolder.updZKSyncDataDlt(System.currentTimeMillis() - startTime);
     }
 
     /**
@@ -675,7 +692,7 @@ public class DefaultOffsetManager extends AbstractDaemonService implements Offse
         OffsetStorageInfo regInfo = regInfoMap.get(offsetCacheKey);
         if (regInfo == null) {
             OffsetStorageInfo tmpRegInfo =
-                    zkOffsetStorage.loadOffset(group, topic, partitionId);
+                    offsetStorage.loadOffset(group, topic, partitionId);
             if (tmpRegInfo == null) {
                 tmpRegInfo = new OffsetStorageInfo(topic,
                         brokerConfig.getBrokerId(), partitionId, defOffset, 0);
@@ -0,0 +1,634 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.broker.offset.offsetstorage;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.apache.inlong.tubemq.corebase.TokenConstants;
+import org.apache.inlong.tubemq.corebase.utils.CheckSum;
+import org.apache.inlong.tubemq.server.broker.stats.BrokerSrvStatsHolder;
+import org.apache.inlong.tubemq.server.common.TServerConstants;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A offset storage implementation with a local append-only offset log.
+ *
+ * Each commit round appends the modified offsets of all groups as one batch and
+ * forces it to disk once, the latest offsets are kept in memory and are rebuilt by replaying
+ * the log at startup. When the log grows over the max size and most of its records
+ * are overwritten, it is compacted into a snapshot of the latest offsets.
+ *
+ * Log record format:
+ *   bodyLength      4
+ *   + checksum      4
+ *   + recordType    1
+ *   + group         2 + n
+ *   + topic         2 + n
+ *   + partitionId   4
+ *   + messageId     8
+ *   + offset        8
+ */
+public class FileOffsetStorage implements OffsetStorage {
+    private static final Logger logger = LoggerFactory.getLogger(FileOffsetStorage.class);
+    public static final String OFFSET_LOG_FILE_NAME = "offsets.log";
+    private static final String OFFSET_LOG_TMP_SUFFIX = ".tmp";
+    private static final byte RECORD_TYPE_COMMIT = 1;
+    private static final byte RECORD_TYPE_DELETE = 2;
+    private static final int RECORD_HEAD_LEN = 8;
+    private static final int RECORD_FIXED_BODY_LEN = 1 + 2 + 2 + 4 + 8 + 8;
+    private static final int RECORD_MAX_BODY_LEN = RECORD_FIXED_BODY_LEN + 2 * 0xFFFF;
+
+    private final File logFile;
+    private final int brokerId;
+    private final long maxLogSize;
+    // group -- (topic-partitionId -- {messageId, offset})
+    private final ConcurrentHashMap<String, ConcurrentHashMap<String, long[]>> offsetMap =
+            new ConcurrentHashMap<>();
+    private final Object writeLock = new Object();
+    private FileChannel logChannel;
+    private volatile boolean closed = false;
+    private long logSize = 0L;
+    private long logRecordCnt = 0L;
+    private long liveRecordCnt = 0L;
+
+    /**
+     * Initial local file offset storage object, and load the stored offsets
+     *
+     * @param storePath    the directory of the offset log
+     * @param brokerId     the broker id
+     * @param maxLogSize   the log size to check the compaction
+     * @throws IOException the exception while loading the offset log
+     */
+    public FileOffsetStorage(String storePath, int brokerId, long maxLogSize) throws IOException {
+        this.brokerId = brokerId;
+        this.maxLogSize = maxLogSize;
+        File storeDir = new File(storePath);
+        if (!storeDir.exists() && !storeDir.mkdirs()) {
+            throw new IOException(new StringBuilder(512)
+                    .append("[FileOffsetStorage] Create offset directory failure, path is ")
+                    .append(storeDir.getAbsolutePath()).toString());
+        }
+        this.logFile = new File(storeDir, OFFSET_LOG_FILE_NAME);
+        final long startTime = System.currentTimeMillis();
+        long validSize = replayLog();
+        this.logChannel = new RandomAccessFile(this.logFile, "rw").getChannel();
+        if (this.logChannel.size() > validSize) {
+            logger.warn(new StringBuilder(512)
+                    .append("[FileOffsetStorage] Truncate the broken tail of the offset log from ")
+                    .append(this.logChannel.size()).append(" to ").append(validSize).toString());
+            this.logChannel.truncate(validSize);
+        }
+        this.logSize = validSize;
+        this.logChannel.position(validSize);
+        logger.info(new StringBuilder(512)
+                .append("[FileOffsetStorage] Local Offset Storage initiated, loaded ")
+                .append(this.liveRecordCnt).append(" offsets from ")
+                .append(this.logRecordCnt).append(" records in ")
+                .append(System.currentTimeMillis() - startTime).append(" ms").toString());
+    }
+
+    @Override
+    public void close() {
+        synchronized (this.writeLock) {
+            if (this.closed) {
+                return;
+            }
+            this.closed = true;
+            if (this.logChannel == null) {
+                return;
+            }
+            logger.info("Local Offset Storage closing .......");
+            try {
+                this.logChannel.force(true);
+                this.logChannel.close();
+            } catch (IOException e) {
+                logger.error("[FileOffsetStorage] Close offset log failure", e);
+            }
+            this.logChannel = null;
+            logger.info("Local Offset Storage closed!");
+        }
+    }
+
+    @Override
+    public OffsetStorageInfo loadOffset(String group, String topic, int partitionId) {
+        ConcurrentHashMap<String, long[]> topicPartMap = this.offsetMap.get(group);
+        if (topicPartMap == null) {
+            return null;
+        }
+        long[] offsetItem = topicPartMap.get(buildTopicPartKey(topic, partitionId));
+        if (offsetItem == null) {
+            return null;
+        }
+        return new OffsetStorageInfo(topic, brokerId, partitionId,
+                offsetItem[1], offsetItem[0], false);
+    }
+
+    @Override
+    public void commitOffset(String group,
+                             Collection<OffsetStorageInfo> offsetInfoList,
+                             boolean isFailRetry) {
+        Map<String, Collection<OffsetStorageInfo>> groupOffsetMap = new HashMap<>(1);
+        groupOffsetMap.put(group, offsetInfoList);
+        commitOffsets(groupOffsetMap, isFailRetry);
+    }
+
+    /**
+     * Commit the modified offsets of all groups as one batch, the batch
+     * is forced to disk once.
+     *
+     * @param groupOffsetMap  the offsets to commit, group -- offset list
+     * @param isFailRetry     whether to retry if the commit failed
+     */
+    @Override
+    public void commitOffsets(Map<String, Collection<OffsetStorageInfo>> groupOffsetMap,
+                              boolean isFailRetry) {
+        if (groupOffsetMap == null || groupOffsetMap.isEmpty()) {
+            return;
+        }
+        int recordCnt = 0;
+        ByteBuffer batchBuffer = null;
+        // group -- (topic-partitionId -- {messageId, offset})
+        Map<String, Map<String, long[]>> batchOffsets = new HashMap<>();
+        for (Map.Entry<String, Collection<OffsetStorageInfo>> entry : groupOffsetMap.entrySet()) {
+            if (entry.getKey() == null
+                    || entry.getValue() == null
+                    || entry.getValue().isEmpty()) {
+                continue;
+            }
+            byte[] groupBytes = entry.getKey().getBytes(StandardCharsets.UTF_8);
+            Map<String, long[]> groupOffsets = null;
+            for (final OffsetStorageInfo info : entry.getValue()) {
+                long newOffset;
+                long msgId;
+                synchronized (info) {
+                    if (!info.isModified()) {
+                        continue;
+                    }
+                    newOffset = info.getOffset();
+                    msgId = info.getMessageId();
+                    info.setModified(false);
+                }
+                byte[] topicBytes = info.getTopic().getBytes(StandardCharsets.UTF_8);
+                batchBuffer = ensureCapacity(batchBuffer,
+                        RECORD_HEAD_LEN + RECORD_FIXED_BODY_LEN + groupBytes.length + topicBytes.length,
+                        entry.getValue().size());
+                writeRecord(batchBuffer, RECORD_TYPE_COMMIT,
+                        groupBytes, topicBytes, info.getPartitionId(), msgId, newOffset);
+                if (groupOffsets == null) {
+                    groupOffsets = new HashMap<>();
+                    batchOffsets.put(entry.getKey(), groupOffsets);
+                }
+                groupOffsets.put(buildTopicPartKey(info.getTopic(), info.getPartitionId()),
+                        new long[]{msgId, newOffset});
+                recordCnt++;
+            }
+        }
+        if (recordCnt == 0) {
+            return;
+        }
+        batchBuffer.flip();
+        int retries = isFailRetry ? TServerConstants.CFG_ZK_COMMIT_DEFAULT_RETRIES : 1;
+        for (int i = 0; i < retries; i++) {
+            try {
+                synchronized (this.writeLock) {
+                    appendBatch(batchBuffer, recordCnt);
+                    for (Map.Entry<String, Map<String, long[]>> entry : batchOffsets.entrySet()) {
+                        ConcurrentHashMap<String, long[]> topicPartMap =
+                                getOrCreateGroup(entry.getKey());
+                        for (Map.Entry<String, long[]> partEntry : entry.getValue().entrySet()) {
+                            if (topicPartMap.put(partEntry.getKey(), partEntry.getValue()) == null) {
+                                this.liveRecordCnt++;
+                            }
+                        }
+                    }
+                    compactIfNeeded();
+                }
+                return;
+            } catch (IOException e) {
+                BrokerSrvStatsHolder.incOffsetLogExcCnt();
+                logger.error("Error found when commit offsets to local offset log with retry " + i, e);
+                batchBuffer.rewind();
+            }
+        }
+        // mark the offsets modified again, so they are committed in the next round
+        for (Map.Entry<String, Collection<OffsetStorageInfo>> entry : groupOffsetMap.entrySet()) {
+            Map<String, long[]> groupOffsets = batchOffsets.get(entry.getKey());
+            if (groupOffsets == null) {
+                continue;
+            }
+            for (final OffsetStorageInfo info : entry.getValue()) {
+                if (groupOffsets.containsKey(
+                        buildTopicPartKey(info.getTopic(), info.getPartitionId()))) {
+                    synchronized (info) {
+                        info.setModified(true);
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    public Map<String, Set<String>> queryZkAllGroupTopicInfos() {
+        Map<String, Set<String>> groupTopicMap = new HashMap<>();
+        for (Map.Entry<String, ConcurrentHashMap<String, long[]>> entry : offsetMap.entrySet()) {
+            Set<String> topicSet = getGroupTopics(entry.getValue());
+            if (!topicSet.isEmpty()) {
+                groupTopicMap.put(entry.getKey(), topicSet);
+            }
+        }
+        return groupTopicMap;
+    }
+
+    @Override
+    public Map<String, Set<String>> queryZKGroupTopicInfo(List<String> groupSet) {
+        Map<String, Set<String>> groupTopicMap = new HashMap<>();
+        if (groupSet == null || groupSet.isEmpty()) {
+            return groupTopicMap;
+        }
+        for (String group : groupSet) {
+            if (group == null) {
+                continue;
+            }
+            ConcurrentHashMap<String, long[]> topicPartMap = offsetMap.get(group);
+            if (topicPartMap == null) {
+                continue;
+            }
+            Set<String> topicSet = getGroupTopics(topicPartMap);
+            if (!topicSet.isEmpty()) {
+                groupTopicMap.put(group, topicSet);
+            }
+        }
+        return groupTopicMap;
+    }
+
+    @Override
+    public Map<Integer, Long> queryGroupOffsetInfo(String group, String topic,
+                                                  Set<Integer> partitionIds) {
+        Map<Integer, Long> offsetInfoMap = new HashMap<>(partitionIds.size());
+        ConcurrentHashMap<String, long[]> topicPartMap = offsetMap.get(group);
+        for (Integer partitionId : partitionIds) {
+            long[] offsetItem = (topicPartMap == null)
+                    ? null : topicPartMap.get(buildTopicPartKey(topic, partitionId));
+            offsetInfoMap.put(partitionId, offsetItem == null ? null : offsetItem[1]);
+        }
+        return offsetInfoMap;
+    }
+
+    @Override
+    public void deleteGroupOffsetInfo(
+            Map<String, Map<String, Set<Integer>>> groupTopicPartMap) {
+        int recordCnt = 0;
+        ByteBuffer batchBuffer = null;
+        for (Map.Entry<String, Map<String, Set<Integer>>> entry
+                : groupTopicPartMap.entrySet()) {
+            if (entry.getKey() == null
+                    || entry.getValue() == null
+                    || entry.getValue().isEmpty()) {
+                continue;
+            }
+            byte[] groupBytes = entry.getKey().getBytes(StandardCharsets.UTF_8);
+            for (Map.Entry<String, Set<Integer>> topicEntry : entry.getValue().entrySet()) {
+                if (topicEntry.getKey() == null
+                        || topicEntry.getValue() == null
+                        || topicEntry.getValue().isEmpty()) {
+                    continue;
+                }
+                byte[] topicBytes = topicEntry.getKey().getBytes(StandardCharsets.UTF_8);
+                for (Integer partitionId : topicEntry.getValue()) {
+                    batchBuffer = ensureCapacity(batchBuffer,
+                            RECORD_HEAD_LEN + RECORD_FIXED_BODY_LEN
+                                    + groupBytes.length + topicBytes.length,
+                            topicEntry.getValue().size());
+                    writeRecord(batchBuffer, RECORD_TYPE_DELETE,
+                            groupBytes, topicBytes, partitionId, -1L, -1L);
+                    recordCnt++;
+                }
+            }
+        }
+        if (recordCnt == 0) {
+            return;
+        }
+        batchBuffer.flip();
+        synchronized (this.writeLock) {
+            try {
+                appendBatch(batchBuffer, recordCnt);
+            } catch (IOException e) {
+                BrokerSrvStatsHolder.incOffsetLogExcCnt();
+                logger.error("Error found when delete offsets from local offset log", e);
+                return;
+            }
+            for (Map.Entry<String, Map<String, Set<Integer>>> entry
+                    : groupTopicPartMap.entrySet()) {
+                if (entry.getKey() != null && entry.getValue() != null) {
+                    applyDelete(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+    }
+
+    private void applyDelete(String group, Map<String, Set<Integer>> topicPartMap) {
+        ConcurrentHashMap<String, long[]> storedMap = offsetMap.get(group);
+        if (storedMap == null) {
+            return;
+        }
+        for (Map.Entry<String, Set<Integer>> topicEntry : topicPartMap.entrySet()) {
+            if (topicEntry.getKey() == null || topicEntry.getValue() == null) {
+                continue;
+            }
+            for (Integer partitionId : topicEntry.getValue()) {
+                if (storedMap.remove(buildTopicPartKey(topicEntry.getKey(), partitionId)) != null) {
+                    this.liveRecordCnt--;
+                }
+            }
+        }
+        if (storedMap.isEmpty()) {
+            offsetMap.remove(group, storedMap);
+        }
+    }
+
+    private void appendBatch(ByteBuffer batchBuffer, int recordCnt) throws IOException {
+        if (this.closed) {
+            throw new IOException("Local offset storage is closed!");
+        }
+        if (this.logChannel == null) {
+            // the compacted log was not reopened, retry here
+            openLogChannel();
+        }
+        long position = this.logSize;
+        try {
+            while (batchBuffer.hasRemaining()) {
+                this.logChannel.write(batchBuffer);
+            }
+            this.logChannel.force(false);
+        } catch (IOException e) {
+            // drop the partial written batch
+            this.logChannel.truncate(position);
+            this.logChannel.position(position);
+            throw e;
+        }
+        this.logSize = this.logChannel.position();
+        this.logRecordCnt += recordCnt;
+    }
+
+    /**
+     * Rewrite the latest offsets into a new log when most records are overwritten,
+     * the new log replaces the old one by an atomic rename.
+     *
+     * The old log channel stays in use until the rename succeeds, so a failed
+     * compaction leaves the storage on the old log. A failure here is not a
+     * commit failure, the committed batch is already on disk.
+     */
+    private void compactIfNeeded() {
+        if (this.logSize < this.maxLogSize
+                || this.logRecordCnt < 2 * this.liveRecordCnt) {
+            return;
+        }
+        final long startTime = System.currentTimeMillis();
+        File tmpFile = new File(this.logFile.getParentFile(),
+                OFFSET_LOG_FILE_NAME + OFFSET_LOG_TMP_SUFFIX);
+        long recordCnt = 0L;
+        try (FileChannel tmpChannel = new RandomAccessFile(tmpFile, "rw").getChannel()) {
+            tmpChannel.truncate(0);
+            ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+            for (Map.Entry<String, ConcurrentHashMap<String, long[]>> entry : offsetMap.entrySet()) {
+                byte[] groupBytes = entry.getKey().getBytes(StandardCharsets.UTF_8);
+                for (Map.Entry<String, long[]> partEntry : entry.getValue().entrySet()) {
+                    String[] topicPartStrs = splitTopicPartKey(partEntry.getKey());
+                    byte[] topicBytes = topicPartStrs[0].getBytes(StandardCharsets.UTF_8);
+                    int recordLen = RECORD_HEAD_LEN + RECORD_FIXED_BODY_LEN
+                            + groupBytes.length + topicBytes.length;
+                    if (buffer.remaining() < recordLen) {
+                        buffer.flip();
+                        while (buffer.hasRemaining()) {
+                            tmpChannel.write(buffer);
+                        }
+                        buffer.clear();
+                    }
+                    writeRecord(buffer, RECORD_TYPE_COMMIT, groupBytes, topicBytes,
+                            Integer.parseInt(topicPartStrs[1]),
+                            partEntry.getValue()[0], partEntry.getValue()[1]);
+                    recordCnt++;
+                }
+            }
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                tmpChannel.write(buffer);
+            }
+            tmpChannel.force(true);
+        } catch (IOException e) {
+            BrokerSrvStatsHolder.incOffsetLogExcCnt();
+            logger.error("[FileOffsetStorage] Write compacted offset log failure", e);
+            tmpFile.delete();
+            return;
+        }
+        try {
+            Files.move(tmpFile.toPath(), this.logFile.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            // keep appending to the old log
+            BrokerSrvStatsHolder.incOffsetLogExcCnt();
+            logger.error("[FileOffsetStorage] Replace offset log by compacted log failure", e);
+            tmpFile.delete();
+            return;
+        }
+        final long oldSize = this.logSize;
+        this.logRecordCnt = recordCnt;
+        this.liveRecordCnt = recordCnt;
+        // the old channel now points to the replaced log, swap to the compacted one
+        FileChannel oldChannel = this.logChannel;
+        this.logChannel = null;
+        try {
+            oldChannel.close();
+        } catch (IOException e) {
+            logger.warn("[FileOffsetStorage] Close replaced offset log failure", e);
+        }
+        try {
+            openLogChannel();
+        } catch (IOException e) {
+            // reopened by the next append
+            BrokerSrvStatsHolder.incOffsetLogExcCnt();
+            logger.error("[FileOffsetStorage] Reopen compacted offset log failure", e);
+            return;
+        }
+        logger.info(new StringBuilder(512)
+                .append("[FileOffsetStorage] Compacted offset log from ").append(oldSize)
+                .append(" to ").append(this.logSize).append(" bytes in ")
+                .append(System.currentTimeMillis() - startTime).append(" ms").toString());
+    }
+
+    private void openLogChannel() throws IOException {
+        FileChannel channel = new RandomAccessFile(this.logFile, "rw").getChannel();
+        try {
+            this.logSize = channel.size();
+            channel.position(this.logSize);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        this.logChannel = channel;
+    }
+
+    /**
+     * Replay the offset log, stop at the first broken record
+     *
+     * @return  the size of the valid records
+     */
+    private long replayLog() throws IOException {
+        if (!this.logFile.exists()) {
+            return 0L;
+        }
+        long validSize = 0L;
+        byte[] body = new byte[RECORD_MAX_BODY_LEN];
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(this.logFile), 256 * 1024))) {
+            while (true) {
+                int bodyLen;
+                int checkSum;
+                try {
+                    bodyLen = in.readInt();
+                    checkSum = in.readInt();
+                    if (bodyLen < RECORD_FIXED_BODY_LEN || bodyLen > RECORD_MAX_BODY_LEN) {
+                        break;
+                    }
+                    in.readFully(body, 0, bodyLen);
+                } catch (EOFException e) {
+                    break;
+                }
+                if (CheckSum.crc32(body, 0, bodyLen) != checkSum) {
+                    break;
+                }
+                ByteBuffer bodyBuffer = ByteBuffer.wrap(body, 0, bodyLen);
+                byte recordType = bodyBuffer.get();
+                String group = readString(bodyBuffer);
+                String topic = readString(bodyBuffer);
+                int partitionId = bodyBuffer.getInt();
+                long msgId = bodyBuffer.getLong();
+                long offset = bodyBuffer.getLong();
+                String topicPartKey = buildTopicPartKey(topic, partitionId);
+                if (recordType == RECORD_TYPE_COMMIT) {
+                    if (getOrCreateGroup(group).put(topicPartKey, new long[]{msgId, offset}) == null) {
+                        this.liveRecordCnt++;
+                    }
+                } else if (recordType == RECORD_TYPE_DELETE) {
+                    ConcurrentHashMap<String, long[]> topicPartMap = offsetMap.get(group);
+                    if (topicPartMap != null && topicPartMap.remove(topicPartKey) != null) {
+                        this.liveRecordCnt--;
+                        if (topicPartMap.isEmpty()) {
+                            offsetMap.remove(group);
+                        }
+                    }
+                } else {
+                    break;
+                }
+                this.logRecordCnt++;
+                validSize += RECORD_HEAD_LEN + bodyLen;
+            }
+        }
+        return validSize;
+    }
+
+    private ConcurrentHashMap<String, long[]> getOrCreateGroup(String group) {
+        ConcurrentHashMap<String, long[]> topicPartMap = offsetMap.get(group);
+        if (topicPartMap == null) {
+            ConcurrentHashMap<String, long[]> tmpTopicPartMap = new ConcurrentHashMap<>();
+            topicPartMap = offsetMap.putIfAbsent(group, tmpTopicPartMap);
+            if (topicPartMap == null) {
+                topicPartMap = tmpTopicPartMap;
+            }
+        }
+        return topicPartMap;
+    }
+
+    private Set<String> getGroupTopics(Map<String, long[]> topicPartMap) {
+        Set<String> topicSet = new HashSet<>();
+        for (String topicPartKey : topicPartMap.keySet()) {
+            topicSet.add(splitTopicPartKey(topicPartKey)[0]);
+        }
+        return topicSet;
+    }
+
+    private static ByteBuffer ensureCapacity(ByteBuffer buffer, int recordLen, int expectCnt) {
+        if (buffer == null) {
+            return ByteBuffer.allocate(Math.max(recordLen * expectCnt, recordLen));
+        }
+        if (buffer.remaining() >= recordLen) {
+            return buffer;
+        }
+        ByteBuffer newBuffer = ByteBuffer.allocate(
+                Math.max(buffer.capacity() * 2, buffer.position() + recordLen));
+        buffer.flip();
+        newBuffer.put(buffer);
+        return newBuffer;
+    }
+
+    private static void writeRecord(ByteBuffer buffer, byte recordType,
+                                    byte[] groupBytes, byte[] topicBytes,
+                                    int partitionId, long msgId, long offset) {
+        final int headPos = buffer.position();
+        final int bodyLen = RECORD_FIXED_BODY_LEN + groupBytes.length + topicBytes.length;
+        buffer.putInt(bodyLen);
+        buffer.putInt(0);
+        buffer.put(recordType);
+        buffer.putShort((short) groupBytes.length);
+        buffer.put(groupBytes);
+        buffer.putShort((short) topicBytes.length);
+        buffer.put(topicBytes);
+        buffer.putInt(partitionId);
+        buffer.putLong(msgId);
+        buffer.putLong(offset);
+        buffer.putInt(headPos + 4, CheckSum.crc32(buffer.array(),
+                buffer.arrayOffset() + headPos + RECORD_HEAD_LEN, bodyLen));
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getShort() & 0xFFFF;
+        String value = new String(buffer.array(),
+                buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+
+    private static String buildTopicPartKey(String topic, int partitionId) {
+        return new StringBuilder(topic.length() + 8).append(topic)
+                .append(TokenConstants.HYPHEN).append(partitionId).toString();
+    }
+
+    private static String[] splitTopicPartKey(String topicPartKey) {
+        int index = topicPartKey.lastIndexOf(TokenConstants.HYPHEN);
+        return new String[]{topicPartKey.substring(0, index),
+                topicPartKey.substring(index + 1)};
+    }
+}
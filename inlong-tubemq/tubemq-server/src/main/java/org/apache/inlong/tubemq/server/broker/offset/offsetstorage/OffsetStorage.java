@@ -32,6 +32,9 @@ public interface OffsetStorage {
                       Collection<OffsetStorageInfo> offsetInfoList,
                       boolean isFailRetry);
 
+    void commitOffsets(Map<String, Collection<OffsetStorageInfo>> groupOffsetMap,
+                       boolean isFailRetry);
+
     Map<String, Set<String>> queryZkAllGroupTopicInfos();
 
     Map<String, Set<String>> queryZKGroupTopicInfo(List<String> groupSet);
@@ -136,6 +136,17 @@ public class ZkOffsetStorage implements OffsetStorage {
         }
     }
 
+    @Override
+    public void commitOffsets(Map<String, Collection<OffsetStorageInfo>> groupOffsetMap,
+                              boolean isFailRetry) {
+        if (groupOffsetMap == null) {
+            return;
+        }
+        for (Map.Entry<String, Collection<OffsetStorageInfo>> entry : groupOffsetMap.entrySet()) {
+            commitOffset(entry.getKey(), entry.getValue(), isFailRetry);
+        }
+    }
+
     @Override
     public OffsetStorageInfo loadOffset(String group, String topic, int partitionId) {
         String zkNode = new StringBuilder(512).append(this.consumerZkDir).append("/")
@@ -304,6 +315,34 @@ public class ZkOffsetStorage implements OffsetStorage {
         return queryZKGroupTopicInfo(bookedGroups);
     }
 
+    /**
+     * Query the partition ids of this broker that the group booked offsets on the topic.
+     *
+     * @param group   the consume group name
+     * @param topic   the consumed topic name
+     * @return        the partition id set
+     */
+    public Set<Integer> queryGroupTopicPartitions(String group, String topic) {
+        Set<Integer> partIdSet = new HashSet<>();
+        String brokerNode = new StringBuilder(512).append(this.consumerZkDir)
+                .append("/").append(group).append("/offsets/").append(topic).toString();
+        List<String> brokerPartIds = ZKUtil.getChildren(this.zkw, brokerNode);
+        if (brokerPartIds == null) {
+            return partIdSet;
+        }
+        for (String idStr : brokerPartIds) {
+            if (idStr == null) {
+                continue;
+            }
+            String[] brokerPartIdStrs = idStr.split(TokenConstants.HYPHEN);
+            if (brokerPartIdStrs.length == 2
+                    && strBrokerId.equals(brokerPartIdStrs[0].trim())) {
+                partIdSet.add(Integer.parseInt(brokerPartIdStrs[1].trim()));
+            }
+        }
+        return partIdSet;
+    }
+
     /**
      * Get offset stored in zookeeper, if not found or error, set null
      *
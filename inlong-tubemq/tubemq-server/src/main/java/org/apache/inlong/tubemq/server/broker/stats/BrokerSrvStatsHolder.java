@@ -45,6 +45,8 @@ public class BrokerSrvStatsHolder {
     private static final AtomicLong lstSnapshotTime = new AtomicLong(0);
     // whether the DiskSync statistic is closed
     private static volatile boolean diskSyncClosed = false;
+    // the throttle ratio of the group token buckets, in per-mille
+    private static final String GROUP_FC_THROTTLE_RATIO = "group_fc_throttle_ratio";
 
     // Initial service statistic set
     static {
@@ -135,6 +137,29 @@ public class BrokerSrvStatsHolder {
     public static void updZKSyncDataDlt(long dltTime) {
         switchableSets[getIndex()].zkSyncDltStats.update(dltTime);
     }
+
+    public static void incOffsetLogExcCnt() {
+        switchableSets[getIndex()].offsetLogExcStats.incValue();
+    }
+
+    public static void updOffsetLogSyncDlt(long dltTime) {
+        switchableSets[getIndex()].offsetLogSyncDltStats.update(dltTime);
+    }
+
+    /**
+     * Update the statistics of the fetches evaluated by the group token buckets.
+     *
+     * @param isThrottled     whether the fetch is throttled
+     * @param throttledBytes  the bytes the bucket is short of when throttled
+     */
+    public static void updGroupFlowCtrlStats(boolean isThrottled, long throttledBytes) {
+        ServiceStatsSet statsSet = switchableSets[getIndex()];
+        statsSet.grpFlowCtrlFetchStats.incValue();
+        if (isThrottled) {
+            statsSet.grpFlowCtrlThrottledStats.incValue();
+            statsSet.grpFlowCtrlThrottledBytes.addValue(throttledBytes);
+        }
+    }
     // metric set operate APIs end
 
     // private functions
@@ -164,6 +189,9 @@ public class BrokerSrvStatsHolder {
             statsSet.zkSyncDltStats.snapShort(statsMap, false);
             statsMap.put(statsSet.zkExcStats.getFullName(),
                     statsSet.zkExcStats.getAndResetValue());
+            statsSet.offsetLogSyncDltStats.snapShort(statsMap, false);
+            statsMap.put(statsSet.offsetLogExcStats.getFullName(),
+                    statsSet.offsetLogExcStats.getAndResetValue());
             statsMap.put(statsSet.brokerTimeoutStats.getFullName(),
                     statsSet.brokerTimeoutStats.getAndResetValue());
             statsMap.put(statsSet.brokerHBExcStats.getFullName(),
@@ -172,6 +200,13 @@ public class BrokerSrvStatsHolder {
                     csmOnlineCnt.getAndResetValue());
             statsMap.put(statsSet.csmTimeoutStats.getFullName(),
                     statsSet.csmTimeoutStats.getAndResetValue());
+            long fetchCnt = statsSet.grpFlowCtrlFetchStats.getAndResetValue();
+            long throttledCnt = statsSet.grpFlowCtrlThrottledStats.getAndResetValue();
+            statsMap.put(statsSet.grpFlowCtrlFetchStats.getFullName(), fetchCnt);
+            statsMap.put(statsSet.grpFlowCtrlThrottledStats.getFullName(), throttledCnt);
+            statsMap.put(statsSet.grpFlowCtrlThrottledBytes.getFullName(),
+                    statsSet.grpFlowCtrlThrottledBytes.getAndResetValue());
+            statsMap.put(GROUP_FC_THROTTLE_RATIO, calcThrottleRatio(fetchCnt, throttledCnt));
         } else {
             statsSet.fileSyncDltStats.getValue(statsMap, false);
             statsMap.put(statsSet.fileIOExcStats.getFullName(),
@@ -179,6 +214,9 @@ public class BrokerSrvStatsHolder {
             statsSet.zkSyncDltStats.getValue(statsMap, false);
             statsMap.put(statsSet.zkExcStats.getFullName(),
                     statsSet.zkExcStats.getValue());
+            statsSet.offsetLogSyncDltStats.getValue(statsMap, false);
+            statsMap.put(statsSet.offsetLogExcStats.getFullName(),
+                    statsSet.offsetLogExcStats.getValue());
             statsMap.put(statsSet.brokerTimeoutStats.getFullName(),
                     statsSet.brokerTimeoutStats.getValue());
             statsMap.put(statsSet.brokerHBExcStats.getFullName(),
@@ -187,6 +225,13 @@ public class BrokerSrvStatsHolder {
                     csmOnlineCnt.getValue());
             statsMap.put(statsSet.csmTimeoutStats.getFullName(),
                     statsSet.csmTimeoutStats.getValue());
+            long fetchCnt = statsSet.grpFlowCtrlFetchStats.getValue();
+            long throttledCnt = statsSet.grpFlowCtrlThrottledStats.getValue();
+            statsMap.put(statsSet.grpFlowCtrlFetchStats.getFullName(), fetchCnt);
+            statsMap.put(statsSet.grpFlowCtrlThrottledStats.getFullName(), throttledCnt);
+            statsMap.put(statsSet.grpFlowCtrlThrottledBytes.getFullName(),
+                    statsSet.grpFlowCtrlThrottledBytes.getValue());
+            statsMap.put(GROUP_FC_THROTTLE_RATIO, calcThrottleRatio(fetchCnt, throttledCnt));
         }
     }
 
@@ -205,6 +250,10 @@ public class BrokerSrvStatsHolder {
             statsSet.zkSyncDltStats.snapShort(strBuff, false);
             strBuff.append(",\"").append(statsSet.zkExcStats.getFullName())
                     .append("\":").append(statsSet.zkExcStats.getAndResetValue())
+                    .append(",");
+            statsSet.offsetLogSyncDltStats.snapShort(strBuff, false);
+            strBuff.append(",\"").append(statsSet.offsetLogExcStats.getFullName())
+                    .append("\":").append(statsSet.offsetLogExcStats.getAndResetValue())
                     .append(",\"").append(statsSet.brokerTimeoutStats.getFullName())
                     .append("\":").append(statsSet.brokerTimeoutStats.getAndResetValue())
                     .append(",\"").append(statsSet.brokerHBExcStats.getFullName())
@@ -212,7 +261,17 @@ public class BrokerSrvStatsHolder {
                     .append(",\"").append(csmOnlineCnt.getFullName())
                     .append("\":").append(csmOnlineCnt.getAndResetValue())
                     .append(",\"").append(statsSet.csmTimeoutStats.getFullName())
-                    .append("\":").append(statsSet.csmTimeoutStats.getAndResetValue())
+                    .append("\":").append(statsSet.csmTimeoutStats.getAndResetValue());
+            long fetchCnt = statsSet.grpFlowCtrlFetchStats.getAndResetValue();
+            long throttledCnt = statsSet.grpFlowCtrlThrottledStats.getAndResetValue();
+            strBuff.append(",\"").append(statsSet.grpFlowCtrlFetchStats.getFullName())
+                    .append("\":").append(fetchCnt)
+                    .append(",\"").append(statsSet.grpFlowCtrlThrottledStats.getFullName())
+                    .append("\":").append(throttledCnt)
+                    .append(",\"").append(statsSet.grpFlowCtrlThrottledBytes.getFullName())
+                    .append("\":").append(statsSet.grpFlowCtrlThrottledBytes.getAndResetValue())
+                    .append(",\"").append(GROUP_FC_THROTTLE_RATIO)
+                    .append("\":").append(calcThrottleRatio(fetchCnt, throttledCnt))
                     .append("}");
         } else {
             statsSet.fileSyncDltStats.snapShort(strBuff, false);
@@ -222,6 +281,10 @@ public class BrokerSrvStatsHolder {
             statsSet.zkSyncDltStats.snapShort(strBuff, false);
             strBuff.append(",\"").append(statsSet.zkExcStats.getFullName())
                     .append("\":").append(statsSet.zkExcStats.getValue())
+                    .append(",");
+            statsSet.offsetLogSyncDltStats.snapShort(strBuff, false);
+            strBuff.append(",\"").append(statsSet.offsetLogExcStats.getFullName())
+                    .append("\":").append(statsSet.offsetLogExcStats.getValue())
                     .append(",\"").append(statsSet.brokerTimeoutStats.getFullName())
                     .append("\":").append(statsSet.brokerTimeoutStats.getValue())
                     .append(",\"").append(statsSet.brokerHBExcStats.getFullName())
@@ -229,11 +292,32 @@ public class BrokerSrvStatsHolder {
                     .append(",\"").append(csmOnlineCnt.getFullName())
                     .append("\":").append(csmOnlineCnt.getValue())
                     .append(",\"").append(statsSet.csmTimeoutStats.getFullName())
-                    .append("\":").append(statsSet.csmTimeoutStats.getValue())
+                    .append("\":").append(statsSet.csmTimeoutStats.getValue());
+            long fetchCnt = statsSet.grpFlowCtrlFetchStats.getValue();
+            long throttledCnt = statsSet.grpFlowCtrlThrottledStats.getValue();
+            strBuff.append(",\"").append(statsSet.grpFlowCtrlFetchStats.getFullName())
+                    .append("\":").append(fetchCnt)
+                    .append(",\"").append(statsSet.grpFlowCtrlThrottledStats.getFullName())
+                    .append("\":").append(throttledCnt)
+                    .append(",\"").append(statsSet.grpFlowCtrlThrottledBytes.getFullName())
+                    .append("\":").append(statsSet.grpFlowCtrlThrottledBytes.getValue())
+                    .append(",\"").append(GROUP_FC_THROTTLE_RATIO)
+                    .append("\":").append(calcThrottleRatio(fetchCnt, throttledCnt))
                     .append("}");
         }
     }
 
+    /**
+     * Calculate the throttle ratio of the group token buckets, in per-mille.
+     *
+     * @param fetchCnt       the evaluated fetch count
+     * @param throttledCnt   the throttled fetch count
+     * @return the throttle ratio
+     */
+    private static long calcThrottleRatio(long fetchCnt, long throttledCnt) {
+        return fetchCnt <= 0 ? 0L : throttledCnt * 1000L / fetchCnt;
+    }
+
     /**
      * Get current writable block index.
      *
@@ -273,6 +357,12 @@ public class BrokerSrvStatsHolder {
         // Zookeeper Exception statistics
         protected final LongStatsCounter zkExcStats =
                 new LongStatsCounter("zk_exc_cnt", null);
+        // Delay statistics for syncing offsets to the local offset log
+        protected final ESTHistogram offsetLogSyncDltStats =
+                new ESTHistogram("offset_log_sync_dlt", null);
+        // Local offset log Exception statistics
+        protected final LongStatsCounter offsetLogExcStats =
+                new LongStatsCounter("offset_log_exc_cnt", null);
         // Broker 2 Master status statistics
         protected final LongStatsCounter brokerTimeoutStats =
                 new LongStatsCounter("broker_timeout_cnt", null);
@@ -281,6 +371,13 @@ public class BrokerSrvStatsHolder {
         // Consumer 2 Broker status statistics
         protected final LongStatsCounter csmTimeoutStats =
                 new LongStatsCounter("consume_timeout_cnt", null);
+        // Group token bucket flow control statistics
+        protected final LongStatsCounter grpFlowCtrlFetchStats =
+                new LongStatsCounter("group_fc_fetch_cnt", null);
+        protected final LongStatsCounter grpFlowCtrlThrottledStats =
+                new LongStatsCounter("group_fc_throttled_cnt", null);
+        protected final LongStatsCounter grpFlowCtrlThrottledBytes =
+                new LongStatsCounter("group_fc_throttled_bytes", null);
 
         public ServiceStatsSet() {
             resetSinceTime();
@@ -42,6 +42,8 @@ import org.apache.inlong.tubemq.server.common.TServerConstants;
  * This part supports index comparison output before and after data collection.
  */
 public class MsgStoreStatsHolder {
+    // The name of the block cache hit ratio, in percentage
+    private static final String FILE_BLOCK_CACHE_HIT_RATIO = "file_block_cache_hit_ratio";
     // Switchable statistic items
     private final MsgStoreStatsItemSet[] msgStoreStatsSets = new MsgStoreStatsItemSet[2];
     // Current writable index
@@ -226,6 +228,23 @@ public class MsgStoreStatsHolder {
         }
     }
 
+    /**
+     * Add the block cache read statistic of the file store.
+     *
+     * @param isHit    whether the read data hit the block cache
+     */
+    public void addFileBlockCacheRead(boolean isHit) {
+        if (isClosed) {
+            return;
+        }
+        MsgStoreStatsItemSet tmStatsSet = msgStoreStatsSets[getIndex()];
+        if (isHit) {
+            tmStatsSet.fileBlockCacheHitCnt.incValue();
+        } else {
+            tmStatsSet.fileBlockCacheMissCnt.incValue();
+        }
+    }
+
     /**
      * Check whether has exceeded the maximum self-statistics period.
      *
@@ -438,6 +457,11 @@ public class MsgStoreStatsHolder {
                 statsSet.fileMsgCountFullCnt.getValue());
         statsMap.put(statsSet.fileCachedTimeFullCnt.getFullName(),
                 statsSet.fileCachedTimeFullCnt.getValue());
+        statsMap.put(statsSet.fileBlockCacheHitCnt.getFullName(),
+                statsSet.fileBlockCacheHitCnt.getValue());
+        statsMap.put(statsSet.fileBlockCacheMissCnt.getFullName(),
+                statsSet.fileBlockCacheMissCnt.getValue());
+        statsMap.put(FILE_BLOCK_CACHE_HIT_RATIO, getBlockCacheHitRatio(statsSet));
         if (isWriting) {
             statsMap.put(statsSet.snapShotTime.getFullName(),
                     System.currentTimeMillis());
@@ -501,6 +525,12 @@ public class MsgStoreStatsHolder {
                 .append("\":").append(statsSet.fileMsgCountFullCnt.getValue())
                 .append(",\"").append(statsSet.fileCachedTimeFullCnt.getFullName())
                 .append("\":").append(statsSet.fileCachedTimeFullCnt.getValue())
+                .append(",\"").append(statsSet.fileBlockCacheHitCnt.getFullName())
+                .append("\":").append(statsSet.fileBlockCacheHitCnt.getValue())
+                .append(",\"").append(statsSet.fileBlockCacheMissCnt.getFullName())
+                .append("\":").append(statsSet.fileBlockCacheMissCnt.getValue())
+                .append(",\"").append(FILE_BLOCK_CACHE_HIT_RATIO)
+                .append("\":").append(getBlockCacheHitRatio(statsSet))
                 .append(",\"").append(statsSet.snapShotTime.getFullName())
                 .append("\":\"");
         if (isWriting) {
@@ -511,6 +541,18 @@ public class MsgStoreStatsHolder {
         strBuff.append("\"}");
     }
 
+    /**
+     * Get the block cache hit ratio in percentage.
+     *
+     * @param statsSet     the metric block
+     * @return the hit ratio, 0 if no read
+     */
+    private long getBlockCacheHitRatio(MsgStoreStatsItemSet statsSet) {
+        long hitCnt = statsSet.fileBlockCacheHitCnt.getValue();
+        long totalCnt = hitCnt + statsSet.fileBlockCacheMissCnt.getValue();
+        return totalCnt == 0 ? 0L : hitCnt * 100 / totalCnt;
+    }
+
     /**
      * MsgStoreStatsItemSet, Message store cache related statistics set
      *
@@ -583,6 +625,12 @@ public class MsgStoreStatsHolder {
         // The cache timeout refresh amount statistics
         protected final LongStatsCounter fileCachedTimeFullCnt =
                 new LongStatsCounter("file_time_full", null);
+        // The read count hit the block cache
+        protected final LongStatsCounter fileBlockCacheHitCnt =
+                new LongStatsCounter("file_block_cache_hit", null);
+        // The read count missed the block cache
+        protected final LongStatsCounter fileBlockCacheMissCnt =
+                new LongStatsCounter("file_block_cache_miss", null);
         // The snapshot time of statistics set
         protected final SinceTime snapShotTime =
                 new SinceTime("end_time", null);
@@ -610,6 +658,8 @@ public class MsgStoreStatsHolder {
             this.fileMetaFlushCnt.clear();
             this.fileMsgCountFullCnt.clear();
             this.fileCachedTimeFullCnt.clear();
+            this.fileBlockCacheHitCnt.clear();
+            this.fileBlockCacheMissCnt.clear();
             // for message metric items
             this.msgAppendSizeStats.clear();
             this.msgAppendDurStats.clear();
@@ -21,12 +21,19 @@ import com.google.protobuf.ByteString;
 import java.io.UnsupportedEncodingException;
 import java.nio.ByteBuffer;
 import java.text.NumberFormat;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import org.apache.inlong.tubemq.corebase.TBaseConstants;
 import org.apache.inlong.tubemq.corebase.TokenConstants;
 import org.apache.inlong.tubemq.corebase.protobuf.generated.ClientBroker;
+import org.apache.inlong.tubemq.corebase.utils.CheckSum;
+import org.apache.inlong.tubemq.corebase.utils.CompressType;
+import org.apache.inlong.tubemq.corebase.utils.MessageBatchUtils;
+import org.apache.inlong.tubemq.corebase.utils.MessageCompressUtils;
 import org.apache.inlong.tubemq.corebase.utils.MessageFlagUtils;
 import org.apache.inlong.tubemq.corebase.utils.TStringUtils;
+import org.apache.inlong.tubemq.corebase.utils.Tuple2;
 import org.apache.inlong.tubemq.server.broker.stats.TrafficInfo;
 
 /**
@@ -50,20 +57,20 @@ public class DataStoreUtils {
     //
     public static final int MAX_MSG_TRANSFER_SIZE = 1024 * 1024;
 
-    public static final int STORE_DATA_PREFX_LEN = 48;
-    public static final int STORE_DATA_HEADER_LEN = STORE_DATA_PREFX_LEN + 4;
-    public static final int STORE_HEADER_POS_LENGTH = 0;
-    public static final int STORE_HEADER_POS_DATATYPE = 4;
-    public static final int STORE_HEADER_POS_CHECKSUM = 8;
+    public static final int STORE_DATA_PREFX_LEN = TBaseConstants.STORE_DATA_PREFX_LEN;
+    public static final int STORE_DATA_HEADER_LEN = TBaseConstants.STORE_DATA_HEADER_LEN;
+    public static final int STORE_HEADER_POS_LENGTH = TBaseConstants.STORE_HEADER_POS_LENGTH;
+    public static final int STORE_HEADER_POS_DATATYPE = TBaseConstants.STORE_HEADER_POS_DATATYPE;
+    public static final int STORE_HEADER_POS_CHECKSUM = TBaseConstants.STORE_HEADER_POS_CHECKSUM;
     public static final int STORE_HEADER_POS_QUEUEID = 12;
     public static final int STORE_HEADER_POS_QUEUE_LOGICOFF = 16;
     public static final int STORE_HEADER_POS_RECEIVEDTIME = 24;
     public static final int STORE_HEADER_POS_REPORTADDR = 32;
     public static final int STORE_HEADER_POS_KEYCODE = 36;
-    public static final int STORE_HEADER_POS_MSGID = 40;
-    public static final int STORE_HEADER_POS_MSGFLAG = 48;
+    public static final int STORE_HEADER_POS_MSGID = TBaseConstants.STORE_HEADER_POS_MSGID;
+    public static final int STORE_HEADER_POS_MSGFLAG = TBaseConstants.STORE_HEADER_POS_MSGFLAG;
     public static final int STORE_HEADER_POS_MSGDATA = 52;
-    public static final int STORE_DATA_TOKER_BEGIN_VALUE = 0x2C998B8;
+    public static final int STORE_DATA_TOKER_BEGIN_VALUE = TBaseConstants.STORE_DATA_TOKER_BEGIN_VALUE;
     public static final int STORE_DATA_TOKER_BLANK_VALUE = 0x2C99B5E;
     public static final long MAX_FILE_ROLL_CHECK_DURATION = 1 * 3600 * 1000;
     public static final long MAX_FILE_NO_WRITE_DURATION = 2 * 24 * 3600 * 1000;
@@ -103,6 +110,25 @@ public class DataStoreUtils {
         return nf.format(offset) + fileSuffix;
     }
 
+    /**
+     * Check the header of the stored message.
+     *
+     * @param dataBuffer      the buffer starts with the stored message header
+     * @param dataTotalSize   the stored message size recorded in the index
+     * @return                whether the header is valid
+     */
+    public static boolean isValidDataHeader(ByteBuffer dataBuffer, int dataTotalSize) {
+        if (dataBuffer.limit() < STORE_DATA_HEADER_LEN) {
+            return false;
+        }
+        final int msgLen = dataBuffer.getInt(STORE_HEADER_POS_LENGTH);
+        final int msgToken = dataBuffer.getInt(STORE_HEADER_POS_DATATYPE);
+        final int payLoadLen = msgLen - STORE_DATA_PREFX_LEN;
+        return msgToken == STORE_DATA_TOKER_BEGIN_VALUE
+                && payLoadLen > 0
+                && payLoadLen <= dataTotalSize - STORE_DATA_HEADER_LEN;
+    }
+
     /**
      * Convert inner message to protobuf format, then reply to client.
      *
@@ -117,22 +143,16 @@ public class DataStoreUtils {
                                                                 HashMap<String, TrafficInfo> countMap,
                                                                 String statisKeyBase,
                                                                 StringBuilder sBuilder) {
-        if (dataBuffer.array().length < dataTotalSize) {
+        if (dataBuffer.array().length < dataTotalSize
+                || !isValidDataHeader(dataBuffer, dataTotalSize)) {
             return null;
         }
         final int msgLen =
                 dataBuffer.getInt(DataStoreUtils.STORE_HEADER_POS_LENGTH);
-        final int msgToken =
-                dataBuffer.getInt(DataStoreUtils.STORE_HEADER_POS_DATATYPE);
         final int checkSum =
                 dataBuffer.getInt(DataStoreUtils.STORE_HEADER_POS_CHECKSUM);
         int payLoadLen = msgLen - DataStoreUtils.STORE_DATA_PREFX_LEN;
         int payLoadOffset = DataStoreUtils.STORE_DATA_HEADER_LEN;
-        if ((msgToken != DataStoreUtils.STORE_DATA_TOKER_BEGIN_VALUE)
-                || (payLoadLen <= 0)
-                || (payLoadLen > dataTotalSize - DataStoreUtils.STORE_DATA_HEADER_LEN)) {
-            return null;
-        }
         final long msgId = dataBuffer.getLong(DataStoreUtils.STORE_HEADER_POS_MSGID);
         final int flag = dataBuffer.getInt(DataStoreUtils.STORE_HEADER_POS_MSGFLAG);
         final int payLoadLen2 = payLoadLen;
@@ -144,10 +164,11 @@ public class DataStoreUtils {
         dataBuilder.setCheckSum(checkSum);
         dataBuilder.setFlag(flag);
         dataBuilder.setPayLoadData(ByteString.copyFrom(payLoadData));
-        // get statistic data
+        // get statistic data, the attribute of compressed payload is not parsed
         int attrLen = 0;
         String attribute = null;
-        if (MessageFlagUtils.hasAttribute(flag)) {
+        if (MessageFlagUtils.hasAttribute(flag)
+                && !MessageFlagUtils.isCompressed(flag)) {
             if (payLoadLen < 4) {
                 return null;
             }
@@ -184,17 +205,87 @@ public class DataStoreUtils {
                 }
             }
         }
+        addTransferStats(countMap, statisKeyBase, messageTime, payLoadLen2, sBuilder);
+        ClientBroker.TransferedMessage transferedMessage = dataBuilder.build();
+        dataBuilder.clear();
+        return transferedMessage;
+    }
+
+    /**
+     * Decompress the compressed messages for the consumer that doesn't support
+     * the compressed payload, the batch records are split into their messages,
+     * which share the message id of the record. The message failed to decompress
+     * is dropped.
+     *
+     * @param transferedMessages   the messages read from the store
+     * @return                     the messages with the original payload
+     */
+    public static List<ClientBroker.TransferedMessage> decompressTransferMsgs(
+            List<ClientBroker.TransferedMessage> transferedMessages) {
+        List<ClientBroker.TransferedMessage> result =
+                new ArrayList<>(transferedMessages.size());
+        for (ClientBroker.TransferedMessage message : transferedMessages) {
+            if (MessageFlagUtils.isBatchRecord(message.getFlag())) {
+                List<Tuple2<Integer, byte[]>> batchMessages;
+                try {
+                    batchMessages = MessageBatchUtils.decode(message.getFlag(),
+                            message.getPayLoadData().toByteArray());
+                } catch (Throwable e) {
+                    continue;
+                }
+                for (Tuple2<Integer, byte[]> batchMessage : batchMessages) {
+                    result.add(message.toBuilder()
+                            .setFlag(batchMessage.getF0())
+                            .setCheckSum(CheckSum.crc32(batchMessage.getF1()))
+                            .setPayLoadData(ByteString.copyFrom(batchMessage.getF1()))
+                            .build());
+                }
+                continue;
+            }
+            if (!MessageFlagUtils.isCompressed(message.getFlag())) {
+                result.add(message);
+                continue;
+            }
+            CompressType compressType = MessageFlagUtils.getCompressType(message.getFlag());
+            if (compressType == null) {
+                continue;
+            }
+            byte[] payLoadData;
+            try {
+                payLoadData = MessageCompressUtils.decompress(compressType,
+                        message.getPayLoadData().toByteArray());
+            } catch (Throwable e) {
+                continue;
+            }
+            result.add(message.toBuilder()
+                    .setFlag(MessageFlagUtils.setCompressType(message.getFlag(), CompressType.NONE))
+                    .setCheckSum(CheckSum.crc32(payLoadData))
+                    .setPayLoadData(ByteString.copyFrom(payLoadData))
+                    .build());
+        }
+        return result;
+    }
+
+    /**
+     * Add the statistics of the transferred message.
+     *
+     * @param countMap        the statistics map
+     * @param statisKeyBase   the statistics key prefix
+     * @param messageTime     the message time, empty if not set
+     * @param payLoadLen      the payload length
+     * @param sBuilder        the string buffer
+     */
+    public static void addTransferStats(HashMap<String, TrafficInfo> countMap,
+                                        String statisKeyBase, String messageTime,
+                                        int payLoadLen, StringBuilder sBuilder) {
         String baseKey = sBuilder.append(statisKeyBase)
                 .append("#").append(messageTime).toString();
         sBuilder.delete(0, sBuilder.length());
         TrafficInfo getCount = countMap.get(baseKey);
         if (getCount == null) {
-            countMap.put(baseKey, new TrafficInfo(1L, payLoadLen2));
+            countMap.put(baseKey, new TrafficInfo(1L, payLoadLen));
         } else {
-            getCount.addMsgCntAndSize(1L, payLoadLen2);
+            getCount.addMsgCntAndSize(1L, payLoadLen);
         }
-        ClientBroker.TransferedMessage transferedMessage = dataBuilder.build();
-        dataBuilder.clear();
-        return transferedMessage;
     }
 }
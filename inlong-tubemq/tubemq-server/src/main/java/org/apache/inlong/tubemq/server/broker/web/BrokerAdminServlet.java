@@ -393,10 +393,10 @@ public class BrokerAdminServlet extends AbstractWebHandler {
                     .append("\"}");
             return;
         }
-        if (manualOffset < store.getIndexMinOffset()) {
+        if (manualOffset < store.getReadableIndexMinOffset()) {
             sBuffer.append("{\"result\":false,\"errCode\":400,\"errMsg\":\"")
                     .append("Invalid parameter: manualOffset lower than Current MinOffset:(")
-                    .append(manualOffset).append("<").append(store.getIndexMinOffset())
+                    .append(manualOffset).append("<").append(store.getReadableIndexMinOffset())
                     .append(")\"}");
             return;
         }
@@ -259,7 +259,9 @@ public enum WebFieldDef {
     MAXRETRYCOUNT(93, "maxRetryCnt", "mrc", WebFieldType.INT,
             "Max retry query turns", RegexDef.TMP_NUMBER),
     STATSTYPE(94, "statsType", "st", WebFieldType.STRING,
-            "Statistics type", TServerConstants.META_MAX_STATSTYPE_LENGTH);
+            "Statistics type", TServerConstants.META_MAX_STATSTYPE_LENGTH),
+    BALANCESTRATEGY(95, "balanceStrategy", "balStgy", WebFieldType.INT,
+            "Server-side balance strategy, 0: default, 1: sticky", RegexDef.TMP_NUMBER);
 
 
     public final int id;
@@ -17,16 +17,14 @@
 
 package org.apache.inlong.tubemq.server.common.heartbeat;
 
-import java.util.HashSet;
-import java.util.Map;
-import java.util.Set;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
 import org.apache.inlong.tubemq.corebase.TErrCodeConstants;
 import org.apache.inlong.tubemq.corebase.rv.ProcessResult;
-import org.apache.inlong.tubemq.corebase.utils.TStringUtils;
 import org.apache.inlong.tubemq.server.common.exception.HeartbeatException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -34,6 +32,10 @@ import org.slf4j.LoggerFactory;
 public class HeartbeatManager {
 
     private static final Logger logger = LoggerFactory.getLogger(HeartbeatManager.class);
+    // the tick span and slot bits of the timeout wheels
+    private static final long WHEEL_TICK_MS = 100L;
+    private static final int WHEEL_SLOT_BITS = 8;
+    private static final int WHEEL_LEVEL_CNT = 3;
 
     private final ConcurrentHashMap<String, TimeoutInfo> brokerRegMap =
             new ConcurrentHashMap<>();
@@ -41,6 +43,12 @@ public class HeartbeatManager {
             new ConcurrentHashMap<>();
     private final ConcurrentHashMap<String, TimeoutInfo> consumerRegMap =
             new ConcurrentHashMap<>();
+    private final TimeoutWheel brokerWheel = new TimeoutWheel(WHEEL_TICK_MS,
+            WHEEL_SLOT_BITS, WHEEL_LEVEL_CNT, System.currentTimeMillis());
+    private final TimeoutWheel producerWheel = new TimeoutWheel(WHEEL_TICK_MS,
+            WHEEL_SLOT_BITS, WHEEL_LEVEL_CNT, System.currentTimeMillis());
+    private final TimeoutWheel consumerWheel = new TimeoutWheel(WHEEL_TICK_MS,
+            WHEEL_SLOT_BITS, WHEEL_LEVEL_CNT, System.currentTimeMillis());
     private final ExecutorService timeoutScanService = Executors.newCachedThreadPool();
     private long brokerTimeoutDlt = 0;
     private long producerTimeoutDlt = 0;
@@ -95,7 +103,7 @@ public class HeartbeatManager {
      */
     public void regBrokerCheckBusiness(final long timeout, final TimeoutListener listener) {
         this.brokerTimeoutDlt = timeout;
-        this.registerCheckBusiness("Broker Node", this.brokerRegMap, listener);
+        this.registerCheckBusiness("Broker Node", this.brokerRegMap, this.brokerWheel, listener);
     }
 
     /**
@@ -106,7 +114,8 @@ public class HeartbeatManager {
      */
     public void regProducerCheckBusiness(final long timeout, final TimeoutListener listener) {
         this.producerTimeoutDlt = timeout;
-        this.registerCheckBusiness("Producer Node", this.producerRegMap, listener);
+        this.registerCheckBusiness("Producer Node",
+                this.producerRegMap, this.producerWheel, listener);
     }
 
     /**
@@ -117,42 +126,47 @@ public class HeartbeatManager {
      */
     public void regConsumerCheckBusiness(final long timeout, final TimeoutListener listener) {
         this.consumerTimeoutDlt = timeout;
-        this.registerCheckBusiness("Consumer Node", this.consumerRegMap, listener);
+        this.registerCheckBusiness("Consumer Node",
+                this.consumerRegMap, this.consumerWheel, listener);
     }
 
     private void registerCheckBusiness(final String businessType,
-                                       final Map<String, TimeoutInfo> nodeMap,
+                                       final ConcurrentHashMap<String, TimeoutInfo> nodeMap,
+                                       final TimeoutWheel timeoutWheel,
                                        final TimeoutListener listener) {
 
         timeoutScanService.submit(new Runnable() {
             @Override
             public void run() {
+                final List<TimeoutInfo> expiredNodes = new ArrayList<>();
                 while (!isStopped) {
                     try {
-                        long currentTime = System.currentTimeMillis();
-                        Set<String> removedNodeKey = new HashSet<>();
-                        for (Map.Entry<String, TimeoutInfo> entry : nodeMap.entrySet()) {
-                            if (TStringUtils.isBlank(entry.getKey()) || entry.getValue() == null) {
-                                continue;
-                            }
-                            if (currentTime >= entry.getValue().getTimeoutTime()) {
-                                removedNodeKey.add(entry.getKey());
+                        // only the passed slots of the wheel are visited
+                        synchronized (timeoutWheel) {
+                            timeoutWheel.advance(System.currentTimeMillis(), expiredNodes);
+                            for (int i = 0; i < expiredNodes.size(); i++) {
+                                if (!nodeMap.remove(expiredNodes.get(i).nodeKey,
+                                        expiredNodes.get(i))) {
+                                    expiredNodes.set(i, null);
+                                }
                             }
                         }
-                        if (!removedNodeKey.isEmpty()) {
-                            for (String nodeKey : removedNodeKey) {
-                                TimeoutInfo timeoutInfo = nodeMap.get(nodeKey);
-                                if (timeoutInfo == null) {
-                                    continue;
-                                }
-                                if (currentTime >= timeoutInfo.getTimeoutTime()) {
-                                    nodeMap.remove(nodeKey);
-                                    listener.onTimeout(nodeKey, timeoutInfo);
-                                }
+                        for (TimeoutInfo timeoutInfo : expiredNodes) {
+                            if (timeoutInfo == null) {
+                                continue;
+                            }
+                            try {
+                                listener.onTimeout(timeoutInfo.nodeKey, timeoutInfo);
+                            } catch (Throwable t) {
+                                logger.error(new StringBuilder(256).append(businessType)
+                                        .append(" timeout process error, node is ")
+                                        .append(timeoutInfo.nodeKey).toString(), t);
                             }
                         }
-                        Thread.sleep(1000 * 1);
+                        expiredNodes.clear();
+                        Thread.sleep(timeoutWheel.getTickMs());
                     } catch (Throwable t) {
+                        expiredNodes.clear();
                         logger.error(new StringBuilder(256)
                                 .append(businessType).append(" heartbeat scan error!").toString(), t);
                     }
@@ -161,6 +175,44 @@ public class HeartbeatManager {
         });
     }
 
+    private TimeoutInfo regNode(ConcurrentHashMap<String, TimeoutInfo> nodeMap,
+                                TimeoutWheel timeoutWheel, String nodeId,
+                                String secondKey, String thirdKey, long timeoutDlt) {
+        synchronized (timeoutWheel) {
+            TimeoutInfo oldNode = nodeMap.get(nodeId);
+            if (oldNode != null && oldNode.isKeysEqual(secondKey, thirdKey)) {
+                // reuse the registered node
+                oldNode.updTimeoutTime(timeoutDlt);
+                return oldNode;
+            }
+            TimeoutInfo newNode = new TimeoutInfo(secondKey, thirdKey, timeoutDlt);
+            newNode.nodeKey = nodeId;
+            oldNode = nodeMap.put(nodeId, newNode);
+            timeoutWheel.remove(oldNode);
+            timeoutWheel.add(newNode);
+            return oldNode;
+        }
+    }
+
+    private TimeoutInfo unRegNode(ConcurrentHashMap<String, TimeoutInfo> nodeMap,
+                                  TimeoutWheel timeoutWheel, String nodeId) {
+        synchronized (timeoutWheel) {
+            TimeoutInfo oldNode = nodeMap.remove(nodeId);
+            timeoutWheel.remove(oldNode);
+            return oldNode;
+        }
+    }
+
+    private void clearNodes(ConcurrentHashMap<String, TimeoutInfo> nodeMap,
+                            TimeoutWheel timeoutWheel) {
+        synchronized (timeoutWheel) {
+            for (TimeoutInfo timeoutInfo : nodeMap.values()) {
+                timeoutWheel.remove(timeoutInfo);
+            }
+            nodeMap.clear();
+        }
+    }
+
     /**
      * Register a node as broker.
      *
@@ -169,8 +221,8 @@ public class HeartbeatManager {
      * @return the timeout info for the registered node
      */
     public TimeoutInfo regBrokerNode(String nodeId, String createId) {
-        return this.brokerRegMap.put(nodeId,
-                new TimeoutInfo(createId, this.brokerTimeoutDlt));
+        return regNode(this.brokerRegMap, this.brokerWheel,
+                nodeId, createId, "", this.brokerTimeoutDlt);
     }
 
     /**
@@ -180,7 +232,8 @@ public class HeartbeatManager {
      * @return the timeout info of the registered node
      */
     public TimeoutInfo regProducerNode(final String nodeId) {
-        return this.producerRegMap.put(nodeId, new TimeoutInfo(this.producerTimeoutDlt));
+        return regNode(this.producerRegMap, this.producerWheel,
+                nodeId, "", "", this.producerTimeoutDlt);
     }
 
     /**
@@ -190,7 +243,8 @@ public class HeartbeatManager {
      * @return the timeout info of the registered node
      */
     public TimeoutInfo regConsumerNode(final String nodeId) {
-        return this.consumerRegMap.put(nodeId, new TimeoutInfo(this.consumerTimeoutDlt));
+        return regNode(this.consumerRegMap, this.consumerWheel,
+                nodeId, "", "", this.consumerTimeoutDlt);
     }
 
     /**
@@ -204,8 +258,8 @@ public class HeartbeatManager {
     public TimeoutInfo regConsumerNode(final String nodeId,
                                        final String consumerId,
                                        final String partStr) {
-        return this.consumerRegMap.put(nodeId,
-                new TimeoutInfo(consumerId, partStr, this.consumerTimeoutDlt));
+        return regNode(this.consumerRegMap, this.consumerWheel,
+                nodeId, consumerId, partStr, this.consumerTimeoutDlt);
     }
 
     /**
@@ -215,15 +269,18 @@ public class HeartbeatManager {
      * @return if the timeout delete, true: success, false: failure
      */
     public boolean unRegBrokerNode(String nodeId, String createId) {
-        TimeoutInfo timeoutInfo = brokerRegMap.get(nodeId);
-        if (timeoutInfo == null) {
+        synchronized (brokerWheel) {
+            TimeoutInfo timeoutInfo = brokerRegMap.get(nodeId);
+            if (timeoutInfo == null) {
+                return true;
+            }
+            if (!createId.equals(timeoutInfo.getSecondKey())) {
+                return false;
+            }
+            brokerRegMap.remove(nodeId);
+            brokerWheel.remove(timeoutInfo);
             return true;
         }
-        if (!createId.equals(timeoutInfo.getSecondKey())) {
-            return false;
-        }
-        timeoutInfo = brokerRegMap.remove(nodeId);
-        return true;
     }
 
     /**
@@ -233,7 +290,7 @@ public class HeartbeatManager {
      * @return the timeout of the node
      */
     public TimeoutInfo unRegProducerNode(final String nodeId) {
-        return producerRegMap.remove(nodeId);
+        return unRegNode(producerRegMap, producerWheel, nodeId);
     }
 
     /**
@@ -243,7 +300,7 @@ public class HeartbeatManager {
      * @return the timeout of the node
      */
     public TimeoutInfo unRegConsumerNode(final String nodeId) {
-        return consumerRegMap.remove(nodeId);
+        return unRegNode(consumerRegMap, consumerWheel, nodeId);
     }
 
     /**
@@ -317,8 +374,8 @@ public class HeartbeatManager {
      * Clear all registered heartbeat business.
      */
     public void clearAllHeartbeat() {
-        brokerRegMap.clear();
-        producerRegMap.clear();
-        consumerRegMap.clear();
+        clearNodes(brokerRegMap, brokerWheel);
+        clearNodes(producerRegMap, producerWheel);
+        clearNodes(consumerRegMap, consumerWheel);
     }
 }
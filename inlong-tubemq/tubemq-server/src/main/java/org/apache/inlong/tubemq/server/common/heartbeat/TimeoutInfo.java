@@ -17,10 +17,16 @@
 
 package org.apache.inlong.tubemq.server.common.heartbeat;
 
+import java.util.Objects;
+
 public class TimeoutInfo {
-    private long timeoutTime = 0L;
+    private volatile long timeoutTime = 0L;
     private String secondKey = "";
     private String thirdKey = "";
+    // the node key and links in the timeout wheel
+    String nodeKey;
+    TimeoutInfo prevNode;
+    TimeoutInfo nextNode;
 
     public TimeoutInfo(final String secondKey, final String thirdKey, long timeoutDelta) {
         this.secondKey = secondKey;
@@ -52,4 +58,16 @@ public class TimeoutInfo {
     public String getThirdKey() {
         return thirdKey;
     }
+
+    /**
+     * Check whether the node has the same keys
+     *
+     * @param secondKey  the second key
+     * @param thirdKey   the third key
+     * @return whether the keys are equal
+     */
+    public boolean isKeysEqual(String secondKey, String thirdKey) {
+        return Objects.equals(this.secondKey, secondKey)
+                && Objects.equals(this.thirdKey, thirdKey);
+    }
 }
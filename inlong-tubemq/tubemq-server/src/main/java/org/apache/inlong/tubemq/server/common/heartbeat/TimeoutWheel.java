@@ -0,0 +1,175 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.common.heartbeat;
+
+import java.util.List;
+
+/**
+ * Hierarchical timing wheel of the heartbeat timeout nodes.
+ *
+ * The nodes are linked into the slot of their timeout tick, a slot of the upper level
+ * covers a whole round of the lower level and is cascaded down when the lower level
+ * wraps, so the expiry only visits the slots passed and the nodes in them.
+ *
+ * A heartbeat only updates the timeout time of the node without moving it, when the
+ * slot of a node is reached and its timeout time has been extended, the node is moved
+ * to the slot of the new timeout time. So a node is moved at most once per timeout
+ * period no matter how often it is touched.
+ *
+ * Not thread safe, the caller is required to synchronize the add, remove and advance
+ * operations.
+ */
+public class TimeoutWheel {
+    private final long tickMs;
+    private final int wheelBits;
+    private final int wheelMask;
+    private final int levelCnt;
+    // the sentinel heads of the slots, indexed by level * wheelSize + slot
+    private final TimeoutInfo[] slotHeads;
+    private long curTick;
+    private int nodeCnt = 0;
+
+    /**
+     * Initial a timing wheel
+     *
+     * @param tickMs      the time span of a tick
+     * @param wheelBits   the slot count of each level is 2^wheelBits
+     * @param levelCnt    the level count
+     * @param startTime   the start time
+     */
+    public TimeoutWheel(long tickMs, int wheelBits, int levelCnt, long startTime) {
+        this.tickMs = tickMs;
+        this.wheelBits = wheelBits;
+        this.wheelMask = (1 << wheelBits) - 1;
+        this.levelCnt = levelCnt;
+        this.slotHeads = new TimeoutInfo[levelCnt << wheelBits];
+        for (int i = 0; i < slotHeads.length; i++) {
+            TimeoutInfo head = new TimeoutInfo(0L);
+            head.prevNode = head;
+            head.nextNode = head;
+            slotHeads[i] = head;
+        }
+        this.curTick = startTime / tickMs;
+    }
+
+    public long getTickMs() {
+        return tickMs;
+    }
+
+    public int size() {
+        return nodeCnt;
+    }
+
+    /**
+     * Add a node to the slot of its timeout time
+     *
+     * @param node   the node to add, it should not be in any wheel
+     */
+    public void add(TimeoutInfo node) {
+        long expireTick = Math.max(node.getTimeoutTime() / tickMs, curTick + 1);
+        int level = 0;
+        int shift = 0;
+        while (level < levelCnt - 1
+                && (expireTick >>> shift) - (curTick >>> shift) > wheelMask) {
+            level++;
+            shift += wheelBits;
+        }
+        long slotTick = expireTick >>> shift;
+        if (slotTick - (curTick >>> shift) > wheelMask) {
+            // beyond the top level, park at the farthest slot and place again later
+            slotTick = (curTick >>> shift) + wheelMask;
+        }
+        linkLast(slotHeads[(level << wheelBits) + (int) (slotTick & wheelMask)], node);
+        nodeCnt++;
+    }
+
+    /**
+     * Remove a node from the wheel
+     *
+     * @param node   the node to remove
+     * @return whether the node was in the wheel
+     */
+    public boolean remove(TimeoutInfo node) {
+        if (node == null || node.prevNode == null) {
+            return false;
+        }
+        unlink(node);
+        nodeCnt--;
+        return true;
+    }
+
+    /**
+     * Advance the wheel to the current time and collect the expired nodes,
+     * the nodes whose timeout time have been extended are placed again.
+     *
+     * @param currentTime    the current time
+     * @param expiredNodes   the list to store the expired nodes, they are removed from the wheel
+     */
+    public void advance(long currentTime, List<TimeoutInfo> expiredNodes) {
+        final long targetTick = currentTime / tickMs;
+        while (curTick < targetTick) {
+            curTick++;
+            // cascade the upper level slots when the lower level wraps
+            for (int level = levelCnt - 1; level > 0; level--) {
+                int shift = level * wheelBits;
+                if ((curTick & ((1L << shift) - 1)) == 0) {
+                    cascade(slotHeads[(level << wheelBits)
+                            + (int) ((curTick >>> shift) & wheelMask)]);
+                }
+            }
+            TimeoutInfo head = slotHeads[(int) (curTick & wheelMask)];
+            TimeoutInfo node = head.nextNode;
+            while (node != head) {
+                final TimeoutInfo next = node.nextNode;
+                unlink(node);
+                nodeCnt--;
+                if (node.getTimeoutTime() <= currentTime) {
+                    expiredNodes.add(node);
+                } else {
+                    add(node);
+                }
+                node = next;
+            }
+        }
+    }
+
+    private void cascade(TimeoutInfo head) {
+        TimeoutInfo node = head.nextNode;
+        while (node != head) {
+            final TimeoutInfo next = node.nextNode;
+            unlink(node);
+            nodeCnt--;
+            add(node);
+            node = next;
+        }
+    }
+
+    private void linkLast(TimeoutInfo head, TimeoutInfo node) {
+        node.prevNode = head.prevNode;
+        node.nextNode = head;
+        head.prevNode.nextNode = node;
+        head.prevNode = node;
+    }
+
+    private void unlink(TimeoutInfo node) {
+        node.prevNode.nextNode = node.nextNode;
+        node.nextNode.prevNode = node.prevNode;
+        node.prevNode = null;
+        node.nextNode = null;
+    }
+}
@@ -0,0 +1,57 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.common.statusdef;
+
+/**
+ * The server-side balance strategy enumeration class
+ */
+public enum BalanceStrategy {
+    STRATEGY_UNDEFINE(-2, "Undefined."),
+    STRATEGY_DEFAULT(0, "Default, re-assign partitions in each balance."),
+    STRATEGY_STICKY(1, "Sticky, keep owners and move partitions in phases.");
+
+    private int code;
+    private String description;
+
+    BalanceStrategy(int code, String description) {
+        this.code = code;
+        this.description = description;
+    }
+
+    public int getCode() {
+        return code;
+    }
+
+    public boolean isSticky() {
+        return this == BalanceStrategy.STRATEGY_STICKY;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public static BalanceStrategy valueOf(int code) {
+        for (BalanceStrategy strategy : BalanceStrategy.values()) {
+            if (strategy.getCode() == code) {
+                return strategy;
+            }
+        }
+        throw new IllegalArgumentException(String.format("unknown Balance strategy code %s", code));
+    }
+
+}
@@ -0,0 +1,61 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.common.utils;
+
+// message to be appended in batch, and its append result
+public class AppendMsgEntry {
+    private final int dataLength;
+    private final int dataCheckSum;
+    private final byte[] data;
+    private final int msgTypeCode;
+    private final int msgFlag;
+    private final AppendResult appendResult = new AppendResult();
+
+    public AppendMsgEntry(int dataLength, int dataCheckSum, byte[] data,
+                          int msgTypeCode, int msgFlag) {
+        this.dataLength = dataLength;
+        this.dataCheckSum = dataCheckSum;
+        this.data = data;
+        this.msgTypeCode = msgTypeCode;
+        this.msgFlag = msgFlag;
+    }
+
+    public int getDataLength() {
+        return dataLength;
+    }
+
+    public int getDataCheckSum() {
+        return dataCheckSum;
+    }
+
+    public byte[] getData() {
+        return data;
+    }
+
+    public int getMsgTypeCode() {
+        return msgTypeCode;
+    }
+
+    public int getMsgFlag() {
+        return msgFlag;
+    }
+
+    public AppendResult getAppendResult() {
+        return appendResult;
+    }
+}
@@ -0,0 +1,141 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.common.utils;
+
+import java.util.Arrays;
+
+/**
+ * Hash set of primitive int values with open addressing, no boxing on the lookup path.
+ *
+ * The values are also kept in insertion order, and can be iterated by index.
+ * Not thread safe, the set is expected to be built before shared with readers.
+ */
+public class IntHashSet {
+    private static final int MIN_CAPACITY = 8;
+    // the hash table, the slot is empty if the flag is not set
+    private int[] slots;
+    private boolean[] slotUsed;
+    private int mask;
+    // the values in insertion order
+    private int[] elements;
+    private int size = 0;
+
+    public IntHashSet() {
+        this(MIN_CAPACITY);
+    }
+
+    public IntHashSet(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        // keep the load factor no more than 0.5
+        while (capacity < expectedSize * 2) {
+            capacity <<= 1;
+        }
+        this.slots = new int[capacity];
+        this.slotUsed = new boolean[capacity];
+        this.mask = capacity - 1;
+        this.elements = new int[Math.max(expectedSize, MIN_CAPACITY)];
+    }
+
+    /**
+     * Add the value
+     *
+     * @param value   the value to add
+     * @return        true if the value is added, false if already existed
+     */
+    public boolean add(int value) {
+        int pos = hash(value) & mask;
+        while (slotUsed[pos]) {
+            if (slots[pos] == value) {
+                return false;
+            }
+            pos = (pos + 1) & mask;
+        }
+        slots[pos] = value;
+        slotUsed[pos] = true;
+        if (size == elements.length) {
+            elements = Arrays.copyOf(elements, size * 2);
+        }
+        elements[size++] = value;
+        if (size * 2 > slots.length) {
+            rehash(slots.length * 2);
+        }
+        return true;
+    }
+
+    public boolean contains(int value) {
+        int pos = hash(value) & mask;
+        while (slotUsed[pos]) {
+            if (slots[pos] == value) {
+                return true;
+            }
+            pos = (pos + 1) & mask;
+        }
+        return false;
+    }
+
+    /**
+     * Get the value by insertion order
+     *
+     * @param index   the index in [0, size())
+     * @return        the value
+     */
+    public int get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException(new StringBuilder(64)
+                    .append("Index: ").append(index)
+                    .append(", Size: ").append(size).toString());
+        }
+        return elements[index];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int[] toArray() {
+        return Arrays.copyOf(elements, size);
+    }
+
+    public void clear() {
+        Arrays.fill(slotUsed, false);
+        size = 0;
+    }
+
+    private void rehash(int capacity) {
+        this.slots = new int[capacity];
+        this.slotUsed = new boolean[capacity];
+        this.mask = capacity - 1;
+        for (int i = 0; i < size; i++) {
+            int pos = hash(elements[i]) & mask;
+            while (slotUsed[pos]) {
+                pos = (pos + 1) & mask;
+            }
+            slots[pos] = elements[i];
+            slotUsed[pos] = true;
+        }
+    }
+
+    private static int hash(int value) {
+        int h = value * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
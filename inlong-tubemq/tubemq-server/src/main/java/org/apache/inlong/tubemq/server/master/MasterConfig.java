@@ -82,6 +82,8 @@ public class MasterConfig extends AbstractFileConfig {
     private String visitPassword = "";
     private long authValidTimeStampPeriodMs = TBaseConstants.CFG_DEFAULT_AUTH_TIMESTAMP_VALID_INTERVAL;
     private int rebalanceParallel = 4;
+    // the balance rounds between two full scans of all groups
+    private int balanceFullScanInterval = 10;
     private long maxMetaForceUpdatePeriodMs = TBaseConstants.CFG_DEF_META_FORCE_UPDATE_PERIOD;
 
     /**
@@ -268,6 +270,10 @@ public class MasterConfig extends AbstractFileConfig {
         return rebalanceParallel;
     }
 
+    public int getBalanceFullScanInterval() {
+        return balanceFullScanInterval;
+    }
+
     public long getMaxMetaForceUpdatePeriodMs() {
         return maxMetaForceUpdatePeriodMs;
     }
@@ -523,6 +529,10 @@ public class MasterConfig extends AbstractFileConfig {
             int tmpParallel = this.getInt(masterConf, "rebalanceParallel");
             this.rebalanceParallel = MixedUtils.mid(tmpParallel, 1, 20);
         }
+        if (TStringUtils.isNotBlank(masterConf.get("balanceFullScanInterval"))) {
+            int tmpInterval = this.getInt(masterConf, "balanceFullScanInterval");
+            this.balanceFullScanInterval = MixedUtils.mid(tmpInterval, 1, 1000);
+        }
         if (TStringUtils.isNotBlank(masterConf.get("maxMetaForceUpdatePeriodMs"))) {
             long tmpPeriodMs = this.getLong(masterConf, "maxMetaForceUpdatePeriodMs");
             if (tmpPeriodMs < TBaseConstants.CFG_MIN_META_FORCE_UPDATE_PERIOD) {
@@ -833,6 +843,7 @@ public class MasterConfig extends AbstractFileConfig {
                 .append("visitPassword", visitPassword)
                 .append("authValidTimeStampPeriodMs", authValidTimeStampPeriodMs)
                 .append("rebalanceParallel", rebalanceParallel)
+                .append("balanceFullScanInterval", balanceFullScanInterval)
                 .append("maxMetaForceUpdatePeriodMs", maxMetaForceUpdatePeriodMs)
                 .toString();
     }
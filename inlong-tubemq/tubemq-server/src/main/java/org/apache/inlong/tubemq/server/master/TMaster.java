@@ -104,6 +104,7 @@ import org.apache.inlong.tubemq.server.common.utils.RowLock;
 import org.apache.inlong.tubemq.server.common.utils.Sleeper;
 import org.apache.inlong.tubemq.server.master.balance.DefaultLoadBalancer;
 import org.apache.inlong.tubemq.server.master.balance.LoadBalancer;
+import org.apache.inlong.tubemq.server.master.balance.StickyLoadBalancer;
 import org.apache.inlong.tubemq.server.master.metamanage.DefaultMetaDataService;
 import org.apache.inlong.tubemq.server.master.metamanage.MetaDataService;
 import org.apache.inlong.tubemq.server.master.metamanage.metastore.dao.entity.BrokerConfEntity;
@@ -150,6 +151,7 @@ public class TMaster extends HasThread implements MasterService, Stoppable {
     private final RowLock masterRowLock;                        //lock
     private final WebServer webServer;                          //web server
     private final LoadBalancer loadBalancer;                    //load balance
+    private final LoadBalancer stickyLoadBalancer;              //sticky load balance
     private final MasterConfig masterConfig;                    //master config
     private final NodeAddrInfo masterAddInfo;                   //master address info
     private final HeartbeatManager heartbeatManager;            //heartbeat manager
@@ -163,6 +165,7 @@ public class TMaster extends HasThread implements MasterService, Stoppable {
     private boolean initialized = false;
     private boolean startupBalance = true;
     private int balanceDelayTimes = 0;
+    private long balanceRounds = 0;
     private AtomicInteger curSvrBalanceParal = new AtomicInteger(0);
     private AtomicInteger curCltBalanceParal = new AtomicInteger(0);
     private Sleeper stopSleeper = new Sleeper(1000, this);
@@ -201,6 +204,7 @@ public class TMaster extends HasThread implements MasterService, Stoppable {
         this.consumerEventManager = new ConsumerEventManager(consumerHolder);
         this.topicPSInfoManager = new TopicPSInfoManager(this);
         this.loadBalancer = new DefaultLoadBalancer();
+        this.stickyLoadBalancer = new StickyLoadBalancer();
         heartbeatManager.regConsumerCheckBusiness(masterConfig.getConsumerHeartbeatTimeoutMs(),
                 new TimeoutListener() {
                     @Override
@@ -1134,7 +1138,8 @@ public class TMaster extends HasThread implements MasterService, Stoppable {
             strBuffer.delete(0, strBuffer.length());
         }
         // create response
-        brokerRunManager.setHeatBeatDownConfInfo(brokerId, strBuffer, builder);
+        brokerRunManager.setHeatBeatDownConfInfo(brokerId,
+                request.hasAcceptIncConf() && request.getAcceptIncConf(), strBuffer, builder);
         BrokerConfEntity brokerConfEntity =
                 defMetaDataService.getBrokerConfByBrokerId(brokerId);
         builder.setTakeRemoveTopicInfo(true);
@@ -1683,17 +1688,37 @@ public class TMaster extends HasThread implements MasterService, Stoppable {
                     .append(", BDB service is null isMaster= false, isPrimaryNodeActive=false").toString());
         }
         strBuffer.delete(0, strBuffer.length());
+        // only the groups changed are balanced, all groups are
+        // scanned every balanceFullScanInterval rounds
+        final boolean isFullBalance = startupBalance
+                || (++balanceRounds % masterConfig.getBalanceFullScanInterval() == 0);
+        consumerHolder.markDirtyGroupsByTopics(brokerRunManager.getAndResetChgSubTopics());
+        Map<String, Long> dirtyGroupMap = consumerHolder.getAndResetDirtyGroups();
+        if (!dirtyGroupMap.isEmpty()) {
+            long earliestTime = Long.MAX_VALUE;
+            for (Long markTime : dirtyGroupMap.values()) {
+                earliestTime = Math.min(earliestTime, markTime);
+            }
+            MasterSrvStatsHolder.updSvrBalanceDelay(
+                    System.currentTimeMillis() - earliestTime);
+        }
         // process client-balance
-        processClientBalanceMetaInfo(balanceId, strBuffer);
+        processClientBalanceMetaInfo(balanceId, isFullBalance, dirtyGroupMap, strBuffer);
         // process server-balance
-        processServerBalance(tMaster, balanceId, strBuffer);
+        processServerBalance(tMaster, balanceId, isFullBalance, dirtyGroupMap, strBuffer);
     }
 
     private void processServerBalance(TMaster tMaster,
                                       long balanceId,
+                                      boolean isFullBalance,
+                                      Map<String, Long> dirtyGroupMap,
                                       StringBuilder sBuffer) {
         int curDoingTasks = this.curSvrBalanceParal.get();
         if (curDoingTasks > 0) {
+            // keep the groups of this round for the next round, all groups if a full scan
+            consumerHolder.markDirtyGroups(dirtyGroupMap, isFullBalance
+                    ? consumerHolder.getAllServerBalanceGroups()
+                    : consumerHolder.getServerBalanceGroups(dirtyGroupMap.keySet()));
             logger.info(sBuffer.append("[Svr-Balance Status] ").append(balanceId)
                     .append(" the Server-Balance has ").append(curDoingTasks)
                     .append(" task(s) in progress!").toString());
@@ -1701,10 +1726,19 @@ public class TMaster extends HasThread implements MasterService, Stoppable {
             return;
         }
         final boolean isStartBalance = startupBalance;
-        List<String> groupsNeedToBalance = isStartBalance
-                ? consumerHolder.getAllServerBalanceGroups() : getNeedToBalanceGroups(sBuffer);
+        List<String> groupsNeedToBalance;
+        if (isStartBalance) {
+            groupsNeedToBalance = consumerHolder.getAllServerBalanceGroups();
+        } else {
+            List<String> candidateGroups = isFullBalance
+                    ? consumerHolder.getAllServerBalanceGroups()
+                    : consumerHolder.getServerBalanceGroups(dirtyGroupMap.keySet());
+            groupsNeedToBalance =
+                    getNeedToBalanceGroups(candidateGroups, dirtyGroupMap, sBuffer);
+        }
         sBuffer.delete(0, sBuffer.length());
         int balanceTaskCnt = groupsNeedToBalance.size();
+        MasterSrvStatsHolder.updSvrBalanceGroupCnt(balanceTaskCnt);
         if (balanceTaskCnt > 0) {
             // calculate process count
             int unitNum = (balanceTaskCnt + masterConfig.getRebalanceParallel() - 1)
@@ -1761,6 +1795,8 @@ public class TMaster extends HasThread implements MasterService, Stoppable {
                                         .append(subGroups).append(",error is ")
                                         .append(e).toString());
                             }
+                            // check the groups not balanced completely again in next round
+                            consumerHolder.markUnfinishedBalanceGroups(dirtyGroupMap, subGroups);
                         } catch (Throwable e) {
                             logger.warn("[Svr-Balance Status] Error during process", e);
                         } finally {
@@ -1776,16 +1812,25 @@ public class TMaster extends HasThread implements MasterService, Stoppable {
         startupBalance = false;
     }
 
-    private void processClientBalanceMetaInfo(long balanceId, StringBuilder sBuffer) {
+    private void processClientBalanceMetaInfo(long balanceId,
+                                              boolean isFullBalance,
+                                              Map<String, Long> dirtyGroupMap,
+                                              StringBuilder sBuffer) {
         int curDoingTasks = this.curCltBalanceParal.get();
         if (curDoingTasks > 0) {
+            // keep the groups of this round for the next round, all groups if a full scan
+            consumerHolder.markDirtyGroups(dirtyGroupMap, isFullBalance
+                    ? consumerHolder.getAllClientBalanceGroups()
+                    : consumerHolder.getClientBalanceGroups(dirtyGroupMap.keySet()));
             logger.info(sBuffer.append("[Clt-Balance Status] ").append(balanceId)
                     .append(" the Client-Balance has ").append(curDoingTasks)
                     .append(" task(s) in progress!").toString());
             sBuffer.delete(0, sBuffer.length());
             return;
         }
-        List<String> clientGroups = consumerHolder.getAllClientBalanceGroups();
+        List<String> clientGroups = isFullBalance
+                ? consumerHolder.getAllClientBalanceGroups()
+                : consumerHolder.getClientBalanceGroups(dirtyGroupMap.keySet());
         if (!clientGroups.isEmpty()) {
             int balanceTaskCnt = clientGroups.size();
             // calculate process count
@@ -1907,8 +1952,28 @@ public class TMaster extends HasThread implements MasterService, Stoppable {
             finalSubInfoMap = this.loadBalancer.bukAssign(consumerHolder,
                     brokerRunManager, groups, defMetaDataService, strBuffer);
         } else {
+            // the groups configured with sticky strategy are balanced separately
+            GroupResCtrlEntity groupResCtrlEntity;
+            List<String> defGroups = new ArrayList<>();
+            List<String> stickyGroups = new ArrayList<>();
+            for (String group : groups) {
+                if (group == null) {
+                    continue;
+                }
+                groupResCtrlEntity = defMetaDataService.getGroupCtrlConf(group);
+                if (groupResCtrlEntity != null && groupResCtrlEntity.isStickyBalance()) {
+                    stickyGroups.add(group);
+                } else {
+                    defGroups.add(group);
+                }
+            }
             finalSubInfoMap = this.loadBalancer.balanceCluster(currentSubInfo,
-                    consumerHolder, brokerRunManager, groups, defMetaDataService, strBuffer);
+                    consumerHolder, brokerRunManager, defGroups, defMetaDataService, strBuffer);
+            if (!stickyGroups.isEmpty()) {
+                finalSubInfoMap.putAll(this.stickyLoadBalancer.balanceCluster(currentSubInfo,
+                        consumerHolder, brokerRunManager, stickyGroups,
+                        defMetaDataService, strBuffer));
+            }
         }
         boolean included;
         String consumerId;
@@ -1996,6 +2061,10 @@ public class TMaster extends HasThread implements MasterService, Stoppable {
                 printTODOContent(rebalanceId, consumerId,
                         "Connect", addedSubInfoList, strBuffer);
             }
+            // check again in next round until the events are finished
+            if (!isDelEmpty || !isAddEmtpy) {
+                consumerHolder.markDirtyGroup(consumerInfo.getGroupName());
+            }
         }
     }
 
@@ -2094,6 +2163,10 @@ public class TMaster extends HasThread implements MasterService, Stoppable {
                 printTODOContent(rebalanceId, consumerId,
                         "ResetConnect", addedSubInfoList, strBuffer);
             }
+            // check again in next round until the events are finished
+            if (!isDelEmpty || !isAddEmtpy) {
+                consumerHolder.markDirtyGroup(consumerInfo.getGroupName());
+            }
         }
     }
 
@@ -2193,10 +2266,14 @@ public class TMaster extends HasThread implements MasterService, Stoppable {
     /**
      * get need balance group list
      *
-     * @param strBuffer
-     * @return
+     * @param candidateGroups  the groups to check
+     * @param dirtyGroupMap    the groups marked and their marked time
+     * @param strBuffer        the string buffer
+     * @return                 the groups need to balance
      */
-    private List<String> getNeedToBalanceGroups(final StringBuilder strBuffer) {
+    private List<String> getNeedToBalanceGroups(List<String> candidateGroups,
+                                                Map<String, Long> dirtyGroupMap,
+                                                final StringBuilder strBuffer) {
         List<String> groupsNeedToBalance = new ArrayList<>();
         Set<String> groupHasUnfinishedEvent = new HashSet<>();
         if (consumerEventManager.hasEvent()) {
@@ -2230,21 +2307,25 @@ public class TMaster extends HasThread implements MasterService, Stoppable {
             }
         }
         consumerEventManager.updateUnfinishedCountMap(groupHasUnfinishedEvent);
-        List<String> allGroups = consumerHolder.getAllServerBalanceGroups();
         if (groupHasUnfinishedEvent.isEmpty()) {
-            for (String group : allGroups) {
+            for (String group : candidateGroups) {
                 if (group != null) {
                     groupsNeedToBalance.add(group);
                 }
             }
         } else {
-            for (String group : allGroups) {
+            List<String> delayedGroups = new ArrayList<>();
+            for (String group : candidateGroups) {
                 if (group != null) {
-                    if (!groupHasUnfinishedEvent.contains(group)) {
+                    if (groupHasUnfinishedEvent.contains(group)) {
+                        delayedGroups.add(group);
+                    } else {
                         groupsNeedToBalance.add(group);
                     }
                 }
             }
+            // balance the delayed groups after their events are finished
+            consumerHolder.markDirtyGroups(dirtyGroupMap, delayedGroups);
         }
         return groupsNeedToBalance;
     }
@@ -0,0 +1,228 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.master.balance;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import org.apache.commons.collections.CollectionUtils;
+import org.apache.inlong.tubemq.corebase.cluster.Partition;
+import org.apache.inlong.tubemq.server.master.metamanage.MetaDataService;
+import org.apache.inlong.tubemq.server.master.nodemanage.nodebroker.BrokerRunManager;
+import org.apache.inlong.tubemq.server.master.nodemanage.nodeconsumer.ConsumeGroupInfo;
+import org.apache.inlong.tubemq.server.master.nodemanage.nodeconsumer.ConsumerInfo;
+import org.apache.inlong.tubemq.server.master.nodemanage.nodeconsumer.ConsumerInfoHolder;
+import org.apache.inlong.tubemq.server.master.nodemanage.nodeconsumer.RebProcessInfo;
+
+/**
+ * Sticky load balance class for server side load balance.
+ *
+ * The current owners keep their partitions up to their quota, the quota of each consumer
+ * is (partition size) / (consumer size) or one more. A balance only revokes the partitions
+ * over the quota, and only assigns the partitions that no consumer of the group holds,
+ * so a moved partition is revoked in one balance and assigned in a later balance after
+ * the revocation is confirmed by the consumer.
+ */
+public class StickyLoadBalancer extends DefaultLoadBalancer {
+
+    public StickyLoadBalancer() {
+        super();
+    }
+
+    /**
+     * Load balance
+     *
+     * @param clusterState          the current subscribe info of the consumers
+     * @param consumerHolder        the consumer holder
+     * @param brokerRunManager      the broker run manager
+     * @param groupSet              the groups need to balance
+     * @param defMetaDataService    the meta data service
+     * @param strBuffer             the string buffer
+     * @return the final subscribe info of the consumers
+     */
+    @Override
+    public Map<String, Map<String, List<Partition>>> balanceCluster(
+            Map<String, Map<String, Map<String, Partition>>> clusterState,
+            ConsumerInfoHolder consumerHolder,
+            BrokerRunManager brokerRunManager,
+            List<String> groupSet,
+            MetaDataService defMetaDataService,
+            StringBuilder strBuffer) {
+        Map<String/* consumer */,
+                Map<String/* topic */, List<Partition>>> finalSubInfoMap =
+                new HashMap<>();
+        Map<String, RebProcessInfo> rejGroupClientInfoMap = new HashMap<>();
+        for (String group : groupSet) {
+            if (group == null) {
+                continue;
+            }
+            ConsumeGroupInfo consumeGroupInfo = consumerHolder.getConsumeGroupInfo(group);
+            if (consumeGroupInfo == null
+                    || consumeGroupInfo.isClientBalance()
+                    || consumeGroupInfo.isUnReadyServerBalance()) {
+                continue;
+            }
+            List<ConsumerInfo> consumerList = consumeGroupInfo.getConsumerInfoList();
+            if (CollectionUtils.isEmpty(consumerList)) {
+                continue;
+            }
+            List<String> consumerIdList = new ArrayList<>();
+            for (ConsumerInfo consumerInfo : consumerList) {
+                if (consumerInfo != null) {
+                    consumerIdList.add(consumerInfo.getConsumerId());
+                }
+            }
+            if (consumerIdList.isEmpty()) {
+                continue;
+            }
+            if (consumeGroupInfo.needResourceCheck()
+                    && !isResourceSatisfied(consumeGroupInfo, consumerIdList.size(),
+                    consumerHolder, brokerRunManager, defMetaDataService, strBuffer)) {
+                continue;
+            }
+            // the consumers required to release their partitions take part in no assignment
+            List<String> releaseIdList = new ArrayList<>();
+            if (!consumeGroupInfo.isBalanceMapEmpty()) {
+                RebProcessInfo rebProcessInfo = consumerHolder.getNeedRebNodeList(group);
+                if (!rebProcessInfo.isProcessInfoEmpty()) {
+                    rejGroupClientInfoMap.put(group, rebProcessInfo);
+                    for (String consumerId : consumerIdList) {
+                        if (rebProcessInfo.needProcessList.contains(consumerId)
+                                || rebProcessInfo.needEscapeList.contains(consumerId)) {
+                            releaseIdList.add(consumerId);
+                        }
+                    }
+                    consumerIdList.removeAll(releaseIdList);
+                }
+            }
+            stickyAssign(consumerIdList, releaseIdList,
+                    brokerRunManager.getSubBrokerAcceptSubParts(consumeGroupInfo.getTopicSet()),
+                    clusterState, finalSubInfoMap);
+        }
+        for (Entry<String, RebProcessInfo> entry : rejGroupClientInfoMap.entrySet()) {
+            consumerHolder.setRebNodeProcessed(entry.getKey(),
+                    entry.getValue().needProcessList);
+        }
+        return finalSubInfoMap;
+    }
+
+    /**
+     * Assign the partitions of a group, keep the current owners up to their quota
+     *
+     * @param consumerIdList    the consumers take part in the assignment
+     * @param releaseIdList     the consumers need to release all partitions
+     * @param partMap           the partitions available to the group
+     * @param clusterState      the current subscribe info of the consumers
+     * @param finalSubInfoMap   the final subscribe info of the consumers
+     */
+    static void stickyAssign(List<String> consumerIdList,
+                             List<String> releaseIdList,
+                             Map<String, Partition> partMap,
+                             Map<String, Map<String, Map<String, Partition>>> clusterState,
+                             Map<String, Map<String, List<Partition>>> finalSubInfoMap) {
+        // the partitions held by the group, including those revoked but not yet released
+        Set<String> heldPartKeys = new HashSet<>();
+        for (String consumerId : releaseIdList) {
+            Map<String, List<Partition>> partitions = new HashMap<>();
+            finalSubInfoMap.put(consumerId, partitions);
+            Map<String, Map<String, Partition>> relation = clusterState.get(consumerId);
+            if (relation == null) {
+                continue;
+            }
+            for (Entry<String, Map<String, Partition>> entry : relation.entrySet()) {
+                partitions.put(entry.getKey(), new ArrayList<>());
+                if (entry.getValue() != null) {
+                    heldPartKeys.addAll(entry.getValue().keySet());
+                }
+            }
+        }
+        if (consumerIdList.isEmpty()) {
+            return;
+        }
+        // collect the partitions each consumer can keep
+        Collections.sort(consumerIdList);
+        Map<String, List<Partition>> keptPartMap = new HashMap<>();
+        for (String consumerId : consumerIdList) {
+            List<Partition> keptParts = new ArrayList<>();
+            keptPartMap.put(consumerId, keptParts);
+            Map<String, List<Partition>> partitions = new HashMap<>();
+            finalSubInfoMap.put(consumerId, partitions);
+            Map<String, Map<String, Partition>> relation = clusterState.get(consumerId);
+            if (relation == null) {
+                continue;
+            }
+            for (Entry<String, Map<String, Partition>> entry : relation.entrySet()) {
+                partitions.put(entry.getKey(), new ArrayList<>());
+                if (entry.getValue() == null) {
+                    continue;
+                }
+                for (Partition partition : entry.getValue().values()) {
+                    if (heldPartKeys.add(partition.getPartitionKey())) {
+                        Partition curPart = partMap.get(partition.getPartitionKey());
+                        if (curPart != null) {
+                            keptParts.add(curPart);
+                        }
+                    }
+                }
+            }
+            Collections.sort(keptParts);
+        }
+        // the consumers holding the most partitions get the larger quota
+        List<String> quotaOrderList = new ArrayList<>(consumerIdList);
+        quotaOrderList.sort((o1, o2) -> {
+            int cmpVal = Integer.compare(
+                    keptPartMap.get(o2).size(), keptPartMap.get(o1).size());
+            return cmpVal != 0 ? cmpVal : o1.compareTo(o2);
+        });
+        int minQuota = partMap.size() / consumerIdList.size();
+        int extraCnt = partMap.size() % consumerIdList.size();
+        // collect the partitions no consumer of the group holds
+        List<Partition> freeParts = new ArrayList<>();
+        for (Partition partition : partMap.values()) {
+            if (!heldPartKeys.contains(partition.getPartitionKey())) {
+                freeParts.add(partition);
+            }
+        }
+        Collections.sort(freeParts);
+        int freeIndex = 0;
+        for (int i = 0; i < quotaOrderList.size(); i++) {
+            String consumerId = quotaOrderList.get(i);
+            int quota = (i < extraCnt) ? minQuota + 1 : minQuota;
+            List<Partition> keptParts = keptPartMap.get(consumerId);
+            // revoke the partitions over the quota, they are assigned after released
+            if (keptParts.size() > quota) {
+                keptParts = keptParts.subList(0, quota);
+            }
+            Map<String, List<Partition>> partitions = finalSubInfoMap.get(consumerId);
+            for (Partition partition : keptParts) {
+                partitions.computeIfAbsent(partition.getTopic(),
+                        k -> new ArrayList<>()).add(partition);
+            }
+            for (int j = keptParts.size(); j < quota && freeIndex < freeParts.size(); j++) {
+                Partition partition = freeParts.get(freeIndex++);
+                partitions.computeIfAbsent(partition.getTopic(),
+                        k -> new ArrayList<>()).add(partition);
+            }
+        }
+    }
+}
@@ -26,6 +26,7 @@ import org.apache.inlong.tubemq.corebase.TBaseConstants;
 import org.apache.inlong.tubemq.corebase.utils.DateTimeConvertUtils;
 import org.apache.inlong.tubemq.corebase.utils.TStringUtils;
 import org.apache.inlong.tubemq.server.common.TServerConstants;
+import org.apache.inlong.tubemq.server.common.statusdef.BalanceStrategy;
 import org.apache.inlong.tubemq.server.common.statusdef.EnableStatus;
 import org.apache.inlong.tubemq.server.master.metamanage.metastore.TStoreConstants;
 
@@ -247,6 +248,28 @@ public class BdbGroupFlowCtrlEntity implements Serializable {
                         String.valueOf(allowedBrokerClientRate));
     }
 
+    public BalanceStrategy getBalanceStrategy() {
+        String atrVal =
+                TStringUtils.getAttrValFrmAttributes(this.attributes,
+                        TStoreConstants.TOKEN_BALANCE_STRATEGY);
+        if (atrVal != null) {
+            try {
+                return BalanceStrategy.valueOf(Integer.parseInt(atrVal));
+            } catch (IllegalArgumentException e) {
+                // a broken or unknown stored value, use the default strategy
+                return BalanceStrategy.STRATEGY_DEFAULT;
+            }
+        }
+        return BalanceStrategy.STRATEGY_UNDEFINE;
+    }
+
+    public void setBalanceStrategy(BalanceStrategy balanceStrategy) {
+        this.attributes =
+                TStringUtils.setAttrValToAttributes(this.attributes,
+                        TStoreConstants.TOKEN_BALANCE_STRATEGY,
+                        String.valueOf(balanceStrategy.getCode()));
+    }
+
     public void setCreateInfo(String createUser, Date createDate) {
         if (TStringUtils.isNotBlank(createUser)) {
             this.attributes =
@@ -39,6 +39,7 @@ public final class TStoreConstants {
     public static final String TOKEN_TOPICNAME_ID = "topicId";
     public static final String TOKEN_STORE_NUM = "storeNum";
     public static final String TOKEN_QRY_PRIORITY_ID = "qryPriorityId";
+    public static final String TOKEN_BALANCE_STRATEGY = "balanceStrategy";
     public static final String TOKEN_DATA_UNFLUSHHOLD = "unFlushDataHold";
     public static final String TOKEN_MCACHE_MSG_CNT = "memCacheMsgCntInK";
     public static final String TOKEN_MCACHE_MSG_SIZE = "memCacheMsgSizeInMB";
@@ -21,6 +21,7 @@ import java.util.Objects;
 import org.apache.inlong.tubemq.corebase.TBaseConstants;
 import org.apache.inlong.tubemq.corebase.utils.TStringUtils;
 import org.apache.inlong.tubemq.server.common.TServerConstants;
+import org.apache.inlong.tubemq.server.common.statusdef.BalanceStrategy;
 import org.apache.inlong.tubemq.server.common.statusdef.EnableStatus;
 import org.apache.inlong.tubemq.server.master.bdbstore.bdbentitys.BdbGroupFlowCtrlEntity;
 
@@ -40,6 +41,8 @@ public class GroupResCtrlEntity extends BaseEntity implements Cloneable {
     private EnableStatus flowCtrlStatus = EnableStatus.STATUS_UNDEFINE;
     private int ruleCnt = 0;           // flow control rule count
     private String flowCtrlInfo = "";  // flow control info
+    // server-side balance strategy
+    private BalanceStrategy balanceStrategy = BalanceStrategy.STRATEGY_UNDEFINE;
 
     // only for query
     public GroupResCtrlEntity() {
@@ -71,6 +74,7 @@ public class GroupResCtrlEntity extends BaseEntity implements Cloneable {
         }
         this.resCheckStatus = bdbEntity.getResCheckStatus();
         this.allowedBrokerClientRate = bdbEntity.getAllowedBrokerClientRate();
+        this.balanceStrategy = bdbEntity.getBalanceStrategy();
         setAttributes(bdbEntity.getAttributes());
     }
 
@@ -89,6 +93,7 @@ public class GroupResCtrlEntity extends BaseEntity implements Cloneable {
         bdbEntity.setCreateInfo(getCreateUser(), getCreateDate());
         bdbEntity.setResCheckStatus(resCheckStatus);
         bdbEntity.setAllowedBrokerClientRate(allowedBrokerClientRate);
+        bdbEntity.setBalanceStrategy(balanceStrategy);
         return bdbEntity;
     }
 
@@ -104,6 +109,7 @@ public class GroupResCtrlEntity extends BaseEntity implements Cloneable {
         this.flowCtrlStatus = EnableStatus.STATUS_DISABLE;
         this.ruleCnt = 0;
         this.flowCtrlInfo = TServerConstants.BLANK_FLOWCTRL_RULES;
+        this.balanceStrategy = BalanceStrategy.STRATEGY_DEFAULT;
         return this;
     }
 
@@ -126,6 +132,9 @@ public class GroupResCtrlEntity extends BaseEntity implements Cloneable {
         if (this.qryPriorityId == TBaseConstants.META_VALUE_UNDEFINED) {
             this.qryPriorityId = TServerConstants.QRY_PRIORITY_DEF_VALUE;
         }
+        if (this.balanceStrategy == BalanceStrategy.STRATEGY_UNDEFINE) {
+            this.balanceStrategy = BalanceStrategy.STRATEGY_DEFAULT;
+        }
         return this;
     }
 
@@ -170,6 +179,14 @@ public class GroupResCtrlEntity extends BaseEntity implements Cloneable {
         this.allowedBrokerClientRate = allowedBrokerClientRate;
     }
 
+    public BalanceStrategy getBalanceStrategy() {
+        return balanceStrategy;
+    }
+
+    public boolean isStickyBalance() {
+        return balanceStrategy.isSticky();
+    }
+
     public EnableStatus getResCheckStatus() {
         return resCheckStatus;
     }
@@ -269,6 +286,24 @@ public class GroupResCtrlEntity extends BaseEntity implements Cloneable {
         return changed;
     }
 
+    /**
+     * update the balance strategy
+     *
+     * @param strategy     new balance strategy, undefined if not changed
+     *
+     * @return  whether changed
+     */
+    public boolean updBalanceStrategy(BalanceStrategy strategy) {
+        if (strategy == null
+                || strategy == BalanceStrategy.STRATEGY_UNDEFINE
+                || strategy == this.balanceStrategy) {
+            return false;
+        }
+        this.balanceStrategy = strategy;
+        updSerialId();
+        return true;
+    }
+
     /**
      * Check whether the specified query item value matches
      * Allowed query items:
@@ -313,7 +348,8 @@ public class GroupResCtrlEntity extends BaseEntity implements Cloneable {
                     .append(",\"qryPriorityId\":").append(qryPriorityId)
                     .append(",\"flowCtrlEnable\":").append(flowCtrlStatus.isEnable())
                     .append(",\"flowCtrlRuleCount\":").append(ruleCnt)
-                    .append(",\"flowCtrlInfo\":").append(flowCtrlInfo);
+                    .append(",\"flowCtrlInfo\":").append(flowCtrlInfo)
+                    .append(",\"balanceStrategy\":").append(balanceStrategy.getCode());
         } else {
             sBuffer.append("{\"group\":\"").append(groupName).append("\"")
                     .append(",\"resChkEn\":").append(resCheckStatus.isEnable())
@@ -321,7 +357,8 @@ public class GroupResCtrlEntity extends BaseEntity implements Cloneable {
                     .append(",\"qryPriId\":").append(qryPriorityId)
                     .append(",\"fCtrlEn\":").append(flowCtrlStatus.isEnable())
                     .append(",\"fCtrlCnt\":").append(ruleCnt)
-                    .append(",\"fCtrlInfo\":").append(flowCtrlInfo);
+                    .append(",\"fCtrlInfo\":").append(flowCtrlInfo)
+                    .append(",\"balStgy\":").append(balanceStrategy.getCode());
         }
         super.toWebJsonStr(sBuffer, isLongName);
         if (fullFormat) {
@@ -372,6 +409,7 @@ public class GroupResCtrlEntity extends BaseEntity implements Cloneable {
                 && groupName.equals(other.groupName)
                 && resCheckStatus == other.resCheckStatus
                 && flowCtrlStatus == other.flowCtrlStatus
+                && balanceStrategy == other.balanceStrategy
                 && Objects.equals(flowCtrlInfo, other.flowCtrlInfo);
     }
 
@@ -394,7 +432,7 @@ public class GroupResCtrlEntity extends BaseEntity implements Cloneable {
     public int hashCode() {
         return Objects.hash(super.hashCode(), groupName,
                 resCheckStatus, allowedBrokerClientRate,
-                qryPriorityId, flowCtrlStatus, ruleCnt, flowCtrlInfo);
+                qryPriorityId, flowCtrlStatus, ruleCnt, flowCtrlInfo, balanceStrategy);
     }
 
     @Override
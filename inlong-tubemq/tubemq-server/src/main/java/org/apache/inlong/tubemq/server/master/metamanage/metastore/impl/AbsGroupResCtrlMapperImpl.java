@@ -72,10 +72,14 @@ public abstract class AbsGroupResCtrlMapperImpl implements GroupResCtrlMapper {
         // Build the entity that need to be updated
         GroupResCtrlEntity newEntity = curEntity.clone();
         newEntity.updBaseModifyInfo(entity);
-        if (!newEntity.updModifyInfo(entity.getDataVerId(),
+        boolean changed = newEntity.updModifyInfo(entity.getDataVerId(),
                 entity.isEnableResCheck(), entity.getAllowedBrokerClientRate(),
                 entity.getQryPriorityId(), entity.isFlowCtrlEnable(),
-                entity.getRuleCnt(), entity.getFlowCtrlInfo())) {
+                entity.getRuleCnt(), entity.getFlowCtrlInfo());
+        if (newEntity.updBalanceStrategy(entity.getBalanceStrategy())) {
+            changed = true;
+        }
+        if (!changed) {
             result.setFailResult(DataOpErrCode.DERR_UNCHANGED.getCode(),
                     "Group control configure not changed!");
             return result.isSuccess();
@@ -17,6 +17,7 @@
 
 package org.apache.inlong.tubemq.server.master.nodemanage.nodebroker;
 
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -40,6 +41,9 @@ public class BrokerPSInfoHolder {
     private final BrokerTopicInfoView subTopicInfoView = new BrokerTopicInfoView();
     // broker publish topic view info
     private final BrokerTopicInfoView pubTopicInfoView = new BrokerTopicInfoView();
+    // the subscribe topics changed since the last query
+    private final ConcurrentHashSet<String/* topicName */> chgSubTopicSet =
+            new ConcurrentHashSet<>();
 
     public BrokerPSInfoHolder() {
 
@@ -51,6 +55,7 @@ public class BrokerPSInfoHolder {
      * @param brokerId broker id index
      */
     public void rmvBrokerAllPushedInfo(int brokerId) {
+        subTopicInfoView.getBrokerTopicSet(brokerId, chgSubTopicSet);
         // remove broker status Info
         enablePubBrokerIdSet.remove(brokerId);
         enableSubBrokerIdSet.remove(brokerId);
@@ -76,6 +81,8 @@ public class BrokerPSInfoHolder {
             return;
         }
         // initial broker subscribe info
+        subTopicInfoView.getBrokerTopicSet(brokerId, chgSubTopicSet);
+        chgSubTopicSet.addAll(topicInfoMap.keySet());
         subTopicInfoView.updBrokerTopicConfInfo(brokerId, topicInfoMap);
         // initial broker publish info
         pubTopicInfoView.updBrokerTopicConfInfo(brokerId, topicInfoMap);
@@ -93,10 +100,14 @@ public class BrokerPSInfoHolder {
         } else {
             enablePubBrokerIdSet.remove(brokerId);
         }
+        boolean subStatusChanged;
         if (mngStatus.isAcceptSubscribe()) {
-            enableSubBrokerIdSet.add(brokerId);
+            subStatusChanged = enableSubBrokerIdSet.add(brokerId);
         } else {
-            enableSubBrokerIdSet.remove(brokerId);
+            subStatusChanged = enableSubBrokerIdSet.remove(brokerId);
+        }
+        if (subStatusChanged) {
+            subTopicInfoView.getBrokerTopicSet(brokerId, chgSubTopicSet);
         }
     }
 
@@ -119,10 +130,27 @@ public class BrokerPSInfoHolder {
         if (topicInfoMap == null) {
             return true;
         }
+        subTopicInfoView.getBrokerTopicSet(brokerId, chgSubTopicSet);
+        chgSubTopicSet.addAll(topicInfoMap.keySet());
         subTopicInfoView.updBrokerTopicConfInfo(brokerId, topicInfoMap);
         return pubTopicInfoView.fastUpdBrokerTopicConfInfo(brokerId, topicInfoMap);
     }
 
+    /**
+     * Get and clear the subscribe topics changed since the last query
+     *
+     * @return the changed topic names
+     */
+    public Set<String> getAndResetChgSubTopics() {
+        Set<String> topicSet = new HashSet<>();
+        for (String topic : chgSubTopicSet) {
+            if (chgSubTopicSet.remove(topic)) {
+                topicSet.add(topic);
+            }
+        }
+        return topicSet;
+    }
+
     /**
      * update broker's publish topicInfo configures
      *
@@ -72,8 +72,8 @@ public interface BrokerRunManager {
     void setRegisterDownConfInfo(int brokerId, StringBuilder sBuffer,
                                  RegisterResponseM2B.Builder builder);
 
-    void setHeatBeatDownConfInfo(int brokerId, StringBuilder sBuffer,
-                                 HeartResponseM2B.Builder builder);
+    void setHeatBeatDownConfInfo(int brokerId, boolean acceptIncConf,
+                                 StringBuilder sBuffer, HeartResponseM2B.Builder builder);
 
     BrokerInfo getBrokerInfo(int brokerId);
 
@@ -100,6 +100,8 @@ public interface BrokerRunManager {
 
     List<Partition> getSubBrokerAcceptSubParts(String topic);
 
+    Set<String> getAndResetChgSubTopics();
+
     void getSubBrokerTopicInfo(int brokerId, String topic, Tuple2<Boolean, TopicInfo> result);
 
     void getPubBrokerTopicInfo(int brokerId, String topic,
@@ -145,6 +145,15 @@ public class BrokerRunStatusInfo {
         return brokerSyncData.getBrokerSyncData();
     }
 
+    /**
+     * Get need sync to broker's incremental data
+     *
+     * @return return data container, null if need full sync
+     */
+    public Tuple4<Long, Integer, List<String>, List<String>> getNeedIncSyncData() {
+        return brokerSyncData.getBrokerIncSyncData();
+    }
+
     /**
      * Book broker report info
      *
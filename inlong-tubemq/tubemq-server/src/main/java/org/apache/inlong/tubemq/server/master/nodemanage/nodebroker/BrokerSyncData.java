@@ -44,6 +44,8 @@ import org.slf4j.LoggerFactory;
 public class BrokerSyncData {
     private static final Logger logger =
             LoggerFactory.getLogger(BrokerSyncData.class);
+    // the max count of the pushed configure kept for incremental sync
+    private static final int MAX_CONF_HISTORY_CNT = 5;
     // current data push id
     private long dataPushId;
     // data need to sync
@@ -55,6 +57,10 @@ public class BrokerSyncData {
     private Map<String, String> syncDownTopicConfInfoMap = new HashMap<>();
     private boolean isStatusChanged = false;
     private boolean isConfChanged = false;
+    // the pushed configure history, replaced as a whole when updated,
+    // item: configure id, check-sum id, broker default configure, topic configure
+    private volatile List<Tuple4<Long, Integer, String, Map<String, String>>> syncDownConfHistory =
+            new ArrayList<>();
 
     // report info
     private long syncUpDataConfId = TBaseConstants.META_VALUE_UNDEFINED;
@@ -92,6 +98,10 @@ public class BrokerSyncData {
             return null;
         }
         this.dataPushId = dataPushId;
+        final long befDataConfId = this.syncDownDataConfId.get();
+        final int befDataChkSumId = this.syncDownDataChkSumId;
+        final String befBrokerConfInfo = this.syncDownBrokerConfInfo;
+        final Map<String, String> befTopicConfInfoMap = this.syncDownTopicConfInfoMap;
         if (isForceSync || this.mngStatus != mngStatus) {
             this.mngStatus = mngStatus;
             isStatusChanged = true;
@@ -111,6 +121,12 @@ public class BrokerSyncData {
         if (isStatusChanged && isConfChanged) {
             this.syncDownDataConfId.incrementAndGet();
         }
+        if (befBrokerConfInfo != null
+                && (befDataConfId != this.syncDownDataConfId.get()
+                || befDataChkSumId != this.syncDownDataChkSumId)) {
+            addSyncDownConfHistory(befDataConfId, befDataChkSumId,
+                    befBrokerConfInfo, befTopicConfInfoMap);
+        }
         return new Tuple2<>(isStatusChanged, isConfChanged);
     }
 
@@ -184,6 +200,53 @@ public class BrokerSyncData {
         }
     }
 
+    /**
+     * Get need sync to broker's incremental data, computed from the pushed
+     * configure that the broker reported to the current configure
+     *
+     * @return null if the broker is synchronized, the reported configure is not in
+     *         the history, or the broker default configure changed, else
+     *         f0 : the reported configure id
+     *         f1 : the reported check-sum id
+     *         f2 : the added or changed topic configure
+     *         f3 : the removed topic names
+     */
+    public Tuple4<Long, Integer, List<String>, List<String>> getBrokerIncSyncData() {
+        if (isConfSynchronized()) {
+            return null;
+        }
+        Tuple4<Long, Integer, String, Map<String, String>> baseConf = null;
+        for (Tuple4<Long, Integer, String, Map<String, String>> item : syncDownConfHistory) {
+            if (item.getF0() == this.syncUpDataConfId
+                    && item.getF1() == this.syncUpDataChkSumId) {
+                baseConf = item;
+                break;
+            }
+        }
+        if (baseConf == null
+                || !Objects.equals(baseConf.getF2(), syncDownBrokerConfInfo)) {
+            return null;
+        }
+        List<String> updTopicConfInfos = new ArrayList<>();
+        List<String> rmvTopicNames = new ArrayList<>();
+        Map<String, String> baseTopicConfInfoMap = baseConf.getF3();
+        Map<String, String> curTopicConfInfoMap = syncDownTopicConfInfoMap;
+        for (Map.Entry<String, String> entry : curTopicConfInfoMap.entrySet()) {
+            if (entry.getValue() != null
+                    && !entry.getValue().equals(baseTopicConfInfoMap.get(entry.getKey()))) {
+                updTopicConfInfos.add(entry.getValue());
+            }
+        }
+        for (Map.Entry<String, String> entry : baseTopicConfInfoMap.entrySet()) {
+            if (entry.getValue() != null
+                    && curTopicConfInfoMap.get(entry.getKey()) == null) {
+                rmvTopicNames.add(entry.getKey());
+            }
+        }
+        return new Tuple4<>(this.syncUpDataConfId,
+                this.syncUpDataChkSumId, updTopicConfInfos, rmvTopicNames);
+    }
+
     /**
      * Get the broker publish info
      * @return need sync data
@@ -236,10 +299,35 @@ public class BrokerSyncData {
                 .append("\",\"syncUpTopicConfInfos\":\"").append(syncUpTopicConfInfos.toString())
                 .append("\",\"syncUpTopicInfoMap\":\"").append(syncUpTopicInfoMap.toString())
                 .append("\",\"lastDataUpTime\":").append(lastDataUpTime)
+                .append(",\"confHistoryCnt\":").append(syncDownConfHistory.size())
                 .append("}");
         return sBuffer;
     }
 
+    /**
+     * Keep the pushed configure, the oldest one is removed if over the max count
+     *
+     * @param dataConfId        the configure id
+     * @param dataChkSumId      the configure check-sum id
+     * @param brokerConfInfo    the broker default configure
+     * @param topicConfInfoMap  the topic configure set
+     */
+    private void addSyncDownConfHistory(long dataConfId, int dataChkSumId,
+                                        String brokerConfInfo,
+                                        Map<String, String> topicConfInfoMap) {
+        List<Tuple4<Long, Integer, String, Map<String, String>>> newConfHistory =
+                new ArrayList<>(MAX_CONF_HISTORY_CNT);
+        List<Tuple4<Long, Integer, String, Map<String, String>>> curConfHistory =
+                this.syncDownConfHistory;
+        for (int i = Math.max(0, curConfHistory.size() - MAX_CONF_HISTORY_CNT + 1);
+                i < curConfHistory.size(); i++) {
+            newConfHistory.add(curConfHistory.get(i));
+        }
+        newConfHistory.add(new Tuple4<>(dataConfId,
+                dataChkSumId, brokerConfInfo, topicConfInfoMap));
+        this.syncDownConfHistory = newConfHistory;
+    }
+
     /**
      * parse broker report configure to topicInfo
      *
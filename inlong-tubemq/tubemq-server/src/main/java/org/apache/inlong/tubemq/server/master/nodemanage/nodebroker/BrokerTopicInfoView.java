@@ -306,6 +306,19 @@ public class BrokerTopicInfoView {
         return topicInfoList;
     }
 
+    /**
+     * Get the topic names of broker
+     *
+     * @param brokerId  need query broker
+     * @param topicSet  the set to add the topic names
+     */
+    public void getBrokerTopicSet(int brokerId, Set<String> topicSet) {
+        ConcurrentHashSet<String> curTopicSet = brokerIdIndexMap.get(brokerId);
+        if (curTopicSet != null) {
+            topicSet.addAll(curTopicSet);
+        }
+    }
+
     /**
      * Remove broker all topic info
      *
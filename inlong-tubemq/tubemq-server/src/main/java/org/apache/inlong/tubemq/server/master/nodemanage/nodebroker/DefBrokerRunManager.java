@@ -380,7 +380,8 @@ public class DefBrokerRunManager implements BrokerRunManager, ConfigObserver {
     }
 
     @Override
-    public void setHeatBeatDownConfInfo(int brokerId, StringBuilder sBuffer,
+    public void setHeatBeatDownConfInfo(int brokerId, boolean acceptIncConf,
+                                        StringBuilder sBuffer,
                                         HeartResponseM2B.Builder builder) {
         BrokerRunStatusInfo runStatusInfo =
                 brokerRunSyncManageMap.get(brokerId);
@@ -402,6 +403,27 @@ public class DefBrokerRunManager implements BrokerRunManager, ConfigObserver {
         if (retTuple.getF2() == null) {
             builder.setNeedReportData(false);
             builder.setTakeConfInfo(false);
+            return;
+        }
+        // push the changed topics only if the broker accepts, else the full configure
+        Tuple4<Long, Integer, List<String>, List<String>> incTuple =
+                acceptIncConf ? runStatusInfo.getNeedIncSyncData() : null;
+        if (incTuple != null) {
+            builder.setNeedReportData(true);
+            builder.setTakeConfInfo(false);
+            builder.setTakeIncConfInfo(true);
+            builder.setBaseBrokerConfId(incTuple.getF0());
+            builder.setBaseConfCheckSumId(incTuple.getF1());
+            builder.addAllUpdTopicConfInfo(incTuple.getF2());
+            builder.addAllRmvTopicNames(incTuple.getF3());
+            logger.info(sBuffer.append("[TMaster sync] heartbeat sync incremental config: brokerId = ")
+                    .append(brokerId).append(",configureId=").append(retTuple.getF0())
+                    .append(",checksumId=").append(retTuple.getF1())
+                    .append(",baseConfigureId=").append(incTuple.getF0())
+                    .append(",baseChecksumId=").append(incTuple.getF1())
+                    .append(",updated topic configure is ").append(incTuple.getF2())
+                    .append(",removed topics is ").append(incTuple.getF3()).toString());
+            sBuffer.delete(0, sBuffer.length());
         } else {
             builder.setNeedReportData(true);
             builder.setTakeConfInfo(true);
@@ -528,6 +550,11 @@ public class DefBrokerRunManager implements BrokerRunManager, ConfigObserver {
         return brokerPubSubInfo.getAcceptSubParts(topic);
     }
 
+    @Override
+    public Set<String> getAndResetChgSubTopics() {
+        return brokerPubSubInfo.getAndResetChgSubTopics();
+    }
+
     @Override
     public void getSubBrokerTopicInfo(int brokerId, String topic,
                                       Tuple2<Boolean, TopicInfo> result) {
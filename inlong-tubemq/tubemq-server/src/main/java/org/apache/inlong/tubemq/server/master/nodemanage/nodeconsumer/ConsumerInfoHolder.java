@@ -20,7 +20,9 @@ package org.apache.inlong.tubemq.server.master.nodemanage.nodeconsumer;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import org.apache.commons.codec.binary.StringUtils;
@@ -51,6 +53,9 @@ public class ConsumerInfoHolder {
     // topic-group map
     private final ConcurrentHashMap<String/* topic */, ConcurrentHashSet<String>> topicGroupMap
             = new ConcurrentHashMap<>();
+    // the groups need to balance, with the earliest marked time
+    private final ConcurrentHashMap<String/* group */, Long/* markTime */> dirtyGroupMap
+            = new ConcurrentHashMap<>();
 
     public ConsumerInfoHolder(TMaster tMaster) {
         this.masterConfig = tMaster.getMasterConfig();
@@ -247,9 +252,103 @@ public class ConsumerInfoHolder {
                     consumeGroupInfo.addNodeRelInfo(consumerId, waitDuration);
                 }
             }
+            markDirtyGroup(group);
+        }
+    }
+
+    /**
+     * mark the group need to balance
+     *
+     * @param group group name
+     */
+    public void markDirtyGroup(String group) {
+        if (group == null) {
+            return;
+        }
+        dirtyGroupMap.putIfAbsent(group, System.currentTimeMillis());
+    }
+
+    /**
+     * mark the groups need to balance again, keep the earliest marked time
+     *
+     * @param groupMap  the groups and their marked time
+     * @param groups    the groups need to mark
+     */
+    public void markDirtyGroups(Map<String, Long> groupMap, List<String> groups) {
+        Long markTime;
+        for (String group : groups) {
+            markTime = groupMap.get(group);
+            if (markTime == null) {
+                markTime = System.currentTimeMillis();
+            }
+            dirtyGroupMap.merge(group, markTime, Math::min);
         }
     }
 
+    /**
+     * mark the server-balance groups not balanced completely need to balance again,
+     * such as the groups waiting for the consumers to release their partitions,
+     * the bound groups waiting for all consumers, and the groups with not enough
+     * consumers for the resource check
+     *
+     * @param groupMap  the groups and their marked time
+     * @param groups    the balanced groups
+     */
+    public void markUnfinishedBalanceGroups(Map<String, Long> groupMap, List<String> groups) {
+        ConsumeGroupInfo consumeGroupInfo;
+        List<String> unfinishedGroups = new ArrayList<>();
+        for (String group : groups) {
+            if (group == null) {
+                continue;
+            }
+            consumeGroupInfo = groupInfoMap.get(group);
+            if (consumeGroupInfo == null
+                    || consumeGroupInfo.isClientBalance()
+                    || consumeGroupInfo.isGroupEmpty()) {
+                continue;
+            }
+            if (!consumeGroupInfo.isBalanceMapEmpty()
+                    || consumeGroupInfo.isUnReadyServerBalance()
+                    || consumeGroupInfo.needResourceCheck()) {
+                unfinishedGroups.add(group);
+            }
+        }
+        markDirtyGroups(groupMap, unfinishedGroups);
+    }
+
+    /**
+     * mark the groups that subscribe the topics need to balance
+     *
+     * @param topicSet the changed topic set
+     */
+    public void markDirtyGroupsByTopics(Set<String> topicSet) {
+        ConcurrentHashSet<String> groupSet;
+        for (String topic : topicSet) {
+            groupSet = topicGroupMap.get(topic);
+            if (groupSet == null) {
+                continue;
+            }
+            for (String group : groupSet) {
+                markDirtyGroup(group);
+            }
+        }
+    }
+
+    /**
+     * get and clear the groups need to balance
+     *
+     * @return the groups and their marked time
+     */
+    public Map<String, Long> getAndResetDirtyGroups() {
+        Map<String, Long> result = new HashMap<>();
+        for (Map.Entry<String, Long> entry : dirtyGroupMap.entrySet()) {
+            if (dirtyGroupMap.remove(entry.getKey(), entry.getValue())) {
+                result.put(entry.getKey(), entry.getValue());
+            }
+        }
+        return result;
+    }
+
     /**
      * Check if allocated
      *
@@ -311,6 +410,22 @@ public class ConsumerInfoHolder {
         return new ArrayList<>(serverBalanceGroupSet);
     }
 
+    /**
+     * get server-balance group name in the specified groups
+     *
+     * @param groupSet the specified groups
+     * @return the group name registered
+     */
+    public List<String> getServerBalanceGroups(Set<String> groupSet) {
+        List<String> result = new ArrayList<>();
+        for (String group : groupSet) {
+            if (serverBalanceGroupSet.contains(group)) {
+                result.add(group);
+            }
+        }
+        return result;
+    }
+
     /**
      * get all client-balance group name
      *
@@ -323,6 +438,22 @@ public class ConsumerInfoHolder {
         return new ArrayList<>(clientBalanceGroupSet);
     }
 
+    /**
+     * get client-balance group name in the specified groups
+     *
+     * @param groupSet the specified groups
+     * @return the group name registered
+     */
+    public List<String> getClientBalanceGroups(Set<String> groupSet) {
+        List<String> result = new ArrayList<>();
+        for (String group : groupSet) {
+            if (clientBalanceGroupSet.contains(group)) {
+                result.add(group);
+            }
+        }
+        return result;
+    }
+
     /**
      * get all registered group name
      *
@@ -397,6 +528,7 @@ public class ConsumerInfoHolder {
                     consumeGroupInfo.settAllocated();
                 }
                 consumerIndexMap.put(consumer.getConsumerId(), group);
+                markDirtyGroup(group);
                 result.setCheckData(consumeGroupInfo);
             }
         } catch (IOException e) {
@@ -460,6 +592,7 @@ public class ConsumerInfoHolder {
                 } else {
                     if (consumer != null) {
                         MasterSrvStatsHolder.decConsumerCnt(isTimeout, false, false);
+                        markDirtyGroup(group);
                     }
                 }
             }
@@ -210,6 +210,14 @@ public class MasterSrvStatsHolder {
     public static void updSvrBalResetDurations(long dltTime) {
         switchableSets[getIndex()].svrResetBalanceStats.update(dltTime);
     }
+
+    public static void updSvrBalanceGroupCnt(long groupCnt) {
+        switchableSets[getIndex()].svrBalanceGroupStats.update(groupCnt);
+    }
+
+    public static void updSvrBalanceDelay(long dltTime) {
+        switchableSets[getIndex()].svrBalanceDelayStats.update(dltTime);
+    }
     // metric set operate APIs end
 
     // private functions
@@ -243,6 +251,8 @@ public class MasterSrvStatsHolder {
                     statsSet.cltBalGroupTmototCnt.getAndResetValue());
             statsSet.svrNormalBalanceStats.snapShort(statsMap, false);
             statsSet.svrResetBalanceStats.snapShort(statsMap, false);
+            statsSet.svrBalanceGroupStats.snapShort(statsMap, false);
+            statsSet.svrBalanceDelayStats.snapShort(statsMap, false);
             // for consumer
             statsMap.put(consumerOnlineCnt.getFullName(),
                     consumerOnlineCnt.getAndResetValue());
@@ -280,6 +290,8 @@ public class MasterSrvStatsHolder {
                     statsSet.cltBalGroupTmototCnt.getValue());
             statsSet.svrNormalBalanceStats.getValue(statsMap, false);
             statsSet.svrResetBalanceStats.getValue(statsMap, false);
+            statsSet.svrBalanceGroupStats.getValue(statsMap, false);
+            statsSet.svrBalanceDelayStats.getValue(statsMap, false);
             // for consumer
             statsMap.put(consumerOnlineCnt.getFullName(),
                     consumerOnlineCnt.getValue());
@@ -328,6 +340,10 @@ public class MasterSrvStatsHolder {
             statsSet.svrNormalBalanceStats.snapShort(strBuff, false);
             strBuff.append(",");
             statsSet.svrResetBalanceStats.snapShort(strBuff, false);
+            strBuff.append(",");
+            statsSet.svrBalanceGroupStats.snapShort(strBuff, false);
+            strBuff.append(",");
+            statsSet.svrBalanceDelayStats.snapShort(strBuff, false);
             // for consumer
             strBuff.append(",\"").append(consumerOnlineCnt.getFullName())
                     .append("\":").append(consumerOnlineCnt.getAndResetValue())
@@ -368,6 +384,10 @@ public class MasterSrvStatsHolder {
             statsSet.svrNormalBalanceStats.getValue(strBuff, false);
             strBuff.append(",");
             statsSet.svrResetBalanceStats.getValue(strBuff, false);
+            strBuff.append(",");
+            statsSet.svrBalanceGroupStats.getValue(strBuff, false);
+            strBuff.append(",");
+            statsSet.svrBalanceDelayStats.getValue(strBuff, false);
             // for consumer
             strBuff.append(",\"").append(consumerOnlineCnt.getFullName())
                     .append("\":").append(consumerOnlineCnt.getValue())
@@ -445,6 +465,12 @@ public class MasterSrvStatsHolder {
         // reset server balance delta time statistics
         protected final ESTHistogram svrResetBalanceStats =
                 new ESTHistogram("server_balance_reset", null);
+        // examined group count per balance round statistics
+        protected final ESTHistogram svrBalanceGroupStats =
+                new ESTHistogram("server_balance_groups", null);
+        // delay from group marked to balance round statistics
+        protected final ESTHistogram svrBalanceDelayStats =
+                new ESTHistogram("server_balance_delay", null);
 
         public ServiceStatsSet() {
             resetSinceTime();
@@ -27,6 +27,7 @@ import org.apache.inlong.tubemq.corebase.TBaseConstants;
 import org.apache.inlong.tubemq.corebase.rv.ProcessResult;
 import org.apache.inlong.tubemq.server.common.TServerConstants;
 import org.apache.inlong.tubemq.server.common.fielddef.WebFieldDef;
+import org.apache.inlong.tubemq.server.common.statusdef.BalanceStrategy;
 import org.apache.inlong.tubemq.server.common.utils.WebParameterUtils;
 import org.apache.inlong.tubemq.server.master.TMaster;
 import org.apache.inlong.tubemq.server.master.metamanage.metastore.dao.entity.BaseEntity;
@@ -320,12 +321,25 @@ public class WebGroupResCtrlHandler extends AbstractWebHandler {
             return sBuffer;
         }
         String flowCtrlInfo = (String) result.getRetData();
+        // get balance strategy info
+        if (!WebParameterUtils.getIntParamValue(req, WebFieldDef.BALANCESTRATEGY, false,
+                (isAddOp ? BalanceStrategy.STRATEGY_DEFAULT.getCode()
+                        : TBaseConstants.META_VALUE_UNDEFINED),
+                BalanceStrategy.STRATEGY_DEFAULT.getCode(),
+                BalanceStrategy.STRATEGY_STICKY.getCode(), sBuffer, result)) {
+            WebParameterUtils.buildFailResult(sBuffer, result.getErrMsg());
+            return sBuffer;
+        }
+        BalanceStrategy balanceStrategy = BalanceStrategy.valueOf((int) result.getRetData());
         // add group resource record
+        GroupResCtrlEntity entity;
         List<GroupProcessResult> retInfo = new ArrayList<>();
         for (String groupName : batchGroupNames) {
-            retInfo.add(defMetaDataService.addOrUpdGroupCtrlConf(isAddOp, opEntity, groupName,
-                    resCheckEnable, allowedBClientRate, qryPriorityId,
-                    flowCtrlEnable, flowRuleCnt, flowCtrlInfo, sBuffer, result));
+            entity = new GroupResCtrlEntity(opEntity, groupName);
+            entity.updModifyInfo(opEntity.getDataVerId(), resCheckEnable, allowedBClientRate,
+                    qryPriorityId, flowCtrlEnable, flowRuleCnt, flowCtrlInfo);
+            entity.updBalanceStrategy(balanceStrategy);
+            retInfo.add(defMetaDataService.addOrUpdGroupCtrlConf(isAddOp, entity, sBuffer, result));
         }
         return buildRetInfo(retInfo, sBuffer);
     }
@@ -414,19 +428,30 @@ public class WebGroupResCtrlHandler extends AbstractWebHandler {
                     (isAddOp ? false : null), sBuffer, result)) {
                 return result.isSuccess();
             }
-            Boolean flowCtrlEnable = (Boolean) result.getRetData();
+            final Boolean flowCtrlEnable = (Boolean) result.getRetData();
             // get and flow control rule info
-            int flowRuleCnt = WebParameterUtils.getAndCheckFlowRules(itemValueMap,
+            final int flowRuleCnt = WebParameterUtils.getAndCheckFlowRules(itemValueMap,
                     (isAddOp ? TServerConstants.BLANK_FLOWCTRL_RULES : null), sBuffer, result);
             if (!result.isSuccess()) {
                 return result.isSuccess();
             }
             String flowCtrlInfo = (String) result.getRetData();
+            // get balance strategy info
+            if (!WebParameterUtils.getIntParamValue(itemValueMap,
+                    WebFieldDef.BALANCESTRATEGY, false,
+                    (isAddOp ? BalanceStrategy.STRATEGY_DEFAULT.getCode()
+                            : TBaseConstants.META_VALUE_UNDEFINED),
+                    BalanceStrategy.STRATEGY_DEFAULT.getCode(),
+                    BalanceStrategy.STRATEGY_STICKY.getCode(), sBuffer, result)) {
+                return result.isSuccess();
+            }
+            final int balanceStrategyId = (int) result.getRetData();
             itemEntity =
                     new GroupResCtrlEntity(itemOpEntity, groupName);
             itemEntity.updModifyInfo(itemEntity.getDataVerId(),
                     resCheckEnable, allowedBClientRate, qryPriorityId,
                     flowCtrlEnable, flowRuleCnt, flowCtrlInfo);
+            itemEntity.updBalanceStrategy(BalanceStrategy.valueOf(balanceStrategyId));
             addRecordMap.put(itemEntity.getGroupName(), itemEntity);
         }
         // check result
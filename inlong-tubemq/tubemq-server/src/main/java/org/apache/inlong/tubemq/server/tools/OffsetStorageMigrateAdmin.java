@@ -0,0 +1,109 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.tools;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.apache.inlong.tubemq.corebase.rv.ProcessResult;
+import org.apache.inlong.tubemq.server.broker.BrokerConfig;
+import org.apache.inlong.tubemq.server.broker.offset.offsetstorage.FileOffsetStorage;
+import org.apache.inlong.tubemq.server.broker.offset.offsetstorage.OffsetStorageInfo;
+import org.apache.inlong.tubemq.server.broker.offset.offsetstorage.ZkOffsetStorage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Offset Storage Migrate Tool
+ *
+ * Copy the offsets of the broker from ZooKeeper into the local offset log, it is run
+ * once with the broker stopped before enabling the local offset storage.
+ */
+public class OffsetStorageMigrateAdmin {
+    private static final Logger logger =
+            LoggerFactory.getLogger(OffsetStorageMigrateAdmin.class);
+
+    /**
+     * Migrate the offsets of the broker from ZooKeeper to the local offset log
+     * @param args   Startup parameter array, the broker configuration file path
+     *               is specified by the -f option, the localOffsetStoragePath in it
+     *               is the target directory of the local offset log.
+     */
+    public static void main(final String[] args) throws Exception {
+        ProcessResult result = new ProcessResult();
+        if (!CliUtils.getConfigFilePath(args, result)) {
+            System.err.println(result.getErrMsg());
+            System.exit(1);
+        }
+        String configFilePath = (String) result.getRetData();
+        BrokerConfig brokerConfig = new BrokerConfig();
+        brokerConfig.loadFromFile(configFilePath);
+        if (!brokerConfig.isEnableLocalOffsetStorage()) {
+            System.err.println(
+                    "[Offset Migrate] Please set enableLocalOffsetStorage and localOffsetStoragePath first!");
+            System.exit(1);
+        }
+        final long start = System.currentTimeMillis();
+        int groupCnt = 0;
+        int offsetCnt = 0;
+        ZkOffsetStorage zkOffsetStorage = new ZkOffsetStorage(
+                brokerConfig.getZkConfig(), true, brokerConfig.getBrokerId());
+        FileOffsetStorage fileOffsetStorage = new FileOffsetStorage(
+                brokerConfig.getLocalOffsetStoragePath(),
+                brokerConfig.getBrokerId(), brokerConfig.getLocalOffsetLogMaxSize());
+        try {
+            Map<String, Set<String>> groupTopicMap =
+                    zkOffsetStorage.queryZkAllGroupTopicInfos();
+            for (Map.Entry<String, Set<String>> entry : groupTopicMap.entrySet()) {
+                List<OffsetStorageInfo> offsetInfoList = new ArrayList<>();
+                for (String topic : entry.getValue()) {
+                    Set<Integer> partIdSet =
+                            zkOffsetStorage.queryGroupTopicPartitions(entry.getKey(), topic);
+                    for (Integer partitionId : partIdSet) {
+                        OffsetStorageInfo zkOffsetInfo =
+                                zkOffsetStorage.loadOffset(entry.getKey(), topic, partitionId);
+                        if (zkOffsetInfo == null) {
+                            continue;
+                        }
+                        // the new created info is marked as modified, so it is committed
+                        offsetInfoList.add(new OffsetStorageInfo(topic,
+                                brokerConfig.getBrokerId(), partitionId,
+                                zkOffsetInfo.getOffset(), zkOffsetInfo.getMessageId()));
+                    }
+                }
+                if (offsetInfoList.isEmpty()) {
+                    continue;
+                }
+                fileOffsetStorage.commitOffset(entry.getKey(), offsetInfoList, true);
+                groupCnt++;
+                offsetCnt += offsetInfoList.size();
+                logger.info(new StringBuilder(512)
+                        .append("[Offset Migrate] Migrated group ").append(entry.getKey())
+                        .append(", offset count is ").append(offsetInfoList.size()).toString());
+            }
+        } finally {
+            fileOffsetStorage.close();
+            zkOffsetStorage.close();
+        }
+        logger.info(new StringBuilder(512)
+                .append("[Offset Migrate] Finished, migrated ").append(offsetCnt)
+                .append(" offsets of ").append(groupCnt).append(" groups in ")
+                .append(System.currentTimeMillis() - start).append(" ms").toString());
+    }
+}
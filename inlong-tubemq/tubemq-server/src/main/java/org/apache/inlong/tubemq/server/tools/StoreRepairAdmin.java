@@ -337,7 +337,7 @@ public class StoreRepairAdmin {
             final ByteBuffer indexBuffer =
                     ByteBuffer.allocate(DataStoreUtils.STORE_INDEX_HEAD_LEN);
             for (Segment curSegment : segments) {
-                if (curSegment == null) {
+                if (curSegment == null || !curSegment.retainViewRef()) {
                     continue;
                 }
                 try {
@@ -0,0 +1,74 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.broker;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.apache.inlong.tubemq.corebase.policies.FlowCtrlResult;
+import org.apache.inlong.tubemq.server.broker.stats.BrokerSrvStatsHolder;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * GroupFlowCtrlManager test.
+ */
+public class GroupFlowCtrlManagerTest {
+
+    @Test
+    public void testGroupTokenBucket() {
+        GroupFlowCtrlManager manager = new GroupFlowCtrlManager(2);
+        Assert.assertTrue(manager.isEnabled());
+        long currTime = System.currentTimeMillis();
+        // no data limit, not evaluated by the bucket
+        FlowCtrlResult noLimit = new FlowCtrlResult(Long.MAX_VALUE, 0);
+        Assert.assertEquals(1000, manager.acquire("group", noLimit, 1000, currTime));
+        Assert.assertEquals(0, manager.getBucketCount());
+        // 60000 bytes per minute for 2 partitions, refilled at 2000 bytes per second
+        FlowCtrlResult dataLimit = new FlowCtrlResult(60000L, 100);
+        Assert.assertEquals(1000, manager.acquire("group", dataLimit, 1000, currTime));
+        manager.consume("group", 3000);
+        // the bucket is in debt, the fetch waits until refilled
+        long throttledBytes = getThrottledBytes();
+        int waitResult = manager.acquire("group", dataLimit, 500, currTime);
+        Assert.assertTrue(waitResult < 0);
+        Assert.assertEquals(501, -waitResult);
+        // the shortfall of the bucket is counted
+        Assert.assertEquals(1000, getThrottledBytes() - throttledBytes);
+        // the other group owns its bucket
+        Assert.assertEquals(1000, manager.acquire("group2", dataLimit, 1000, currTime));
+        Assert.assertEquals(2, manager.getBucketCount());
+        // refilled after one second
+        Assert.assertEquals(1000, manager.acquire("group", dataLimit, 1000, currTime + 1000));
+    }
+
+    @Test
+    public void testDisabled() {
+        GroupFlowCtrlManager manager = new GroupFlowCtrlManager(0);
+        Assert.assertFalse(manager.isEnabled());
+        FlowCtrlResult dataLimit = new FlowCtrlResult(60000L, 100);
+        Assert.assertEquals(1000, manager.acquire("group", dataLimit, 1000, 0L));
+        manager.consume("group", 100000);
+        Assert.assertEquals(1000, manager.acquire("group", dataLimit, 1000, 0L));
+    }
+
+    private long getThrottledBytes() {
+        Map<String, Long> statsMap = new LinkedHashMap<>();
+        BrokerSrvStatsHolder.getValue(statsMap);
+        return statsMap.get("group_fc_throttled_bytes");
+    }
+}
@@ -0,0 +1,129 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.broker;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import org.apache.inlong.tubemq.corebase.TErrCodeConstants;
+import org.apache.inlong.tubemq.corebase.protobuf.generated.ClientBroker.GetMessageResponseB2C;
+import org.apache.inlong.tubemq.corerpc.DeferredResponse;
+import org.apache.inlong.tubemq.server.broker.msgstore.MessageStore;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * PendingFetchManager test.
+ */
+public class PendingFetchManagerTest {
+
+    private PendingFetchManager pendingFetchManager;
+    private MessageStore dataStore;
+    private final AtomicReference<Runnable> dataWaiter = new AtomicReference<>();
+
+    @Before
+    public void setUp() {
+        pendingFetchManager = new PendingFetchManager(10, 1);
+        dataStore = mock(MessageStore.class);
+        when(dataStore.getDataArrivedSeq()).thenReturn(0L);
+        when(dataStore.addDataWaiter(anyLong(), any(Runnable.class))).thenAnswer(invocation -> {
+            dataWaiter.set((Runnable) invocation.getArguments()[1]);
+            return true;
+        });
+    }
+
+    @After
+    public void tearDown() {
+        pendingFetchManager.close();
+    }
+
+    @Test
+    public void wakeOnAppend() throws Exception {
+        final AtomicBoolean dataArrived = new AtomicBoolean(false);
+        Assert.assertTrue(pendingFetchManager.hold(dataStore, 0L, 60000L,
+                (isTimeout, rawDataRegions) -> dataArrived.get() ? buildResponse() : null));
+        CompletableFuture<Object> result = bindResponse();
+        Assert.assertEquals(1, pendingFetchManager.getPendingCnt());
+        Assert.assertFalse(result.isDone());
+        // new data appended, the appending thread runs the waiter
+        dataArrived.set(true);
+        dataWaiter.get().run();
+        GetMessageResponseB2C response =
+                (GetMessageResponseB2C) result.get(10, TimeUnit.SECONDS);
+        Assert.assertTrue(response.getSuccess());
+        Assert.assertEquals(0, pendingFetchManager.getPendingCnt());
+    }
+
+    @Test
+    public void expireAtMaxWait() throws Exception {
+        final long maxWaitMs = 200L;
+        final AtomicBoolean timeoutFetched = new AtomicBoolean(false);
+        final long startTime = System.currentTimeMillis();
+        Assert.assertTrue(pendingFetchManager.hold(dataStore, 0L, maxWaitMs,
+                (isTimeout, rawDataRegions) -> {
+                    if (!isTimeout) {
+                        return null;
+                    }
+                    timeoutFetched.set(true);
+                    return buildResponse();
+                }));
+        CompletableFuture<Object> result = bindResponse();
+        // woken without data, wait again
+        dataWaiter.get().run();
+        Assert.assertNotNull(result.get(10, TimeUnit.SECONDS));
+        Assert.assertTrue(System.currentTimeMillis() - startTime >= maxWaitMs);
+        Assert.assertTrue(timeoutFetched.get());
+        Assert.assertEquals(0, pendingFetchManager.getPendingCnt());
+    }
+
+    @Test
+    public void replyErrorIfFetchFailure() throws Exception {
+        Assert.assertTrue(pendingFetchManager.hold(dataStore, 0L, 60000L,
+                (isTimeout, rawDataRegions) -> {
+                    throw new IllegalStateException("read failure");
+                }));
+        CompletableFuture<Object> result = bindResponse();
+        dataWaiter.get().run();
+        GetMessageResponseB2C response =
+                (GetMessageResponseB2C) result.get(10, TimeUnit.SECONDS);
+        Assert.assertFalse(response.getSuccess());
+        Assert.assertEquals(TErrCodeConstants.INTERNAL_SERVER_ERROR, response.getErrCode());
+        Assert.assertEquals(-1L, response.getCurrOffset());
+        Assert.assertEquals(0, pendingFetchManager.getPendingCnt());
+    }
+
+    private CompletableFuture<Object> bindResponse() {
+        DeferredResponse deferredResponse = DeferredResponse.takeDeferred();
+        Assert.assertNotNull(deferredResponse);
+        CompletableFuture<Object> result = new CompletableFuture<>();
+        deferredResponse.bind((response, rawDataRegions) -> result.complete(response));
+        return result;
+    }
+
+    private GetMessageResponseB2C buildResponse() {
+        return GetMessageResponseB2C.newBuilder()
+                .setSuccess(true).setErrCode(TErrCodeConstants.SUCCESS).build();
+    }
+}
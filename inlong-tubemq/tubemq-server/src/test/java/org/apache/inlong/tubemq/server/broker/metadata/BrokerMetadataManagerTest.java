@@ -17,6 +17,7 @@
 
 package org.apache.inlong.tubemq.server.broker.metadata;
 
+import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -53,6 +54,38 @@ public class BrokerMetadataManagerTest {
         Assert.assertEquals(count, 6);
     }
 
+    @Test
+    public void updateBrokerTopicConfigDelta() {
+        brokerMetadataManager = new BrokerMetadataManager();
+        String newBrokerDefMetaConfInfo = "1:true:true:1000:10000:0,0,6:delete,168h:1:1000:1024:1000:1000";
+        List<String> newTopicMetaConfInfoList = new LinkedList<>();
+        newTopicMetaConfInfoList.add("topic1:2:true:true:1000:10000:0,0,6:delete,168h:1:1000:1024:1000:1000:1");
+        newTopicMetaConfInfoList.add("topic2:4:true:true:1000:10000:0,0,6:delete,168h:1:1000:1024:1000:1000:1");
+        brokerMetadataManager.updateBrokerTopicConfigMap(1L, 10,
+                newBrokerDefMetaConfInfo, newTopicMetaConfInfoList, true, new StringBuilder());
+        // changes not based on the current configure are rejected
+        List<String> updTopicConfs = new ArrayList<>();
+        updTopicConfs.add("topic2:8:true:true:1000:10000:0,0,6:delete,168h:1:1000:1024:1000:1000:1");
+        updTopicConfs.add("topic3:6:true:true:1000:10000:0,0,6:delete,168h:1:1000:1024:1000:1000:1");
+        List<String> rmvTopics = new ArrayList<>();
+        rmvTopics.add("topic1");
+        Assert.assertFalse(brokerMetadataManager.updateBrokerTopicConfigDelta(1L, 9,
+                1L, 11, updTopicConfs, rmvTopics, new StringBuilder()));
+        Assert.assertEquals(10, brokerMetadataManager.getBrokerConfCheckSumId());
+        Assert.assertEquals(4, brokerMetadataManager.getNumPartitions("topic2"));
+        // apply the changes
+        Assert.assertTrue(brokerMetadataManager.updateBrokerTopicConfigDelta(1L, 10,
+                1L, 11, updTopicConfs, rmvTopics, new StringBuilder()));
+        Assert.assertEquals(11, brokerMetadataManager.getBrokerConfCheckSumId());
+        Assert.assertNull(brokerMetadataManager.getTopicMetadata("topic1"));
+        Assert.assertFalse(brokerMetadataManager.getTopics().contains("topic1"));
+        Assert.assertEquals(8, brokerMetadataManager.getNumPartitions("topic2"));
+        Assert.assertEquals(6, brokerMetadataManager.getNumPartitions("topic3"));
+        Assert.assertEquals(2, brokerMetadataManager.getTopicMetaConfInfoLst().size());
+        // the history offset topic is kept
+        Assert.assertEquals(3, brokerMetadataManager.getTopics().size());
+    }
+
     @Test
     public void updateBrokerRemoveTopicMap() {
         brokerMetadataManager = new BrokerMetadataManager();
@@ -0,0 +1,126 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.broker.msgstore;
+
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.when;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.apache.inlong.tubemq.corebase.TErrCodeConstants;
+import org.apache.inlong.tubemq.corebase.utils.CheckSum;
+import org.apache.inlong.tubemq.server.broker.BrokerConfig;
+import org.apache.inlong.tubemq.server.broker.metadata.TopicMetadata;
+import org.apache.inlong.tubemq.server.broker.msgstore.disk.GetMessageResult;
+import org.apache.inlong.tubemq.server.broker.nodeinfo.ConsumerNodeInfo;
+import org.apache.inlong.tubemq.server.common.utils.AppendMsgEntry;
+import org.apache.inlong.tubemq.server.common.utils.FileUtil;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * MessageStore test.
+ */
+public class MessageStoreTest {
+
+    private static final int MEM_CACHE_MSG_CNT = 10;
+    private static final int MEM_CACHE_MSG_SIZE = 64 * 1024;
+    // the read priority of the consumers reading from file only
+    private static final int FILE_ONLY_READ = 100;
+
+    private File storePath;
+    private MessageStore msgStore;
+
+    @Before
+    public void setUp() throws Exception {
+        storePath = Files.createTempDirectory("msgstore").toFile();
+        BrokerConfig brokerConfig = spy(new BrokerConfig());
+        doReturn(storePath.getAbsolutePath()).when(brokerConfig).getPrimaryPath();
+        TopicMetadata topicMetadata = mock(TopicMetadata.class);
+        when(topicMetadata.getTopic()).thenReturn("test");
+        when(topicMetadata.getNumPartitions()).thenReturn(1);
+        when(topicMetadata.getDeletePolicy()).thenReturn("delete,168h");
+        when(topicMetadata.getUnflushThreshold()).thenReturn(1);
+        when(topicMetadata.getUnflushInterval()).thenReturn(10000);
+        when(topicMetadata.getMemCacheMsgCnt()).thenReturn(MEM_CACHE_MSG_CNT);
+        when(topicMetadata.getMemCacheMsgSize()).thenReturn(MEM_CACHE_MSG_SIZE);
+        when(topicMetadata.getMinMemCacheSize()).thenReturn(MEM_CACHE_MSG_SIZE);
+        when(topicMetadata.getMemCacheFlushIntvl()).thenReturn(0);
+        msgStore = new MessageStore(mock(MessageStoreManager.class),
+                topicMetadata, 0, brokerConfig, 1024 * 1024);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        msgStore.close();
+        FileUtil.fullyDelete(storePath);
+    }
+
+    @Test
+    public void appendBatchOverSeveralCacheFills() throws Exception {
+        final int msgCnt = MEM_CACHE_MSG_CNT * 20 + 3;
+        List<AppendMsgEntry> msgEntries = new ArrayList<>(msgCnt);
+        for (int i = 0; i < msgCnt; i++) {
+            msgEntries.add(buildMsgEntry("message-" + i));
+        }
+        // every pass flushes the full cache and makes progress,
+        // so the retry count is not used up by the flushes
+        Assert.assertEquals(msgCnt, msgStore.appendMsgBatch(msgEntries,
+                0, 0, System.currentTimeMillis(), 3, 10));
+        for (AppendMsgEntry msgEntry : msgEntries) {
+            Assert.assertTrue(msgEntry.getAppendResult().isSuccess());
+        }
+    }
+
+    @Test
+    public void wakeFileOnlyReaderOnCacheFlush() throws Exception {
+        final ConsumerNodeInfo consumerNodeInfo = mock(ConsumerNodeInfo.class);
+        Assert.assertEquals(1, msgStore.appendMsgBatch(
+                Collections.singletonList(buildMsgEntry("message")),
+                0, 0, System.currentTimeMillis(), 3, 10));
+        // the cached message can't be read from file yet
+        final long arrivedSeq = msgStore.getDataArrivedSeq();
+        GetMessageResult getResult = msgStore.getMessages(FILE_ONLY_READ, 0L,
+                0, consumerNodeInfo, "test", 1024 * 1024, System.currentTimeMillis());
+        Assert.assertFalse(getResult.isSuccess);
+        Assert.assertEquals(TErrCodeConstants.NOT_FOUND, getResult.retCode);
+        final CountDownLatch dataArrived = new CountDownLatch(1);
+        Assert.assertTrue(msgStore.addDataWaiter(arrivedSeq, dataArrived::countDown));
+        // the waiter is woken once the cache is flushed to file
+        msgStore.flushMemCacheData();
+        Assert.assertTrue(dataArrived.await(5, TimeUnit.SECONDS));
+        getResult = msgStore.getMessages(FILE_ONLY_READ, 0L,
+                0, consumerNodeInfo, "test", 1024 * 1024, System.currentTimeMillis());
+        Assert.assertTrue(getResult.isSuccess);
+        Assert.assertEquals(1, getResult.getTransferedMessageList().size());
+    }
+
+    private AppendMsgEntry buildMsgEntry(String content) {
+        byte[] data = content.getBytes(StandardCharsets.UTF_8);
+        return new AppendMsgEntry(data.length, CheckSum.crc32(data), data, 0, 0);
+    }
+}
@@ -20,6 +20,9 @@ package org.apache.inlong.tubemq.server.broker.msgstore.disk;
 import java.io.File;
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import org.apache.inlong.tubemq.server.broker.utils.DataStoreUtils;
+import org.apache.inlong.tubemq.server.common.utils.IntHashSet;
+import org.junit.Assert;
 
 /**
  * FileSegment test.
@@ -83,4 +86,130 @@ public class FileSegmentTest {
             }
         }
     }
-}
\ No newline at end of file
+
+    @org.junit.Test
+    public void deleteAfterViewRefReleased() throws IOException {
+        long start = 0;
+        File file = File.createTempFile("testdata", null);
+        file.deleteOnExit();
+        fileSegment = new FileSegment(start, file, true, SegmentType.DATA);
+        long appendTime = System.currentTimeMillis();
+        fileSegment.append(ByteBuffer.wrap("abc".getBytes()), appendTime, appendTime);
+        fileSegment.flush(true);
+        // the reader holds the segment, the file is kept until released
+        Assert.assertTrue(fileSegment.retainViewRef());
+        fileSegment.deleteFile();
+        Assert.assertFalse(fileSegment.retainViewRef());
+        Assert.assertTrue(file.exists());
+        Assert.assertTrue(fileSegment.getFileChannel().isOpen());
+        ByteBuffer readBuffer = ByteBuffer.allocate(3);
+        fileSegment.read(readBuffer, 0);
+        Assert.assertEquals("abc", new String(readBuffer.array()));
+        fileSegment.relViewRef();
+        Assert.assertFalse(fileSegment.getFileChannel().isOpen());
+        Assert.assertFalse(file.exists());
+    }
+
+    @org.junit.Test
+    public void mappedIndexRead() throws IOException {
+        long start = 0;
+        File file = File.createTempFile("testindex", null);
+        file.deleteOnExit();
+        int recordCnt = 1000;
+        long baseTime = System.currentTimeMillis();
+        // write index records, every 2 records share the same time
+        fileSegment = new FileSegment(start, file, true, SegmentType.INDEX);
+        try {
+            ByteBuffer indexBuffer = ByteBuffer.allocate(DataStoreUtils.STORE_INDEX_HEAD_LEN);
+            for (int i = 0; i < recordCnt; i++) {
+                indexBuffer.clear();
+                indexBuffer.putInt(1);
+                indexBuffer.putLong(i * 100L);
+                indexBuffer.putInt(100);
+                indexBuffer.putInt(0);
+                indexBuffer.putLong(baseTime + i / 2);
+                indexBuffer.flip();
+                fileSegment.append(indexBuffer, baseTime, baseTime + i / 2);
+            }
+            fileSegment.flush(true);
+        } finally {
+            fileSegment.close();
+        }
+        // reopen as the immutable segment, read by the mapped index
+        fileSegment = new FileSegment(start, file, false, SegmentType.INDEX);
+        try {
+            Assert.assertEquals(baseTime + 10,
+                    fileSegment.getRecordTime(20L * DataStoreUtils.STORE_INDEX_HEAD_LEN));
+            ByteBuffer readBuffer = ByteBuffer.allocate(2 * DataStoreUtils.STORE_INDEX_HEAD_LEN);
+            fileSegment.relRead(readBuffer, 500L * DataStoreUtils.STORE_INDEX_HEAD_LEN);
+            readBuffer.flip();
+            Assert.assertEquals(1, readBuffer.getInt());
+            Assert.assertEquals(50000L, readBuffer.getLong());
+            // the first record with the equal time
+            Assert.assertEquals(300L * DataStoreUtils.STORE_INDEX_HEAD_LEN,
+                    fileSegment.findRecordPosByTime(baseTime + 150, 0));
+            // before the first record
+            Assert.assertEquals(0,
+                    fileSegment.findRecordPosByTime(baseTime - 1, 0));
+            // after the last record
+            Assert.assertEquals((recordCnt - 1L) * DataStoreUtils.STORE_INDEX_HEAD_LEN,
+                    fileSegment.findRecordPosByTime(baseTime + recordCnt, 0));
+            // the records before the data min offset are treated as earlier
+            Assert.assertEquals(9L * DataStoreUtils.STORE_INDEX_HEAD_LEN,
+                    fileSegment.findRecordPosByTime(baseTime + 2, 1000L));
+            // the expired records cross the sampled records
+            Assert.assertEquals(99L * DataStoreUtils.STORE_INDEX_HEAD_LEN,
+                    fileSegment.findRecordPosByTime(baseTime + 1, 10000L));
+        } finally {
+            fileSegment.close();
+        }
+    }
+
+    @org.junit.Test
+    public void mappedIndexFindByKeys() throws IOException {
+        long start = 0;
+        File file = File.createTempFile("testindex", null);
+        file.deleteOnExit();
+        int recordCnt = MappedIndexView.KEY_SUMMARY_BLOCK_RECORDS * 4;
+        int keyRecord = MappedIndexView.KEY_SUMMARY_BLOCK_RECORDS * 2 + 10;
+        long baseTime = System.currentTimeMillis();
+        // write index records, only one record has the filtered key
+        fileSegment = new FileSegment(start, file, true, SegmentType.INDEX);
+        try {
+            ByteBuffer indexBuffer = ByteBuffer.allocate(DataStoreUtils.STORE_INDEX_HEAD_LEN);
+            for (int i = 0; i < recordCnt; i++) {
+                indexBuffer.clear();
+                indexBuffer.putInt(1);
+                indexBuffer.putLong(i * 100L);
+                indexBuffer.putInt(100);
+                indexBuffer.putInt(i == keyRecord ? "filter".hashCode() : 0);
+                indexBuffer.putLong(baseTime);
+                indexBuffer.flip();
+                fileSegment.append(indexBuffer, baseTime, baseTime);
+            }
+            fileSegment.flush(true);
+        } finally {
+            fileSegment.close();
+        }
+        fileSegment = new FileSegment(start, file, false, SegmentType.INDEX);
+        try {
+            IntHashSet keyCodes = new IntHashSet();
+            keyCodes.add("filter".hashCode());
+            // skip to the block with the filtered key
+            Assert.assertEquals(MappedIndexView.KEY_SUMMARY_BLOCK_RECORDS * 2L
+                            * DataStoreUtils.STORE_INDEX_HEAD_LEN,
+                    fileSegment.findRecordOffsetByKeys(0, keyCodes));
+            // not move inside the block with the filtered key
+            long reqOffset = (keyRecord - 5L) * DataStoreUtils.STORE_INDEX_HEAD_LEN;
+            Assert.assertEquals(reqOffset,
+                    fileSegment.findRecordOffsetByKeys(reqOffset, keyCodes));
+            // skip to the end of the segment if no block has the filtered key
+            reqOffset = (keyRecord + MappedIndexView.KEY_SUMMARY_BLOCK_RECORDS)
+                    * (long) DataStoreUtils.STORE_INDEX_HEAD_LEN;
+            Assert.assertEquals((long) recordCnt * DataStoreUtils.STORE_INDEX_HEAD_LEN,
+                    fileSegment.findRecordOffsetByKeys(reqOffset, keyCodes));
+        } finally {
+            fileSegment.close();
+        }
+    }
+}
@@ -0,0 +1,111 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.broker.msgstore.disk;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * MsgBlockCache test.
+ */
+public class MsgBlockCacheTest {
+
+    @Test
+    public void readThroughCache() throws Exception {
+        File file = File.createTempFile("testdata", null);
+        FileSegment segment = new FileSegment(1000L, file, SegmentType.DATA);
+        try {
+            MsgBlockCache blockCache = new MsgBlockCache(16 * 64, 16, 2);
+            // append 40 bytes, the last block is partial
+            long appendTime = System.currentTimeMillis();
+            segment.append(ByteBuffer.wrap(buildData(0, 40)), appendTime, appendTime);
+            ByteBuffer readBuffer = ByteBuffer.allocate(20);
+            Assert.assertFalse(blockCache.read("test-0", segment, readBuffer, 1005L));
+            readBuffer.flip();
+            Assert.assertArrayEquals(buildData(5, 20), toBytes(readBuffer));
+            // the same range is read from the cache
+            readBuffer.clear();
+            Assert.assertTrue(blockCache.read("test-0", segment, readBuffer, 1005L));
+            readBuffer.flip();
+            Assert.assertArrayEquals(buildData(5, 20), toBytes(readBuffer));
+            // the partial block is reloaded after appended
+            segment.append(ByteBuffer.wrap(buildData(40, 40)), appendTime, appendTime);
+            readBuffer.clear();
+            Assert.assertFalse(blockCache.read("test-0", segment, readBuffer, 1035L));
+            readBuffer.flip();
+            Assert.assertArrayEquals(buildData(35, 20), toBytes(readBuffer));
+            // the next blocks have been read ahead
+            readBuffer.clear();
+            Assert.assertTrue(blockCache.read("test-0", segment, readBuffer, 1055L));
+            readBuffer.flip();
+            Assert.assertArrayEquals(buildData(55, 20), toBytes(readBuffer));
+            // the read stops at the end of the segment
+            readBuffer.clear();
+            blockCache.read("test-0", segment, readBuffer, 1070L);
+            readBuffer.flip();
+            Assert.assertArrayEquals(buildData(70, 10), toBytes(readBuffer));
+        } finally {
+            segment.close();
+            file.delete();
+        }
+    }
+
+    @Test
+    public void releaseSegmentBlocks() throws Exception {
+        File file = File.createTempFile("testdata", null);
+        FileSegment segment = new FileSegment(1000L, file, SegmentType.DATA);
+        try {
+            MsgBlockCache blockCache = new MsgBlockCache(16 * 64, 16, 2);
+            long appendTime = System.currentTimeMillis();
+            segment.append(ByteBuffer.wrap(buildData(0, 64)), appendTime, appendTime);
+            ByteBuffer readBuffer = ByteBuffer.allocate(16);
+            Assert.assertFalse(blockCache.read("test-0", segment, readBuffer, 1000L));
+            readBuffer.clear();
+            Assert.assertTrue(blockCache.read("test-0", segment, readBuffer, 1000L));
+            // the blocks of other stores are kept
+            blockCache.release("test-1", segment);
+            readBuffer.clear();
+            Assert.assertTrue(blockCache.read("test-0", segment, readBuffer, 1000L));
+            // the released blocks are loaded again
+            blockCache.release("test-0", segment);
+            readBuffer.clear();
+            Assert.assertFalse(blockCache.read("test-0", segment, readBuffer, 1000L));
+            readBuffer.flip();
+            Assert.assertArrayEquals(buildData(0, 16), toBytes(readBuffer));
+        } finally {
+            segment.close();
+            file.delete();
+        }
+    }
+
+    private byte[] buildData(int from, int len) {
+        byte[] data = new byte[len];
+        for (int i = 0; i < len; i++) {
+            data[i] = (byte) (from + i);
+        }
+        return data;
+    }
+
+    private byte[] toBytes(ByteBuffer buffer) {
+        byte[] data = new byte[buffer.remaining()];
+        buffer.get(data);
+        return data;
+    }
+}
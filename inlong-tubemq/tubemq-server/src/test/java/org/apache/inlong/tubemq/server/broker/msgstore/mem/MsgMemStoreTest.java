@@ -18,9 +18,12 @@
 package org.apache.inlong.tubemq.server.broker.msgstore.mem;
 
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
 import org.apache.inlong.tubemq.server.broker.stats.MsgStoreStatsHolder;
 import org.apache.inlong.tubemq.server.broker.utils.DataStoreUtils;
 import org.apache.inlong.tubemq.server.common.utils.AppendResult;
+import org.junit.Assert;
 import org.junit.Test;
 
 /**
@@ -103,4 +106,69 @@ public class MsgMemStoreTest {
         // get messages
         GetCacheMsgResult getCacheMsgResult = msgMemStore.getMessages(0, 2, 1024, 1000, 0, false, false, null, 0);
     }
+
+    @Test
+    public void groupCommitAppendMsg() throws Exception {
+        final byte[] testData = "abcabdcdsdsdasdfasdfasdfsadfasdfasdfasdfasdfaaaaaaaaaaa".getBytes();
+        final int dataEntryLen = DataStoreUtils.STORE_DATA_HEADER_LEN + testData.length;
+        final int threadCnt = 4;
+        final int msgCntPerThread = 500;
+        final MsgMemStore msgMemStore =
+                new MsgMemStore(2 * 1024 * 1024, 10000, 0, 0, true);
+        final MsgStoreStatsHolder memStatsHolder = new MsgStoreStatsHolder();
+        List<Thread> writers = new ArrayList<>();
+        for (int i = 0; i < threadCnt; i++) {
+            Thread writer = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int j = 0; j < msgCntPerThread; j++) {
+                        final ByteBuffer dataBuffer = ByteBuffer.allocate(dataEntryLen);
+                        dataBuffer.putInt(DataStoreUtils.STORE_DATA_PREFX_LEN + testData.length);
+                        dataBuffer.putInt(DataStoreUtils.STORE_DATA_TOKER_BEGIN_VALUE);
+                        dataBuffer.putInt(33);
+                        dataBuffer.putInt(0);
+                        dataBuffer.putLong(-1L);
+                        dataBuffer.putLong(2222L);
+                        dataBuffer.putInt(255555);
+                        dataBuffer.putInt(11);
+                        dataBuffer.putLong(222L);
+                        dataBuffer.putInt(1);
+                        dataBuffer.put(testData);
+                        dataBuffer.flip();
+                        ByteBuffer indexBuffer =
+                                ByteBuffer.allocate(DataStoreUtils.STORE_INDEX_HEAD_LEN);
+                        indexBuffer.putInt(0);
+                        indexBuffer.putLong(-1L);
+                        indexBuffer.putInt(dataEntryLen);
+                        indexBuffer.putInt(32);
+                        indexBuffer.putLong(System.currentTimeMillis());
+                        indexBuffer.flip();
+                        Assert.assertTrue(msgMemStore.appendMsg(memStatsHolder, 0, 32,
+                                System.currentTimeMillis(), indexBuffer, dataEntryLen,
+                                dataBuffer, new AppendResult()));
+                    }
+                }
+            });
+            writers.add(writer);
+            writer.start();
+        }
+        for (Thread writer : writers) {
+            writer.join();
+        }
+        final int totalCnt = threadCnt * msgCntPerThread;
+        Assert.assertEquals(totalCnt, msgMemStore.getCurMsgCount());
+        Assert.assertEquals(totalCnt * dataEntryLen, msgMemStore.getCurDataCacheSize());
+        Assert.assertEquals(totalCnt * DataStoreUtils.STORE_INDEX_HEAD_LEN,
+                msgMemStore.getIndexCacheSize());
+        // all the published entries can be read
+        GetCacheMsgResult getCacheMsgResult = msgMemStore.getMessages(0, 0,
+                Integer.MAX_VALUE, totalCnt, 0, false, false, null, 0);
+        Assert.assertTrue(getCacheMsgResult.isSuccess);
+        Assert.assertEquals(totalCnt, getCacheMsgResult.cacheMsgList.size());
+        for (ByteBuffer dataBuffer : getCacheMsgResult.cacheMsgList) {
+            Assert.assertEquals(DataStoreUtils.STORE_DATA_TOKER_BEGIN_VALUE,
+                    dataBuffer.getInt(DataStoreUtils.STORE_HEADER_POS_DATATYPE));
+        }
+        msgMemStore.close();
+    }
 }
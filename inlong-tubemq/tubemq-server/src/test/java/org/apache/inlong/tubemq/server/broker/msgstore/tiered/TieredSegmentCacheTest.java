@@ -0,0 +1,265 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.broker.msgstore.tiered;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import org.apache.inlong.tubemq.server.broker.msgstore.disk.FileSegment;
+import org.apache.inlong.tubemq.server.broker.msgstore.disk.Segment;
+import org.apache.inlong.tubemq.server.broker.msgstore.disk.SegmentType;
+import org.apache.inlong.tubemq.server.broker.utils.DataStoreUtils;
+import org.apache.inlong.tubemq.server.common.utils.FileUtil;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * TieredSegmentCache test.
+ */
+public class TieredSegmentCacheTest {
+
+    @Test
+    public void offloadAndFetchSegment() throws Exception {
+        final String storeKey = "test-0";
+        File baseDir = Files.createTempDirectory("tiered").toFile();
+        File localDir = new File(baseDir, "local");
+        FileUtil.checkDir(localDir);
+        TieredSegmentCache segmentCache = null;
+        try {
+            TieredStorage tieredStorage =
+                    new LocalDirTieredStorage(new File(baseDir, "remote").getAbsolutePath());
+            segmentCache = new TieredSegmentCache(tieredStorage,
+                    storeKey, new File(baseDir, "cache"), 2);
+            // write 3 data segments with 100 bytes each
+            for (int i = 0; i < 3; i++) {
+                long start = i * 100L;
+                File file = new File(localDir,
+                        DataStoreUtils.nameFromOffset(start, DataStoreUtils.DATA_FILE_SUFFIX));
+                byte[] data = new byte[100];
+                for (int j = 0; j < data.length; j++) {
+                    data[j] = (byte) i;
+                }
+                FileSegment segment = new FileSegment(start, file, SegmentType.DATA);
+                long appendTime = System.currentTimeMillis();
+                segment.append(ByteBuffer.wrap(data), appendTime, appendTime);
+                segment.flush(true);
+                segmentCache.offloadSegment(SegmentType.DATA, segment);
+                segment.deleteFile();
+            }
+            Assert.assertTrue(segmentCache.isOffloaded(SegmentType.DATA, 100L));
+            Assert.assertEquals(0L, segmentCache.getMinOffset(SegmentType.DATA));
+            Assert.assertEquals(-1L, segmentCache.getMinOffset(SegmentType.INDEX));
+            Assert.assertTrue(segmentCache.contains(SegmentType.DATA, 299L));
+            Assert.assertFalse(segmentCache.contains(SegmentType.DATA, 300L));
+            TreeMap<Long, Long> segments =
+                    tieredStorage.listSegments(storeKey, SegmentType.DATA);
+            Assert.assertEquals(3, segments.size());
+            Assert.assertEquals(100L, segments.get(200L).longValue());
+            // fetch the removed segments from the tiered storage
+            for (int i = 2; i >= 0; i--) {
+                Segment segment = segmentCache.getSegment(SegmentType.DATA, i * 100L + 50);
+                Assert.assertNotNull(segment);
+                Assert.assertEquals(i * 100L, segment.getStart());
+                ByteBuffer readBuffer = ByteBuffer.allocate(10);
+                segment.read(readBuffer, i * 100L + 50);
+                readBuffer.flip();
+                Assert.assertEquals(10, readBuffer.remaining());
+                Assert.assertEquals((byte) i, readBuffer.get());
+                segment.relViewRef();
+            }
+            Assert.assertEquals(2, segmentCache.getCachedSegmentCount());
+            Assert.assertNull(segmentCache.getSegment(SegmentType.DATA, 300L));
+            // reload the uploaded segments
+            segmentCache.close();
+            segmentCache = new TieredSegmentCache(tieredStorage,
+                    storeKey, new File(baseDir, "cache"), 2);
+            Assert.assertTrue(segmentCache.contains(SegmentType.DATA, 0L));
+            Assert.assertEquals(0, segmentCache.getCachedSegmentCount());
+        } finally {
+            if (segmentCache != null) {
+                segmentCache.close();
+            }
+            FileUtil.fullyDelete(baseDir);
+        }
+    }
+
+    @Test
+    public void evictSegmentInUse() throws Exception {
+        final String storeKey = "test-0";
+        File baseDir = Files.createTempDirectory("tiered").toFile();
+        TieredSegmentCache segmentCache = null;
+        try {
+            TieredStorage tieredStorage =
+                    new LocalDirTieredStorage(new File(baseDir, "remote").getAbsolutePath());
+            segmentCache = new TieredSegmentCache(tieredStorage,
+                    storeKey, new File(baseDir, "cache"), 2);
+            offloadSegments(segmentCache, new File(baseDir, "local"), 3);
+            // the reader holds the first segment while it is evicted
+            final Segment holding = segmentCache.getSegment(SegmentType.DATA, 0L);
+            segmentCache.getSegment(SegmentType.DATA, 100L).relViewRef();
+            segmentCache.getSegment(SegmentType.DATA, 200L).relViewRef();
+            Assert.assertEquals(2, segmentCache.getCachedSegmentCount());
+            Assert.assertTrue(holding.getFile().exists());
+            ByteBuffer readBuffer = ByteBuffer.allocate(10);
+            holding.read(readBuffer, 0L);
+            Assert.assertEquals(10, readBuffer.position());
+            Assert.assertEquals((byte) 0, readBuffer.get(0));
+            holding.relViewRef();
+            Assert.assertFalse(holding.getFile().exists());
+            // fetched again after evicted
+            Segment segment = segmentCache.getSegment(SegmentType.DATA, 10L);
+            Assert.assertNotSame(holding, segment);
+            segment.relViewRef();
+        } finally {
+            if (segmentCache != null) {
+                segmentCache.close();
+            }
+            FileUtil.fullyDelete(baseDir);
+        }
+    }
+
+    @Test
+    public void fetchOnceByConcurrentReaders() throws Exception {
+        final String storeKey = "test-0";
+        File baseDir = Files.createTempDirectory("tiered").toFile();
+        TieredSegmentCache segmentCache = null;
+        try {
+            final AtomicInteger fetchCnt = new AtomicInteger(0);
+            final CountDownLatch fetchStarted = new CountDownLatch(1);
+            final CountDownLatch fetchLatch = new CountDownLatch(1);
+            TieredStorage tieredStorage =
+                    new LocalDirTieredStorage(new File(baseDir, "remote").getAbsolutePath()) {
+                        @Override
+                        public void fetchSegment(String storeKey, SegmentType segType,
+                                                 long start, File target) throws java.io.IOException {
+                            fetchCnt.incrementAndGet();
+                            fetchStarted.countDown();
+                            try {
+                                fetchLatch.await();
+                            } catch (InterruptedException e) {
+                                throw new java.io.IOException(e);
+                            }
+                            super.fetchSegment(storeKey, segType, start, target);
+                        }
+                    };
+            segmentCache = new TieredSegmentCache(tieredStorage,
+                    storeKey, new File(baseDir, "cache"), 2);
+            offloadSegments(segmentCache, new File(baseDir, "local"), 1);
+            final TieredSegmentCache cache = segmentCache;
+            final List<Segment> results = new ArrayList<>();
+            final AtomicReference<Throwable> failure = new AtomicReference<>();
+            final CountDownLatch readersStarted = new CountDownLatch(4);
+            List<Thread> readers = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                Thread reader = new Thread(() -> {
+                    readersStarted.countDown();
+                    try {
+                        Segment segment = cache.getSegment(SegmentType.DATA, 50L);
+                        synchronized (results) {
+                            results.add(segment);
+                        }
+                    } catch (Throwable e) {
+                        failure.compareAndSet(null, e);
+                    }
+                });
+                reader.start();
+                readers.add(reader);
+            }
+            // the readers arriving after the fetch completes share the cached segment too
+            Assert.assertTrue(readersStarted.await(5, TimeUnit.SECONDS));
+            Assert.assertTrue(fetchStarted.await(5, TimeUnit.SECONDS));
+            fetchLatch.countDown();
+            for (Thread reader : readers) {
+                reader.join();
+            }
+            Assert.assertNull(failure.get());
+            Assert.assertEquals(1, fetchCnt.get());
+            Assert.assertEquals(4, results.size());
+            for (Segment segment : results) {
+                Assert.assertSame(results.get(0), segment);
+                segment.relViewRef();
+            }
+        } finally {
+            if (segmentCache != null) {
+                segmentCache.close();
+            }
+            FileUtil.fullyDelete(baseDir);
+        }
+    }
+
+    @Test
+    public void expireUploadedSegments() throws Exception {
+        final String storeKey = "test-0";
+        File baseDir = Files.createTempDirectory("tiered").toFile();
+        TieredSegmentCache segmentCache = null;
+        try {
+            TieredStorage tieredStorage =
+                    new LocalDirTieredStorage(new File(baseDir, "remote").getAbsolutePath());
+            segmentCache = new TieredSegmentCache(tieredStorage,
+                    storeKey, new File(baseDir, "cache"), 2);
+            offloadSegments(segmentCache, new File(baseDir, "local"), 2);
+            long expireBefore = System.currentTimeMillis() - 60000L;
+            Assert.assertFalse(segmentCache.hasExpiredSegments(expireBefore));
+            Assert.assertEquals(0,
+                    segmentCache.expireSegments(expireBefore, new StringBuilder(512)));
+            // reload, the upload time is read from the tiered storage
+            segmentCache.close();
+            segmentCache = new TieredSegmentCache(tieredStorage,
+                    storeKey, new File(baseDir, "cache"), 2);
+            expireBefore = System.currentTimeMillis() + 60000L;
+            Assert.assertTrue(segmentCache.hasExpiredSegments(expireBefore));
+            Assert.assertEquals(2,
+                    segmentCache.expireSegments(expireBefore, new StringBuilder(512)));
+            Assert.assertFalse(segmentCache.contains(SegmentType.DATA, 0L));
+            Assert.assertNull(segmentCache.getSegment(SegmentType.DATA, 0L));
+            Assert.assertTrue(tieredStorage.listSegments(storeKey, SegmentType.DATA).isEmpty());
+        } finally {
+            if (segmentCache != null) {
+                segmentCache.close();
+            }
+            FileUtil.fullyDelete(baseDir);
+        }
+    }
+
+    private void offloadSegments(TieredSegmentCache segmentCache,
+                                 File localDir, int segCnt) throws Exception {
+        FileUtil.checkDir(localDir);
+        for (int i = 0; i < segCnt; i++) {
+            long start = i * 100L;
+            File file = new File(localDir,
+                    DataStoreUtils.nameFromOffset(start, DataStoreUtils.DATA_FILE_SUFFIX));
+            byte[] data = new byte[100];
+            for (int j = 0; j < data.length; j++) {
+                data[j] = (byte) i;
+            }
+            FileSegment segment = new FileSegment(start, file, SegmentType.DATA);
+            long appendTime = System.currentTimeMillis();
+            segment.append(ByteBuffer.wrap(data), appendTime, appendTime);
+            segment.flush(true);
+            segmentCache.offloadSegment(SegmentType.DATA, segment);
+            segment.deleteFile();
+        }
+    }
+}
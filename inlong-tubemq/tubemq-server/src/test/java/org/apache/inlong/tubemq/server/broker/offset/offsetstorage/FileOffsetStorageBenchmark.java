@@ -0,0 +1,102 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.broker.offset.offsetstorage;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.inlong.tubemq.server.common.utils.FileUtil;
+
+/**
+ * Benchmark of FileOffsetStorage, measures the commit throughput of the periodic
+ * batch commits and the recovery time of reloading the offset log at startup.
+ */
+public class FileOffsetStorageBenchmark {
+
+    private final int groupCnt;
+    private final int partitionCnt;
+    private final int commitRounds;
+
+    /**
+     * Initial a benchmark
+     *
+     * @param groupCnt       the consume group count
+     * @param partitionCnt   the partition count consumed by each group
+     * @param commitRounds   the commit rounds, each round commits all offsets
+     */
+    public FileOffsetStorageBenchmark(int groupCnt, int partitionCnt, int commitRounds) {
+        this.groupCnt = groupCnt;
+        this.partitionCnt = partitionCnt;
+        this.commitRounds = commitRounds;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int[][] scales = {{100, 100}, {1000, 50}, {5000, 20}};
+        for (int[] scale : scales) {
+            new FileOffsetStorageBenchmark(scale[0], scale[1], 20).run();
+        }
+    }
+
+    /**
+     * Run the benchmark and print the result
+     *
+     * @throws Exception    the exception while running
+     */
+    public void run() throws Exception {
+        File storeDir = Files.createTempDirectory("benchoffset").toFile();
+        try {
+            List<List<OffsetStorageInfo>> groupOffsets = new ArrayList<>(groupCnt);
+            for (int i = 0; i < groupCnt; i++) {
+                List<OffsetStorageInfo> offsetInfoList = new ArrayList<>(partitionCnt);
+                for (int j = 0; j < partitionCnt; j++) {
+                    offsetInfoList.add(new OffsetStorageInfo("topic" + (j % 10), 1, j, 0L, 0L));
+                }
+                groupOffsets.add(offsetInfoList);
+            }
+            FileOffsetStorage offsetStorage =
+                    new FileOffsetStorage(storeDir.getAbsolutePath(), 1, 64 * 1024 * 1024L);
+            long startTime = System.nanoTime();
+            for (int round = 1; round <= commitRounds; round++) {
+                for (int i = 0; i < groupCnt; i++) {
+                    for (OffsetStorageInfo offsetInfo : groupOffsets.get(i)) {
+                        offsetInfo.addAndGetOffset(28L);
+                    }
+                    offsetStorage.commitOffset("group" + i, groupOffsets.get(i), false);
+                }
+            }
+            final long commitCost = Math.max(1L, (System.nanoTime() - startTime) / 1000000L);
+            offsetStorage.close();
+            final long logSize = new File(storeDir, FileOffsetStorage.OFFSET_LOG_FILE_NAME).length();
+            startTime = System.nanoTime();
+            offsetStorage = new FileOffsetStorage(storeDir.getAbsolutePath(), 1, 64 * 1024 * 1024L);
+            long recoverCost = (System.nanoTime() - startTime) / 1000000L;
+            offsetStorage.close();
+            long totalCnt = (long) groupCnt * partitionCnt * commitRounds;
+            System.out.println(new StringBuilder(256)
+                    .append("groups=").append(groupCnt)
+                    .append(", partitions=").append(partitionCnt)
+                    .append(": commit ").append(totalCnt * 1000L / commitCost)
+                    .append(" offsets/s, ").append(groupCnt * commitRounds * 1000L / commitCost)
+                    .append(" batches/s, log size ").append(logSize)
+                    .append(" bytes, recovery ").append(recoverCost).append(" ms").toString());
+        } finally {
+            FileUtil.fullyDelete(storeDir);
+        }
+    }
+}
@@ -0,0 +1,171 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.broker.offset.offsetstorage;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.apache.inlong.tubemq.server.common.utils.FileUtil;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * FileOffsetStorage test.
+ */
+public class FileOffsetStorageTest {
+
+    private File storeDir;
+
+    @Before
+    public void setUp() throws IOException {
+        storeDir = Files.createTempDirectory("testoffset").toFile();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        FileUtil.fullyDelete(storeDir);
+    }
+
+    @Test
+    public void commitAndReload() throws IOException {
+        FileOffsetStorage offsetStorage =
+                new FileOffsetStorage(storeDir.getAbsolutePath(), 1, 64 * 1024 * 1024L);
+        List<OffsetStorageInfo> offsetInfoList = new ArrayList<>();
+        offsetInfoList.add(new OffsetStorageInfo("topicA", 1, 0, 280L, 10L));
+        offsetInfoList.add(new OffsetStorageInfo("topicA", 1, 1, 560L, 20L));
+        offsetStorage.commitOffset("group1", offsetInfoList, false);
+        // the not modified offset is not committed again
+        offsetInfoList.get(0).getAndSetOffset(840L);
+        offsetStorage.commitOffset("group1", offsetInfoList, false);
+        Assert.assertFalse(offsetInfoList.get(0).isModified());
+        offsetStorage.close();
+        // reload from the offset log
+        offsetStorage = new FileOffsetStorage(storeDir.getAbsolutePath(), 1, 64 * 1024 * 1024L);
+        OffsetStorageInfo offsetInfo = offsetStorage.loadOffset("group1", "topicA", 0);
+        Assert.assertNotNull(offsetInfo);
+        Assert.assertEquals(840L, offsetInfo.getOffset());
+        Assert.assertEquals(10L, offsetInfo.getMessageId());
+        Assert.assertNull(offsetStorage.loadOffset("group1", "topicA", 2));
+        Assert.assertEquals(Collections.singleton("topicA"),
+                offsetStorage.queryZkAllGroupTopicInfos().get("group1"));
+        Set<Integer> partIds = new HashSet<>();
+        partIds.add(1);
+        partIds.add(2);
+        Map<Integer, Long> offsetMap =
+                offsetStorage.queryGroupOffsetInfo("group1", "topicA", partIds);
+        Assert.assertEquals(Long.valueOf(560L), offsetMap.get(1));
+        Assert.assertNull(offsetMap.get(2));
+        // delete the offset and reload
+        Map<String, Set<Integer>> topicPartMap = new HashMap<>();
+        topicPartMap.put("topicA", Collections.singleton(0));
+        Map<String, Map<String, Set<Integer>>> groupTopicPartMap = new HashMap<>();
+        groupTopicPartMap.put("group1", topicPartMap);
+        offsetStorage.deleteGroupOffsetInfo(groupTopicPartMap);
+        Assert.assertNull(offsetStorage.loadOffset("group1", "topicA", 0));
+        offsetStorage.close();
+        offsetStorage = new FileOffsetStorage(storeDir.getAbsolutePath(), 1, 64 * 1024 * 1024L);
+        Assert.assertNull(offsetStorage.loadOffset("group1", "topicA", 0));
+        Assert.assertEquals(560L, offsetStorage.loadOffset("group1", "topicA", 1).getOffset());
+        offsetStorage.close();
+    }
+
+    @Test
+    public void commitGroupsInOneBatch() throws IOException {
+        Map<String, Collection<OffsetStorageInfo>> groupOffsetMap = new HashMap<>();
+        groupOffsetMap.put("group1", Collections.singletonList(
+                new OffsetStorageInfo("topicA", 1, 0, 280L, 10L)));
+        groupOffsetMap.put("group2", Collections.singletonList(
+                new OffsetStorageInfo("topicB", 1, 3, 560L, 20L)));
+        groupOffsetMap.put("group3", Collections.<OffsetStorageInfo>emptyList());
+        FileOffsetStorage offsetStorage =
+                new FileOffsetStorage(storeDir.getAbsolutePath(), 1, 64 * 1024 * 1024L);
+        File logFile = new File(storeDir, FileOffsetStorage.OFFSET_LOG_FILE_NAME);
+        offsetStorage.commitOffsets(groupOffsetMap, false);
+        long logSize = logFile.length();
+        Assert.assertTrue(logSize > 0);
+        // nothing is modified, nothing is appended
+        offsetStorage.commitOffsets(groupOffsetMap, false);
+        Assert.assertEquals(logSize, logFile.length());
+        offsetStorage.close();
+        offsetStorage = new FileOffsetStorage(storeDir.getAbsolutePath(), 1, 64 * 1024 * 1024L);
+        Assert.assertEquals(280L, offsetStorage.loadOffset("group1", "topicA", 0).getOffset());
+        Assert.assertEquals(560L, offsetStorage.loadOffset("group2", "topicB", 3).getOffset());
+        Assert.assertEquals(2, offsetStorage.queryZkAllGroupTopicInfos().size());
+        offsetStorage.close();
+    }
+
+    @Test
+    public void truncateBrokenTail() throws IOException {
+        FileOffsetStorage offsetStorage =
+                new FileOffsetStorage(storeDir.getAbsolutePath(), 1, 64 * 1024 * 1024L);
+        offsetStorage.commitOffset("group1", Collections.singletonList(
+                new OffsetStorageInfo("topicA", 1, 0, 280L, 10L)), false);
+        offsetStorage.commitOffset("group1", Collections.singletonList(
+                new OffsetStorageInfo("topicA", 1, 0, 560L, 20L)), false);
+        offsetStorage.close();
+        // cut the last record in the middle
+        File logFile = new File(storeDir, FileOffsetStorage.OFFSET_LOG_FILE_NAME);
+        try (RandomAccessFile raf = new RandomAccessFile(logFile, "rw")) {
+            raf.setLength(raf.length() - 5);
+        }
+        offsetStorage = new FileOffsetStorage(storeDir.getAbsolutePath(), 1, 64 * 1024 * 1024L);
+        Assert.assertEquals(280L, offsetStorage.loadOffset("group1", "topicA", 0).getOffset());
+        // the new records are appended after the valid records
+        offsetStorage.commitOffset("group1", Collections.singletonList(
+                new OffsetStorageInfo("topicA", 1, 0, 840L, 30L)), false);
+        offsetStorage.close();
+        offsetStorage = new FileOffsetStorage(storeDir.getAbsolutePath(), 1, 64 * 1024 * 1024L);
+        Assert.assertEquals(840L, offsetStorage.loadOffset("group1", "topicA", 0).getOffset());
+        offsetStorage.close();
+    }
+
+    @Test
+    public void compactLog() throws IOException {
+        FileOffsetStorage offsetStorage =
+                new FileOffsetStorage(storeDir.getAbsolutePath(), 1, 4096L);
+        File logFile = new File(storeDir, FileOffsetStorage.OFFSET_LOG_FILE_NAME);
+        for (int i = 1; i <= 1000; i++) {
+            List<OffsetStorageInfo> offsetInfoList = new ArrayList<>();
+            for (int partId = 0; partId < 4; partId++) {
+                offsetInfoList.add(new OffsetStorageInfo("topicA", 1, partId, i * 28L, i));
+            }
+            offsetStorage.commitOffset("group1", offsetInfoList, false);
+        }
+        // the overwritten records are removed by the compaction
+        Assert.assertTrue(logFile.length() < 8192L);
+        offsetStorage.close();
+        offsetStorage = new FileOffsetStorage(storeDir.getAbsolutePath(), 1, 4096L);
+        for (int partId = 0; partId < 4; partId++) {
+            OffsetStorageInfo offsetInfo = offsetStorage.loadOffset("group1", "topicA", partId);
+            Assert.assertEquals(28000L, offsetInfo.getOffset());
+            Assert.assertEquals(1000L, offsetInfo.getMessageId());
+        }
+        offsetStorage.close();
+    }
+}
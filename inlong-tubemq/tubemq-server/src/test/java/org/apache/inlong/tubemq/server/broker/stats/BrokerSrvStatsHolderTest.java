@@ -49,12 +49,22 @@ public class BrokerSrvStatsHolderTest {
         BrokerSrvStatsHolder.updZKSyncDataDlt(50);
         // add zk exception, add 1
         BrokerSrvStatsHolder.incZKExcCnt();
+        // add offset log dlt time, add 2
+        BrokerSrvStatsHolder.updOffsetLogSyncDlt(3);
+        BrokerSrvStatsHolder.updOffsetLogSyncDlt(20);
+        // add offset log exception, add 1
+        BrokerSrvStatsHolder.incOffsetLogExcCnt();
         // add disk dlt time, add 2
         BrokerSrvStatsHolder.updDiskSyncDataDlt(100);
         BrokerSrvStatsHolder.updDiskSyncDataDlt(10);
         // add IO exception, add 2
         BrokerSrvStatsHolder.incDiskIOExcCnt();
         BrokerSrvStatsHolder.incDiskIOExcCnt();
+        // add group flow control fetches, 4 fetches with 1 throttled
+        BrokerSrvStatsHolder.updGroupFlowCtrlStats(false, 0);
+        BrokerSrvStatsHolder.updGroupFlowCtrlStats(false, 0);
+        BrokerSrvStatsHolder.updGroupFlowCtrlStats(false, 0);
+        BrokerSrvStatsHolder.updGroupFlowCtrlStats(true, 1024);
         // check result
         Map<String, Long> retMap = new LinkedHashMap<>();
         BrokerSrvStatsHolder.getValue(retMap);
@@ -69,12 +79,20 @@ public class BrokerSrvStatsHolderTest {
         Assert.assertEquals(1, retMap.get("zk_sync_dlt_cell_16t32").longValue());
         Assert.assertEquals(1, retMap.get("zk_sync_dlt_cell_32t64").longValue());
         Assert.assertEquals(1, retMap.get("zk_exc_cnt").longValue());
+        Assert.assertEquals(2, retMap.get("offset_log_sync_dlt_count").longValue());
+        Assert.assertEquals(3, retMap.get("offset_log_sync_dlt_min").longValue());
+        Assert.assertEquals(20, retMap.get("offset_log_sync_dlt_max").longValue());
+        Assert.assertEquals(1, retMap.get("offset_log_exc_cnt").longValue());
         Assert.assertEquals(2, retMap.get("file_exc_cnt").longValue());
         Assert.assertEquals(2, retMap.get("file_sync_dlt_count").longValue());
         Assert.assertEquals(100, retMap.get("file_sync_dlt_max").longValue());
         Assert.assertEquals(10, retMap.get("file_sync_dlt_min").longValue());
         Assert.assertEquals(1, retMap.get("file_sync_dlt_cell_8t16").longValue());
         Assert.assertEquals(1, retMap.get("file_sync_dlt_cell_64t128").longValue());
+        Assert.assertEquals(4, retMap.get("group_fc_fetch_cnt").longValue());
+        Assert.assertEquals(1, retMap.get("group_fc_throttled_cnt").longValue());
+        Assert.assertEquals(1024, retMap.get("group_fc_throttled_bytes").longValue());
+        Assert.assertEquals(250, retMap.get("group_fc_throttle_ratio").longValue());
         final long sinceTime1 = retMap.get("reset_time");
         // verify snapshot
         BrokerSrvStatsHolder.snapShort(retMap);
@@ -97,6 +115,8 @@ public class BrokerSrvStatsHolderTest {
         Assert.assertEquals(999, retMap.get("file_sync_dlt_max").longValue());
         Assert.assertEquals(999, retMap.get("file_sync_dlt_min").longValue());
         Assert.assertEquals(1, retMap.get("file_sync_dlt_cell_512t1024").longValue());
+        Assert.assertEquals(0, retMap.get("group_fc_fetch_cnt").longValue());
+        Assert.assertEquals(0, retMap.get("group_fc_throttle_ratio").longValue());
         // get content by StringBuilder
         StringBuilder strBuff = new StringBuilder(TBaseConstants.BUILDER_DEFAULT_SIZE);
         BrokerSrvStatsHolder.getValue(strBuff);
@@ -0,0 +1,166 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.common;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.inlong.tubemq.server.common.heartbeat.HeartbeatManager;
+import org.apache.inlong.tubemq.server.common.heartbeat.TimeoutInfo;
+import org.apache.inlong.tubemq.server.common.heartbeat.TimeoutListener;
+
+/**
+ * Load test of HeartbeatManager, simulates a large fleet of producers and consumers
+ * heartbeating against the master in process, a part of the clients stop heartbeating
+ * and are expected to be expired. Measures the heartbeat throughput, the expiry delay
+ * and the GC activity during the run.
+ */
+public class HeartbeatManagerBenchmark {
+
+    private final int clientCnt;
+    private final int threadCnt;
+    private final long timeoutMs;
+    private final long durationMs;
+    private final int deadRatio;
+
+    /**
+     * Initial a benchmark
+     *
+     * @param clientCnt    the producer count and the consumer count
+     * @param threadCnt    the heartbeat thread count
+     * @param timeoutMs    the heartbeat timeout
+     * @param durationMs   the run duration
+     * @param deadRatio    one of every deadRatio clients stops heartbeating
+     */
+    public HeartbeatManagerBenchmark(int clientCnt, int threadCnt,
+                                     long timeoutMs, long durationMs, int deadRatio) {
+        this.clientCnt = clientCnt;
+        this.threadCnt = threadCnt;
+        this.timeoutMs = timeoutMs;
+        this.durationMs = durationMs;
+        this.deadRatio = deadRatio;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int[] scales = {10000, 100000, 200000};
+        for (int clientCnt : scales) {
+            new HeartbeatManagerBenchmark(clientCnt, 8, 3000L, 10000L, 10).run();
+        }
+    }
+
+    /**
+     * Run the benchmark and print the result
+     *
+     * @throws Exception    the exception while running
+     */
+    public void run() throws Exception {
+        final HeartbeatManager heartbeatManager = new HeartbeatManager();
+        final AtomicLong expiredCnt = new AtomicLong(0);
+        final AtomicLong maxExpireDelay = new AtomicLong(0);
+        final AtomicLong totalExpireDelay = new AtomicLong(0);
+        TimeoutListener listener = new TimeoutListener() {
+            @Override
+            public void onTimeout(String nodeId, TimeoutInfo timeoutInfo) {
+                long delay = System.currentTimeMillis() - timeoutInfo.getTimeoutTime();
+                expiredCnt.incrementAndGet();
+                totalExpireDelay.addAndGet(delay);
+                maxExpireDelay.accumulateAndGet(delay, Math::max);
+            }
+        };
+        heartbeatManager.regProducerCheckBusiness(timeoutMs, listener);
+        heartbeatManager.regConsumerCheckBusiness(timeoutMs, listener);
+        final String[] producerIds = new String[clientCnt];
+        final String[] consumerIds = new String[clientCnt];
+        for (int i = 0; i < clientCnt; i++) {
+            producerIds[i] = "producer_" + i;
+            consumerIds[i] = "group_" + (i % 1000) + "@consumer_" + i;
+            heartbeatManager.regProducerNode(producerIds[i]);
+            heartbeatManager.regConsumerNode(consumerIds[i]);
+        }
+        final long gcStartCnt = getGcCount();
+        final long gcStartTime = getGcTime();
+        final long endTime = System.currentTimeMillis() + durationMs;
+        final AtomicLong heartbeatCnt = new AtomicLong(0);
+        final CountDownLatch finished = new CountDownLatch(threadCnt);
+        for (int t = 0; t < threadCnt; t++) {
+            final int threadIndex = t;
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    long localCnt = 0;
+                    try {
+                        while (System.currentTimeMillis() < endTime) {
+                            for (int i = threadIndex; i < clientCnt; i += threadCnt) {
+                                if (i % deadRatio == 0) {
+                                    continue;
+                                }
+                                try {
+                                    heartbeatManager.updProducerNode(producerIds[i]);
+                                    heartbeatManager.updConsumerNode(consumerIds[i]);
+                                    localCnt += 2;
+                                } catch (Throwable e) {
+                                    //
+                                }
+                            }
+                            // heartbeat about 3 times per timeout period
+                            Thread.sleep(timeoutMs / 3);
+                        }
+                    } catch (InterruptedException e) {
+                        //
+                    } finally {
+                        heartbeatCnt.addAndGet(localCnt);
+                        finished.countDown();
+                    }
+                }
+            }, "heartbeat-client-" + t).start();
+        }
+        finished.await();
+        long expectExpired = 2L * ((clientCnt + deadRatio - 1) / deadRatio);
+        long remainCnt = heartbeatManager.getProducerRegMap().size()
+                + heartbeatManager.getConsumerRegMap().size();
+        heartbeatManager.stop();
+        heartbeatManager.clearAllHeartbeat();
+        System.out.println(new StringBuilder(256)
+                .append("clients=").append(clientCnt * 2)
+                .append(": heartbeat ").append(heartbeatCnt.get() * 1000L / durationMs)
+                .append(" req/s, expired ").append(expiredCnt.get()).append("/")
+                .append(expectExpired).append(", remained ").append(remainCnt)
+                .append(", expire delay avg ")
+                .append(totalExpireDelay.get() / Math.max(1L, expiredCnt.get()))
+                .append(" ms max ").append(maxExpireDelay.get())
+                .append(" ms, gc ").append(getGcCount() - gcStartCnt)
+                .append(" times ").append(getGcTime() - gcStartTime).append(" ms").toString());
+    }
+
+    private static long getGcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean gcBean : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0L, gcBean.getCollectionCount());
+        }
+        return count;
+    }
+
+    private static long getGcTime() {
+        long time = 0;
+        for (GarbageCollectorMXBean gcBean : ManagementFactory.getGarbageCollectorMXBeans()) {
+            time += Math.max(0L, gcBean.getCollectionTime());
+        }
+        return time;
+    }
+}
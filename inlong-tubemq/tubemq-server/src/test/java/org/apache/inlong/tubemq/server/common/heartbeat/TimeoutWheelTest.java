@@ -0,0 +1,75 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.common.heartbeat;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TimeoutWheelTest {
+
+    @Test
+    public void testExpireInOrder() {
+        long startTime = System.currentTimeMillis();
+        // 16 slots per level, 160 ms for level 0 and 2560 ms for level 1
+        TimeoutWheel timeoutWheel = new TimeoutWheel(10, 4, 2, startTime);
+        long[] deltas = {5, 50, 155, 400, 2000, 2600, 9000};
+        List<TimeoutInfo> nodes = new ArrayList<>();
+        for (long delta : deltas) {
+            TimeoutInfo node = new TimeoutInfo(delta);
+            nodes.add(node);
+            timeoutWheel.add(node);
+        }
+        Assert.assertEquals(deltas.length, timeoutWheel.size());
+        List<TimeoutInfo> expiredNodes = new ArrayList<>();
+        for (long time = startTime; time <= startTime + 10000; time += 7) {
+            timeoutWheel.advance(time, expiredNodes);
+            for (TimeoutInfo node : expiredNodes) {
+                // expired once the timeout time is passed, and not before
+                Assert.assertTrue(node.getTimeoutTime() <= time);
+                Assert.assertTrue(time - node.getTimeoutTime() < 20);
+                Assert.assertTrue(nodes.remove(node));
+            }
+            expiredNodes.clear();
+        }
+        Assert.assertTrue(nodes.isEmpty());
+        Assert.assertEquals(0, timeoutWheel.size());
+    }
+
+    @Test
+    public void testTouchAndRemove() {
+        long startTime = System.currentTimeMillis();
+        TimeoutWheel timeoutWheel = new TimeoutWheel(10, 4, 2, startTime);
+        TimeoutInfo touchedNode = new TimeoutInfo(100);
+        TimeoutInfo removedNode = new TimeoutInfo(100);
+        timeoutWheel.add(touchedNode);
+        timeoutWheel.add(removedNode);
+        Assert.assertTrue(timeoutWheel.remove(removedNode));
+        Assert.assertFalse(timeoutWheel.remove(removedNode));
+        touchedNode.updTimeoutTime(500);
+        List<TimeoutInfo> expiredNodes = new ArrayList<>();
+        timeoutWheel.advance(startTime + 300, expiredNodes);
+        Assert.assertTrue(expiredNodes.isEmpty());
+        Assert.assertEquals(1, timeoutWheel.size());
+        timeoutWheel.advance(touchedNode.getTimeoutTime(), expiredNodes);
+        Assert.assertEquals(1, expiredNodes.size());
+        Assert.assertSame(touchedNode, expiredNodes.get(0));
+        Assert.assertEquals(0, timeoutWheel.size());
+    }
+}
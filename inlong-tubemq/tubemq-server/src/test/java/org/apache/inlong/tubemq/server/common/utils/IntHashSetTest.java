@@ -0,0 +1,70 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.common.utils;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * IntHashSet test.
+ */
+public class IntHashSetTest {
+
+    @Test
+    public void addAndContains() {
+        IntHashSet intSet = new IntHashSet(2);
+        Assert.assertTrue(intSet.isEmpty());
+        Assert.assertTrue(intSet.add(0));
+        Assert.assertTrue(intSet.add(-5));
+        Assert.assertTrue(intSet.add(Integer.MIN_VALUE));
+        Assert.assertFalse(intSet.add(-5));
+        Assert.assertEquals(3, intSet.size());
+        Assert.assertTrue(intSet.contains(0));
+        Assert.assertTrue(intSet.contains(Integer.MIN_VALUE));
+        Assert.assertFalse(intSet.contains(5));
+        // the values are kept in insertion order
+        Assert.assertEquals(0, intSet.get(0));
+        Assert.assertEquals(-5, intSet.get(1));
+        Assert.assertEquals(Integer.MIN_VALUE, intSet.get(2));
+        Assert.assertArrayEquals(new int[]{0, -5, Integer.MIN_VALUE}, intSet.toArray());
+        intSet.clear();
+        Assert.assertTrue(intSet.isEmpty());
+        Assert.assertFalse(intSet.contains(0));
+    }
+
+    @Test
+    public void rehash() {
+        IntHashSet intSet = new IntHashSet();
+        for (int i = 0; i < 10000; i++) {
+            Assert.assertTrue(intSet.add(i * 31));
+        }
+        Assert.assertEquals(10000, intSet.size());
+        for (int i = 0; i < 10000; i++) {
+            Assert.assertTrue(intSet.contains(i * 31));
+            Assert.assertFalse(intSet.contains(i * 31 + 1));
+            Assert.assertEquals(i * 31, intSet.get(i));
+        }
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void getOutOfBounds() {
+        IntHashSet intSet = new IntHashSet();
+        intSet.add(1);
+        intSet.get(1);
+    }
+}
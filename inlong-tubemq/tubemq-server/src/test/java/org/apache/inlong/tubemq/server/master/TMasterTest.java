@@ -0,0 +1,94 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.master;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.inlong.tubemq.server.common.paramcheck.ParamCheckResult;
+import org.apache.inlong.tubemq.server.master.nodemanage.nodeconsumer.ConsumeType;
+import org.apache.inlong.tubemq.server.master.nodemanage.nodeconsumer.ConsumerInfo;
+import org.apache.inlong.tubemq.server.master.nodemanage.nodeconsumer.ConsumerInfoHolder;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TMasterTest {
+    private TMaster tMaster;
+    private ConsumerInfoHolder consumerHolder;
+
+    @Before
+    public void setUp() throws Exception {
+        // a master without the services started, only the balance states are set
+        tMaster = mock(TMaster.class);
+        when(tMaster.getMasterConfig()).thenReturn(new MasterConfig());
+        consumerHolder = new ConsumerInfoHolder(tMaster);
+        setField("consumerHolder", consumerHolder);
+        setField("curSvrBalanceParal", new AtomicInteger(0));
+        setField("curCltBalanceParal", new AtomicInteger(0));
+        for (String group : new String[]{"group001", "group002"}) {
+            ConsumerInfo consumer = new ConsumerInfo("consumer-" + group, false, group,
+                    Collections.singleton("topic001"), null, ConsumeType.CONSUME_NORMAL,
+                    "", System.currentTimeMillis(), -2, false,
+                    new HashMap<>(), "127.0.0.1");
+            consumerHolder.addConsumer(consumer, false,
+                    new StringBuilder(512), new ParamCheckResult());
+        }
+        consumerHolder.getAndResetDirtyGroups();
+    }
+
+    @Test
+    public void keepDirtyGroupsWhileBalancing() throws Exception {
+        // the server balance tasks of the last round are in progress
+        setField("curSvrBalanceParal", new AtomicInteger(1));
+        Map<String, Long> dirtyGroups = new HashMap<>();
+        dirtyGroups.put("group001", 1000L);
+        processServerBalance(false, dirtyGroups);
+        Map<String, Long> remarkedGroups = consumerHolder.getAndResetDirtyGroups();
+        Assert.assertEquals(dirtyGroups, remarkedGroups);
+    }
+
+    @Test
+    public void keepFullScanWhileBalancing() throws Exception {
+        setField("curSvrBalanceParal", new AtomicInteger(1));
+        // the full scan lands on a busy round, all groups are balanced in next round
+        processServerBalance(true, new HashMap<>());
+        Map<String, Long> remarkedGroups = consumerHolder.getAndResetDirtyGroups();
+        Assert.assertTrue(remarkedGroups.containsKey("group001"));
+        Assert.assertTrue(remarkedGroups.containsKey("group002"));
+    }
+
+    private void processServerBalance(boolean isFullBalance,
+                                      Map<String, Long> dirtyGroups) throws Exception {
+        Method method = TMaster.class.getDeclaredMethod("processServerBalance",
+                TMaster.class, long.class, boolean.class, Map.class, StringBuilder.class);
+        method.setAccessible(true);
+        method.invoke(tMaster, tMaster, 1L, isFullBalance, dirtyGroups, new StringBuilder(512));
+    }
+
+    private void setField(String fieldName, Object value) throws Exception {
+        Field field = TMaster.class.getDeclaredField(fieldName);
+        field.setAccessible(true);
+        field.set(tMaster, value);
+    }
+}
@@ -0,0 +1,125 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.master.balance;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.apache.inlong.tubemq.corebase.cluster.BrokerInfo;
+import org.apache.inlong.tubemq.corebase.cluster.Partition;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class StickyLoadBalancerTest {
+
+    private static final String TOPIC = "test_topic";
+
+    @Test
+    public void testStickyAssign() {
+        Map<String, Partition> partMap = new HashMap<>();
+        for (int brokerId = 1; brokerId <= 2; brokerId++) {
+            BrokerInfo brokerInfo = new BrokerInfo(brokerId, "127.0.0." + brokerId, 8123);
+            for (int partId = 0; partId < 3; partId++) {
+                Partition partition = new Partition(brokerInfo, TOPIC, partId);
+                partMap.put(partition.getPartitionKey(), partition);
+            }
+        }
+        // case 1, initial assignment
+        Map<String, Map<String, Map<String, Partition>>> clusterState = new HashMap<>();
+        Map<String, Map<String, List<Partition>>> finalSubInfo =
+                assign(Arrays.asList("c1", "c2"), new ArrayList<>(), partMap, clusterState);
+        Assert.assertEquals(3, getParts(finalSubInfo, "c1").size());
+        Assert.assertEquals(3, getParts(finalSubInfo, "c2").size());
+        confirm(finalSubInfo, clusterState);
+        final Set<String> c1InitParts = getParts(finalSubInfo, "c1");
+        // case 2, a consumer joins, only the partitions over quota are revoked
+        finalSubInfo = assign(Arrays.asList("c1", "c2", "c3"),
+                new ArrayList<>(), partMap, clusterState);
+        Assert.assertEquals(2, getParts(finalSubInfo, "c1").size());
+        Assert.assertEquals(2, getParts(finalSubInfo, "c2").size());
+        Assert.assertEquals(0, getParts(finalSubInfo, "c3").size());
+        Assert.assertTrue(c1InitParts.containsAll(getParts(finalSubInfo, "c1")));
+        confirm(finalSubInfo, clusterState);
+        final Set<String> c1Parts = getParts(finalSubInfo, "c1");
+        // case 3, the revoked partitions are assigned in the next balance
+        finalSubInfo = assign(Arrays.asList("c1", "c2", "c3"),
+                new ArrayList<>(), partMap, clusterState);
+        Assert.assertEquals(c1Parts, getParts(finalSubInfo, "c1"));
+        Assert.assertEquals(2, getParts(finalSubInfo, "c2").size());
+        Assert.assertEquals(2, getParts(finalSubInfo, "c3").size());
+        confirm(finalSubInfo, clusterState);
+        // case 4, a consumer leaves, only its partitions are moved
+        final Set<String> c3Parts = getParts(finalSubInfo, "c3");
+        clusterState.remove("c2");
+        finalSubInfo = assign(Arrays.asList("c1", "c3"),
+                new ArrayList<>(), partMap, clusterState);
+        Assert.assertEquals(3, getParts(finalSubInfo, "c1").size());
+        Assert.assertEquals(3, getParts(finalSubInfo, "c3").size());
+        Assert.assertTrue(getParts(finalSubInfo, "c1").containsAll(c1Parts));
+        Assert.assertTrue(getParts(finalSubInfo, "c3").containsAll(c3Parts));
+        confirm(finalSubInfo, clusterState);
+        // case 5, the consumer required to release gives up all partitions
+        finalSubInfo = assign(Arrays.asList("c3"),
+                Arrays.asList("c1"), partMap, clusterState);
+        Assert.assertTrue(finalSubInfo.get("c1").containsKey(TOPIC));
+        Assert.assertEquals(0, getParts(finalSubInfo, "c1").size());
+        Assert.assertEquals(3, getParts(finalSubInfo, "c3").size());
+    }
+
+    private Map<String, Map<String, List<Partition>>> assign(
+            List<String> consumerIds, List<String> releaseIds, Map<String, Partition> partMap,
+            Map<String, Map<String, Map<String, Partition>>> clusterState) {
+        Map<String, Map<String, List<Partition>>> finalSubInfo = new HashMap<>();
+        StickyLoadBalancer.stickyAssign(new ArrayList<>(consumerIds),
+                releaseIds, partMap, clusterState, finalSubInfo);
+        return finalSubInfo;
+    }
+
+    private void confirm(Map<String, Map<String, List<Partition>>> finalSubInfo,
+                         Map<String, Map<String, Map<String, Partition>>> clusterState) {
+        for (Map.Entry<String, Map<String, List<Partition>>> entry : finalSubInfo.entrySet()) {
+            Map<String, Map<String, Partition>> topicPartMap = new HashMap<>();
+            for (Map.Entry<String, List<Partition>> topicEntry : entry.getValue().entrySet()) {
+                Map<String, Partition> partitions = new HashMap<>();
+                for (Partition partition : topicEntry.getValue()) {
+                    partitions.put(partition.getPartitionKey(), partition);
+                }
+                topicPartMap.put(topicEntry.getKey(), partitions);
+            }
+            clusterState.put(entry.getKey(), topicPartMap);
+        }
+    }
+
+    private Set<String> getParts(Map<String, Map<String, List<Partition>>> finalSubInfo,
+                                 String consumerId) {
+        Set<String> partKeys = new HashSet<>();
+        Map<String, List<Partition>> topicPartMap = finalSubInfo.get(consumerId);
+        if (topicPartMap != null) {
+            for (List<Partition> partitions : topicPartMap.values()) {
+                for (Partition partition : partitions) {
+                    partKeys.add(partition.getPartitionKey());
+                }
+            }
+        }
+        return partKeys;
+    }
+}
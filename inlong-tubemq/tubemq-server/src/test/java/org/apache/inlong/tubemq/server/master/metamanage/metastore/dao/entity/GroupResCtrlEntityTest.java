@@ -19,9 +19,12 @@ package org.apache.inlong.tubemq.server.master.metamanage.metastore.dao.entity;
 
 import java.util.Date;
 import org.apache.inlong.tubemq.corebase.TBaseConstants;
+import org.apache.inlong.tubemq.corebase.utils.TStringUtils;
 import org.apache.inlong.tubemq.server.common.TServerConstants;
+import org.apache.inlong.tubemq.server.common.statusdef.BalanceStrategy;
 import org.apache.inlong.tubemq.server.common.statusdef.EnableStatus;
 import org.apache.inlong.tubemq.server.master.bdbstore.bdbentitys.BdbGroupFlowCtrlEntity;
+import org.apache.inlong.tubemq.server.master.metamanage.metastore.TStoreConstants;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -41,6 +44,7 @@ public class GroupResCtrlEntityTest {
         Assert.assertEquals(resEntry.getFlowCtrlStatus(), EnableStatus.STATUS_DISABLE);
         Assert.assertEquals(resEntry.getFlowCtrlInfo(), TServerConstants.BLANK_FLOWCTRL_RULES);
         Assert.assertEquals(resEntry.getRuleCnt(), 0);
+        Assert.assertEquals(resEntry.getBalanceStrategy(), BalanceStrategy.STRATEGY_DEFAULT);
         // case 2
         long dataVerId = 55;
         String groupName2 = "group_2";
@@ -65,6 +69,7 @@ public class GroupResCtrlEntityTest {
         Assert.assertEquals(bdbEntity2.getModifyUser(), createUser);
         Assert.assertEquals(bdbEntity2.getModifyDate(), createDate);
         Assert.assertEquals(bdbEntity2.getSerialId(), dataVerId);
+        Assert.assertEquals(bdbEntity2.getBalanceStrategy(), BalanceStrategy.STRATEGY_UNDEFINE);
         bdbEntity2.setResCheckStatus(EnableStatus.STATUS_ENABLE);
         // case 3
         GroupResCtrlEntity resEntry3 = new GroupResCtrlEntity(bdbEntity2);
@@ -113,6 +118,10 @@ public class GroupResCtrlEntityTest {
         Assert.assertEquals(resEntry4.getModifyUser(), resEntry3.getModifyUser());
         Assert.assertEquals(resEntry4.getModifyDate(), resEntry3.getModifyDate());
         Assert.assertNotEquals(resEntry4.getDataVerId(), resEntry3.getDataVerId());
+        Assert.assertTrue(resEntry4.updBalanceStrategy(BalanceStrategy.STRATEGY_STICKY));
+        Assert.assertFalse(resEntry4.updBalanceStrategy(BalanceStrategy.STRATEGY_UNDEFINE));
+        Assert.assertTrue(resEntry4.isStickyBalance());
+        Assert.assertFalse(resEntry3.isStickyBalance());
         // case 5
         BdbGroupFlowCtrlEntity bdbEntity5 = resEntry4.buildBdbGroupFlowCtrlEntity();
         Assert.assertEquals(bdbEntity5.getSerialId(), newDataVerId);
@@ -122,11 +131,19 @@ public class GroupResCtrlEntityTest {
         Assert.assertEquals(bdbEntity5.getStatusId(), 0);
         Assert.assertEquals(bdbEntity5.getRuleCnt(), newFlowRuleCnt);
         Assert.assertEquals(bdbEntity5.getFlowCtrlInfo(), newFlowCtrlRuleInfo);
+        Assert.assertEquals(bdbEntity5.getBalanceStrategy(), BalanceStrategy.STRATEGY_STICKY);
         Assert.assertEquals(bdbEntity5.getGroupName(), bdbEntity5.getGroupName());
         Assert.assertEquals(resEntry4.getCreateUser(), bdbEntity5.getCreateUser());
         Assert.assertEquals(resEntry4.getCreateDateStr(), bdbEntity5.getStrCreateDate());
         Assert.assertEquals(resEntry4.getModifyUser(), bdbEntity5.getModifyUser());
         Assert.assertEquals(resEntry4.getModifyDateStr(), bdbEntity5.getStrModifyDate());
+        // case 6, a broken stored balance strategy falls back to the default
+        bdbEntity5.setAttributes(TStringUtils.setAttrValToAttributes(bdbEntity5.getAttributes(),
+                TStoreConstants.TOKEN_BALANCE_STRATEGY, "99"));
+        Assert.assertEquals(bdbEntity5.getBalanceStrategy(), BalanceStrategy.STRATEGY_DEFAULT);
+        bdbEntity5.setAttributes(TStringUtils.setAttrValToAttributes(bdbEntity5.getAttributes(),
+                TStoreConstants.TOKEN_BALANCE_STRATEGY, "sticky"));
+        Assert.assertEquals(bdbEntity5.getBalanceStrategy(), BalanceStrategy.STRATEGY_DEFAULT);
 
     }
 
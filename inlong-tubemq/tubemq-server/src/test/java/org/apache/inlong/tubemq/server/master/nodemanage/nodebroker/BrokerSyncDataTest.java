@@ -0,0 +1,78 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.master.nodemanage.nodebroker;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.inlong.tubemq.corebase.cluster.BrokerInfo;
+import org.apache.inlong.tubemq.corebase.utils.Tuple4;
+import org.apache.inlong.tubemq.server.common.statusdef.ManageStatus;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class BrokerSyncDataTest {
+
+    private static final String BROKER_CONF = "1:true:true:1000:10000:0,0,6:delete,168h:1:1000:1024:1000:1000";
+
+    @Test
+    public void testIncSyncData() {
+        BrokerSyncData syncData = new BrokerSyncData();
+        Map<String, String> topicConfMap = new HashMap<>();
+        topicConfMap.put("topic1", buildTopicConf("topic1", 2));
+        topicConfMap.put("topic2", buildTopicConf("topic2", 4));
+        syncData.updBrokerSyncData(true, 1L,
+                ManageStatus.STATUS_MANAGE_ONLINE, BROKER_CONF, topicConfMap);
+        Tuple4<Long, Integer, String, List<String>> baseConf = syncData.getBrokerSyncData();
+        // the broker reports the pushed configure
+        BrokerInfo brokerInfo = new BrokerInfo(1, "127.0.0.1", 8123);
+        Assert.assertTrue(syncData.bookBrokerReportInfo(brokerInfo,
+                baseConf.getF0(), baseConf.getF1(), false, null, null));
+        Assert.assertNull(syncData.getBrokerIncSyncData());
+        // change topic2, add topic3 and remove topic1
+        Map<String, String> newTopicConfMap = new HashMap<>();
+        newTopicConfMap.put("topic2", buildTopicConf("topic2", 8));
+        newTopicConfMap.put("topic3", buildTopicConf("topic3", 6));
+        syncData.updBrokerSyncData(false, 2L,
+                ManageStatus.STATUS_MANAGE_ONLINE, BROKER_CONF, newTopicConfMap);
+        Tuple4<Long, Integer, List<String>, List<String>> incConf =
+                syncData.getBrokerIncSyncData();
+        Assert.assertNotNull(incConf);
+        Assert.assertEquals(baseConf.getF0(), incConf.getF0());
+        Assert.assertEquals(baseConf.getF1(), incConf.getF1());
+        Assert.assertEquals(2, incConf.getF2().size());
+        Assert.assertTrue(incConf.getF2().contains(buildTopicConf("topic2", 8)));
+        Assert.assertTrue(incConf.getF2().contains(buildTopicConf("topic3", 6)));
+        Assert.assertEquals(1, incConf.getF3().size());
+        Assert.assertEquals("topic1", incConf.getF3().get(0));
+        // the reported configure is unknown, need full sync
+        syncData.bookBrokerReportInfo(brokerInfo,
+                baseConf.getF0(), baseConf.getF1() + 1, false, null, null);
+        Assert.assertNull(syncData.getBrokerIncSyncData());
+        // the broker default configure changed, need full sync
+        syncData.bookBrokerReportInfo(brokerInfo,
+                baseConf.getF0(), baseConf.getF1(), false, null, null);
+        syncData.updBrokerSyncData(false, 3L, ManageStatus.STATUS_MANAGE_ONLINE,
+                BROKER_CONF.replace("1:true", "2:true"), newTopicConfMap);
+        Assert.assertNull(syncData.getBrokerIncSyncData());
+    }
+
+    private String buildTopicConf(String topic, int partNum) {
+        return topic + ":" + partNum + ":true:true:1000:10000:0,0,6:delete,168h:1:1000:1024:1000:1000:1";
+    }
+}
@@ -0,0 +1,97 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.master.nodemanage.nodeconsumer;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import org.apache.inlong.tubemq.server.common.paramcheck.ParamCheckResult;
+import org.apache.inlong.tubemq.server.master.MasterConfig;
+import org.apache.inlong.tubemq.server.master.TMaster;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ConsumerInfoHolderTest {
+    private ConsumerInfoHolder consumerHolder;
+
+    @Before
+    public void setUp() throws Exception {
+        TMaster tMaster = mock(TMaster.class);
+        when(tMaster.getMasterConfig()).thenReturn(new MasterConfig());
+        consumerHolder = new ConsumerInfoHolder(tMaster);
+    }
+
+    @Test
+    public void dirtyGroupTest() {
+        addConsumer("consumer001", "group001", "topic001");
+        // the registered group is marked
+        Map<String, Long> dirtyGroups = consumerHolder.getAndResetDirtyGroups();
+        Assert.assertEquals(Collections.singleton("group001"), dirtyGroups.keySet());
+        Assert.assertTrue(consumerHolder.getAndResetDirtyGroups().isEmpty());
+        // marked again, keep the earliest marked time
+        consumerHolder.markDirtyGroups(dirtyGroups,
+                Collections.singletonList("group001"));
+        consumerHolder.markDirtyGroup("group001");
+        Assert.assertEquals(dirtyGroups, consumerHolder.getAndResetDirtyGroups());
+        // the groups subscribed the changed topics are marked
+        consumerHolder.markDirtyGroupsByTopics(Collections.singleton("topic002"));
+        Assert.assertTrue(consumerHolder.getAndResetDirtyGroups().isEmpty());
+        consumerHolder.markDirtyGroupsByTopics(Collections.singleton("topic001"));
+        Assert.assertTrue(consumerHolder.getAndResetDirtyGroups().containsKey("group001"));
+        // the group is marked when a consumer leaves
+        addConsumer("consumer002", "group001", "topic001");
+        consumerHolder.getAndResetDirtyGroups();
+        consumerHolder.removeConsumer("group001", "consumer002", false);
+        Assert.assertTrue(consumerHolder.getAndResetDirtyGroups().containsKey("group001"));
+    }
+
+    @Test
+    public void unfinishedBalanceGroupTest() {
+        addConsumer("consumer001", "group001", "topic001");
+        consumerHolder.getAndResetDirtyGroups();
+        // the resource check is not passed yet
+        consumerHolder.markUnfinishedBalanceGroups(new HashMap<>(),
+                Collections.singletonList("group001"));
+        Assert.assertTrue(consumerHolder.getAndResetDirtyGroups().containsKey("group001"));
+        // balanced completely
+        consumerHolder.getConsumeGroupInfo("group001")
+                .setConsumeResourceInfo(-2, 1, -2, true);
+        consumerHolder.markUnfinishedBalanceGroups(new HashMap<>(),
+                Collections.singletonList("group001"));
+        Assert.assertTrue(consumerHolder.getAndResetDirtyGroups().isEmpty());
+        // waiting for the consumer to release its partitions
+        consumerHolder.addRebConsumerInfo("group001",
+                Collections.singleton("consumer001"), 30);
+        consumerHolder.getAndResetDirtyGroups();
+        consumerHolder.markUnfinishedBalanceGroups(new HashMap<>(),
+                Collections.singletonList("group001"));
+        Assert.assertTrue(consumerHolder.getAndResetDirtyGroups().containsKey("group001"));
+    }
+
+    private void addConsumer(String consumerId, String group, String topic) {
+        ConsumerInfo consumer = new ConsumerInfo(consumerId, false, group,
+                Collections.singleton(topic), null, ConsumeType.CONSUME_NORMAL,
+                "", System.currentTimeMillis(), -2, false,
+                new HashMap<>(), "127.0.0.1");
+        Assert.assertTrue(consumerHolder.addConsumer(consumer, false,
+                new StringBuilder(512), new ParamCheckResult()));
+    }
+}
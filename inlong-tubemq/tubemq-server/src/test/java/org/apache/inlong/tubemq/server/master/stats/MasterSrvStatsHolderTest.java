@@ -105,6 +105,8 @@ public class MasterSrvStatsHolderTest {
         strBuff.delete(0, strBuff.length());
         MasterSrvStatsHolder.updSvrBalanceDurations(32);
         MasterSrvStatsHolder.updSvrBalResetDurations(100);
+        MasterSrvStatsHolder.updSvrBalanceGroupCnt(5);
+        MasterSrvStatsHolder.updSvrBalanceDelay(20);
         MasterSrvStatsHolder.getValue(retMap);
         Assert.assertEquals(-6, retMap.get("csm_online_group_cnt").longValue());
         Assert.assertEquals(0, retMap.get("csm_group_timeout_cnt").longValue());
@@ -122,5 +124,7 @@ public class MasterSrvStatsHolderTest {
         Assert.assertEquals(0, retMap.get("broker_forbidden_cnt").longValue());
         Assert.assertEquals(1, retMap.get("server_balance_normal_count").longValue());
         Assert.assertEquals(1, retMap.get("server_balance_reset_count").longValue());
+        Assert.assertEquals(1, retMap.get("server_balance_groups_count").longValue());
+        Assert.assertEquals(1, retMap.get("server_balance_delay_count").longValue());
     }
 }